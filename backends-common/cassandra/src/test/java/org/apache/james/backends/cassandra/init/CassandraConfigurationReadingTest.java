@@ -54,6 +54,7 @@ public class CassandraConfigurationReadingTest {
                 .blobPartSize(10)
                 .attachmentV2MigrationReadTimeout(11)
                 .messageAttachmentIdsReadTimeout(12)
+                .blobPartsInFlight(13)
                 .build());
     }
 
@@ -0,0 +1,145 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.backends.es;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+public class BulkIndexingConfiguration {
+    public static final int DEFAULT_BULK_SIZE = 500;
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1);
+    public static final int DEFAULT_MAX_PENDING_OPERATIONS = 10000;
+    public static final BulkIndexingConfiguration DEFAULT = builder().build();
+
+    public static class Builder {
+        private Optional<Integer> bulkSize;
+        private Optional<Duration> flushInterval;
+        private Optional<Integer> maxPendingOperations;
+
+        private Builder() {
+            bulkSize = Optional.empty();
+            flushInterval = Optional.empty();
+            maxPendingOperations = Optional.empty();
+        }
+
+        public Builder bulkSize(int bulkSize) {
+            return bulkSize(Optional.of(bulkSize));
+        }
+
+        public Builder bulkSize(Optional<Integer> bulkSize) {
+            bulkSize.ifPresent(value -> Preconditions.checkArgument(value > 0, "bulkSize needs to be strictly positive"));
+            this.bulkSize = bulkSize;
+            return this;
+        }
+
+        public Builder flushInterval(Duration flushInterval) {
+            return flushInterval(Optional.of(flushInterval));
+        }
+
+        public Builder flushInterval(Optional<Duration> flushInterval) {
+            flushInterval.ifPresent(value -> Preconditions.checkArgument(!value.isNegative() && !value.isZero(), "flushInterval needs to be strictly positive"));
+            this.flushInterval = flushInterval;
+            return this;
+        }
+
+        public Builder maxPendingOperations(int maxPendingOperations) {
+            return maxPendingOperations(Optional.of(maxPendingOperations));
+        }
+
+        public Builder maxPendingOperations(Optional<Integer> maxPendingOperations) {
+            maxPendingOperations.ifPresent(value -> Preconditions.checkArgument(value > 0, "maxPendingOperations needs to be strictly positive"));
+            this.maxPendingOperations = maxPendingOperations;
+            return this;
+        }
+
+        public BulkIndexingConfiguration build() {
+            int finalBulkSize = bulkSize.orElse(DEFAULT_BULK_SIZE);
+            int finalMaxPendingOperations = maxPendingOperations.orElse(Math.max(DEFAULT_MAX_PENDING_OPERATIONS, finalBulkSize));
+            Preconditions.checkState(finalMaxPendingOperations >= finalBulkSize, "maxPendingOperations needs to be greater than bulkSize");
+            return new BulkIndexingConfiguration(finalBulkSize,
+                flushInterval.orElse(DEFAULT_FLUSH_INTERVAL),
+                finalMaxPendingOperations);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final int bulkSize;
+    private final Duration flushInterval;
+    private final int maxPendingOperations;
+
+    private BulkIndexingConfiguration(int bulkSize, Duration flushInterval, int maxPendingOperations) {
+        this.bulkSize = bulkSize;
+        this.flushInterval = flushInterval;
+        this.maxPendingOperations = maxPendingOperations;
+    }
+
+    /**
+     * Number of operations after which pending operations are sent to ElasticSearch.
+     */
+    public int getBulkSize() {
+        return bulkSize;
+    }
+
+    /**
+     * Maximum time an operation waits before being sent to ElasticSearch.
+     */
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Number of pending operations after which submitters are blocked.
+     */
+    public int getMaxPendingOperations() {
+        return maxPendingOperations;
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        if (o instanceof BulkIndexingConfiguration) {
+            BulkIndexingConfiguration that = (BulkIndexingConfiguration) o;
+
+            return Objects.equals(this.bulkSize, that.bulkSize)
+                && Objects.equals(this.flushInterval, that.flushInterval)
+                && Objects.equals(this.maxPendingOperations, that.maxPendingOperations);
+        }
+        return false;
+    }
+
+    @Override
+    public final int hashCode() {
+        return Objects.hash(bulkSize, flushInterval, maxPendingOperations);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("bulkSize", bulkSize)
+            .add("flushInterval", flushInterval)
+            .add("maxPendingOperations", maxPendingOperations)
+            .toString();
+    }
+}
@@ -0,0 +1,352 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.backends.es;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.james.metrics.api.GaugeRegistry;
+import org.apache.james.metrics.api.Metric;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.metrics.api.TimeMetric;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * {@link IndexingPipeline} buffering changes and sending them to ElasticSearch as bulk requests.
+ *
+ * A bulk request is sent once {@link BulkIndexingConfiguration#getBulkSize()} operations are pending, or once the
+ * oldest pending operation waited for {@link BulkIndexingConfiguration#getFlushInterval()}. Pending operations
+ * targeting the same document are coalesced: indexing or deleting a document supersedes any pending operation on it,
+ * and a partial update supersedes the previous pending partial update. Submitters block while
+ * {@link BulkIndexingConfiguration#getMaxPendingOperations()} operations are pending.
+ *
+ * Bulk requests are sent one at a time by a single thread, thus operations on a given document are applied in
+ * submission order. An index operation rejected by ElasticSearch is queued again with its fallback content, unless a
+ * later index or delete of that document is pending.
+ */
+public class BulkIndexingPipeline implements IndexingPipeline, Closeable {
+    public static final String BULK_TIME_METRIC_NAME = "elasticsearch.bulk.time";
+    public static final String BULK_OPERATIONS_METRIC_NAME = "elasticsearch.bulk.operations";
+    public static final String BULK_FAILURES_METRIC_NAME = "elasticsearch.bulk.failures";
+    public static final String COALESCED_OPERATIONS_METRIC_NAME = "elasticsearch.bulk.coalesced";
+    public static final String QUEUE_DEPTH_METRIC_NAME = "elasticsearch.bulk.queue.depth";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkIndexingPipeline.class);
+
+    private static class PendingDocument {
+        private Optional<IndexOperation> base;
+        private Optional<IndexOperation> update;
+
+        PendingDocument() {
+            this.base = Optional.empty();
+            this.update = Optional.empty();
+        }
+
+        int size() {
+            return (base.isPresent() ? 1 : 0) + (update.isPresent() ? 1 : 0);
+        }
+
+        boolean isDeleted() {
+            return base.map(operation -> operation.getType() == IndexOperation.Type.DELETE)
+                .orElse(false);
+        }
+
+        List<IndexOperation> operations() {
+            ImmutableList.Builder<IndexOperation> operations = ImmutableList.builder();
+            base.ifPresent(operations::add);
+            update.ifPresent(operations::add);
+            return operations.build();
+        }
+    }
+
+    private final ElasticSearchIndexer indexer;
+    private final MetricFactory metricFactory;
+    private final BulkIndexingConfiguration configuration;
+    private final Metric bulkOperations;
+    private final Metric bulkFailures;
+    private final Metric coalescedOperations;
+    private final Object lock;
+    private final Map<String, PendingDocument> pendingDocuments;
+    private final Thread flusher;
+    private int pendingOperations;
+    private int inFlightOperations;
+    private int flushWaiters;
+    private long oldestPendingNanos;
+    private boolean closed;
+
+    public BulkIndexingPipeline(ElasticSearchIndexer indexer, MetricFactory metricFactory, GaugeRegistry gaugeRegistry,
+                                BulkIndexingConfiguration configuration) {
+        this.indexer = indexer;
+        this.metricFactory = metricFactory;
+        this.configuration = configuration;
+        this.bulkOperations = metricFactory.generate(BULK_OPERATIONS_METRIC_NAME);
+        this.bulkFailures = metricFactory.generate(BULK_FAILURES_METRIC_NAME);
+        this.coalescedOperations = metricFactory.generate(COALESCED_OPERATIONS_METRIC_NAME);
+        this.lock = new Object();
+        this.pendingDocuments = new LinkedHashMap<>();
+        this.closed = false;
+
+        gaugeRegistry.register(QUEUE_DEPTH_METRIC_NAME, this::getPendingOperations);
+
+        this.flusher = new Thread(this::flushLoop, "elasticsearch-bulk-indexing");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public void index(String id, String content) {
+        replace(IndexOperation.index(id, content));
+    }
+
+    @Override
+    public void index(String id, String content, String fallbackContent) {
+        replace(IndexOperation.index(id, content, fallbackContent));
+    }
+
+    @Override
+    public void update(List<UpdatedRepresentation> updatedDocumentParts) {
+        updatedDocumentParts.stream()
+            .map(IndexOperation::update)
+            .forEach(this::addUpdate);
+    }
+
+    @Override
+    public void delete(List<String> ids) {
+        ids.stream()
+            .map(IndexOperation::delete)
+            .forEach(this::replace);
+    }
+
+    @Override
+    public void flush() {
+        synchronized (lock) {
+            flushWaiters++;
+            lock.notifyAll();
+            try {
+                while (pendingOperations > 0 || inFlightOperations > 0) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                flushWaiters--;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPendingOperations() {
+        synchronized (lock) {
+            return pendingOperations;
+        }
+    }
+
+    private void replace(IndexOperation operation) {
+        synchronized (lock) {
+            awaitCapacity();
+            PendingDocument document = pendingDocument(operation.getId());
+            int supersededOperations = document.size();
+            document.base = Optional.of(operation);
+            document.update = Optional.empty();
+            recordPendingOperationDelta(1 - supersededOperations);
+            if (supersededOperations > 0) {
+                coalescedOperations.add(supersededOperations);
+            }
+        }
+    }
+
+    private void addUpdate(IndexOperation operation) {
+        synchronized (lock) {
+            awaitCapacity();
+            PendingDocument document = pendingDocument(operation.getId());
+            if (document.isDeleted()) {
+                coalescedOperations.increment();
+                return;
+            }
+            if (document.update.isPresent()) {
+                coalescedOperations.increment();
+            } else {
+                recordPendingOperationDelta(1);
+            }
+            document.update = Optional.of(operation);
+        }
+    }
+
+    private void requeue(IndexOperation operation) {
+        synchronized (lock) {
+            PendingDocument document = pendingDocument(operation.getId());
+            if (document.base.isPresent()) {
+                return;
+            }
+            document.base = Optional.of(operation);
+            recordPendingOperationDelta(1);
+        }
+    }
+
+    private PendingDocument pendingDocument(String id) {
+        return pendingDocuments.computeIfAbsent(id, any -> new PendingDocument());
+    }
+
+    private void awaitCapacity() {
+        try {
+            while (!closed && pendingOperations >= configuration.getMaxPendingOperations()) {
+                lock.wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for indexing capacity", e);
+        }
+        if (closed) {
+            throw new IllegalStateException("Indexing pipeline is closed");
+        }
+    }
+
+    private void recordPendingOperationDelta(int delta) {
+        boolean wasEmpty = pendingOperations == 0;
+        pendingOperations += delta;
+        if (wasEmpty && pendingOperations > 0) {
+            oldestPendingNanos = System.nanoTime();
+            lock.notifyAll();
+        } else if (pendingOperations >= configuration.getBulkSize()) {
+            lock.notifyAll();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            Optional<List<IndexOperation>> batch = nextBatch();
+            if (!batch.isPresent()) {
+                return;
+            }
+            try {
+                send(batch.get());
+            } catch (Exception e) {
+                LOGGER.error("Error while sending {} operations to ElasticSearch", batch.get().size(), e);
+                bulkFailures.add(batch.get().size());
+            } finally {
+                synchronized (lock) {
+                    inFlightOperations = 0;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private Optional<List<IndexOperation>> nextBatch() {
+        synchronized (lock) {
+            try {
+                while (!shouldSend()) {
+                    if (closed) {
+                        return Optional.empty();
+                    }
+                    lock.wait(waitTimeMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Optional.empty();
+            }
+            List<IndexOperation> batch = drain();
+            inFlightOperations = batch.size();
+            lock.notifyAll();
+            return Optional.of(batch);
+        }
+    }
+
+    private boolean shouldSend() {
+        if (pendingOperations == 0) {
+            return false;
+        }
+        return closed
+            || flushWaiters > 0
+            || pendingOperations >= configuration.getBulkSize()
+            || System.nanoTime() - oldestPendingNanos >= configuration.getFlushInterval().toNanos();
+    }
+
+    private long waitTimeMillis() {
+        if (pendingOperations == 0) {
+            return 0;
+        }
+        long remainingNanos = configuration.getFlushInterval().toNanos() - (System.nanoTime() - oldestPendingNanos);
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(remainingNanos));
+    }
+
+    private List<IndexOperation> drain() {
+        ImmutableList.Builder<IndexOperation> batch = ImmutableList.builder();
+        int batchSize = 0;
+        Iterator<PendingDocument> documents = pendingDocuments.values().iterator();
+        while (documents.hasNext() && batchSize < configuration.getBulkSize()) {
+            PendingDocument document = documents.next();
+            batch.addAll(document.operations());
+            batchSize += document.size();
+            documents.remove();
+        }
+        pendingOperations -= batchSize;
+        oldestPendingNanos = System.nanoTime();
+        return batch.build();
+    }
+
+    private void send(List<IndexOperation> batch) {
+        TimeMetric timeMetric = metricFactory.timer(BULK_TIME_METRIC_NAME);
+        try {
+            Optional<BulkResponse> response = indexer.bulk(batch);
+            bulkOperations.add(batch.size());
+            if (!response.isPresent()) {
+                bulkFailures.add(batch.size());
+                return;
+            }
+            if (response.get().hasFailures()) {
+                reportFailures(batch, response.get());
+            }
+        } finally {
+            timeMetric.stopAndPublish();
+        }
+    }
+
+    private void reportFailures(List<IndexOperation> batch, BulkResponse response) {
+        for (BulkItemResponse item : response.getItems()) {
+            if (item.isFailed()) {
+                bulkFailures.increment();
+                LOGGER.warn("Failed to {} document {}: {}", item.getOpType(), item.getId(), item.getFailureMessage());
+                batch.get(item.getItemId()).fallback().ifPresent(this::requeue);
+            }
+        }
+    }
+}
@@ -106,6 +106,36 @@ public class ElasticSearchIndexer {
         }
     }
 
+    public Optional<BulkResponse> bulk(List<IndexOperation> operations) {
+        try {
+            Preconditions.checkNotNull(operations);
+            BulkRequestBuilder bulkRequestBuilder = client.prepareBulk();
+            operations.forEach(operation -> addToBulk(bulkRequestBuilder, operation));
+            return Optional.of(bulkRequestBuilder.get());
+        } catch (ValidationException e) {
+            LOGGER.warn("Error while applying bulk operations", e);
+            return Optional.empty();
+        }
+    }
+
+    private void addToBulk(BulkRequestBuilder bulkRequestBuilder, IndexOperation operation) {
+        switch (operation.getType()) {
+            case INDEX:
+                bulkRequestBuilder.add(client.prepareIndex(aliasName.getValue(), typeName.getValue(), operation.getId())
+                    .setSource(operation.getContent().get()));
+                break;
+            case UPDATE:
+                bulkRequestBuilder.add(client.prepareUpdate(aliasName.getValue(), typeName.getValue(), operation.getId())
+                    .setDoc(operation.getContent().get()));
+                break;
+            case DELETE:
+                bulkRequestBuilder.add(client.prepareDelete(aliasName.getValue(), typeName.getValue(), operation.getId()));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation type " + operation.getType());
+        }
+    }
+
     public Future<Void> deleteAllMatchingQuery(QueryBuilder queryBuilder) {
         return deleteByQueryPerformer.perform(queryBuilder);
     }
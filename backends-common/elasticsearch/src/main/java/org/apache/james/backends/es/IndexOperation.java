@@ -0,0 +1,116 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.backends.es;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import org.elasticsearch.common.Strings;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+public class IndexOperation {
+
+    public enum Type {
+        INDEX,
+        UPDATE,
+        DELETE
+    }
+
+    public static IndexOperation index(String id, String content) {
+        Preconditions.checkArgument(content != null, "content should be provided");
+        return new IndexOperation(Type.INDEX, id, Optional.of(content), Optional.empty());
+    }
+
+    public static IndexOperation index(String id, String content, String fallbackContent) {
+        Preconditions.checkArgument(content != null, "content should be provided");
+        Preconditions.checkArgument(fallbackContent != null, "fallbackContent should be provided");
+        return new IndexOperation(Type.INDEX, id, Optional.of(content), Optional.of(fallbackContent));
+    }
+
+    public static IndexOperation update(UpdatedRepresentation updatedRepresentation) {
+        return new IndexOperation(Type.UPDATE, updatedRepresentation.getId(), Optional.of(updatedRepresentation.getUpdatedDocumentPart()), Optional.empty());
+    }
+
+    public static IndexOperation delete(String id) {
+        return new IndexOperation(Type.DELETE, id, Optional.empty(), Optional.empty());
+    }
+
+    private final Type type;
+    private final String id;
+    private final Optional<String> content;
+    private final Optional<String> fallbackContent;
+
+    private IndexOperation(Type type, String id, Optional<String> content, Optional<String> fallbackContent) {
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(id), "id must be specified");
+        this.type = type;
+        this.id = id;
+        this.content = content;
+        this.fallbackContent = fallbackContent;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the whole document for {@link Type#INDEX}, the updated part of the document for {@link Type#UPDATE}
+     */
+    public Optional<String> getContent() {
+        return content;
+    }
+
+    /**
+     * @return the {@link Type#INDEX} operation to apply instead, should ElasticSearch reject this one
+     */
+    public Optional<IndexOperation> fallback() {
+        return fallbackContent.map(fallback -> index(id, fallback));
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        if (o instanceof IndexOperation) {
+            IndexOperation other = (IndexOperation) o;
+            return Objects.equals(type, other.type)
+                && Objects.equals(id, other.id)
+                && Objects.equals(content, other.content)
+                && Objects.equals(fallbackContent, other.fallbackContent);
+        }
+        return false;
+    }
+
+    @Override
+    public final int hashCode() {
+        return Objects.hash(type, id, content, fallbackContent);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("type", type)
+            .add("id", id)
+            .toString();
+    }
+}
@@ -0,0 +1,46 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.backends.es;
+
+import java.util.List;
+
+/**
+ * Submits document changes to an ElasticSearch index.
+ * <p/>
+ * Implementations might apply changes asynchronously. Changes to a given document are applied in submission order.
+ */
+public interface IndexingPipeline {
+
+    void index(String id, String content);
+
+    /**
+     * Indexes the document, falling back to the given content should ElasticSearch reject the original one.
+     */
+    void index(String id, String content, String fallbackContent);
+
+    void update(List<UpdatedRepresentation> updatedDocumentParts);
+
+    void delete(List<String> ids);
+
+    /**
+     * Blocks until every change submitted before this call has been sent to ElasticSearch.
+     */
+    void flush();
+}
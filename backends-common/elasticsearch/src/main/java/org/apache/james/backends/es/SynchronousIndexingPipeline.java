@@ -0,0 +1,68 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.backends.es;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link IndexingPipeline} sending each change to ElasticSearch on the calling thread.
+ */
+public class SynchronousIndexingPipeline implements IndexingPipeline {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SynchronousIndexingPipeline.class);
+
+    private final ElasticSearchIndexer indexer;
+
+    public SynchronousIndexingPipeline(ElasticSearchIndexer indexer) {
+        this.indexer = indexer;
+    }
+
+    @Override
+    public void index(String id, String content) {
+        indexer.index(id, content);
+    }
+
+    @Override
+    public void index(String id, String content, String fallbackContent) {
+        try {
+            indexer.index(id, content);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to index document {}, indexing its fallback content", id, e);
+            indexer.index(id, fallbackContent);
+        }
+    }
+
+    @Override
+    public void update(List<UpdatedRepresentation> updatedDocumentParts) {
+        indexer.update(updatedDocumentParts);
+    }
+
+    @Override
+    public void delete(List<String> ids) {
+        indexer.delete(ids);
+    }
+
+    @Override
+    public void flush() {
+        // changes are applied synchronously
+    }
+}
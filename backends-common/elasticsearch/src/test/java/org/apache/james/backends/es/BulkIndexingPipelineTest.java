@@ -0,0 +1,256 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.backends.es;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.james.backends.es.utils.TestingClientProvider;
+import org.apache.james.metrics.api.NoopGaugeRegistry;
+import org.apache.james.metrics.api.NoopMetricFactory;
+import org.awaitility.Awaitility;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.node.Node;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+
+public class BulkIndexingPipelineTest {
+
+    private static final IndexName INDEX_NAME = new IndexName("index_name");
+    private static final WriteAliasName ALIAS_NAME = new WriteAliasName("alias_name");
+    private static final TypeName TYPE_NAME = new TypeName("type_name");
+    private static final BulkIndexingConfiguration NEVER_FLUSHING = BulkIndexingConfiguration.builder()
+        .bulkSize(1000)
+        .flushInterval(Duration.ofHours(1))
+        .build();
+    private static final String CONTENT = "{\"message\": \"trying out Elasticsearch\",\"field\":\"Should be unchanged\"}";
+    private static final String UPDATED_PART = "{\"message\": \"mastering out Elasticsearch\"}";
+
+    private TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private EmbeddedElasticSearch embeddedElasticSearch = new EmbeddedElasticSearch(temporaryFolder);
+
+    @Rule
+    public RuleChain ruleChain = RuleChain.outerRule(temporaryFolder).around(embeddedElasticSearch);
+
+    private Node node;
+    private ElasticSearchIndexer indexer;
+    private BulkIndexingPipeline testee;
+
+    @Before
+    public void setup() {
+        node = embeddedElasticSearch.getNode();
+        TestingClientProvider clientProvider = new TestingClientProvider(node);
+        new IndexCreationFactory()
+            .useIndex(INDEX_NAME)
+            .addAlias(ALIAS_NAME)
+            .createIndexAndAliases(clientProvider.get());
+        indexer = new ElasticSearchIndexer(clientProvider.get(), Executors.newSingleThreadExecutor(), ALIAS_NAME, TYPE_NAME);
+        testee = pipeline(NEVER_FLUSHING);
+    }
+
+    @After
+    public void tearDown() {
+        testee.close();
+    }
+
+    @Test
+    public void indexShouldNotBeAppliedBeforeFlush() {
+        testee.index("1", CONTENT);
+        embeddedElasticSearch.awaitForElasticSearch();
+
+        assertThat(count(QueryBuilders.matchAllQuery())).isEqualTo(0);
+    }
+
+    @Test
+    public void flushShouldApplyPendingIndex() {
+        testee.index("1", CONTENT);
+
+        testee.flush();
+        embeddedElasticSearch.awaitForElasticSearch();
+
+        assertThat(count(QueryBuilders.matchQuery("message", "trying"))).isEqualTo(1);
+    }
+
+    @Test
+    public void flushShouldApplyUpdateOnPendingIndex() {
+        testee.index("1", CONTENT);
+        testee.update(ImmutableList.of(new UpdatedRepresentation("1", UPDATED_PART)));
+
+        testee.flush();
+        embeddedElasticSearch.awaitForElasticSearch();
+
+        assertThat(count(QueryBuilders.matchQuery("message", "mastering"))).isEqualTo(1);
+        assertThat(count(QueryBuilders.matchQuery("field", "unchanged"))).isEqualTo(1);
+    }
+
+    @Test
+    public void flushShouldApplyUpdateOnIndexedDocument() {
+        testee.index("1", CONTENT);
+        testee.flush();
+        embeddedElasticSearch.awaitForElasticSearch();
+
+        testee.update(ImmutableList.of(new UpdatedRepresentation("1", UPDATED_PART)));
+        testee.flush();
+        embeddedElasticSearch.awaitForElasticSearch();
+
+        assertThat(count(QueryBuilders.matchQuery("message", "mastering"))).isEqualTo(1);
+    }
+
+    @Test
+    public void flushShouldApplyDeleteOnIndexedDocument() {
+        testee.index("1", CONTENT);
+        testee.flush();
+        embeddedElasticSearch.awaitForElasticSearch();
+
+        testee.delete(ImmutableList.of("1"));
+        testee.flush();
+        embeddedElasticSearch.awaitForElasticSearch();
+
+        assertThat(count(QueryBuilders.matchAllQuery())).isEqualTo(0);
+    }
+
+    @Test
+    public void flushShouldIndexFallbackContentWhenContentIsRejected() {
+        testee.index("1", CONTENT);
+        testee.flush();
+        embeddedElasticSearch.awaitForElasticSearch();
+
+        String conflictingContent = "{\"message\": {\"nested\": \"object\"}}";
+        testee.index("2", conflictingContent, CONTENT);
+        testee.flush();
+        embeddedElasticSearch.awaitForElasticSearch();
+
+        assertThat(count(QueryBuilders.matchQuery("message", "trying"))).isEqualTo(2);
+    }
+
+    @Test
+    public void deleteShouldSupersedePendingOperations() {
+        testee.index("1", CONTENT);
+        testee.update(ImmutableList.of(new UpdatedRepresentation("1", UPDATED_PART)));
+        testee.delete(ImmutableList.of("1"));
+
+        assertThat(testee.getPendingOperations()).isEqualTo(1);
+
+        testee.flush();
+        embeddedElasticSearch.awaitForElasticSearch();
+
+        assertThat(count(QueryBuilders.matchAllQuery())).isEqualTo(0);
+    }
+
+    @Test
+    public void updateShouldBeDroppedWhenDocumentDeletionIsPending() {
+        testee.delete(ImmutableList.of("1"));
+        testee.update(ImmutableList.of(new UpdatedRepresentation("1", UPDATED_PART)));
+
+        assertThat(testee.getPendingOperations()).isEqualTo(1);
+    }
+
+    @Test
+    public void consecutiveUpdatesShouldBeCoalesced() {
+        testee.index("1", CONTENT);
+        testee.flush();
+        embeddedElasticSearch.awaitForElasticSearch();
+
+        testee.update(ImmutableList.of(new UpdatedRepresentation("1", "{\"message\": \"first\"}")));
+        testee.update(ImmutableList.of(new UpdatedRepresentation("1", UPDATED_PART)));
+
+        assertThat(testee.getPendingOperations()).isEqualTo(1);
+
+        testee.flush();
+        embeddedElasticSearch.awaitForElasticSearch();
+
+        assertThat(count(QueryBuilders.matchQuery("message", "mastering"))).isEqualTo(1);
+        assertThat(count(QueryBuilders.matchQuery("message", "first"))).isEqualTo(0);
+    }
+
+    @Test
+    public void pendingOperationsShouldBeSentOnceBulkSizeIsReached() {
+        testee.close();
+        testee = pipeline(BulkIndexingConfiguration.builder()
+            .bulkSize(2)
+            .flushInterval(Duration.ofHours(1))
+            .build());
+
+        testee.index("1", CONTENT);
+        testee.index("2", CONTENT);
+
+        Awaitility.await()
+            .atMost(10, TimeUnit.SECONDS)
+            .until(() -> testee.getPendingOperations() == 0);
+        testee.flush();
+        embeddedElasticSearch.awaitForElasticSearch();
+
+        assertThat(count(QueryBuilders.matchAllQuery())).isEqualTo(2);
+    }
+
+    @Test
+    public void pendingOperationsShouldBeSentOnceFlushIntervalIsElapsed() {
+        testee.close();
+        testee = pipeline(BulkIndexingConfiguration.builder()
+            .bulkSize(1000)
+            .flushInterval(Duration.ofMillis(100))
+            .build());
+
+        testee.index("1", CONTENT);
+
+        Awaitility.await()
+            .atMost(10, TimeUnit.SECONDS)
+            .until(() -> testee.getPendingOperations() == 0);
+        testee.flush();
+        embeddedElasticSearch.awaitForElasticSearch();
+
+        assertThat(count(QueryBuilders.matchAllQuery())).isEqualTo(1);
+    }
+
+    @Test
+    public void closeShouldApplyPendingOperations() {
+        testee.index("1", CONTENT);
+
+        testee.close();
+        embeddedElasticSearch.awaitForElasticSearch();
+
+        assertThat(count(QueryBuilders.matchAllQuery())).isEqualTo(1);
+    }
+
+    private BulkIndexingPipeline pipeline(BulkIndexingConfiguration configuration) {
+        return new BulkIndexingPipeline(indexer, new NoopMetricFactory(), new NoopGaugeRegistry(), configuration);
+    }
+
+    private long count(QueryBuilder query) {
+        try (Client client = node.client()) {
+            return client.prepareSearch(INDEX_NAME.getValue())
+                .setTypes(TYPE_NAME.getValue())
+                .setQuery(query)
+                .get()
+                .getHits()
+                .getTotalHits();
+        }
+    }
+}
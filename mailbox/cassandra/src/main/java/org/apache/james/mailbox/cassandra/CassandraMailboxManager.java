@@ -114,7 +114,9 @@ public class CassandraMailboxManager extends StoreMailboxManager {
             getMessageIdFactory(),
             getBatchSizes(),
             getImmutableMailboxMessageFactory(),
-            getStoreRightManager());
+            getStoreRightManager(),
+            getMetricFactory(),
+            getCountersCache());
     }
 
 }
@@ -34,11 +34,13 @@ import org.apache.james.mailbox.store.BatchSizes;
 import org.apache.james.mailbox.store.ImmutableMailboxMessage;
 import org.apache.james.mailbox.store.StoreMessageManager;
 import org.apache.james.mailbox.store.StoreRightManager;
+import org.apache.james.mailbox.store.counters.MailboxCountersCache;
 import org.apache.james.mailbox.store.event.MailboxEventDispatcher;
 import org.apache.james.mailbox.store.mail.model.Mailbox;
 import org.apache.james.mailbox.store.mail.model.MailboxMessage;
 import org.apache.james.mailbox.store.mail.model.impl.MessageParser;
 import org.apache.james.mailbox.store.search.MessageSearchIndex;
+import org.apache.james.metrics.api.MetricFactory;
 
 import com.github.steveash.guavate.Guavate;
 
@@ -54,9 +56,11 @@ public class CassandraMessageManager extends StoreMessageManager {
                                    MailboxEventDispatcher dispatcher, MailboxPathLocker locker, Mailbox mailbox, QuotaManager quotaManager,
                                    QuotaRootResolver quotaRootResolver, MessageParser messageParser, MessageId.Factory messageIdFactory,
                                    BatchSizes batchSizes, ImmutableMailboxMessage.Factory immutableMailboxMessageFactory,
-                                   StoreRightManager storeRightManager) {
+                                   StoreRightManager storeRightManager,
+                                   MetricFactory metricFactory,
+                                   MailboxCountersCache countersCache) {
         super(CassandraMailboxManager.MESSAGE_CAPABILITIES, mapperFactory, index, dispatcher, locker, mailbox,
-            quotaManager, quotaRootResolver, messageParser, messageIdFactory, batchSizes, immutableMailboxMessageFactory, storeRightManager);
+            quotaManager, quotaRootResolver, messageParser, messageIdFactory, batchSizes, immutableMailboxMessageFactory, storeRightManager, metricFactory, countersCache);
 
         this.mapperFactory = mapperFactory;
     }
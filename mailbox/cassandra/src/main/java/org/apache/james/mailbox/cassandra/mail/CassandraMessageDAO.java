@@ -40,6 +40,7 @@ import static org.apache.james.mailbox.cassandra.table.CassandraMessageV2Table.T
 import static org.apache.james.mailbox.cassandra.table.CassandraMessageV2Table.TEXTUAL_LINE_COUNT;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
@@ -60,6 +61,7 @@ import org.apache.james.backends.cassandra.init.configuration.CassandraConfigura
 import org.apache.james.backends.cassandra.utils.CassandraAsyncExecutor;
 import org.apache.james.backends.cassandra.utils.CassandraUtils;
 import org.apache.james.blob.api.BlobId;
+import org.apache.james.blob.api.BlobReferenceRegistry;
 import org.apache.james.blob.api.BlobStore;
 import org.apache.james.mailbox.cassandra.ids.CassandraMessageId;
 import org.apache.james.mailbox.cassandra.table.CassandraMessageV2Table;
@@ -104,6 +106,7 @@ public class CassandraMessageDAO {
     private final CassandraTypesProvider typesProvider;
     private final BlobStore blobStore;
     private final BlobId.Factory blobIdFactory;
+    private final BlobReferenceRegistry referenceRegistry;
     private final CassandraConfiguration configuration;
     private final CassandraUtils cassandraUtils;
     private final CassandraMessageId.Factory messageIdFactory;
@@ -118,12 +121,13 @@ public class CassandraMessageDAO {
 
     @Inject
     public CassandraMessageDAO(Session session, CassandraTypesProvider typesProvider, BlobStore blobStore,
-                               BlobId.Factory blobIdFactory, CassandraConfiguration cassandraConfiguration,
+                               BlobId.Factory blobIdFactory, BlobReferenceRegistry referenceRegistry, CassandraConfiguration cassandraConfiguration,
             CassandraUtils cassandraUtils, CassandraMessageId.Factory messageIdFactory) {
         this.cassandraAsyncExecutor = new CassandraAsyncExecutor(session);
         this.typesProvider = typesProvider;
         this.blobStore = blobStore;
         this.blobIdFactory = blobIdFactory;
+        this.referenceRegistry = referenceRegistry;
         this.configuration = cassandraConfiguration;
         this.cassandraUtils = cassandraUtils;
         this.messageIdFactory = messageIdFactory;
@@ -140,8 +144,8 @@ public class CassandraMessageDAO {
 
     @VisibleForTesting
     public CassandraMessageDAO(Session session, CassandraTypesProvider typesProvider, BlobStore blobStore,
-                               BlobId.Factory blobIdFactory, CassandraUtils cassandraUtils, CassandraMessageId.Factory messageIdFactory) {
-        this(session, typesProvider, blobStore,  blobIdFactory, CassandraConfiguration.DEFAULT_CONFIGURATION, cassandraUtils, messageIdFactory);
+                               BlobId.Factory blobIdFactory, BlobReferenceRegistry referenceRegistry, CassandraUtils cassandraUtils, CassandraMessageId.Factory messageIdFactory) {
+        this(session, typesProvider, blobStore,  blobIdFactory, referenceRegistry, CassandraConfiguration.DEFAULT_CONFIGURATION, cassandraUtils, messageIdFactory);
     }
 
     private PreparedStatement prepareSelect(Session session, String[] fields) {
@@ -181,12 +185,13 @@ public class CassandraMessageDAO {
     }
 
     private CompletableFuture<Pair<BlobId, BlobId>> saveContent(MailboxMessage message) throws MailboxException {
-        try {
-            byte[] headerContent = IOUtils.toByteArray(message.getHeaderContent());
-            byte[] bodyContent = IOUtils.toByteArray(message.getBodyContent());
+        try (InputStream header = message.getHeaderContent();
+             InputStream body = message.getBodyContent()) {
+            byte[] headerContent = IOUtils.toByteArray(header);
+            byte[] bodyContent = IOUtils.toByteArray(body);
             return CompletableFutureUtil.combine(
-                blobStore.save(headerContent),
-                blobStore.save(bodyContent),
+                referenceRegistry.save(blobStore, blobIdFactory, headerContent),
+                referenceRegistry.save(blobStore, blobIdFactory, bodyContent),
                 Pair::of);
         } catch (IOException e) {
             throw new MailboxException("Error saving mail content", e);
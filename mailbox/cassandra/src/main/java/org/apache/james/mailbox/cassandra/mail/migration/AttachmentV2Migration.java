@@ -22,6 +22,8 @@ package org.apache.james.mailbox.cassandra.mail.migration;
 import javax.inject.Inject;
 
 import org.apache.james.backends.cassandra.migration.Migration;
+import org.apache.james.blob.api.BlobId;
+import org.apache.james.blob.api.BlobReferenceRegistry;
 import org.apache.james.blob.api.BlobStore;
 import org.apache.james.mailbox.cassandra.mail.CassandraAttachmentDAO;
 import org.apache.james.mailbox.cassandra.mail.CassandraAttachmentDAOV2;
@@ -35,14 +37,20 @@ public class AttachmentV2Migration implements Migration {
     private final CassandraAttachmentDAO attachmentDAOV1;
     private final CassandraAttachmentDAOV2 attachmentDAOV2;
     private final BlobStore blobStore;
+    private final BlobId.Factory blobIdFactory;
+    private final BlobReferenceRegistry referenceRegistry;
 
     @Inject
     public AttachmentV2Migration(CassandraAttachmentDAO attachmentDAOV1,
                                  CassandraAttachmentDAOV2 attachmentDAOV2,
-                                 BlobStore blobStore) {
+                                 BlobStore blobStore,
+                                 BlobId.Factory blobIdFactory,
+                                 BlobReferenceRegistry referenceRegistry) {
         this.attachmentDAOV1 = attachmentDAOV1;
         this.attachmentDAOV2 = attachmentDAOV2;
         this.blobStore = blobStore;
+        this.blobIdFactory = blobIdFactory;
+        this.referenceRegistry = referenceRegistry;
     }
 
     @Override
@@ -59,7 +67,7 @@ public class AttachmentV2Migration implements Migration {
 
     private Result migrateAttachment(Attachment attachment) {
         try {
-            blobStore.save(attachment.getBytes())
+            referenceRegistry.save(blobStore, blobIdFactory, attachment.getBytes())
                 .thenApply(blobId -> CassandraAttachmentDAOV2.from(attachment, blobId))
                 .thenCompose(attachmentDAOV2::storeAttachment)
                 .thenCompose(any -> attachmentDAOV1.deleteAttachment(attachment.getAttachmentId()))
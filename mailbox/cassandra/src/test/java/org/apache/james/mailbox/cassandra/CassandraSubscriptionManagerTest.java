@@ -23,6 +23,8 @@ import org.apache.james.backends.cassandra.CassandraCluster;
 import org.apache.james.backends.cassandra.DockerCassandraRule;
 import org.apache.james.backends.cassandra.init.configuration.CassandraConfiguration;
 import org.apache.james.backends.cassandra.utils.CassandraUtils;
+import org.apache.james.blob.api.BlobId;
+import org.apache.james.blob.api.BlobReferenceRegistry;
 import org.apache.james.blob.api.BlobStore;
 import org.apache.james.mailbox.AbstractSubscriptionManagerTest;
 import org.apache.james.mailbox.SubscriptionManager;
@@ -103,6 +105,8 @@ public class CassandraSubscriptionManagerTest extends AbstractSubscriptionManage
         CassandraACLMapper aclMapper = null;
         CassandraUserMailboxRightsDAO userMailboxRightsDAO = null;
         BlobStore blobStore = null;
+        BlobId.Factory blobIdFactory = null;
+        BlobReferenceRegistry referenceRegistry = null;
         CassandraUidProvider uidProvider = null;
         CassandraModSeqProvider modSeqProvider = null;
         return new CassandraSubscriptionManager(
@@ -124,6 +128,8 @@ public class CassandraSubscriptionManagerTest extends AbstractSubscriptionManage
                 attachmentDAOV2,
                 deletedMessageDAO,
                 blobStore,
+                blobIdFactory,
+                referenceRegistry,
                 attachmentMessageIdDAO,
                 ownerDAO,
                 aclMapper,
@@ -36,6 +36,7 @@ import org.apache.james.backends.cassandra.migration.Migration;
 import org.apache.james.backends.cassandra.utils.CassandraUtils;
 import org.apache.james.blob.api.HashBlobId;
 import org.apache.james.blob.cassandra.CassandraBlobModule;
+import org.apache.james.blob.cassandra.CassandraBlobReferenceRegistry;
 import org.apache.james.blob.cassandra.CassandraBlobsDAO;
 import org.apache.james.mailbox.cassandra.mail.CassandraAttachmentDAO;
 import org.apache.james.mailbox.cassandra.mail.CassandraAttachmentDAOV2;
@@ -60,6 +61,7 @@ class AttachmentV2MigrationTest {
     private CassandraAttachmentDAO attachmentDAO;
     private CassandraAttachmentDAOV2 attachmentDAOV2;
     private CassandraBlobsDAO blobsDAO;
+    private CassandraBlobReferenceRegistry referenceRegistry;
     private AttachmentV2Migration migration;
     private Attachment attachment1;
     private Attachment attachment2;
@@ -71,7 +73,8 @@ class AttachmentV2MigrationTest {
             CassandraConfiguration.DEFAULT_CONFIGURATION);
         attachmentDAOV2 = new CassandraAttachmentDAOV2(BLOB_ID_FACTORY, cassandra.getConf());
         blobsDAO = new CassandraBlobsDAO(cassandra.getConf());
-        migration = new AttachmentV2Migration(attachmentDAO, attachmentDAOV2, blobsDAO);
+        referenceRegistry = new CassandraBlobReferenceRegistry(cassandra.getConf());
+        migration = new AttachmentV2Migration(attachmentDAO, attachmentDAOV2, blobsDAO, BLOB_ID_FACTORY, referenceRegistry);
 
         attachment1 = Attachment.builder()
             .attachmentId(ATTACHMENT_ID)
@@ -135,7 +138,7 @@ class AttachmentV2MigrationTest {
         CassandraAttachmentDAO attachmentDAO = mock(CassandraAttachmentDAO.class);
         CassandraAttachmentDAOV2 attachmentDAOV2 = mock(CassandraAttachmentDAOV2.class);
         CassandraBlobsDAO blobsDAO = mock(CassandraBlobsDAO.class);
-        migration = new AttachmentV2Migration(attachmentDAO, attachmentDAOV2, blobsDAO);
+        migration = new AttachmentV2Migration(attachmentDAO, attachmentDAOV2, blobsDAO, BLOB_ID_FACTORY, referenceRegistry);
 
         when(attachmentDAO.retrieveAll()).thenThrow(new RuntimeException());
 
@@ -147,7 +150,7 @@ class AttachmentV2MigrationTest {
         CassandraAttachmentDAO attachmentDAO = mock(CassandraAttachmentDAO.class);
         CassandraAttachmentDAOV2 attachmentDAOV2 = mock(CassandraAttachmentDAOV2.class);
         CassandraBlobsDAO blobsDAO = mock(CassandraBlobsDAO.class);
-        migration = new AttachmentV2Migration(attachmentDAO, attachmentDAOV2, blobsDAO);
+        migration = new AttachmentV2Migration(attachmentDAO, attachmentDAOV2, blobsDAO, BLOB_ID_FACTORY, referenceRegistry);
 
         when(attachmentDAO.retrieveAll()).thenReturn(Stream.of(
             attachment1,
@@ -162,7 +165,7 @@ class AttachmentV2MigrationTest {
         CassandraAttachmentDAO attachmentDAO = mock(CassandraAttachmentDAO.class);
         CassandraAttachmentDAOV2 attachmentDAOV2 = mock(CassandraAttachmentDAOV2.class);
         CassandraBlobsDAO blobsDAO = mock(CassandraBlobsDAO.class);
-        migration = new AttachmentV2Migration(attachmentDAO, attachmentDAOV2, blobsDAO);
+        migration = new AttachmentV2Migration(attachmentDAO, attachmentDAOV2, blobsDAO, BLOB_ID_FACTORY, referenceRegistry);
 
         when(attachmentDAO.retrieveAll()).thenReturn(Stream.of(
             attachment1,
@@ -181,7 +184,7 @@ class AttachmentV2MigrationTest {
         CassandraAttachmentDAO attachmentDAO = mock(CassandraAttachmentDAO.class);
         CassandraAttachmentDAOV2 attachmentDAOV2 = mock(CassandraAttachmentDAOV2.class);
         CassandraBlobsDAO blobsDAO = mock(CassandraBlobsDAO.class);
-        migration = new AttachmentV2Migration(attachmentDAO, attachmentDAOV2, blobsDAO);
+        migration = new AttachmentV2Migration(attachmentDAO, attachmentDAOV2, blobsDAO, BLOB_ID_FACTORY, referenceRegistry);
 
         when(attachmentDAO.retrieveAll()).thenReturn(Stream.of(
             attachment1,
@@ -201,7 +204,7 @@ class AttachmentV2MigrationTest {
         CassandraAttachmentDAO attachmentDAO = mock(CassandraAttachmentDAO.class);
         CassandraAttachmentDAOV2 attachmentDAOV2 = mock(CassandraAttachmentDAOV2.class);
         CassandraBlobsDAO blobsDAO = mock(CassandraBlobsDAO.class);
-        migration = new AttachmentV2Migration(attachmentDAO, attachmentDAOV2, blobsDAO);
+        migration = new AttachmentV2Migration(attachmentDAO, attachmentDAOV2, blobsDAO, BLOB_ID_FACTORY, referenceRegistry);
 
         when(attachmentDAO.retrieveAll()).thenReturn(Stream.of(
             attachment1,
@@ -31,10 +31,12 @@ import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.apache.james.backends.es.ElasticSearchIndexer;
+import org.apache.james.backends.es.IndexingPipeline;
 import org.apache.james.backends.es.UpdatedRepresentation;
 import org.apache.james.mailbox.MailboxManager.MessageCapabilities;
 import org.apache.james.mailbox.MailboxManager.SearchCapabilities;
 import org.apache.james.mailbox.MailboxSession;
+import org.apache.james.mailbox.MailboxSession.User;
 import org.apache.james.mailbox.MessageUid;
 import org.apache.james.mailbox.elasticsearch.MailboxElasticSearchConstants;
 import org.apache.james.mailbox.elasticsearch.json.JsonMessageConstants;
@@ -63,15 +65,18 @@ public class ElasticSearchListeningMessageSearchIndex extends ListeningMessageSe
     private static final String ID_SEPARATOR = ":";
 
     private final ElasticSearchIndexer elasticSearchIndexer;
+    private final IndexingPipeline indexingPipeline;
     private final ElasticSearchSearcher searcher;
     private final MessageToElasticSearchJson messageToElasticSearchJson;
 
     @Inject
     public ElasticSearchListeningMessageSearchIndex(MessageMapperFactory factory,
             @Named(MailboxElasticSearchConstants.InjectionNames.MAILBOX) ElasticSearchIndexer indexer,
+            @Named(MailboxElasticSearchConstants.InjectionNames.MAILBOX) IndexingPipeline indexingPipeline,
             ElasticSearchSearcher searcher, MessageToElasticSearchJson messageToElasticSearchJson) {
         super(factory);
         this.elasticSearchIndexer = indexer;
+        this.indexingPipeline = indexingPipeline;
         this.messageToElasticSearchJson = messageToElasticSearchJson;
         this.searcher = searcher;
     }
@@ -128,7 +133,7 @@ public class ElasticSearchListeningMessageSearchIndex extends ListeningMessageSe
                     mailbox.getMailboxId(),
                     session.getUser().getUserName(),
                     message.getUid());
-            elasticSearchIndexer.index(indexIdFor(mailbox, message.getUid()), messageToElasticSearchJson.convertToJson(message, ImmutableList.of(session.getUser())));
+            index(mailbox, message, ImmutableList.of(session.getUser()));
         } catch (Exception e) {
             try {
                 LOGGER.warn("Indexing mailbox {}-{} of user {} on message {} without attachments ",
@@ -137,7 +142,7 @@ public class ElasticSearchListeningMessageSearchIndex extends ListeningMessageSe
                         session.getUser().getUserName(),
                         message.getUid(),
                         e);
-                elasticSearchIndexer.index(indexIdFor(mailbox, message.getUid()), messageToElasticSearchJson.convertToJsonWithoutAttachment(message, ImmutableList.of(session.getUser())));
+                indexingPipeline.index(indexIdFor(mailbox, message.getUid()), messageToElasticSearchJson.convertToJsonWithoutAttachment(message, ImmutableList.of(session.getUser())));
             } catch (JsonProcessingException e1) {
                 LOGGER.error("Error when indexing mailbox {}-{} of user {} on message {} without its attachment",
                         mailbox.getName(),
@@ -149,10 +154,21 @@ public class ElasticSearchListeningMessageSearchIndex extends ListeningMessageSe
         }
     }
     
+    private void index(Mailbox mailbox, MailboxMessage message, List<User> users) throws JsonProcessingException {
+        String content = messageToElasticSearchJson.convertToJson(message, users);
+        if (message.getAttachments().isEmpty()) {
+            indexingPipeline.index(indexIdFor(mailbox, message.getUid()), content);
+        } else {
+            // ElasticSearch might only reject the attachments content once the pipeline sent it
+            indexingPipeline.index(indexIdFor(mailbox, message.getUid()), content,
+                messageToElasticSearchJson.convertToJsonWithoutAttachment(message, users));
+        }
+    }
+
     @Override
     public void delete(MailboxSession session, Mailbox mailbox, List<MessageUid> expungedUids) throws MailboxException {
         try {
-            elasticSearchIndexer.delete(expungedUids.stream()
+            indexingPipeline.delete(expungedUids.stream()
                 .map(uid ->  indexIdFor(mailbox, uid))
                 .collect(Collectors.toList()));
         } catch (Exception e) {
@@ -165,6 +181,7 @@ public class ElasticSearchListeningMessageSearchIndex extends ListeningMessageSe
     @Override
     public void deleteAll(MailboxSession session, Mailbox mailbox) throws MailboxException {
         try {
+            indexingPipeline.flush();
             elasticSearchIndexer.deleteAllMatchingQuery(
                 termQuery(
                     JsonMessageConstants.MAILBOX_ID,
@@ -177,7 +194,7 @@ public class ElasticSearchListeningMessageSearchIndex extends ListeningMessageSe
     @Override
     public void update(MailboxSession session, Mailbox mailbox, List<UpdatedFlags> updatedFlagsList) throws MailboxException {
         try {
-            elasticSearchIndexer.update(updatedFlagsList.stream()
+            indexingPipeline.update(updatedFlagsList.stream()
                 .map(updatedFlags -> createUpdatedDocumentPartFromUpdatedFlags(mailbox, updatedFlags))
                 .collect(Collectors.toList()));
         } catch (Exception e) {
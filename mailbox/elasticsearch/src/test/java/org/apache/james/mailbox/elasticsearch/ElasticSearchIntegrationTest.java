@@ -27,6 +27,7 @@ import java.util.concurrent.Executors;
 
 import org.apache.james.backends.es.ElasticSearchIndexer;
 import org.apache.james.backends.es.EmbeddedElasticSearch;
+import org.apache.james.backends.es.SynchronousIndexingPipeline;
 import org.apache.james.backends.es.utils.TestingClientProvider;
 import org.apache.james.mailbox.MessageManager;
 import org.apache.james.mailbox.acl.SimpleGroupMembershipResolver;
@@ -98,13 +99,15 @@ public class ElasticSearchIntegrationTest extends AbstractMessageSearchIndexTest
             .createMailboxManager(new SimpleGroupMembershipResolver());
 
 
+        ElasticSearchIndexer elasticSearchIndexer = new ElasticSearchIndexer(client,
+            Executors.newSingleThreadExecutor(),
+            MailboxElasticSearchConstants.DEFAULT_MAILBOX_WRITE_ALIAS,
+            MailboxElasticSearchConstants.MESSAGE_TYPE,
+            BATCH_SIZE);
         ElasticSearchListeningMessageSearchIndex elasticSearchListeningMessageSearchIndex = new ElasticSearchListeningMessageSearchIndex(
             storeMailboxManager.getMapperFactory(),
-            new ElasticSearchIndexer(client,
-                Executors.newSingleThreadExecutor(),
-                MailboxElasticSearchConstants.DEFAULT_MAILBOX_WRITE_ALIAS,
-                MailboxElasticSearchConstants.MESSAGE_TYPE,
-                BATCH_SIZE),
+            elasticSearchIndexer,
+            new SynchronousIndexingPipeline(elasticSearchIndexer),
             new ElasticSearchSearcher(client, new QueryConverter(new CriterionConverter()), SEARCH_SIZE,
                 new InMemoryId.Factory(), storeMailboxManager.getMessageIdFactory(),
                 MailboxElasticSearchConstants.DEFAULT_MAILBOX_READ_ALIAS,
@@ -22,6 +22,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.refEq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -33,6 +34,8 @@ import java.util.Optional;
 import javax.mail.Flags;
 
 import org.apache.james.backends.es.ElasticSearchIndexer;
+import org.apache.james.backends.es.IndexingPipeline;
+import org.apache.james.backends.es.SynchronousIndexingPipeline;
 import org.apache.james.backends.es.UpdatedRepresentation;
 import org.apache.james.mailbox.MailboxSession;
 import org.apache.james.mailbox.MailboxSession.User;
@@ -40,6 +43,7 @@ import org.apache.james.mailbox.MessageUid;
 import org.apache.james.mailbox.elasticsearch.json.MessageToElasticSearchJson;
 import org.apache.james.mailbox.elasticsearch.search.ElasticSearchSearcher;
 import org.apache.james.mailbox.mock.MockMailboxSession;
+import org.apache.james.mailbox.model.MessageAttachment;
 import org.apache.james.mailbox.model.TestId;
 import org.apache.james.mailbox.model.UpdatedFlags;
 import org.apache.james.mailbox.store.mail.MessageMapperFactory;
@@ -51,6 +55,7 @@ import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.core.JsonGenerator;
@@ -69,6 +74,8 @@ public class ElasticSearchListeningMessageSearchIndexTest {
     public static final String USERNAME = "username";
 
     private ElasticSearchIndexer elasticSearchIndexer;
+    private ElasticSearchSearcher elasticSearchSearcher;
+    private MessageMapperFactory mapperFactory;
     private MessageToElasticSearchJson messageToElasticSearchJson;
     private ElasticSearchListeningMessageSearchIndex testee;
     private MailboxSession session;
@@ -77,13 +84,14 @@ public class ElasticSearchListeningMessageSearchIndexTest {
     @Before
     public void setup() throws JsonProcessingException {
 
-        MessageMapperFactory mapperFactory = mock(MessageMapperFactory.class);
+        mapperFactory = mock(MessageMapperFactory.class);
         messageToElasticSearchJson = mock(MessageToElasticSearchJson.class);
-        ElasticSearchSearcher elasticSearchSearcher = mock(ElasticSearchSearcher.class);
+        elasticSearchSearcher = mock(ElasticSearchSearcher.class);
 
         elasticSearchIndexer = mock(ElasticSearchIndexer.class);
         
-        testee = new ElasticSearchListeningMessageSearchIndex(mapperFactory, elasticSearchIndexer, elasticSearchSearcher, messageToElasticSearchJson);
+        testee = new ElasticSearchListeningMessageSearchIndex(mapperFactory, elasticSearchIndexer, new SynchronousIndexingPipeline(elasticSearchIndexer),
+            elasticSearchSearcher, messageToElasticSearchJson);
         session = new MockMailboxSession(USERNAME);
         users = ImmutableList.of(session.getUser());
     }
@@ -128,6 +136,32 @@ public class ElasticSearchListeningMessageSearchIndexTest {
         verify(elasticSearchIndexer).index(eq(ELASTIC_SEARCH_ID), eq(EXPECTED_JSON_CONTENT));
     }
 
+    @Test
+    public void addShouldIndexEmailBodyWhenAttachmentContentIsRejected() throws Exception {
+        //Given
+        Mailbox mailbox = mock(Mailbox.class);
+        when(mailbox.getMailboxId())
+            .thenReturn(MAILBOX_ID);
+
+        MailboxMessage message = mockedMessage(MESSAGE_UID);
+        when(message.getAttachments())
+            .thenReturn(ImmutableList.of(mock(MessageAttachment.class)));
+
+        String contentWithAttachments = "json content with attachments";
+        when(messageToElasticSearchJson.convertToJson(eq(message), eq(users)))
+            .thenReturn(contentWithAttachments);
+        when(messageToElasticSearchJson.convertToJsonWithoutAttachment(eq(message), eq(users)))
+            .thenReturn(EXPECTED_JSON_CONTENT);
+        when(elasticSearchIndexer.index(ELASTIC_SEARCH_ID, contentWithAttachments))
+            .thenThrow(new ElasticsearchException("rejected"));
+
+        //When
+        testee.add(session, mailbox, message);
+
+        //Then
+        verify(elasticSearchIndexer).index(eq(ELASTIC_SEARCH_ID), eq(EXPECTED_JSON_CONTENT));
+    }
+
     private MailboxMessage mockedMessage(MessageUid messageId) throws IOException {
         MailboxMessage message = mock(MailboxMessage.class);
         when(message.getUid())
@@ -284,6 +318,22 @@ public class ElasticSearchListeningMessageSearchIndexTest {
         verify(elasticSearchIndexer).deleteAllMatchingQuery(refEq(expectedQueryBuilder));
     }
 
+    @Test
+    public void deleteAllShouldFlushPendingIndexingOperationsFirst() throws Exception {
+        IndexingPipeline indexingPipeline = mock(IndexingPipeline.class);
+        testee = new ElasticSearchListeningMessageSearchIndex(mapperFactory, elasticSearchIndexer, indexingPipeline,
+            elasticSearchSearcher, messageToElasticSearchJson);
+        Mailbox mailbox = mock(Mailbox.class);
+        when(mailbox.getMailboxId())
+            .thenReturn(MAILBOX_ID);
+
+        testee.deleteAll(session, mailbox);
+
+        InOrder inOrder = inOrder(indexingPipeline, elasticSearchIndexer);
+        inOrder.verify(indexingPipeline).flush();
+        inOrder.verify(elasticSearchIndexer).deleteAllMatchingQuery(any());
+    }
+
     @Test
     public void deleteAllShouldNotPropagateExceptionWhenExceptionOccurs() throws Exception {
         //Given
@@ -98,6 +98,8 @@ public class HBaseMailboxManager extends StoreMailboxManager {
             getMessageIdFactory(),
             getBatchSizes(),
             getImmutableMailboxMessageFactory(),
-            getStoreRightManager());
+            getStoreRightManager(),
+            getMetricFactory(),
+            getCountersCache());
     }
 }
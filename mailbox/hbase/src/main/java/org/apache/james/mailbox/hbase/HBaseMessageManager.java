@@ -30,10 +30,12 @@ import org.apache.james.mailbox.store.ImmutableMailboxMessage;
 import org.apache.james.mailbox.store.MailboxSessionMapperFactory;
 import org.apache.james.mailbox.store.StoreMessageManager;
 import org.apache.james.mailbox.store.StoreRightManager;
+import org.apache.james.mailbox.store.counters.MailboxCountersCache;
 import org.apache.james.mailbox.store.event.MailboxEventDispatcher;
 import org.apache.james.mailbox.store.mail.model.Mailbox;
 import org.apache.james.mailbox.store.mail.model.impl.MessageParser;
 import org.apache.james.mailbox.store.search.MessageSearchIndex;
+import org.apache.james.metrics.api.MetricFactory;
 
 /**
  * HBase implementation of MessageManager.
@@ -52,10 +54,12 @@ public class HBaseMessageManager extends StoreMessageManager {
                                MessageId.Factory messageIdFactory,
                                BatchSizes batchSizes,
                                ImmutableMailboxMessage.Factory immutableMailboxMessageFactory,
-                               StoreRightManager storeRightManager) {
+                               StoreRightManager storeRightManager,
+                               MetricFactory metricFactory,
+                               MailboxCountersCache countersCache) {
 
         super(HBaseMailboxManager.DEFAULT_NO_MESSAGE_CAPABILITIES, mapperFactory, index, dispatcher, locker, mailbox, quotaManager,
-                quotaRootResolver, messageParser, messageIdFactory, batchSizes, immutableMailboxMessageFactory, storeRightManager);
+                quotaRootResolver, messageParser, messageIdFactory, batchSizes, immutableMailboxMessageFactory, storeRightManager, metricFactory, countersCache);
     }
 
     @Override
@@ -74,7 +74,9 @@ public class JCRMailboxManager extends StoreMailboxManager implements JCRImapCon
             getMessageIdFactory(),
             getBatchSizes(),
             getImmutableMailboxMessageFactory(),
-            getStoreRightManager());
+            getStoreRightManager(),
+            getMetricFactory(),
+            getCountersCache());
     }
 
     @Override
@@ -147,8 +147,8 @@ public class JCRMailboxMessage implements MailboxMessage, JCRImapConstants, Pers
         setFlags(message.createFlags());
         this.uid = uid;
         this.modSeq = modSeq;
-        try {
-            this.content = new SharedByteArrayInputStream(IOUtils.toByteArray(message.getFullContent()));
+        try (InputStream fullContent = message.getFullContent()) {
+            this.content = new SharedByteArrayInputStream(IOUtils.toByteArray(fullContent));
         } catch (IOException e) {
             throw new MailboxException("Unable to parse message",e);
         }
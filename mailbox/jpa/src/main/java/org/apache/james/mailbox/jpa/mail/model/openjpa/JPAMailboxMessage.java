@@ -91,9 +91,10 @@ public class JPAMailboxMessage extends AbstractJPAMailboxMessage {
      */
     public JPAMailboxMessage(JPAMailbox mailbox, MessageUid uid, long modSeq, MailboxMessage message) throws MailboxException {
         super(mailbox, uid, modSeq, message);
-        try {
-            this.body = IOUtils.toByteArray(message.getBodyContent());
-            this.header = IOUtils.toByteArray(message.getHeaderContent());
+        try (InputStream bodyContent = message.getBodyContent();
+             InputStream headerContent = message.getHeaderContent()) {
+            this.body = IOUtils.toByteArray(bodyContent);
+            this.header = IOUtils.toByteArray(headerContent);
         } catch (IOException e) {
             throw new MailboxException("Unable to parse message",e);
         }
@@ -28,6 +28,7 @@ import javax.mail.util.SharedByteArrayInputStream;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.PostPersist;
 import javax.persistence.Table;
 
 import org.apache.commons.io.IOUtils;
@@ -80,8 +81,8 @@ public class JPAStreamingMailboxMessage extends AbstractJPAMailboxMessage {
      */
     public JPAStreamingMailboxMessage(JPAMailbox mailbox, MessageUid uid, long modSeq, MailboxMessage message) throws MailboxException {
         super(mailbox, uid, modSeq, message);
-        try {
-            this.content = new SharedByteArrayInputStream(IOUtils.toByteArray(message.getFullContent()));
+        try (InputStream fullContent = message.getFullContent()) {
+            this.content = new SharedByteArrayInputStream(IOUtils.toByteArray(fullContent));
             this.header = getHeaderContent();
             this.body = getBodyContent();
         } catch (IOException e) {
@@ -103,4 +104,14 @@ public class JPAStreamingMailboxMessage extends AbstractJPAMailboxMessage {
         return content.newStream(0, headerEnd);
     }
 
+    /**
+     * The header and body streams are read when the entity is inserted. They are sub-streams of the appended content,
+     * which might be a file only deleted once all of them are closed.
+     */
+    @PostPersist
+    void closeContentStreams() {
+        IOUtils.closeQuietly(header);
+        IOUtils.closeQuietly(body);
+    }
+
 }
@@ -75,6 +75,8 @@ public class OpenJPAMailboxManager extends JPAMailboxManager {
             getMessageIdFactory(),
             getBatchSizes(),
             getImmutableMailboxMessageFactory(),
-            getStoreRightManager());
+            getStoreRightManager(),
+            getMetricFactory(),
+            getCountersCache());
     }
 }
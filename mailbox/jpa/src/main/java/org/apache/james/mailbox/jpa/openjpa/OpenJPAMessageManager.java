@@ -39,12 +39,14 @@ import org.apache.james.mailbox.store.BatchSizes;
 import org.apache.james.mailbox.store.ImmutableMailboxMessage;
 import org.apache.james.mailbox.store.MailboxSessionMapperFactory;
 import org.apache.james.mailbox.store.StoreRightManager;
+import org.apache.james.mailbox.store.counters.MailboxCountersCache;
 import org.apache.james.mailbox.store.event.MailboxEventDispatcher;
 import org.apache.james.mailbox.store.mail.model.Mailbox;
 import org.apache.james.mailbox.store.mail.model.MailboxMessage;
 import org.apache.james.mailbox.store.mail.model.impl.MessageParser;
 import org.apache.james.mailbox.store.mail.model.impl.PropertyBuilder;
 import org.apache.james.mailbox.store.search.MessageSearchIndex;
+import org.apache.james.metrics.api.MetricFactory;
 
 /**
  * OpenJPA implementation of Mailbox
@@ -64,10 +66,12 @@ public class OpenJPAMessageManager extends JPAMessageManager {
                                  MailboxPathLocker locker, Mailbox mailbox, AdvancedFeature f,
                                  QuotaManager quotaManager, QuotaRootResolver quotaRootResolver, MessageParser messageParser,
                                  MessageId.Factory messageIdFactory, BatchSizes batchSizes,
-                                 ImmutableMailboxMessage.Factory immutableMailboxMessageFactory, StoreRightManager storeRightManager) {
+                                 ImmutableMailboxMessage.Factory immutableMailboxMessageFactory, StoreRightManager storeRightManager,
+                                 MetricFactory metricFactory,
+                                 MailboxCountersCache countersCache) {
 
         super(mapperFactory,  index, dispatcher, locker, mailbox, quotaManager, quotaRootResolver,
-            messageParser, messageIdFactory, batchSizes, immutableMailboxMessageFactory, storeRightManager);
+            messageParser, messageIdFactory, batchSizes, immutableMailboxMessageFactory, storeRightManager, metricFactory, countersCache);
         this.feature = f;
     }
 
@@ -24,6 +24,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.nio.charset.Charset;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
@@ -36,6 +37,11 @@ import java.util.Locale;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
@@ -72,6 +78,9 @@ import org.apache.james.mailbox.store.mail.model.MailboxMessage;
 import org.apache.james.mailbox.store.mail.model.impl.PropertyBuilder;
 import org.apache.james.mailbox.store.search.ListeningMessageSearchIndex;
 import org.apache.james.mailbox.store.search.SearchUtil;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.metrics.api.NoopMetricFactory;
+import org.apache.james.metrics.api.TimeMetric;
 import org.apache.james.mime4j.MimeException;
 import org.apache.james.mime4j.dom.Header;
 import org.apache.james.mime4j.dom.address.Address;
@@ -95,7 +104,6 @@ import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Field.Index;
 import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.document.NumericField;
-import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
@@ -106,6 +114,8 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.NumericRangeQuery;
 import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
@@ -121,6 +131,7 @@ import org.slf4j.LoggerFactory;
 import com.github.steveash.guavate.Guavate;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Lucene based {@link ListeningMessageSearchIndex} which offers message searching via a Lucene index
@@ -147,6 +158,22 @@ public class LuceneMessageSearchIndex extends ListeningMessageSearchIndex {
      * Default max query results
      */
     private static final int DEFAULT_MAX_QUERY_RESULTS = 100000;
+
+    /**
+     * Default interval at which the shared searcher gets refreshed in the background
+     */
+    public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * Default interval at which pending changes get committed to the {@link Directory}
+     */
+    public static final Duration DEFAULT_COMMIT_INTERVAL = Duration.ofSeconds(30);
+
+    private static final Duration SCHEDULER_TERMINATION_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final String SEARCH_METRIC_NAME = "mailbox-lucene-search";
+    private static final String REFRESH_METRIC_NAME = "mailbox-lucene-refresh";
+    private static final String COMMIT_METRIC_NAME = "mailbox-lucene-commit";
     
     /**
      * {@link Field} which will contain the unique index of the {@link Document}
@@ -356,19 +383,37 @@ public class LuceneMessageSearchIndex extends ListeningMessageSearchIndex {
     private final MessageId.Factory messageIdFactory;
     private final IndexWriter writer;
     private final Directory directory;
+    private final SearcherManager searcherManager;
+    private final MetricFactory metricFactory;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong changes = new AtomicLong();
+    private volatile long refreshedChanges;
+    private volatile long committedChanges;
+    private ScheduledFuture<?> refreshTask;
+    private ScheduledFuture<?> commitTask;
 
     private int maxQueryResults = DEFAULT_MAX_QUERY_RESULTS;
 
     private boolean suffixMatch = false;
 
     @Inject
+    public LuceneMessageSearchIndex(
+        MessageMapperFactory factory,
+        MailboxId.Factory mailboxIdFactory,
+        Directory directory,
+        MessageId.Factory messageIdFactory,
+        MetricFactory metricFactory
+    ) throws IOException {
+        this(factory, mailboxIdFactory, directory, false, true, messageIdFactory, metricFactory);
+    }
+
     public LuceneMessageSearchIndex(
         MessageMapperFactory factory,
         MailboxId.Factory mailboxIdFactory,
         Directory directory,
         MessageId.Factory messageIdFactory
     ) throws IOException {
-        this(factory, mailboxIdFactory, directory, false, true, messageIdFactory);
+        this(factory, mailboxIdFactory, directory, messageIdFactory, new NoopMetricFactory());
     }
 
     public LuceneMessageSearchIndex(
@@ -378,17 +423,46 @@ public class LuceneMessageSearchIndex extends ListeningMessageSearchIndex {
             boolean dropIndexOnStart,
             boolean lenient,
             MessageId.Factory messageIdFactory
+    ) throws IOException {
+        this(factory, mailboxIdFactory, directory, dropIndexOnStart, lenient, messageIdFactory, new NoopMetricFactory());
+    }
+
+    public LuceneMessageSearchIndex(
+            MessageMapperFactory factory,
+            MailboxId.Factory mailboxIdFactory,
+            Directory directory,
+            boolean dropIndexOnStart,
+            boolean lenient,
+            MessageId.Factory messageIdFactory,
+            MetricFactory metricFactory
     ) throws IOException {
         super(factory);
         this.mailboxIdFactory = mailboxIdFactory;
         this.messageIdFactory = messageIdFactory;
         this.directory = directory;
+        this.metricFactory = metricFactory;
         this.writer = new IndexWriter(this.directory,  createConfig(createAnalyzer(lenient), dropIndexOnStart));
+        this.searcherManager = new SearcherManager(writer, true, new SearcherFactory());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("lucene-index-refresh-%d")
+            .setDaemon(true)
+            .build());
+        this.refreshTask = schedule(this::refreshQuietly, DEFAULT_REFRESH_INTERVAL);
+        this.commitTask = schedule(this::commitQuietly, DEFAULT_COMMIT_INTERVAL);
     }
 
     @PreDestroy
     public void close() throws IOException {
+        scheduler.shutdown();
         try {
+            if (!scheduler.awaitTermination(SCHEDULER_TERMINATION_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Index refresh or commit still running after {}, closing the index anyway", SCHEDULER_TERMINATION_TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            searcherManager.close();
             writer.close();
         } finally {
             if (IndexWriter.isLocked(directory)) {
@@ -416,9 +490,111 @@ public class LuceneMessageSearchIndex extends ListeningMessageSearchIndex {
     public void setMaxQueryResults(int maxQueryResults) {
         this.maxQueryResults = maxQueryResults;
     }
+
+    /**
+     * Set the interval at which the shared {@link IndexSearcher} gets reopened in the background when the index
+     * changed. Searches following a change still reopen it if the background refresh did not happen yet, so this
+     * only moves the reopen cost out of the search path. The default is {@link #DEFAULT_REFRESH_INTERVAL}
+     *
+     * @param refreshInterval
+     */
+    public synchronized void setRefreshInterval(Duration refreshInterval) {
+        refreshTask.cancel(false);
+        refreshTask = schedule(this::refreshQuietly, refreshInterval);
+    }
+
+    /**
+     * Set the interval at which pending changes get committed to the {@link Directory}. Changes which are not
+     * committed yet are lost on crash. The default is {@link #DEFAULT_COMMIT_INTERVAL}
+     *
+     * @param commitInterval
+     */
+    public synchronized void setCommitInterval(Duration commitInterval) {
+        commitTask.cancel(false);
+        commitTask = schedule(this::commitQuietly, commitInterval);
+    }
+
+    private ScheduledFuture<?> schedule(Runnable task, Duration interval) {
+        return scheduler.scheduleWithFixedDelay(task, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (IOException e) {
+            LOGGER.error("Unable to refresh the index searcher", e);
+        }
+    }
+
+    private void commitQuietly() {
+        try {
+            commit();
+        } catch (IOException e) {
+            LOGGER.error("Unable to commit the index", e);
+        }
+    }
+
+    /**
+     * Reopen the shared {@link IndexSearcher} if the index changed since its last reopening
+     */
+    private synchronized void refresh() throws IOException {
+        long current = changes.get();
+        if (current != refreshedChanges) {
+            TimeMetric timeMetric = metricFactory.timer(REFRESH_METRIC_NAME);
+            try {
+                searcherManager.maybeRefresh();
+                refreshedChanges = current;
+            } finally {
+                timeMetric.stopAndPublish();
+            }
+        }
+    }
+
+    /**
+     * Commit the index if it changed since the last commit
+     */
+    public synchronized void commit() throws IOException {
+        long current = changes.get();
+        if (current != committedChanges) {
+            TimeMetric timeMetric = metricFactory.timer(COMMIT_METRIC_NAME);
+            try {
+                writer.commit();
+                committedChanges = current;
+            } finally {
+                timeMetric.stopAndPublish();
+            }
+        }
+    }
+
+    private AcquiredSearcher acquireSearcher() throws IOException {
+        if (changes.get() != refreshedChanges) {
+            refresh();
+        }
+        return new AcquiredSearcher(searcherManager.acquire());
+    }
+
+    /**
+     * An {@link IndexSearcher} acquired from the {@link SearcherManager}, released on close
+     */
+    private class AcquiredSearcher implements AutoCloseable {
+        private final IndexSearcher searcher;
+
+        private AcquiredSearcher(IndexSearcher searcher) {
+            this.searcher = searcher;
+        }
+
+        @Override
+        public void close() throws IOException {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private void changed() {
+        changes.incrementAndGet();
+    }
     
     protected IndexWriterConfig createConfig(Analyzer analyzer, boolean dropIndexOnStart) {
-        IndexWriterConfig config = new IndexWriterConfig(Version.LUCENE_31, analyzer);
+        IndexWriterConfig config = new IndexWriterConfig(Version.LUCENE_36, analyzer);
         if (dropIndexOnStart) {
             config.setOpenMode(OpenMode.CREATE);
         } else {
@@ -488,7 +664,9 @@ public class LuceneMessageSearchIndex extends ListeningMessageSearchIndex {
 
         Query inMailboxes = buildQueryFromMailboxes(mailboxIds);
         
-        try (IndexSearcher searcher = new IndexSearcher(IndexReader.open(writer, true))) {
+        TimeMetric timeMetric = metricFactory.timer(SEARCH_METRIC_NAME);
+        try (AcquiredSearcher acquiredSearcher = acquireSearcher()) {
+            IndexSearcher searcher = acquiredSearcher.searcher;
             BooleanQuery query = new BooleanQuery();
             query.add(inMailboxes, BooleanClause.Occur.MUST);
             // Not return flags documents
@@ -511,6 +689,8 @@ public class LuceneMessageSearchIndex extends ListeningMessageSearchIndex {
             }
         } catch (IOException e) {
             throw new MailboxException("Unable to search the mailbox", e);
+        } finally {
+            timeMetric.stopAndPublish();
         }
         return results.build();
     }
@@ -972,7 +1152,8 @@ public class LuceneMessageSearchIndex extends ListeningMessageSearchIndex {
         query.add(inMailboxes, BooleanClause.Occur.MUST);
 
 
-        try (IndexSearcher searcher = new IndexSearcher(IndexReader.open(writer, true))) {
+        try (AcquiredSearcher acquiredSearcher = acquireSearcher()) {
+            IndexSearcher searcher = acquiredSearcher.searcher;
             Set<MessageUid> uids = new HashSet<>();
 
             // query for all the documents sorted by uid
@@ -1238,6 +1419,7 @@ public class LuceneMessageSearchIndex extends ListeningMessageSearchIndex {
         try {
             writer.addDocument(doc);
             writer.addDocument(flagsDoc);
+            changed();
         } catch (IOException e) {
             throw new MailboxException("Unable to add message to index", e);
         }
@@ -1251,7 +1433,8 @@ public class LuceneMessageSearchIndex extends ListeningMessageSearchIndex {
     }
 
     private void update(Mailbox mailbox, MessageUid uid, Flags f) throws MailboxException {
-        try (IndexSearcher searcher = new IndexSearcher(IndexReader.open(writer, true))) {
+        try (AcquiredSearcher acquiredSearcher = acquireSearcher()) {
+            IndexSearcher searcher = acquiredSearcher.searcher;
             BooleanQuery query = new BooleanQuery();
             query.add(new TermQuery(new Term(MAILBOX_ID_FIELD, mailbox.getMailboxId().serialize())), BooleanClause.Occur.MUST);
             query.add(createQuery(MessageRange.one(uid)), BooleanClause.Occur.MUST);
@@ -1267,6 +1450,7 @@ public class LuceneMessageSearchIndex extends ListeningMessageSearchIndex {
                     indexFlags(doc, f);
 
                     writer.updateDocument(new Term(ID_FIELD, doc.get(ID_FIELD)), doc);
+                    changed();
 
                 }
             }
@@ -1349,6 +1533,7 @@ public class LuceneMessageSearchIndex extends ListeningMessageSearchIndex {
         
         try {
             writer.deleteDocuments(query);
+            changed();
         } catch (IOException e) {
             throw new MailboxException("Unable to delete message from index", e);
         }
@@ -50,7 +50,9 @@ import org.apache.james.mailbox.model.TestMessageId;
 import org.apache.james.mailbox.store.MessageBuilder;
 import org.apache.james.mailbox.store.SimpleMailboxMembership;
 import org.apache.james.mailbox.store.mail.model.Mailbox;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -60,6 +62,7 @@ public class LuceneMailboxMessageSearchIndexTest {
 
     public static final long LIMIT = 100L;
     private LuceneMessageSearchIndex index;
+    private RAMDirectory directory;
     
     private SimpleMailbox mailbox = new SimpleMailbox(0);
     private SimpleMailbox mailbox2 = new SimpleMailbox(1);
@@ -102,7 +105,8 @@ public class LuceneMailboxMessageSearchIndexTest {
         id3 = factory.generate();
         id4 = factory.generate();
         id5 = factory.generate();
-        index = new LuceneMessageSearchIndex(null, new TestId.Factory(), new RAMDirectory(), true, useLenient(), factory);
+        directory = new RAMDirectory();
+        index = new LuceneMessageSearchIndex(null, new TestId.Factory(), directory, true, useLenient(), factory);
         index.setEnableSuffixMatch(true);
         Map<String, String> headersSubject = new HashMap<>();
         headersSubject.put("Subject", "test (fwd)");
@@ -155,6 +159,11 @@ public class LuceneMailboxMessageSearchIndexTest {
         index.add(session, mailbox3, builder.build(id5));
 
     }
+
+    @After
+    public void tearDown() throws Exception {
+        index.close();
+    }
     
 
 
@@ -636,6 +645,39 @@ public class LuceneMailboxMessageSearchIndexTest {
         Iterator<MessageUid> result = index.search(session, mailbox, query);
         assertThat(result).containsExactly(uid3, uid4);
     }
+
+    @Test
+    public void searchShouldReturnMessagesAddedAfterAPreviousSearch() throws Exception {
+        SearchQuery query = new SearchQuery();
+        query.andCriteria(SearchQuery.all());
+        assertThat(index.search(session, mailbox3, query)).containsExactly(uid5);
+
+        MessageUid uid6 = MessageUid.of(11);
+        SimpleMailboxMembership m6 = new SimpleMailboxMembership(new TestMessageId.Factory().generate(), mailbox3.getMailboxId(), uid6, 0, new Date(), 20, new Flags(), "My Body".getBytes(), new HashMap<>());
+        index.add(session, mailbox3, m6);
+
+        assertThat(index.search(session, mailbox3, query)).containsExactly(uid5, uid6);
+    }
+
+    @Test
+    public void searchShouldNotReturnMessagesDeletedAfterAPreviousSearch() throws Exception {
+        SearchQuery query = new SearchQuery();
+        query.andCriteria(SearchQuery.all());
+        assertThat(index.search(session, mailbox, query)).containsExactly(uid1, uid3, uid4);
+
+        index.delete(session, mailbox, ImmutableList.of(uid3));
+
+        assertThat(index.search(session, mailbox, query)).containsExactly(uid1, uid4);
+    }
+
+    @Test
+    public void commitShouldMakeIndexedMessagesVisibleToNewReaders() throws Exception {
+        index.commit();
+
+        try (IndexReader reader = IndexReader.open(directory)) {
+            assertThat(reader.numDocs()).isEqualTo(10);
+        }
+    }
     
     private final class SimpleMailbox implements Mailbox {
         private final TestId id;
@@ -26,11 +26,20 @@ import org.apache.james.mailbox.inmemory.manager.InMemoryIntegrationResources;
 import org.apache.james.mailbox.mock.MockMailboxSession;
 import org.apache.james.mailbox.store.StoreMessageIdManager;
 import org.apache.james.mailbox.store.search.AbstractMessageSearchIndexTest;
+import org.apache.james.metrics.api.NoopMetricFactory;
 import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
 import org.junit.Ignore;
 
 public class LuceneMessageSearchIndexTest extends AbstractMessageSearchIndexTest {
 
+    private LuceneMessageSearchIndex luceneMessageSearchIndex;
+
+    @After
+    public void tearDown() throws Exception {
+        luceneMessageSearchIndex.close();
+    }
+
     @Override
     protected void await() {
     }
@@ -47,9 +56,9 @@ public class LuceneMessageSearchIndexTest extends AbstractMessageSearchIndexTest
             storeMailboxManager.getMessageIdFactory(),
             storeMailboxManager.getQuotaManager(),
             storeMailboxManager.getQuotaRootResolver());
-        LuceneMessageSearchIndex luceneMessageSearchIndex = new LuceneMessageSearchIndex(
+        luceneMessageSearchIndex = new LuceneMessageSearchIndex(
             storeMailboxManager.getMapperFactory(), new InMemoryId.Factory(), new RAMDirectory(),
-            storeMailboxManager.getMessageIdFactory());
+            storeMailboxManager.getMessageIdFactory(), new NoopMetricFactory());
         storeMailboxManager.setMessageSearchIndex(luceneMessageSearchIndex);
         storeMailboxManager.addGlobalListener(luceneMessageSearchIndex, new MockMailboxSession("admin"));
         this.messageSearchIndex = luceneMessageSearchIndex;
@@ -0,0 +1,119 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.mailbox.maildir;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.SetMultimap;
+
+/**
+ * Dispatches the {@link WatchEvent}s of the message folders of Maildir folders to their listeners.
+ *
+ * One {@link WatchService} is shared by the whole JVM, as the number of watch services a process can
+ * open is usually limited by the operating system. Events are not pushed: they get dispatched when
+ * {@link #poll()} is called.
+ */
+public class MaildirChangeWatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MaildirChangeWatcher.class);
+
+    private static Optional<MaildirChangeWatcher> shared;
+
+    /**
+     * Returns the watcher shared by the JVM, or an empty {@link Optional} if the default
+     * file system does not support watching directories
+     */
+    public static synchronized Optional<MaildirChangeWatcher> shared() {
+        if (shared == null) {
+            shared = create();
+        }
+        return shared;
+    }
+
+    private static Optional<MaildirChangeWatcher> create() {
+        try {
+            return Optional.of(new MaildirChangeWatcher(FileSystems.getDefault().newWatchService()));
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warn("Unable to watch maildir folders, changes will be detected using modification times", e);
+            return Optional.empty();
+        }
+    }
+
+    private final WatchService watchService;
+    private final SetMultimap<WatchKey, Consumer<WatchEvent<?>>> listeners = HashMultimap.create();
+
+    public MaildirChangeWatcher(WatchService watchService) {
+        this.watchService = watchService;
+    }
+
+    /**
+     * Registers a listener for file creations and deletions in the given directory
+     *
+     * @return the {@link WatchKey} of the directory, to be passed to {@link #unregister(WatchKey, Consumer)}
+     */
+    public synchronized WatchKey register(File directory, Consumer<WatchEvent<?>> listener) throws IOException {
+        WatchKey key = directory.toPath().register(watchService, ENTRY_CREATE, ENTRY_DELETE);
+        listeners.put(key, listener);
+        return key;
+    }
+
+    /**
+     * Tells whether the listener still receives the events of the given key
+     */
+    public synchronized boolean isRegistered(WatchKey key, Consumer<WatchEvent<?>> listener) {
+        return key.isValid() && listeners.containsEntry(key, listener);
+    }
+
+    public synchronized void unregister(WatchKey key, Consumer<WatchEvent<?>> listener) {
+        listeners.remove(key, listener);
+        if (!listeners.containsKey(key)) {
+            key.cancel();
+        }
+    }
+
+    /**
+     * Dispatches all the pending events to the listeners of their directory
+     */
+    public synchronized void poll() {
+        WatchKey key;
+        while ((key = watchService.poll()) != null) {
+            ImmutableSet<Consumer<WatchEvent<?>>> keyListeners = ImmutableSet.copyOf(listeners.get(key));
+            for (WatchEvent<?> event : key.pollEvents()) {
+                keyListeners.forEach(listener -> listener.accept(event));
+            }
+            if (!key.reset()) {
+                listeners.removeAll(key);
+            }
+        }
+    }
+}
@@ -38,6 +38,11 @@ import org.apache.james.mailbox.store.mail.UidProvider;
 import org.apache.james.mailbox.store.mail.model.Mailbox;
 import org.apache.james.mailbox.store.mail.model.impl.SimpleMailbox;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+
 public class MaildirStore implements UidProvider, ModSeqProvider {
 
     public static final String PATH_USER = "%user";
@@ -46,6 +51,11 @@ public class MaildirStore implements UidProvider, ModSeqProvider {
     public static final String WILDCARD = "%";
     
     public static final String maildirDelimiter = ".";
+
+    /**
+     * Maximum count of folders whose uid list index is kept in memory
+     */
+    public static final int MAX_INDEXED_FOLDERS = 1000;
     
     private final String maildirLocation;
     
@@ -53,6 +63,13 @@ public class MaildirStore implements UidProvider, ModSeqProvider {
     private final MailboxPathLocker locker;
 
     private boolean messageNameStrictParse = false;
+    private int uidListCompactionThreshold = MaildirUidIndex.DEFAULT_COMPACTION_THRESHOLD;
+
+    private final LoadingCache<String, MaildirUidIndex> uidIndexes = CacheBuilder.newBuilder()
+        .maximumSize(MAX_INDEXED_FOLDERS)
+        .removalListener((RemovalListener<String, MaildirUidIndex>) notification -> notification.getValue().close())
+        .build(CacheLoader.from(folderName ->
+            new MaildirUidIndex(new File(folderName), uidListCompactionThreshold, MaildirChangeWatcher.shared())));
 
     /**
      * Construct a MaildirStore with a location. The location String
@@ -84,11 +101,20 @@ public class MaildirStore implements UidProvider, ModSeqProvider {
      * @return The MaildirFolder
      */
     public MaildirFolder createMaildirFolder(Mailbox mailbox) {
-        MaildirFolder mf = new MaildirFolder(getFolderName(mailbox), mailbox.generateAssociatedPath(), locker);
+        String folderName = getFolderName(mailbox);
+        MaildirFolder mf = new MaildirFolder(folderName, mailbox.generateAssociatedPath(), locker, () -> uidIndexes.getUnchecked(folderName));
         mf.setMessageNameStrictParse(isMessageNameStrictParse());
         return mf;
     }
 
+    /**
+     * Releases the uid index of a mailbox, whose folder was deleted or renamed
+     * @param mailbox
+     */
+    public void invalidateUidIndex(Mailbox mailbox) {
+        uidIndexes.invalidate(getFolderName(mailbox));
+    }
+
     /**
      * Creates a Mailbox object with data loaded from the file system
      * @param root The main maildir folder containing the mailbox to load
@@ -301,6 +327,18 @@ public class MaildirStore implements UidProvider, ModSeqProvider {
         this.messageNameStrictParse = messageNameStrictParse;
     }
 
+    /**
+     * Specifies how many changes are appended to the journal of a uid list
+     * before the uid list gets rewritten.
+     *
+     * Default is {@link MaildirUidIndex#DEFAULT_COMPACTION_THRESHOLD}.
+     *
+     * @param uidListCompactionThreshold
+     */
+    public void setUidListCompactionThreshold(int uidListCompactionThreshold) {
+        this.uidListCompactionThreshold = uidListCompactionThreshold;
+    }
+
     @Override
     public long nextModSeq(MailboxSession session, MailboxId mailboxId) throws MailboxException {
         return System.currentTimeMillis();
@@ -0,0 +1,504 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.mailbox.maildir;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.james.mailbox.MessageUid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * In memory index of the uid list of a {@link MaildirFolder}, mapping uids to message file names.
+ *
+ * The index is persisted as a snapshot in the <code>james-uidlist</code> file, whose format is unchanged,
+ * followed by an append-only journal of the changes made since. Once the journal holds more entries than
+ * the compaction threshold, the snapshot is rewritten and the journal truncated.
+ *
+ * Changes made to the message folders by other programs are detected with a {@link MaildirChangeWatcher}
+ * when available, so that the message folders only need to be listed when events were lost. Without watcher,
+ * the modification times of the message folders are compared to the ones of the uid list files, as
+ * {@link MaildirFolder} used to do.
+ *
+ * Callers are expected to hold the lock of the mailbox.
+ */
+public class MaildirUidIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MaildirUidIndex.class);
+
+    public static final String JOURNAL_FILE = "james-uidlist-journal";
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+
+    private static final String APPENDED = "+";
+    private static final String UPDATED = "=";
+    private static final String DELETED = "-";
+
+    private final File curFolder;
+    private final File newFolder;
+    private final File uidFile;
+    private final File journalFile;
+    private final int compactionThreshold;
+    private final Optional<MaildirChangeWatcher> watcher;
+    private final Queue<WatchEvent<?>> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final Consumer<WatchEvent<?>> listener = pendingEvents::add;
+    private final List<WatchKey> watchKeys = new ArrayList<>();
+
+    private final TreeMap<MessageUid, String> names = new TreeMap<>();
+    private final Map<String, MessageUid> uidsByBaseName = new HashMap<>();
+    private Optional<MessageUid> lastUid = Optional.empty();
+    private boolean loaded = false;
+    private boolean closed = false;
+    private int journalEntries = 0;
+
+    public MaildirUidIndex(File rootFolder, int compactionThreshold, Optional<MaildirChangeWatcher> watcher) {
+        this.curFolder = new File(rootFolder, MaildirFolder.CUR);
+        this.newFolder = new File(rootFolder, MaildirFolder.NEW);
+        this.uidFile = new File(rootFolder, MaildirFolder.UIDLIST_FILE);
+        this.journalFile = new File(rootFolder, JOURNAL_FILE);
+        this.compactionThreshold = compactionThreshold;
+        this.watcher = watcher;
+    }
+
+    /**
+     * Returns the last uid used in this folder
+     */
+    public synchronized Optional<MessageUid> getLastUid() throws IOException {
+        refresh();
+        return lastUid;
+    }
+
+    /**
+     * Returns the file names of the messages whose uid is between the given boundaries
+     *
+     * @param from The lower uid limit
+     * @param to The upper uid limit. <code>null</code> disables the upper limit
+     */
+    public synchronized SortedMap<MessageUid, String> getNames(MessageUid from, MessageUid to) throws IOException {
+        refresh();
+        if (to != null) {
+            return new TreeMap<>(names.subMap(from, true, to, true));
+        }
+        return new TreeMap<>(names.tailMap(from, true));
+    }
+
+    public synchronized Optional<String> getName(MessageUid uid) throws IOException {
+        refresh();
+        return Optional.ofNullable(names.get(uid));
+    }
+
+    /**
+     * Returns the uid of a message file, whatever the flags in its name are
+     */
+    public synchronized Optional<MessageUid> getUid(String name) throws IOException {
+        refresh();
+        return Optional.ofNullable(uidsByBaseName.get(MaildirFolder.stripMetaFromName(name)));
+    }
+
+    /**
+     * Gives a uid to a message file. A file which was already indexed, for instance
+     * because its creation was noticed first, keeps its uid.
+     */
+    public synchronized MessageUid append(String name) throws IOException {
+        refresh();
+        Optional<MessageUid> indexedUid = Optional.ofNullable(uidsByBaseName.get(MaildirFolder.stripMetaFromName(name)));
+        if (indexedUid.isPresent()) {
+            if (!names.get(indexedUid.get()).equals(name)) {
+                put(indexedUid.get(), name);
+                journal(UPDATED, indexedUid.get(), name);
+            }
+            return indexedUid.get();
+        }
+        MessageUid uid = nextUid();
+        put(uid, name);
+        journal(APPENDED, uid, name);
+        return uid;
+    }
+
+    /**
+     * Records the new file name of a message, following a change of its flags.
+     *
+     * The pending changes are not applied beforehand: the events caused by the renaming
+     * then match the index and are ignored.
+     */
+    public synchronized void update(MessageUid uid, String name) throws IOException {
+        ensureLoaded();
+        put(uid, name);
+        journal(UPDATED, uid, name);
+    }
+
+    /**
+     * Removes a message whose file was deleted. As for {@link #update(MessageUid, String)},
+     * the pending changes are applied afterwards.
+     */
+    public synchronized void delete(MessageUid uid) throws IOException {
+        ensureLoaded();
+        if (remove(uid).isPresent()) {
+            journal(DELETED, uid, "");
+        }
+    }
+
+    /**
+     * Releases the resources used to detect changes in the message folders. The index remains usable
+     * by the operations still holding it, but then relies on modification times.
+     */
+    public synchronized void close() {
+        closed = true;
+        unwatch();
+        loaded = false;
+    }
+
+    @VisibleForTesting
+    synchronized int getJournalEntries() {
+        return journalEntries;
+    }
+
+    private void refresh() throws IOException {
+        if (!uidFile.isFile()) {
+            // first use of this folder, or the folder was deleted and created again
+            unwatch();
+            watch();
+            rebuild();
+        } else if (!loaded) {
+            watch();
+            load();
+            if (isModified()) {
+                reconcile();
+            }
+        } else if (isWatched()) {
+            processEvents();
+        } else if (isModified()) {
+            reconcile();
+        }
+    }
+
+    private void ensureLoaded() throws IOException {
+        if (!loaded || !uidFile.isFile()) {
+            refresh();
+        }
+    }
+
+    private void watch() {
+        if (closed) {
+            pendingEvents.clear();
+            return;
+        }
+        watcher.ifPresent(changeWatcher -> {
+            try {
+                watchKeys.add(changeWatcher.register(curFolder, listener));
+                watchKeys.add(changeWatcher.register(newFolder, listener));
+            } catch (IOException e) {
+                LOGGER.warn("Unable to watch {}, changes will be detected using modification times", curFolder.getParent(), e);
+                unwatch();
+            }
+        });
+        pendingEvents.clear();
+    }
+
+    private void unwatch() {
+        watcher.ifPresent(changeWatcher -> watchKeys.forEach(key -> changeWatcher.unregister(key, listener)));
+        watchKeys.clear();
+    }
+
+    private boolean isWatched() {
+        return watcher
+            .map(changeWatcher -> !watchKeys.isEmpty()
+                && watchKeys.stream().allMatch(key -> changeWatcher.isRegistered(key, listener)))
+            .orElse(false);
+    }
+
+    /**
+     * Checks whether the message folders have been changed after the uid list files.
+     */
+    private boolean isModified() {
+        long uidListModified = Math.max(uidFile.lastModified(), journalFile.lastModified());
+        // because of bad time resolution of file systems we also check "equals"
+        return curFolder.lastModified() >= uidListModified || newFolder.lastModified() >= uidListModified;
+    }
+
+    /**
+     * Applies the changes noticed by the watcher. Creations are applied before deletions, so that a
+     * renamed message file keeps its uid whatever the order of the events. The message folders only
+     * need to be listed when events were lost.
+     */
+    private void processEvents() throws IOException {
+        watcher.ifPresent(MaildirChangeWatcher::poll);
+        boolean overflow = false;
+        List<String> created = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        WatchEvent<?> event;
+        while ((event = pendingEvents.poll()) != null) {
+            if (event.kind() == OVERFLOW) {
+                overflow = true;
+            } else if (event.kind() == ENTRY_CREATE) {
+                created.add(event.context().toString());
+            } else if (event.kind() == ENTRY_DELETE) {
+                deleted.add(event.context().toString());
+            }
+        }
+        if (overflow) {
+            reconcile();
+            return;
+        }
+        for (String name : created) {
+            applyCreation(name);
+        }
+        for (String name : deleted) {
+            applyDeletion(name);
+        }
+    }
+
+    /**
+     * The creation of a file which does not exist anymore was followed by a renaming or a deletion,
+     * whose own events are applied instead.
+     */
+    private void applyCreation(String name) throws IOException {
+        if (!exists(name)) {
+            return;
+        }
+        MessageUid uid = uidsByBaseName.get(MaildirFolder.stripMetaFromName(name));
+        if (uid == null) {
+            uid = nextUid();
+            put(uid, name);
+            journal(APPENDED, uid, name);
+        } else if (!names.get(uid).equals(name)) {
+            put(uid, name);
+            journal(UPDATED, uid, name);
+        }
+    }
+
+    /**
+     * Only the deletion of the file currently indexed for a message matters: the other events are
+     * left by renamings, or by changes this index already knows about.
+     */
+    private void applyDeletion(String name) throws IOException {
+        MessageUid uid = uidsByBaseName.get(MaildirFolder.stripMetaFromName(name));
+        if (uid != null && names.get(uid).equals(name) && !exists(name)) {
+            remove(uid);
+            journal(DELETED, uid, "");
+        }
+    }
+
+    private boolean exists(String name) {
+        return new File(curFolder, name).exists() || new File(newFolder, name).exists();
+    }
+
+    private String[] listMessageFiles() throws IOException {
+        String[] curFiles = curFolder.list();
+        String[] newFiles = newFolder.list();
+        if (curFiles == null || newFiles == null) {
+            throw new IOException("Unable to list the messages of " + curFolder.getParent());
+        }
+        return ArrayUtils.addAll(curFiles, newFiles);
+    }
+
+    /**
+     * Gives new uids to all the message files and writes the uid list
+     */
+    private void rebuild() throws IOException {
+        String[] allFiles = listMessageFiles();
+        clear();
+        lastUid = Optional.empty();
+        for (String file : allFiles) {
+            put(nextUid(), file);
+        }
+        compact();
+        loaded = true;
+    }
+
+    /**
+     * Matches the message files with the index, keeping the uids of known messages
+     */
+    private void reconcile() throws IOException {
+        String[] allFiles = listMessageFiles();
+        Map<String, MessageUid> knownUids = new HashMap<>(uidsByBaseName);
+        clear();
+        for (String file : allFiles) {
+            MessageUid uid = knownUids.get(MaildirFolder.stripMetaFromName(file));
+            if (uid == null) {
+                uid = nextUid();
+            }
+            put(uid, file);
+        }
+        compact();
+    }
+
+    private void load() throws IOException {
+        clear();
+        lastUid = Optional.empty();
+        try (FileReader fileReader = new FileReader(uidFile);
+             BufferedReader reader = new BufferedReader(fileReader)) {
+            String line = reader.readLine();
+            // the first line in the file contains the last uid and message count
+            if (line != null) {
+                readUidListHeader(line);
+            }
+            int lineNumber = 1; // already read the first line
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (!line.equals("")) {
+                    int gap = line.indexOf(" ");
+                    if (gap == -1) {
+                        // there must be some issues in the file if no gap can be found
+                        LOGGER.info("Corrupted entry in uid-file {} line {}", uidFile, lineNumber);
+                        continue;
+                    }
+                    put(MessageUid.of(Long.valueOf(line.substring(0, gap))), line.substring(gap + 1));
+                }
+            }
+        }
+        replayJournal();
+        loaded = true;
+    }
+
+    private void replayJournal() throws IOException {
+        journalEntries = 0;
+        if (!journalFile.isFile()) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String[] parts = line.split(" ", 3);
+                if (parts.length != 3) {
+                    // a crash may have left a truncated last line
+                    LOGGER.info("Corrupted entry in uid journal {} line {}", journalFile, lineNumber);
+                    continue;
+                }
+                MessageUid uid = MessageUid.of(Long.valueOf(parts[1]));
+                if (parts[0].equals(DELETED)) {
+                    remove(uid);
+                } else {
+                    put(uid, parts[2]);
+                }
+                if (!lastUid.isPresent() || uid.compareTo(lastUid.get()) > 0) {
+                    lastUid = Optional.of(uid);
+                }
+                journalEntries++;
+            }
+        }
+    }
+
+    /**
+     * Parses the header line in uid list files.
+     * The format is: version lastUid messageCount (e.g. 1 615 273)
+     * @param line The raw header line
+     * @throws IOException
+     */
+    private void readUidListHeader(String line) throws IOException {
+        int gap1 = line.indexOf(" ");
+        if (gap1 == -1) {
+            // there must be some issues in the file if no gap can be found
+            throw new IOException("Corrupted header entry in uid-file");
+        }
+        int version = Integer.valueOf(line.substring(0, gap1));
+        if (version != 1) {
+            throw new IOException("Cannot read uidlists with versions other than 1.");
+        }
+        int gap2 = line.indexOf(" ", gap1 + 1);
+        lastUid = Optional.of(MessageUid.of(Long.valueOf(line.substring(gap1 + 1, gap2))));
+    }
+
+    /**
+     * Creates a line to put as a header in the uid list file.
+     * @return the line which ought to be the header
+     */
+    private String createUidListHeader() {
+        Long last = lastUid.map(MessageUid::asLong).orElse(0L);
+        return "1 " + String.valueOf(last) + " " + String.valueOf(names.size());
+    }
+
+    private void journal(String operation, MessageUid uid, String name) throws IOException {
+        String line = operation + " " + uid.asLong() + " " + name + System.lineSeparator();
+        Files.write(journalFile.toPath(), line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        journalEntries++;
+        if (journalEntries >= compactionThreshold) {
+            compact();
+        }
+    }
+
+    /**
+     * Writes the whole index as the new uid list and truncates the journal. The uid list is replaced
+     * atomically, and replaying the journal again over it is harmless should the truncation fail.
+     */
+    private void compact() throws IOException {
+        File tmpFile = new File(uidFile.getParentFile(), MaildirFolder.UIDLIST_FILE + ".tmp");
+        try (PrintWriter pw = new PrintWriter(tmpFile)) {
+            pw.println(createUidListHeader());
+            for (Map.Entry<MessageUid, String> entry : names.entrySet()) {
+                pw.println(String.valueOf(entry.getKey().asLong()) + " " + entry.getValue());
+            }
+        }
+        Files.move(tmpFile.toPath(), uidFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(journalFile.toPath());
+        journalEntries = 0;
+    }
+
+    private MessageUid nextUid() {
+        MessageUid nextUid = lastUid.map(MessageUid::next).orElse(MessageUid.MIN_VALUE);
+        lastUid = Optional.of(nextUid);
+        return nextUid;
+    }
+
+    private void put(MessageUid uid, String name) {
+        String previousName = names.put(uid, name);
+        if (previousName != null) {
+            uidsByBaseName.remove(MaildirFolder.stripMetaFromName(previousName));
+        }
+        uidsByBaseName.put(MaildirFolder.stripMetaFromName(name), uid);
+    }
+
+    private Optional<String> remove(MessageUid uid) {
+        Optional<String> name = Optional.ofNullable(names.remove(uid));
+        name.ifPresent(value -> uidsByBaseName.remove(MaildirFolder.stripMetaFromName(value)));
+        return name;
+    }
+
+    private void clear() {
+        names.clear();
+        uidsByBaseName.clear();
+    }
+}
@@ -35,6 +35,7 @@ import org.apache.james.mailbox.maildir.MaildirFolder;
 import org.apache.james.mailbox.maildir.MaildirId;
 import org.apache.james.mailbox.maildir.MaildirMessageName;
 import org.apache.james.mailbox.maildir.MaildirStore;
+import org.apache.james.mailbox.maildir.MaildirUidIndex;
 import org.apache.james.mailbox.model.MailboxACL;
 import org.apache.james.mailbox.model.MailboxACL.Right;
 import org.apache.james.mailbox.model.MailboxConstants;
@@ -75,6 +76,7 @@ public class MaildirMailboxMapper extends NonTransactionalMapper implements Mail
         String folderName = maildirStore.getFolderName(mailbox);
         File folder = new File(folderName);
         if (folder.isDirectory()) {
+            maildirStore.invalidateUidIndex(mailbox);
             // Shouldn't fail on file deletion, else the mailbox will never be deleted
             if (mailbox.getName().equals(MailboxConstants.INBOX)) {
                 // We must only delete cur, new, tmp and metadata for top INBOX mailbox.
@@ -82,6 +84,7 @@ public class MaildirMailboxMapper extends NonTransactionalMapper implements Mail
                         new File(folder, MaildirFolder.NEW),
                         new File(folder, MaildirFolder.TMP),
                         new File(folder, MaildirFolder.UIDLIST_FILE),
+                        new File(folder, MaildirUidIndex.JOURNAL_FILE),
                         new File(folder, MaildirFolder.VALIDITY_FILE));
             } else {
                 // We simply delete all the folder for non INBOX mailboxes.
@@ -182,6 +185,11 @@ public class MaildirMailboxMapper extends NonTransactionalMapper implements Mail
                         if (!oldUidListFile.renameTo(newUidListFile)) {
                             throw new IOException("Could not rename file " + oldUidListFile + " to " + newUidListFile);
                         }
+                        File oldJournalFile = new File(inboxFolder, MaildirUidIndex.JOURNAL_FILE);
+                        File newJournalFile = new File(newFolder, MaildirUidIndex.JOURNAL_FILE);
+                        if (oldJournalFile.exists() && !oldJournalFile.renameTo(newJournalFile)) {
+                            throw new IOException("Could not rename file " + oldJournalFile + " to " + newJournalFile);
+                        }
                         File oldValidityFile = new File(inboxFolder, MaildirFolder.VALIDITY_FILE);
                         File newValidityFile = new File(newFolder, MaildirFolder.VALIDITY_FILE);
                         if (!oldValidityFile.renameTo(newValidityFile)) {
@@ -201,6 +209,8 @@ public class MaildirMailboxMapper extends NonTransactionalMapper implements Mail
                             new IOException("Could not rename folder " + originalFolder));
                     }
                 }
+                maildirStore.invalidateUidIndex(originalMailbox);
+                maildirStore.invalidateUidIndex(mailbox);
             }
             folder.setACL(session, mailbox.getACL());
         } catch (MailboxNotFoundException e) {
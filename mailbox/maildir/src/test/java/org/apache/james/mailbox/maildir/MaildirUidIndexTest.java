@@ -0,0 +1,284 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.mailbox.maildir;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.apache.james.mailbox.MessageUid;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MaildirUidIndexTest {
+
+    private static final int COMPACTION_THRESHOLD = 3;
+    private static final MessageUid UID_1 = MessageUid.of(1);
+    private static final MessageUid UID_2 = MessageUid.of(2);
+    private static final MessageUid UID_3 = MessageUid.of(3);
+    private static final int LARGE_COMPACTION_THRESHOLD = 100;
+    // more than the events a watch key can queue
+    private static final int LOST_EVENTS_FILE_COUNT = 1000;
+    private static final long EVENT_TIMEOUT_MILLIS = 30000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File rootFolder;
+    private File curFolder;
+    private File newFolder;
+    private MaildirUidIndex testee;
+    private WatchService watchService;
+    private MaildirChangeWatcher changeWatcher;
+    private List<WatchEvent<?>> noticedEvents;
+
+    @Before
+    public void setUp() throws Exception {
+        rootFolder = temporaryFolder.newFolder();
+        curFolder = new File(rootFolder, MaildirFolder.CUR);
+        newFolder = new File(rootFolder, MaildirFolder.NEW);
+        curFolder.mkdir();
+        newFolder.mkdir();
+        testee = createIndex();
+        testee.getLastUid();
+        watchService = FileSystems.getDefault().newWatchService();
+        changeWatcher = new MaildirChangeWatcher(watchService);
+        noticedEvents = new CopyOnWriteArrayList<>();
+        Consumer<WatchEvent<?>> probe = noticedEvents::add;
+        changeWatcher.register(curFolder, probe);
+        changeWatcher.register(newFolder, probe);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        watchService.close();
+    }
+
+    private MaildirUidIndex createIndex() {
+        return new MaildirUidIndex(rootFolder, COMPACTION_THRESHOLD, Optional.empty());
+    }
+
+    private MaildirUidIndex createWatchedIndex() throws IOException {
+        MaildirUidIndex index = new MaildirUidIndex(rootFolder, LARGE_COMPACTION_THRESHOLD, Optional.of(changeWatcher));
+        index.getLastUid();
+        return index;
+    }
+
+    /**
+     * Waits for the watcher to dispatch the given event. As the listeners of a folder are notified
+     * together, the watched indexes then have the event pending.
+     */
+    private void awaitEvent(WatchEvent.Kind<?> kind, String name) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + EVENT_TIMEOUT_MILLIS;
+        while (noticedEvents.stream().noneMatch(event -> event.kind() == kind
+                && (kind == OVERFLOW || event.context().toString().equals(name)))) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+            changeWatcher.poll();
+        }
+    }
+
+    /**
+     * Creates a message file the way James does, that is without the message folders
+     * looking modified after the uid list
+     */
+    private String deliver(String name) throws IOException {
+        new File(newFolder, name).createNewFile();
+        makeFoldersOlderThanUidList();
+        return name;
+    }
+
+    private String markSeen(String name) {
+        String seenName = name + ":2,S";
+        new File(newFolder, name).renameTo(new File(curFolder, seenName));
+        makeFoldersOlderThanUidList();
+        return seenName;
+    }
+
+    private void makeFoldersOlderThanUidList() {
+        long past = System.currentTimeMillis() - 60000;
+        curFolder.setLastModified(past);
+        newFolder.setLastModified(past);
+    }
+
+    @Test
+    public void appendShouldGiveIncreasingUids() throws Exception {
+        assertThat(testee.append(deliver("1.a"))).isEqualTo(UID_1);
+        assertThat(testee.append(deliver("2.a"))).isEqualTo(UID_2);
+    }
+
+    @Test
+    public void appendShouldKeepTheUidOfAnIndexedMessage() throws Exception {
+        String name = deliver("1.a");
+        testee.append(name);
+
+        assertThat(testee.append(markSeen(name))).isEqualTo(UID_1);
+        assertThat(testee.getName(UID_1)).contains("1.a:2,S");
+    }
+
+    @Test
+    public void getNamesShouldHonorBoundaries() throws Exception {
+        testee.append(deliver("1.a"));
+        testee.append(deliver("2.a"));
+        testee.append(deliver("3.a"));
+
+        assertThat(testee.getNames(UID_2, UID_2)).containsExactly(entry(UID_2, "2.a"));
+        assertThat(testee.getNames(UID_2, null)).containsExactly(entry(UID_2, "2.a"), entry(UID_3, "3.a"));
+    }
+
+    @Test
+    public void changesShouldBeRestoredFromTheJournal() throws Exception {
+        testee.append(deliver("1.a"));
+        testee.append(deliver("2.a"));
+
+        assertThat(testee.getJournalEntries()).isEqualTo(2);
+        MaildirUidIndex restored = createIndex();
+        assertThat(restored.getNames(MessageUid.MIN_VALUE, null)).containsExactly(entry(UID_1, "1.a"), entry(UID_2, "2.a"));
+        assertThat(restored.getLastUid()).contains(UID_2);
+    }
+
+    @Test
+    public void journalShouldBeCompactedOnceThresholdIsReached() throws Exception {
+        String name = deliver("1.a");
+        testee.append(name);
+        testee.append(deliver("2.a"));
+        testee.update(UID_1, markSeen(name));
+
+        assertThat(testee.getJournalEntries()).isZero();
+        assertThat(new File(rootFolder, MaildirUidIndex.JOURNAL_FILE)).doesNotExist();
+        assertThat(createIndex().getNames(MessageUid.MIN_VALUE, null)).containsExactly(entry(UID_1, "1.a:2,S"), entry(UID_2, "2.a"));
+    }
+
+    @Test
+    public void deleteShouldBeRestoredFromTheJournal() throws Exception {
+        String name = deliver("1.a");
+        testee.append(name);
+        testee.append(deliver("2.a"));
+        new File(newFolder, name).delete();
+        makeFoldersOlderThanUidList();
+        testee.delete(UID_1);
+
+        MaildirUidIndex restored = createIndex();
+        assertThat(restored.getNames(MessageUid.MIN_VALUE, null)).containsExactly(entry(UID_2, "2.a"));
+        assertThat(restored.getLastUid()).contains(UID_2);
+    }
+
+    @Test
+    public void messagesDeliveredByOtherProgramsShouldBeIndexedWithoutWatcher() throws Exception {
+        testee.append(deliver("1.a"));
+        new File(newFolder, "2.a").createNewFile();
+        newFolder.setLastModified(System.currentTimeMillis() + 60000);
+
+        assertThat(testee.getUid("2.a")).contains(UID_2);
+    }
+
+    @Test
+    public void deletedUidListShouldBeRebuilt() throws Exception {
+        String name = deliver("1.a");
+        testee.append(name);
+        new File(newFolder, name).delete();
+        new File(rootFolder, MaildirFolder.UIDLIST_FILE).delete();
+        new File(rootFolder, MaildirUidIndex.JOURNAL_FILE).delete();
+        deliver("2.a");
+
+        assertThat(testee.getNames(MessageUid.MIN_VALUE, null)).containsExactly(entry(UID_1, "2.a"));
+    }
+
+    @Test
+    public void messagesDeliveredByOtherProgramsShouldBeIndexedWithWatcher() throws Exception {
+        MaildirUidIndex index = createWatchedIndex();
+        index.append(deliver("1.a"));
+        new File(newFolder, "2.a").createNewFile();
+        awaitEvent(ENTRY_CREATE, "2.a");
+
+        assertThat(index.getNames(MessageUid.MIN_VALUE, null)).containsExactly(entry(UID_1, "1.a"), entry(UID_2, "2.a"));
+    }
+
+    @Test
+    public void messagesRenamedByOtherProgramsShouldKeepTheirUidWithWatcher() throws Exception {
+        MaildirUidIndex index = createWatchedIndex();
+        String name = deliver("1.a");
+        index.append(name);
+        String seenName = markSeen(name);
+        awaitEvent(ENTRY_CREATE, seenName);
+        awaitEvent(ENTRY_DELETE, name);
+
+        assertThat(index.getNames(MessageUid.MIN_VALUE, null)).containsExactly(entry(UID_1, seenName));
+        assertThat(index.getLastUid()).contains(UID_1);
+    }
+
+    @Test
+    public void messagesDeletedByOtherProgramsShouldBeRemovedWithWatcher() throws Exception {
+        MaildirUidIndex index = createWatchedIndex();
+        String name = deliver("1.a");
+        index.append(name);
+        index.append(deliver("2.a"));
+        new File(newFolder, name).delete();
+        awaitEvent(ENTRY_DELETE, name);
+
+        assertThat(index.getNames(MessageUid.MIN_VALUE, null)).containsExactly(entry(UID_2, "2.a"));
+        assertThat(createIndex().getNames(MessageUid.MIN_VALUE, null)).containsExactly(entry(UID_2, "2.a"));
+    }
+
+    @Test
+    public void ownChangesShouldNotListTheMessageFoldersWithWatcher() throws Exception {
+        MaildirUidIndex index = createWatchedIndex();
+        String name = deliver("1.a");
+        index.append(name);
+        String deletedName = deliver("2.a");
+        index.append(deletedName);
+        String seenName = markSeen(name);
+        new File(newFolder, deletedName).delete();
+        awaitEvent(ENTRY_CREATE, seenName);
+        awaitEvent(ENTRY_DELETE, deletedName);
+
+        index.update(UID_1, seenName);
+        index.delete(UID_2);
+
+        assertThat(index.getNames(MessageUid.MIN_VALUE, null)).containsExactly(entry(UID_1, seenName));
+        assertThat(index.getJournalEntries()).isEqualTo(4);
+    }
+
+    @Test
+    public void lostEventsShouldLeadToListTheMessageFolders() throws Exception {
+        MaildirUidIndex index = createWatchedIndex();
+        for (int i = 0; i < LOST_EVENTS_FILE_COUNT; i++) {
+            new File(newFolder, i + ".a").createNewFile();
+        }
+        awaitEvent(OVERFLOW, "");
+
+        assertThat(index.getNames(MessageUid.MIN_VALUE, null)).hasSize(LOST_EVENTS_FILE_COUNT);
+        assertThat(index.getLastUid()).contains(MessageUid.of(LOST_EVENTS_FILE_COUNT));
+    }
+}
@@ -89,6 +89,8 @@ public class InMemoryMailboxManager extends StoreMailboxManager {
             getMessageIdFactory(),
             getBatchSizes(),
             getImmutableMailboxMessageFactory(),
-            getStoreRightManager());
+            getStoreRightManager(),
+            getMetricFactory(),
+            getCountersCache());
     }
 }
@@ -68,6 +68,8 @@ import org.apache.james.mailbox.model.search.MailboxNameExpression;
 import org.apache.james.mailbox.model.search.MailboxQuery;
 import org.apache.james.mailbox.quota.QuotaManager;
 import org.apache.james.mailbox.quota.QuotaRootResolver;
+import org.apache.james.mailbox.store.counters.MailboxCountersCache;
+import org.apache.james.mailbox.store.counters.NoMailboxCountersCache;
 import org.apache.james.mailbox.store.event.DelegatingMailboxListener;
 import org.apache.james.mailbox.store.event.MailboxAnnotationListener;
 import org.apache.james.mailbox.store.event.MailboxEventDispatcher;
@@ -85,6 +87,8 @@ import org.apache.james.mailbox.store.search.ListeningMessageSearchIndex;
 import org.apache.james.mailbox.store.search.MessageSearchIndex;
 import org.apache.james.mailbox.store.search.SimpleMessageSearchIndex;
 import org.apache.james.mailbox.store.transaction.Mapper;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.metrics.api.NoopMetricFactory;
 import org.apache.james.util.streams.Iterators;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -140,6 +144,10 @@ public class StoreMailboxManager implements MailboxManager {
 
     private BatchSizes batchSizes = BatchSizes.defaultValues();
 
+    private MetricFactory metricFactory = new NoopMetricFactory();
+
+    private MailboxCountersCache countersCache = new NoMailboxCountersCache();
+
     private final MessageParser messageParser;
     private final Factory messageIdFactory;
     private final ImmutableMailboxMessage.Factory immutableMailboxMessageFactory;
@@ -203,6 +211,22 @@ public class StoreMailboxManager implements MailboxManager {
         return batchSizes;
     }
 
+    public void setMetricFactory(MetricFactory metricFactory) {
+        this.metricFactory = metricFactory;
+    }
+
+    public MetricFactory getMetricFactory() {
+        return metricFactory;
+    }
+
+    public void setCountersCache(MailboxCountersCache countersCache) {
+        this.countersCache = countersCache;
+    }
+
+    public MailboxCountersCache getCountersCache() {
+        return countersCache;
+    }
+
     public ImmutableMailboxMessage.Factory getImmutableMailboxMessageFactory() {
         return immutableMailboxMessageFactory;
     }
@@ -233,6 +257,9 @@ public class StoreMailboxManager implements MailboxManager {
         if (quotaUpdater != null && quotaUpdater instanceof MailboxListener) {
             this.addGlobalListener((MailboxListener) quotaUpdater, session);
         }
+        if (countersCache instanceof MailboxListener) {
+            this.addGlobalListener((MailboxListener) countersCache, session);
+        }
         if (copyBatcher == null) {
             copyBatcher = new MessageBatcher(MessageBatcher.NO_BATCH_SIZE);
         }
@@ -426,7 +453,7 @@ public class StoreMailboxManager implements MailboxManager {
         return new StoreMessageManager(DEFAULT_NO_MESSAGE_CAPABILITIES, getMapperFactory(), getMessageSearchIndex(), getEventDispatcher(),
                 getLocker(), mailbox, getQuotaManager(),
                 getQuotaRootResolver(), getMessageParser(), getMessageIdFactory(), getBatchSizes(),
-                getImmutableMailboxMessageFactory(), getStoreRightManager());
+                getImmutableMailboxMessageFactory(), getStoreRightManager(), getMetricFactory(), getCountersCache());
     }
 
     /**
@@ -19,8 +19,9 @@
 
 package org.apache.james.mailbox.store;
 
+import static org.apache.commons.io.output.NullOutputStream.NULL_OUTPUT_STREAM;
+
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -29,15 +30,19 @@ import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
 import javax.mail.Flags;
 import javax.mail.Flags.Flag;
 import javax.mail.internet.SharedInputStream;
+import javax.mail.util.SharedByteArrayInputStream;
 import javax.mail.util.SharedFileInputStream;
 
 import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.DeferredFileOutputStream;
 import org.apache.james.mailbox.MailboxListener;
 import org.apache.james.mailbox.MailboxManager;
 import org.apache.james.mailbox.MailboxManager.MessageCapabilities;
@@ -65,6 +70,8 @@ import org.apache.james.mailbox.model.SearchQuery;
 import org.apache.james.mailbox.model.UpdatedFlags;
 import org.apache.james.mailbox.quota.QuotaManager;
 import org.apache.james.mailbox.quota.QuotaRootResolver;
+import org.apache.james.mailbox.store.counters.MailboxCountersCache;
+import org.apache.james.mailbox.store.counters.MailboxStatusCounters;
 import org.apache.james.mailbox.store.event.MailboxEventDispatcher;
 import org.apache.james.mailbox.store.mail.MessageMapper;
 import org.apache.james.mailbox.store.mail.MessageMapper.FetchType;
@@ -76,11 +83,14 @@ import org.apache.james.mailbox.store.mail.model.impl.SimpleMailboxMessage;
 import org.apache.james.mailbox.store.quota.QuotaChecker;
 import org.apache.james.mailbox.store.search.MessageSearchIndex;
 import org.apache.james.mailbox.store.streaming.CountingInputStream;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.metrics.api.TimeMetric;
 import org.apache.james.mime4j.MimeException;
 import org.apache.james.mime4j.message.DefaultBodyDescriptorBuilder;
 import org.apache.james.mime4j.message.HeaderImpl;
 import org.apache.james.mime4j.message.MaximalBodyDescriptor;
 import org.apache.james.mime4j.stream.EntityState;
+import org.apache.james.mime4j.stream.Field;
 import org.apache.james.mime4j.stream.MimeConfig;
 import org.apache.james.mime4j.stream.MimeTokenStream;
 import org.apache.james.mime4j.stream.RecursionMode;
@@ -91,6 +101,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
 
 /**
  * Base class for {@link org.apache.james.mailbox.MessageManager}
@@ -129,6 +140,15 @@ public class StoreMessageManager implements org.apache.james.mailbox.MessageMana
 
     private static final Logger LOG = LoggerFactory.getLogger(StoreMessageManager.class);
 
+    /**
+     * Appended messages smaller than this amount of bytes are buffered in memory rather than in a temporary file.
+     */
+    private static final int APPEND_IN_MEMORY_THRESHOLD = 100 * 1024;
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String APPEND_PARSE_METRIC_NAME = "mailbox-append-parse";
+    private static final String APPEND_ATTACHMENTS_METRIC_NAME = "mailbox-append-attachments";
+    private static final String APPEND_STORE_METRIC_NAME = "mailbox-append-store";
+
     private final EnumSet<MailboxManager.MessageCapabilities> messageCapabilities;
 
     private final Mailbox mailbox;
@@ -155,10 +175,15 @@ public class StoreMessageManager implements org.apache.james.mailbox.MessageMana
 
     private final ImmutableMailboxMessage.Factory immutableMailboxMessageFactory;
 
+    private final MetricFactory metricFactory;
+
+    private final MailboxCountersCache countersCache;
+
     public StoreMessageManager(EnumSet<MailboxManager.MessageCapabilities> messageCapabilities, MailboxSessionMapperFactory mapperFactory, MessageSearchIndex index, MailboxEventDispatcher dispatcher,
             MailboxPathLocker locker, Mailbox mailbox,
             QuotaManager quotaManager, QuotaRootResolver quotaRootResolver, MessageParser messageParser, MessageId.Factory messageIdFactory, BatchSizes batchSizes,
-            ImmutableMailboxMessage.Factory immutableMailboxMessageFactory, StoreRightManager storeRightManager) {
+            ImmutableMailboxMessage.Factory immutableMailboxMessageFactory, StoreRightManager storeRightManager,
+            MetricFactory metricFactory, MailboxCountersCache countersCache) {
         this.messageCapabilities = messageCapabilities;
         this.mailbox = mailbox;
         this.dispatcher = dispatcher;
@@ -172,6 +197,8 @@ public class StoreMessageManager implements org.apache.james.mailbox.MessageMana
         this.batchSizes = batchSizes;
         this.immutableMailboxMessageFactory = immutableMailboxMessageFactory;
         this.storeRightManager = storeRightManager;
+        this.metricFactory = metricFactory;
+        this.countersCache = countersCache;
     }
 
     protected Factory getMessageIdFactory() {
@@ -293,90 +320,117 @@ public class StoreMessageManager implements org.apache.james.mailbox.MessageMana
     @Override
     public ComposedMessageId appendMessage(InputStream msgIn, Date internalDate, final MailboxSession mailboxSession, boolean isRecent, Flags flagsToBeSet) throws MailboxException {
 
-        File file = null;
-
         if (!isWriteable(mailboxSession)) {
             throw new ReadOnlyException(getMailboxPath(), mailboxSession.getPathDelimiter());
         }
 
+        // Copy the message while parsing its headers. Small messages are kept in memory, bigger ones
+        // are written to a temporary file which will be used as source for the InputStream.
+        // Content which is already shared, like a literal spilled to disk by the IMAP server, is only
+        // counted and then used as is
+        Optional<SharedInputStream> sharedMsgIn = asSharedInputStream(msgIn);
+        long sharedStart = sharedMsgIn.map(SharedInputStream::getPosition).orElse(0L);
+        DeferredFileOutputStream out = new DeferredFileOutputStream(APPEND_IN_MEMORY_THRESHOLD, "imap", ".msg", null);
         try {
-            // Create a temporary file and copy the message to it. We will work
-            // with the file as
-            // source for the InputStream
-            file = File.createTempFile("imap", ".msg");
-            try (FileOutputStream out = new FileOutputStream(file);
-                 TeeInputStream tmpMsgIn = new TeeInputStream(msgIn, out);
+            try (CountingOutputStream spool = new CountingOutputStream(sharedMsgIn.isPresent() ? NULL_OUTPUT_STREAM : out);
+                 TeeInputStream tmpMsgIn = new TeeInputStream(msgIn, spool);
                  BodyOffsetInputStream bIn = new BodyOffsetInputStream(tmpMsgIn)) {
-                // Disable line length... This should be handled by the smtp server
-                // component and not the parser itself
-                // https://issues.apache.org/jira/browse/IMAP-122
-
-                final MimeTokenStream parser = new MimeTokenStream(MimeConfig.PERMISSIVE, new DefaultBodyDescriptorBuilder());
-
-                parser.setRecursionMode(RecursionMode.M_NO_RECURSE);
-                parser.parse(bIn);
-                final HeaderImpl header = new HeaderImpl();
-
-                EntityState next = parser.next();
-                while (next != EntityState.T_BODY && next != EntityState.T_END_OF_STREAM && next != EntityState.T_START_MULTIPART) {
-                    if (next == EntityState.T_FIELD) {
-                        header.addField(parser.getField());
-                    }
-                    next = parser.next();
-                }
-                final MaximalBodyDescriptor descriptor = (MaximalBodyDescriptor) parser.getBodyDescriptor();
                 final PropertyBuilder propertyBuilder = new PropertyBuilder();
-                final String mediaType;
-                final String mediaTypeFromHeader = descriptor.getMediaType();
-                final String subType;
-                if (mediaTypeFromHeader == null) {
-                    mediaType = "text";
-                    subType = "plain";
-                } else {
-                    mediaType = mediaTypeFromHeader;
-                    subType = descriptor.getSubType();
-                }
-                propertyBuilder.setMediaType(mediaType);
-                propertyBuilder.setSubType(subType);
-                propertyBuilder.setContentID(descriptor.getContentId());
-                propertyBuilder.setContentDescription(descriptor.getContentDescription());
-                propertyBuilder.setContentLocation(descriptor.getContentLocation());
-                propertyBuilder.setContentMD5(descriptor.getContentMD5Raw());
-                propertyBuilder.setContentTransferEncoding(descriptor.getTransferEncoding());
-                propertyBuilder.setContentLanguage(descriptor.getContentLanguage());
-                propertyBuilder.setContentDispositionType(descriptor.getContentDispositionType());
-                propertyBuilder.setContentDispositionParameters(descriptor.getContentDispositionParameters());
-                propertyBuilder.setContentTypeParameters(descriptor.getContentTypeParameters());
-                // Add missing types
-                final String codeset = descriptor.getCharset();
-                if (codeset == null) {
-                    if ("TEXT".equalsIgnoreCase(mediaType)) {
-                        propertyBuilder.setCharset("us-ascii");
+                final boolean isText;
+                final boolean mayHaveAttachments;
+                Optional<List<MessageAttachment>> parsedAttachments = Optional.of(ImmutableList.of());
+                TimeMetric parseTimer = metricFactory.timer(APPEND_PARSE_METRIC_NAME);
+                try {
+                    // Disable line length... This should be handled by the smtp server
+                    // component and not the parser itself
+                    // https://issues.apache.org/jira/browse/IMAP-122
+
+                    final MimeTokenStream parser = new MimeTokenStream(MimeConfig.PERMISSIVE, new DefaultBodyDescriptorBuilder());
+
+                    parser.setRecursionMode(RecursionMode.M_NO_RECURSE);
+                    parser.parse(bIn);
+                    final HeaderImpl header = new HeaderImpl();
+
+                    EntityState next = parser.next();
+                    while (next != EntityState.T_BODY && next != EntityState.T_END_OF_STREAM && next != EntityState.T_START_MULTIPART) {
+                        if (next == EntityState.T_FIELD) {
+                            header.addField(parser.getField());
+                        }
+                        next = parser.next();
+                    }
+                    final MaximalBodyDescriptor descriptor = (MaximalBodyDescriptor) parser.getBodyDescriptor();
+                    final String mediaType;
+                    final String mediaTypeFromHeader = descriptor.getMediaType();
+                    final String subType;
+                    if (mediaTypeFromHeader == null) {
+                        mediaType = "text";
+                        subType = "plain";
+                    } else {
+                        mediaType = mediaTypeFromHeader;
+                        subType = descriptor.getSubType();
+                    }
+                    propertyBuilder.setMediaType(mediaType);
+                    propertyBuilder.setSubType(subType);
+                    propertyBuilder.setContentID(descriptor.getContentId());
+                    propertyBuilder.setContentDescription(descriptor.getContentDescription());
+                    propertyBuilder.setContentLocation(descriptor.getContentLocation());
+                    propertyBuilder.setContentMD5(descriptor.getContentMD5Raw());
+                    propertyBuilder.setContentTransferEncoding(descriptor.getTransferEncoding());
+                    propertyBuilder.setContentLanguage(descriptor.getContentLanguage());
+                    propertyBuilder.setContentDispositionType(descriptor.getContentDispositionType());
+                    propertyBuilder.setContentDispositionParameters(descriptor.getContentDispositionParameters());
+                    propertyBuilder.setContentTypeParameters(descriptor.getContentTypeParameters());
+                    // Add missing types
+                    final String codeset = descriptor.getCharset();
+                    if (codeset == null) {
+                        if ("TEXT".equalsIgnoreCase(mediaType)) {
+                            propertyBuilder.setCharset("us-ascii");
+                        }
+                    } else {
+                        propertyBuilder.setCharset(codeset);
                     }
-                } else {
-                    propertyBuilder.setCharset(codeset);
-                }
 
-                final String boundary = descriptor.getBoundary();
-                if (boundary != null) {
-                    propertyBuilder.setBoundary(boundary);
-                }
-                if ("text".equalsIgnoreCase(mediaType)) {
-                    final CountingInputStream bodyStream = new CountingInputStream(parser.getInputStream());
-                    bodyStream.readAll();
-                    long lines = bodyStream.getLineCount();
-                    bodyStream.close();
-                    next = parser.next();
-                    if (next == EntityState.T_EPILOGUE) {
-                        final CountingInputStream epilogueStream = new CountingInputStream(parser.getInputStream());
-                        epilogueStream.readAll();
-                        lines += epilogueStream.getLineCount();
-                        epilogueStream.close();
+                    final String boundary = descriptor.getBoundary();
+                    if (boundary != null) {
+                        propertyBuilder.setBoundary(boundary);
+                    }
+                    isText = "text".equalsIgnoreCase(mediaType);
+                    final Optional<String> declaredMimeType = Optional.ofNullable(header.getField(CONTENT_TYPE))
+                        .map(field -> descriptor.getMimeType());
+                    mayHaveAttachments = messageParser.mayHaveAttachments(declaredMimeType);
+                    if (mayHaveAttachments) {
+                        // Attachments are read while the message is copied, the body being parsed only once
+                        parsedAttachments = extractAttachments(parser, header.getFields());
+                    } else if (isText) {
+                        final CountingInputStream bodyStream = new CountingInputStream(parser.getInputStream());
+                        bodyStream.readAll();
+                        long lines = bodyStream.getLineCount();
+                        bodyStream.close();
+                        next = parser.next();
+                        if (next == EntityState.T_EPILOGUE) {
+                            final CountingInputStream epilogueStream = new CountingInputStream(parser.getInputStream());
+                            epilogueStream.readAll();
+                            lines += epilogueStream.getLineCount();
+                            epilogueStream.close();
+
+                        }
+                        propertyBuilder.setTextualLineCount(lines);
+                    }
 
+                    byte[] discard = new byte[4096];
+                    while (tmpMsgIn.read(discard) != -1) {
+                        // consume the rest of the stream so everything get copied to
+                        // the spool now
+                        // via the TeeInputStream
                     }
-                    propertyBuilder.setTextualLineCount(lines);
+                    spool.close();
+                } finally {
+                    parseTimer.stopAndPublish();
+                }
+                int bodyStartOctet = (int) bIn.getBodyStartOffset();
+                if (bodyStartOctet == -1) {
+                    bodyStartOctet = 0;
                 }
-
                 final Flags flags;
                 if (flagsToBeSet == null) {
                     flags = new Flags();
@@ -393,40 +447,43 @@ public class StoreMessageManager implements org.apache.james.mailbox.MessageMana
                 if (internalDate == null) {
                     internalDate = new Date();
                 }
-                byte[] discard = new byte[4096];
-                while (tmpMsgIn.read(discard) != -1) {
-                    // consume the rest of the stream so everything get copied to
-                    // the file now
-                    // via the TeeInputStream
-                }
-                int bodyStartOctet = (int) bIn.getBodyStartOffset();
-                if (bodyStartOctet == -1) {
-                    bodyStartOctet = 0;
+                if (isText && mayHaveAttachments) {
+                    // The body was consumed while extracting attachments
+                    propertyBuilder.setTextualLineCount(countBodyLines(sharedMsgIn, sharedStart, out, bodyStartOctet));
                 }
-                try (SharedFileInputStream contentIn = new SharedFileInputStream(file)) {
-                    final int size = (int) file.length();
 
-                    final List<MessageAttachment> attachments = extractAttachments(contentIn);
+                try (InputStream contentIn = openContent(sharedMsgIn, sharedStart, out)) {
+                    final int size = (int) spool.getByteCount();
+
+                    final List<MessageAttachment> attachments = parsedAttachments.isPresent()
+                        ? parsedAttachments.get()
+                        : extractAttachments(contentIn);
                     propertyBuilder.setHasAttachment(hasNonInlinedAttachment(attachments));
 
-                    final MailboxMessage message = createMessage(internalDate, size, bodyStartOctet, contentIn, flags, propertyBuilder, attachments);
+                    final MailboxMessage message = createMessage(internalDate, size, bodyStartOctet, (SharedInputStream) contentIn, flags, propertyBuilder, attachments);
 
-                    new QuotaChecker(quotaManager, quotaRootResolver, mailbox).tryAddition(1, size);
+                    TimeMetric storeTimer = metricFactory.timer(APPEND_STORE_METRIC_NAME);
+                    try {
+                        new QuotaChecker(quotaManager, quotaRootResolver, mailbox).tryAddition(1, size);
 
-                    return locker.executeWithLock(mailboxSession, getMailboxPath(), () -> {
-                        MessageMetaData data = appendMessageToStore(message, attachments, mailboxSession);
+                        return locker.executeWithLock(mailboxSession, getMailboxPath(), () -> {
+                            MessageMetaData data = appendMessageToStore(message, attachments, mailboxSession);
 
-                        Mailbox mailbox = getMailboxEntity();
-                        MailboxMessage copy = copyMessage(message);
-                        dispatcher.added(mailboxSession, mailbox, copy);
-                        return new ComposedMessageId(mailbox.getMailboxId(), data.getMessageId(), data.getUid());
-                    }, true);
+                            Mailbox mailbox = getMailboxEntity();
+                            MailboxMessage copy = copyMessage(message);
+                            dispatcher.added(mailboxSession, mailbox, copy);
+                            return new ComposedMessageId(mailbox.getMailboxId(), data.getMessageId(), data.getUid());
+                        }, true);
+                    } finally {
+                        storeTimer.stopAndPublish();
+                    }
                 }
             }
         } catch (IOException | MimeException e) {
             throw new MailboxException("Unable to parse message", e);
         } finally {
-            // delete the temporary file if one was specified
+            // delete the temporary file if the message did not fit in memory
+            File file = out.getFile();
             if (file != null) {
                 if (!file.delete()) {
                     // Don't throw an IOException. The message could be appended
@@ -438,17 +495,64 @@ public class StoreMessageManager implements org.apache.james.mailbox.MessageMana
 
     }
 
+    private Optional<SharedInputStream> asSharedInputStream(InputStream msgIn) {
+        if (msgIn instanceof SharedInputStream) {
+            return Optional.of((SharedInputStream) msgIn);
+        }
+        return Optional.empty();
+    }
+
+    private InputStream openContent(Optional<SharedInputStream> sharedMsgIn, long sharedStart, DeferredFileOutputStream out) throws IOException {
+        if (sharedMsgIn.isPresent()) {
+            return sharedMsgIn.get().newStream(sharedStart, -1);
+        }
+        if (out.isInMemory()) {
+            return new SharedByteArrayInputStream(out.getData());
+        }
+        return new SharedFileInputStream(out.getFile());
+    }
+
     private boolean hasNonInlinedAttachment(List<MessageAttachment> attachments) {
         return attachments.stream()
             .anyMatch(messageAttachment -> !messageAttachment.isInlinedWithCid());
     }
 
-    private List<MessageAttachment> extractAttachments(SharedFileInputStream contentIn) {
+    private long countBodyLines(Optional<SharedInputStream> sharedMsgIn, long sharedStart, DeferredFileOutputStream out, int bodyStartOctet) throws IOException {
+        try (InputStream contentIn = openContent(sharedMsgIn, sharedStart, out)) {
+            ByteStreams.skipFully(contentIn, bodyStartOctet);
+            CountingInputStream bodyStream = new CountingInputStream(contentIn);
+            bodyStream.readAll();
+            return bodyStream.getLineCount();
+        }
+    }
+
+    /**
+     * Extracts attachments from the parser copying the message, positioned on the message body.
+     *
+     * An empty result means that attachments need to be extracted from the copied content, see
+     * {@link MessageParser#retrieveAttachments(MimeTokenStream, List)}.
+     */
+    private Optional<List<MessageAttachment>> extractAttachments(MimeTokenStream parser, List<Field> headerFields) {
+        TimeMetric timer = metricFactory.timer(APPEND_ATTACHMENTS_METRIC_NAME);
+        try {
+            return messageParser.retrieveAttachments(parser, headerFields);
+        } catch (Exception e) {
+            LOG.warn("Error while parsing mail's attachments: {}", e.getMessage(), e);
+            return Optional.of(ImmutableList.of());
+        } finally {
+            timer.stopAndPublish();
+        }
+    }
+
+    private List<MessageAttachment> extractAttachments(InputStream contentIn) {
+        TimeMetric timer = metricFactory.timer(APPEND_ATTACHMENTS_METRIC_NAME);
         try {
             return messageParser.retrieveAttachments(contentIn);
         } catch (Exception e) {
             LOG.warn("Error while parsing mail's attachments: {}", e.getMessage(), e);
             return ImmutableList.of();
+        } finally {
+            timer.stopAndPublish();
         }
     }
 
@@ -486,33 +590,41 @@ public class StoreMessageManager implements org.apache.james.mailbox.MessageMana
         MessageUid uidNext = mapperFactory.getMessageMapper(mailboxSession).getLastUid(mailbox)
                 .map(MessageUid::next)
                 .orElse(MessageUid.MIN_VALUE);
-        long highestModSeq = mapperFactory.getMessageMapper(mailboxSession).getHighestModSeq(mailbox);
+        long highestModSeq;
         long messageCount;
         long unseenCount;
         MessageUid firstUnseen;
+        Optional<MailboxStatusCounters> counters;
         switch (fetchGroup) {
         case UNSEEN_COUNT:
-            unseenCount = countUnseenMessagesInMailbox(mailboxSession);
-            messageCount = getMessageCount(mailboxSession);
+            counters = getStatusCounters(mailboxSession);
+            highestModSeq = highestModSeq(counters, mailboxSession);
+            unseenCount = unseenCount(counters, mailboxSession);
+            messageCount = messageCount(counters, mailboxSession);
             firstUnseen = null;
-            recent = recent(resetRecent, mailboxSession);
+            recent = recent(resetRecent, counters, mailboxSession);
 
             break;
         case FIRST_UNSEEN:
-            firstUnseen = findFirstUnseenMessageUid(mailboxSession);
-            messageCount = getMessageCount(mailboxSession);
+            counters = getStatusCounters(mailboxSession);
+            highestModSeq = highestModSeq(counters, mailboxSession);
+            firstUnseen = countersCache.getFirstUnseen(getMailboxPath(), () -> findFirstUnseenMessageUid(mailboxSession));
+            messageCount = messageCount(counters, mailboxSession);
             unseenCount = 0;
-            recent = recent(resetRecent, mailboxSession);
+            recent = recent(resetRecent, counters, mailboxSession);
 
             break;
         case NO_UNSEEN:
+            counters = getStatusCounters(mailboxSession);
+            highestModSeq = highestModSeq(counters, mailboxSession);
             firstUnseen = null;
             unseenCount = 0;
-            messageCount = getMessageCount(mailboxSession);
-            recent = recent(resetRecent, mailboxSession);
+            messageCount = messageCount(counters, mailboxSession);
+            recent = recent(resetRecent, counters, mailboxSession);
 
             break;
         default:
+            highestModSeq = mapperFactory.getMessageMapper(mailboxSession).getHighestModSeq(mailbox);
             firstUnseen = null;
             unseenCount = 0;
             messageCount = -1;
@@ -654,6 +766,49 @@ public class StoreMessageManager implements org.apache.james.mailbox.MessageMana
         return new StoreMessageResultIterator(messageMapper, mailbox, set, batchSizes, fetchGroup);
     }
 
+    /**
+     * Counters of this mailbox, served by the {@link MailboxCountersCache} when it keeps them.
+     * Otherwise nothing is loaded here, and each value is read from the mapper only when needed.
+     */
+    private Optional<MailboxStatusCounters> getStatusCounters(MailboxSession mailboxSession) throws MailboxException {
+        if (!countersCache.keepsCounters()) {
+            return Optional.empty();
+        }
+        return Optional.of(countersCache.getCounters(getMailboxPath(), () -> new MailboxStatusCounters(
+            getMessageCount(mailboxSession),
+            countUnseenMessagesInMailbox(mailboxSession),
+            mapperFactory.getMessageMapper(mailboxSession).findRecentMessageUidsInMailbox(getMailboxEntity()),
+            mapperFactory.getMessageMapper(mailboxSession).getHighestModSeq(getMailboxEntity()))));
+    }
+
+    private long highestModSeq(Optional<MailboxStatusCounters> counters, MailboxSession mailboxSession) throws MailboxException {
+        if (counters.isPresent()) {
+            return counters.get().getHighestModSeq();
+        }
+        return mapperFactory.getMessageMapper(mailboxSession).getHighestModSeq(getMailboxEntity());
+    }
+
+    private long messageCount(Optional<MailboxStatusCounters> counters, MailboxSession mailboxSession) throws MailboxException {
+        if (counters.isPresent()) {
+            return counters.get().getMessageCount();
+        }
+        return getMessageCount(mailboxSession);
+    }
+
+    private long unseenCount(Optional<MailboxStatusCounters> counters, MailboxSession mailboxSession) throws MailboxException {
+        if (counters.isPresent()) {
+            return counters.get().getUnseenCount();
+        }
+        return countUnseenMessagesInMailbox(mailboxSession);
+    }
+
+    private List<MessageUid> recent(boolean reset, Optional<MailboxStatusCounters> counters, MailboxSession mailboxSession) throws MailboxException {
+        if (reset || !counters.isPresent()) {
+            return recent(reset, mailboxSession);
+        }
+        return counters.get().getRecent();
+    }
+
     /**
      * Return a List which holds all uids of recent messages and optional reset
      * the recent flag on the messages for the uids
@@ -666,7 +821,7 @@ public class StoreMessageManager implements org.apache.james.mailbox.MessageMana
         }
         final MessageMapper messageMapper = mapperFactory.getMessageMapper(mailboxSession);
 
-        return messageMapper.execute(() -> {
+        List<MessageUid> recent = messageMapper.execute(() -> {
             final List<MessageUid> members = messageMapper.findRecentMessageUidsInMailbox(getMailboxEntity());
 
             // Convert to MessageRanges so we may be able to optimize the
@@ -680,7 +835,11 @@ public class StoreMessageManager implements org.apache.james.mailbox.MessageMana
             }
             return members;
         });
-
+        if (reset && !recent.isEmpty()) {
+            // no event is dispatched for the recent flag reset, cached counters would keep the old recent uids
+            countersCache.invalidate(getMailboxPath());
+        }
+        return recent;
     }
 
     protected Map<MessageUid, MessageMetaData> deleteMarkedInMailbox(final MessageRange range, MailboxSession session) throws MailboxException {
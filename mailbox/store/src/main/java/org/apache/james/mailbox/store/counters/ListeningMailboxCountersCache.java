@@ -0,0 +1,287 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.mailbox.store.counters;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+import javax.inject.Inject;
+import javax.mail.Flags;
+
+import org.apache.james.mailbox.Event;
+import org.apache.james.mailbox.MailboxListener;
+import org.apache.james.mailbox.MessageUid;
+import org.apache.james.mailbox.exception.MailboxException;
+import org.apache.james.mailbox.model.MailboxPath;
+import org.apache.james.mailbox.model.MessageMetaData;
+import org.apache.james.mailbox.model.UpdatedFlags;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * {@link MailboxCountersCache} loading the counters of a mailbox once, then keeping them up to date from the
+ * events of that mailbox.
+ *
+ * Events are only published once the change is stored, so a change stored while counters are being loaded can
+ * be counted twice. Loads racing with an event of the same mailbox are not cached, and entries are reloaded once
+ * their time to live is elapsed, which bounds how long such a drift can last.
+ */
+public class ListeningMailboxCountersCache implements MailboxCountersCache, MailboxListener {
+    public static final long DEFAULT_MAXIMUM_SIZE = 10000;
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(10);
+    private static final int VERSION_STRIPES = 1024;
+
+    private static class Entry {
+        private final Instant loadedAt;
+        private final MailboxStatusCounters counters;
+        private final boolean firstUnseenKnown;
+        private final Optional<MessageUid> firstUnseen;
+
+        private Entry(Instant loadedAt, MailboxStatusCounters counters, boolean firstUnseenKnown, Optional<MessageUid> firstUnseen) {
+            this.loadedAt = loadedAt;
+            this.counters = counters;
+            this.firstUnseenKnown = firstUnseenKnown;
+            this.firstUnseen = firstUnseen;
+        }
+
+        private Entry withFirstUnseen(Optional<MessageUid> firstUnseen) {
+            return new Entry(loadedAt, counters, true, firstUnseen);
+        }
+    }
+
+    private static class Update {
+        private final Entry entry;
+        private long messageCount;
+        private long unseenCount;
+        private final TreeSet<MessageUid> recent;
+        private long highestModSeq;
+        private boolean firstUnseenKnown;
+        private Optional<MessageUid> firstUnseen;
+
+        private Update(Entry entry) {
+            this.entry = entry;
+            this.messageCount = entry.counters.getMessageCount();
+            this.unseenCount = entry.counters.getUnseenCount();
+            this.recent = new TreeSet<>(entry.counters.getRecent());
+            this.highestModSeq = entry.counters.getHighestModSeq();
+            this.firstUnseenKnown = entry.firstUnseenKnown;
+            this.firstUnseen = entry.firstUnseen;
+        }
+
+        private void added(MessageMetaData metaData) {
+            messageCount++;
+            if (!metaData.getFlags().contains(Flags.Flag.SEEN)) {
+                unseenCount++;
+                becameUnseen(metaData.getUid());
+            }
+            if (metaData.getFlags().contains(Flags.Flag.RECENT)) {
+                recent.add(metaData.getUid());
+            }
+            highestModSeq = Math.max(highestModSeq, metaData.getModSeq());
+        }
+
+        private void expunged(MessageMetaData metaData) {
+            messageCount = Math.max(0, messageCount - 1);
+            if (!metaData.getFlags().contains(Flags.Flag.SEEN)) {
+                unseenCount = Math.max(0, unseenCount - 1);
+                becameSeen(metaData.getUid());
+            }
+            recent.remove(metaData.getUid());
+        }
+
+        private void flagsUpdated(UpdatedFlags updatedFlags) {
+            if (updatedFlags.isModifiedToSet(Flags.Flag.SEEN)) {
+                unseenCount = Math.max(0, unseenCount - 1);
+                becameSeen(updatedFlags.getUid());
+            }
+            if (updatedFlags.isModifiedToUnset(Flags.Flag.SEEN)) {
+                unseenCount++;
+                becameUnseen(updatedFlags.getUid());
+            }
+            if (updatedFlags.isModifiedToSet(Flags.Flag.RECENT)) {
+                recent.add(updatedFlags.getUid());
+            }
+            if (updatedFlags.isModifiedToUnset(Flags.Flag.RECENT)) {
+                recent.remove(updatedFlags.getUid());
+            }
+            highestModSeq = Math.max(highestModSeq, updatedFlags.getModSeq());
+        }
+
+        private void becameUnseen(MessageUid uid) {
+            if (firstUnseenKnown && firstUnseen.map(first -> uid.compareTo(first) < 0).orElse(true)) {
+                firstUnseen = Optional.of(uid);
+            }
+        }
+
+        private void becameSeen(MessageUid uid) {
+            if (firstUnseen.map(uid::equals).orElse(false)) {
+                firstUnseenKnown = false;
+                firstUnseen = Optional.empty();
+            }
+        }
+
+        private Entry build() {
+            return new Entry(entry.loadedAt,
+                new MailboxStatusCounters(messageCount, unseenCount, recent, highestModSeq),
+                firstUnseenKnown,
+                firstUnseen);
+        }
+    }
+
+    private final Cache<MailboxPath, Entry> cache;
+    private final Duration timeToLive;
+    private final Clock clock;
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    @Inject
+    public ListeningMailboxCountersCache() {
+        this(DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE);
+    }
+
+    public ListeningMailboxCountersCache(long maximumSize, Duration timeToLive) {
+        this(maximumSize, timeToLive, Clock.systemUTC());
+    }
+
+    @VisibleForTesting
+    ListeningMailboxCountersCache(long maximumSize, Duration timeToLive, Clock clock) {
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .build();
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+    }
+
+    @Override
+    public ListenerType getType() {
+        return ListenerType.EACH_NODE;
+    }
+
+    @Override
+    public boolean keepsCounters() {
+        return true;
+    }
+
+    @Override
+    public MailboxStatusCounters getCounters(MailboxPath path, Loader<MailboxStatusCounters> loader) throws MailboxException {
+        Optional<Entry> cached = freshEntry(path);
+        if (cached.isPresent()) {
+            return cached.get().counters;
+        }
+
+        long version = version(path);
+        MailboxStatusCounters counters = loader.load();
+        Entry entry = new Entry(clock.instant(), counters, false, Optional.empty());
+        cache.asMap().compute(path, (key, existing) -> {
+            if (existing != null && !isExpired(existing)) {
+                return existing;
+            }
+            if (version(key) == version) {
+                return entry;
+            }
+            return null;
+        });
+        return counters;
+    }
+
+    @Override
+    public MessageUid getFirstUnseen(MailboxPath path, Loader<MessageUid> loader) throws MailboxException {
+        Optional<Entry> cached = freshEntry(path);
+        if (cached.isPresent() && cached.get().firstUnseenKnown) {
+            return cached.get().firstUnseen.orElse(null);
+        }
+
+        long version = version(path);
+        MessageUid firstUnseen = loader.load();
+        cache.asMap().computeIfPresent(path, (key, existing) -> {
+            if (version(key) == version) {
+                return existing.withFirstUnseen(Optional.ofNullable(firstUnseen));
+            }
+            return existing;
+        });
+        return firstUnseen;
+    }
+
+    @Override
+    public void event(Event event) {
+        if (event instanceof Added) {
+            Added added = (Added) event;
+            update(added.getMailboxPath(), update -> added.getUids()
+                .forEach(uid -> update.added(added.getMetaData(uid))));
+        } else if (event instanceof Expunged) {
+            Expunged expunged = (Expunged) event;
+            update(expunged.getMailboxPath(), update -> expunged.getUids()
+                .forEach(uid -> update.expunged(expunged.getMetaData(uid))));
+        } else if (event instanceof FlagsUpdated) {
+            FlagsUpdated flagsUpdated = (FlagsUpdated) event;
+            update(flagsUpdated.getMailboxPath(), update -> flagsUpdated.getUpdatedFlags()
+                .forEach(update::flagsUpdated));
+        } else if (event instanceof MailboxRenamed) {
+            MailboxRenamed renamed = (MailboxRenamed) event;
+            invalidate(renamed.getMailboxPath());
+            invalidate(renamed.getNewPath());
+        } else if (event instanceof MailboxDeletion || event instanceof MailboxAdded) {
+            invalidate(((MailboxEvent) event).getMailboxPath());
+        }
+    }
+
+    @VisibleForTesting
+    long size() {
+        return cache.size();
+    }
+
+    private void update(MailboxPath path, Consumer<Update> changes) {
+        versions.incrementAndGet(stripe(path));
+        cache.asMap().computeIfPresent(path, (key, entry) -> {
+            Update update = new Update(entry);
+            changes.accept(update);
+            return update.build();
+        });
+    }
+
+    @Override
+    public void invalidate(MailboxPath path) {
+        versions.incrementAndGet(stripe(path));
+        cache.invalidate(path);
+    }
+
+    private Optional<Entry> freshEntry(MailboxPath path) {
+        return Optional.ofNullable(cache.getIfPresent(path))
+            .filter(entry -> !isExpired(entry));
+    }
+
+    private boolean isExpired(Entry entry) {
+        return entry.loadedAt.plus(timeToLive).isBefore(clock.instant());
+    }
+
+    private long version(MailboxPath path) {
+        return versions.get(stripe(path));
+    }
+
+    private int stripe(MailboxPath path) {
+        return Math.floorMod(path.hashCode(), VERSION_STRIPES);
+    }
+}
@@ -0,0 +1,91 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.mailbox.store.counters;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.james.mailbox.MessageUid;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+
+public class MailboxStatusCounters {
+    private final long messageCount;
+    private final long unseenCount;
+    private final List<MessageUid> recent;
+    private final long highestModSeq;
+
+    public MailboxStatusCounters(long messageCount, long unseenCount, Collection<MessageUid> recent, long highestModSeq) {
+        this.messageCount = messageCount;
+        this.unseenCount = unseenCount;
+        this.recent = ImmutableList.sortedCopyOf(Ordering.natural(), recent);
+        this.highestModSeq = highestModSeq;
+    }
+
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    public long getUnseenCount() {
+        return unseenCount;
+    }
+
+    /**
+     * @return the uids of the recent messages, sorted
+     */
+    public List<MessageUid> getRecent() {
+        return recent;
+    }
+
+    public long getHighestModSeq() {
+        return highestModSeq;
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        if (o instanceof MailboxStatusCounters) {
+            MailboxStatusCounters that = (MailboxStatusCounters) o;
+
+            return Objects.equals(this.messageCount, that.messageCount)
+                && Objects.equals(this.unseenCount, that.unseenCount)
+                && Objects.equals(this.recent, that.recent)
+                && Objects.equals(this.highestModSeq, that.highestModSeq);
+        }
+        return false;
+    }
+
+    @Override
+    public final int hashCode() {
+        return Objects.hash(messageCount, unseenCount, recent, highestModSeq);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("messageCount", messageCount)
+            .add("unseenCount", unseenCount)
+            .add("recent", recent)
+            .add("highestModSeq", highestModSeq)
+            .toString();
+    }
+}
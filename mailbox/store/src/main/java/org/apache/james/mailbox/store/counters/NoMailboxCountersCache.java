@@ -0,0 +1,47 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.mailbox.store.counters;
+
+import org.apache.james.mailbox.MessageUid;
+import org.apache.james.mailbox.exception.MailboxException;
+import org.apache.james.mailbox.model.MailboxPath;
+
+public class NoMailboxCountersCache implements MailboxCountersCache {
+
+    @Override
+    public boolean keepsCounters() {
+        return false;
+    }
+
+    @Override
+    public MailboxStatusCounters getCounters(MailboxPath path, Loader<MailboxStatusCounters> loader) throws MailboxException {
+        return loader.load();
+    }
+
+    @Override
+    public MessageUid getFirstUnseen(MailboxPath path, Loader<MessageUid> loader) throws MailboxException {
+        return loader.load();
+    }
+
+    @Override
+    public void invalidate(MailboxPath path) {
+
+    }
+}
@@ -26,12 +26,25 @@ import org.apache.james.mailbox.MailboxListener;
 
 public class MixedEventDelivery implements EventDelivery {
 
-    private final AsynchronousEventDelivery asynchronousEventDelivery;
+    private final EventDelivery asynchronousEventDelivery;
+    private final Runnable asynchronousEventDeliveryStopper;
     private final SynchronousEventDelivery synchronousEventDelivery;
 
     public MixedEventDelivery(AsynchronousEventDelivery asynchronousEventDelivery,
                               SynchronousEventDelivery synchronousEventDelivery) {
+        this(asynchronousEventDelivery, asynchronousEventDelivery::stop, synchronousEventDelivery);
+    }
+
+    public MixedEventDelivery(PartitionedEventDelivery partitionedEventDelivery,
+                              SynchronousEventDelivery synchronousEventDelivery) {
+        this(partitionedEventDelivery, partitionedEventDelivery::stop, synchronousEventDelivery);
+    }
+
+    private MixedEventDelivery(EventDelivery asynchronousEventDelivery,
+                               Runnable asynchronousEventDeliveryStopper,
+                               SynchronousEventDelivery synchronousEventDelivery) {
         this.asynchronousEventDelivery = asynchronousEventDelivery;
+        this.asynchronousEventDeliveryStopper = asynchronousEventDeliveryStopper;
         this.synchronousEventDelivery = synchronousEventDelivery;
     }
 
@@ -46,7 +59,7 @@ public class MixedEventDelivery implements EventDelivery {
 
     @PreDestroy
     public void stop() {
-        asynchronousEventDelivery.stop();
+        asynchronousEventDeliveryStopper.run();
     }
 
 }
@@ -0,0 +1,259 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.mailbox.store.event;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.james.mailbox.Event;
+import org.apache.james.mailbox.MailboxListener;
+import org.apache.james.metrics.api.GaugeRegistry;
+import org.apache.james.metrics.api.Metric;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.metrics.api.TimeMetric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+/**
+ * Asynchronous {@link EventDelivery} relying on a bounded queue per listener.
+ *
+ * The events of a listener are spread among partitions keyed by mailbox: events related to a given mailbox are
+ * delivered one at a time, in submission order, while events related to distinct mailboxes are delivered in
+ * parallel. Note that a renamed mailbox changes partition: events emitted before and after the rename might
+ * be delivered concurrently.
+ *
+ * Once a listener has <code>queueCapacity</code> undelivered events, the {@link OverflowPolicy} applies.
+ */
+public class PartitionedEventDelivery implements EventDelivery {
+
+    public enum OverflowPolicy {
+        /**
+         * The caller waits for the listener to catch up.
+         */
+        BLOCK,
+        /**
+         * The event is discarded and an error is logged.
+         */
+        DROP;
+
+        public static OverflowPolicy parse(String value) {
+            Preconditions.checkNotNull(value);
+            for (OverflowPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(value)) {
+                    return policy;
+                }
+            }
+            throw new IllegalArgumentException("Unknown overflow policy " + value);
+        }
+    }
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    private static final int MAX_EVENTS_PER_DRAIN = 100;
+    private static final Logger LOGGER = LoggerFactory.getLogger(PartitionedEventDelivery.class);
+
+    private class Partition implements Runnable {
+        private final ListenerQueue listenerQueue;
+        private final Queue<PendingEvent> events;
+        private final AtomicBoolean scheduled;
+
+        Partition(ListenerQueue listenerQueue) {
+            this.listenerQueue = listenerQueue;
+            this.events = new ConcurrentLinkedQueue<>();
+            this.scheduled = new AtomicBoolean(false);
+        }
+
+        void submit(PendingEvent pendingEvent) {
+            events.add(pendingEvent);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < MAX_EVENTS_PER_DRAIN; i++) {
+                PendingEvent pendingEvent = events.poll();
+                if (pendingEvent == null) {
+                    break;
+                }
+                try {
+                    synchronousEventDelivery.deliver(listenerQueue.listener, pendingEvent.event);
+                } finally {
+                    pendingEvent.latency.stopAndPublish();
+                    listenerQueue.release();
+                }
+            }
+            scheduled.set(false);
+            if (!events.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    private static class PendingEvent {
+        private final Event event;
+        private final TimeMetric latency;
+
+        PendingEvent(Event event, TimeMetric latency) {
+            this.event = event;
+            this.latency = latency;
+        }
+    }
+
+    private class ListenerQueue {
+        private final MailboxListener listener;
+        private final String listenerType;
+        private final Partition[] partitions;
+        private final Semaphore capacity;
+        private final AtomicInteger depth;
+
+        ListenerQueue(MailboxListener listener) {
+            this.listener = listener;
+            this.listenerType = listener.getClass().getSimpleName();
+            this.partitions = new Partition[partitionCount];
+            for (int i = 0; i < partitionCount; i++) {
+                partitions[i] = new Partition(this);
+            }
+            this.capacity = new Semaphore(queueCapacity);
+            this.depth = depthOf(listenerType);
+        }
+
+        void submit(Event event) {
+            if (!reserve(event)) {
+                return;
+            }
+            depth.incrementAndGet();
+            TimeMetric latency = metricFactory.timer("mailbox-listener-delivery-" + listenerType);
+            partitions[partitionOf(event)].submit(new PendingEvent(event, latency));
+        }
+
+        private boolean reserve(Event event) {
+            if (overflowPolicy == OverflowPolicy.DROP) {
+                if (capacity.tryAcquire()) {
+                    return true;
+                }
+                droppedEvents.increment();
+                LOGGER.error("Dropping {} for listener {}: {} events are already pending",
+                    event.getClass().getCanonicalName(), listener.getClass().getCanonicalName(), queueCapacity);
+                return false;
+            }
+            try {
+                capacity.acquire();
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.error("Interrupted while delivering {} to listener {}",
+                    event.getClass().getCanonicalName(), listener.getClass().getCanonicalName());
+                return false;
+            }
+        }
+
+        void release() {
+            depth.decrementAndGet();
+            capacity.release();
+        }
+    }
+
+    private final int partitionCount;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final SynchronousEventDelivery synchronousEventDelivery;
+    private final MetricFactory metricFactory;
+    private final GaugeRegistry gaugeRegistry;
+    private final Metric droppedEvents;
+    private final ExecutorService executor;
+    private final Map<MailboxListener, ListenerQueue> listenerQueues;
+    private final Map<String, AtomicInteger> depthByListenerType;
+
+    public PartitionedEventDelivery(int threadCount, int queueCapacity, OverflowPolicy overflowPolicy,
+                                    SynchronousEventDelivery synchronousEventDelivery,
+                                    MetricFactory metricFactory, GaugeRegistry gaugeRegistry) {
+        Preconditions.checkArgument(threadCount > 0, "threadCount should be strictly positive");
+        Preconditions.checkArgument(queueCapacity > 0, "queueCapacity should be strictly positive");
+        this.partitionCount = threadCount;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.synchronousEventDelivery = synchronousEventDelivery;
+        this.metricFactory = metricFactory;
+        this.gaugeRegistry = gaugeRegistry;
+        this.droppedEvents = metricFactory.generate("mailbox-listener-dropped-events");
+        this.executor = Executors.newFixedThreadPool(threadCount);
+        this.listenerQueues = new ConcurrentHashMap<>();
+        this.depthByListenerType = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void deliver(MailboxListener mailboxListener, Event event) {
+        listenerQueues.computeIfAbsent(mailboxListener, ListenerQueue::new)
+            .submit(event);
+    }
+
+    @VisibleForTesting
+    int getQueueDepth(MailboxListener mailboxListener) {
+        return Optional.ofNullable(listenerQueues.get(mailboxListener))
+            .map(listenerQueue -> queueCapacity - listenerQueue.capacity.availablePermits())
+            .orElse(0);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private AtomicInteger depthOf(String listenerType) {
+        return depthByListenerType.computeIfAbsent(listenerType, type -> {
+            AtomicInteger depth = new AtomicInteger();
+            gaugeRegistry.register("mailbox-listener-queue-depth-" + type, depth::get);
+            return depth;
+        });
+    }
+
+    private int partitionOf(Event event) {
+        return Math.floorMod(partitionHash(event), partitionCount);
+    }
+
+    private int partitionHash(Event event) {
+        if (event instanceof MailboxListener.MailboxEvent) {
+            return Objects.hashCode(((MailboxListener.MailboxEvent) event).getMailboxPath());
+        }
+        if (event instanceof MailboxListener.QuotaEvent) {
+            return Objects.hashCode(((MailboxListener.QuotaEvent) event).getQuotaRoot());
+        }
+        return 0;
+    }
+}
@@ -19,36 +19,36 @@
 
 package org.apache.james.mailbox.store.mail.model.impl;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
-import java.util.stream.Stream;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.james.mailbox.model.Attachment;
 import org.apache.james.mailbox.model.Cid;
 import org.apache.james.mailbox.model.MessageAttachment;
 import org.apache.james.mime4j.MimeException;
 import org.apache.james.mime4j.codec.DecodeMonitor;
-import org.apache.james.mime4j.dom.Body;
-import org.apache.james.mime4j.dom.Entity;
-import org.apache.james.mime4j.dom.Message;
-import org.apache.james.mime4j.dom.Multipart;
 import org.apache.james.mime4j.dom.field.ContentDispositionField;
 import org.apache.james.mime4j.dom.field.ContentIdField;
 import org.apache.james.mime4j.dom.field.ContentTypeField;
 import org.apache.james.mime4j.dom.field.ParsedField;
-import org.apache.james.mime4j.message.DefaultMessageBuilder;
-import org.apache.james.mime4j.message.DefaultMessageWriter;
+import org.apache.james.mime4j.field.LenientFieldParser;
+import org.apache.james.mime4j.message.DefaultBodyDescriptorBuilder;
+import org.apache.james.mime4j.stream.EntityState;
 import org.apache.james.mime4j.stream.Field;
 import org.apache.james.mime4j.stream.MimeConfig;
+import org.apache.james.mime4j.stream.MimeTokenStream;
+import org.apache.james.mime4j.stream.RecursionMode;
 import org.apache.james.mime4j.util.MimeUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.github.steveash.guavate.Guavate;
 import com.google.common.collect.ImmutableList;
 
 public class MessageParser {
@@ -77,61 +77,134 @@ public class MessageParser {
     }
 
     public List<MessageAttachment> retrieveAttachments(InputStream fullContent) throws MimeException, IOException {
-        DefaultMessageBuilder defaultMessageBuilder = new DefaultMessageBuilder();
-        defaultMessageBuilder.setMimeEntityConfig(MimeConfig.PERMISSIVE);
-        defaultMessageBuilder.setDecodeMonitor(DecodeMonitor.SILENT);
-        Message message = defaultMessageBuilder.parseMessage(fullContent);
-        Body body = message.getBody();
-        try {
-            if (isAttachment(message, Context.BODY)) {
-                return ImmutableList.of(retrieveAttachment(message));
+        MimeTokenStream parser = new MimeTokenStream(MimeConfig.PERMISSIVE, DecodeMonitor.SILENT, new DefaultBodyDescriptorBuilder());
+        parser.setRecursionMode(RecursionMode.M_NO_RECURSE);
+        parser.parse(fullContent);
+
+        List<Field> fields = new ArrayList<>();
+        EntityState state = parser.next();
+        while (state != EntityState.T_END_HEADER && state != EntityState.T_END_OF_STREAM) {
+            if (state == EntityState.T_FIELD) {
+                fields.add(parser.getField());
             }
+            state = parser.next();
+        }
+        if (state == EntityState.T_END_OF_STREAM) {
+            return ImmutableList.of();
+        }
+        if (isAttachment(new PartHeader(fields), Context.BODY)) {
+            // The message is an attachment as a whole, even if it is a multipart
+            parser.setRecursionMode(RecursionMode.M_FLAT);
+        }
+        parser.next();
+        return retrieveAttachments(parser, fields)
+            .orElseThrow(() -> new IllegalStateException("A message being an attachment should be read as a single body"));
+    }
 
-            if (body instanceof Multipart) {
-                Multipart multipartBody = (Multipart) body;
-                return listAttachments(multipartBody, Context.fromSubType(multipartBody.getSubType()))
-                    .collect(Guavate.toImmutableList());
-            } else {
-                return ImmutableList.of();
-            }
-        } finally {
-            body.dispose();
+    /**
+     * Retrieves the attachments of a message from the parser reading it, which allows callers having parsed the message
+     * header for their own needs to extract attachments within the same parsing.
+     *
+     * The parser should not recurse into embedded messages, and should be positioned on the body of the message, being
+     * either {@link EntityState#T_BODY} or {@link EntityState#T_START_MULTIPART}. The body is consumed.
+     *
+     * A multipart message being an attachment as a whole can not be read part per part: an empty result is then
+     * returned, without consuming the body, and {@link #retrieveAttachments(InputStream)} should be used instead.
+     */
+    public Optional<List<MessageAttachment>> retrieveAttachments(MimeTokenStream parser, List<Field> messageFields) throws MimeException, IOException {
+        PartHeader message = new PartHeader(messageFields);
+        switch (parser.getState()) {
+            case T_BODY:
+                if (isAttachment(message, Context.BODY)) {
+                    return Optional.of(ImmutableList.of(retrieveAttachment(message, parser.getDecodedInputStream())));
+                }
+                return Optional.of(ImmutableList.of());
+            case T_START_MULTIPART:
+                if (isAttachment(message, Context.BODY)) {
+                    return Optional.empty();
+                }
+                return Optional.of(listAttachments(parser, Context.fromSubType(parser.getBodyDescriptor().getSubType())));
+            default:
+                return Optional.of(ImmutableList.of());
         }
     }
 
-    private Stream<MessageAttachment> listAttachments(Multipart multipart, Context context) {
-        return multipart.getBodyParts()
-            .stream()
-            .flatMap(entity -> listAttachments(entity, context));
+    /**
+     * Tells if a message declaring the given top level Content-Type could hold attachments.
+     *
+     * A single text part is never reported as an attachment by {@link #retrieveAttachments(InputStream)}, which
+     * allows callers having already parsed the headers to skip a full parsing of the message.
+     */
+    public boolean mayHaveAttachments(Optional<String> declaredMimeType) {
+        return !declaredMimeType
+            .map(mimeType -> mimeType.toLowerCase(Locale.US))
+            .filter(mimeType -> !ATTACHMENT_CONTENT_TYPES.contains(mimeType))
+            .map(mimeType -> mimeType.startsWith(TEXT_MEDIA_TYPE + "/"))
+            .orElse(false);
     }
 
-    private Stream<MessageAttachment> listAttachments(Entity entity, Context context) {
-        if (isMultipart(entity)) {
-            return listAttachments((Multipart) entity.getBody(), Context.fromEntity(entity));
-        }
-        if (isAttachment(entity, context)) {
-            try {
-                return Stream.of(retrieveAttachment(entity));
-            } catch (IllegalStateException e) {
-                LOGGER.warn("The attachment is not well-formed", e);
-            } catch (IOException e) {
-                LOGGER.warn("There is an error when retrieving attachment", e);
+    /**
+     * Reads the parts of the multipart the parser is positioned on, until its end
+     */
+    private List<MessageAttachment> listAttachments(MimeTokenStream parser, Context context) throws MimeException, IOException {
+        ImmutableList.Builder<MessageAttachment> attachments = ImmutableList.builder();
+        Deque<Context> contexts = new ArrayDeque<>();
+        contexts.push(context);
+        List<Field> fields = new ArrayList<>();
+        EntityState state = parser.next();
+        while (state != EntityState.T_END_OF_STREAM && !contexts.isEmpty()) {
+            switch (state) {
+                case T_START_HEADER:
+                    fields = new ArrayList<>();
+                    break;
+                case T_FIELD:
+                    fields.add(parser.getField());
+                    break;
+                case T_START_MULTIPART:
+                    contexts.push(Context.fromSubType(parser.getBodyDescriptor().getSubType()));
+                    break;
+                case T_END_MULTIPART:
+                    contexts.pop();
+                    break;
+                case T_BODY:
+                    retrieveAttachment(new PartHeader(fields), contexts.peek(), parser)
+                        .ifPresent(attachments::add);
+                    break;
+                default:
+                    break;
+            }
+            if (!contexts.isEmpty()) {
+                state = parser.next();
             }
         }
-        return Stream.empty();
+        return attachments.build();
     }
 
-    private MessageAttachment retrieveAttachment(Entity entity) throws IOException {
-        Optional<ContentTypeField> contentTypeField = getContentTypeField(entity);
-        Optional<ContentDispositionField> contentDispositionField = getContentDispositionField(entity);
+    private Optional<MessageAttachment> retrieveAttachment(PartHeader part, Context context, MimeTokenStream parser) {
+        if (!isAttachment(part, context)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(retrieveAttachment(part, parser.getDecodedInputStream()));
+        } catch (IllegalStateException e) {
+            LOGGER.warn("The attachment is not well-formed", e);
+        } catch (IOException e) {
+            LOGGER.warn("There is an error when retrieving attachment", e);
+        }
+        return Optional.empty();
+    }
+
+    private MessageAttachment retrieveAttachment(PartHeader part, InputStream decodedBody) throws IOException {
+        Optional<ContentTypeField> contentTypeField = part.getField(CONTENT_TYPE, ContentTypeField.class);
+        Optional<ContentDispositionField> contentDispositionField = part.getField(CONTENT_DISPOSITION, ContentDispositionField.class);
         Optional<String> contentType = contentType(contentTypeField);
         Optional<String> name = name(contentTypeField, contentDispositionField);
-        Optional<Cid> cid = cid(readHeader(entity, CONTENT_ID, ContentIdField.class));
-        boolean isInline = isInline(readHeader(entity, CONTENT_DISPOSITION, ContentDispositionField.class)) && cid.isPresent();
+        Optional<Cid> cid = cid(part.getField(CONTENT_ID, ContentIdField.class));
+        boolean isInline = isInline(contentDispositionField) && cid.isPresent();
 
         return MessageAttachment.builder()
                 .attachment(Attachment.builder()
-                    .bytes(getBytes(entity.getBody()))
+                    .bytes(IOUtils.toByteArray(decodedBody))
                     .type(contentType.orElse(DEFAULT_CONTENT_TYPE))
                     .build())
                 .name(name.orElse(null))
@@ -140,26 +213,6 @@ public class MessageParser {
                 .build();
     }
 
-    private <T extends ParsedField> Optional<T> readHeader(Entity entity, String headerName, Class<T> clazz) {
-        return castField(entity.getHeader().getField(headerName), clazz);
-    }
-
-    private Optional<ContentTypeField> getContentTypeField(Entity entity) {
-        return castField(entity.getHeader().getField(CONTENT_TYPE), ContentTypeField.class);
-    }
-
-    private Optional<ContentDispositionField> getContentDispositionField(Entity entity) {
-        return castField(entity.getHeader().getField(CONTENT_DISPOSITION), ContentDispositionField.class);
-    }
-
-    @SuppressWarnings("unchecked")
-    private <U extends ParsedField> Optional<U> castField(Field field, Class<U> clazz) {
-        if (field == null || !clazz.isInstance(field)) {
-            return Optional.empty();
-        }
-        return Optional.of((U) field);
-    }
-
     private Optional<String> contentType(Optional<ContentTypeField> contentTypeField) {
         return contentTypeField.map(ContentTypeField::getMimeType);
     }
@@ -177,55 +230,72 @@ public class MessageParser {
             .flatMap(cidParser::parse);
     }
 
-    private boolean isMultipart(Entity entity) {
-        return entity.isMultipart() && entity.getBody() instanceof Multipart;
-    }
-
     private boolean isInline(Optional<ContentDispositionField> contentDispositionField) {
         return contentDispositionField.map(ContentDispositionField::isInline)
             .orElse(false);
     }
 
-    private boolean isAttachment(Entity part, Context context) {
+    private boolean isAttachment(PartHeader part, Context context) {
         if (context == Context.BODY && isTextPart(part)) {
             return false;
         }
         return attachmentDispositionCriterion(part) || attachmentContentTypeCriterion(part) || hadCID(part);
     }
 
-    private boolean isTextPart(Entity part) {
-        return getContentTypeField(part)
+    private boolean isTextPart(PartHeader part) {
+        return part.getField(CONTENT_TYPE, ContentTypeField.class)
             .filter(header -> !ATTACHMENT_CONTENT_TYPES.contains(header.getMimeType()))
             .map(ContentTypeField::getMediaType)
             .map(TEXT_MEDIA_TYPE::equals)
             .orElse(false);
     }
 
-    private boolean attachmentContentTypeCriterion(Entity part) {
-        return getContentTypeField(part)
+    private boolean attachmentContentTypeCriterion(PartHeader part) {
+        return part.getField(CONTENT_TYPE, ContentTypeField.class)
             .map(ContentTypeField::getMimeType)
             .map(dispositionType -> dispositionType.toLowerCase(Locale.US))
             .map(ATTACHMENT_CONTENT_TYPES::contains)
             .orElse(false);
     }
 
-    private boolean attachmentDispositionCriterion(Entity part) {
-        return getContentDispositionField(part)
+    private boolean attachmentDispositionCriterion(PartHeader part) {
+        return part.getField(CONTENT_DISPOSITION, ContentDispositionField.class)
             .map(ContentDispositionField::getDispositionType)
             .map(dispositionType -> dispositionType.toLowerCase(Locale.US))
             .map(ATTACHMENT_CONTENT_DISPOSITIONS::contains)
             .orElse(false);
     }
 
-    private boolean hadCID(Entity part) {
-        return readHeader(part, CONTENT_ID, ContentIdField.class).isPresent();
+    private boolean hadCID(PartHeader part) {
+        return part.getField(CONTENT_ID, ContentIdField.class).isPresent();
     }
 
-    private byte[] getBytes(Body body) throws IOException {
-        DefaultMessageWriter messageWriter = new DefaultMessageWriter();
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        messageWriter.writeBody(body, out);
-        return out.toByteArray();
+    /**
+     * Header fields of a part, parsed leniently on demand
+     */
+    private static class PartHeader {
+        private final List<Field> fields;
+
+        private PartHeader(List<Field> fields) {
+            this.fields = fields;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <U extends ParsedField> Optional<U> getField(String name, Class<U> clazz) {
+            return fields.stream()
+                .filter(field -> field.getName().equalsIgnoreCase(name))
+                .findFirst()
+                .map(PartHeader::parse)
+                .filter(clazz::isInstance)
+                .map(field -> (U) field);
+        }
+
+        private static ParsedField parse(Field field) {
+            if (field instanceof ParsedField) {
+                return (ParsedField) field;
+            }
+            return LenientFieldParser.getParser().parse(field, DecodeMonitor.SILENT);
+        }
     }
 
     private enum Context {
@@ -233,14 +303,6 @@ public class MessageParser {
         OTHER;
 
         private static final String ALTERNATIVE_SUB_TYPE = "alternative";
-        private static final String MULTIPART_ALTERNATIVE = "multipart/" + ALTERNATIVE_SUB_TYPE;
-
-        public static Context fromEntity(Entity entity) {
-            if (isMultipartAlternative(entity)) {
-                return BODY;
-            }
-            return OTHER;
-        }
 
         public static Context fromSubType(String subPart) {
             if (isAlternative(subPart)) {
@@ -249,12 +311,8 @@ public class MessageParser {
             return OTHER;
         }
 
-        private static boolean isMultipartAlternative(Entity entity) {
-            return entity.getMimeType().equalsIgnoreCase(MULTIPART_ALTERNATIVE);
-        }
-
         private static boolean isAlternative(String subPart) {
-            return subPart.equalsIgnoreCase(ALTERNATIVE_SUB_TYPE);
+            return ALTERNATIVE_SUB_TYPE.equalsIgnoreCase(subPart);
         }
 
     }
@@ -20,6 +20,7 @@
 package org.apache.james.mailbox.store.mail.model.impl;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
@@ -177,8 +178,8 @@ public class SimpleMailboxMessage extends DelegatingMailboxMessage {
     }
 
     private static SharedByteArrayInputStream copyFullContent(MailboxMessage original) throws MailboxException {
-        try {
-            return new SharedByteArrayInputStream(IOUtils.toByteArray(original.getFullContent()));
+        try (InputStream fullContent = original.getFullContent()) {
+            return new SharedByteArrayInputStream(IOUtils.toByteArray(fullContent));
         } catch (IOException e) {
             throw new MailboxException("Unable to parse message", e);
         }
@@ -26,15 +26,19 @@ import java.io.InputStream;
 import java.io.SequenceInputStream;
 import java.io.StringReader;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.TimeZone;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import javax.mail.Flags;
@@ -53,7 +57,8 @@ import org.apache.james.mailbox.model.SearchQuery.UidRange;
 import org.apache.james.mailbox.store.ResultUtils;
 import org.apache.james.mailbox.store.mail.model.MailboxMessage;
 import org.apache.james.mailbox.store.mail.model.impl.PropertyBuilder;
-import org.apache.james.mailbox.store.search.comparator.CombinedComparator;
+import org.apache.james.mailbox.store.search.comparator.SortKeyExtractor;
+import org.apache.james.mailbox.store.search.comparator.SortKeyExtractor.SortKeys;
 import org.apache.james.mime4j.MimeException;
 import org.apache.james.mime4j.MimeIOException;
 import org.apache.james.mime4j.dom.Message;
@@ -78,6 +83,7 @@ import org.apache.james.util.OptionalUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.steveash.guavate.Guavate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
@@ -100,25 +106,58 @@ public class MessageSearches implements Iterable<SimpleMessageSearchIndex.Search
 
     @Override
     public Iterator<SimpleMessageSearchIndex.SearchResult> iterator() {
-        ImmutableList.Builder<MailboxMessage> builder = ImmutableList.builder();
+        SortKeyExtractor sortKeyExtractor = SortKeyExtractor.create(query.getSorts());
+        List<SortKeys<SimpleMessageSearchIndex.SearchResult>> matchingMessages = new ArrayList<>();
+        forEachMatchingMessage(sortKeyExtractor, matchingMessages::add);
+        matchingMessages.sort(sortKeyExtractor.comparator());
+        return matchingMessages.stream()
+            .map(SortKeys::getValue)
+            .iterator();
+    }
+
+    /**
+     * Returns the first matching messages in the requested order. Only up to {@code limit} of them are retained while
+     * searching, so that the whole set of matching messages does not need to be sorted.
+     */
+    public List<SimpleMessageSearchIndex.SearchResult> first(int limit) {
+        if (limit <= 0) {
+            return ImmutableList.of();
+        }
+        SortKeyExtractor sortKeyExtractor = SortKeyExtractor.create(query.getSorts());
+        Comparator<SortKeys<SimpleMessageSearchIndex.SearchResult>> comparator = sortKeyExtractor.comparator();
+        PriorityQueue<SortKeys<SimpleMessageSearchIndex.SearchResult>> lastRetained = new PriorityQueue<>(comparator.reversed());
+        forEachMatchingMessage(sortKeyExtractor, sortKeys -> {
+            if (lastRetained.size() < limit) {
+                lastRetained.add(sortKeys);
+            } else if (comparator.compare(sortKeys, lastRetained.peek()) < 0) {
+                lastRetained.poll();
+                lastRetained.add(sortKeys);
+            }
+        });
+        return lastRetained.stream()
+            .sorted(comparator)
+            .map(SortKeys::getValue)
+            .collect(Guavate.toImmutableList());
+    }
+
+    private void forEachMatchingMessage(SortKeyExtractor sortKeyExtractor, Consumer<SortKeys<SimpleMessageSearchIndex.SearchResult>> consumer) {
         while (messages.hasNext()) {
             MailboxMessage m = messages.next();
             try {
                 if (isMatch(m)) {
-                    builder.add(m);
+                    consumer.accept(sortKeyExtractor.extract(m, toSearchResult(m)));
                 }
             } catch (MailboxException e) {
                 LOGGER.error("Unable to search message {}", m.getUid(), e);
             }
         }
-        return builder.build()
-            .stream()
-            .sorted(CombinedComparator.create(query.getSorts()))
-            .map(mailboxMessage -> new SimpleMessageSearchIndex.SearchResult(
-                Optional.of(mailboxMessage.getMessageId()),
-                mailboxMessage.getMailboxId(),
-                mailboxMessage.getUid()))
-            .iterator();
+    }
+
+    private SimpleMessageSearchIndex.SearchResult toSearchResult(MailboxMessage mailboxMessage) {
+        return new SimpleMessageSearchIndex.SearchResult(
+            Optional.of(mailboxMessage.getMessageId()),
+            mailboxMessage.getMailboxId(),
+            mailboxMessage.getUid());
     }
 
     /**
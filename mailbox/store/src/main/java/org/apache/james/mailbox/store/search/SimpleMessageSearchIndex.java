@@ -38,8 +38,12 @@ import org.apache.james.mailbox.model.MailboxId;
 import org.apache.james.mailbox.model.MessageId;
 import org.apache.james.mailbox.model.MessageRange;
 import org.apache.james.mailbox.model.SearchQuery;
+import org.apache.james.mailbox.model.SearchQuery.AttachmentCriterion;
 import org.apache.james.mailbox.model.SearchQuery.ConjunctionCriterion;
 import org.apache.james.mailbox.model.SearchQuery.Criterion;
+import org.apache.james.mailbox.model.SearchQuery.HeaderCriterion;
+import org.apache.james.mailbox.model.SearchQuery.MimeMessageIDCriterion;
+import org.apache.james.mailbox.model.SearchQuery.TextCriterion;
 import org.apache.james.mailbox.model.SearchQuery.UidCriterion;
 import org.apache.james.mailbox.model.SearchQuery.UidRange;
 import org.apache.james.mailbox.store.mail.MailboxMapper;
@@ -49,11 +53,13 @@ import org.apache.james.mailbox.store.mail.MessageMapper.FetchType;
 import org.apache.james.mailbox.store.mail.MessageMapperFactory;
 import org.apache.james.mailbox.store.mail.model.Mailbox;
 import org.apache.james.mailbox.store.mail.model.MailboxMessage;
+import org.apache.james.mailbox.store.search.comparator.SortKeyExtractor;
 
 import com.github.fge.lambdas.Throwing;
 import com.github.steveash.guavate.Guavate;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
 
 /**
  * {@link MessageSearchIndex} which just fetch {@link MailboxMessage}'s from the {@link MessageMapper} and use {@link MessageSearcher}
@@ -114,30 +120,64 @@ public class SimpleMessageSearchIndex implements MessageSearchIndex {
     }
 
     private List<SearchResult> searchResults(MailboxSession session, Mailbox mailbox, SearchQuery query) throws MailboxException {
-        MessageMapper mapper = messageMapperFactory.getMessageMapper(session);
+        return ImmutableList.copyOf(messageSearches(session, mailbox, query));
+    }
 
-        final SortedSet<MailboxMessage> hitSet = new TreeSet<>();
+    private MessageSearches messageSearches(MailboxSession session, Mailbox mailbox, SearchQuery query) throws MailboxException {
+        MessageMapper mapper = messageMapperFactory.getMessageMapper(session);
+        FetchType fetchType = requiredFetchType(query);
 
         UidCriterion uidCrit = findConjugatedUidCriterion(query.getCriterias());
         if (uidCrit != null) {
+            final SortedSet<MailboxMessage> hitSet = new TreeSet<>();
             // if there is a conjugated uid range criterion in the query tree we can optimize by
             // only fetching this uid range
             UidRange[] ranges = uidCrit.getOperator().getRange();
             for (UidRange r : ranges) {
-                Iterator<MailboxMessage> it = mapper.findInMailbox(mailbox, MessageRange.range(r.getLowValue(), r.getHighValue()), FetchType.Metadata, -1);
+                Iterator<MailboxMessage> it = mapper.findInMailbox(mailbox, MessageRange.range(r.getLowValue(), r.getHighValue()), fetchType, -1);
                 while (it.hasNext()) {
                     hitSet.add(it.next());
                 }
             }
-        } else {
-            // we have to fetch all messages
-            Iterator<MailboxMessage> messages = mapper.findInMailbox(mailbox, MessageRange.all(), FetchType.Full, -1);
-            while (messages.hasNext()) {
-                MailboxMessage m = messages.next();
-                hitSet.add(m);
-            }
+            return new MessageSearches(hitSet.iterator(), query, textExtractor);
         }
-        return ImmutableList.copyOf(new MessageSearches(hitSet.iterator(), query, textExtractor).iterator());
+        // we have to fetch all messages, they are searched while being read so that only the matching ones are retained
+        Iterator<MailboxMessage> messages = mapper.findInMailbox(mailbox, MessageRange.all(), fetchType, -1);
+        return new MessageSearches(messages, query, textExtractor);
+    }
+
+    /**
+     * Only the message content needed by the query is fetched: headers are enough unless some criterion searches text
+     */
+    private static FetchType requiredFetchType(SearchQuery query) {
+        if (query.getCriterias().stream().anyMatch(SimpleMessageSearchIndex::needsFullContent)) {
+            return FetchType.Full;
+        }
+        if (query.getCriterias().stream().anyMatch(SimpleMessageSearchIndex::needsHeaders)
+            || query.getSorts().stream().anyMatch(SortKeyExtractor::needsHeaders)) {
+            return FetchType.Headers;
+        }
+        return FetchType.Metadata;
+    }
+
+    private static boolean needsFullContent(Criterion criterion) {
+        if (criterion instanceof ConjunctionCriterion) {
+            return ((ConjunctionCriterion) criterion).getCriteria()
+                .stream()
+                .anyMatch(SimpleMessageSearchIndex::needsFullContent);
+        }
+        return criterion instanceof TextCriterion;
+    }
+
+    private static boolean needsHeaders(Criterion criterion) {
+        if (criterion instanceof ConjunctionCriterion) {
+            return ((ConjunctionCriterion) criterion).getCriteria()
+                .stream()
+                .anyMatch(SimpleMessageSearchIndex::needsHeaders);
+        }
+        return criterion instanceof HeaderCriterion
+            || criterion instanceof MimeMessageIDCriterion
+            || criterion instanceof AttachmentCriterion;
     }
 
     @Override
@@ -148,24 +188,24 @@ public class SimpleMessageSearchIndex implements MessageSearchIndex {
             .stream()
             .map(Throwing.function(mailboxManager::findMailboxById).sneakyThrow());
 
-        return getAsMessageIds(searchResults(session, filteredMailboxes, searchQuery), limit);
+        return getAsMessageIds(searchResults(session, filteredMailboxes, searchQuery, limit), limit);
     }
 
-    private List<SearchResult> searchResults(MailboxSession session, Stream<Mailbox> mailboxes, SearchQuery query) throws MailboxException {
-        return mailboxes.flatMap(mailbox -> getSearchResultStream(session, query, mailbox))
-            .collect(Guavate.toImmutableList());
+    private Stream<SearchResult> searchResults(MailboxSession session, Stream<Mailbox> mailboxes, SearchQuery query, long limit) {
+        int mailboxLimit = Ints.saturatedCast(limit);
+        return mailboxes.flatMap(mailbox -> getSearchResultStream(session, query, mailbox, mailboxLimit));
     }
 
-    private Stream<? extends SearchResult> getSearchResultStream(MailboxSession session, SearchQuery query, Mailbox mailbox) {
+    private Stream<? extends SearchResult> getSearchResultStream(MailboxSession session, SearchQuery query, Mailbox mailbox, int limit) {
         try {
-            return searchResults(session, mailbox, query).stream();
+            return messageSearches(session, mailbox, query).first(limit).stream();
         } catch (MailboxException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private List<MessageId> getAsMessageIds(List<SearchResult> temp, long limit) {
-        return temp.stream()
+    private List<MessageId> getAsMessageIds(Stream<SearchResult> temp, long limit) {
+        return temp
             .map(searchResult -> searchResult.getMessageId().get())
             .filter(SearchUtil.distinct())
             .limit(Long.valueOf(limit).intValue())
@@ -37,22 +37,27 @@ public abstract class AbstractHeaderComparator implements Comparator<MailboxMess
     public static final String FROM = "from";
     public static final String TO = "to";
     public static final String CC = "cc";
+    public static final String DATE = "date";
+    public static final String SUBJECT = "subject";
 
     protected String getHeaderValue(String headerName, MailboxMessage message) {
         try {
-            final List<Header> headers = ResultUtils.createHeaders(message);
-            for (Header header : headers) {
-                String name = header.getName();
-                if (headerName.equalsIgnoreCase(name)) {
-                    final String value = header.getValue();
-                    return value.toUpperCase(Locale.US);
-                }
-
-            }
+            return getHeaderValue(headerName, ResultUtils.createHeaders(message));
         } catch (IOException e) {
             LOGGER.warn("Exception encountered, skipping header line", e);
             // skip the header
         }
         return "";
     }
+
+    static String getHeaderValue(String headerName, List<Header> headers) {
+        for (Header header : headers) {
+            String name = header.getName();
+            if (headerName.equalsIgnoreCase(name)) {
+                final String value = header.getValue();
+                return value.toUpperCase(Locale.US);
+            }
+        }
+        return "";
+    }
 }
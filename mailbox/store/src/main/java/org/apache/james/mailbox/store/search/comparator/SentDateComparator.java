@@ -78,8 +78,11 @@ public class SentDateComparator extends AbstractHeaderComparator {
     }
     
     private Instant getSentDate(MailboxMessage message) {
-        final String value = getHeaderValue("Date", message);
-        return toISODate(value)
+        return getSentDate(getHeaderValue(DATE, message), message);
+    }
+
+    static Instant getSentDate(String dateHeaderValue, MailboxMessage message) {
+        return toISODate(dateHeaderValue)
             .map(ZonedDateTime::toInstant)
             .orElse(message.getInternalDate().toInstant());
     }
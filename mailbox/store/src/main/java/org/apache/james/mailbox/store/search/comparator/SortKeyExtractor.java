@@ -0,0 +1,196 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.mailbox.store.search.comparator;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.NotImplementedException;
+import org.apache.james.mailbox.model.MessageResult.Header;
+import org.apache.james.mailbox.model.SearchQuery.Sort;
+import org.apache.james.mailbox.store.ResultUtils;
+import org.apache.james.mailbox.store.mail.model.MailboxMessage;
+import org.apache.james.mailbox.store.search.SearchUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.steveash.guavate.Guavate;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Extracts once per {@link MailboxMessage} the values compared by a list of {@link Sort}, so that sorting many messages
+ * does not parse their headers on every comparison. Headers are only parsed when a sort clause relies on them.
+ *
+ * Extracted {@link SortKeys} remember their extraction order, used to break ties: sorting them is stable. An extractor
+ * is thus meant to be used for a single search, and is not thread safe.
+ */
+public class SortKeyExtractor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SortKeyExtractor.class);
+
+    @SuppressWarnings("unchecked")
+    private static final Comparator<Object> NATURAL_ORDER = (key1, key2) -> ((Comparable<Object>) key1).compareTo(key2);
+    private static final Comparator<Object> CASE_INSENSITIVE_ORDER = (key1, key2) -> ((String) key1).compareToIgnoreCase((String) key2);
+
+    public static class SortKeys<T> {
+        private final Object[] keys;
+        private final long position;
+        private final T value;
+
+        private SortKeys(Object[] keys, long position, T value) {
+            this.keys = keys;
+            this.position = position;
+            this.value = value;
+        }
+
+        public T getValue() {
+            return value;
+        }
+    }
+
+    private static class KeyDefinition {
+        private final boolean needsHeaders;
+        private final BiFunction<MailboxMessage, List<Header>, Object> extractor;
+        private final Comparator<Object> comparator;
+
+        private KeyDefinition(boolean needsHeaders, BiFunction<MailboxMessage, List<Header>, Object> extractor, Comparator<Object> comparator) {
+            this.needsHeaders = needsHeaders;
+            this.extractor = extractor;
+            this.comparator = comparator;
+        }
+
+        private KeyDefinition reverse() {
+            return new KeyDefinition(needsHeaders, extractor, comparator.reversed());
+        }
+    }
+
+    public static SortKeyExtractor create(List<Sort> sorts) {
+        Preconditions.checkNotNull(sorts);
+        Preconditions.checkArgument(!sorts.isEmpty());
+        return new SortKeyExtractor(sorts.stream()
+            .map(SortKeyExtractor::toKeyDefinition)
+            .collect(Guavate.toImmutableList()));
+    }
+
+    public static boolean needsHeaders(Sort sort) {
+        return toKeyDefinition(sort).needsHeaders;
+    }
+
+    private static KeyDefinition toKeyDefinition(Sort sort) {
+        KeyDefinition keyDefinition = toKeyDefinition(sort.getSortClause());
+        if (sort.isReverse()) {
+            return keyDefinition.reverse();
+        }
+        return keyDefinition;
+    }
+
+    private static KeyDefinition toKeyDefinition(Sort.SortClause sortClause) {
+        switch (sortClause) {
+            case Arrival:
+                return metadataKey(MailboxMessage::getInternalDate, NATURAL_ORDER);
+            case MailboxCc:
+                return headerKey(headers -> SearchUtil.getMailboxAddress(headerValue(AbstractHeaderComparator.CC, headers)));
+            case MailboxFrom:
+                return headerKey(headers -> SearchUtil.getMailboxAddress(headerValue(AbstractHeaderComparator.FROM, headers)));
+            case Size:
+                return metadataKey(MailboxMessage::getFullContentOctets, NATURAL_ORDER);
+            case BaseSubject:
+                return headerKey(headers -> SearchUtil.getBaseSubject(headerValue(AbstractHeaderComparator.SUBJECT, headers)));
+            case MailboxTo:
+                return headerKey(headers -> SearchUtil.getMailboxAddress(headerValue(AbstractHeaderComparator.TO, headers)));
+            case Uid:
+                return metadataKey(MailboxMessage::getUid, NATURAL_ORDER);
+            case SentDate:
+                return new KeyDefinition(true,
+                    (message, headers) -> SentDateComparator.getSentDate(headerValue(AbstractHeaderComparator.DATE, headers), message),
+                    NATURAL_ORDER);
+            case DisplayFrom:
+                return headerKey(headers -> SearchUtil.getDisplayAddress(headerValue(AbstractHeaderComparator.FROM, headers)));
+            case DisplayTo:
+                return headerKey(headers -> SearchUtil.getDisplayAddress(headerValue(AbstractHeaderComparator.TO, headers)));
+            case Id:
+                return metadataKey(message -> message.getMessageId().serialize(), CASE_INSENSITIVE_ORDER);
+            default:
+                throw new NotImplementedException("Sort key extractor does not support sort " + sortClause);
+        }
+    }
+
+    private static KeyDefinition metadataKey(Function<MailboxMessage, Object> extractor, Comparator<Object> comparator) {
+        return new KeyDefinition(false, (message, headers) -> extractor.apply(message), comparator);
+    }
+
+    private static KeyDefinition headerKey(Function<List<Header>, String> extractor) {
+        return new KeyDefinition(true, (message, headers) -> extractor.apply(headers), CASE_INSENSITIVE_ORDER);
+    }
+
+    private static String headerValue(String headerName, List<Header> headers) {
+        return AbstractHeaderComparator.getHeaderValue(headerName, headers);
+    }
+
+    private final List<KeyDefinition> keyDefinitions;
+    private final boolean needsHeaders;
+    private long extractedCount;
+
+    private SortKeyExtractor(List<KeyDefinition> keyDefinitions) {
+        this.keyDefinitions = keyDefinitions;
+        this.needsHeaders = keyDefinitions.stream().anyMatch(keyDefinition -> keyDefinition.needsHeaders);
+        this.extractedCount = 0;
+    }
+
+    /**
+     * @param value what the caller needs to keep once sorted, allowing it not to retain the message itself
+     */
+    public <T> SortKeys<T> extract(MailboxMessage message, T value) {
+        List<Header> headers = parseHeaders(message);
+        Object[] keys = new Object[keyDefinitions.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyDefinitions.get(i).extractor.apply(message, headers);
+        }
+        return new SortKeys<>(keys, extractedCount++, value);
+    }
+
+    public <T> Comparator<SortKeys<T>> comparator() {
+        return (sortKeys1, sortKeys2) -> {
+            for (int i = 0; i < keyDefinitions.size(); i++) {
+                int result = keyDefinitions.get(i).comparator.compare(sortKeys1.keys[i], sortKeys2.keys[i]);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return Long.compare(sortKeys1.position, sortKeys2.position);
+        };
+    }
+
+    private List<Header> parseHeaders(MailboxMessage message) {
+        if (!needsHeaders) {
+            return ImmutableList.of();
+        }
+        try {
+            return ResultUtils.createHeaders(message);
+        } catch (IOException e) {
+            LOGGER.warn("Exception encountered, skipping headers", e);
+            return ImmutableList.of();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.mailbox.store.counters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.mail.Flags;
+
+import org.apache.james.mailbox.MailboxSession;
+import org.apache.james.mailbox.MessageUid;
+import org.apache.james.mailbox.model.MailboxPath;
+import org.apache.james.mailbox.model.MessageMetaData;
+import org.apache.james.mailbox.model.UpdatedFlags;
+import org.apache.james.mailbox.store.SimpleMessageMetaData;
+import org.apache.james.mailbox.store.event.EventFactory;
+import org.apache.james.mailbox.store.mail.model.DefaultMessageId;
+import org.apache.james.mailbox.store.mail.model.impl.SimpleMailbox;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+
+public class ListeningMailboxCountersCacheTest {
+    private static final MailboxPath INBOX = MailboxPath.forUser("user", "INBOX");
+    private static final MailboxPath OTHER = MailboxPath.forUser("user", "other");
+    private static final Duration TIME_TO_LIVE = Duration.ofMinutes(1);
+    private static final MessageUid UID_1 = MessageUid.of(1);
+    private static final MessageUid UID_2 = MessageUid.of(2);
+    private static final MessageUid UID_3 = MessageUid.of(3);
+    private static final MailboxStatusCounters INITIAL = new MailboxStatusCounters(2, 1, ImmutableList.of(UID_2), 42);
+
+    private final EventFactory eventFactory = new EventFactory();
+    private final SimpleMailbox mailbox = new SimpleMailbox(INBOX, 1);
+    private MailboxSession session;
+    private MutableClock clock;
+    private AtomicInteger loads;
+    private ListeningMailboxCountersCache testee;
+
+    private static class MutableClock extends Clock {
+        private Instant instant = Instant.parse("2018-01-01T00:00:00Z");
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+        void forward(Duration duration) {
+            instant = instant.plus(duration);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        session = mock(MailboxSession.class);
+        clock = new MutableClock();
+        loads = new AtomicInteger();
+        testee = new ListeningMailboxCountersCache(100, TIME_TO_LIVE, clock);
+    }
+
+    @Test
+    public void getCountersShouldLoadOnlyOnce() throws Exception {
+        testee.getCounters(INBOX, this::load);
+
+        assertThat(testee.getCounters(INBOX, this::load)).isEqualTo(INITIAL);
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void getCountersShouldReloadExpiredEntries() throws Exception {
+        testee.getCounters(INBOX, this::load);
+
+        clock.forward(TIME_TO_LIVE.plusSeconds(1));
+        testee.getCounters(INBOX, this::load);
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void addedEventShouldUpdateCounters() throws Exception {
+        testee.getCounters(INBOX, this::load);
+
+        testee.event(eventFactory.added(session,
+            ImmutableSortedMap.of(UID_3, metaData(UID_3, 50, new Flags(Flags.Flag.RECENT))),
+            mailbox, ImmutableMap.of()));
+
+        assertThat(testee.getCounters(INBOX, this::load))
+            .isEqualTo(new MailboxStatusCounters(3, 2, ImmutableList.of(UID_2, UID_3), 50));
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void expungedEventShouldUpdateCounters() throws Exception {
+        testee.getCounters(INBOX, this::load);
+
+        testee.event(eventFactory.expunged(session,
+            ImmutableMap.of(UID_2, metaData(UID_2, 40, new Flags(Flags.Flag.RECENT))),
+            mailbox));
+
+        assertThat(testee.getCounters(INBOX, this::load))
+            .isEqualTo(new MailboxStatusCounters(1, 0, ImmutableList.of(), 42));
+    }
+
+    @Test
+    public void flagsUpdatedEventShouldUpdateCounters() throws Exception {
+        testee.getCounters(INBOX, this::load);
+
+        testee.event(eventFactory.flagsUpdated(session, ImmutableList.of(UID_1, UID_2), mailbox,
+            ImmutableList.of(
+                UpdatedFlags.builder().uid(UID_1).modSeq(43).oldFlags(new Flags()).newFlags(new Flags(Flags.Flag.SEEN)).build(),
+                UpdatedFlags.builder().uid(UID_2).modSeq(44).oldFlags(new Flags(Flags.Flag.RECENT)).newFlags(new Flags()).build())));
+
+        assertThat(testee.getCounters(INBOX, this::load))
+            .isEqualTo(new MailboxStatusCounters(2, 0, ImmutableList.of(), 44));
+    }
+
+    @Test
+    public void eventsShouldNotCacheUnknownMailboxes() throws Exception {
+        testee.event(eventFactory.added(session,
+            ImmutableSortedMap.of(UID_3, metaData(UID_3, 50, new Flags())),
+            mailbox, ImmutableMap.of()));
+
+        assertThat(testee.size()).isZero();
+    }
+
+    @Test
+    public void getFirstUnseenShouldBeCachedOnceCountersAreKnown() throws Exception {
+        testee.getCounters(INBOX, this::load);
+        testee.getFirstUnseen(INBOX, () -> UID_1);
+
+        assertThat(testee.getFirstUnseen(INBOX, () -> UID_3)).isEqualTo(UID_1);
+    }
+
+    @Test
+    public void getFirstUnseenShouldBeReloadedWhenTheFirstUnseenMessageIsSeen() throws Exception {
+        testee.getCounters(INBOX, this::load);
+        testee.getFirstUnseen(INBOX, () -> UID_1);
+
+        testee.event(eventFactory.flagsUpdated(session, ImmutableList.of(UID_1), mailbox,
+            ImmutableList.of(UpdatedFlags.builder().uid(UID_1).modSeq(43).oldFlags(new Flags()).newFlags(new Flags(Flags.Flag.SEEN)).build())));
+
+        assertThat(testee.getFirstUnseen(INBOX, () -> null)).isNull();
+    }
+
+    @Test
+    public void getFirstUnseenShouldTrackAddedUnseenMessages() throws Exception {
+        testee.getCounters(INBOX, this::load);
+        testee.getFirstUnseen(INBOX, () -> null);
+
+        testee.event(eventFactory.added(session,
+            ImmutableSortedMap.of(UID_3, metaData(UID_3, 50, new Flags())),
+            mailbox, ImmutableMap.of()));
+
+        assertThat(testee.getFirstUnseen(INBOX, () -> UID_1)).isEqualTo(UID_3);
+    }
+
+    @Test
+    public void mailboxDeletionShouldInvalidateCounters() throws Exception {
+        testee.getCounters(INBOX, this::load);
+
+        testee.event(eventFactory.mailboxDeleted(session, mailbox, null, null, null));
+        testee.getCounters(INBOX, this::load);
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void mailboxRenamedShouldInvalidateBothPaths() throws Exception {
+        testee.getCounters(INBOX, this::load);
+        testee.getCounters(OTHER, this::load);
+
+        testee.event(eventFactory.mailboxRenamed(session, INBOX, new SimpleMailbox(OTHER, 1)));
+
+        assertThat(testee.size()).isZero();
+    }
+
+    private MailboxStatusCounters load() {
+        loads.incrementAndGet();
+        return INITIAL;
+    }
+
+    private MessageMetaData metaData(MessageUid uid, long modSeq, Flags flags) {
+        return new SimpleMessageMetaData(uid, modSeq, flags, 12, new Date(), new DefaultMessageId());
+    }
+}
@@ -0,0 +1,204 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.mailbox.store.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.apache.james.mailbox.Event;
+import org.apache.james.mailbox.MailboxListener;
+import org.apache.james.mailbox.mock.MockMailboxSession;
+import org.apache.james.mailbox.model.MailboxPath;
+import org.apache.james.metrics.api.NoopGaugeRegistry;
+import org.apache.james.metrics.api.NoopMetricFactory;
+import org.awaitility.Awaitility;
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.steveash.guavate.Guavate;
+
+public class PartitionedEventDeliveryTest {
+
+    private static final int ONE_MINUTE = (int) TimeUnit.MINUTES.toMillis(1);
+    private static final MailboxPath INBOX = MailboxPath.forUser("user", "INBOX");
+
+    private static class RecordingListener implements MailboxListener {
+        private final List<Event> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch latch;
+
+        RecordingListener(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public ListenerType getType() {
+            return ListenerType.ONCE;
+        }
+
+        @Override
+        public void event(Event event) {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.add(event);
+        }
+    }
+
+    private PartitionedEventDelivery testee;
+
+    @After
+    public void tearDown() {
+        testee.stop();
+    }
+
+    @Test
+    public void deliverShouldWork() throws Exception {
+        testee = partitionedEventDelivery(10, PartitionedEventDelivery.OverflowPolicy.BLOCK);
+        MailboxListener mailboxListener = mock(MailboxListener.class);
+        MailboxListener.MailboxEvent event = event(INBOX);
+
+        testee.deliver(mailboxListener, event);
+
+        verify(mailboxListener, timeout(ONE_MINUTE)).event(event);
+    }
+
+    @Test
+    public void deliverShouldNotPropagateException() throws Exception {
+        testee = partitionedEventDelivery(10, PartitionedEventDelivery.OverflowPolicy.BLOCK);
+        MailboxListener mailboxListener = mock(MailboxListener.class);
+        MailboxListener.MailboxEvent event = event(INBOX);
+        doThrow(new RuntimeException()).when(mailboxListener).event(event);
+
+        testee.deliver(mailboxListener, event);
+        testee.deliver(mailboxListener, event);
+
+        verify(mailboxListener, timeout(ONE_MINUTE).times(2)).event(event);
+    }
+
+    @Test
+    public void deliverShouldPreserveOrderingOfEventsOfAMailbox() {
+        testee = partitionedEventDelivery(1000, PartitionedEventDelivery.OverflowPolicy.BLOCK);
+        RecordingListener listener = new RecordingListener(new CountDownLatch(0));
+        List<Event> events = IntStream.range(0, 500)
+            .mapToObj(i -> event(INBOX))
+            .collect(Guavate.toImmutableList());
+
+        events.forEach(event -> testee.deliver(listener, event));
+
+        Awaitility.await()
+            .atMost(1, TimeUnit.MINUTES)
+            .until(() -> listener.events.size() == events.size());
+        assertThat(listener.events).containsExactlyElementsOf(events);
+    }
+
+    @Test
+    public void deliverShouldDeliverEventsOfOtherMailboxesWhileAMailboxIsBlocked() throws Exception {
+        testee = partitionedEventDelivery(1000, PartitionedEventDelivery.OverflowPolicy.BLOCK);
+        CountDownLatch latch = new CountDownLatch(1);
+        MailboxListener blockingListener = mock(MailboxListener.class);
+        MailboxListener.MailboxEvent blockingEvent = event(INBOX);
+        MailboxListener.MailboxEvent otherEvent = event(otherPartitionThan(INBOX));
+        doAnswerAwaiting(blockingListener, blockingEvent, latch);
+
+        testee.deliver(blockingListener, blockingEvent);
+        testee.deliver(blockingListener, otherEvent);
+
+        verify(blockingListener, timeout(ONE_MINUTE)).event(otherEvent);
+        latch.countDown();
+    }
+
+    @Test
+    public void deliverShouldDropEventsWhenQueueIsFullAndPolicyIsDrop() {
+        testee = partitionedEventDelivery(1, PartitionedEventDelivery.OverflowPolicy.DROP);
+        CountDownLatch latch = new CountDownLatch(1);
+        RecordingListener listener = new RecordingListener(latch);
+        MailboxListener.MailboxEvent firstEvent = event(INBOX);
+
+        testee.deliver(listener, firstEvent);
+        testee.deliver(listener, event(INBOX));
+        latch.countDown();
+
+        Awaitility.await()
+            .atMost(1, TimeUnit.MINUTES)
+            .until(() -> testee.getQueueDepth(listener) == 0);
+        assertThat(listener.events).containsExactly(firstEvent);
+    }
+
+    @Test
+    public void deliverShouldBlockWhenQueueIsFullAndPolicyIsBlock() throws Exception {
+        testee = partitionedEventDelivery(1, PartitionedEventDelivery.OverflowPolicy.BLOCK);
+        CountDownLatch latch = new CountDownLatch(1);
+        RecordingListener listener = new RecordingListener(latch);
+        MailboxListener.MailboxEvent firstEvent = event(INBOX);
+        MailboxListener.MailboxEvent secondEvent = event(INBOX);
+
+        testee.deliver(listener, firstEvent);
+        CompletableFuture<Void> secondDelivery = CompletableFuture.runAsync(() -> testee.deliver(listener, secondEvent));
+
+        Thread.sleep(100);
+        assertThat(secondDelivery).isNotDone();
+
+        latch.countDown();
+        secondDelivery.get(1, TimeUnit.MINUTES);
+        Awaitility.await()
+            .atMost(1, TimeUnit.MINUTES)
+            .until(() -> listener.events.size() == 2);
+        assertThat(listener.events).containsExactly(firstEvent, secondEvent);
+    }
+
+    private PartitionedEventDelivery partitionedEventDelivery(int queueCapacity, PartitionedEventDelivery.OverflowPolicy overflowPolicy) {
+        return new PartitionedEventDelivery(2, queueCapacity, overflowPolicy,
+            new SynchronousEventDelivery(new NoopMetricFactory()),
+            new NoopMetricFactory(),
+            new NoopGaugeRegistry());
+    }
+
+    private MailboxListener.MailboxEvent event(MailboxPath path) {
+        return new MailboxListener.MailboxEvent(new MockMailboxSession("user"), path) {};
+    }
+
+    private MailboxPath otherPartitionThan(MailboxPath path) {
+        return IntStream.range(0, 100)
+            .mapToObj(i -> MailboxPath.forUser("user", "mailbox" + i))
+            .filter(candidate -> Math.floorMod(candidate.hashCode(), 2) != Math.floorMod(path.hashCode(), 2))
+            .findFirst()
+            .get();
+    }
+
+    private void doAnswerAwaiting(MailboxListener listener, Event event, CountDownLatch latch) {
+        doAnswer(invocation -> {
+            latch.await();
+            return null;
+        }).when(listener).event(event);
+    }
+}
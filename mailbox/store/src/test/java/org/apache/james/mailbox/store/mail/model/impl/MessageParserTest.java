@@ -22,6 +22,9 @@ package org.apache.james.mailbox.store.mail.model.impl;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,13 +39,20 @@ import org.apache.james.mdn.fields.ReportingUserAgent;
 import org.apache.james.mdn.sending.mode.DispositionSendingMode;
 import org.apache.james.mdn.type.DispositionType;
 import org.apache.james.mime4j.dom.Message;
+import org.apache.james.mime4j.message.DefaultBodyDescriptorBuilder;
 import org.apache.james.mime4j.message.DefaultMessageWriter;
+import org.apache.james.mime4j.stream.EntityState;
+import org.apache.james.mime4j.stream.Field;
+import org.apache.james.mime4j.stream.MimeConfig;
+import org.apache.james.mime4j.stream.MimeTokenStream;
+import org.apache.james.mime4j.stream.RecursionMode;
 import org.junit.Before;
 import org.junit.Test;
 
 public class MessageParserTest {
 
     private MessageParser testee;
+    private List<Field> fields;
 
     @Before
     public void setup() {
@@ -317,4 +327,101 @@ public class MessageParserTest {
         assertThat(result).hasSize(1)
             .allMatch(attachment -> attachment.getAttachment().getType().equals(MDN.DISPOSITION_CONTENT_TYPE));
     }
+
+    @Test
+    public void retrieveAttachmentsFromParserShouldReturnTheAttachmentsOfAMultipart() throws Exception {
+        MimeTokenStream parser = parserOnBody("eml/signedMessage.eml");
+
+        Optional<List<MessageAttachment>> attachments = testee.retrieveAttachments(parser, fields);
+
+        assertThat(attachments).hasValueSatisfying(list -> assertThat(list)
+            .extracting(MessageAttachment::getName)
+            .extracting(Optional::get)
+            .containsOnly("message suivi", "signature.asc"));
+    }
+
+    @Test
+    public void retrieveAttachmentsFromParserShouldReturnTheBodyWhenSinglePartAttachment() throws Exception {
+        MimeTokenStream parser = parserOnBody("eml/emailWithOnlyAttachment.eml");
+
+        Optional<List<MessageAttachment>> attachments = testee.retrieveAttachments(parser, fields);
+
+        assertThat(attachments).hasValueSatisfying(list -> assertThat(list).hasSize(1));
+    }
+
+    @Test
+    public void retrieveAttachmentsFromParserShouldReturnEmptyWhenMultipartIsAnAttachmentAsAWhole() throws Exception {
+        String message = "Content-Type: multipart/mixed; boundary=\"b\"\r\n"
+            + "Content-Disposition: attachment\r\n"
+            + "\r\n"
+            + "--b\r\n"
+            + "Content-Type: text/plain\r\n"
+            + "\r\n"
+            + "text\r\n"
+            + "--b--\r\n";
+        MimeTokenStream parser = parserOnBody(new ByteArrayInputStream(message.getBytes(StandardCharsets.US_ASCII)));
+
+        assertThat(testee.retrieveAttachments(parser, fields)).isEmpty();
+    }
+
+    @Test
+    public void retrieveAttachmentsShouldReturnTheWholeBodyWhenMultipartIsAnAttachmentAsAWhole() throws Exception {
+        String message = "Content-Type: multipart/mixed; boundary=\"b\"\r\n"
+            + "Content-Disposition: attachment\r\n"
+            + "\r\n"
+            + "--b\r\n"
+            + "Content-Type: text/plain\r\n"
+            + "\r\n"
+            + "text\r\n"
+            + "--b--\r\n";
+
+        List<MessageAttachment> attachments = testee.retrieveAttachments(new ByteArrayInputStream(message.getBytes(StandardCharsets.US_ASCII)));
+
+        assertThat(attachments).hasSize(1);
+        assertThat(attachments.get(0).getAttachment().getType()).isEqualTo("multipart/mixed");
+    }
+
+    @Test
+    public void mayHaveAttachmentsShouldReturnFalseWhenTextPart() {
+        assertThat(testee.mayHaveAttachments(Optional.of("text/plain"))).isFalse();
+    }
+
+    @Test
+    public void mayHaveAttachmentsShouldIgnoreCase() {
+        assertThat(testee.mayHaveAttachments(Optional.of("Text/HTML"))).isFalse();
+    }
+
+    @Test
+    public void mayHaveAttachmentsShouldReturnTrueWhenMultipart() {
+        assertThat(testee.mayHaveAttachments(Optional.of("multipart/mixed"))).isTrue();
+    }
+
+    @Test
+    public void mayHaveAttachmentsShouldReturnTrueWhenTextCalendar() {
+        assertThat(testee.mayHaveAttachments(Optional.of("text/calendar"))).isTrue();
+    }
+
+    @Test
+    public void mayHaveAttachmentsShouldReturnTrueWhenNoContentType() {
+        assertThat(testee.mayHaveAttachments(Optional.empty())).isTrue();
+    }
+
+    private MimeTokenStream parserOnBody(String resource) throws Exception {
+        return parserOnBody(ClassLoader.getSystemResourceAsStream(resource));
+    }
+
+    private MimeTokenStream parserOnBody(InputStream message) throws Exception {
+        MimeTokenStream parser = new MimeTokenStream(MimeConfig.PERMISSIVE, new DefaultBodyDescriptorBuilder());
+        parser.setRecursionMode(RecursionMode.M_NO_RECURSE);
+        parser.parse(message);
+        fields = new ArrayList<>();
+        EntityState state = parser.next();
+        while (state != EntityState.T_BODY && state != EntityState.T_START_MULTIPART) {
+            if (state == EntityState.T_FIELD) {
+                fields.add(parser.getField());
+            }
+            state = parser.next();
+        }
+        return parser;
+    }
 }
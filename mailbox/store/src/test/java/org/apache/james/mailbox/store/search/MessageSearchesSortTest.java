@@ -0,0 +1,123 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.mailbox.store.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.apache.james.mailbox.MessageUid;
+import org.apache.james.mailbox.model.SearchQuery;
+import org.apache.james.mailbox.model.SearchQuery.Sort;
+import org.apache.james.mailbox.model.SearchQuery.Sort.Order;
+import org.apache.james.mailbox.model.SearchQuery.Sort.SortClause;
+import org.apache.james.mailbox.store.MessageBuilder;
+import org.apache.james.mailbox.store.mail.model.MailboxMessage;
+import org.junit.Test;
+
+import com.github.steveash.guavate.Guavate;
+import com.google.common.collect.ImmutableList;
+
+public class MessageSearchesSortTest {
+
+    @Test
+    public void iteratorShouldSortOnHeaderValues() throws Exception {
+        List<MailboxMessage> messages = ImmutableList.of(
+            message(1, "Re: banana"),
+            message(2, "cherry"),
+            message(3, "Apple"));
+
+        assertThat(uids(ImmutableList.copyOf(search(messages, new Sort(SortClause.BaseSubject)))))
+            .containsExactly(MessageUid.of(3), MessageUid.of(1), MessageUid.of(2));
+    }
+
+    @Test
+    public void iteratorShouldKeepReadOrderWhenSortKeysAreEqual() throws Exception {
+        List<MailboxMessage> messages = ImmutableList.of(
+            message(1, "same"),
+            message(2, "Re: same"),
+            message(3, "same"));
+
+        assertThat(uids(ImmutableList.copyOf(search(messages, new Sort(SortClause.BaseSubject)))))
+            .containsExactly(MessageUid.of(1), MessageUid.of(2), MessageUid.of(3));
+    }
+
+    @Test
+    public void firstShouldReturnTheFirstSortedResults() throws Exception {
+        List<MailboxMessage> messages = ImmutableList.of(
+            message(1, "b"),
+            message(2, "e"),
+            message(3, "a"),
+            message(4, "d"),
+            message(5, "c"));
+
+        assertThat(uids(search(messages, new Sort(SortClause.BaseSubject, Order.REVERSE)).first(3)))
+            .containsExactly(MessageUid.of(2), MessageUid.of(4), MessageUid.of(5));
+    }
+
+    @Test
+    public void firstShouldKeepReadOrderWhenSortKeysAreEqual() throws Exception {
+        List<MailboxMessage> messages = ImmutableList.of(
+            message(1, "b"),
+            message(2, "a"),
+            message(3, "a"),
+            message(4, "a"));
+
+        assertThat(uids(search(messages, new Sort(SortClause.BaseSubject)).first(2)))
+            .containsExactly(MessageUid.of(2), MessageUid.of(3));
+    }
+
+    @Test
+    public void firstShouldReturnAllResultsWhenLimitExceedsMatches() throws Exception {
+        List<MailboxMessage> messages = ImmutableList.of(
+            message(1, "b"),
+            message(2, "a"));
+
+        assertThat(uids(search(messages, new Sort(SortClause.Uid, Order.REVERSE)).first(10)))
+            .containsExactly(MessageUid.of(2), MessageUid.of(1));
+    }
+
+    @Test
+    public void firstShouldReturnEmptyWhenZeroLimit() throws Exception {
+        List<MailboxMessage> messages = ImmutableList.of(message(1, "a"));
+
+        assertThat(search(messages, new Sort(SortClause.Uid)).first(0))
+            .isEmpty();
+    }
+
+    private MessageSearches search(List<MailboxMessage> messages, Sort sort) {
+        SearchQuery query = new SearchQuery(SearchQuery.all());
+        query.setSorts(ImmutableList.of(sort));
+        return new MessageSearches(messages.iterator(), query, null);
+    }
+
+    private MailboxMessage message(long uid, String subject) throws Exception {
+        MessageBuilder builder = new MessageBuilder();
+        builder.uid = MessageUid.of(uid);
+        builder.header("Subject", subject);
+        return builder.build();
+    }
+
+    private List<MessageUid> uids(List<SimpleMessageSearchIndex.SearchResult> results) {
+        return results.stream()
+            .map(SimpleMessageSearchIndex.SearchResult::getMessageUid)
+            .collect(Guavate.toImmutableList());
+    }
+}
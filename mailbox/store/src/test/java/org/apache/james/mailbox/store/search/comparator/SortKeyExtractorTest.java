@@ -0,0 +1,233 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.mailbox.store.search.comparator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Date;
+import java.util.List;
+
+import org.apache.james.mailbox.MessageUid;
+import org.apache.james.mailbox.model.SearchQuery;
+import org.apache.james.mailbox.model.SearchQuery.Sort;
+import org.apache.james.mailbox.model.SearchQuery.Sort.Order;
+import org.apache.james.mailbox.model.SearchQuery.Sort.SortClause;
+import org.apache.james.mailbox.model.TestMessageId;
+import org.apache.james.mailbox.store.MessageBuilder;
+import org.apache.james.mailbox.store.mail.model.MailboxMessage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.github.steveash.guavate.Guavate;
+import com.google.common.collect.ImmutableList;
+
+public class SortKeyExtractorTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void createShouldThrowOnNullListOfSort() {
+        expectedException.expect(NullPointerException.class);
+
+        SortKeyExtractor.create(null);
+    }
+
+    @Test
+    public void createShouldThrowOnEmptySort() {
+        expectedException.expect(IllegalArgumentException.class);
+
+        SortKeyExtractor.create(ImmutableList.<SearchQuery.Sort>of());
+    }
+
+    @Test
+    public void needsHeadersShouldBeFalseForMetadataSorts() {
+        assertThat(SortKeyExtractor.needsHeaders(new Sort(SortClause.Size))).isFalse();
+    }
+
+    @Test
+    public void needsHeadersShouldBeTrueForHeaderSorts() {
+        assertThat(SortKeyExtractor.needsHeaders(new Sort(SortClause.BaseSubject))).isTrue();
+    }
+
+    @Test
+    public void arrivalShouldSortOnInternalDate() throws Exception {
+        MessageBuilder later = builder(1);
+        later.internalDate = new Date(2000);
+        MessageBuilder sooner = builder(2);
+        sooner.internalDate = new Date(1000);
+
+        assertThat(sort(ImmutableList.of(later.build(), sooner.build()), new Sort(SortClause.Arrival)))
+            .containsExactly(MessageUid.of(2), MessageUid.of(1));
+    }
+
+    @Test
+    public void mailboxCcShouldSortOnCcMailbox() throws Exception {
+        assertThat(sort(addressMessages("Cc"), new Sort(SortClause.MailboxCc)))
+            .containsExactly(MessageUid.of(2), MessageUid.of(1));
+    }
+
+    @Test
+    public void mailboxFromShouldSortOnFromMailbox() throws Exception {
+        assertThat(sort(addressMessages("From"), new Sort(SortClause.MailboxFrom)))
+            .containsExactly(MessageUid.of(2), MessageUid.of(1));
+    }
+
+    @Test
+    public void mailboxToShouldSortOnToMailbox() throws Exception {
+        assertThat(sort(addressMessages("To"), new Sort(SortClause.MailboxTo)))
+            .containsExactly(MessageUid.of(2), MessageUid.of(1));
+    }
+
+    @Test
+    public void displayFromShouldSortOnFromDisplayName() throws Exception {
+        assertThat(sort(addressMessages("From"), new Sort(SortClause.DisplayFrom)))
+            .containsExactly(MessageUid.of(1), MessageUid.of(2));
+    }
+
+    @Test
+    public void displayToShouldSortOnToDisplayName() throws Exception {
+        assertThat(sort(addressMessages("To"), new Sort(SortClause.DisplayTo)))
+            .containsExactly(MessageUid.of(1), MessageUid.of(2));
+    }
+
+    @Test
+    public void sizeShouldSortOnFullContentSize() throws Exception {
+        MessageBuilder bigger = builder(1);
+        bigger.size = 200;
+        MessageBuilder smaller = builder(2);
+        smaller.size = 100;
+
+        assertThat(sort(ImmutableList.of(bigger.build(), smaller.build()), new Sort(SortClause.Size)))
+            .containsExactly(MessageUid.of(2), MessageUid.of(1));
+    }
+
+    @Test
+    public void baseSubjectShouldSortOnSubjectWithoutReplyPrefix() throws Exception {
+        MessageBuilder reply = builder(1);
+        reply.header("Subject", "Re: apple");
+        MessageBuilder other = builder(2);
+        other.header("Subject", "banana");
+
+        assertThat(sort(ImmutableList.of(other.build(), reply.build()), new Sort(SortClause.BaseSubject)))
+            .containsExactly(MessageUid.of(1), MessageUid.of(2));
+    }
+
+    @Test
+    public void uidShouldSortOnUid() throws Exception {
+        assertThat(sort(ImmutableList.of(builder(2).build(), builder(1).build()), new Sort(SortClause.Uid)))
+            .containsExactly(MessageUid.of(1), MessageUid.of(2));
+    }
+
+    @Test
+    public void sentDateShouldSortOnDateHeader() throws Exception {
+        MessageBuilder later = builder(1);
+        later.header("Date", "Thu, 18 Jun 2015 04:09:35 +0200");
+        MessageBuilder sooner = builder(2);
+        sooner.header("Date", "Wed, 17 Jun 2015 04:09:35 +0200");
+
+        assertThat(sort(ImmutableList.of(later.build(), sooner.build()), new Sort(SortClause.SentDate)))
+            .containsExactly(MessageUid.of(2), MessageUid.of(1));
+    }
+
+    @Test
+    public void sentDateShouldFallBackToInternalDateWhenNoDateHeader() throws Exception {
+        MessageBuilder later = builder(1);
+        later.internalDate = new Date(2000);
+        MessageBuilder sooner = builder(2);
+        sooner.internalDate = new Date(1000);
+
+        assertThat(sort(ImmutableList.of(later.build(), sooner.build()), new Sort(SortClause.SentDate)))
+            .containsExactly(MessageUid.of(2), MessageUid.of(1));
+    }
+
+    @Test
+    public void idShouldSortOnMessageId() throws Exception {
+        MailboxMessage message1 = builder(1).build(TestMessageId.of(2));
+        MailboxMessage message2 = builder(2).build(TestMessageId.of(1));
+
+        assertThat(sort(ImmutableList.of(message1, message2), new Sort(SortClause.Id)))
+            .containsExactly(MessageUid.of(2), MessageUid.of(1));
+    }
+
+    @Test
+    public void reverseShouldInvertOrder() throws Exception {
+        MessageBuilder bigger = builder(1);
+        bigger.size = 200;
+        MessageBuilder smaller = builder(2);
+        smaller.size = 100;
+
+        assertThat(sort(ImmutableList.of(smaller.build(), bigger.build()), new Sort(SortClause.Size, Order.REVERSE)))
+            .containsExactly(MessageUid.of(1), MessageUid.of(2));
+    }
+
+    @Test
+    public void reverseShouldInvertHeaderOrder() throws Exception {
+        assertThat(sort(addressMessages("From"), new Sort(SortClause.DisplayFrom, Order.REVERSE)))
+            .containsExactly(MessageUid.of(2), MessageUid.of(1));
+    }
+
+    @Test
+    public void nextSortShouldBreakTies() throws Exception {
+        MessageBuilder message1 = builder(1);
+        message1.size = 100;
+        MessageBuilder message2 = builder(2);
+        message2.size = 100;
+        MessageBuilder message3 = builder(3);
+        message3.size = 50;
+
+        assertThat(sort(ImmutableList.of(message1.build(), message2.build(), message3.build()),
+                new Sort(SortClause.Size), new Sort(SortClause.Uid, Order.REVERSE)))
+            .containsExactly(MessageUid.of(3), MessageUid.of(2), MessageUid.of(1));
+    }
+
+    @Test
+    public void equalKeysShouldKeepExtractionOrder() throws Exception {
+        assertThat(sort(ImmutableList.of(builder(3).build(), builder(1).build(), builder(2).build()), new Sort(SortClause.Size)))
+            .containsExactly(MessageUid.of(3), MessageUid.of(1), MessageUid.of(2));
+    }
+
+    /**
+     * Mailbox (local part) and display name orders disagree: message 2 comes first by mailbox, message 1 by display name.
+     */
+    private List<MailboxMessage> addressMessages(String headerName) throws Exception {
+        MessageBuilder message1 = builder(1);
+        message1.header(headerName, "Amy <zulu@domain.tld>");
+        MessageBuilder message2 = builder(2);
+        message2.header(headerName, "Zed <alpha@domain.tld>");
+        return ImmutableList.of(message1.build(), message2.build());
+    }
+
+    private MessageBuilder builder(long uid) {
+        MessageBuilder builder = new MessageBuilder();
+        builder.uid = MessageUid.of(uid);
+        return builder;
+    }
+
+    private List<MessageUid> sort(List<MailboxMessage> messages, Sort... sorts) {
+        SortKeyExtractor extractor = SortKeyExtractor.create(ImmutableList.copyOf(sorts));
+        return messages.stream()
+            .map(message -> extractor.extract(message, message.getUid()))
+            .sorted(extractor.<MessageUid>comparator())
+            .map(SortKeyExtractor.SortKeys::getValue)
+            .collect(Guavate.toImmutableList());
+    }
+}
@@ -26,6 +26,7 @@ import javax.inject.Inject;
 import org.apache.james.mailbox.exception.MailboxException;
 import org.apache.james.task.Task;
 import org.apache.james.task.TaskExecutionDetails;
+import org.apache.james.task.TaskProgress;
 
 public class FullReindexingTask implements Task {
 
@@ -76,4 +77,9 @@ public class FullReindexingTask implements Task {
     public Optional<TaskExecutionDetails.AdditionalInformation> details() {
         return Optional.of(additionalInformation);
     }
+
+    @Override
+    public Optional<TaskProgress> progress() {
+        return Optional.of(reprocessingContext.getProgress());
+    }
 }
@@ -22,23 +22,28 @@ package org.apache.mailbox.tools.indexer;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.james.task.Task;
+import org.apache.james.task.TaskProgress;
 
 public class ReprocessingContext {
     private final AtomicInteger successfullyReprocessedMails;
     private final AtomicInteger failedReprocessingMails;
+    private final TaskProgress progress;
 
     public ReprocessingContext() {
         failedReprocessingMails = new AtomicInteger(0);
         successfullyReprocessedMails = new AtomicInteger(0);
+        progress = new TaskProgress();
     }
 
     public void updateAccordingToReprocessingResult(Task.Result result) {
         switch (result) {
             case COMPLETED:
                 successfullyReprocessedMails.incrementAndGet();
+                progress.recordProcessedItem();
                 break;
             case PARTIAL:
                 failedReprocessingMails.incrementAndGet();
+                progress.recordFailedItem();
                 break;
         }
     }
@@ -50,4 +55,8 @@ public class ReprocessingContext {
     public int failedReprocessingMailCount() {
         return failedReprocessingMails.get();
     }
+
+    public TaskProgress getProgress() {
+        return progress;
+    }
 }
@@ -27,6 +27,7 @@ import org.apache.james.mailbox.exception.MailboxException;
 import org.apache.james.mailbox.model.MailboxPath;
 import org.apache.james.task.Task;
 import org.apache.james.task.TaskExecutionDetails;
+import org.apache.james.task.TaskProgress;
 
 public class SingleMailboxReindexingTask implements Task {
 
@@ -85,4 +86,9 @@ public class SingleMailboxReindexingTask implements Task {
     public Optional<TaskExecutionDetails.AdditionalInformation> details() {
         return Optional.of(additionalInformation);
     }
+
+    @Override
+    public Optional<TaskProgress> progress() {
+        return Optional.of(reprocessingContext.getProgress());
+    }
 }
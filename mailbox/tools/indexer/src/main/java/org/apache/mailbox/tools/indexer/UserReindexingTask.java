@@ -27,6 +27,7 @@ import org.apache.james.core.User;
 import org.apache.james.mailbox.exception.MailboxException;
 import org.apache.james.task.Task;
 import org.apache.james.task.TaskExecutionDetails;
+import org.apache.james.task.TaskProgress;
 
 public class UserReindexingTask implements Task {
 
@@ -85,4 +86,9 @@ public class UserReindexingTask implements Task {
     public Optional<TaskExecutionDetails.AdditionalInformation> details() {
         return Optional.of(additionalInformation);
     }
+
+    @Override
+    public Optional<TaskProgress> progress() {
+        return Optional.of(reprocessingContext.getProgress());
+    }
 }
@@ -19,6 +19,7 @@
 
 package org.apache.james.metrics.api;
 
+import java.time.Duration;
 import java.util.function.Supplier;
 
 public interface MetricFactory {
@@ -27,6 +28,11 @@ public interface MetricFactory {
 
     TimeMetric timer(String name);
 
+    /**
+     * Publish a duration measured by the caller to the timer of the given name
+     */
+    void publishTimerMetric(String name, Duration duration);
+
     default <T> T runPublishingTimerMetric(String name, Supplier<T> operation) {
         TimeMetric timer = timer(name);
         try {
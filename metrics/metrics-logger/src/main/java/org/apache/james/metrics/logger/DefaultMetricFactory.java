@@ -18,6 +18,8 @@
  ****************************************************************/
 package org.apache.james.metrics.logger;
 
+import java.time.Duration;
+
 import org.apache.james.metrics.api.Metric;
 import org.apache.james.metrics.api.MetricFactory;
 import org.apache.james.metrics.api.TimeMetric;
@@ -38,4 +40,9 @@ public class DefaultMetricFactory implements MetricFactory {
         return new DefaultTimeMetric(name);
     }
 
+    @Override
+    public void publishTimerMetric(String name, Duration duration) {
+        LOGGER.info("Time spent in {}: {} ms.", name, duration.toMillis());
+    }
+
 }
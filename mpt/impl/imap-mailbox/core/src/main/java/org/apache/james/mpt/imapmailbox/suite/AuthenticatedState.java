@@ -102,6 +102,11 @@ public abstract class AuthenticatedState extends BasicImapCommands {
         simpleScriptedTestProtocol.run("Status");
     }
 
+    @Test
+    public void testStatusAfterSelectUS() throws Exception {
+        simpleScriptedTestProtocol.run("StatusAfterSelect");
+    }
+
     @Test
     public void testSubscribeUS() throws Exception {
         simpleScriptedTestProtocol.run("Subscribe");
@@ -213,6 +218,13 @@ public abstract class AuthenticatedState extends BasicImapCommands {
             .run("Status");
     }
 
+    @Test
+    public void testStatusAfterSelectITALY() throws Exception {
+        simpleScriptedTestProtocol
+            .withLocale(Locale.ITALY)
+            .run("StatusAfterSelect");
+    }
+
     @Test
     public void testSubscribeITALY() throws Exception {
         simpleScriptedTestProtocol
@@ -339,6 +351,13 @@ public abstract class AuthenticatedState extends BasicImapCommands {
             .run("Status");
     }
 
+    @Test
+    public void testStatusAfterSelectKOREA() throws Exception {
+        simpleScriptedTestProtocol
+            .withLocale(Locale.KOREA)
+            .run("StatusAfterSelect");
+    }
+
     @Test
     public void testSubscribeKOREA() throws Exception {
         simpleScriptedTestProtocol
@@ -28,6 +28,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.NotImplementedException;
 import org.apache.james.backends.es.ElasticSearchIndexer;
 import org.apache.james.backends.es.EmbeddedElasticSearch;
+import org.apache.james.backends.es.SynchronousIndexingPipeline;
 import org.apache.james.backends.es.utils.TestingClientProvider;
 import org.apache.james.core.quota.QuotaCount;
 import org.apache.james.core.quota.QuotaSize;
@@ -94,12 +95,14 @@ public class ElasticSearchHostSystem extends JamesImapHostSystem {
         InMemoryMailboxSessionMapperFactory factory = new InMemoryMailboxSessionMapperFactory();
         InMemoryMessageId.Factory messageIdFactory = new InMemoryMessageId.Factory();
 
+        ElasticSearchIndexer elasticSearchIndexer = new ElasticSearchIndexer(client,
+            Executors.newSingleThreadExecutor(),
+            MailboxElasticSearchConstants.DEFAULT_MAILBOX_WRITE_ALIAS,
+            MailboxElasticSearchConstants.MESSAGE_TYPE);
         ElasticSearchListeningMessageSearchIndex searchIndex = new ElasticSearchListeningMessageSearchIndex(
             factory,
-            new ElasticSearchIndexer(client,
-                Executors.newSingleThreadExecutor(),
-                MailboxElasticSearchConstants.DEFAULT_MAILBOX_WRITE_ALIAS,
-                MailboxElasticSearchConstants.MESSAGE_TYPE),
+            elasticSearchIndexer,
+            new SynchronousIndexingPipeline(elasticSearchIndexer),
             new ElasticSearchSearcher(client,
                 new QueryConverter(new CriterionConverter()),
                 ElasticSearchSearcher.DEFAULT_SEARCH_SIZE,
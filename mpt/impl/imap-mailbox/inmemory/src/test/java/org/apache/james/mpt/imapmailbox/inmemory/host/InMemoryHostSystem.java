@@ -35,6 +35,7 @@ import org.apache.james.mailbox.mock.MockMailboxSession;
 import org.apache.james.mailbox.quota.QuotaRootResolver;
 import org.apache.james.mailbox.store.StoreMailboxManager;
 import org.apache.james.mailbox.store.StoreSubscriptionManager;
+import org.apache.james.mailbox.store.counters.ListeningMailboxCountersCache;
 import org.apache.james.mailbox.store.quota.CurrentQuotaCalculator;
 import org.apache.james.mailbox.store.quota.DefaultUserQuotaRootResolver;
 import org.apache.james.mailbox.store.quota.ListeningCurrentQuotaUpdater;
@@ -82,6 +83,10 @@ public class InMemoryHostSystem extends JamesImapHostSystem {
         mailboxManager.setQuotaUpdater(quotaUpdater);
         mailboxManager.addGlobalListener(quotaUpdater, new MockMailboxSession("admin"));
 
+        ListeningMailboxCountersCache countersCache = new ListeningMailboxCountersCache();
+        mailboxManager.setCountersCache(countersCache);
+        mailboxManager.addGlobalListener(countersCache, new MockMailboxSession("admin"));
+
         final ImapProcessor defaultImapProcessorFactory = DefaultImapProcessorFactory.createDefaultProcessor(mailboxManager, new StoreSubscriptionManager(mailboxManager.getMapperFactory()), quotaManager, quotaRootResolver, new DefaultMetricFactory());
         configure(new DefaultImapDecoderFactory().buildImapDecoder(),
                 new DefaultImapEncoderFactory().buildImapEncoder(),
@@ -66,6 +66,7 @@ public class LuceneSearchHostSystem extends JamesImapHostSystem {
 
     private File tempFile;
     private InMemoryMailboxManager mailboxManager;
+    private LuceneMessageSearchIndex searchIndex;
 
     @Override
     public void beforeTest() throws Exception {
@@ -83,6 +84,7 @@ public class LuceneSearchHostSystem extends JamesImapHostSystem {
         mailboxManager.startProcessingRequest(session);
         mailboxManager.endProcessingRequest(session);
         mailboxManager.logout(session, false);
+        searchIndex.close();
     }
 
     public void resetUserMetaData() throws Exception {
@@ -115,7 +117,7 @@ public class LuceneSearchHostSystem extends JamesImapHostSystem {
                 rightManager);
 
             FSDirectory fsDirectory = FSDirectory.open(tempFile);
-            LuceneMessageSearchIndex searchIndex = new LuceneMessageSearchIndex(mapperFactory, new InMemoryId.Factory(), fsDirectory, messageIdFactory);
+            searchIndex = new LuceneMessageSearchIndex(mapperFactory, new InMemoryId.Factory(), fsDirectory, messageIdFactory, new DefaultMetricFactory());
             searchIndex.setEnableSuffixMatch(true);
             mailboxManager.setMessageSearchIndex(searchIndex);
 
@@ -34,6 +34,7 @@ public class ImapConfiguration {
     public static final boolean DEFAULT_ENABLE_IDLE = true;
     public static final long DEFAULT_HEARTBEAT_INTERVAL_IN_SECONDS = 2 * 60;
     public static final TimeUnit DEFAULT_HEARTBEAT_INTERVAL_UNIT = TimeUnit.SECONDS;
+    public static final int DEFAULT_FETCH_PREFETCH_WINDOW = 0;
 
     public static Builder builder() {
         return new Builder();
@@ -51,6 +52,7 @@ public class ImapConfiguration {
         private Optional<Boolean> enableIdle;
         private ImmutableSet<String> disabledCaps;
         private Optional<Boolean> isCondstoreEnable;
+        private Optional<Integer> fetchPrefetchWindow;
 
         private Builder() {
             this.idleTimeInterval = Optional.empty();
@@ -58,6 +60,7 @@ public class ImapConfiguration {
             this.enableIdle = Optional.empty();
             this.disabledCaps = ImmutableSet.of();
             this.isCondstoreEnable = Optional.empty();
+            this.fetchPrefetchWindow = Optional.empty();
         }
 
         public Builder idleTimeInterval(long idleTimeInterval) {
@@ -96,6 +99,12 @@ public class ImapConfiguration {
             return this;
         }
 
+        public Builder fetchPrefetchWindow(int fetchPrefetchWindow) {
+            Preconditions.checkArgument(fetchPrefetchWindow >= 0, "The fetch prefetch window should not be negative");
+            this.fetchPrefetchWindow = Optional.of(fetchPrefetchWindow);
+            return this;
+        }
+
         public ImapConfiguration build() {
             ImmutableSet<String> normalizeDisableCaps = disabledCaps.stream()
                     .filter(Builder::noBlankString)
@@ -106,7 +115,8 @@ public class ImapConfiguration {
                     idleTimeInterval.orElse(DEFAULT_HEARTBEAT_INTERVAL_IN_SECONDS),
                     idleTimeIntervalUnit.orElse(DEFAULT_HEARTBEAT_INTERVAL_UNIT),
                     normalizeDisableCaps,
-                    isCondstoreEnable.orElse(DEFAULT_CONDSTORE_DISABLE));
+                    isCondstoreEnable.orElse(DEFAULT_CONDSTORE_DISABLE),
+                    fetchPrefetchWindow.orElse(DEFAULT_FETCH_PREFETCH_WINDOW));
         }
     }
 
@@ -115,13 +125,16 @@ public class ImapConfiguration {
     private final ImmutableSet<String> disabledCaps;
     private final boolean enableIdle;
     private final boolean isCondstoreEnable;
+    private final int fetchPrefetchWindow;
 
-    private ImapConfiguration(boolean enableIdle, long idleTimeInterval, TimeUnit idleTimeIntervalUnit, ImmutableSet<String> disabledCaps, boolean isCondstoreEnable) {
+    private ImapConfiguration(boolean enableIdle, long idleTimeInterval, TimeUnit idleTimeIntervalUnit, ImmutableSet<String> disabledCaps, boolean isCondstoreEnable,
+                              int fetchPrefetchWindow) {
         this.enableIdle = enableIdle;
         this.idleTimeInterval = idleTimeInterval;
         this.idleTimeIntervalUnit = idleTimeIntervalUnit;
         this.disabledCaps = disabledCaps;
         this.isCondstoreEnable = isCondstoreEnable;
+        this.fetchPrefetchWindow = fetchPrefetchWindow;
     }
 
     public long getIdleTimeInterval() {
@@ -144,6 +157,13 @@ public class ImapConfiguration {
         return isCondstoreEnable;
     }
 
+    /**
+     * Number of messages FETCH may load ahead of the responses being written. 0 disables prefetching.
+     */
+    public int getFetchPrefetchWindow() {
+        return fetchPrefetchWindow;
+    }
+
     @Override
     public final boolean equals(Object obj) {
         if (obj instanceof ImapConfiguration) {
@@ -152,14 +172,15 @@ public class ImapConfiguration {
                 && Objects.equal(that.getIdleTimeInterval(), idleTimeInterval)
                 && Objects.equal(that.getIdleTimeIntervalUnit(), idleTimeIntervalUnit)
                 && Objects.equal(that.getDisabledCaps(), disabledCaps)
-                && Objects.equal(that.isCondstoreEnable(), isCondstoreEnable);
+                && Objects.equal(that.isCondstoreEnable(), isCondstoreEnable)
+                && Objects.equal(that.getFetchPrefetchWindow(), fetchPrefetchWindow);
         }
         return false;
     }
 
     @Override
     public final int hashCode() {
-        return Objects.hashCode(enableIdle, idleTimeInterval, idleTimeIntervalUnit, disabledCaps, isCondstoreEnable);
+        return Objects.hashCode(enableIdle, idleTimeInterval, idleTimeIntervalUnit, disabledCaps, isCondstoreEnable, fetchPrefetchWindow);
     }
 
     @Override
@@ -170,6 +191,7 @@ public class ImapConfiguration {
                 .add("idleTimeIntervalUnit", idleTimeIntervalUnit)
                 .add("disabledCaps", disabledCaps)
                 .add("isCondstoreEnable", isCondstoreEnable)
+                .add("fetchPrefetchWindow", fetchPrefetchWindow)
                 .toString();
     }
 }
@@ -57,5 +57,17 @@ public interface ImapProcessor {
          * @param message <code>not null</code>
          */
         void respond(ImapResponseMessage message);
+
+        /**
+         * Allows the following responses to be buffered, so that they get written together.
+         */
+        default void startBatch() {
+        }
+
+        /**
+         * Writes the responses buffered since {@link #startBatch()} and stops buffering.
+         */
+        default void endBatch() {
+        }
     }
 }
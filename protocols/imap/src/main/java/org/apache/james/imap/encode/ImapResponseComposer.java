@@ -250,4 +250,17 @@ public interface ImapResponseComposer {
      */
     ImapResponseComposer openSquareBracket() throws IOException;
 
+    /**
+     * Keeps the following responses in memory, and write them together once enough of them are pending or when
+     * {@link #endBatch()} is called.
+     */
+    void startBatch();
+
+    /**
+     * Writes the responses kept in memory and stops batching.
+     * 
+     * @throws IOException
+     */
+    void endBatch() throws IOException;
+
 }
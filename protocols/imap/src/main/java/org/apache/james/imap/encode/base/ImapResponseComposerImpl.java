@@ -45,6 +45,7 @@ public class ImapResponseComposerImpl implements ImapConstants, ImapResponseComp
     public static final String FAILED = "failed.";
     private static final int LOWER_CASE_OFFSET = 'a' - 'A';
     public static final int DEFAULT_BUFFER_SIZE = 2048;
+    public static final int BATCH_FLUSH_THRESHOLD = 16 * 1024;
     
     
     private final ImapResponseWriter writer;
@@ -55,8 +56,11 @@ public class ImapResponseComposerImpl implements ImapConstants, ImapResponseComp
 
     private boolean skipNextSpace;
 
+    private boolean batching;
+
     public ImapResponseComposerImpl(ImapResponseWriter writer, int bufferSize) {
         skipNextSpace = false;
+        batching = false;
         usAscii = Charset.forName("US-ASCII");
         this.writer = writer;
         this.buffer = new FastByteArrayOutputStream(bufferSize);
@@ -141,11 +145,30 @@ public class ImapResponseComposerImpl implements ImapConstants, ImapResponseComp
     @Override
     public ImapResponseComposer end() throws IOException {
         buffer.write(LINE_END.getBytes());
-        writer.write(buffer.toByteArray());
-        buffer.reset();
+        if (!batching || buffer.size() >= BATCH_FLUSH_THRESHOLD) {
+            flush();
+        }
         return this;
     }
 
+    @Override
+    public void startBatch() {
+        batching = true;
+    }
+
+    @Override
+    public void endBatch() throws IOException {
+        batching = false;
+        flush();
+    }
+
+    private void flush() throws IOException {
+        if (buffer.size() > 0) {
+            writer.write(buffer.toByteArray());
+            buffer.reset();
+        }
+    }
+
     @Override
     public ImapResponseComposer tag(String tag) throws IOException {
         writeASCII(tag);
@@ -307,7 +330,9 @@ public class ImapResponseComposerImpl implements ImapConstants, ImapResponseComp
         final long size = literal.size();
         writeASCII(Long.toString(size));
         buffer.write(BYTE_CLOSE_BRACE);
-        end();
+        buffer.write(LINE_END.getBytes());
+        // The literal is written directly: pending responses must be written first
+        flush();
         if (size > 0) {
             writer.write(literal);
         }
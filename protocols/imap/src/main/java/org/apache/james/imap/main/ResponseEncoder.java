@@ -50,6 +50,20 @@ public class ResponseEncoder implements Responder {
         }
     }
 
+    @Override
+    public void startBatch() {
+        composer.startBatch();
+    }
+
+    @Override
+    public void endBatch() {
+        try {
+            composer.endBatch();
+        } catch (IOException failure) {
+            this.failure = failure;
+        }
+    }
+
     /**
      * Gets the recorded failure.
      * 
@@ -94,10 +94,21 @@ public class AppendProcessor extends AbstractMailboxProcessor<AppendRequest> {
             // Some other issue
             no(command, tag, responder, HumanReadableText.GENERIC_FAILURE_DURING_PROCESSING);
 
+        } finally {
+            // Release the literal, which might have been spilled to disk
+            close(messageIn);
         }
 
     }
 
+    private void close(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            LOGGER.warn("Unable to close the appended message", e);
+        }
+    }
+
     private void consume(InputStream in) {
         try {
             // IOUtils.copy() buffers the input internally, so there is no need
@@ -0,0 +1,273 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.imap.processor;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import org.apache.james.mailbox.Event;
+import org.apache.james.mailbox.MailboxListener;
+import org.apache.james.mailbox.model.MailboxPath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Dispatches mailbox events and heartbeats to the sessions being in IDLE state.
+ *
+ * This hub is registered once as a global {@link MailboxListener} and indexes idling sessions by mailbox path, rather
+ * than each session registering its own listener. Events received for a session are coalesced: the session is
+ * notified once per tick, whatever the number of events received meanwhile. Notifications are run on a worker pool
+ * as they can access the mailbox.
+ *
+ * Heartbeats are driven by a single hashed wheel: the heartbeat interval being the same for every session, each
+ * session is placed once in a slot of a wheel doing a full rotation per interval.
+ */
+public class IdleNotificationHub implements MailboxListener, Closeable {
+
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(100);
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdleNotificationHub.class);
+
+    public class Registration {
+        private final Runnable onUpdate;
+        private final BooleanSupplier onHeartbeat;
+        private final AtomicBoolean pendingUpdate;
+        private final int slot;
+        private volatile Optional<MailboxPath> path;
+        private volatile boolean cancelled;
+
+        private Registration(Optional<MailboxPath> path, Runnable onUpdate, BooleanSupplier onHeartbeat, int slot) {
+            this.path = path;
+            this.onUpdate = onUpdate;
+            this.onHeartbeat = onHeartbeat;
+            this.slot = slot;
+            this.pendingUpdate = new AtomicBoolean(false);
+            this.cancelled = false;
+        }
+
+        /**
+         * Stops notifying this session
+         */
+        public void cancel() {
+            cancelled = true;
+            removeFromMailbox(this);
+            if (heartbeatWheel.isPresent()) {
+                heartbeatWheel.get()[slot].remove(this);
+            }
+        }
+
+        private void markUpdated() {
+            if (!cancelled && pendingUpdate.compareAndSet(false, true)) {
+                dirtyRegistrations.add(this);
+            }
+        }
+
+        private void update() {
+            pendingUpdate.set(false);
+            if (!cancelled) {
+                onUpdate.run();
+            }
+        }
+
+        private void heartbeat() {
+            if (!cancelled && !onHeartbeat.getAsBoolean()) {
+                cancel();
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<MailboxPath, Set<Registration>> registrationsByMailbox;
+    private final Queue<Registration> dirtyRegistrations;
+    private final Optional<Set<Registration>[]> heartbeatWheel;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService notificationExecutor;
+    private long tickCount;
+
+    public IdleNotificationHub(Optional<Duration> heartbeatInterval, int notificationThreads) {
+        this(heartbeatInterval, DEFAULT_TICK, notificationThreads);
+    }
+
+    @VisibleForTesting
+    IdleNotificationHub(Optional<Duration> heartbeatInterval, Duration tick, int notificationThreads) {
+        Preconditions.checkArgument(!tick.isNegative() && !tick.isZero(), "Tick should be strictly positive");
+        this.registrationsByMailbox = new ConcurrentHashMap<>();
+        this.dirtyRegistrations = new ConcurrentLinkedQueue<>();
+        this.heartbeatWheel = heartbeatInterval.map(interval -> createWheel(slotCount(interval, tick)));
+        this.tickCount = 0;
+        this.notificationExecutor = Executors.newFixedThreadPool(notificationThreads, new ThreadFactoryBuilder()
+            .setNameFormat("imap-idle-notification-%d")
+            .setDaemon(true)
+            .build());
+        this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("imap-idle-timer-%d")
+            .setDaemon(true)
+            .build());
+        this.timer.scheduleAtFixedRate(this::tick, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static int slotCount(Duration heartbeatInterval, Duration tick) {
+        return (int) Math.max(1, heartbeatInterval.toMillis() / tick.toMillis());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<Registration>[] createWheel(int slotCount) {
+        Set<Registration>[] wheel = new Set[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            wheel[i] = ConcurrentHashMap.newKeySet();
+        }
+        return wheel;
+    }
+
+    /**
+     * Registers a session idling on the given mailbox
+     *
+     * @param path mailbox the session is idling on
+     * @param onUpdate called, at most once per tick, after the mailbox had been modified
+     * @param onHeartbeat called on each heartbeat interval, if heartbeats are enabled. Returning false cancels the
+     *                    registration, for instance when the session was closed without ending IDLE.
+     */
+    public Registration register(MailboxPath path, Runnable onUpdate, BooleanSupplier onHeartbeat) {
+        Registration registration = new Registration(Optional.of(path), onUpdate, onHeartbeat, nextSlot());
+        registrationsByMailbox.compute(path, (key, registrations) -> {
+            Set<Registration> result = Optional.ofNullable(registrations)
+                .orElseGet(ConcurrentHashMap::newKeySet);
+            result.add(registration);
+            return result;
+        });
+        heartbeatWheel.ifPresent(wheel -> wheel[registration.slot].add(registration));
+        return registration;
+    }
+
+    /**
+     * Registers a session idling without a selected mailbox: it only receives heartbeats
+     *
+     * @param onHeartbeat called on each heartbeat interval, if heartbeats are enabled. Returning false cancels the
+     *                    registration.
+     */
+    public Registration registerHeartbeat(BooleanSupplier onHeartbeat) {
+        Registration registration = new Registration(Optional.empty(), () -> { }, onHeartbeat, nextSlot());
+        heartbeatWheel.ifPresent(wheel -> wheel[registration.slot].add(registration));
+        return registration;
+    }
+
+    private int nextSlot() {
+        return heartbeatWheel
+            .map(wheel -> currentSlot(wheel.length))
+            .orElse(0);
+    }
+
+    private synchronized int currentSlot(int slotCount) {
+        // The current slot was just visited: next visit is a full rotation away
+        return (int) (tickCount % slotCount);
+    }
+
+    private void removeFromMailbox(Registration registration) {
+        registration.path.ifPresent(mailboxPath ->
+            registrationsByMailbox.computeIfPresent(mailboxPath, (path, registrations) -> {
+                registrations.remove(registration);
+                if (registrations.isEmpty()) {
+                    return null;
+                }
+                return registrations;
+            }));
+    }
+
+    @VisibleForTesting
+    int idlingSessionCount() {
+        return registrationsByMailbox.values()
+            .stream()
+            .mapToInt(Set::size)
+            .sum();
+    }
+
+    @Override
+    public ListenerType getType() {
+        return ListenerType.EACH_NODE;
+    }
+
+    @Override
+    public void event(Event event) {
+        if (event instanceof Added || event instanceof Expunged || event instanceof FlagsUpdated) {
+            MailboxPath path = ((MailboxEvent) event).getMailboxPath();
+            Set<Registration> registrations = registrationsByMailbox.get(path);
+            if (registrations != null) {
+                registrations.forEach(Registration::markUpdated);
+            }
+        } else if (event instanceof MailboxRenamed) {
+            MailboxRenamed renamed = (MailboxRenamed) event;
+            Set<Registration> registrations = registrationsByMailbox.remove(renamed.getMailboxPath());
+            if (registrations != null) {
+                registrations.forEach(registration -> registration.path = Optional.of(renamed.getNewPath()));
+                registrationsByMailbox.merge(renamed.getNewPath(), registrations, (existing, moved) -> {
+                    existing.addAll(moved);
+                    return existing;
+                });
+            }
+        }
+    }
+
+    private void tick() {
+        try {
+            Registration registration;
+            while ((registration = dirtyRegistrations.poll()) != null) {
+                Registration dirtyRegistration = registration;
+                notificationExecutor.execute(dirtyRegistration::update);
+            }
+            heartbeatWheel.ifPresent(this::heartbeat);
+        } catch (Exception e) {
+            LOGGER.error("Error while notifying idling sessions", e);
+        }
+    }
+
+    private void heartbeat(Set<Registration>[] wheel) {
+        int slot;
+        synchronized (this) {
+            tickCount++;
+            slot = (int) (tickCount % wheel.length);
+        }
+        for (Registration registration : wheel[slot]) {
+            try {
+                registration.heartbeat();
+            } catch (Exception e) {
+                LOGGER.error("Error while sending an IDLE heartbeat", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        notificationExecutor.shutdownNow();
+    }
+}
@@ -22,12 +22,10 @@ package org.apache.james.imap.processor;
 import static org.apache.james.imap.api.ImapConstants.SUPPORTS_IDLE;
 
 import java.io.Closeable;
+import java.time.Duration;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Optional;
 
 import org.apache.james.imap.api.ImapCommand;
 import org.apache.james.imap.api.ImapConfiguration;
@@ -42,8 +40,6 @@ import org.apache.james.imap.api.process.ImapSession;
 import org.apache.james.imap.api.process.SelectedMailbox;
 import org.apache.james.imap.message.request.IdleRequest;
 import org.apache.james.imap.message.response.ContinuationResponse;
-import org.apache.james.mailbox.Event;
-import org.apache.james.mailbox.MailboxListener;
 import org.apache.james.mailbox.MailboxManager;
 import org.apache.james.mailbox.MailboxSession;
 import org.apache.james.mailbox.exception.MailboxException;
@@ -60,10 +56,10 @@ public class IdleProcessor extends AbstractMailboxProcessor<IdleRequest> impleme
     private static final List<String> CAPS = ImmutableList.of(SUPPORTS_IDLE);
     public static final int DEFAULT_SCHEDULED_POOL_CORE_SIZE = 5;
     private static final String DONE = "DONE";
-    private TimeUnit heartbeatIntervalUnit;
-    private long heartbeatInterval;
-    private boolean enableIdle;
-    private ScheduledExecutorService heartbeatExecutor;
+    private static final String NOTIFICATION_HUB_SESSION = "imap-idle";
+    private IdleNotificationHub notificationHub;
+    private boolean notificationHubRegistered;
+    private MailboxSession notificationHubSession;
 
     public IdleProcessor(ImapProcessor next, MailboxManager mailboxManager, StatusResponseFactory factory,
             MetricFactory metricFactory) {
@@ -74,11 +70,17 @@ public class IdleProcessor extends AbstractMailboxProcessor<IdleRequest> impleme
     public void configure(ImapConfiguration imapConfiguration) {
         super.configure(imapConfiguration);
 
-        this.heartbeatInterval = imapConfiguration.getIdleTimeInterval();
-        this.heartbeatIntervalUnit = imapConfiguration.getIdleTimeIntervalUnit();
-        this.enableIdle = imapConfiguration.isEnableIdle();
-        if (enableIdle) {
-            this.heartbeatExecutor = Executors.newScheduledThreadPool(DEFAULT_SCHEDULED_POOL_CORE_SIZE);
+        Optional<Duration> heartbeatInterval = Optional.empty();
+        if (imapConfiguration.isEnableIdle()) {
+            heartbeatInterval = Optional.of(Duration.ofMillis(
+                imapConfiguration.getIdleTimeIntervalUnit().toMillis(imapConfiguration.getIdleTimeInterval())));
+        }
+        synchronized (this) {
+            if (notificationHub != null) {
+                unregisterNotificationHub();
+                notificationHub.close();
+            }
+            this.notificationHub = new IdleNotificationHub(heartbeatInterval, DEFAULT_SCHEDULED_POOL_CORE_SIZE);
         }
     }
 
@@ -87,19 +89,17 @@ public class IdleProcessor extends AbstractMailboxProcessor<IdleRequest> impleme
 
         try {
           
-            final MailboxManager mailboxManager = getMailboxManager();
-            final MailboxSession mailboxSession = ImapSessionUtils.getMailboxSession(session);
             final SelectedMailbox sm = session.getSelected();
-            final IdleMailboxListener idleListener;
+            final IdleNotificationHub hub = registerNotificationHub();
+            final IdleNotificationHub.Registration registration;
             if (sm != null) {
-                idleListener = new IdleMailboxListener(session, responder);
-                mailboxManager.addListener(sm.getPath(), idleListener, mailboxSession);
+                registration = hub.register(sm.getPath(),
+                    () -> unsolicitedResponses(session, responder, false),
+                    () -> heartbeat(session, responder));
             } else {
-                idleListener = null;
+                registration = hub.registerHeartbeat(() -> heartbeat(session, responder));
             }
 
-            final AtomicBoolean idleActive = new AtomicBoolean(true);
-            
             session.pushLineHandler(new ImapLineHandler() {
                 @Override
                 public void onLine(ImapSession session, byte[] data) {
@@ -110,13 +110,7 @@ public class IdleProcessor extends AbstractMailboxProcessor<IdleRequest> impleme
                         line = "";
                     }
 
-                    if (idleListener != null) {
-                        try {
-                            mailboxManager.removeListener(sm.getPath(), idleListener, mailboxSession);
-                        } catch (MailboxException e) {
-                                LOGGER.error("Unable to remove idle listener for mailbox {}", sm.getPath(), e);
-                        }
-                    }
+                    registration.cancel();
                     session.popLineHandler();
                     if (!DONE.equals(line.toUpperCase(Locale.US))) {
                         StatusResponse response = getStatusResponseFactory().taggedBad(tag, command, HumanReadableText.INVALID_COMMAND);
@@ -125,37 +119,9 @@ public class IdleProcessor extends AbstractMailboxProcessor<IdleRequest> impleme
                         okComplete(command, tag, responder);
 
                     }
-                    idleActive.set(false);
                 }
             });
 
-            // Check if we should send heartbeats
-            if (enableIdle) {
-                heartbeatExecutor.schedule(new Runnable() {
-
-                    @Override
-                    public void run() {
-                        // check if we need to cancel the Runnable
-                        // See IMAP-275
-                        if (session.getState() != ImapSessionState.LOGOUT && idleActive.get()) {
-                            // Send a heartbeat to the client to make sure we
-                            // reset the idle timeout. This is kind of the same
-                            // workaround as dovecot use.
-                            //
-                            // This is mostly needed because of the broken
-                            // outlook client, but can't harm for other clients
-                            // too.
-                            // See IMAP-272
-                            StatusResponse response = getStatusResponseFactory().untaggedOk(HumanReadableText.HEARTBEAT);
-                            responder.respond(response);
-                            
-                            // schedule the heartbeat again for the next interval
-                            heartbeatExecutor.schedule(this, heartbeatInterval, heartbeatIntervalUnit);
-                        }
-                    }
-                }, heartbeatInterval, heartbeatIntervalUnit);
-            }
-            
             // Write the response after the listener was add
             // IMAP-341
             responder.respond(new ContinuationResponse(HumanReadableText.IDLING));
@@ -163,37 +129,62 @@ public class IdleProcessor extends AbstractMailboxProcessor<IdleRequest> impleme
 
 
         } catch (MailboxException e) {
-            LOGGER.error("Enable idle for {} failed", session.getSelected().getPath(), e);
+            LOGGER.error("Enable idle for {} failed", ImapSessionUtils.getUserName(session), e);
             no(command, tag, responder, HumanReadableText.GENERIC_FAILURE_DURING_PROCESSING);
         }
     }
 
-    @Override
-    public List<String> getImplementedCapabilities(ImapSession session) {
-        return CAPS;
-    }
-
-    private class IdleMailboxListener implements MailboxListener {
-
-        private final Responder responder;
-        private final ImapSession session;
-
-        public IdleMailboxListener(ImapSession session, Responder responder) {
-            this.session = session;
-            this.responder = responder;
+    /**
+     * The hub serves every idling session: it listens with a system session rather than the one of the first user
+     * entering IDLE
+     */
+    private synchronized IdleNotificationHub registerNotificationHub() throws MailboxException {
+        if (!notificationHubRegistered) {
+            MailboxSession systemSession = getMailboxManager().createSystemSession(NOTIFICATION_HUB_SESSION);
+            getMailboxManager().addGlobalListener(notificationHub, systemSession);
+            notificationHubSession = systemSession;
+            notificationHubRegistered = true;
         }
+        return notificationHub;
+    }
 
-        @Override
-        public void event(Event event) {
-            if (event instanceof Added || event instanceof Expunged || event instanceof FlagsUpdated) {
-                unsolicitedResponses(session, responder, false);
+    /**
+     * Stops a replaced hub from receiving the events of every mailbox
+     */
+    private void unregisterNotificationHub() {
+        if (notificationHubRegistered) {
+            try {
+                getMailboxManager().removeGlobalListener(notificationHub, notificationHubSession);
+            } catch (MailboxException e) {
+                LOGGER.warn("Unable to unregister the IDLE notification hub", e);
             }
+            notificationHubRegistered = false;
+            notificationHubSession = null;
         }
+    }
 
-        @Override
-        public ListenerType getType() {
-            return ListenerType.MAILBOX;
+    private boolean heartbeat(ImapSession session, Responder responder) {
+        // check if we need to cancel the heartbeat
+        // See IMAP-275
+        if (session.getState() == ImapSessionState.LOGOUT) {
+            return false;
         }
+        // Send a heartbeat to the client to make sure we
+        // reset the idle timeout. This is kind of the same
+        // workaround as dovecot use.
+        //
+        // This is mostly needed because of the broken
+        // outlook client, but can't harm for other clients
+        // too.
+        // See IMAP-272
+        StatusResponse response = getStatusResponseFactory().untaggedOk(HumanReadableText.HEARTBEAT);
+        responder.respond(response);
+        return true;
+    }
+
+    @Override
+    public List<String> getImplementedCapabilities(ImapSession session) {
+        return CAPS;
     }
 
     @Override
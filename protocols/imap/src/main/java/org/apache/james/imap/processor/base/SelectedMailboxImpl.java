@@ -19,14 +19,10 @@
 
 package org.apache.james.imap.processor.base;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
-import java.util.TreeSet;
 
 import javax.mail.Flags;
 import javax.mail.Flags.Flag;
@@ -55,7 +51,7 @@ import com.google.common.collect.ImmutableList;
 public class SelectedMailboxImpl implements SelectedMailbox, MailboxListener {
     private static final Logger LOGGER = LoggerFactory.getLogger(SelectedMailboxImpl.class);
 
-    private final Set<MessageUid> recentUids = new TreeSet<>();
+    private final UidSet recentUids = new UidSet();
 
     private boolean recentUidRemoved = false;
 
@@ -66,9 +62,9 @@ public class SelectedMailboxImpl implements SelectedMailbox, MailboxListener {
     private final ImapSession session;
 
     private final long sessionId;
-    private final Set<MessageUid> flagUpdateUids = new TreeSet<>();
+    private final UidSet flagUpdateUids = new UidSet();
     private final Flags.Flag uninterestingFlag = Flags.Flag.RECENT;
-    private final Set<MessageUid> expungedUids = new TreeSet<>();
+    private final UidSet expungedUids = new UidSet();
     private final UidMsnConverter uidMsnConverter;
 
     private boolean isDeletedByOtherSession = false;
@@ -105,12 +101,12 @@ public class SelectedMailboxImpl implements SelectedMailbox, MailboxListener {
     }
 
     @Override
-    public synchronized Optional<MessageUid> getFirstUid() {
+    public Optional<MessageUid> getFirstUid() {
         return uidMsnConverter.getFirstUid();
     }
 
     @Override
-    public synchronized Optional<MessageUid> getLastUid() {
+    public Optional<MessageUid> getLastUid() {
         return uidMsnConverter.getLastUid();
     }
 
@@ -148,7 +144,7 @@ public class SelectedMailboxImpl implements SelectedMailbox, MailboxListener {
     @Override
     public synchronized Collection<MessageUid> getRecent() {
         checkExpungedRecents();
-        return new ArrayList<>(recentUids);
+        return recentUids.snapshot();
     }
 
     @Override
@@ -275,20 +271,18 @@ public class SelectedMailboxImpl implements SelectedMailbox, MailboxListener {
      */
     @Override
     public synchronized Collection<MessageUid> flagUpdateUids() {
-        // copy the TreeSet to fix possible
+        // copy the uids to fix possible
         // java.util.ConcurrentModificationException
         // See IMAP-278
-        return Collections.unmodifiableSet(new TreeSet<>(flagUpdateUids));
-        
+        return flagUpdateUids.snapshot();
     }
 
     @Override
     public synchronized Collection<MessageUid> expungedUids() {
-        // copy the TreeSet to fix possible
+        // copy the uids to fix possible
         // java.util.ConcurrentModificationException
         // See IMAP-278
-        return Collections.unmodifiableSet(new TreeSet<>(expungedUids));
-        
+        return expungedUids.snapshot();
     }
 
     @Override
@@ -403,12 +397,12 @@ public class SelectedMailboxImpl implements SelectedMailbox, MailboxListener {
     }
 
     @Override
-    public synchronized int msn(MessageUid uid) {
+    public int msn(MessageUid uid) {
         return uidMsnConverter.getMsn(uid).orElse(NO_SUCH_MESSAGE);
     }
 
     @Override
-    public synchronized Optional<MessageUid> uid(int msn) {
+    public Optional<MessageUid> uid(int msn) {
         if (msn == NO_SUCH_MESSAGE) {
             return Optional.empty();
         }
@@ -418,7 +412,7 @@ public class SelectedMailboxImpl implements SelectedMailbox, MailboxListener {
 
     
     @Override
-    public synchronized long existsCount() {
+    public long existsCount() {
         return uidMsnConverter.getNumMessage();
     }
 }
@@ -19,96 +19,160 @@
 
 package org.apache.james.imap.processor.base;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.TreeSet;
 
 import org.apache.james.mailbox.MessageUid;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.Lists;
 
+/**
+ * Maps the uids of a selected mailbox to their message sequence numbers.
+ *
+ * Uids are held as a sorted array of primitive longs. Readers never lock: they work on an immutable
+ * {@link Snapshot} of the array. Writers are serialized, appending in place in the spare capacity of the
+ * array (which is invisible to published snapshots) and copying it for any other modification.
+ */
 public class UidMsnConverter {
 
     public static final int FIRST_MSN = 1;
 
-    @VisibleForTesting final ArrayList<MessageUid> uids;
+    private static final int INITIAL_CAPACITY = 16;
+
+    @VisibleForTesting
+    static class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(new long[0], 0);
+
+        private final long[] uids;
+        private final int size;
+
+        private Snapshot(long[] uids, int size) {
+            this.uids = uids;
+            this.size = size;
+        }
+
+        private int indexOf(long uid) {
+            return Arrays.binarySearch(uids, 0, size, uid);
+        }
+
+        @VisibleForTesting
+        int size() {
+            return size;
+        }
+
+        @VisibleForTesting
+        MessageUid get(int index) {
+            return MessageUid.of(uids[index]);
+        }
+    }
+
+    private volatile Snapshot snapshot;
 
     public UidMsnConverter() {
-        this.uids = Lists.newArrayList();
+        this.snapshot = Snapshot.EMPTY;
+    }
+
+    @VisibleForTesting
+    Snapshot snapshot() {
+        return snapshot;
     }
 
     public synchronized void addAll(List<MessageUid> addedUids) {
-        TreeSet<MessageUid> tmp = new TreeSet<>();
-        tmp.addAll(uids);
-        tmp.addAll(addedUids);
-        uids.clear();
-        uids.addAll(tmp);
+        long[] added = addedUids.stream()
+            .mapToLong(MessageUid::asLong)
+            .sorted()
+            .distinct()
+            .toArray();
+        Snapshot current = snapshot;
+        long[] merged = new long[current.size + added.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < current.size || j < added.length) {
+            long next;
+            if (j == added.length || (i < current.size && current.uids[i] <= added[j])) {
+                next = current.uids[i++];
+            } else {
+                next = added[j++];
+            }
+            if (size == 0 || merged[size - 1] != next) {
+                merged[size++] = next;
+            }
+        }
+        snapshot = new Snapshot(merged, size);
     }
 
-    public synchronized Optional<Integer> getMsn(MessageUid uid) {
-        int position = Collections.binarySearch(uids, uid);
+    public Optional<Integer> getMsn(MessageUid uid) {
+        int position = snapshot.indexOf(uid.asLong());
         if (position < 0) {
             return Optional.empty();
         }
         return Optional.of(position + 1);
     }
 
-    public synchronized Optional<MessageUid> getUid(int msn) {
-        if (msn <= uids.size() && msn > 0) {
-            return Optional.of(uids.get(msn - 1));
+    public Optional<MessageUid> getUid(int msn) {
+        Snapshot current = snapshot;
+        if (msn <= current.size && msn > 0) {
+            return Optional.of(current.get(msn - 1));
         }
         return Optional.empty();
     }
 
-    public synchronized Optional<MessageUid> getLastUid() {
-        if (uids.isEmpty()) {
+    public Optional<MessageUid> getLastUid() {
+        Snapshot current = snapshot;
+        if (current.size == 0) {
             return Optional.empty();
         }
-        return getUid(getLastMsn());
+        return Optional.of(current.get(current.size - 1));
     }
 
-    public synchronized Optional<MessageUid> getFirstUid() {
+    public Optional<MessageUid> getFirstUid() {
         return getUid(FIRST_MSN);
     }
 
-    public synchronized int getNumMessage() {
-        return uids.size();
+    public int getNumMessage() {
+        return snapshot.size;
     }
 
     public synchronized void remove(MessageUid uid) {
-        uids.remove(uid);
+        Snapshot current = snapshot;
+        int position = current.indexOf(uid.asLong());
+        if (position < 0) {
+            return;
+        }
+        long[] uids = new long[Math.max(current.size - 1, INITIAL_CAPACITY)];
+        System.arraycopy(current.uids, 0, uids, 0, position);
+        System.arraycopy(current.uids, position + 1, uids, position, current.size - position - 1);
+        snapshot = new Snapshot(uids, current.size - 1);
     }
 
-    public synchronized boolean isEmpty() {
-        return uids.isEmpty();
+    public boolean isEmpty() {
+        return snapshot.size == 0;
     }
 
     public synchronized void clear() {
-        uids.clear();
+        snapshot = Snapshot.EMPTY;
     }
 
     public synchronized void addUid(MessageUid uid) {
-        if (uids.contains(uid)) {
+        Snapshot current = snapshot;
+        long value = uid.asLong();
+        int position = current.indexOf(value);
+        if (position >= 0) {
             return;
         }
-        if (isLastUid(uid)) {
-            uids.add(uid);
-        } else {
-            uids.add(uid);
-            Collections.sort(uids);
+        int insertionPoint = -(position + 1);
+        if (insertionPoint == current.size && current.size < current.uids.length) {
+            // Published snapshots never read beyond their size: the spare capacity can be written in place
+            current.uids[current.size] = value;
+            snapshot = new Snapshot(current.uids, current.size + 1);
+            return;
         }
-    }
-
-    private boolean isLastUid(MessageUid uid) {
-        Optional<MessageUid> lastUid = getLastUid();
-        return !lastUid.isPresent() ||
-            lastUid.get().compareTo(uid) < 0;
-    }
-
-    private int getLastMsn() {
-        return getNumMessage();
+        long[] uids = new long[Math.max(current.size + (current.size >> 1) + 1, INITIAL_CAPACITY)];
+        System.arraycopy(current.uids, 0, uids, 0, insertionPoint);
+        uids[insertionPoint] = value;
+        System.arraycopy(current.uids, insertionPoint, uids, insertionPoint + 1, current.size - insertionPoint);
+        snapshot = new Snapshot(uids, current.size + 1);
     }
 }
@@ -0,0 +1,129 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.imap.processor.base;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.apache.james.mailbox.MessageUid;
+
+/**
+ * Sorted set of uids backed by an array of primitive longs.
+ *
+ * Uids mostly arrive in ascending order, making additions an append. This class is not thread safe: callers
+ * are expected to guard it, as {@link SelectedMailboxImpl} does.
+ */
+class UidSet {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static class UidList extends AbstractList<MessageUid> implements RandomAccess {
+        private final long[] uids;
+
+        private UidList(long[] uids) {
+            this.uids = uids;
+        }
+
+        @Override
+        public MessageUid get(int index) {
+            return MessageUid.of(uids[index]);
+        }
+
+        @Override
+        public int size() {
+            return uids.length;
+        }
+    }
+
+    private long[] uids = new long[INITIAL_CAPACITY];
+    private int size = 0;
+
+    public boolean add(MessageUid uid) {
+        long value = uid.asLong();
+        if (size == 0 || uids[size - 1] < value) {
+            ensureCapacity(size + 1);
+            uids[size++] = value;
+            return true;
+        }
+        int position = Arrays.binarySearch(uids, 0, size, value);
+        if (position >= 0) {
+            return false;
+        }
+        int insertionPoint = -(position + 1);
+        ensureCapacity(size + 1);
+        System.arraycopy(uids, insertionPoint, uids, insertionPoint + 1, size - insertionPoint);
+        uids[insertionPoint] = value;
+        size++;
+        return true;
+    }
+
+    public boolean addAll(Collection<MessageUid> added) {
+        boolean changed = false;
+        for (MessageUid uid : added) {
+            changed |= add(uid);
+        }
+        return changed;
+    }
+
+    public boolean remove(MessageUid uid) {
+        int position = Arrays.binarySearch(uids, 0, size, uid.asLong());
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(uids, position + 1, uids, position, size - position - 1);
+        size--;
+        return true;
+    }
+
+    public boolean contains(MessageUid uid) {
+        return Arrays.binarySearch(uids, 0, size, uid.asLong()) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+        if (uids.length > INITIAL_CAPACITY) {
+            uids = new long[INITIAL_CAPACITY];
+        }
+    }
+
+    /**
+     * Return an unmodifiable, sorted copy of the uids, which is not affected by later changes of this set
+     */
+    public List<MessageUid> snapshot() {
+        return new UidList(Arrays.copyOf(uids, size));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > uids.length) {
+            uids = Arrays.copyOf(uids, Math.max(capacity, uids.length + (uids.length >> 1)));
+        }
+    }
+}
@@ -23,8 +23,11 @@ import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.james.imap.api.ImapCommand;
+import org.apache.james.imap.api.ImapConfiguration;
 import org.apache.james.imap.api.ImapConstants;
 import org.apache.james.imap.api.ImapSessionUtils;
 import org.apache.james.imap.api.display.HumanReadableText;
@@ -55,14 +58,33 @@ import org.apache.james.util.MDCBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 public class FetchProcessor extends AbstractMailboxProcessor<FetchRequest> {
     private static final Logger LOGGER = LoggerFactory.getLogger(FetchProcessor.class);
 
+    private volatile int prefetchWindow;
+    /**
+     * Shared by all the configurations of this processor. Its daemon threads are only
+     * started while prefetching, and stop once idle for a minute.
+     */
+    private final ExecutorService prefetchExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+        .setNameFormat("imap-fetch-prefetch-%d")
+        .setDaemon(true)
+        .build());
+
     public FetchProcessor(ImapProcessor next, MailboxManager mailboxManager, StatusResponseFactory factory,
             MetricFactory metricFactory) {
         super(FetchRequest.class, next, mailboxManager, factory, metricFactory);
     }
 
+    @Override
+    public void configure(ImapConfiguration imapConfiguration) {
+        super.configure(imapConfiguration);
+
+        this.prefetchWindow = imapConfiguration.getFetchPrefetchWindow();
+    }
+
     @Override
     protected void doProcess(FetchRequest request, ImapSession session, String tag, ImapCommand command, Responder responder) {
         final boolean useUids = request.isUseUids();
@@ -152,38 +174,54 @@ public class FetchProcessor extends AbstractMailboxProcessor<FetchRequest> {
         final FetchResponseBuilder builder = new FetchResponseBuilder(new EnvelopeBuilder());
         FetchGroup resultToFetch = getFetchGroup(fetch);
 
-        for (MessageRange range : ranges) {
-            MessageResultIterator messages = mailbox.getMessages(range, resultToFetch, mailboxSession);
-            while (messages.hasNext()) {
-                final MessageResult result = messages.next();
-
-                //skip unchanged messages - this should be filtered at the mailbox level to take advantage of indexes
-                if (fetch.isModSeq() && result.getModSeq() <= fetch.getChangedSince()) {
-                    continue;
+        // Write the FETCH responses together rather than one by one
+        responder.startBatch();
+        try {
+            int window = prefetchWindow;
+            for (MessageRange range : ranges) {
+                MessageResultIterator messages = mailbox.getMessages(range, resultToFetch, mailboxSession);
+                if (window <= 0) {
+                    processMessages(session, mailbox, messages, fetch, useUids, builder, responder);
+                } else {
+                    try (PrefetchingMessageResultIterator prefetchedMessages = new PrefetchingMessageResultIterator(messages, window, prefetchExecutor)) {
+                        processMessages(session, mailbox, prefetchedMessages, fetch, useUids, builder, responder);
+                    }
                 }
+            }
+        } finally {
+            responder.endBatch();
+        }
+    }
 
-                try {
-                    final FetchResponse response = builder.build(fetch, result, mailbox, session, useUids);
-                    responder.respond(response);
-                } catch (MessageRangeException e) {
-                    // we can't for whatever reason find the message so
-                    // just skip it and log it to debug
-                    LOGGER.debug("Unable to find message with uid {}", result.getUid(), e);
-                } catch (MailboxException e) {
-                    // we can't for whatever reason find parse all requested parts of the message. This may because it was deleted while try to access the parts.
-                    // So we just skip it 
-                    //
-                    // See IMAP-347
-                    LOGGER.error("Unable to fetch message with uid {}, so skip it", result.getUid(), e);
-                }
+    private void processMessages(ImapSession session, MessageManager mailbox, MessageResultIterator messages, FetchData fetch, boolean useUids, FetchResponseBuilder builder, Responder responder) throws MailboxException {
+        while (messages.hasNext()) {
+            final MessageResult result = messages.next();
+
+            //skip unchanged messages - this should be filtered at the mailbox level to take advantage of indexes
+            if (fetch.isModSeq() && result.getModSeq() <= fetch.getChangedSince()) {
+                continue;
             }
 
-            // Throw the exception if we received one
-            if (messages.getException() != null) {
-                throw messages.getException();
+            try {
+                final FetchResponse response = builder.build(fetch, result, mailbox, session, useUids);
+                responder.respond(response);
+            } catch (MessageRangeException e) {
+                // we can't for whatever reason find the message so
+                // just skip it and log it to debug
+                LOGGER.debug("Unable to find message with uid {}", result.getUid(), e);
+            } catch (MailboxException e) {
+                // we can't for whatever reason find parse all requested parts of the message. This may because it was deleted while try to access the parts.
+                // So we just skip it 
+                //
+                // See IMAP-347
+                LOGGER.error("Unable to fetch message with uid {}, so skip it", result.getUid(), e);
             }
         }
 
+        // Throw the exception if we received one
+        if (messages.getException() != null) {
+            throw messages.getException();
+        }
     }
 
     protected FetchGroup getFetchGroup(FetchData fetch) {
@@ -0,0 +1,138 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.imap.processor.fetch;
+
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.james.mailbox.exception.MailboxException;
+import org.apache.james.mailbox.model.MessageResult;
+import org.apache.james.mailbox.model.MessageResultIterator;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link MessageResultIterator} consuming an other {@link MessageResultIterator} on a separate thread.
+ *
+ * At most <code>window</code> results are loaded ahead of the caller, so that the next messages are read from the
+ * mailbox while the previous ones are being encoded and written. {@link #close()} must be called once done, as it
+ * stops loading results nobody will consume.
+ */
+public class PrefetchingMessageResultIterator implements MessageResultIterator, AutoCloseable {
+
+    private static final long OFFER_TIMEOUT_IN_MS = 100;
+
+    private final BlockingQueue<Optional<MessageResult>> queue;
+    private volatile boolean closed;
+    private volatile MailboxException exception;
+    private MessageResult prefetched;
+    private boolean exhausted;
+
+    public PrefetchingMessageResultIterator(MessageResultIterator source, int window, ExecutorService executor) {
+        Preconditions.checkArgument(window > 0, "Prefetch window should be strictly positive");
+        this.queue = new ArrayBlockingQueue<>(window);
+        this.closed = false;
+        this.exhausted = false;
+        executor.execute(() -> prefetch(source));
+    }
+
+    private void prefetch(MessageResultIterator source) {
+        try {
+            while (!closed && source.hasNext()) {
+                enqueue(Optional.of(source.next()));
+            }
+            exception = source.getException();
+        } catch (RuntimeException e) {
+            exception = new MailboxException("Unable to load messages", e);
+        } finally {
+            // Signals the end of the results
+            enqueue(Optional.empty());
+        }
+    }
+
+    private void enqueue(Optional<MessageResult> result) {
+        try {
+            while (!closed) {
+                if (queue.offer(result, OFFER_TIMEOUT_IN_MS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (exhausted) {
+            return false;
+        }
+        if (prefetched == null) {
+            Optional<MessageResult> result = take();
+            if (!result.isPresent()) {
+                exhausted = true;
+                return false;
+            }
+            prefetched = result.get();
+        }
+        return true;
+    }
+
+    private Optional<MessageResult> take() {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exception = new MailboxException("Interrupted while loading messages", e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public MessageResult next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        MessageResult result = prefetched;
+        prefetched = null;
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Read only");
+    }
+
+    @Override
+    public MailboxException getException() {
+        return exception;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        queue.clear();
+    }
+}
@@ -185,4 +185,29 @@ public class ImapConfigurationTest {
 
         assertThat(imapConfiguration.isCondstoreEnable()).isFalse();
    }
-}
\ No newline at end of file
+
+    @Test
+    public void fetchPrefetchWindowShouldBeDisabledByDefault() {
+        ImapConfiguration imapConfiguration = ImapConfiguration.builder().build();
+
+        assertThat(imapConfiguration.getFetchPrefetchWindow()).isEqualTo(0);
+    }
+
+    @Test
+    public void fetchPrefetchWindowShouldReturnSetValue() {
+        ImapConfiguration imapConfiguration = ImapConfiguration.builder()
+                .fetchPrefetchWindow(64)
+                .build();
+
+        assertThat(imapConfiguration.getFetchPrefetchWindow()).isEqualTo(64);
+    }
+
+    @Test
+    public void fetchPrefetchWindowShouldThrowWhenNegative() {
+        expectedException.expect(IllegalArgumentException.class);
+
+        ImapConfiguration.builder()
+                .fetchPrefetchWindow(-1)
+                .build();
+    }
+}
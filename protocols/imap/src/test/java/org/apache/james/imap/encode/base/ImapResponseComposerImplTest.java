@@ -0,0 +1,112 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.imap.encode.base;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.james.imap.message.response.Literal;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+
+public class ImapResponseComposerImplTest {
+
+    private ByteImapResponseWriter writer;
+    private ImapResponseComposerImpl testee;
+
+    @Before
+    public void setUp() {
+        writer = new ByteImapResponseWriter();
+        testee = new ImapResponseComposerImpl(writer);
+    }
+
+    @Test
+    public void endShouldWriteResponseWhenNotBatching() throws Exception {
+        testee.untaggedResponse("OK");
+
+        assertThat(writer.getString()).isEqualTo("* OK\r\n");
+    }
+
+    @Test
+    public void endShouldNotWriteResponseWhenBatching() throws Exception {
+        testee.startBatch();
+        testee.untaggedResponse("OK");
+
+        assertThat(writer.getString()).isEmpty();
+    }
+
+    @Test
+    public void endBatchShouldWriteBatchedResponses() throws Exception {
+        testee.startBatch();
+        testee.untaggedResponse("OK");
+        testee.untaggedResponse("NO");
+        testee.endBatch();
+
+        assertThat(writer.getString()).isEqualTo("* OK\r\n* NO\r\n");
+    }
+
+    @Test
+    public void endBatchShouldStopBatching() throws Exception {
+        testee.startBatch();
+        testee.endBatch();
+        testee.untaggedResponse("OK");
+
+        assertThat(writer.getString()).isEqualTo("* OK\r\n");
+    }
+
+    @Test
+    public void endShouldWriteBatchedResponsesWhenThresholdIsExceeded() throws Exception {
+        String longMessage = Strings.repeat("A", ImapResponseComposerImpl.BATCH_FLUSH_THRESHOLD);
+
+        testee.startBatch();
+        testee.untaggedResponse(longMessage);
+
+        assertThat(writer.getString()).isEqualTo("* " + longMessage + "\r\n");
+    }
+
+    @Test
+    public void literalShouldWriteBatchedResponsesFirst() throws Exception {
+        testee.startBatch();
+        testee.untaggedResponse("OK");
+        testee.untagged().literal(literal("abc"));
+
+        assertThat(writer.getString()).isEqualTo("* OK\r\n* {3}\r\nabc");
+    }
+
+    private Literal literal(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.US_ASCII);
+        return new Literal() {
+            @Override
+            public long size() {
+                return bytes.length;
+            }
+
+            @Override
+            public InputStream getInputStream() {
+                return new ByteArrayInputStream(bytes);
+            }
+        };
+    }
+}
@@ -0,0 +1,177 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.imap.processor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.james.imap.processor.base.FakeMailboxListenerAdded;
+import org.apache.james.mailbox.MailboxListener;
+import org.apache.james.mailbox.MailboxSession;
+import org.apache.james.mailbox.MessageUid;
+import org.apache.james.mailbox.model.MailboxPath;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class IdleNotificationHubTest {
+    private static final Duration TICK = Duration.ofMillis(10);
+    private static final MailboxPath INBOX = MailboxPath.forUser("user", "INBOX");
+    private static final MailboxPath OTHER = MailboxPath.forUser("user", "other");
+
+    private MailboxSession session;
+    private IdleNotificationHub testee;
+
+    @Before
+    public void setUp() {
+        session = mock(MailboxSession.class);
+        testee = new IdleNotificationHub(Optional.empty(), TICK, 1);
+    }
+
+    @After
+    public void tearDown() {
+        testee.close();
+    }
+
+    @Test
+    public void eventsShouldBeCoalescedIntoASingleUpdate() throws Exception {
+        AtomicInteger updates = new AtomicInteger();
+        CountDownLatch updated = new CountDownLatch(1);
+        testee.register(INBOX, () -> {
+            updates.incrementAndGet();
+            updated.countDown();
+        }, () -> true);
+
+        for (int i = 0; i < 10; i++) {
+            testee.event(added(INBOX));
+        }
+
+        assertThat(updated.await(10, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(TICK.toMillis() * 5);
+        assertThat(updates.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void eventsOnOtherMailboxesShouldNotTriggerUpdates() throws Exception {
+        AtomicInteger updates = new AtomicInteger();
+        testee.register(INBOX, updates::incrementAndGet, () -> true);
+
+        testee.event(added(OTHER));
+
+        Thread.sleep(TICK.toMillis() * 5);
+        assertThat(updates.get()).isZero();
+    }
+
+    @Test
+    public void cancelShouldStopUpdates() throws Exception {
+        AtomicInteger updates = new AtomicInteger();
+        testee.register(INBOX, updates::incrementAndGet, () -> true)
+            .cancel();
+
+        testee.event(added(INBOX));
+
+        Thread.sleep(TICK.toMillis() * 5);
+        assertThat(updates.get()).isZero();
+        assertThat(testee.idlingSessionCount()).isZero();
+    }
+
+    @Test
+    public void renameShouldMoveIdlingSessionsToTheNewPath() throws Exception {
+        CountDownLatch updated = new CountDownLatch(1);
+        testee.register(INBOX, updated::countDown, () -> true);
+
+        testee.event(new MailboxListener.MailboxRenamed(session, INBOX) {
+            @Override
+            public MailboxPath getNewPath() {
+                return OTHER;
+            }
+        });
+        testee.event(added(OTHER));
+
+        assertThat(updated.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void heartbeatsShouldBeSentOnEachInterval() throws Exception {
+        testee.close();
+        testee = new IdleNotificationHub(Optional.of(TICK.multipliedBy(2)), TICK, 1);
+        CountDownLatch heartbeats = new CountDownLatch(3);
+        testee.register(INBOX, () -> { }, () -> {
+            heartbeats.countDown();
+            return true;
+        });
+
+        assertThat(heartbeats.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void heartbeatReturningFalseShouldCancelRegistration() throws Exception {
+        testee.close();
+        testee = new IdleNotificationHub(Optional.of(TICK.multipliedBy(2)), TICK, 1);
+        CountDownLatch heartbeat = new CountDownLatch(1);
+        testee.register(INBOX, () -> { }, () -> {
+            heartbeat.countDown();
+            return false;
+        });
+
+        assertThat(heartbeat.await(10, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(TICK.toMillis() * 5);
+        assertThat(testee.idlingSessionCount()).isZero();
+    }
+
+    @Test
+    public void heartbeatOnlyRegistrationShouldReceiveHeartbeats() throws Exception {
+        testee.close();
+        testee = new IdleNotificationHub(Optional.of(TICK.multipliedBy(2)), TICK, 1);
+        CountDownLatch heartbeats = new CountDownLatch(3);
+        testee.registerHeartbeat(() -> {
+            heartbeats.countDown();
+            return true;
+        });
+
+        assertThat(heartbeats.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void cancelShouldStopHeartbeatsOfHeartbeatOnlyRegistration() throws Exception {
+        testee.close();
+        testee = new IdleNotificationHub(Optional.of(TICK.multipliedBy(2)), TICK, 1);
+        AtomicInteger heartbeats = new AtomicInteger();
+        testee.registerHeartbeat(() -> {
+            heartbeats.incrementAndGet();
+            return true;
+        }).cancel();
+
+        Thread.sleep(TICK.toMillis() * 5);
+        assertThat(heartbeats.get()).isZero();
+    }
+
+    private MailboxListener.Added added(MailboxPath path) {
+        return new FakeMailboxListenerAdded(session, ImmutableList.of(MessageUid.of(1)), path);
+    }
+}
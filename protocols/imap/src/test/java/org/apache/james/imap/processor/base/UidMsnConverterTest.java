@@ -433,8 +433,9 @@ public class UidMsnConverterTest {
 
     private Map<Integer, MessageUid> mapTesteeInternalDataToMsnByUid() {
         ImmutableMap.Builder<Integer, MessageUid> result = ImmutableMap.builder();
-        for (int i = 0; i < testee.uids.size(); i++) {
-            result.put(i + 1, testee.uids.get(i));
+        UidMsnConverter.Snapshot snapshot = testee.snapshot();
+        for (int i = 0; i < snapshot.size(); i++) {
+            result.put(i + 1, snapshot.get(i));
         }
         return result.build();
     }
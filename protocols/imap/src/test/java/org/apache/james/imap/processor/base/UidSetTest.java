@@ -0,0 +1,126 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.imap.processor.base;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.apache.james.mailbox.MessageUid;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class UidSetTest {
+    private static final MessageUid UID_1 = MessageUid.of(1);
+    private static final MessageUid UID_2 = MessageUid.of(2);
+    private static final MessageUid UID_3 = MessageUid.of(3);
+
+    private UidSet testee;
+
+    @Before
+    public void setUp() {
+        testee = new UidSet();
+    }
+
+    @Test
+    public void snapshotShouldBeEmptyByDefault() {
+        assertThat(testee.snapshot()).isEmpty();
+    }
+
+    @Test
+    public void snapshotShouldBeSortedWhenUidsAreAddedOutOfOrder() {
+        testee.add(UID_3);
+        testee.add(UID_1);
+        testee.add(UID_2);
+
+        assertThat(testee.snapshot()).containsExactly(UID_1, UID_2, UID_3);
+    }
+
+    @Test
+    public void addShouldReturnFalseWhenUidAlreadyPresent() {
+        testee.add(UID_1);
+
+        assertThat(testee.add(UID_1)).isFalse();
+        assertThat(testee.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void addAllShouldIgnoreDuplicates() {
+        testee.addAll(ImmutableList.of(UID_2, UID_1, UID_2));
+
+        assertThat(testee.snapshot()).containsExactly(UID_1, UID_2);
+    }
+
+    @Test
+    public void removeShouldRemoveTheUid() {
+        testee.addAll(ImmutableList.of(UID_1, UID_2, UID_3));
+
+        assertThat(testee.remove(UID_2)).isTrue();
+        assertThat(testee.snapshot()).containsExactly(UID_1, UID_3);
+    }
+
+    @Test
+    public void removeShouldReturnFalseWhenUidIsMissing() {
+        testee.add(UID_1);
+
+        assertThat(testee.remove(UID_2)).isFalse();
+    }
+
+    @Test
+    public void containsShouldReturnTrueOnlyForAddedUids() {
+        testee.add(UID_2);
+
+        assertThat(testee.contains(UID_2)).isTrue();
+        assertThat(testee.contains(UID_1)).isFalse();
+    }
+
+    @Test
+    public void clearShouldRemoveAllUids() {
+        testee.addAll(ImmutableList.of(UID_1, UID_2));
+
+        testee.clear();
+
+        assertThat(testee.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void snapshotShouldNotBeAffectedByLaterChanges() {
+        testee.add(UID_1);
+        List<MessageUid> snapshot = testee.snapshot();
+
+        testee.add(UID_2);
+        testee.remove(UID_1);
+
+        assertThat(snapshot).containsExactly(UID_1);
+    }
+
+    @Test
+    public void addShouldHandleManyUids() {
+        for (int i = 100; i > 0; i--) {
+            testee.add(MessageUid.of(i));
+        }
+
+        assertThat(testee.size()).isEqualTo(100);
+        assertThat(testee.snapshot().get(0)).isEqualTo(MessageUid.of(1));
+        assertThat(testee.snapshot().get(99)).isEqualTo(MessageUid.of(100));
+    }
+}
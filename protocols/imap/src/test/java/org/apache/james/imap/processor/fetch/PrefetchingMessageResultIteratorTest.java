@@ -0,0 +1,130 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.imap.processor.fetch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.james.mailbox.exception.MailboxException;
+import org.apache.james.mailbox.model.MessageResult;
+import org.apache.james.mailbox.model.MessageResultIterator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+
+public class PrefetchingMessageResultIteratorTest {
+
+    private static class ListMessageResultIterator implements MessageResultIterator {
+        private final Iterator<MessageResult> results;
+        private final MailboxException exception;
+
+        private ListMessageResultIterator(List<MessageResult> results, MailboxException exception) {
+            this.results = results.iterator();
+            this.exception = exception;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return results.hasNext();
+        }
+
+        @Override
+        public MessageResult next() {
+            return results.next();
+        }
+
+        @Override
+        public MailboxException getException() {
+            return exception;
+        }
+    }
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void iteratorShouldReturnAllResultsInOrder() {
+        ImmutableList<MessageResult> results = ImmutableList.of(mock(MessageResult.class), mock(MessageResult.class), mock(MessageResult.class));
+
+        try (PrefetchingMessageResultIterator testee = new PrefetchingMessageResultIterator(new ListMessageResultIterator(results, null), 2, executor)) {
+            assertThat(ImmutableList.copyOf(testee)).containsExactlyElementsOf(results);
+            assertThat(testee.getException()).isNull();
+        }
+    }
+
+    @Test
+    public void iteratorShouldBeEmptyWhenSourceIsEmpty() {
+        try (PrefetchingMessageResultIterator testee = new PrefetchingMessageResultIterator(new ListMessageResultIterator(ImmutableList.of(), null), 2, executor)) {
+            assertThat(testee.hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    public void getExceptionShouldReturnSourceException() {
+        MailboxException exception = new MailboxException("failure");
+        ImmutableList<MessageResult> results = ImmutableList.of(mock(MessageResult.class));
+
+        try (PrefetchingMessageResultIterator testee = new PrefetchingMessageResultIterator(new ListMessageResultIterator(results, exception), 2, executor)) {
+            Iterators.size(testee);
+
+            assertThat(testee.getException()).isSameAs(exception);
+        }
+    }
+
+    @Test
+    public void closeShouldStopPrefetching() throws Exception {
+        MessageResultIterator endlessSource = new ListMessageResultIterator(ImmutableList.of(), null) {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public MessageResult next() {
+                return mock(MessageResult.class);
+            }
+        };
+
+        PrefetchingMessageResultIterator testee = new PrefetchingMessageResultIterator(endlessSource, 2, executor);
+        testee.next();
+        testee.close();
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -0,0 +1,245 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.protocols.netty4;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.james.protocols.api.ProtocolServer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+/**
+ * Abstract base class for Servers built on Netty 4.
+ *
+ * It uses the native epoll transport when available and pooled buffers. Subclasses provide the
+ * {@link ChannelInitializer} building the pipeline of each accepted connection.
+ */
+public abstract class AbstractNetty4Server implements ProtocolServer {
+
+    public static final int DEFAULT_IO_WORKER_COUNT = Runtime.getRuntime().availableProcessors() * 2;
+    private static final int BOSS_THREAD_COUNT = 1;
+
+    private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+    private final List<Channel> serverChannels = new ArrayList<>();
+
+    private volatile int backlog = 250;
+    private volatile int timeout = 120;
+    private volatile int ioWorker = DEFAULT_IO_WORKER_COUNT;
+    private volatile boolean preferNativeTransport = true;
+    private volatile int executorThreads = 0;
+    private List<InetSocketAddress> addresses = ImmutableList.of();
+
+    private volatile boolean started;
+    private TransportType transportType;
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private Optional<EventExecutorGroup> executorGroup = Optional.empty();
+
+    public synchronized void setListenAddresses(InetSocketAddress... addresses) {
+        checkNotStarted();
+        this.addresses = ImmutableList.copyOf(addresses);
+    }
+
+    /**
+     * Set the IO-worker thread count to use. Default is nCores * 2
+     */
+    public void setIoWorkerCount(int ioWorker) {
+        checkNotStarted();
+        this.ioWorker = ioWorker;
+    }
+
+    public int getIoWorkerCount() {
+        return ioWorker;
+    }
+
+    /**
+     * Set false to always use the NIO transport, even when the native epoll transport is available. Default is true
+     */
+    public void setPreferNativeTransport(boolean preferNativeTransport) {
+        checkNotStarted();
+        this.preferNativeTransport = preferNativeTransport;
+    }
+
+    /**
+     * Set true if the core handler should be run outside of the event loops. This should be done if
+     * it needs to full fill some blocking operation.
+     *
+     * @param useHandler <code>true</code> if the core handler should be run by a dedicated executor
+     * @param size the thread count to use
+     */
+    public void setUseExecutionHandler(boolean useHandler, int size) {
+        checkNotStarted();
+        if (useHandler) {
+            Preconditions.checkArgument(size > 0, "executor size needs to be strictly positive");
+            this.executorThreads = size;
+        } else {
+            this.executorThreads = 0;
+        }
+    }
+
+    /**
+     * Set the read/write timeout for the server. This will throw a {@link IllegalStateException} if the
+     * server is running.
+     */
+    public void setTimeout(int timeout) {
+        checkNotStarted();
+        this.timeout = timeout;
+    }
+
+    /**
+     * Set the Backlog for the socket. This will throw a {@link IllegalStateException} if the server is running.
+     */
+    public void setBacklog(int backlog) {
+        checkNotStarted();
+        this.backlog = backlog;
+    }
+
+    @Override
+    public int getBacklog() {
+        return backlog;
+    }
+
+    @Override
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Return the transport in use, or the one which would be used if the server was bound now
+     */
+    public synchronized TransportType getTransportType() {
+        if (started) {
+            return transportType;
+        }
+        return TransportType.select(preferNativeTransport);
+    }
+
+    @Override
+    public synchronized void bind() throws Exception {
+        checkNotStarted();
+        if (addresses.isEmpty()) {
+            throw new RuntimeException("Please specify at least on socketaddress to which the server should get bound!");
+        }
+
+        String threadNamePrefix = getThreadNamePrefix();
+        transportType = TransportType.select(preferNativeTransport);
+        bossGroup = transportType.newEventLoopGroup(BOSS_THREAD_COUNT, new DefaultThreadFactory(threadNamePrefix + "-boss"));
+        workerGroup = transportType.newEventLoopGroup(ioWorker, new DefaultThreadFactory(threadNamePrefix + "-io"));
+        if (executorThreads > 0) {
+            executorGroup = Optional.of(new DefaultEventExecutorGroup(executorThreads, new DefaultThreadFactory(threadNamePrefix + "-handler")));
+        }
+
+        ServerBootstrap bootstrap = new ServerBootstrap()
+            .group(bossGroup, workerGroup)
+            .channel(transportType.serverChannelClass())
+            .childHandler(createChannelInitializer(channels, executorGroup));
+        configureBootstrap(bootstrap);
+
+        try {
+            for (InetSocketAddress address : addresses) {
+                Channel serverChannel = bootstrap.bind(address).sync().channel();
+                serverChannels.add(serverChannel);
+                channels.add(serverChannel);
+            }
+        } catch (Exception e) {
+            release();
+            throw e;
+        }
+        started = true;
+    }
+
+    /**
+     * Configure the bootstrap before it get bound
+     */
+    protected void configureBootstrap(ServerBootstrap bootstrap) {
+        bootstrap.option(ChannelOption.SO_BACKLOG, backlog)
+            .option(ChannelOption.SO_REUSEADDR, true)
+            .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+            .childOption(ChannelOption.TCP_NODELAY, true)
+            .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+    }
+
+    @Override
+    public synchronized void unbind() {
+        if (!started) {
+            return;
+        }
+        release();
+        started = false;
+    }
+
+    private void release() {
+        channels.close().awaitUninterruptibly();
+        serverChannels.clear();
+        bossGroup.shutdownGracefully().awaitUninterruptibly();
+        workerGroup.shutdownGracefully().awaitUninterruptibly();
+        executorGroup.ifPresent(group -> group.shutdownGracefully().awaitUninterruptibly());
+        executorGroup = Optional.empty();
+    }
+
+    @Override
+    public synchronized List<InetSocketAddress> getListenAddresses() {
+        return serverChannels.stream()
+            .map(channel -> (InetSocketAddress) channel.localAddress())
+            .collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    public boolean isBound() {
+        return started;
+    }
+
+    protected void checkNotStarted() {
+        if (started) {
+            throw new IllegalStateException("Can only be set when the server is not running");
+        }
+    }
+
+    /**
+     * Return the prefix of the names of the threads of this server
+     */
+    protected abstract String getThreadNamePrefix();
+
+    /**
+     * Create the {@link ChannelInitializer} building the pipeline of each accepted connection.
+     *
+     * @param channels the group accepted channels need to be added to, so that they get closed on unbind
+     * @param executorGroup the executor to run the core handler on, if it should not run on the event loop
+     */
+    protected abstract ChannelInitializer<SocketChannel> createChannelInitializer(ChannelGroup channels, Optional<EventExecutorGroup> executorGroup);
+}
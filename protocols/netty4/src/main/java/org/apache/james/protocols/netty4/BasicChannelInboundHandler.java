@@ -0,0 +1,214 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.protocols.netty4;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.net.ssl.SSLEngine;
+
+import org.apache.james.protocols.api.Encryption;
+import org.apache.james.protocols.api.Protocol;
+import org.apache.james.protocols.api.ProtocolSession;
+import org.apache.james.protocols.api.ProtocolSessionImpl;
+import org.apache.james.protocols.api.ProtocolTransport;
+import org.apache.james.protocols.api.Response;
+import org.apache.james.protocols.api.future.FutureResponse;
+import org.apache.james.protocols.api.handler.ConnectHandler;
+import org.apache.james.protocols.api.handler.DisconnectHandler;
+import org.apache.james.protocols.api.handler.LineHandler;
+import org.apache.james.protocols.api.handler.ProtocolHandlerChain;
+import org.apache.james.protocols.api.handler.ProtocolHandlerResultHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.AttributeKey;
+
+/**
+ * {@link SimpleChannelInboundHandler} which is used by the SMTPServer and other line based protocols
+ *
+ * The {@link ProtocolSession} of a connection is stored as an attribute of its channel.
+ */
+@Sharable
+public class BasicChannelInboundHandler extends SimpleChannelInboundHandler<ByteBuf> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BasicChannelInboundHandler.class);
+
+    public static final AttributeKey<ProtocolSession> SESSION = AttributeKey.valueOf("protocolSession");
+
+    protected final Protocol protocol;
+    protected final ProtocolHandlerChain chain;
+    protected final Encryption secure;
+
+    public BasicChannelInboundHandler(Protocol protocol) {
+        this(protocol, null);
+    }
+
+    public BasicChannelInboundHandler(Protocol protocol, Encryption secure) {
+        this.protocol = protocol;
+        this.chain = protocol.getProtocolChain();
+        this.secure = secure;
+    }
+
+    /**
+     * Create the {@link ProtocolSession} and call the {@link ConnectHandler} instances which are stored in the {@link ProtocolHandlerChain}
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        ProtocolSession session = createSession(ctx);
+        ctx.channel().attr(SESSION).set(session);
+        try (Closeable closeable = ProtocolMDCContext.from(protocol, ctx)) {
+            List<ConnectHandler> connectHandlers = chain.getHandlers(ConnectHandler.class);
+            List<ProtocolHandlerResultHandler> resultHandlers = chain.getHandlers(ProtocolHandlerResultHandler.class);
+            LOGGER.info("Connection established from {}", session.getRemoteAddress().getAddress().getHostAddress());
+            if (connectHandlers != null) {
+                for (ConnectHandler cHandler : connectHandlers) {
+                    long start = System.currentTimeMillis();
+                    Response response = cHandler.onConnect(session);
+                    long executionTime = System.currentTimeMillis() - start;
+
+                    for (ProtocolHandlerResultHandler resultHandler : resultHandlers) {
+                        // Disable till PROTOCOLS-37 is implemented
+                        if (response instanceof FutureResponse) {
+                            LOGGER.debug("ProtocolHandlerResultHandler are not supported for FutureResponse yet");
+                            break;
+                        }
+                        resultHandler.onResponse(session, response, executionTime, cHandler);
+                    }
+                    if (response != null) {
+                        ((ProtocolSessionImpl) session).getProtocolTransport().writeResponse(response, session);
+                    }
+                }
+            }
+            super.channelActive(ctx);
+        }
+    }
+
+    /**
+     * Call the {@link DisconnectHandler} instances and clean the session up
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        try (Closeable closeable = ProtocolMDCContext.from(protocol, ctx)) {
+            ProtocolSession session = ctx.channel().attr(SESSION).get();
+            if (session != null) {
+                List<DisconnectHandler> disconnectHandlers = chain.getHandlers(DisconnectHandler.class);
+                if (disconnectHandlers != null) {
+                    for (DisconnectHandler disconnectHandler : disconnectHandlers) {
+                        disconnectHandler.onDisconnect(session);
+                    }
+                }
+                LOGGER.info("Connection closed for {}", session.getRemoteAddress().getAddress().getHostAddress());
+            }
+            cleanup(ctx);
+            super.channelInactive(ctx);
+        }
+    }
+
+    /**
+     * Call the {@link LineHandler}
+     *
+     * The line is copied out of the (pooled) buffer as {@link LineHandler}s may keep a reference to it.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ByteBuf buf) throws Exception {
+        try (Closeable closeable = ProtocolMDCContext.from(protocol, ctx)) {
+            ProtocolSession pSession = ctx.channel().attr(SESSION).get();
+            LinkedList<LineHandler> lineHandlers = chain.getHandlers(LineHandler.class);
+            LinkedList<ProtocolHandlerResultHandler> resultHandlers = chain.getHandlers(ProtocolHandlerResultHandler.class);
+
+            if (lineHandlers.size() > 0) {
+                LineHandler lHandler = lineHandlers.getLast();
+                long start = System.currentTimeMillis();
+                Response response = lHandler.onLine(pSession, ByteBuffer.wrap(ByteBufUtil.getBytes(buf)));
+                long executionTime = System.currentTimeMillis() - start;
+
+                for (ProtocolHandlerResultHandler resultHandler : resultHandlers) {
+                    // Disable till PROTOCOLS-37 is implemented
+                    if (response instanceof FutureResponse) {
+                        LOGGER.debug("ProtocolHandlerResultHandler are not supported for FutureResponse yet");
+                        break;
+                    }
+                    response = resultHandler.onResponse(pSession, response, executionTime, lHandler);
+                }
+                if (response != null) {
+                    ((ProtocolSessionImpl) pSession).getProtocolTransport().writeResponse(response, pSession);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cleanup the channel
+     */
+    protected void cleanup(ChannelHandlerContext ctx) {
+        ProtocolSession session = ctx.channel().attr(SESSION).get();
+        if (session != null) {
+            session.resetState();
+        }
+    }
+
+    protected ProtocolSession createSession(ChannelHandlerContext ctx) throws Exception {
+        SSLEngine engine = null;
+        if (secure != null) {
+            engine = secure.getContext().createSSLEngine();
+            String[] enabledCipherSuites = secure.getEnabledCipherSuites();
+            if (enabledCipherSuites != null && enabledCipherSuites.length > 0) {
+                engine.setEnabledCipherSuites(enabledCipherSuites);
+            }
+        }
+        return protocol.newSession(new Netty4ProtocolTransport(ctx.channel(), engine));
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        try (Closeable closeable = ProtocolMDCContext.from(protocol, ctx)) {
+            ProtocolSession session = ctx.channel().attr(SESSION).get();
+            if (cause instanceof TooLongFrameException && session != null) {
+                Response r = session.newLineTooLongResponse();
+                ProtocolTransport transport = ((ProtocolSessionImpl) session).getProtocolTransport();
+                if (r != null) {
+                    transport.writeResponse(r, session);
+                }
+            } else {
+                if (ctx.channel().isActive() && session != null) {
+                    ProtocolTransport transport = ((ProtocolSessionImpl) session).getProtocolTransport();
+                    Response r = session.newFatalErrorResponse();
+                    if (r != null) {
+                        transport.writeResponse(r, session);
+                    }
+                    transport.writeResponse(Response.DISCONNECT, session);
+                }
+                LOGGER.error("Unable to process request", cause);
+                cleanup(ctx);
+            }
+        }
+    }
+}
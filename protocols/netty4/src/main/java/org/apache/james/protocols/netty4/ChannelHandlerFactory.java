@@ -16,21 +16,14 @@
  * specific language governing permissions and limitations      *
  * under the License.                                           *
  ****************************************************************/
-package org.apache.james.mailbox.store.search.comparator;
 
-import java.util.Comparator;
+package org.apache.james.protocols.netty4;
 
-import org.apache.james.mailbox.store.mail.model.MailboxMessage;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelPipeline;
 
-/**
- * {@link Comparator} which compares {@link MailboxMessage}'s with their {@link MailboxMessage#getInternalDate()} value
- */
-public class InternalDateComparator  implements Comparator<MailboxMessage> {
-    public static final Comparator<MailboxMessage> INTERNALDATE = new InternalDateComparator();
+public interface ChannelHandlerFactory {
 
-    @Override
-    public int compare(MailboxMessage o1, MailboxMessage o2) {
-        return (o1.getInternalDate().compareTo(o2.getInternalDate()));
-    }
+    ChannelHandler create(ChannelPipeline pipeline);
 
-}
\ No newline at end of file
+}
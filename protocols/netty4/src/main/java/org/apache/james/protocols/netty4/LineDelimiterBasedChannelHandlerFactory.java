@@ -16,23 +16,25 @@
  * specific language governing permissions and limitations      *
  * under the License.                                           *
  ****************************************************************/
-package org.apache.james.mailbox.store.search.comparator;
 
-import java.util.Comparator;
+package org.apache.james.protocols.netty4;
 
-import org.apache.james.mailbox.store.mail.model.MailboxMessage;
-import org.apache.james.mailbox.store.search.SearchUtil;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.LineBasedFrameDecoder;
 
-public class BaseSubjectComparator extends AbstractHeaderComparator {
+public class LineDelimiterBasedChannelHandlerFactory implements ChannelHandlerFactory {
+    private static final boolean STRIP_DELIMITER = true;
+    private static final boolean FAIL_FAST = true;
+    private final int maxLineLength;
 
-    public static final Comparator<MailboxMessage> BASESUBJECT = new BaseSubjectComparator();
-    private static final String SUBJECT = "subject";
-    
-    @Override
-    public int compare(MailboxMessage o1, MailboxMessage o2) {
-        String baseSubject1 = SearchUtil.getBaseSubject(getHeaderValue(SUBJECT, o1));
-        String baseSubject2 = SearchUtil.getBaseSubject(getHeaderValue(SUBJECT, o2));
+    public LineDelimiterBasedChannelHandlerFactory(int maxLineLength) {
+        this.maxLineLength = maxLineLength;
+    }
 
-        return baseSubject1.compareToIgnoreCase(baseSubject2);
+    @Override
+    public ChannelHandler create(ChannelPipeline pipeline) {
+        return new LineBasedFrameDecoder(maxLineLength, !STRIP_DELIMITER, !FAIL_FAST);
     }
+
 }
@@ -0,0 +1,191 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.protocols.netty4;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+
+import javax.net.ssl.SSLEngine;
+
+import org.apache.james.protocols.api.AbstractProtocolTransport;
+import org.apache.james.protocols.api.CombinedInputStream;
+import org.apache.james.protocols.api.ProtocolSession;
+import org.apache.james.protocols.api.handler.LineHandler;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedStream;
+
+/**
+ * A Netty 4 implementation of a ProtocolTransport
+ */
+public class Netty4ProtocolTransport extends AbstractProtocolTransport {
+
+    private static final String LINE_HANDLER_PREFIX = "lineHandler";
+
+    private final Channel channel;
+    private final SSLEngine engine;
+    private int lineHandlerCount = 0;
+
+    public Netty4ProtocolTransport(Channel channel, SSLEngine engine) {
+        this.channel = channel;
+        this.engine = engine;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return (InetSocketAddress) channel.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return (InetSocketAddress) channel.localAddress();
+    }
+
+    @Override
+    public String getId() {
+        return channel.id().asShortText();
+    }
+
+    @Override
+    public boolean isTLSStarted() {
+        return channel.pipeline().get(SslHandler.class) != null;
+    }
+
+    @Override
+    public boolean isStartTLSSupported() {
+        return engine != null;
+    }
+
+    @Override
+    public void popLineHandler() {
+        if (lineHandlerCount > 0) {
+            channel.pipeline().remove(LINE_HANDLER_PREFIX + lineHandlerCount);
+            lineHandlerCount--;
+        }
+    }
+
+    @Override
+    public int getPushedLineHandlerCount() {
+        return lineHandlerCount;
+    }
+
+    @Override
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void pushLineHandler(LineHandler<? extends ProtocolSession> overrideCommandHandler, ProtocolSession session) {
+        lineHandlerCount++;
+        ChannelPipeline pipeline = channel.pipeline();
+        // Run the line handler on the same executor as the core handler, so that lines keep being
+        // processed in order whether or not the core handler is offloaded from the event loop
+        pipeline.addBefore(pipeline.context(HandlerConstants.CORE_HANDLER).executor(),
+            HandlerConstants.CORE_HANDLER,
+            LINE_HANDLER_PREFIX + lineHandlerCount,
+            new LineHandlerInboundHandler(session, overrideCommandHandler));
+    }
+
+    /**
+     * Add the {@link SslHandler} to the pipeline and start encrypting after the next written message
+     */
+    private void prepareStartTLS() {
+        engine.setUseClientMode(false);
+        SslHandler filter = new SslHandler(engine, true);
+        channel.pipeline().addFirst(HandlerConstants.SSL_HANDLER, filter);
+    }
+
+    @Override
+    protected void writeToClient(byte[] bytes, ProtocolSession session, boolean startTLS) {
+        if (startTLS) {
+            prepareStartTLS();
+        }
+        channel.writeAndFlush(Unpooled.wrappedBuffer(bytes));
+    }
+
+    @Override
+    protected void writeToClient(InputStream in, ProtocolSession session, boolean startTLS) {
+        if (startTLS) {
+            prepareStartTLS();
+        }
+        if (in instanceof CombinedInputStream) {
+            for (InputStream part : (CombinedInputStream) in) {
+                write(part);
+            }
+        } else {
+            write(in);
+        }
+        channel.flush();
+    }
+
+    /**
+     * Files are handed to the kernel with a zero-copy {@link DefaultFileRegion} unless the data
+     * needs to be encrypted first
+     */
+    private void write(InputStream in) {
+        if (in instanceof FileInputStream && !isTLSStarted()) {
+            FileChannel fileChannel = ((FileInputStream) in).getChannel();
+            try {
+                long position = fileChannel.position();
+                channel.write(new DefaultFileRegion(fileChannel, position, fileChannel.size() - position));
+                return;
+            } catch (IOException e) {
+                channel.write(new ChunkedStream(new ExceptionInputStream(e)));
+                return;
+            }
+        }
+        channel.write(new ChunkedStream(in));
+    }
+
+    @Override
+    protected void close() {
+        channel.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    @Override
+    public void setReadable(boolean readable) {
+        channel.config().setAutoRead(readable);
+    }
+
+    @Override
+    public boolean isReadable() {
+        return channel.config().isAutoRead();
+    }
+
+    /**
+     * {@link InputStream} which just re-throw the {@link IOException} on the next {@link #read()} operation.
+     */
+    private static final class ExceptionInputStream extends InputStream {
+        private final IOException e;
+
+        public ExceptionInputStream(IOException e) {
+            this.e = e;
+        }
+
+        @Override
+        public int read() throws IOException {
+            throw e;
+        }
+    }
+}
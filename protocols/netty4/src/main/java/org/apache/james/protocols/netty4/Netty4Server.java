@@ -0,0 +1,125 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.protocols.netty4;
+
+import java.util.Optional;
+
+import org.apache.james.protocols.api.Encryption;
+import org.apache.james.protocols.api.Protocol;
+import org.apache.james.protocols.api.ProtocolServer;
+import org.apache.james.protocols.api.handler.ProtocolHandler;
+
+import com.google.common.base.Preconditions;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+/**
+ * Generic {@link ProtocolServer} built on Netty 4.
+ *
+ * This is an alternative to the Netty 3 based {@code NettyServer} running the same {@link Protocol}: it uses
+ * the native epoll transport when available, pooled buffers for reading, and runs the {@link ProtocolHandler}s
+ * on the event loop of each connection unless an executor is requested.
+ */
+public class Netty4Server extends AbstractNetty4Server {
+
+    public static final int MAX_LINE_LENGTH = 8192;
+
+    public static class Factory {
+
+        private Protocol protocol;
+        private Optional<Encryption> secure;
+        private Optional<ChannelHandlerFactory> frameHandlerFactory;
+
+        public Factory() {
+            secure = Optional.empty();
+            frameHandlerFactory = Optional.empty();
+        }
+
+        public Factory protocol(Protocol protocol) {
+            Preconditions.checkNotNull(protocol, "'protocol' is mandatory");
+            this.protocol = protocol;
+            return this;
+        }
+
+        public Factory secure(Encryption secure) {
+            this.secure = Optional.ofNullable(secure);
+            return this;
+        }
+
+        public Factory frameHandlerFactory(ChannelHandlerFactory frameHandlerFactory) {
+            this.frameHandlerFactory = Optional.ofNullable(frameHandlerFactory);
+            return this;
+        }
+
+        public Netty4Server build() {
+            Preconditions.checkState(protocol != null, "'protocol' is mandatory");
+            return new Netty4Server(protocol,
+                secure,
+                frameHandlerFactory.orElse(new LineDelimiterBasedChannelHandlerFactory(MAX_LINE_LENGTH)));
+        }
+    }
+
+    private final Protocol protocol;
+    private final Optional<Encryption> secure;
+    private final ChannelHandlerFactory frameHandlerFactory;
+    private volatile int maxCurConnections;
+    private volatile int maxCurConnectionsPerIP;
+
+    private Netty4Server(Protocol protocol, Optional<Encryption> secure, ChannelHandlerFactory frameHandlerFactory) {
+        this.protocol = protocol;
+        this.secure = secure;
+        this.frameHandlerFactory = frameHandlerFactory;
+    }
+
+    public void setMaxConcurrentConnections(int maxCurConnections) {
+        checkNotStarted();
+        this.maxCurConnections = maxCurConnections;
+    }
+
+    public void setMaxConcurrentConnectionsPerIP(int maxCurConnectionsPerIP) {
+        checkNotStarted();
+        this.maxCurConnectionsPerIP = maxCurConnectionsPerIP;
+    }
+
+    protected ChannelHandler createCoreHandler() {
+        return new BasicChannelInboundHandler(protocol, secure.orElse(null));
+    }
+
+    @Override
+    protected String getThreadNamePrefix() {
+        return protocol.getName();
+    }
+
+    @Override
+    protected ChannelInitializer<SocketChannel> createChannelInitializer(ChannelGroup channels, Optional<EventExecutorGroup> executorGroup) {
+        return new ProtocolChannelInitializer(channels,
+            maxCurConnections,
+            maxCurConnectionsPerIP,
+            frameHandlerFactory,
+            getTimeout(),
+            secure,
+            executorGroup,
+            createCoreHandler());
+    }
+}
@@ -0,0 +1,110 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.protocols.netty4;
+
+import java.util.Optional;
+
+import javax.net.ssl.SSLEngine;
+
+import org.apache.james.protocols.api.Encryption;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+/**
+ * Build the {@link ChannelPipeline} of each accepted connection.
+ *
+ * The core handler runs on the event loop of the connection unless an {@link EventExecutorGroup}
+ * is given, in which case it is offloaded there so that blocking {@link org.apache.james.protocols.api.handler.ProtocolHandler}s
+ * do not stall the other connections of the loop.
+ */
+public class ProtocolChannelInitializer extends ChannelInitializer<SocketChannel> {
+
+    private final ChannelGroup channels;
+    private final ConnectionLimitHandler connectionLimitHandler;
+    private final ConnectionPerIpLimitHandler connectionPerIpLimitHandler;
+    private final ChannelHandlerFactory frameHandlerFactory;
+    private final int timeout;
+    private final Optional<Encryption> secure;
+    private final Optional<EventExecutorGroup> executorGroup;
+    private final ChannelHandler coreHandler;
+
+    public ProtocolChannelInitializer(ChannelGroup channels, int maxConnections, int maxConnectionsPerIp,
+                                      ChannelHandlerFactory frameHandlerFactory, int timeout, Optional<Encryption> secure,
+                                      Optional<EventExecutorGroup> executorGroup, ChannelHandler coreHandler) {
+        this.channels = channels;
+        this.connectionLimitHandler = new ConnectionLimitHandler(maxConnections);
+        this.connectionPerIpLimitHandler = new ConnectionPerIpLimitHandler(maxConnectionsPerIp);
+        this.frameHandlerFactory = frameHandlerFactory;
+        this.timeout = timeout;
+        this.secure = secure;
+        this.executorGroup = executorGroup;
+        this.coreHandler = coreHandler;
+    }
+
+    @Override
+    protected void initChannel(SocketChannel channel) {
+        // Closed channels leave the group on their own
+        channels.add(channel);
+
+        ChannelPipeline pipeline = channel.pipeline();
+        if (isSSLSocket()) {
+            pipeline.addLast(HandlerConstants.SSL_HANDLER, new SslHandler(createSSLEngine(secure.get())));
+        }
+        pipeline.addLast(HandlerConstants.CONNECTION_LIMIT_HANDLER, connectionLimitHandler);
+        pipeline.addLast(HandlerConstants.CONNECTION_PER_IP_LIMIT_HANDLER, connectionPerIpLimitHandler);
+        // Add the text line decoder which limit the max line length, don't strip the delimiter and use CRLF as delimiter
+        pipeline.addLast(HandlerConstants.FRAMER, frameHandlerFactory.create(pipeline));
+        // Add the ChunkedWriteHandler to be able to write ChunkInput
+        pipeline.addLast(HandlerConstants.CHUNK_HANDLER, new ChunkedWriteHandler());
+        pipeline.addLast(HandlerConstants.TIMEOUT_HANDLER, new TimeoutHandler(timeout));
+        addBeforeCoreHandler(pipeline);
+        pipeline.addLast(executorGroup.orElse(null), HandlerConstants.CORE_HANDLER, coreHandler);
+    }
+
+    /**
+     * Hook allowing to add {@link ChannelHandler}s running on the event loop, right before the core handler
+     */
+    protected void addBeforeCoreHandler(ChannelPipeline pipeline) {
+        // override me
+    }
+
+    private boolean isSSLSocket() {
+        return secure.map(encryption -> !encryption.isStartTLS()).orElse(false);
+    }
+
+    private SSLEngine createSSLEngine(Encryption encryption) {
+        // We need to set clientMode to false.
+        // See https://issues.apache.org/jira/browse/JAMES-1025
+        SSLEngine engine = encryption.getContext().createSSLEngine();
+        engine.setUseClientMode(false);
+        String[] enabledCipherSuites = encryption.getEnabledCipherSuites();
+        if (enabledCipherSuites != null && enabledCipherSuites.length > 0) {
+            engine.setEnabledCipherSuites(enabledCipherSuites);
+        }
+        return engine;
+    }
+}
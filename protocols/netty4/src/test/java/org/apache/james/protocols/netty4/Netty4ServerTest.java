@@ -0,0 +1,153 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.protocols.netty4;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.InetSocketAddress;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.james.protocols.api.Encryption;
+import org.apache.james.protocols.api.Protocol;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class Netty4ServerTest {
+
+    private static final String LOCALHOST_IP = "127.0.0.1";
+    private static final int RANDOM_PORT = 0;
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private Netty4Server server;
+
+    @After
+    public void teardown() {
+        if (server != null) {
+            server.unbind();
+        }
+    }
+
+    @Test
+    public void protocolShouldThrowWhenProtocolIsNull() {
+        expectedException.expect(NullPointerException.class);
+
+        new Netty4Server.Factory().protocol(null);
+    }
+
+    @Test
+    public void buildShouldThrowWhenProtocolIsNotGiven() {
+        expectedException.expect(IllegalStateException.class);
+
+        new Netty4Server.Factory()
+            .build();
+    }
+
+    @Test
+    public void buildShouldWorkWhenEverythingIsGiven() throws Exception {
+        Protocol protocol = mock(Protocol.class);
+        Encryption encryption = Encryption.createStartTls(SSLContext.getDefault());
+        ChannelHandlerFactory channelHandlerFactory = mock(ChannelHandlerFactory.class);
+
+        new Netty4Server.Factory()
+            .protocol(protocol)
+            .secure(encryption)
+            .frameHandlerFactory(channelHandlerFactory)
+            .build();
+    }
+
+    @Test
+    public void getTransportTypeShouldBeNioWhenNativeTransportIsNotPreferred() {
+        server = new Netty4Server.Factory()
+            .protocol(mock(Protocol.class))
+            .build();
+
+        server.setPreferNativeTransport(false);
+
+        assertThat(server.getTransportType()).isEqualTo(TransportType.NIO);
+    }
+
+    @Test
+    public void bindShouldListenOnTheGivenAddresses() throws Exception {
+        server = newServer();
+
+        server.bind();
+
+        assertThat(server.isBound()).isTrue();
+        assertThat(server.getListenAddresses()).hasSize(1);
+        assertThat(server.getListenAddresses().get(0).getPort()).isPositive();
+    }
+
+    @Test
+    public void bindShouldWorkWithAnExecutor() throws Exception {
+        server = newServer();
+        server.setUseExecutionHandler(true, 2);
+
+        server.bind();
+
+        assertThat(server.isBound()).isTrue();
+    }
+
+    @Test
+    public void unbindShouldReleaseTheAddresses() throws Exception {
+        server = newServer();
+        server.bind();
+
+        server.unbind();
+
+        assertThat(server.isBound()).isFalse();
+        assertThat(server.getListenAddresses()).isEmpty();
+    }
+
+    @Test
+    public void settersShouldThrowWhenBound() throws Exception {
+        server = newServer();
+        server.bind();
+
+        expectedException.expect(IllegalStateException.class);
+
+        server.setTimeout(10);
+    }
+
+    @Test
+    public void setUseExecutionHandlerShouldThrowOnNonPositiveSize() {
+        server = newServer();
+
+        expectedException.expect(IllegalArgumentException.class);
+
+        server.setUseExecutionHandler(true, 0);
+    }
+
+    private Netty4Server newServer() {
+        Protocol protocol = mock(Protocol.class);
+        when(protocol.getName()).thenReturn("test");
+        Netty4Server netty4Server = new Netty4Server.Factory()
+            .protocol(protocol)
+            .build();
+        netty4Server.setListenAddresses(new InetSocketAddress(LOCALHOST_IP, RANDOM_PORT));
+        return netty4Server;
+    }
+}
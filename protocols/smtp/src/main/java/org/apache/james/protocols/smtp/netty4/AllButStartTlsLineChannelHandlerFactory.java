@@ -16,20 +16,23 @@
  * specific language governing permissions and limitations      *
  * under the License.                                           *
  ****************************************************************/
-package org.apache.james.mailbox.store.search.comparator;
+package org.apache.james.protocols.smtp.netty4;
 
-import java.util.Comparator;
+import org.apache.james.protocols.netty4.ChannelHandlerFactory;
 
-import org.apache.james.mailbox.store.mail.model.MailboxMessage;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelPipeline;
 
-/**
- * {@link Comparator} which compares {@link MailboxMessage}'s with their {@link MailboxMessage#getFullContentOctets()} value
- */
-public class SizeComparator implements Comparator<MailboxMessage> {
-    public static final Comparator<MailboxMessage> SIZE = new SizeComparator();
+public class AllButStartTlsLineChannelHandlerFactory implements ChannelHandlerFactory {
+
+    private final int maxFrameLength;
+
+    public AllButStartTlsLineChannelHandlerFactory(int maxFrameLength) {
+        this.maxFrameLength = maxFrameLength;
+    }
 
     @Override
-    public int compare(MailboxMessage o1, MailboxMessage o2) {
-        return (int) (o1.getFullContentOctets() - o2.getFullContentOctets());
+    public ChannelHandler create(ChannelPipeline pipeline) {
+        return new AllButStartTlsLineBasedInboundHandler(maxFrameLength, false);
     }
 }
@@ -0,0 +1,216 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.blob.api;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.james.blob.api.BlobReferenceRegistry.Orphan;
+import org.apache.james.task.Task;
+import org.apache.james.task.TaskExecutionDetails;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deletes the blobs no longer referenced, as tracked by the {@link BlobReferenceRegistry}.
+ *
+ * Refuses to run until {@link BlobReferenceBackfillTask} completed, as blobs stored before references were counted
+ * could otherwise be deleted while still in use.
+ *
+ * Only orphans are examined, once they are older than a grace period. Each orphan is first claimed, which fails if
+ * it was referenced again since it was listed. The blob is then marked as being deleted, and its reference count
+ * checked again: as writers reference blobs before saving them, and wait for the deletion mark to be removed, a
+ * concurrent writer either prevents the deletion or saves the blob again once it is deleted.
+ */
+public class BlobGarbageCollectionTask implements Task {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlobGarbageCollectionTask.class);
+
+    public static final String BLOB_GARBAGE_COLLECTION = "blobGarbageCollection";
+    public static final Duration DEFAULT_GRACE_PERIOD = Duration.ofHours(1);
+
+    public static class Details implements TaskExecutionDetails.AdditionalInformation {
+        private final long orphanCount;
+        private final long recentOrphanCount;
+        private final long deletedBlobCount;
+        private final long referencedBlobCount;
+        private final long failedBlobCount;
+
+        public Details(long orphanCount, long recentOrphanCount, long deletedBlobCount, long referencedBlobCount, long failedBlobCount) {
+            this.orphanCount = orphanCount;
+            this.recentOrphanCount = recentOrphanCount;
+            this.deletedBlobCount = deletedBlobCount;
+            this.referencedBlobCount = referencedBlobCount;
+            this.failedBlobCount = failedBlobCount;
+        }
+
+        public long getOrphanCount() {
+            return orphanCount;
+        }
+
+        public long getRecentOrphanCount() {
+            return recentOrphanCount;
+        }
+
+        public long getDeletedBlobCount() {
+            return deletedBlobCount;
+        }
+
+        public long getReferencedBlobCount() {
+            return referencedBlobCount;
+        }
+
+        public long getFailedBlobCount() {
+            return failedBlobCount;
+        }
+    }
+
+    public static class Context {
+        private final AtomicLong orphanCount;
+        private final AtomicLong recentOrphanCount;
+        private final AtomicLong deletedBlobCount;
+        private final AtomicLong referencedBlobCount;
+        private final AtomicLong failedBlobCount;
+
+        public Context() {
+            this.orphanCount = new AtomicLong(0L);
+            this.recentOrphanCount = new AtomicLong(0L);
+            this.deletedBlobCount = new AtomicLong(0L);
+            this.referencedBlobCount = new AtomicLong(0L);
+            this.failedBlobCount = new AtomicLong(0L);
+        }
+
+        public long getOrphanCount() {
+            return orphanCount.get();
+        }
+
+        public long getRecentOrphanCount() {
+            return recentOrphanCount.get();
+        }
+
+        public long getDeletedBlobCount() {
+            return deletedBlobCount.get();
+        }
+
+        public long getReferencedBlobCount() {
+            return referencedBlobCount.get();
+        }
+
+        public long getFailedBlobCount() {
+            return failedBlobCount.get();
+        }
+    }
+
+    private final BlobStore blobStore;
+    private final BlobReferenceRegistry referenceRegistry;
+    private final Duration gracePeriod;
+    private final Context context;
+
+    public BlobGarbageCollectionTask(BlobStore blobStore, BlobReferenceRegistry referenceRegistry, Duration gracePeriod) {
+        this.blobStore = blobStore;
+        this.referenceRegistry = referenceRegistry;
+        this.gracePeriod = gracePeriod;
+        this.context = new Context();
+    }
+
+    public BlobGarbageCollectionTask(BlobStore blobStore, BlobReferenceRegistry referenceRegistry) {
+        this(blobStore, referenceRegistry, DEFAULT_GRACE_PERIOD);
+    }
+
+    @Override
+    public Result run() {
+        try {
+            if (!referenceRegistry.isBackfillCompleted().join()) {
+                LOGGER.error("Blob references were not backfilled, refusing to collect orphan blobs");
+                return Result.PARTIAL;
+            }
+            Instant orphanedBefore = Instant.now().minus(gracePeriod);
+            return referenceRegistry.listOrphans()
+                .join()
+                .map(orphan -> collect(orphan, orphanedBefore))
+                .reduce(Task::combine)
+                .orElse(Result.COMPLETED);
+        } catch (Exception e) {
+            LOGGER.error("Error while listing orphan blobs", e);
+            return Result.PARTIAL;
+        }
+    }
+
+    private Result collect(Orphan orphan, Instant orphanedBefore) {
+        context.orphanCount.incrementAndGet();
+        if (orphan.getOrphanedAt().isAfter(orphanedBefore)) {
+            context.recentOrphanCount.incrementAndGet();
+            return Result.COMPLETED;
+        }
+        BlobId blobId = orphan.getBlobId();
+        try {
+            if (!referenceRegistry.claimOrphan(orphan).join() || isReferenced(blobId)) {
+                context.referencedBlobCount.incrementAndGet();
+                return Result.COMPLETED;
+            }
+            if (!referenceRegistry.startDeletion(blobId).join()) {
+                LOGGER.info("Blob {} is already being deleted", blobId.asString());
+                return Result.COMPLETED;
+            }
+            try {
+                return delete(blobId);
+            } finally {
+                referenceRegistry.endDeletion(blobId).join();
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error while deleting orphan blob {}", blobId.asString(), e);
+            context.failedBlobCount.incrementAndGet();
+            return Result.PARTIAL;
+        }
+    }
+
+    private Result delete(BlobId blobId) {
+        if (isReferenced(blobId)) {
+            context.referencedBlobCount.incrementAndGet();
+            return Result.COMPLETED;
+        }
+        blobStore.delete(blobId).join();
+        context.deletedBlobCount.incrementAndGet();
+        return Result.COMPLETED;
+    }
+
+    /**
+     * Any non zero count prevents the deletion: a negative count means some references were never counted.
+     */
+    private boolean isReferenced(BlobId blobId) {
+        return referenceRegistry.countReferences(blobId).join() != 0
+            || referenceRegistry.isUntracked(blobId).join();
+    }
+
+    @Override
+    public String type() {
+        return BLOB_GARBAGE_COLLECTION;
+    }
+
+    @Override
+    public Optional<TaskExecutionDetails.AdditionalInformation> details() {
+        return Optional.of(new Details(
+            context.getOrphanCount(),
+            context.getRecentOrphanCount(),
+            context.getDeletedBlobCount(),
+            context.getReferencedBlobCount(),
+            context.getFailedBlobCount()));
+    }
+}
@@ -19,13 +19,20 @@
 
 package org.apache.james.blob.api;
 
+import java.io.IOException;
 import java.util.UUID;
 
+import com.google.common.io.ByteSource;
+
 public interface BlobId {
 
     interface Factory {
         BlobId forPayload(byte[] payload);
 
+        default BlobId forPayload(ByteSource payload) throws IOException {
+            return forPayload(payload.read());
+        }
+
         BlobId from(String id);
 
         default BlobId randomId() {
@@ -0,0 +1,111 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.blob.api;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.james.task.Task;
+import org.apache.james.task.TaskExecutionDetails;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers every stored blob as untracked in the {@link BlobReferenceRegistry}, then records the backfill as
+ * completed, which allows {@link BlobGarbageCollectionTask} to run.
+ *
+ * The references of blobs stored before references were counted are unknown, so such blobs are never collected.
+ * Blobs saved after references were counted but before the backfill are registered too: they are kept forever,
+ * which is safe.
+ */
+public class BlobReferenceBackfillTask implements Task {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlobReferenceBackfillTask.class);
+
+    public static final String BLOB_REFERENCE_BACKFILL = "blobReferenceBackfill";
+
+    public static class Details implements TaskExecutionDetails.AdditionalInformation {
+        private final long untrackedBlobCount;
+        private final long failedBlobCount;
+
+        public Details(long untrackedBlobCount, long failedBlobCount) {
+            this.untrackedBlobCount = untrackedBlobCount;
+            this.failedBlobCount = failedBlobCount;
+        }
+
+        public long getUntrackedBlobCount() {
+            return untrackedBlobCount;
+        }
+
+        public long getFailedBlobCount() {
+            return failedBlobCount;
+        }
+    }
+
+    private final BlobStore blobStore;
+    private final BlobReferenceRegistry referenceRegistry;
+    private final AtomicLong untrackedBlobCount;
+    private final AtomicLong failedBlobCount;
+
+    public BlobReferenceBackfillTask(BlobStore blobStore, BlobReferenceRegistry referenceRegistry) {
+        this.blobStore = blobStore;
+        this.referenceRegistry = referenceRegistry;
+        this.untrackedBlobCount = new AtomicLong(0L);
+        this.failedBlobCount = new AtomicLong(0L);
+    }
+
+    @Override
+    public Result run() {
+        try {
+            Result result = blobStore.listBlobs()
+                .join()
+                .map(this::registerUntracked)
+                .reduce(Task::combine)
+                .orElse(Result.COMPLETED);
+            if (result == Result.COMPLETED) {
+                referenceRegistry.completeBackfill().join();
+            }
+            return result;
+        } catch (Exception e) {
+            LOGGER.error("Error while listing stored blobs", e);
+            return Result.PARTIAL;
+        }
+    }
+
+    private Result registerUntracked(BlobId blobId) {
+        try {
+            referenceRegistry.registerUntracked(blobId).join();
+            untrackedBlobCount.incrementAndGet();
+            return Result.COMPLETED;
+        } catch (Exception e) {
+            LOGGER.error("Error while registering untracked blob {}", blobId.asString(), e);
+            failedBlobCount.incrementAndGet();
+            return Result.PARTIAL;
+        }
+    }
+
+    @Override
+    public String type() {
+        return BLOB_REFERENCE_BACKFILL;
+    }
+
+    @Override
+    public Optional<TaskExecutionDetails.AdditionalInformation> details() {
+        return Optional.of(new Details(untrackedBlobCount.get(), failedBlobCount.get()));
+    }
+}
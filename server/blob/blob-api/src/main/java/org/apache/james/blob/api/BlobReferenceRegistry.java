@@ -0,0 +1,185 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.blob.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import org.apache.james.util.CompletableFutureUtil;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import com.google.common.io.FileBackedOutputStream;
+
+/**
+ * Counts how many stored objects reference a given blob.
+ *
+ * As blob ids are derived from the content, a blob can be shared by several objects: every writer of the
+ * {@link BlobStore} thus needs to reference the blobs it saves. A blob whose reference count drops from one to zero
+ * is recorded as an orphan, and can then be deleted by {@link BlobGarbageCollectionTask} without scanning the whole
+ * blob store.
+ *
+ * Blobs stored before references were counted have unknown references: dereferencing them leads to negative or
+ * misleading counts. {@link BlobReferenceBackfillTask} registers them as untracked, and they are never collected.
+ */
+public interface BlobReferenceRegistry {
+
+    int SPOOL_THRESHOLD_IN_BYTES = 1024 * 1024;
+
+    class Orphan {
+        private final BlobId blobId;
+        private final Instant orphanedAt;
+
+        public Orphan(BlobId blobId, Instant orphanedAt) {
+            this.blobId = blobId;
+            this.orphanedAt = orphanedAt;
+        }
+
+        public BlobId getBlobId() {
+            return blobId;
+        }
+
+        public Instant getOrphanedAt() {
+            return orphanedAt;
+        }
+
+        @Override
+        public final boolean equals(Object o) {
+            if (o instanceof Orphan) {
+                Orphan orphan = (Orphan) o;
+
+                return Objects.equals(this.blobId, orphan.blobId)
+                    && Objects.equals(this.orphanedAt, orphan.orphanedAt);
+            }
+            return false;
+        }
+
+        @Override
+        public final int hashCode() {
+            return Objects.hash(blobId, orphanedAt);
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                .add("blobId", blobId)
+                .add("orphanedAt", orphanedAt)
+                .toString();
+        }
+    }
+
+    /**
+     * Waits for any ongoing deletion of the blob to complete, so that the blob can be saved once this completes.
+     */
+    CompletableFuture<Void> reference(BlobId blobId);
+
+    CompletableFuture<Void> dereference(BlobId blobId);
+
+    /**
+     * A negative count means the blob has references that were never counted.
+     */
+    CompletableFuture<Long> countReferences(BlobId blobId);
+
+    CompletableFuture<Stream<Orphan>> listOrphans();
+
+    /**
+     * Removes the orphan entry, provided it was not referenced nor orphaned again since it was listed.
+     *
+     * @return true if this call removed the entry
+     */
+    CompletableFuture<Boolean> claimOrphan(Orphan orphan);
+
+    /**
+     * Marks the blob as being deleted. Until {@link #endDeletion(BlobId)}, {@link #reference(BlobId)} waits.
+     *
+     * @return false if the blob is already being deleted
+     */
+    CompletableFuture<Boolean> startDeletion(BlobId blobId);
+
+    CompletableFuture<Void> endDeletion(BlobId blobId);
+
+    CompletableFuture<Void> registerUntracked(BlobId blobId);
+
+    CompletableFuture<Boolean> isUntracked(BlobId blobId);
+
+    CompletableFuture<Void> completeBackfill();
+
+    CompletableFuture<Boolean> isBackfillCompleted();
+
+    /**
+     * Saves a blob on behalf of a writer not relying on {@link Store}.
+     *
+     * The blob is referenced before being written: a concurrent garbage collection either sees the reference, or
+     * has started deleting the blob, in which case the write waits for the deletion to complete.
+     */
+    default CompletableFuture<BlobId> save(BlobStore blobStore, BlobId.Factory blobIdFactory, byte[] data) {
+        BlobId blobId = blobIdFactory.forPayload(data);
+        return reference(blobId)
+            .thenCompose(any -> blobStore.save(data))
+            .thenApply(savedBlobId -> {
+                Preconditions.checkState(savedBlobId.equals(blobId), "Blob was saved as %s but referenced as %s",
+                    savedBlobId.asString(), blobId.asString());
+                return savedBlobId;
+            });
+    }
+
+    /**
+     * Streaming variant of {@link #save(BlobStore, BlobId.Factory, byte[])}.
+     *
+     * The id has to be known before the blob is written, so the content is spooled first: in memory up to
+     * {@link #SPOOL_THRESHOLD_IN_BYTES}, then to a temporary file deleted once the save completes.
+     */
+    default CompletableFuture<BlobId> save(BlobStore blobStore, BlobId.Factory blobIdFactory, InputStream data) {
+        FileBackedOutputStream spool = new FileBackedOutputStream(SPOOL_THRESHOLD_IN_BYTES);
+        try {
+            ByteStreams.copy(data, spool);
+            spool.close();
+            BlobId blobId = blobIdFactory.forPayload(spool.asByteSource());
+            InputStream spooledData = spool.asByteSource().openStream();
+            return reference(blobId)
+                .thenCompose(any -> blobStore.save(spooledData))
+                .thenApply(savedBlobId -> {
+                    Preconditions.checkState(savedBlobId.equals(blobId), "Blob was saved as %s but referenced as %s",
+                        savedBlobId.asString(), blobId.asString());
+                    return savedBlobId;
+                })
+                .whenComplete((any, error) -> {
+                    Closeables.closeQuietly(spooledData);
+                    resetSpool(spool);
+                });
+        } catch (IOException e) {
+            resetSpool(spool);
+            return CompletableFutureUtil.exceptionallyFuture(new ObjectStoreException("Failed to spool blob content", e));
+        }
+    }
+
+    static void resetSpool(FileBackedOutputStream spool) {
+        try {
+            spool.reset();
+        } catch (IOException e) {
+            throw new ObjectStoreException("Failed to delete spooled blob content", e);
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.james.blob.api;
 
 import java.io.InputStream;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public interface BlobStore {
 
@@ -30,4 +31,11 @@ public interface BlobStore {
     CompletableFuture<byte[]> readBytes(BlobId blobId);
 
     InputStream read(BlobId blobId);
+
+    CompletableFuture<Void> delete(BlobId blobId);
+
+    /**
+     * Lists every stored blob. Meant for maintenance tasks: the whole store is scanned.
+     */
+    CompletableFuture<Stream<BlobId>> listBlobs();
 }
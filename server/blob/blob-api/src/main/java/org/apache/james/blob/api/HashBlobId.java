@@ -19,12 +19,15 @@
 
 package org.apache.james.blob.api;
 
+import java.io.IOException;
+
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
 
 public class HashBlobId implements BlobId {
 
@@ -35,6 +38,12 @@ public class HashBlobId implements BlobId {
             return new HashBlobId(Hashing.sha256().hashBytes(payload).toString());
         }
 
+        @Override
+        public HashBlobId forPayload(ByteSource payload) throws IOException {
+            Preconditions.checkArgument(payload != null);
+            return new HashBlobId(payload.hash(Hashing.sha256()).toString());
+        }
+
         @Override
         public HashBlobId from(String id) {
             Preconditions.checkArgument(!Strings.isNullOrEmpty(id));
@@ -35,6 +35,8 @@ public interface Store<T, I> {
 
     CompletableFuture<T> read(I blobIds);
 
+    CompletableFuture<Void> delete(I blobIds);
+
     class BlobType {
         private final String name;
 
@@ -76,12 +78,17 @@ public interface Store<T, I> {
         private final Encoder<T> encoder;
         private final Decoder<T> decoder;
         private final BlobStore blobStore;
+        private final BlobId.Factory blobIdFactory;
+        private final BlobReferenceRegistry referenceRegistry;
 
-        public Impl(BlobPartsId.Factory<I> idFactory, Encoder<T> encoder, Decoder<T> decoder, BlobStore blobStore) {
+        public Impl(BlobPartsId.Factory<I> idFactory, Encoder<T> encoder, Decoder<T> decoder, BlobStore blobStore,
+                    BlobId.Factory blobIdFactory, BlobReferenceRegistry referenceRegistry) {
             this.idFactory = idFactory;
             this.encoder = encoder;
             this.decoder = decoder;
             this.blobStore = blobStore;
+            this.blobIdFactory = blobIdFactory;
+            this.referenceRegistry = referenceRegistry;
         }
 
         @Override
@@ -95,7 +102,7 @@ public interface Store<T, I> {
         }
 
         private CompletableFuture<Pair<BlobType, BlobId>> saveEntry(Pair<BlobType, InputStream> entry) {
-            return blobStore.save(entry.getRight())
+            return referenceRegistry.save(blobStore, blobIdFactory, entry.getRight())
                 .thenApply(blobId -> Pair.of(entry.getLeft(), blobId));
         }
 
@@ -110,5 +117,14 @@ public interface Store<T, I> {
 
             return binaries.thenApply(decoder::decode);
         }
+
+        @Override
+        public CompletableFuture<Void> delete(I blobIds) {
+            return CompletableFuture.allOf(blobIds.asMap()
+                .values()
+                .stream()
+                .map(referenceRegistry::dereference)
+                .toArray(CompletableFuture[]::new));
+        }
     }
 }
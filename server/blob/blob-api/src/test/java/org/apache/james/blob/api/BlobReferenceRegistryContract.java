@@ -0,0 +1,220 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.blob.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.james.blob.api.BlobReferenceRegistry.Orphan;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public interface BlobReferenceRegistryContract {
+
+    BlobReferenceRegistry testee();
+
+    BlobId.Factory blobIdFactory();
+
+    default BlobId blobId() {
+        return blobIdFactory().from("blob");
+    }
+
+    default Orphan singleOrphan() {
+        ImmutableList<Orphan> orphans = testee().listOrphans().join().collect(ImmutableList.toImmutableList());
+        assertThat(orphans).hasSize(1);
+        return orphans.get(0);
+    }
+
+    @Test
+    default void countReferencesShouldReturnZeroWhenNeverReferenced() {
+        assertThat(testee().countReferences(blobId()).join()).isEqualTo(0L);
+    }
+
+    @Test
+    default void countReferencesShouldReturnNumberOfReferences() {
+        testee().reference(blobId()).join();
+        testee().reference(blobId()).join();
+
+        assertThat(testee().countReferences(blobId()).join()).isEqualTo(2L);
+    }
+
+    @Test
+    default void dereferenceShouldDecrementReferences() {
+        testee().reference(blobId()).join();
+        testee().reference(blobId()).join();
+
+        testee().dereference(blobId()).join();
+
+        assertThat(testee().countReferences(blobId()).join()).isEqualTo(1L);
+    }
+
+    @Test
+    default void listOrphansShouldBeEmptyByDefault() {
+        assertThat(testee().listOrphans().join()).isEmpty();
+    }
+
+    @Test
+    default void listOrphansShouldNotReturnReferencedBlobs() {
+        testee().reference(blobId()).join();
+        testee().reference(blobId()).join();
+
+        testee().dereference(blobId()).join();
+
+        assertThat(testee().listOrphans().join()).isEmpty();
+    }
+
+    @Test
+    default void listOrphansShouldReturnBlobsNoLongerReferenced() {
+        testee().reference(blobId()).join();
+
+        testee().dereference(blobId()).join();
+
+        assertThat(singleOrphan().getBlobId()).isEqualTo(blobId());
+    }
+
+    @Test
+    default void referenceShouldRemoveOrphan() {
+        testee().reference(blobId()).join();
+        testee().dereference(blobId()).join();
+
+        testee().reference(blobId()).join();
+
+        assertThat(testee().listOrphans().join()).isEmpty();
+    }
+
+    @Test
+    default void claimOrphanShouldRemoveOrphan() {
+        testee().reference(blobId()).join();
+        testee().dereference(blobId()).join();
+
+        assertThat(testee().claimOrphan(singleOrphan()).join()).isTrue();
+
+        assertThat(testee().listOrphans().join()).isEmpty();
+    }
+
+    @Test
+    default void claimOrphanShouldFailWhenReferencedAgain() {
+        testee().reference(blobId()).join();
+        testee().dereference(blobId()).join();
+        Orphan orphan = singleOrphan();
+
+        testee().reference(blobId()).join();
+
+        assertThat(testee().claimOrphan(orphan).join()).isFalse();
+    }
+
+    @Test
+    default void claimOrphanShouldFailWhenOrphanedAgain() throws Exception {
+        testee().reference(blobId()).join();
+        testee().dereference(blobId()).join();
+        Orphan orphan = singleOrphan();
+
+        Thread.sleep(10);
+        testee().reference(blobId()).join();
+        testee().dereference(blobId()).join();
+
+        assertThat(testee().claimOrphan(orphan).join()).isFalse();
+        assertThat(testee().listOrphans().join()).hasSize(1);
+    }
+
+    @Test
+    default void referenceShouldBePossibleAfterClaimOrphan() {
+        testee().reference(blobId()).join();
+        testee().dereference(blobId()).join();
+        testee().claimOrphan(singleOrphan()).join();
+
+        testee().reference(blobId()).join();
+
+        assertThat(testee().countReferences(blobId()).join()).isEqualTo(1L);
+    }
+
+    @Test
+    default void dereferenceShouldNotOrphanNeverReferencedBlobs() {
+        testee().dereference(blobId()).join();
+
+        assertThat(testee().listOrphans().join()).isEmpty();
+    }
+
+    @Test
+    default void dereferenceShouldNotOrphanBlobsWithNegativeCount() {
+        testee().dereference(blobId()).join();
+        testee().reference(blobId()).join();
+
+        testee().dereference(blobId()).join();
+
+        assertThat(testee().listOrphans().join()).isEmpty();
+        assertThat(testee().countReferences(blobId()).join()).isEqualTo(-1L);
+    }
+
+    @Test
+    default void startDeletionShouldFailWhenAlreadyStarted() {
+        assertThat(testee().startDeletion(blobId()).join()).isTrue();
+
+        assertThat(testee().startDeletion(blobId()).join()).isFalse();
+    }
+
+    @Test
+    default void startDeletionShouldSucceedOnceDeletionEnded() {
+        testee().startDeletion(blobId()).join();
+        testee().endDeletion(blobId()).join();
+
+        assertThat(testee().startDeletion(blobId()).join()).isTrue();
+    }
+
+    @Test
+    default void referenceShouldWaitForTheEndOfDeletion() throws Exception {
+        testee().startDeletion(blobId()).join();
+
+        CompletableFuture<Void> reference = CompletableFuture.supplyAsync(() -> testee().reference(blobId()))
+            .thenCompose(future -> future);
+        Thread.sleep(500);
+        assertThat(reference).isNotDone();
+
+        testee().endDeletion(blobId()).join();
+        reference.get(10, TimeUnit.SECONDS);
+        assertThat(testee().countReferences(blobId()).join()).isEqualTo(1L);
+    }
+
+    @Test
+    default void isUntrackedShouldReturnFalseByDefault() {
+        assertThat(testee().isUntracked(blobId()).join()).isFalse();
+    }
+
+    @Test
+    default void isUntrackedShouldReturnTrueWhenRegistered() {
+        testee().registerUntracked(blobId()).join();
+
+        assertThat(testee().isUntracked(blobId()).join()).isTrue();
+    }
+
+    @Test
+    default void isBackfillCompletedShouldReturnFalseByDefault() {
+        assertThat(testee().isBackfillCompleted().join()).isFalse();
+    }
+
+    @Test
+    default void isBackfillCompletedShouldReturnTrueWhenCompleted() {
+        testee().completeBackfill().join();
+
+        assertThat(testee().isBackfillCompleted().join()).isTrue();
+    }
+}
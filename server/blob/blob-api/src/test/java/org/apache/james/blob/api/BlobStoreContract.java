@@ -159,4 +159,57 @@ public interface BlobStoreContract {
 
         assertThat(read).hasSameContentAs(new ByteArrayInputStream(bytes));
     }
+
+    @Test
+    default void deleteShouldRemoveSavedData() {
+        BlobId blobId = testee().save("toto".getBytes(StandardCharsets.UTF_8)).join();
+
+        testee().delete(blobId).join();
+
+        assertThat(testee().readBytes(blobId).join()).isEmpty();
+    }
+
+    @Test
+    default void deleteShouldNotFailWhenNoExisting() {
+        testee().delete(blobIdFactory().from("unknown")).join();
+
+        assertThat(testee().readBytes(blobIdFactory().from("unknown")).join()).isEmpty();
+    }
+
+    @Test
+    default void deleteShouldNotAffectOtherBlobs() {
+        BlobId blobId = testee().save("toto".getBytes(StandardCharsets.UTF_8)).join();
+        BlobId otherBlobId = testee().save("tata".getBytes(StandardCharsets.UTF_8)).join();
+
+        testee().delete(blobId).join();
+
+        assertThat(new String(testee().readBytes(otherBlobId).join(), StandardCharsets.UTF_8)).isEqualTo("tata");
+    }
+
+    @Test
+    default void saveShouldBePossibleAfterDelete() {
+        BlobId blobId = testee().save("toto".getBytes(StandardCharsets.UTF_8)).join();
+        testee().delete(blobId).join();
+
+        testee().save("toto".getBytes(StandardCharsets.UTF_8)).join();
+
+        assertThat(new String(testee().readBytes(blobId).join(), StandardCharsets.UTF_8)).isEqualTo("toto");
+    }
+
+    @Test
+    default void listBlobsShouldReturnSavedBlobs() {
+        BlobId blobId = testee().save("toto".getBytes(StandardCharsets.UTF_8)).join();
+        BlobId otherBlobId = testee().save("tata".getBytes(StandardCharsets.UTF_8)).join();
+
+        assertThat(testee().listBlobs().join()).contains(blobId, otherBlobId);
+    }
+
+    @Test
+    default void listBlobsShouldNotReturnDeletedBlobs() {
+        BlobId blobId = testee().save("toto".getBytes(StandardCharsets.UTF_8)).join();
+
+        testee().delete(blobId).join();
+
+        assertThat(testee().listBlobs().join()).doesNotContain(blobId);
+    }
 }
@@ -29,6 +29,8 @@ import org.apache.james.blob.api.HashBlobId;
 import org.apache.james.util.ClassLoaderUtils;
 import org.junit.jupiter.api.Test;
 
+import com.google.common.io.ByteSource;
+
 import nl.jqno.equalsverifier.EqualsVerifier;
 
 public class HashBlobIdTest {
@@ -61,7 +63,7 @@ public class HashBlobIdTest {
 
     @Test
     public void forPayloadShouldThrowOnNull() {
-        assertThatThrownBy(() -> BLOB_ID_FACTORY.forPayload(null))
+        assertThatThrownBy(() -> BLOB_ID_FACTORY.forPayload((byte[]) null))
             .isInstanceOf(IllegalArgumentException.class);
     }
 
@@ -79,6 +81,13 @@ public class HashBlobIdTest {
         assertThat(blobId.asString()).isEqualTo("ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73");
     }
 
+    @Test
+    public void forPayloadShouldHashByteSourceLikeArray() throws Exception {
+        BlobId blobId = BLOB_ID_FACTORY.forPayload(ByteSource.wrap("content".getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(blobId.asString()).isEqualTo("ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73");
+    }
+
     @Test
     public void forPayloadShouldCalculateDifferentHashesWhenCraftedSha1Collision() throws Exception {
         byte[] payload1 = ClassLoaderUtils.getSystemResourceAsByteArray("shattered-1.pdf");
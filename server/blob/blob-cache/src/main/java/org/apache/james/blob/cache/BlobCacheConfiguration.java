@@ -0,0 +1,139 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.blob.cache;
+
+import java.io.File;
+import java.util.Objects;
+import java.util.Optional;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+public class BlobCacheConfiguration {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_SEGMENT_COUNT = 16;
+    public static final int DEFAULT_MAX_ENTRY_SIZE = 256 * 1024;
+
+    public static class Builder {
+        private Optional<File> directory = Optional.empty();
+        private Optional<Integer> segmentSize = Optional.empty();
+        private Optional<Integer> segmentCount = Optional.empty();
+        private Optional<Integer> maxEntrySize = Optional.empty();
+
+        public Builder directory(File directory) {
+            Preconditions.checkNotNull(directory);
+            this.directory = Optional.of(directory);
+            return this;
+        }
+
+        public Builder segmentSize(int value) {
+            Preconditions.checkArgument(value > 0, "segmentSize needs to be strictly positive");
+            this.segmentSize = Optional.of(value);
+            return this;
+        }
+
+        public Builder segmentCount(int value) {
+            Preconditions.checkArgument(value > 1, "segmentCount needs to be greater than one");
+            this.segmentCount = Optional.of(value);
+            return this;
+        }
+
+        public Builder maxEntrySize(int value) {
+            Preconditions.checkArgument(value > 0, "maxEntrySize needs to be strictly positive");
+            this.maxEntrySize = Optional.of(value);
+            return this;
+        }
+
+        public BlobCacheConfiguration build() {
+            Preconditions.checkState(directory.isPresent(), "'directory' is mandatory");
+            int finalSegmentSize = segmentSize.orElse(DEFAULT_SEGMENT_SIZE);
+            int finalMaxEntrySize = maxEntrySize.orElse(Math.min(DEFAULT_MAX_ENTRY_SIZE, finalSegmentSize));
+            Preconditions.checkState(finalMaxEntrySize <= finalSegmentSize, "'maxEntrySize' can not exceed 'segmentSize'");
+
+            return new BlobCacheConfiguration(directory.get(),
+                finalSegmentSize,
+                segmentCount.orElse(DEFAULT_SEGMENT_COUNT),
+                finalMaxEntrySize);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final File directory;
+    private final int segmentSize;
+    private final int segmentCount;
+    private final int maxEntrySize;
+
+    private BlobCacheConfiguration(File directory, int segmentSize, int segmentCount, int maxEntrySize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.segmentCount = segmentCount;
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    public int getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    public long getCapacity() {
+        return (long) segmentSize * segmentCount;
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        if (o instanceof BlobCacheConfiguration) {
+            BlobCacheConfiguration that = (BlobCacheConfiguration) o;
+
+            return Objects.equals(this.segmentSize, that.segmentSize)
+                && Objects.equals(this.segmentCount, that.segmentCount)
+                && Objects.equals(this.maxEntrySize, that.maxEntrySize)
+                && Objects.equals(this.directory, that.directory);
+        }
+        return false;
+    }
+
+    @Override
+    public final int hashCode() {
+        return Objects.hash(directory, segmentSize, segmentCount, maxEntrySize);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("directory", directory)
+            .add("segmentSize", segmentSize)
+            .add("segmentCount", segmentCount)
+            .add("maxEntrySize", maxEntrySize)
+            .toString();
+    }
+}
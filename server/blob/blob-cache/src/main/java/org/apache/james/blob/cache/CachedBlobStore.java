@@ -0,0 +1,111 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.blob.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import org.apache.james.blob.api.BlobId;
+import org.apache.james.blob.api.BlobStore;
+import org.apache.james.metrics.api.Metric;
+import org.apache.james.metrics.api.MetricFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link BlobStore} decorator keeping small blobs, like message headers, in a local {@link MappedSegmentsBlobCache}.
+ *
+ * Blobs saved or read as byte arrays are cached. Streamed blobs are expected to be big, and are served by the
+ * underlying store unless already cached.
+ */
+public class CachedBlobStore implements BlobStore {
+    public static final String HIT_METRIC_NAME = "blobStore.cache.hit";
+    public static final String MISS_METRIC_NAME = "blobStore.cache.miss";
+
+    private final BlobStore backend;
+    private final MappedSegmentsBlobCache cache;
+    private final Metric hitMetric;
+    private final Metric missMetric;
+
+    public CachedBlobStore(BlobStore backend, MappedSegmentsBlobCache cache, MetricFactory metricFactory) {
+        this.backend = backend;
+        this.cache = cache;
+        this.hitMetric = metricFactory.generate(HIT_METRIC_NAME);
+        this.missMetric = metricFactory.generate(MISS_METRIC_NAME);
+    }
+
+    @Override
+    public CompletableFuture<BlobId> save(byte[] data) {
+        Preconditions.checkNotNull(data);
+        return backend.save(data)
+            .thenApply(blobId -> {
+                cache.put(blobId, data);
+                return blobId;
+            });
+    }
+
+    @Override
+    public CompletableFuture<BlobId> save(InputStream data) {
+        return backend.save(data);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> readBytes(BlobId blobId) {
+        Optional<byte[]> cachedData = readFromCache(blobId);
+        if (cachedData.isPresent()) {
+            return CompletableFuture.completedFuture(cachedData.get());
+        }
+        return backend.readBytes(blobId)
+            .thenApply(data -> {
+                cache.put(blobId, data);
+                return data;
+            });
+    }
+
+    @Override
+    public InputStream read(BlobId blobId) {
+        return readFromCache(blobId)
+            .<InputStream>map(ByteArrayInputStream::new)
+            .orElseGet(() -> backend.read(blobId));
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(BlobId blobId) {
+        cache.invalidate(blobId);
+        return backend.delete(blobId);
+    }
+
+    @Override
+    public CompletableFuture<Stream<BlobId>> listBlobs() {
+        return backend.listBlobs();
+    }
+
+    private Optional<byte[]> readFromCache(BlobId blobId) {
+        Optional<byte[]> cachedData = cache.get(blobId);
+        if (cachedData.isPresent()) {
+            hitMetric.increment();
+        } else {
+            missMetric.increment();
+        }
+        return cachedData;
+    }
+}
@@ -0,0 +1,292 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.blob.cache;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.james.blob.api.BlobId;
+import org.apache.james.metrics.api.Metric;
+import org.apache.james.metrics.api.MetricFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Size bounded blob cache stored off-heap, in memory-mapped segment files.
+ *
+ * Blobs are appended to the current segment. Once full, a new segment is started, and the oldest segment
+ * is dropped as a whole when the segment count is exceeded. Blobs read from the oldest half of the segments are
+ * copied again into the current segment, so that frequently read blobs survive eviction, approximating LRU.
+ *
+ * As blob ids are content hashes, cached content never needs to be updated.
+ *
+ * Evicted segments are unmapped right away rather than when their buffer gets garbage collected, so that the
+ * address space and page cache they hold are released as the cache rolls over. Reads racing with an eviction
+ * are treated as cache misses.
+ */
+public class MappedSegmentsBlobCache implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedSegmentsBlobCache.class);
+
+    public static final String EVICTION_METRIC_NAME = "blobStore.cache.eviction";
+    private static final String SEGMENT_FILE_PREFIX = "segment-";
+
+    private static class Segment {
+        static Segment create(File directory, long id, int size) throws IOException {
+            File file = new File(directory, SEGMENT_FILE_PREFIX + id);
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+                 FileChannel channel = randomAccessFile.getChannel()) {
+                // A mapping stays valid once the channel is closed
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                return new Segment(id, file, buffer);
+            }
+        }
+
+        private final long id;
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final List<BlobId> blobIds;
+        private final ReadWriteLock lock;
+        private int writePosition;
+        private boolean unmapped;
+
+        private Segment(long id, File file, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+            this.blobIds = new ArrayList<>();
+            this.lock = new ReentrantReadWriteLock();
+            this.writePosition = 0;
+            this.unmapped = false;
+        }
+
+        boolean canHold(int length) {
+            return buffer.capacity() - writePosition >= length;
+        }
+
+        Location append(BlobId blobId, byte[] data) {
+            ByteBuffer view = buffer.duplicate();
+            view.position(writePosition);
+            view.put(data);
+
+            Location location = new Location(this, writePosition, data.length);
+            writePosition += data.length;
+            blobIds.add(blobId);
+            return location;
+        }
+
+        Optional<byte[]> read(int offset, int length) {
+            lock.readLock().lock();
+            try {
+                if (unmapped) {
+                    return Optional.empty();
+                }
+                ByteBuffer view = buffer.duplicate();
+                view.position(offset);
+                byte[] data = new byte[length];
+                view.get(data);
+                return Optional.of(data);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void delete() {
+            lock.writeLock().lock();
+            try {
+                unmapped = true;
+                unmap(buffer);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!file.delete()) {
+                LOGGER.warn("Could not delete blob cache segment {}", file.getAbsolutePath());
+            }
+        }
+    }
+
+    private static class Location {
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+
+        Location(Segment segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final BlobCacheConfiguration configuration;
+    private final Metric evictionMetric;
+    private final ConcurrentHashMap<BlobId, Location> index;
+    private final Deque<Segment> segments;
+    private volatile Segment currentSegment;
+    private long nextSegmentId;
+
+    public MappedSegmentsBlobCache(BlobCacheConfiguration configuration, MetricFactory metricFactory) throws IOException {
+        this.configuration = configuration;
+        this.evictionMetric = metricFactory.generate(EVICTION_METRIC_NAME);
+        this.index = new ConcurrentHashMap<>();
+        this.segments = new ArrayDeque<>();
+        this.nextSegmentId = 0;
+
+        FileUtils.forceMkdir(configuration.getDirectory());
+        deleteLeftOverSegments(configuration.getDirectory());
+        this.currentSegment = newSegment();
+    }
+
+    /**
+     * Segments left by a previous run are not indexed anymore. Only those are deleted, as the directory might hold
+     * other files.
+     */
+    private static void deleteLeftOverSegments(File directory) throws IOException {
+        File[] leftOverSegments = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_FILE_PREFIX));
+        if (leftOverSegments == null) {
+            throw new IOException("Could not list blob cache directory " + directory.getAbsolutePath());
+        }
+        for (File segment : leftOverSegments) {
+            FileUtils.forceDelete(segment);
+        }
+    }
+
+    public Optional<byte[]> get(BlobId blobId) {
+        Location location = index.get(blobId);
+        if (location == null) {
+            return Optional.empty();
+        }
+        Optional<byte[]> data = location.segment.read(location.offset, location.length);
+        if (data.isPresent() && isAboutToBeEvicted(location.segment)) {
+            promote(blobId, location, data.get());
+        }
+        return data;
+    }
+
+    public void put(BlobId blobId, byte[] data) {
+        if (data.length == 0 || data.length > configuration.getMaxEntrySize() || index.containsKey(blobId)) {
+            return;
+        }
+        synchronized (this) {
+            if (!index.containsKey(blobId)) {
+                index.put(blobId, append(blobId, data));
+            }
+        }
+    }
+
+    public void invalidate(BlobId blobId) {
+        index.remove(blobId);
+    }
+
+    @VisibleForTesting
+    int size() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        index.clear();
+        segments.forEach(Segment::delete);
+        segments.clear();
+    }
+
+    private boolean isAboutToBeEvicted(Segment segment) {
+        return currentSegment.id - segment.id >= Math.max(1, configuration.getSegmentCount() / 2);
+    }
+
+    private synchronized void promote(BlobId blobId, Location location, byte[] data) {
+        if (index.get(blobId) == location) {
+            index.put(blobId, append(blobId, data));
+        }
+    }
+
+    private Location append(BlobId blobId, byte[] data) {
+        if (!currentSegment.canHold(data.length)) {
+            currentSegment = newSegment();
+        }
+        return currentSegment.append(blobId, data);
+    }
+
+    private Segment newSegment() {
+        try {
+            Segment segment = Segment.create(configuration.getDirectory(), nextSegmentId++, configuration.getSegmentSize());
+            segments.addLast(segment);
+            while (segments.size() > configuration.getSegmentCount()) {
+                evict(segments.pollFirst());
+            }
+            return segment;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create blob cache segment", e);
+        }
+    }
+
+    private void evict(Segment segment) {
+        segment.blobIds.forEach(blobId -> index.computeIfPresent(blobId, (key, location) -> {
+            if (location.segment == segment) {
+                evictionMetric.increment();
+                return null;
+            }
+            return location;
+        }));
+        segment.delete();
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            invokeCleaner(buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.debug("Could not unmap blob cache segment, it will be unmapped once garbage collected", e);
+        }
+    }
+
+    private static void invokeCleaner(MappedByteBuffer buffer) throws ReflectiveOperationException {
+        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        try {
+            // Java 9+
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (NoSuchMethodException e) {
+            // Java 8
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.blob.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.james.blob.api.BlobId;
+import org.apache.james.blob.api.BlobStore;
+import org.apache.james.blob.api.BlobStoreContract;
+import org.apache.james.blob.api.HashBlobId;
+import org.apache.james.blob.memory.MemoryBlobStore;
+import org.apache.james.metrics.api.NoopMetricFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CachedBlobStoreTest implements BlobStoreContract {
+    private static final HashBlobId.Factory BLOB_ID_FACTORY = new HashBlobId.Factory();
+    private static final byte[] DATA = "toto".getBytes(StandardCharsets.UTF_8);
+
+    private File directory;
+    private MemoryBlobStore backend;
+    private MappedSegmentsBlobCache cache;
+    private CachedBlobStore testee;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("blob-cache").toFile();
+        backend = new MemoryBlobStore(BLOB_ID_FACTORY);
+        cache = new MappedSegmentsBlobCache(BlobCacheConfiguration.builder()
+                .directory(directory)
+                .segmentSize(1024 * 1024)
+                .segmentCount(4)
+                .build(),
+            new NoopMetricFactory());
+        testee = new CachedBlobStore(backend, cache, new NoopMetricFactory());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        cache.close();
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Override
+    public BlobStore testee() {
+        return testee;
+    }
+
+    @Override
+    public BlobId.Factory blobIdFactory() {
+        return BLOB_ID_FACTORY;
+    }
+
+    @Test
+    void saveShouldPopulateCache() {
+        BlobId blobId = testee.save(DATA).join();
+
+        assertThat(cache.get(blobId)).contains(DATA);
+    }
+
+    @Test
+    void readBytesShouldPopulateCache() {
+        BlobId blobId = backend.save(DATA).join();
+
+        testee.readBytes(blobId).join();
+
+        assertThat(cache.get(blobId)).contains(DATA);
+    }
+
+    @Test
+    void readBytesShouldNotCacheMissingBlobs() {
+        BlobId blobId = BLOB_ID_FACTORY.forPayload(DATA);
+
+        testee.readBytes(blobId).join();
+        backend.save(DATA).join();
+
+        assertThat(testee.readBytes(blobId).join()).isEqualTo(DATA);
+    }
+
+    @Test
+    void readShouldServeCachedData() {
+        BlobId blobId = testee.save(DATA).join();
+        backend.delete(blobId).join();
+
+        assertThat(testee.read(blobId)).hasSameContentAs(new ByteArrayInputStream(DATA));
+    }
+
+    @Test
+    void deleteShouldInvalidateCache() {
+        BlobId blobId = testee.save(DATA).join();
+
+        testee.delete(blobId).join();
+
+        assertThat(cache.get(blobId)).isEmpty();
+    }
+}
@@ -0,0 +1,194 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.blob.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.stream.IntStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.james.blob.api.BlobId;
+import org.apache.james.blob.api.HashBlobId;
+import org.apache.james.metrics.api.NoopMetricFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MappedSegmentsBlobCacheTest {
+    private static final HashBlobId.Factory BLOB_ID_FACTORY = new HashBlobId.Factory();
+    private static final int SEGMENT_SIZE = 100;
+    private static final int SEGMENT_COUNT = 4;
+    private static final int ENTRY_SIZE = 50;
+
+    private File directory;
+    private MappedSegmentsBlobCache testee;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("blob-cache").toFile();
+        testee = new MappedSegmentsBlobCache(BlobCacheConfiguration.builder()
+                .directory(directory)
+                .segmentSize(SEGMENT_SIZE)
+                .segmentCount(SEGMENT_COUNT)
+                .maxEntrySize(ENTRY_SIZE)
+                .build(),
+            new NoopMetricFactory());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        testee.close();
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private byte[] entry(int i) {
+        byte[] data = new byte[ENTRY_SIZE];
+        byte[] prefix = String.valueOf(i).getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(prefix, 0, data, 0, prefix.length);
+        return data;
+    }
+
+    private BlobId blobId(int i) {
+        return BLOB_ID_FACTORY.forPayload(entry(i));
+    }
+
+    private void put(int i) {
+        testee.put(blobId(i), entry(i));
+    }
+
+    @Test
+    void getShouldReturnEmptyWhenNotCached() {
+        assertThat(testee.get(blobId(0))).isEmpty();
+    }
+
+    @Test
+    void getShouldReturnCachedData() {
+        put(0);
+
+        assertThat(testee.get(blobId(0))).contains(entry(0));
+    }
+
+    @Test
+    void putShouldIgnoreTooBigEntries() {
+        byte[] data = new byte[ENTRY_SIZE + 1];
+        BlobId blobId = BLOB_ID_FACTORY.forPayload(data);
+
+        testee.put(blobId, data);
+
+        assertThat(testee.get(blobId)).isEmpty();
+    }
+
+    @Test
+    void putShouldIgnoreEmptyEntries() {
+        byte[] data = new byte[0];
+        BlobId blobId = BLOB_ID_FACTORY.forPayload(data);
+
+        testee.put(blobId, data);
+
+        assertThat(testee.get(blobId)).isEmpty();
+    }
+
+    @Test
+    void invalidateShouldRemoveEntry() {
+        put(0);
+
+        testee.invalidate(blobId(0));
+
+        assertThat(testee.get(blobId(0))).isEmpty();
+    }
+
+    @Test
+    void cacheShouldEvictOldestEntriesWhenFull() {
+        int entriesPerSegment = SEGMENT_SIZE / ENTRY_SIZE;
+        IntStream.range(0, entriesPerSegment * (SEGMENT_COUNT + 1))
+            .forEach(this::put);
+
+        assertThat(testee.get(blobId(0))).isEmpty();
+        assertThat(testee.get(blobId(entriesPerSegment * (SEGMENT_COUNT + 1) - 1))).isPresent();
+        assertThat(testee.size()).isLessThanOrEqualTo(entriesPerSegment * SEGMENT_COUNT);
+    }
+
+    @Test
+    void readEntriesShouldSurviveEviction() {
+        int entriesPerSegment = SEGMENT_SIZE / ENTRY_SIZE;
+        put(0);
+        IntStream.range(1, entriesPerSegment * SEGMENT_COUNT)
+            .forEach(i -> {
+                put(i);
+                testee.get(blobId(0));
+            });
+
+        assertThat(testee.get(blobId(0))).contains(entry(0));
+    }
+
+    @Test
+    void readEntriesShouldSurviveEvictionWithTwoSegments() throws IOException {
+        testee.close();
+        testee = new MappedSegmentsBlobCache(BlobCacheConfiguration.builder()
+                .directory(directory)
+                .segmentSize(SEGMENT_SIZE)
+                .segmentCount(2)
+                .maxEntrySize(ENTRY_SIZE)
+                .build(),
+            new NoopMetricFactory());
+        int entriesPerSegment = SEGMENT_SIZE / ENTRY_SIZE;
+        put(0);
+        IntStream.range(1, entriesPerSegment * 4)
+            .forEach(i -> {
+                put(i);
+                testee.get(blobId(0));
+            });
+
+        assertThat(testee.get(blobId(0))).contains(entry(0));
+        assertThat(testee.size()).isLessThanOrEqualTo(entriesPerSegment * 2);
+    }
+
+    @Test
+    void closeShouldDeleteSegments() {
+        put(0);
+
+        testee.close();
+
+        assertThat(directory.listFiles()).isEmpty();
+    }
+
+    @Test
+    void constructorShouldDeleteLeftOverSegmentsOnly() throws IOException {
+        testee.close();
+        File leftOverSegment = new File(directory, "segment-42");
+        File otherFile = new File(directory, "README");
+        FileUtils.writeStringToFile(leftOverSegment, "segment", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(otherFile, "operator file", StandardCharsets.UTF_8);
+
+        testee = new MappedSegmentsBlobCache(BlobCacheConfiguration.builder()
+                .directory(directory)
+                .segmentSize(SEGMENT_SIZE)
+                .segmentCount(SEGMENT_COUNT)
+                .maxEntrySize(ENTRY_SIZE)
+                .build(),
+            new NoopMetricFactory());
+
+        assertThat(leftOverSegment).doesNotExist();
+        assertThat(otherFile).hasContent("operator file");
+    }
+}
@@ -29,4 +29,29 @@ public interface BlobTable {
         String CHUNK_NUMBER = "chunkNumber";
         String DATA = "data";
     }
+
+    interface BlobReferences {
+        String TABLE_NAME = "blobReferences";
+        String REFERENCE_COUNT = "referenceCount";
+    }
+
+    interface BlobOrphans {
+        String TABLE_NAME = "blobOrphans";
+        String ORPHANED_AT = "orphanedAt";
+    }
+
+    interface BlobDeletions {
+        String TABLE_NAME = "blobDeletions";
+        String STARTED_AT = "startedAt";
+    }
+
+    interface UntrackedBlobs {
+        String TABLE_NAME = "untrackedBlobs";
+    }
+
+    interface BlobReferenceBackfill {
+        String TABLE_NAME = "blobReferenceBackfill";
+        String NAME = "name";
+        String COMPLETED_AT = "completedAt";
+    }
 }
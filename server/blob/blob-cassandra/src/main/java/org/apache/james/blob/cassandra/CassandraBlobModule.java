@@ -39,5 +39,33 @@ public interface CassandraBlobModule {
         .statement(statement -> statement
             .addPartitionKey(BlobTable.ID, DataType.text())
             .addClusteringColumn(BlobTable.NUMBER_OF_CHUNK, DataType.cint()))
+        .table(BlobTable.BlobReferences.TABLE_NAME)
+        .comment("Counts the stored objects referencing a blob. " +
+            "As blob ids are content hashes, the same blob can be shared by several objects.")
+        .statement(statement -> statement
+            .addPartitionKey(BlobTable.ID, DataType.text())
+            .addColumn(BlobTable.BlobReferences.REFERENCE_COUNT, DataType.counter()))
+        .table(BlobTable.BlobOrphans.TABLE_NAME)
+        .comment("Lists blobs no longer referenced, that can be garbage collected once orphaned for long enough.")
+        .statement(statement -> statement
+            .addPartitionKey(BlobTable.ID, DataType.text())
+            .addColumn(BlobTable.BlobOrphans.ORPHANED_AT, DataType.timestamp()))
+        .table(BlobTable.BlobDeletions.TABLE_NAME)
+        .comment("Lists blobs being deleted by the garbage collection. " +
+            "Writers referencing such a blob wait for the deletion to complete before saving it again.")
+        .statement(statement -> statement
+            .addPartitionKey(BlobTable.ID, DataType.text())
+            .addColumn(BlobTable.BlobDeletions.STARTED_AT, DataType.timestamp()))
+        .table(BlobTable.UntrackedBlobs.TABLE_NAME)
+        .comment("Lists blobs stored before references were counted. " +
+            "Their references are unknown, so they are never garbage collected.")
+        .statement(statement -> statement
+            .addPartitionKey(BlobTable.ID, DataType.text()))
+        .table(BlobTable.BlobReferenceBackfill.TABLE_NAME)
+        .comment("Records the completion of the backfill of untracked blobs. " +
+            "Garbage collection is refused until then.")
+        .statement(statement -> statement
+            .addPartitionKey(BlobTable.BlobReferenceBackfill.NAME, DataType.text())
+            .addColumn(BlobTable.BlobReferenceBackfill.COMPLETED_AT, DataType.timestamp()))
         .build();
 }
@@ -0,0 +1,329 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.blob.cassandra;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.decr;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.delete;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.incr;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.insertInto;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.ttl;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.update;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.inject.Inject;
+
+import org.apache.james.backends.cassandra.utils.CassandraAsyncExecutor;
+import org.apache.james.backends.cassandra.utils.CassandraUtils;
+import org.apache.james.blob.api.BlobId;
+import org.apache.james.blob.api.BlobReferenceRegistry;
+import org.apache.james.blob.api.HashBlobId;
+import org.apache.james.blob.api.ObjectStoreException;
+import org.apache.james.blob.cassandra.BlobTable.BlobDeletions;
+import org.apache.james.blob.cassandra.BlobTable.BlobOrphans;
+import org.apache.james.blob.cassandra.BlobTable.BlobReferenceBackfill;
+import org.apache.james.blob.cassandra.BlobTable.BlobReferences;
+import org.apache.james.blob.cassandra.BlobTable.UntrackedBlobs;
+import org.apache.james.util.CompletableFutureUtil;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.querybuilder.Assignment;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Cassandra counters can not be reused once deleted: reference counts thus stay at zero once a blob
+ * is no longer referenced, and only the orphan entry is removed upon garbage collection.
+ *
+ * Deletion marks expire after {@link #DELETION_TTL}, so that a garbage collection dying in the middle of a deletion
+ * does not prevent writers from saving the blob forever. Writers give up waiting after {@link #DELETION_WAIT_TIMEOUT}.
+ *
+ * Waiting writers poll the deletion mark without holding a thread: the next read is scheduled on a timer thread
+ * which only triggers it.
+ */
+public class CassandraBlobReferenceRegistry implements BlobReferenceRegistry {
+    public static final Duration DELETION_TTL = Duration.ofMinutes(10);
+    public static final Duration DELETION_WAIT_TIMEOUT = Duration.ofMinutes(1);
+    private static final Duration DELETION_POLL_INTERVAL = Duration.ofMillis(100);
+    private static final String BACKFILL = "untrackedBlobs";
+    private static final ScheduledExecutorService DELETION_POLL_TIMER = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("blob-deletion-poll-%d")
+        .setDaemon(true)
+        .build());
+
+    private final CassandraAsyncExecutor cassandraAsyncExecutor;
+    private final CassandraUtils cassandraUtils;
+    private final HashBlobId.Factory blobIdFactory;
+    private final PreparedStatement incrementReferences;
+    private final PreparedStatement decrementReferences;
+    private final PreparedStatement selectReferences;
+    private final PreparedStatement insertOrphan;
+    private final PreparedStatement deleteOrphan;
+    private final PreparedStatement claimOrphan;
+    private final PreparedStatement selectOrphans;
+    private final PreparedStatement insertDeletion;
+    private final PreparedStatement deleteDeletion;
+    private final PreparedStatement selectDeletion;
+    private final PreparedStatement insertUntracked;
+    private final PreparedStatement selectUntracked;
+    private final PreparedStatement insertBackfill;
+    private final PreparedStatement selectBackfill;
+
+    @Inject
+    public CassandraBlobReferenceRegistry(Session session, CassandraUtils cassandraUtils, HashBlobId.Factory blobIdFactory) {
+        this.cassandraAsyncExecutor = new CassandraAsyncExecutor(session);
+        this.cassandraUtils = cassandraUtils;
+        this.blobIdFactory = blobIdFactory;
+        this.incrementReferences = prepareUpdateReferences(session, incr(BlobReferences.REFERENCE_COUNT));
+        this.decrementReferences = prepareUpdateReferences(session, decr(BlobReferences.REFERENCE_COUNT));
+        this.selectReferences = prepareSelectReferences(session);
+        this.insertOrphan = prepareInsertOrphan(session);
+        this.deleteOrphan = prepareDeleteOrphan(session);
+        this.claimOrphan = prepareClaimOrphan(session);
+        this.selectOrphans = prepareSelectOrphans(session);
+        this.insertDeletion = prepareInsertDeletion(session);
+        this.deleteDeletion = prepareDeleteDeletion(session);
+        this.selectDeletion = prepareSelectDeletion(session);
+        this.insertUntracked = prepareInsertUntracked(session);
+        this.selectUntracked = prepareSelectUntracked(session);
+        this.insertBackfill = prepareInsertBackfill(session);
+        this.selectBackfill = prepareSelectBackfill(session);
+    }
+
+    @VisibleForTesting
+    public CassandraBlobReferenceRegistry(Session session) {
+        this(session, CassandraUtils.WITH_DEFAULT_CONFIGURATION, new HashBlobId.Factory());
+    }
+
+    private PreparedStatement prepareUpdateReferences(Session session, Assignment operation) {
+        return session.prepare(update(BlobReferences.TABLE_NAME)
+            .with(operation)
+            .where(eq(BlobTable.ID, bindMarker(BlobTable.ID))));
+    }
+
+    private PreparedStatement prepareSelectReferences(Session session) {
+        return session.prepare(select(BlobReferences.REFERENCE_COUNT)
+            .from(BlobReferences.TABLE_NAME)
+            .where(eq(BlobTable.ID, bindMarker(BlobTable.ID))));
+    }
+
+    private PreparedStatement prepareInsertOrphan(Session session) {
+        return session.prepare(insertInto(BlobOrphans.TABLE_NAME)
+            .value(BlobTable.ID, bindMarker(BlobTable.ID))
+            .value(BlobOrphans.ORPHANED_AT, bindMarker(BlobOrphans.ORPHANED_AT)));
+    }
+
+    private PreparedStatement prepareDeleteOrphan(Session session) {
+        return session.prepare(delete()
+            .from(BlobOrphans.TABLE_NAME)
+            .where(eq(BlobTable.ID, bindMarker(BlobTable.ID))));
+    }
+
+    private PreparedStatement prepareClaimOrphan(Session session) {
+        return session.prepare(delete()
+            .from(BlobOrphans.TABLE_NAME)
+            .where(eq(BlobTable.ID, bindMarker(BlobTable.ID)))
+            .onlyIf(eq(BlobOrphans.ORPHANED_AT, bindMarker(BlobOrphans.ORPHANED_AT))));
+    }
+
+    private PreparedStatement prepareSelectOrphans(Session session) {
+        return session.prepare(select(BlobTable.ID, BlobOrphans.ORPHANED_AT)
+            .from(BlobOrphans.TABLE_NAME));
+    }
+
+    private PreparedStatement prepareInsertDeletion(Session session) {
+        return session.prepare(insertInto(BlobDeletions.TABLE_NAME)
+            .value(BlobTable.ID, bindMarker(BlobTable.ID))
+            .value(BlobDeletions.STARTED_AT, bindMarker(BlobDeletions.STARTED_AT))
+            .ifNotExists()
+            .using(ttl(Math.toIntExact(DELETION_TTL.getSeconds()))));
+    }
+
+    private PreparedStatement prepareDeleteDeletion(Session session) {
+        return session.prepare(delete()
+            .from(BlobDeletions.TABLE_NAME)
+            .where(eq(BlobTable.ID, bindMarker(BlobTable.ID))));
+    }
+
+    private PreparedStatement prepareSelectDeletion(Session session) {
+        return session.prepare(select(BlobTable.ID)
+            .from(BlobDeletions.TABLE_NAME)
+            .where(eq(BlobTable.ID, bindMarker(BlobTable.ID))));
+    }
+
+    private PreparedStatement prepareInsertUntracked(Session session) {
+        return session.prepare(insertInto(UntrackedBlobs.TABLE_NAME)
+            .value(BlobTable.ID, bindMarker(BlobTable.ID)));
+    }
+
+    private PreparedStatement prepareSelectUntracked(Session session) {
+        return session.prepare(select(BlobTable.ID)
+            .from(UntrackedBlobs.TABLE_NAME)
+            .where(eq(BlobTable.ID, bindMarker(BlobTable.ID))));
+    }
+
+    private PreparedStatement prepareInsertBackfill(Session session) {
+        return session.prepare(insertInto(BlobReferenceBackfill.TABLE_NAME)
+            .value(BlobReferenceBackfill.NAME, BACKFILL)
+            .value(BlobReferenceBackfill.COMPLETED_AT, bindMarker(BlobReferenceBackfill.COMPLETED_AT)));
+    }
+
+    private PreparedStatement prepareSelectBackfill(Session session) {
+        return session.prepare(select(BlobReferenceBackfill.COMPLETED_AT)
+            .from(BlobReferenceBackfill.TABLE_NAME)
+            .where(eq(BlobReferenceBackfill.NAME, BACKFILL)));
+    }
+
+    @Override
+    public CompletableFuture<Void> reference(BlobId blobId) {
+        return cassandraAsyncExecutor.executeVoid(incrementReferences.bind()
+                .setString(BlobTable.ID, blobId.asString()))
+            .thenCompose(any -> removeOrphan(blobId))
+            .thenCompose(any -> isBeingDeleted(blobId))
+            .thenCompose(beingDeleted -> {
+                if (beingDeleted) {
+                    return awaitDeletion(blobId, Instant.now().plus(DELETION_WAIT_TIMEOUT));
+                }
+                return CompletableFuture.completedFuture(null);
+            });
+    }
+
+    private CompletableFuture<Boolean> isBeingDeleted(BlobId blobId) {
+        return cassandraAsyncExecutor.executeReturnExists(selectDeletion.bind()
+            .setString(BlobTable.ID, blobId.asString()));
+    }
+
+    private CompletableFuture<Void> awaitDeletion(BlobId blobId, Instant timeout) {
+        return pollDelay()
+            .thenCompose(any -> isBeingDeleted(blobId))
+            .thenCompose(beingDeleted -> {
+                if (!beingDeleted) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                if (Instant.now().isAfter(timeout)) {
+                    return CompletableFutureUtil.exceptionallyFuture(
+                        new ObjectStoreException("Timeout while waiting for the deletion of blob " + blobId.asString()));
+                }
+                return awaitDeletion(blobId, timeout);
+            });
+    }
+
+    private CompletableFuture<Void> pollDelay() {
+        CompletableFuture<Void> delay = new CompletableFuture<>();
+        DELETION_POLL_TIMER.schedule(() -> delay.complete(null), DELETION_POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        return delay;
+    }
+
+    @Override
+    public CompletableFuture<Void> dereference(BlobId blobId) {
+        return cassandraAsyncExecutor.executeVoid(decrementReferences.bind()
+                .setString(BlobTable.ID, blobId.asString()))
+            .thenCompose(any -> countReferences(blobId))
+            .thenCompose(count -> registerOrphanIfUnreferenced(blobId, count));
+    }
+
+    /**
+     * Only a count dropping from one to zero orphans the blob: a negative count means that some references were
+     * never counted, as for blobs stored before references were tracked.
+     */
+    private CompletableFuture<Void> registerOrphanIfUnreferenced(BlobId blobId, long count) {
+        if (count == 0) {
+            return cassandraAsyncExecutor.executeVoid(insertOrphan.bind()
+                .setString(BlobTable.ID, blobId.asString())
+                .setTimestamp(BlobOrphans.ORPHANED_AT, new Date()));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Long> countReferences(BlobId blobId) {
+        return cassandraAsyncExecutor.executeSingleRow(selectReferences.bind()
+                .setString(BlobTable.ID, blobId.asString()))
+            .thenApply(row -> row.map(value -> value.getLong(BlobReferences.REFERENCE_COUNT))
+                .orElse(0L));
+    }
+
+    @Override
+    public CompletableFuture<Stream<Orphan>> listOrphans() {
+        return cassandraAsyncExecutor.execute(selectOrphans.bind())
+            .thenApply(resultSet -> cassandraUtils.convertToStream(resultSet)
+                .map(row -> new Orphan(
+                    blobIdFactory.from(row.getString(BlobTable.ID)),
+                    row.getTimestamp(BlobOrphans.ORPHANED_AT).toInstant())));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> claimOrphan(Orphan orphan) {
+        return cassandraAsyncExecutor.executeReturnApplied(claimOrphan.bind()
+            .setString(BlobTable.ID, orphan.getBlobId().asString())
+            .setTimestamp(BlobOrphans.ORPHANED_AT, Date.from(orphan.getOrphanedAt())));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> startDeletion(BlobId blobId) {
+        return cassandraAsyncExecutor.executeReturnApplied(insertDeletion.bind()
+            .setString(BlobTable.ID, blobId.asString())
+            .setTimestamp(BlobDeletions.STARTED_AT, new Date()));
+    }
+
+    @Override
+    public CompletableFuture<Void> endDeletion(BlobId blobId) {
+        return cassandraAsyncExecutor.executeVoid(deleteDeletion.bind()
+            .setString(BlobTable.ID, blobId.asString()));
+    }
+
+    @Override
+    public CompletableFuture<Void> registerUntracked(BlobId blobId) {
+        return cassandraAsyncExecutor.executeVoid(insertUntracked.bind()
+            .setString(BlobTable.ID, blobId.asString()));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isUntracked(BlobId blobId) {
+        return cassandraAsyncExecutor.executeReturnExists(selectUntracked.bind()
+            .setString(BlobTable.ID, blobId.asString()));
+    }
+
+    @Override
+    public CompletableFuture<Void> completeBackfill() {
+        return cassandraAsyncExecutor.executeVoid(insertBackfill.bind()
+            .setTimestamp(BlobReferenceBackfill.COMPLETED_AT, new Date()));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isBackfillCompleted() {
+        return cassandraAsyncExecutor.executeReturnExists(selectBackfill.bind());
+    }
+
+    private CompletableFuture<Void> removeOrphan(BlobId blobId) {
+        return cassandraAsyncExecutor.executeVoid(deleteOrphan.bind()
+            .setString(BlobTable.ID, blobId.asString()));
+    }
+}
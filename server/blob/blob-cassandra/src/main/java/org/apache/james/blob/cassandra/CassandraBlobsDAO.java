@@ -27,8 +27,8 @@ import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
-import java.nio.channels.Pipe;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.IntStream;
@@ -36,16 +36,16 @@ import java.util.stream.Stream;
 
 import javax.inject.Inject;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.james.backends.cassandra.init.configuration.CassandraConfiguration;
 import org.apache.james.backends.cassandra.utils.CassandraAsyncExecutor;
+import org.apache.james.backends.cassandra.utils.CassandraUtils;
 import org.apache.james.blob.api.BlobId;
 import org.apache.james.blob.api.BlobStore;
 import org.apache.james.blob.api.HashBlobId;
-import org.apache.james.blob.api.ObjectStoreException;
 import org.apache.james.blob.cassandra.BlobTable.BlobParts;
 import org.apache.james.blob.cassandra.utils.DataChunker;
+import org.apache.james.blob.cassandra.utils.PipelinedPartsInputStream;
 import org.apache.james.util.FluentFutureStream;
 import org.apache.james.util.OptionalUtils;
 import org.slf4j.Logger;
@@ -54,12 +54,16 @@ import org.slf4j.LoggerFactory;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.github.fge.lambdas.Throwing;
-import com.github.fge.lambdas.consumers.ConsumerChainer;
 import com.github.steveash.guavate.Guavate;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.FileBackedOutputStream;
 import com.google.common.primitives.Bytes;
 
 public class CassandraBlobsDAO implements BlobStore {
@@ -69,21 +73,36 @@ public class CassandraBlobsDAO implements BlobStore {
     private final PreparedStatement insertPart;
     private final PreparedStatement select;
     private final PreparedStatement selectPart;
+    private final PreparedStatement delete;
+    private final PreparedStatement deleteParts;
+    private final PreparedStatement selectIds;
     private final DataChunker dataChunker;
     private final CassandraConfiguration configuration;
     private final HashBlobId.Factory blobIdFactory;
+    private final CassandraUtils cassandraUtils;
 
     @Inject
-    public CassandraBlobsDAO(Session session, CassandraConfiguration cassandraConfiguration, HashBlobId.Factory blobIdFactory) {
+    public CassandraBlobsDAO(Session session, CassandraConfiguration cassandraConfiguration, HashBlobId.Factory blobIdFactory,
+                             CassandraUtils cassandraUtils) {
         this.cassandraAsyncExecutor = new CassandraAsyncExecutor(session);
         this.configuration = cassandraConfiguration;
         this.blobIdFactory = blobIdFactory;
+        this.cassandraUtils = cassandraUtils;
         this.dataChunker = new DataChunker();
         this.insert = prepareInsert(session);
         this.select = prepareSelect(session);
 
         this.insertPart = prepareInsertPart(session);
         this.selectPart = prepareSelectPart(session);
+
+        this.delete = prepareDelete(session);
+        this.deleteParts = prepareDeleteParts(session);
+        this.selectIds = prepareSelectIds(session);
+    }
+
+    @VisibleForTesting
+    public CassandraBlobsDAO(Session session, CassandraConfiguration cassandraConfiguration, HashBlobId.Factory blobIdFactory) {
+        this(session, cassandraConfiguration, blobIdFactory, CassandraUtils.WITH_DEFAULT_CONFIGURATION);
     }
 
     @VisibleForTesting
@@ -104,6 +123,24 @@ public class CassandraBlobsDAO implements BlobStore {
             .and(eq(BlobParts.CHUNK_NUMBER, bindMarker(BlobParts.CHUNK_NUMBER))));
     }
 
+    private PreparedStatement prepareDelete(Session session) {
+        return session.prepare(QueryBuilder.delete()
+            .from(BlobTable.TABLE_NAME)
+            .where(eq(BlobTable.ID, bindMarker(BlobTable.ID))));
+    }
+
+    private PreparedStatement prepareDeleteParts(Session session) {
+        return session.prepare(QueryBuilder.delete()
+            .from(BlobParts.TABLE_NAME)
+            .where(eq(BlobTable.ID, bindMarker(BlobTable.ID))));
+    }
+
+    private PreparedStatement prepareSelectIds(Session session) {
+        return session.prepare(select(BlobTable.ID)
+            .distinct()
+            .from(BlobTable.TABLE_NAME));
+    }
+
     private PreparedStatement prepareInsert(Session session) {
         return session.prepare(insertInto(BlobTable.TABLE_NAME)
             .value(BlobTable.ID, bindMarker(BlobTable.ID))
@@ -159,24 +196,28 @@ public class CassandraBlobsDAO implements BlobStore {
 
     @Override
     public CompletableFuture<byte[]> readBytes(BlobId blobId) {
+        return selectNumberOfChunk(blobId)
+            .thenCompose(numOfChunk -> toDataParts(numOfChunk, blobId))
+            .thenApply(this::concatenateDataParts);
+    }
+
+    private CompletableFuture<Integer> selectNumberOfChunk(BlobId blobId) {
         return cassandraAsyncExecutor.executeSingleRow(
             select.bind()
                 .setString(BlobTable.ID, blobId.asString()))
-            .thenCompose(row -> toDataParts(row, blobId))
-            .thenApply(this::concatenateDataParts);
+            .thenApply(blobRowOptional -> blobRowOptional
+                .map(blobRow -> blobRow.getInt(BlobTable.NUMBER_OF_CHUNK))
+                .orElseGet(() -> {
+                    LOGGER.warn("Could not retrieve blob metadata for {}", blobId);
+                    return 0;
+                }));
     }
 
-    private CompletableFuture<Stream<BlobPart>> toDataParts(Optional<Row> blobRowOptional, BlobId blobId) {
-        return blobRowOptional.map(blobRow -> {
-            int numOfChunk = blobRow.getInt(BlobTable.NUMBER_OF_CHUNK);
-            return FluentFutureStream.of(
-                IntStream.range(0, numOfChunk)
-                    .mapToObj(position -> readPart(blobId, position)))
-                .completableFuture();
-        }).orElseGet(() -> {
-            LOGGER.warn("Could not retrieve blob metadata for {}", blobId);
-            return CompletableFuture.completedFuture(Stream.empty());
-        });
+    private CompletableFuture<Stream<BlobPart>> toDataParts(int numOfChunk, BlobId blobId) {
+        return FluentFutureStream.of(
+            IntStream.range(0, numOfChunk)
+                .mapToObj(position -> readPart(blobId, position)))
+            .completableFuture();
     }
 
     private byte[] concatenateDataParts(Stream<BlobPart> blobParts) {
@@ -191,6 +232,15 @@ public class CassandraBlobsDAO implements BlobStore {
         return Bytes.concat(parts.toArray(new byte[parts.size()][]));
     }
 
+    private ByteBuffer toByteBuffer(BlobPart blobPart) {
+        return blobPart.row
+            .map(row -> row.getBytes(BlobParts.DATA))
+            .orElseGet(() -> {
+                LOGGER.warn("Missing blob part for blobId {} and position {}", blobPart.blobId, blobPart.position);
+                return ByteBuffer.allocate(0);
+            });
+    }
+
     private byte[] rowToData(Row row) {
         byte[] data = new byte[row.getBytes(BlobParts.DATA).remaining()];
         row.getBytes(BlobParts.DATA).get(data);
@@ -221,31 +271,74 @@ public class CassandraBlobsDAO implements BlobStore {
 
     @Override
     public InputStream read(BlobId blobId) {
-        try {
-            Pipe pipe = Pipe.open();
-            ConsumerChainer<ByteBuffer> consumer = Throwing.consumer(
-                bytes -> {
-                    try (Pipe.SinkChannel sink = pipe.sink()) {
-                        sink.write(bytes);
-                    }
-                }
-            );
-            readBytes(blobId)
-                .thenApply(ByteBuffer::wrap)
-                .thenAccept(consumer.sneakyThrow());
-            return Channels.newInputStream(pipe.source());
-        } catch (IOException cause) {
-            throw new ObjectStoreException(
-                "Failed to convert CompletableFuture<byte[]> to InputStream",
-                cause);
-        }
+        int numOfChunk = selectNumberOfChunk(blobId).join();
+        return new PipelinedPartsInputStream(
+            position -> readPart(blobId, position).thenApply(this::toByteBuffer),
+            numOfChunk,
+            configuration.getBlobPartsInFlight());
     }
 
     @Override
     public CompletableFuture<BlobId> save(InputStream data) {
         Preconditions.checkNotNull(data);
         return CompletableFuture
-            .supplyAsync(Throwing.supplier(() -> IOUtils.toByteArray(data)).sneakyThrow())
-            .thenCompose(this::save);
+            .supplyAsync(Throwing.supplier(() -> saveStreaming(data)).sneakyThrow());
+    }
+
+    private BlobId saveStreaming(InputStream data) throws IOException {
+        FileBackedOutputStream spool = new FileBackedOutputStream(configuration.getBlobPartSize());
+        try {
+            HashingInputStream hashingInputStream = new HashingInputStream(Hashing.sha256(), data);
+            ByteStreams.copy(hashingInputStream, spool);
+            HashBlobId blobId = blobIdFactory.from(hashingInputStream.hash().toString());
+
+            try (InputStream spooledData = spool.asByteSource().openStream()) {
+                int numberOfChunk = writeParts(spooledData, blobId);
+                saveBlobPartsReferences(blobId, numberOfChunk).join();
+            }
+            return blobId;
+        } finally {
+            spool.reset();
+        }
+    }
+
+    private int writeParts(InputStream data, HashBlobId blobId) throws IOException {
+        int partSize = configuration.getBlobPartSize();
+        Deque<CompletableFuture<Void>> inFlight = new ArrayDeque<>();
+        int position = 0;
+        while (true) {
+            byte[] part = new byte[partSize];
+            int read = ByteStreams.read(data, part, 0, partSize);
+            if (read == 0 && position > 0) {
+                break;
+            }
+            if (inFlight.size() >= configuration.getBlobPartsInFlight()) {
+                inFlight.poll().join();
+            }
+            inFlight.add(writePart(ByteBuffer.wrap(part, 0, read), blobId, position));
+            position++;
+            if (read < partSize) {
+                break;
+            }
+        }
+        inFlight.forEach(CompletableFuture::join);
+        return position;
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(BlobId blobId) {
+        return cassandraAsyncExecutor.executeVoid(
+            delete.bind()
+                .setString(BlobTable.ID, blobId.asString()))
+            .thenCompose(any -> cassandraAsyncExecutor.executeVoid(
+                deleteParts.bind()
+                    .setString(BlobTable.ID, blobId.asString())));
+    }
+
+    @Override
+    public CompletableFuture<Stream<BlobId>> listBlobs() {
+        return cassandraAsyncExecutor.execute(selectIds.bind())
+            .thenApply(resultSet -> cassandraUtils.convertToStream(resultSet)
+                .map(row -> blobIdFactory.from(row.getString(BlobTable.ID))));
     }
 }
@@ -0,0 +1,126 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.blob.cassandra.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntFunction;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Reads a blob stored as numbered parts, part after part.
+ *
+ * At most partsInFlight parts are requested ahead of the reader, so that the memory used is bounded
+ * by the current part plus partsInFlight parts, whatever the size of the blob. The next part is only requested
+ * once the reader consumed one, which gives back-pressure to the underlying storage.
+ */
+public class PipelinedPartsInputStream extends InputStream {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final IntFunction<CompletableFuture<ByteBuffer>> partReader;
+    private final int numberOfParts;
+    private final int partsInFlight;
+    private final Deque<CompletableFuture<ByteBuffer>> inFlight;
+    private int nextPartToRequest;
+    private ByteBuffer currentPart;
+
+    public PipelinedPartsInputStream(IntFunction<CompletableFuture<ByteBuffer>> partReader, int numberOfParts, int partsInFlight) {
+        Preconditions.checkNotNull(partReader);
+        Preconditions.checkArgument(numberOfParts >= 0, "numberOfParts can not be negative");
+        Preconditions.checkArgument(partsInFlight > 0, "partsInFlight needs to be strictly positive");
+
+        this.partReader = partReader;
+        this.numberOfParts = numberOfParts;
+        this.partsInFlight = partsInFlight;
+        this.inFlight = new ArrayDeque<>(partsInFlight);
+        this.nextPartToRequest = 0;
+        this.currentPart = EMPTY;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureDataAvailable()) {
+            return -1;
+        }
+        return currentPart.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Preconditions.checkNotNull(b);
+        Preconditions.checkPositionIndexes(off, off + len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureDataAvailable()) {
+            return -1;
+        }
+        int toRead = Math.min(len, currentPart.remaining());
+        currentPart.get(b, off, toRead);
+        return toRead;
+    }
+
+    @Override
+    public int available() {
+        return currentPart.remaining();
+    }
+
+    @Override
+    public void close() {
+        inFlight.forEach(future -> future.cancel(true));
+        inFlight.clear();
+        nextPartToRequest = numberOfParts;
+        currentPart = EMPTY;
+    }
+
+    private boolean ensureDataAvailable() throws IOException {
+        while (!currentPart.hasRemaining()) {
+            requestParts();
+            if (inFlight.isEmpty()) {
+                return false;
+            }
+            CompletableFuture<ByteBuffer> nextPart = inFlight.poll();
+            requestParts();
+            currentPart = awaitPart(nextPart);
+        }
+        return true;
+    }
+
+    private void requestParts() {
+        while (inFlight.size() < partsInFlight && nextPartToRequest < numberOfParts) {
+            inFlight.add(partReader.apply(nextPartToRequest));
+            nextPartToRequest++;
+        }
+    }
+
+    private ByteBuffer awaitPart(CompletableFuture<ByteBuffer> part) throws IOException {
+        try {
+            return part.join();
+        } catch (CompletionException e) {
+            close();
+            throw new IOException("Failed to read blob part", e.getCause());
+        }
+    }
+}
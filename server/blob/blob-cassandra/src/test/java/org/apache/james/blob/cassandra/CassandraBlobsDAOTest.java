@@ -21,6 +21,8 @@ package org.apache.james.blob.cassandra;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 
 import org.apache.james.backends.cassandra.CassandraCluster;
@@ -74,4 +76,43 @@ public class CassandraBlobsDAOTest implements BlobStoreContract {
         assertThat(new String(bytes, StandardCharsets.UTF_8)).isEqualTo(longString);
     }
 
+    @Test
+    void readShouldReturnSplitSavedDataByChunk() {
+        String longString = Strings.repeat("0123456789\n", MULTIPLE_CHUNK_SIZE * 1000);
+        byte[] bytes = longString.getBytes(StandardCharsets.UTF_8);
+        BlobId blobId = testee.save(bytes).join();
+
+        InputStream read = testee.read(blobId);
+
+        assertThat(read).hasSameContentAs(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    void readBytesShouldReturnSplitSavedInputStreamByChunk() {
+        String longString = Strings.repeat("0123456789\n", MULTIPLE_CHUNK_SIZE * 1000);
+        byte[] bytes = longString.getBytes(StandardCharsets.UTF_8);
+        BlobId blobId = testee.save(new ByteArrayInputStream(bytes)).join();
+
+        byte[] readBytes = testee.readBytes(blobId).join();
+
+        assertThat(new String(readBytes, StandardCharsets.UTF_8)).isEqualTo(longString);
+    }
+
+    @Test
+    void saveInputStreamShouldReturnSameBlobIdThanSaveBytes() {
+        byte[] bytes = Strings.repeat("0123456789\n", MULTIPLE_CHUNK_SIZE * 1000).getBytes(StandardCharsets.UTF_8);
+
+        BlobId blobId = testee.save(new ByteArrayInputStream(bytes)).join();
+
+        assertThat(blobId).isEqualTo(testee.save(bytes).join());
+    }
+
+    @Test
+    void saveInputStreamShouldHandleDataOfExactlyOneChunk() {
+        byte[] bytes = new byte[CHUNK_SIZE];
+        BlobId blobId = testee.save(new ByteArrayInputStream(bytes)).join();
+
+        assertThat(testee.readBytes(blobId).join()).isEqualTo(bytes);
+    }
+
 }
\ No newline at end of file
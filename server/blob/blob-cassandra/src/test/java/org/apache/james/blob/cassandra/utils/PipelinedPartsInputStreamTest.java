@@ -0,0 +1,128 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.blob.cassandra.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class PipelinedPartsInputStreamTest {
+    private static final List<String> PARTS = ImmutableList.of("0123", "4567", "89");
+    private static final int PARTS_IN_FLIGHT = 2;
+
+    private CompletableFuture<ByteBuffer> readPart(int position) {
+        return CompletableFuture.completedFuture(ByteBuffer.wrap(PARTS.get(position).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void constructorShouldThrowOnNegativeNumberOfParts() {
+        assertThatThrownBy(() -> new PipelinedPartsInputStream(this::readPart, -1, PARTS_IN_FLIGHT))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void constructorShouldThrowOnZeroPartsInFlight() {
+        assertThatThrownBy(() -> new PipelinedPartsInputStream(this::readPart, PARTS.size(), 0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void readShouldReturnEOFWhenNoParts() throws IOException {
+        PipelinedPartsInputStream testee = new PipelinedPartsInputStream(this::readPart, 0, PARTS_IN_FLIGHT);
+
+        assertThat(testee.read()).isEqualTo(-1);
+    }
+
+    @Test
+    public void readShouldConcatenateParts() {
+        PipelinedPartsInputStream testee = new PipelinedPartsInputStream(this::readPart, PARTS.size(), PARTS_IN_FLIGHT);
+
+        assertThat(testee).hasSameContentAs(new ByteArrayInputStream("0123456789".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void readShouldSkipEmptyParts() {
+        PipelinedPartsInputStream testee = new PipelinedPartsInputStream(
+            position -> position == 1 ? CompletableFuture.completedFuture(ByteBuffer.allocate(0)) : readPart(position),
+            PARTS.size(),
+            PARTS_IN_FLIGHT);
+
+        assertThat(testee).hasSameContentAs(new ByteArrayInputStream("012389".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void readShouldOnlyRequestCurrentPartAndPartsInFlightAhead() throws IOException {
+        AtomicInteger requestedParts = new AtomicInteger();
+        PipelinedPartsInputStream testee = new PipelinedPartsInputStream(
+            position -> {
+                requestedParts.incrementAndGet();
+                return readPart(position);
+            },
+            PARTS.size(),
+            1);
+
+        testee.read();
+
+        assertThat(requestedParts.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void readShouldNotRequestPartsBeforeFirstRead() {
+        AtomicInteger requestedParts = new AtomicInteger();
+        new PipelinedPartsInputStream(
+            position -> {
+                requestedParts.incrementAndGet();
+                return readPart(position);
+            },
+            PARTS.size(),
+            PARTS_IN_FLIGHT);
+
+        assertThat(requestedParts.get()).isZero();
+    }
+
+    @Test
+    public void readShouldThrowWhenPartReadFails() {
+        CompletableFuture<ByteBuffer> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new RuntimeException());
+        PipelinedPartsInputStream testee = new PipelinedPartsInputStream(position -> failure, PARTS.size(), PARTS_IN_FLIGHT);
+
+        assertThatThrownBy(testee::read)
+            .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void readShouldReturnEOFAfterClose() throws IOException {
+        PipelinedPartsInputStream testee = new PipelinedPartsInputStream(this::readPart, PARTS.size(), PARTS_IN_FLIGHT);
+
+        testee.close();
+
+        assertThat(testee.read()).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,143 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.blob.memory;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.apache.james.blob.api.BlobId;
+import org.apache.james.blob.api.BlobReferenceRegistry;
+
+import com.google.common.collect.ImmutableList;
+
+public class MemoryBlobReferenceRegistry implements BlobReferenceRegistry {
+    private final ConcurrentHashMap<BlobId, Long> references;
+    private final ConcurrentHashMap<BlobId, Instant> orphans;
+    private final Set<BlobId> deletions;
+    private final Set<BlobId> untrackedBlobs;
+    private final AtomicBoolean backfillCompleted;
+
+    public MemoryBlobReferenceRegistry() {
+        this.references = new ConcurrentHashMap<>();
+        this.orphans = new ConcurrentHashMap<>();
+        this.deletions = ConcurrentHashMap.newKeySet();
+        this.untrackedBlobs = ConcurrentHashMap.newKeySet();
+        this.backfillCompleted = new AtomicBoolean(false);
+    }
+
+    @Override
+    public CompletableFuture<Void> reference(BlobId blobId) {
+        references.compute(blobId, (key, count) -> {
+            orphans.remove(key);
+            if (count == null) {
+                return 1L;
+            }
+            return count + 1;
+        });
+        awaitDeletion(blobId);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private void awaitDeletion(BlobId blobId) {
+        synchronized (deletions) {
+            while (deletions.contains(blobId)) {
+                try {
+                    deletions.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> dereference(BlobId blobId) {
+        references.compute(blobId, (key, count) -> {
+            long current = Optional.ofNullable(count).orElse(0L);
+            if (current == 1L) {
+                orphans.put(key, Instant.now());
+            }
+            return current - 1;
+        });
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Long> countReferences(BlobId blobId) {
+        return CompletableFuture.completedFuture(references.getOrDefault(blobId, 0L));
+    }
+
+    @Override
+    public CompletableFuture<Stream<Orphan>> listOrphans() {
+        return CompletableFuture.completedFuture(orphans.entrySet()
+            .stream()
+            .map(entry -> new Orphan(entry.getKey(), entry.getValue()))
+            .collect(ImmutableList.toImmutableList())
+            .stream());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> claimOrphan(Orphan orphan) {
+        return CompletableFuture.completedFuture(orphans.remove(orphan.getBlobId(), orphan.getOrphanedAt()));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> startDeletion(BlobId blobId) {
+        synchronized (deletions) {
+            return CompletableFuture.completedFuture(deletions.add(blobId));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> endDeletion(BlobId blobId) {
+        synchronized (deletions) {
+            deletions.remove(blobId);
+            deletions.notifyAll();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> registerUntracked(BlobId blobId) {
+        untrackedBlobs.add(blobId);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isUntracked(BlobId blobId) {
+        return CompletableFuture.completedFuture(untrackedBlobs.contains(blobId));
+    }
+
+    @Override
+    public CompletableFuture<Void> completeBackfill() {
+        backfillCompleted.set(true);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isBackfillCompleted() {
+        return CompletableFuture.completedFuture(backfillCompleted.get());
+    }
+}
@@ -24,12 +24,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.james.blob.api.BlobId;
 import org.apache.james.blob.api.BlobStore;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 
 public class MemoryBlobStore implements BlobStore {
     private final ConcurrentHashMap<BlobId, byte[]> blobs;
@@ -71,6 +73,17 @@ public class MemoryBlobStore implements BlobStore {
         return new ByteArrayInputStream(retrieveStoredValue(blobId));
     }
 
+    @Override
+    public CompletableFuture<Void> delete(BlobId blobId) {
+        blobs.remove(blobId);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Stream<BlobId>> listBlobs() {
+        return CompletableFuture.completedFuture(ImmutableList.copyOf(blobs.keySet()).stream());
+    }
+
     private byte[] retrieveStoredValue(BlobId blobId) {
         return blobs.getOrDefault(blobId, new byte[]{});
     }
@@ -0,0 +1,186 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.blob.memory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.james.blob.api.BlobGarbageCollectionTask;
+import org.apache.james.blob.api.BlobId;
+import org.apache.james.blob.api.HashBlobId;
+import org.apache.james.task.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BlobGarbageCollectionTaskTest {
+
+    private static final HashBlobId.Factory BLOB_ID_FACTORY = new HashBlobId.Factory();
+    private static final byte[] DATA = "toto".getBytes(StandardCharsets.UTF_8);
+
+    private MemoryBlobStore blobStore;
+    private MemoryBlobReferenceRegistry referenceRegistry;
+    private BlobGarbageCollectionTask testee;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new MemoryBlobStore(BLOB_ID_FACTORY);
+        referenceRegistry = new MemoryBlobReferenceRegistry();
+        referenceRegistry.completeBackfill().join();
+        testee = new BlobGarbageCollectionTask(blobStore, referenceRegistry, Duration.ZERO);
+    }
+
+    @Test
+    void runShouldDeleteOrphanBlobs() {
+        BlobId blobId = blobStore.save(DATA).join();
+        referenceRegistry.reference(blobId).join();
+        referenceRegistry.dereference(blobId).join();
+
+        assertThat(testee.run()).isEqualTo(Task.Result.COMPLETED);
+
+        assertThat(blobStore.readBytes(blobId).join()).isEmpty();
+        assertThat(referenceRegistry.listOrphans().join()).isEmpty();
+    }
+
+    @Test
+    void runShouldNotDeleteReferencedBlobs() {
+        BlobId blobId = blobStore.save(DATA).join();
+        referenceRegistry.reference(blobId).join();
+        referenceRegistry.reference(blobId).join();
+        referenceRegistry.dereference(blobId).join();
+
+        assertThat(testee.run()).isEqualTo(Task.Result.COMPLETED);
+
+        assertThat(blobStore.readBytes(blobId).join()).isEqualTo(DATA);
+    }
+
+    @Test
+    void runShouldNotDeleteOrphansWithinGracePeriod() {
+        BlobId blobId = blobStore.save(DATA).join();
+        referenceRegistry.reference(blobId).join();
+        referenceRegistry.dereference(blobId).join();
+
+        new BlobGarbageCollectionTask(blobStore, referenceRegistry).run();
+
+        assertThat(blobStore.readBytes(blobId).join()).isEqualTo(DATA);
+        assertThat(referenceRegistry.listOrphans().join()).hasSize(1);
+    }
+
+    @Test
+    void runShouldNotDeleteBlobsSavedAgain() {
+        BlobId blobId = referenceRegistry.save(blobStore, BLOB_ID_FACTORY, DATA).join();
+        referenceRegistry.dereference(blobId).join();
+
+        referenceRegistry.save(blobStore, BLOB_ID_FACTORY, DATA).join();
+        testee.run();
+
+        assertThat(blobStore.readBytes(blobId).join()).isEqualTo(DATA);
+    }
+
+    @Test
+    void runShouldNotDeleteBlobsStreamedAgain() {
+        BlobId blobId = referenceRegistry.save(blobStore, BLOB_ID_FACTORY, DATA).join();
+        referenceRegistry.dereference(blobId).join();
+
+        BlobId streamedBlobId = referenceRegistry.save(blobStore, BLOB_ID_FACTORY, new ByteArrayInputStream(DATA)).join();
+        testee.run();
+
+        assertThat(streamedBlobId).isEqualTo(blobId);
+        assertThat(blobStore.readBytes(blobId).join()).isEqualTo(DATA);
+    }
+
+    @Test
+    void runShouldLetBlobsSavedWhileBeingDeletedBeWrittenOnceDeleted() throws Exception {
+        BlobId blobId = referenceRegistry.save(blobStore, BLOB_ID_FACTORY, DATA).join();
+        referenceRegistry.dereference(blobId).join();
+        AtomicReference<CompletableFuture<BlobId>> concurrentSave = new AtomicReference<>();
+        MemoryBlobStore concurrentlySavingBlobStore = new MemoryBlobStore(BLOB_ID_FACTORY) {
+            @Override
+            public CompletableFuture<Void> delete(BlobId deletedBlobId) {
+                concurrentSave.set(CompletableFuture.supplyAsync(() -> referenceRegistry.save(blobStore, BLOB_ID_FACTORY, DATA).join()));
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                assertThat(concurrentSave.get()).isNotDone();
+                return blobStore.delete(deletedBlobId);
+            }
+        };
+
+        new BlobGarbageCollectionTask(concurrentlySavingBlobStore, referenceRegistry, Duration.ZERO).run();
+        concurrentSave.get().get(10, TimeUnit.SECONDS);
+
+        assertThat(blobStore.readBytes(blobId).join()).isEqualTo(DATA);
+        assertThat(referenceRegistry.countReferences(blobId).join()).isEqualTo(1L);
+    }
+
+    @Test
+    void runShouldNotDeleteUntrackedBlobs() {
+        BlobId blobId = blobStore.save(DATA).join();
+        referenceRegistry.registerUntracked(blobId).join();
+        referenceRegistry.reference(blobId).join();
+        referenceRegistry.dereference(blobId).join();
+
+        testee.run();
+
+        assertThat(blobStore.readBytes(blobId).join()).isEqualTo(DATA);
+    }
+
+    @Test
+    void runShouldNotDeleteBlobsWhenBackfillIsNotCompleted() {
+        MemoryBlobReferenceRegistry notBackfilledRegistry = new MemoryBlobReferenceRegistry();
+        BlobId blobId = blobStore.save(DATA).join();
+        notBackfilledRegistry.reference(blobId).join();
+        notBackfilledRegistry.dereference(blobId).join();
+
+        assertThat(new BlobGarbageCollectionTask(blobStore, notBackfilledRegistry, Duration.ZERO).run())
+            .isEqualTo(Task.Result.PARTIAL);
+
+        assertThat(blobStore.readBytes(blobId).join()).isEqualTo(DATA);
+    }
+
+    @Test
+    void detailsShouldReportDeletedBlobs() {
+        BlobId blobId = blobStore.save(DATA).join();
+        BlobId referencedBlobId = blobStore.save("tata".getBytes(StandardCharsets.UTF_8)).join();
+        referenceRegistry.reference(blobId).join();
+        referenceRegistry.reference(referencedBlobId).join();
+        referenceRegistry.dereference(blobId).join();
+
+        testee.run();
+
+        BlobGarbageCollectionTask.Details details = (BlobGarbageCollectionTask.Details) testee.details().get();
+        assertThat(details.getOrphanCount()).isEqualTo(1);
+        assertThat(details.getRecentOrphanCount()).isEqualTo(0);
+        assertThat(details.getDeletedBlobCount()).isEqualTo(1);
+        assertThat(details.getReferencedBlobCount()).isEqualTo(0);
+        assertThat(details.getFailedBlobCount()).isEqualTo(0);
+    }
+
+    @Test
+    void runShouldCompleteWhenNoOrphans() {
+        assertThat(testee.run()).isEqualTo(Task.Result.COMPLETED);
+    }
+}
@@ -0,0 +1,75 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.blob.memory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.james.blob.api.BlobId;
+import org.apache.james.blob.api.BlobReferenceBackfillTask;
+import org.apache.james.blob.api.HashBlobId;
+import org.apache.james.task.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BlobReferenceBackfillTaskTest {
+
+    private static final HashBlobId.Factory BLOB_ID_FACTORY = new HashBlobId.Factory();
+    private static final byte[] DATA = "toto".getBytes(StandardCharsets.UTF_8);
+
+    private MemoryBlobStore blobStore;
+    private MemoryBlobReferenceRegistry referenceRegistry;
+    private BlobReferenceBackfillTask testee;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new MemoryBlobStore(BLOB_ID_FACTORY);
+        referenceRegistry = new MemoryBlobReferenceRegistry();
+        testee = new BlobReferenceBackfillTask(blobStore, referenceRegistry);
+    }
+
+    @Test
+    void runShouldRegisterStoredBlobsAsUntracked() {
+        BlobId blobId = blobStore.save(DATA).join();
+
+        assertThat(testee.run()).isEqualTo(Task.Result.COMPLETED);
+
+        assertThat(referenceRegistry.isUntracked(blobId).join()).isTrue();
+    }
+
+    @Test
+    void runShouldCompleteBackfill() {
+        testee.run();
+
+        assertThat(referenceRegistry.isBackfillCompleted().join()).isTrue();
+    }
+
+    @Test
+    void detailsShouldReportUntrackedBlobs() {
+        blobStore.save(DATA).join();
+        blobStore.save("tata".getBytes(StandardCharsets.UTF_8)).join();
+
+        testee.run();
+
+        BlobReferenceBackfillTask.Details details = (BlobReferenceBackfillTask.Details) testee.details().get();
+        assertThat(details.getUntrackedBlobCount()).isEqualTo(2);
+        assertThat(details.getFailedBlobCount()).isEqualTo(0);
+    }
+}
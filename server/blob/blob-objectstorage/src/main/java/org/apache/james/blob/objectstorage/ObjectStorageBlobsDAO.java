@@ -22,7 +22,10 @@ package org.apache.james.blob.objectstorage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.james.blob.api.BlobId;
@@ -32,11 +35,16 @@ import org.apache.james.blob.objectstorage.swift.SwiftKeystone2ObjectStorage;
 import org.apache.james.blob.objectstorage.swift.SwiftKeystone3ObjectStorage;
 import org.apache.james.blob.objectstorage.swift.SwiftTempAuthObjectStorage;
 import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.options.CopyOptions;
+import org.jclouds.blobstore.options.ListContainerOptions;
 import org.jclouds.domain.Location;
 
 import com.github.fge.lambdas.Throwing;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Streams;
 import com.google.common.hash.Hashing;
 import com.google.common.hash.HashingInputStream;
 
@@ -134,5 +142,42 @@ public class ObjectStorageBlobsDAO implements BlobStore {
         }
 
     }
-}
 
+    @Override
+    public CompletableFuture<Void> delete(BlobId blobId) {
+        return CompletableFuture.runAsync(() -> blobStore.removeBlob(containerName.value(), blobId.asString()));
+    }
+
+    /**
+     * Only the first page of the container listing is fetched upfront: the next ones are fetched as the returned
+     * stream is consumed.
+     */
+    @Override
+    public CompletableFuture<Stream<BlobId>> listBlobs() {
+        return CompletableFuture.supplyAsync(() -> blobStore.list(containerName.value(), ListContainerOptions.NONE))
+            .thenApply(firstPage -> Streams.stream(pages(firstPage))
+                .flatMap(page -> page.stream()
+                    .map(metadata -> blobIdFactory.from(metadata.getName()))));
+    }
+
+    private Iterator<PageSet<? extends StorageMetadata>> pages(PageSet<? extends StorageMetadata> firstPage) {
+        return new AbstractIterator<PageSet<? extends StorageMetadata>>() {
+            private Optional<PageSet<? extends StorageMetadata>> previousPage = Optional.empty();
+
+            @Override
+            protected PageSet<? extends StorageMetadata> computeNext() {
+                if (!previousPage.isPresent()) {
+                    previousPage = Optional.of(firstPage);
+                    return firstPage;
+                }
+                String nextMarker = previousPage.get().getNextMarker();
+                if (nextMarker == null) {
+                    return endOfData();
+                }
+                PageSet<? extends StorageMetadata> page = blobStore.list(containerName.value(), ListContainerOptions.Builder.afterMarker(nextMarker));
+                previousPage = Optional.of(page);
+                return page;
+            }
+        };
+    }
+}
@@ -40,6 +40,8 @@ import javax.mail.internet.MimeMessage;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.james.blob.api.BlobId;
+import org.apache.james.blob.api.BlobReferenceRegistry;
 import org.apache.james.blob.api.BlobStore;
 import org.apache.james.blob.api.Store;
 import org.apache.james.blob.api.Store.BlobType;
@@ -52,10 +54,14 @@ public class MimeMessageStore {
 
     public static class Factory {
         private final BlobStore blobStore;
+        private final BlobId.Factory blobIdFactory;
+        private final BlobReferenceRegistry referenceRegistry;
 
         @Inject
-        public Factory(BlobStore blobStore) {
+        public Factory(BlobStore blobStore, BlobId.Factory blobIdFactory, BlobReferenceRegistry referenceRegistry) {
             this.blobStore = blobStore;
+            this.blobIdFactory = blobIdFactory;
+            this.referenceRegistry = referenceRegistry;
         }
 
         public Store<MimeMessage, MimeMessagePartsId> mimeMessageStore() {
@@ -63,7 +69,9 @@ public class MimeMessageStore {
                 new MimeMessagePartsId.Factory(),
                 new MimeMessageEncoder(),
                 new MimeMessageDecoder(),
-                blobStore);
+                blobStore,
+                blobIdFactory,
+                referenceRegistry);
         }
     }
 
@@ -147,7 +155,7 @@ public class MimeMessageStore {
         }
     }
 
-    public static Factory factory(BlobStore blobStore) {
-        return new Factory(blobStore);
+    public static Factory factory(BlobStore blobStore, BlobId.Factory blobIdFactory, BlobReferenceRegistry referenceRegistry) {
+        return new Factory(blobStore, blobIdFactory, referenceRegistry);
     }
 }
@@ -27,9 +27,11 @@ import java.nio.charset.StandardCharsets;
 import javax.mail.internet.MimeMessage;
 
 import org.apache.james.blob.api.BlobId;
+import org.apache.james.blob.api.BlobReferenceRegistry;
 import org.apache.james.blob.api.BlobStore;
 import org.apache.james.blob.api.HashBlobId;
 import org.apache.james.blob.api.Store;
+import org.apache.james.blob.memory.MemoryBlobReferenceRegistry;
 import org.apache.james.blob.memory.MemoryBlobStore;
 import org.apache.james.core.builder.MimeMessageBuilder;
 import org.apache.james.util.MimeMessageUtil;
@@ -42,11 +44,13 @@ class MimeMessageStoreTest {
 
     private Store<MimeMessage, MimeMessagePartsId> testee;
     private BlobStore blobStore;
+    private MemoryBlobReferenceRegistry referenceRegistry;
 
     @BeforeEach
     void setUp() {
         blobStore = new MemoryBlobStore(BLOB_ID_FACTORY);
-        testee = MimeMessageStore.factory(blobStore).mimeMessageStore();
+        referenceRegistry = new MemoryBlobReferenceRegistry();
+        testee = MimeMessageStore.factory(blobStore, BLOB_ID_FACTORY, referenceRegistry).mimeMessageStore();
     }
 
     @Test
@@ -61,6 +65,40 @@ class MimeMessageStoreTest {
             .isInstanceOf(NullPointerException.class);
     }
 
+    @Test
+    void saveShouldReferenceBlobsOfEachMessage() throws Exception {
+        MimeMessage message = MimeMessageBuilder.mimeMessageBuilder()
+            .addFrom("any@any.com")
+            .addToRecipient("toddy@any.com")
+            .setSubject("Important Mail")
+            .setText("Important mail content")
+            .build();
+
+        MimeMessagePartsId parts = testee.save(message).join();
+        testee.save(message).join();
+
+        SoftAssertions.assertSoftly(softly -> {
+            softly.assertThat(referenceRegistry.countReferences(parts.getHeaderBlobId()).join()).isEqualTo(2L);
+            softly.assertThat(referenceRegistry.countReferences(parts.getBodyBlobId()).join()).isEqualTo(2L);
+        });
+    }
+
+    @Test
+    void deleteShouldDereferenceBlobs() throws Exception {
+        MimeMessage message = MimeMessageBuilder.mimeMessageBuilder()
+            .addFrom("any@any.com")
+            .addToRecipient("toddy@any.com")
+            .setSubject("Important Mail")
+            .setText("Important mail content")
+            .build();
+        MimeMessagePartsId parts = testee.save(message).join();
+
+        testee.delete(parts).join();
+
+        assertThat(referenceRegistry.listOrphans().join().map(BlobReferenceRegistry.Orphan::getBlobId))
+            .containsOnly(parts.getHeaderBlobId(), parts.getBodyBlobId());
+    }
+
     @Test
     void mailStoreShouldPreserveContent() throws Exception {
         MimeMessage message = MimeMessageBuilder.mimeMessageBuilder()
@@ -0,0 +1,44 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.server.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the full copies of message bodies done by {@link MimeMessageWrapper}.
+ * 
+ * Counts are kept per thread so that callers can attribute the copies to the
+ * processing they ran, by reading the count before and after.
+ */
+public class MessageBodyCopies {
+
+    private static final ThreadLocal<AtomicLong> COPIES = ThreadLocal.withInitial(AtomicLong::new);
+
+    public static long countForCurrentThread() {
+        return COPIES.get().get();
+    }
+
+    static void recordCopy() {
+        COPIES.get().incrementAndGet();
+    }
+
+    private MessageBodyCopies() {
+    }
+}
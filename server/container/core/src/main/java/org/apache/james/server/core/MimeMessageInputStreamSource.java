@@ -39,6 +39,8 @@ import org.apache.james.lifecycle.api.Disposable;
  * Takes an input stream and creates a repeatable input stream source for a
  * MimeMessageWrapper. It does this by completely reading the input stream and
  * saving that to data to an {@link DeferredFileOutputStream} with its threshold set to 100kb
+ * unless specified otherwise: smaller messages are kept in memory, bigger ones spill to a
+ * temporary file.
  */
 public class MimeMessageInputStreamSource extends MimeMessageSource implements Disposable {
 
@@ -57,12 +59,12 @@ public class MimeMessageInputStreamSource extends MimeMessageSource implements D
     /**
      * 100kb threshold for the stream.
      */
-    private static final int THRESHOLD = 1024 * 100;
+    public static final int DEFAULT_THRESHOLD = 1024 * 100;
 
     /**
      * Temporary directory to use
      */
-    private static final File TMPDIR = new File(System.getProperty("java.io.tmpdir"));
+    public static final File DEFAULT_TMPDIR = new File(System.getProperty("java.io.tmpdir"));
 
     /**
      * Construct a new MimeMessageInputStreamSource from an
@@ -77,7 +79,7 @@ public class MimeMessageInputStreamSource extends MimeMessageSource implements D
         // We want to immediately read this into a temporary file
         // Create a temp file and channel the input stream into it
         try {
-            out = new DeferredFileOutputStream(THRESHOLD, "mimemessage-" + key, ".m64", TMPDIR);
+            out = new DeferredFileOutputStream(DEFAULT_THRESHOLD, "mimemessage-" + key, ".m64", DEFAULT_TMPDIR);
             IOUtils.copy(in, out);
             sourceId = key;
         } catch (IOException ioe) {
@@ -107,8 +109,20 @@ public class MimeMessageInputStreamSource extends MimeMessageSource implements D
     }
 
     public MimeMessageInputStreamSource(String key) {
+        this(key, DEFAULT_THRESHOLD, DEFAULT_TMPDIR);
+    }
+
+    /**
+     * Construct a new empty MimeMessageInputStreamSource, to be filled through
+     * {@link #getWritableOutputStream()}.
+     *
+     * @param key the prefix for the name of the temp file
+     * @param threshold the number of bytes kept in memory before spilling to a temp file
+     * @param tmpDir the directory the temp file is created in
+     */
+    public MimeMessageInputStreamSource(String key, int threshold, File tmpDir) {
         super();
-        out = new DeferredFileOutputStream(THRESHOLD, key, ".m64", TMPDIR);
+        out = new DeferredFileOutputStream(threshold, key, ".m64", tmpDir);
         sourceId = key;
     }
 
@@ -151,6 +165,14 @@ public class MimeMessageInputStreamSource extends MimeMessageSource implements D
         return out.getByteCount();
     }
 
+    /**
+     * The data is written once, through {@link #getWritableOutputStream()}, before the source is read.
+     */
+    @Override
+    public boolean isImmutable() {
+        return true;
+    }
+
     public OutputStream getWritableOutputStream() {
         return out;
     }
@@ -50,6 +50,16 @@ public abstract class MimeMessageSource {
      */
     public abstract InputStream getInputStream() throws IOException;
 
+    /**
+     * Return true if the data of this source never changes once written. Several messages can then read
+     * their body from the same source instead of copying it. Default implementation returns false.
+     * 
+     * @return whether this source can be shared
+     */
+    public boolean isImmutable() {
+        return false;
+    }
+
     /**
      * Return the size of all the data. Default implementation... others can
      * override to do this much faster
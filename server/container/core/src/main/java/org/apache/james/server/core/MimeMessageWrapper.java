@@ -118,47 +118,77 @@ public class MimeMessageWrapper extends MimeMessage implements Disposable {
         this(Session.getDefaultInstance(System.getProperties()), source);
     }
 
+    /**
+     * Copy the given message. When the body of a {@link MimeMessageWrapper} has
+     * not been modified and its source is immutable, only the headers are
+     * copied and both messages read their body from the same source.
+     */
     public MimeMessageWrapper(MimeMessage original) throws MessagingException {
         this(Session.getDefaultInstance(System.getProperties()));
         flags = original.getFlags();
 
-        if (source == null) {
-            InputStream in;
+        if (original instanceof MimeMessageWrapper && ((MimeMessageWrapper) original).isBodyShareable()) {
+            shareBody((MimeMessageWrapper) original);
+        } else {
+            copyMessage(original);
+        }
+    }
 
-            boolean useMemoryCopy = false;
-            String memoryCopy = System.getProperty(USE_MEMORY_COPY);
-            if (memoryCopy != null) {
-                useMemoryCopy = Boolean.valueOf(memoryCopy);
+    private void shareBody(MimeMessageWrapper original) throws MessagingException {
+        synchronized (original) {
+            original.source = SharedMimeMessageSource.of(original.source);
+            source = ((SharedMimeMessageSource) original.source).share();
+            if (original.headersModified) {
+                headers = new MailHeaders(new InternetHeadersInputStream(original.headers));
+                initialHeaderSize = original.initialHeaderSize;
+                headersModified = true;
+                modified = original.modified;
+                saved = original.saved;
             }
-            try {
+        }
+    }
 
-                if (useMemoryCopy) {
-                    ByteArrayOutputStream bos;
-                    int size = original.getSize();
-                    if (size > 0) {
-                        bos = new ByteArrayOutputStream(size);
-                    } else {
-                        bos = new ByteArrayOutputStream();
-                    }
-                    original.writeTo(bos);
-                    bos.close();
-                    in = new SharedByteArrayInputStream(bos.toByteArray());
-                    parse(in);
-                    in.close();
-                    saved = true;
+    private synchronized boolean isBodyShareable() {
+        return source != null && source.isImmutable() && !bodyModified;
+    }
+
+    private void copyMessage(MimeMessage original) throws MessagingException {
+        InputStream in;
+
+        boolean useMemoryCopy = false;
+        String memoryCopy = System.getProperty(USE_MEMORY_COPY);
+        if (memoryCopy != null) {
+            useMemoryCopy = Boolean.valueOf(memoryCopy);
+        }
+        try {
+
+            if (useMemoryCopy) {
+                ByteArrayOutputStream bos;
+                int size = original.getSize();
+                if (size > 0) {
+                    bos = new ByteArrayOutputStream(size);
                 } else {
-                    MimeMessageInputStreamSource src = new MimeMessageInputStreamSource("MailCopy-" + UUID.randomUUID().toString());
-                    OutputStream out = src.getWritableOutputStream();
-                    original.writeTo(out);
-                    out.close();
-                    source = src;
+                    bos = new ByteArrayOutputStream();
                 }
-
-            } catch (IOException ex) {
-                // should never happen, but just in case...
-                throw new MessagingException("IOException while copying message", ex);
+                original.writeTo(bos);
+                bos.close();
+                in = new SharedByteArrayInputStream(bos.toByteArray());
+                parse(in);
+                in.close();
+                saved = true;
+            } else {
+                MimeMessageInputStreamSource src = new MimeMessageInputStreamSource("MailCopy-" + UUID.randomUUID().toString());
+                OutputStream out = src.getWritableOutputStream();
+                original.writeTo(out);
+                out.close();
+                source = src;
             }
+
+        } catch (IOException ex) {
+            // should never happen, but just in case...
+            throw new MessagingException("IOException while copying message", ex);
         }
+        MessageBodyCopies.recordCopy();
     }
 
     /**
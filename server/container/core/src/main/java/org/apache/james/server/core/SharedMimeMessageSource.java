@@ -0,0 +1,124 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.server.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.james.lifecycle.api.Disposable;
+import org.apache.james.lifecycle.api.LifecycleUtil;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link MimeMessageSource} read by several messages. Each message owns its
+ * own instance, obtained through {@link #share()}, and disposes it. The
+ * underlying source is disposed once all of them have been disposed.
+ */
+public class SharedMimeMessageSource extends MimeMessageSource implements Disposable {
+
+    private static class Reference {
+        private final MimeMessageSource source;
+        private int count;
+
+        private Reference(MimeMessageSource source) {
+            this.source = source;
+            this.count = 1;
+        }
+
+        private synchronized void retain() {
+            Preconditions.checkState(count > 0, "Can not share a disposed source");
+            count++;
+        }
+
+        private synchronized void release() {
+            count--;
+            if (count == 0) {
+                LifecycleUtil.dispose(source);
+            }
+        }
+
+        private synchronized int getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Take ownership of the given source. The returned instance replaces it for
+     * its current owner.
+     */
+    public static SharedMimeMessageSource of(MimeMessageSource source) {
+        if (source instanceof SharedMimeMessageSource) {
+            return (SharedMimeMessageSource) source;
+        }
+        return new SharedMimeMessageSource(new Reference(source));
+    }
+
+    private final Reference reference;
+    private final AtomicBoolean disposed;
+
+    private SharedMimeMessageSource(Reference reference) {
+        this.reference = reference;
+        this.disposed = new AtomicBoolean(false);
+    }
+
+    /**
+     * Return a new instance reading the same data, to be disposed by its new owner.
+     */
+    public SharedMimeMessageSource share() {
+        Preconditions.checkState(!disposed.get(), "Can not share a disposed source");
+        reference.retain();
+        return new SharedMimeMessageSource(reference);
+    }
+
+    @Override
+    public String getSourceId() {
+        return reference.source.getSourceId();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return reference.source.getInputStream();
+    }
+
+    @Override
+    public long getMessageSize() throws IOException {
+        return reference.source.getMessageSize();
+    }
+
+    @Override
+    public boolean isImmutable() {
+        return reference.source.isImmutable();
+    }
+
+    @Override
+    public void dispose() {
+        if (disposed.compareAndSet(false, true)) {
+            reference.release();
+        }
+    }
+
+    @VisibleForTesting
+    int getReferenceCount() {
+        return reference.getCount();
+    }
+}
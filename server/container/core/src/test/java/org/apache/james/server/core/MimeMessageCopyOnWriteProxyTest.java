@@ -21,6 +21,8 @@ package org.apache.james.server.core;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Fail.fail;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 
 import javax.mail.MessagingException;
@@ -33,6 +35,8 @@ import org.apache.james.lifecycle.api.LifecycleUtil;
 import org.apache.mailet.Mail;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableList;
+
 public class MimeMessageCopyOnWriteProxyTest extends MimeMessageFromStreamTest {
 
     final String content = "Subject: foo\r\nContent-Transfer-Encoding2: plain";
@@ -245,6 +249,62 @@ public class MimeMessageCopyOnWriteProxyTest extends MimeMessageFromStreamTest {
         LifecycleUtil.dispose(mm);
     }
 
+    @Test
+    public void writingHeadersOfASharedMessageShouldNotCopyTheBody() throws Exception {
+        MailImpl mail = new MailImpl("test", new MailAddress("test@test.com"), ImmutableList.of(new MailAddress("recipient@test.com")),
+            getMessageFromSources(content + sep + body));
+        MailImpl duplicate = MailImpl.duplicate(mail);
+        long copiesBefore = MessageBodyCopies.countForCurrentThread();
+
+        duplicate.getMessage().setHeader("X-Test", "value");
+
+        assertThat(MessageBodyCopies.countForCurrentThread()).isEqualTo(copiesBefore);
+        assertThat(isSameMimeMessage(duplicate.getMessage(), mail.getMessage())).isFalse();
+        assertThat(mail.getMessage().getHeader("X-Test")).isNull();
+        assertThat(asString(duplicate.getMessage()))
+            .contains("X-Test: value")
+            .endsWith(sep + body);
+        LifecycleUtil.dispose(mail);
+        LifecycleUtil.dispose(duplicate);
+    }
+
+    @Test
+    public void sharedBodyShouldRemainReadableOnceTheOriginalMessageIsDisposed() throws Exception {
+        MailImpl mail = new MailImpl("test", new MailAddress("test@test.com"), ImmutableList.of(new MailAddress("recipient@test.com")),
+            getMessageFromSources(content + sep + body));
+        MailImpl duplicate = MailImpl.duplicate(mail);
+        duplicate.getMessage().setHeader("X-Test", "value");
+
+        LifecycleUtil.dispose(mail);
+
+        assertThat(asString(duplicate.getMessage()))
+            .contains("X-Test: value")
+            .endsWith(sep + body);
+        LifecycleUtil.dispose(duplicate);
+    }
+
+    @Test
+    public void writingASharedMessageWithAModifiedBodyShouldCopyTheBody() throws Exception {
+        MailImpl mail = new MailImpl("test", new MailAddress("test@test.com"), ImmutableList.of(new MailAddress("recipient@test.com")),
+            getMessageFromSources(content + sep + body));
+        mail.getMessage().setText("new body");
+        MailImpl duplicate = MailImpl.duplicate(mail);
+        long copiesBefore = MessageBodyCopies.countForCurrentThread();
+
+        duplicate.getMessage().setHeader("X-Test", "value");
+
+        assertThat(MessageBodyCopies.countForCurrentThread()).isEqualTo(copiesBefore + 1);
+        assertThat(duplicate.getMessage().getContent()).isEqualTo("new body");
+        LifecycleUtil.dispose(mail);
+        LifecycleUtil.dispose(duplicate);
+    }
+
+    private static String asString(MimeMessage message) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        message.writeTo(out);
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
     private static String getReferences(MimeMessage m) {
         StringBuilder ref = new StringBuilder("/");
         while (m instanceof MimeMessageCopyOnWriteProxy) {
@@ -20,13 +20,18 @@ package org.apache.james.server.core;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 
 import javax.mail.MessagingException;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.james.util.ZeroedInputStream;
 import org.junit.After;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class MimeMessageInputStreamSourceTest {
 
@@ -34,6 +39,9 @@ public class MimeMessageInputStreamSourceTest {
     private static final int _10KB = 10 * 1024;
     private MimeMessageInputStreamSource testee;
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @After
     public void tearDown() {
         testee.dispose();
@@ -57,4 +65,44 @@ public class MimeMessageInputStreamSourceTest {
         testee = new MimeMessageInputStreamSource(veryShortName, new ZeroedInputStream(_1M));
         assertThat(testee.getInputStream()).isNotNull();
     }
+
+    @Test
+    public void writtenContentBelowThresholdShouldNotSpill() throws Exception {
+        File spillDirectory = temporaryFolder.newFolder();
+        testee = new MimeMessageInputStreamSource("myKey", _10KB, spillDirectory);
+
+        write(testee, _10KB - 1);
+
+        assertThat(spillDirectory.listFiles()).isEmpty();
+        assertThat(testee.getInputStream()).hasSameContentAs(new ZeroedInputStream(_10KB - 1));
+    }
+
+    @Test
+    public void writtenContentAboveThresholdShouldSpillToTheGivenDirectory() throws Exception {
+        File spillDirectory = temporaryFolder.newFolder();
+        testee = new MimeMessageInputStreamSource("myKey", _10KB, spillDirectory);
+
+        write(testee, _10KB + 1);
+
+        assertThat(spillDirectory.listFiles()).hasSize(1);
+        assertThat(testee.getInputStream()).hasSameContentAs(new ZeroedInputStream(_10KB + 1));
+        assertThat(testee.getMessageSize()).isEqualTo(_10KB + 1);
+    }
+
+    @Test
+    public void disposeShouldDeleteTheSpilledFile() throws Exception {
+        File spillDirectory = temporaryFolder.newFolder();
+        testee = new MimeMessageInputStreamSource("myKey", _10KB, spillDirectory);
+        write(testee, _10KB + 1);
+
+        testee.dispose();
+
+        assertThat(spillDirectory.listFiles()).isEmpty();
+    }
+
+    private void write(MimeMessageInputStreamSource source, int size) throws IOException {
+        try (OutputStream out = source.getWritableOutputStream()) {
+            IOUtils.copy(new ZeroedInputStream(size), out);
+        }
+    }
 }
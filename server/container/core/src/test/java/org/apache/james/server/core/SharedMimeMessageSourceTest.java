@@ -0,0 +1,112 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.server.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import org.apache.james.lifecycle.api.Disposable;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SharedMimeMessageSourceTest {
+
+    private static class DisposableSource extends MimeMessageSource implements Disposable {
+        private boolean disposed = false;
+
+        @Override
+        public String getSourceId() {
+            return "id";
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream("Subject: test\r\n\r\nbody".getBytes());
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+        }
+    }
+
+    private DisposableSource source;
+    private SharedMimeMessageSource testee;
+
+    @Before
+    public void setUp() {
+        source = new DisposableSource();
+        testee = SharedMimeMessageSource.of(source);
+    }
+
+    @Test
+    public void disposeShouldDisposeTheSourceWhenNotShared() {
+        testee.dispose();
+
+        assertThat(source.disposed).isTrue();
+    }
+
+    @Test
+    public void disposeShouldNotDisposeTheSourceWhileShared() {
+        SharedMimeMessageSource shared = testee.share();
+
+        testee.dispose();
+
+        assertThat(source.disposed).isFalse();
+        assertThat(shared.getSourceId()).isEqualTo("id");
+    }
+
+    @Test
+    public void disposeShouldDisposeTheSourceOnceAllSharesAreDisposed() {
+        SharedMimeMessageSource shared = testee.share();
+
+        testee.dispose();
+        shared.dispose();
+
+        assertThat(source.disposed).isTrue();
+    }
+
+    @Test
+    public void disposeShouldBeIdempotent() {
+        SharedMimeMessageSource shared = testee.share();
+
+        testee.dispose();
+        testee.dispose();
+
+        assertThat(source.disposed).isFalse();
+        assertThat(shared.getReferenceCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void ofShouldNotWrapASharedSourceAgain() {
+        assertThat(SharedMimeMessageSource.of(testee)).isSameAs(testee);
+    }
+
+    @Test
+    public void shareShouldThrowWhenDisposed() {
+        testee.dispose();
+
+        assertThatThrownBy(() -> testee.share())
+            .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,67 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.modules.mailbox;
+
+import java.io.FileNotFoundException;
+import java.util.Optional;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.james.blob.cache.BlobCacheConfiguration;
+import org.apache.james.filesystem.api.FileSystem;
+import org.apache.james.util.Size;
+
+import com.github.fge.lambdas.Throwing;
+import com.google.common.base.Preconditions;
+
+public class BlobCacheConfigurationReader {
+    public static final String BLOB_CACHE_ENABLED = "blob.cache.enabled";
+    public static final String BLOB_CACHE_DIRECTORY = "blob.cache.directory";
+    public static final String BLOB_CACHE_SEGMENT_SIZE = "blob.cache.segment.size";
+    public static final String BLOB_CACHE_SEGMENT_COUNT = "blob.cache.segment.count";
+    public static final String BLOB_CACHE_ENTRY_SIZE_MAX = "blob.cache.entry.size.max";
+    public static final String DEFAULT_DIRECTORY = FileSystem.FILE_PROTOCOL_AND_VAR + "blobcache";
+
+    /**
+     * @return the configuration of the blob cache, or an empty {@link Optional} when it is disabled
+     */
+    public static Optional<BlobCacheConfiguration> readBlobCacheConfiguration(Configuration configuration, FileSystem fileSystem) throws FileNotFoundException {
+        if (!configuration.getBoolean(BLOB_CACHE_ENABLED, false)) {
+            return Optional.empty();
+        }
+
+        BlobCacheConfiguration.Builder builder = BlobCacheConfiguration.builder()
+            .directory(fileSystem.getFile(configuration.getString(BLOB_CACHE_DIRECTORY, DEFAULT_DIRECTORY)));
+
+        readSize(configuration, BLOB_CACHE_SEGMENT_SIZE).ifPresent(builder::segmentSize);
+        Optional.ofNullable(configuration.getInteger(BLOB_CACHE_SEGMENT_COUNT, null)).ifPresent(builder::segmentCount);
+        readSize(configuration, BLOB_CACHE_ENTRY_SIZE_MAX).ifPresent(builder::maxEntrySize);
+
+        return Optional.of(builder.build());
+    }
+
+    private static Optional<Integer> readSize(Configuration configuration, String key) {
+        return Optional.ofNullable(configuration.getString(key, null))
+            .map(Throwing.function(Size::parse))
+            .map(Size::asBytes)
+            .map(bytes -> {
+                Preconditions.checkArgument(bytes <= Integer.MAX_VALUE, "'%s' can not exceed 2GB", key);
+                return bytes.intValue();
+            });
+    }
+}
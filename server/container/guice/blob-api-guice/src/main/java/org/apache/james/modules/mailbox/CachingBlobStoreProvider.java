@@ -0,0 +1,91 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.modules.mailbox;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Optional;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.james.blob.api.BlobStore;
+import org.apache.james.blob.cache.BlobCacheConfiguration;
+import org.apache.james.blob.cache.CachedBlobStore;
+import org.apache.james.blob.cache.MappedSegmentsBlobCache;
+import org.apache.james.filesystem.api.FileSystem;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.utils.PropertiesProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Provider;
+
+/**
+ * Serves a blob store, behind a local {@link CachedBlobStore} when enabled in
+ * <code>blobcache.properties</code>.
+ *
+ * Implementations only need to inject the blob store to serve.
+ */
+public abstract class CachingBlobStoreProvider implements Provider<BlobStore> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingBlobStoreProvider.class);
+
+    private static final String BLOB_CACHE_CONFIGURATION_NAME = "blobcache";
+
+    private final BlobStore blobStore;
+    private final Optional<MappedSegmentsBlobCache> cache;
+
+    protected CachingBlobStoreProvider(BlobStore backend, PropertiesProvider propertiesProvider, FileSystem fileSystem, MetricFactory metricFactory) throws ConfigurationException, IOException {
+        Optional<BlobCacheConfiguration> configuration = readConfiguration(propertiesProvider, fileSystem);
+        if (configuration.isPresent()) {
+            LOGGER.info("Blob cache has been enabled: {}", configuration.get());
+            MappedSegmentsBlobCache blobCache = new MappedSegmentsBlobCache(configuration.get(), metricFactory);
+            this.cache = Optional.of(blobCache);
+            this.blobStore = new CachedBlobStore(backend, blobCache, metricFactory);
+        } else {
+            this.cache = Optional.empty();
+            this.blobStore = backend;
+        }
+    }
+
+    private Optional<BlobCacheConfiguration> readConfiguration(PropertiesProvider propertiesProvider, FileSystem fileSystem) throws ConfigurationException, FileNotFoundException {
+        Configuration configuration;
+        try {
+            configuration = propertiesProvider.getConfiguration(BLOB_CACHE_CONFIGURATION_NAME);
+        } catch (FileNotFoundException e) {
+            LOGGER.info("Could not find {} configuration file. Blob cache is disabled.", BLOB_CACHE_CONFIGURATION_NAME);
+            return Optional.empty();
+        }
+        return BlobCacheConfigurationReader.readBlobCacheConfiguration(configuration, fileSystem);
+    }
+
+    @Override
+    public BlobStore get() {
+        return blobStore;
+    }
+
+    @PreDestroy
+    private void stop() throws IOException {
+        if (cache.isPresent()) {
+            cache.get().close();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.modules.mailbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.StringReader;
+
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.james.blob.cache.BlobCacheConfiguration;
+import org.apache.james.filesystem.api.FileSystem;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BlobCacheConfigurationReaderTest {
+    private static final File DEFAULT_DIRECTORY = new File("/james/var/blobcache");
+    private static final File DIRECTORY = new File("/cache");
+
+    private FileSystem fileSystem;
+
+    @Before
+    public void setUp() throws Exception {
+        fileSystem = mock(FileSystem.class);
+        when(fileSystem.getFile(BlobCacheConfigurationReader.DEFAULT_DIRECTORY)).thenReturn(DEFAULT_DIRECTORY);
+        when(fileSystem.getFile("/cache")).thenReturn(DIRECTORY);
+    }
+
+    @Test
+    public void readBlobCacheConfigurationShouldBeDisabledByDefault() throws Exception {
+        PropertiesConfiguration configuration = new PropertiesConfiguration();
+        configuration.load(new StringReader(""));
+
+        assertThat(BlobCacheConfigurationReader.readBlobCacheConfiguration(configuration, fileSystem))
+            .isEmpty();
+    }
+
+    @Test
+    public void readBlobCacheConfigurationShouldBeEmptyWhenDisabled() throws Exception {
+        PropertiesConfiguration configuration = new PropertiesConfiguration();
+        configuration.load(new StringReader(
+            "blob.cache.enabled=false\n" +
+            "blob.cache.directory=/cache\n"));
+
+        assertThat(BlobCacheConfigurationReader.readBlobCacheConfiguration(configuration, fileSystem))
+            .isEmpty();
+    }
+
+    @Test
+    public void readBlobCacheConfigurationShouldUseDefaultValues() throws Exception {
+        PropertiesConfiguration configuration = new PropertiesConfiguration();
+        configuration.load(new StringReader(
+            "blob.cache.enabled=true\n"));
+
+        assertThat(BlobCacheConfigurationReader.readBlobCacheConfiguration(configuration, fileSystem))
+            .contains(BlobCacheConfiguration.builder()
+                .directory(DEFAULT_DIRECTORY)
+                .build());
+    }
+
+    @Test
+    public void readBlobCacheConfigurationShouldReadAllValues() throws Exception {
+        PropertiesConfiguration configuration = new PropertiesConfiguration();
+        configuration.load(new StringReader(
+            "blob.cache.enabled=true\n" +
+            "blob.cache.directory=/cache\n" +
+            "blob.cache.segment.size=16M\n" +
+            "blob.cache.segment.count=4\n" +
+            "blob.cache.entry.size.max=64K\n"));
+
+        assertThat(BlobCacheConfigurationReader.readBlobCacheConfiguration(configuration, fileSystem))
+            .contains(BlobCacheConfiguration.builder()
+                .directory(DIRECTORY)
+                .segmentSize(16 * 1024 * 1024)
+                .segmentCount(4)
+                .maxEntrySize(64 * 1024)
+                .build());
+    }
+
+    @Test
+    public void readBlobCacheConfigurationShouldRejectSegmentsOfMoreThanTwoGigabytes() throws Exception {
+        PropertiesConfiguration configuration = new PropertiesConfiguration();
+        configuration.load(new StringReader(
+            "blob.cache.enabled=true\n" +
+            "blob.cache.segment.size=4G\n"));
+
+        assertThatThrownBy(() -> BlobCacheConfigurationReader.readBlobCacheConfiguration(configuration, fileSystem))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
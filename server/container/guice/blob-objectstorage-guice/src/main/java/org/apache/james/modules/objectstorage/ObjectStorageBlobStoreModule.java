@@ -30,6 +30,6 @@ public class ObjectStorageBlobStoreModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(ObjectStorageBlobsDAO.class).toProvider(ObjectStorageBlobsDAOProvider.class).in(Scopes.SINGLETON);
-        bind(BlobStore.class).to(ObjectStorageBlobsDAO.class);
+        bind(BlobStore.class).toProvider(ObjectStorageBlobStoreProvider.class).in(Scopes.SINGLETON);
     }
 }
@@ -16,27 +16,27 @@
  * specific language governing permissions and limitations      *
  * under the License.                                           *
  ****************************************************************/
-package org.apache.james.mailbox.store.search.comparator;
 
-import java.util.Comparator;
+package org.apache.james.modules.objectstorage;
 
-import org.apache.james.mailbox.store.mail.model.MailboxMessage;
-import org.apache.james.mailbox.store.search.SearchUtil;
+import java.io.IOException;
 
-public class HeaderDisplayComparator extends AbstractHeaderComparator {
-    public static final Comparator<MailboxMessage> FROM_COMPARATOR = new HeaderDisplayComparator(FROM);
-    public static final Comparator<MailboxMessage> TO_COMPARATOR = new HeaderDisplayComparator(TO);
+import javax.inject.Inject;
 
-    private final String headerName;
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.james.blob.objectstorage.ObjectStorageBlobsDAO;
+import org.apache.james.filesystem.api.FileSystem;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.modules.mailbox.CachingBlobStoreProvider;
+import org.apache.james.utils.PropertiesProvider;
 
-    public HeaderDisplayComparator(String headerName) {
-        this.headerName = headerName;
-    }
-
-    @Override
-    public int compare(MailboxMessage o1, MailboxMessage o2) {
-        String display1 = SearchUtil.getDisplayAddress(getHeaderValue(headerName, o1));
-        String display2 = SearchUtil.getDisplayAddress(getHeaderValue(headerName, o2));
-        return display1.compareToIgnoreCase(display2);
+/**
+ * Serves the object storage blob store, behind a local cache when enabled in
+ * <code>blobcache.properties</code>.
+ */
+class ObjectStorageBlobStoreProvider extends CachingBlobStoreProvider {
+    @Inject
+    ObjectStorageBlobStoreProvider(ObjectStorageBlobsDAO blobsDAO, PropertiesProvider propertiesProvider, FileSystem fileSystem, MetricFactory metricFactory) throws ConfigurationException, IOException {
+        super(blobsDAO, propertiesProvider, fileSystem, metricFactory);
     }
 }
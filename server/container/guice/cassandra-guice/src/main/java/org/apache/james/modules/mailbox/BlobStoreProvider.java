@@ -0,0 +1,40 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.modules.mailbox;
+
+import java.io.IOException;
+
+import javax.inject.Inject;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.james.blob.cassandra.CassandraBlobsDAO;
+import org.apache.james.filesystem.api.FileSystem;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.utils.PropertiesProvider;
+
+/**
+ * Serves the Cassandra blob store, behind a local cache when enabled in
+ * <code>blobcache.properties</code>.
+ */
+class BlobStoreProvider extends CachingBlobStoreProvider {
+    @Inject
+    BlobStoreProvider(CassandraBlobsDAO blobsDAO, PropertiesProvider propertiesProvider, FileSystem fileSystem, MetricFactory metricFactory) throws ConfigurationException, IOException {
+        super(blobsDAO, propertiesProvider, fileSystem, metricFactory);
+    }
+}
@@ -0,0 +1,59 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.modules.mailbox;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.james.backends.es.BulkIndexingPipeline;
+import org.apache.james.backends.es.ElasticSearchIndexer;
+import org.apache.james.backends.es.IndexingPipeline;
+import org.apache.james.mailbox.elasticsearch.MailboxElasticSearchConstants;
+import org.apache.james.metrics.api.GaugeRegistry;
+import org.apache.james.metrics.api.MetricFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.inject.Provider;
+
+/**
+ * Serves the mailbox {@link BulkIndexingPipeline}, and sends its pending operations to ElasticSearch upon shutdown.
+ */
+class BulkIndexingPipelineProvider implements Provider<IndexingPipeline> {
+    private final BulkIndexingPipeline pipeline;
+
+    @Inject
+    BulkIndexingPipelineProvider(@Named(MailboxElasticSearchConstants.InjectionNames.MAILBOX) ElasticSearchIndexer indexer,
+                                 MetricFactory metricFactory,
+                                 GaugeRegistry gaugeRegistry,
+                                 ElasticSearchConfiguration configuration) {
+        this.pipeline = new BulkIndexingPipeline(indexer, metricFactory, gaugeRegistry, configuration.getBulkIndexingConfiguration());
+    }
+
+    @Override
+    public IndexingPipeline get() {
+        return pipeline;
+    }
+
+    @PreDestroy
+    @VisibleForTesting
+    void stop() {
+        pipeline.close();
+    }
+}
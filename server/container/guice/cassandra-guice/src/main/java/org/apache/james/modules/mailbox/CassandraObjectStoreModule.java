@@ -20,8 +20,10 @@
 package org.apache.james.modules.mailbox;
 
 import org.apache.james.backends.cassandra.components.CassandraModule;
+import org.apache.james.blob.api.BlobReferenceRegistry;
 import org.apache.james.blob.api.BlobStore;
 import org.apache.james.blob.cassandra.CassandraBlobModule;
+import org.apache.james.blob.cassandra.CassandraBlobReferenceRegistry;
 import org.apache.james.blob.cassandra.CassandraBlobsDAO;
 
 import com.google.inject.AbstractModule;
@@ -32,8 +34,10 @@ public class CassandraObjectStoreModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(CassandraBlobsDAO.class).in(Scopes.SINGLETON);
+        bind(CassandraBlobReferenceRegistry.class).in(Scopes.SINGLETON);
 
-        bind(BlobStore.class).to(CassandraBlobsDAO.class);
+        bind(BlobStore.class).toProvider(BlobStoreProvider.class).in(Scopes.SINGLETON);
+        bind(BlobReferenceRegistry.class).to(CassandraBlobReferenceRegistry.class);
 
         Multibinder<CassandraModule> cassandraDataDefinitions = Multibinder.newSetBinder(binder(), CassandraModule.class);
         cassandraDataDefinitions.addBinding().toInstance(CassandraBlobModule.MODULE);
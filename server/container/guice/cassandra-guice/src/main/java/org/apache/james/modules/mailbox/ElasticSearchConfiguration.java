@@ -19,6 +19,7 @@
 
 package org.apache.james.modules.mailbox;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -28,6 +29,7 @@ import java.util.Optional;
 import org.apache.commons.configuration.AbstractConfiguration;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
+import org.apache.james.backends.es.BulkIndexingConfiguration;
 import org.apache.james.backends.es.IndexName;
 import org.apache.james.backends.es.ReadAliasName;
 import org.apache.james.backends.es.WriteAliasName;
@@ -58,6 +60,7 @@ public class ElasticSearchConfiguration {
         private Optional<Integer> minDelay;
         private Optional<Integer> maxRetries;
         private Optional<IndexAttachments> indexAttachment;
+        private Optional<BulkIndexingConfiguration> bulkIndexingConfiguration;
 
         public Builder() {
             hosts = ImmutableList.builder();
@@ -72,6 +75,7 @@ public class ElasticSearchConfiguration {
             minDelay = Optional.empty();
             maxRetries = Optional.empty();
             indexAttachment = Optional.empty();
+            bulkIndexingConfiguration = Optional.empty();
         }
 
         public Builder addHost(Host host) {
@@ -163,6 +167,11 @@ public class ElasticSearchConfiguration {
             return this;
         }
 
+        public Builder bulkIndexingConfiguration(BulkIndexingConfiguration bulkIndexingConfiguration) {
+            this.bulkIndexingConfiguration = Optional.of(bulkIndexingConfiguration);
+            return this;
+        }
+
         public ElasticSearchConfiguration build() {
             ImmutableList<Host> hosts = this.hosts.build();
             Preconditions.checkState(!hosts.isEmpty(), "You need to specify ElasticSearch host");
@@ -178,7 +187,8 @@ public class ElasticSearchConfiguration {
                 nbReplica.orElse(DEFAULT_NB_REPLICA),
                 minDelay.orElse(DEFAULT_CONNECTION_MIN_DELAY),
                 maxRetries.orElse(DEFAULT_CONNECTION_MAX_RETRIES),
-                indexAttachment.orElse(IndexAttachments.YES));
+                indexAttachment.orElse(IndexAttachments.YES),
+                bulkIndexingConfiguration.orElse(BulkIndexingConfiguration.DEFAULT));
         }
     }
 
@@ -203,6 +213,9 @@ public class ElasticSearchConfiguration {
     public static final String ELASTICSEARCH_RETRY_CONNECTION_MIN_DELAY = "elasticsearch.retryConnection.minDelay";
     public static final String ELASTICSEARCH_RETRY_CONNECTION_MAX_RETRIES = "elasticsearch.retryConnection.maxRetries";
     public static final String ELASTICSEARCH_INDEX_ATTACHMENTS = "elasticsearch.indexAttachments";
+    public static final String ELASTICSEARCH_INDEXING_BULK_SIZE = "elasticsearch.indexing.bulk.size";
+    public static final String ELASTICSEARCH_INDEXING_FLUSH_INTERVAL = "elasticsearch.indexing.flushInterval";
+    public static final String ELASTICSEARCH_INDEXING_MAX_PENDING_OPERATIONS = "elasticsearch.indexing.maxPendingOperations";
 
     public static final int DEFAULT_CONNECTION_MAX_RETRIES = 7;
     public static final int DEFAULT_CONNECTION_MIN_DELAY = 3000;
@@ -231,6 +244,7 @@ public class ElasticSearchConfiguration {
             .minDelay(Optional.ofNullable(configuration.getInteger(ELASTICSEARCH_RETRY_CONNECTION_MIN_DELAY, null)))
             .maxRetries(Optional.ofNullable(configuration.getInteger(ELASTICSEARCH_RETRY_CONNECTION_MAX_RETRIES, null)))
             .indexAttachment(provideIndexAttachments(configuration))
+            .bulkIndexingConfiguration(provideBulkIndexingConfiguration(configuration))
             .build();
     }
 
@@ -280,6 +294,15 @@ public class ElasticSearchConfiguration {
         return IndexAttachments.NO;
     }
 
+    private static BulkIndexingConfiguration provideBulkIndexingConfiguration(Configuration configuration) {
+        return BulkIndexingConfiguration.builder()
+            .bulkSize(Optional.ofNullable(configuration.getInteger(ELASTICSEARCH_INDEXING_BULK_SIZE, null)))
+            .flushInterval(Optional.ofNullable(configuration.getLong(ELASTICSEARCH_INDEXING_FLUSH_INTERVAL, null))
+                .map(Duration::ofMillis))
+            .maxPendingOperations(Optional.ofNullable(configuration.getInteger(ELASTICSEARCH_INDEXING_MAX_PENDING_OPERATIONS, null)))
+            .build();
+    }
+
     private static ImmutableList<Host> getHosts(Configuration propertiesReader) throws ConfigurationException {
         AbstractConfiguration.setDefaultListDelimiter(',');
         Optional<String> masterHost = Optional.ofNullable(
@@ -328,10 +351,11 @@ public class ElasticSearchConfiguration {
     private final int minDelay;
     private final int maxRetries;
     private final IndexAttachments indexAttachment;
+    private final BulkIndexingConfiguration bulkIndexingConfiguration;
 
     private ElasticSearchConfiguration(ImmutableList<Host> hosts, IndexName indexMailboxName, ReadAliasName readAliasMailboxName,
                                       WriteAliasName writeAliasMailboxName, IndexName indexQuotaRatioName, ReadAliasName readAliasQuotaRatioName, WriteAliasName writeAliasQuotaRatioName, int nbShards, int nbReplica, int minDelay,
-                                      int maxRetries, IndexAttachments indexAttachment) {
+                                      int maxRetries, IndexAttachments indexAttachment, BulkIndexingConfiguration bulkIndexingConfiguration) {
         this.hosts = hosts;
         this.indexMailboxName = indexMailboxName;
         this.readAliasMailboxName = readAliasMailboxName;
@@ -344,6 +368,7 @@ public class ElasticSearchConfiguration {
         this.minDelay = minDelay;
         this.maxRetries = maxRetries;
         this.indexAttachment = indexAttachment;
+        this.bulkIndexingConfiguration = bulkIndexingConfiguration;
     }
 
     public ImmutableList<Host> getHosts() {
@@ -382,6 +407,10 @@ public class ElasticSearchConfiguration {
         return indexAttachment;
     }
 
+    public BulkIndexingConfiguration getBulkIndexingConfiguration() {
+        return bulkIndexingConfiguration;
+    }
+
     public IndexName getIndexQuotaRatioName() {
         return indexQuotaRatioName;
     }
@@ -410,7 +439,8 @@ public class ElasticSearchConfiguration {
                 && Objects.equals(this.writeAliasMailboxName, that.writeAliasMailboxName)
                 && Objects.equals(this.indexQuotaRatioName, that.indexQuotaRatioName)
                 && Objects.equals(this.readAliasQuotaRatioName, that.readAliasQuotaRatioName)
-                && Objects.equals(this.writeAliasQuotaRatioName, that.writeAliasQuotaRatioName);
+                && Objects.equals(this.writeAliasQuotaRatioName, that.writeAliasQuotaRatioName)
+                && Objects.equals(this.bulkIndexingConfiguration, that.bulkIndexingConfiguration);
         }
         return false;
     }
@@ -418,6 +448,7 @@ public class ElasticSearchConfiguration {
     @Override
     public final int hashCode() {
         return Objects.hash(hosts, indexMailboxName, readAliasMailboxName, writeAliasMailboxName, nbShards,
-            nbReplica, minDelay, maxRetries, indexAttachment, indexQuotaRatioName, readAliasQuotaRatioName, writeAliasMailboxName);
+            nbReplica, minDelay, maxRetries, indexAttachment, indexQuotaRatioName, readAliasQuotaRatioName, writeAliasMailboxName,
+            bulkIndexingConfiguration);
     }
 }
@@ -0,0 +1,73 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.modules.mailbox;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.apache.james.backends.es.BulkIndexingConfiguration;
+import org.apache.james.backends.es.ElasticSearchIndexer;
+import org.apache.james.metrics.api.NoopGaugeRegistry;
+import org.apache.james.metrics.api.NoopMetricFactory;
+import org.apache.james.util.Host;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BulkIndexingPipelineProviderTest {
+    private static final ElasticSearchConfiguration NEVER_FLUSHING = ElasticSearchConfiguration.builder()
+        .addHost(Host.from("localhost", 9300))
+        .bulkIndexingConfiguration(BulkIndexingConfiguration.builder()
+            .bulkSize(1000)
+            .flushInterval(Duration.ofHours(1))
+            .build())
+        .build();
+
+    private ElasticSearchIndexer indexer;
+    private BulkIndexingPipelineProvider testee;
+
+    @Before
+    public void setUp() {
+        indexer = mock(ElasticSearchIndexer.class);
+        when(indexer.bulk(any())).thenReturn(Optional.empty());
+        testee = new BulkIndexingPipelineProvider(indexer, new NoopMetricFactory(), new NoopGaugeRegistry(), NEVER_FLUSHING);
+    }
+
+    @Test
+    public void pendingOperationsShouldNotBeSentBeforeStop() {
+        testee.get().index("1", "{}");
+
+        verify(indexer, never()).bulk(any());
+        testee.stop();
+    }
+
+    @Test
+    public void stopShouldSendPendingOperations() {
+        testee.get().index("1", "{}");
+
+        testee.stop();
+
+        verify(indexer).bulk(any());
+    }
+}
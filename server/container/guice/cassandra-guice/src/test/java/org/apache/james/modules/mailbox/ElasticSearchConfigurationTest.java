@@ -22,10 +22,12 @@ package org.apache.james.modules.mailbox;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.time.Duration;
 import java.util.Optional;
 
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.james.backends.es.BulkIndexingConfiguration;
 import org.apache.james.backends.es.IndexName;
 import org.apache.james.backends.es.ReadAliasName;
 import org.apache.james.backends.es.WriteAliasName;
@@ -395,6 +397,45 @@ public class ElasticSearchConfigurationTest {
             .isEqualTo(IndexAttachments.YES);
     }
 
+    @Test
+    public void getBulkIndexingConfigurationShouldReturnConfiguredValues() throws ConfigurationException {
+        PropertiesConfiguration configuration = new PropertiesConfiguration();
+        configuration.addProperty("elasticsearch.hosts", "127.0.0.1");
+        configuration.addProperty("elasticsearch.indexing.bulk.size", 50);
+        configuration.addProperty("elasticsearch.indexing.flushInterval", 200);
+        configuration.addProperty("elasticsearch.indexing.maxPendingOperations", 1000);
+
+        ElasticSearchConfiguration elasticSearchConfiguration = ElasticSearchConfiguration.fromProperties(configuration);
+
+        assertThat(elasticSearchConfiguration.getBulkIndexingConfiguration())
+            .isEqualTo(BulkIndexingConfiguration.builder()
+                .bulkSize(50)
+                .flushInterval(Duration.ofMillis(200))
+                .maxPendingOperations(1000)
+                .build());
+    }
+
+    @Test
+    public void getBulkIndexingConfigurationShouldReturnDefaultValueWhenMissing() throws ConfigurationException {
+        PropertiesConfiguration configuration = new PropertiesConfiguration();
+        configuration.addProperty("elasticsearch.hosts", "127.0.0.1");
+
+        ElasticSearchConfiguration elasticSearchConfiguration = ElasticSearchConfiguration.fromProperties(configuration);
+
+        assertThat(elasticSearchConfiguration.getBulkIndexingConfiguration())
+            .isEqualTo(BulkIndexingConfiguration.DEFAULT);
+    }
+
+    @Test
+    public void fromPropertiesShouldThrowWhenBulkSizeIsNotPositive() {
+        PropertiesConfiguration configuration = new PropertiesConfiguration();
+        configuration.addProperty("elasticsearch.hosts", "127.0.0.1");
+        configuration.addProperty("elasticsearch.indexing.bulk.size", 0);
+
+        assertThatThrownBy(() -> ElasticSearchConfiguration.fromProperties(configuration))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
 
     @Test
     public void getHostsShouldReturnConfiguredHostsWhenNoPort() throws ConfigurationException {
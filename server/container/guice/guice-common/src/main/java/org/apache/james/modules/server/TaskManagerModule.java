@@ -19,16 +19,49 @@
 
 package org.apache.james.modules.server;
 
+import java.util.Optional;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.HierarchicalConfiguration;
+import org.apache.james.server.core.configuration.ConfigurationProvider;
 import org.apache.james.task.MemoryTaskManager;
 import org.apache.james.task.TaskManager;
+import org.apache.james.task.TaskManagerConfiguration;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.AbstractModule;
-import com.google.inject.Scopes;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
 
 public class TaskManagerModule extends AbstractModule {
     @Override
     protected void configure() {
-        bind(MemoryTaskManager.class).in(Scopes.SINGLETON);
         bind(TaskManager.class).to(MemoryTaskManager.class);
     }
+
+    @Provides
+    @Singleton
+    MemoryTaskManager provideMemoryTaskManager(TaskManagerConfiguration configuration) {
+        return new MemoryTaskManager(configuration);
+    }
+
+    @Provides
+    @Singleton
+    TaskManagerConfiguration provideTaskManagerConfiguration(ConfigurationProvider configurationProvider) throws ConfigurationException {
+        return fromConfiguration(configurationProvider.getConfiguration("taskmanager"));
+    }
+
+    @VisibleForTesting
+    static TaskManagerConfiguration fromConfiguration(HierarchicalConfiguration configuration) {
+        TaskManagerConfiguration.Builder builder = TaskManagerConfiguration.builder()
+            .workerCount(Optional.ofNullable(configuration.getInteger("workers", null)));
+        for (HierarchicalConfiguration limit : configuration.configurationsAt("limits.limit")) {
+            String type = limit.getString("[@type]");
+            Optional.ofNullable(limit.getInteger("[@concurrency]", null))
+                .ifPresent(concurrency -> builder.concurrencyLimit(type, concurrency));
+            Optional.ofNullable(limit.getDouble("[@itemsPerSecond]", null))
+                .ifPresent(itemsPerSecond -> builder.rateLimit(type, itemsPerSecond));
+        }
+        return builder.build();
+    }
 }
@@ -45,12 +45,14 @@ import org.apache.james.mailbox.store.Authenticator;
 import org.apache.james.mailbox.store.Authorizator;
 import org.apache.james.mailbox.store.JVMMailboxPathLocker;
 import org.apache.james.mailbox.store.MailboxSessionMapperFactory;
+import org.apache.james.mailbox.store.counters.ListeningMailboxCountersCache;
 import org.apache.james.mailbox.store.mail.MailboxMapperFactory;
 import org.apache.james.mailbox.store.mail.MessageMapperFactory;
 import org.apache.james.mailbox.store.mail.ModSeqProvider;
 import org.apache.james.mailbox.store.mail.UidProvider;
 import org.apache.james.mailbox.store.mail.model.DefaultMessageId;
 import org.apache.james.mailbox.store.quota.ListeningCurrentQuotaUpdater;
+import org.apache.james.metrics.api.MetricFactory;
 import org.apache.james.modules.Names;
 import org.apache.james.modules.data.JPAEntityManagerModule;
 import org.apache.james.utils.MailboxManagerDefinition;
@@ -110,10 +112,13 @@ public class JPAMailboxModule extends AbstractModule {
     @Named(Names.MAILBOXMANAGER_NAME)
     @Singleton
     public MailboxManager provideMailboxManager(OpenJPAMailboxManager jpaMailboxManager, ListeningCurrentQuotaUpdater quotaUpdater,
-                                                QuotaManager quotaManager, QuotaRootResolver quotaRootResolver) throws MailboxException {
+                                                QuotaManager quotaManager, QuotaRootResolver quotaRootResolver,
+                                                MetricFactory metricFactory, ListeningMailboxCountersCache countersCache) throws MailboxException {
         jpaMailboxManager.setQuotaRootResolver(quotaRootResolver);
         jpaMailboxManager.setQuotaManager(quotaManager);
         jpaMailboxManager.setQuotaUpdater(quotaUpdater);
+        jpaMailboxManager.setMetricFactory(metricFactory);
+        jpaMailboxManager.setCountersCache(countersCache);
         jpaMailboxManager.init();
         return jpaMailboxManager;
     }
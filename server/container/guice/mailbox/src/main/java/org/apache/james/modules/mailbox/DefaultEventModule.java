@@ -25,6 +25,7 @@ import java.util.Optional;
 import javax.inject.Inject;
 
 import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.HierarchicalConfiguration;
 import org.apache.james.lifecycle.api.Configurable;
 import org.apache.james.mailbox.MailboxListener;
 import org.apache.james.mailbox.store.event.AsynchronousEventDelivery;
@@ -34,8 +35,10 @@ import org.apache.james.mailbox.store.event.EventDelivery;
 import org.apache.james.mailbox.store.event.MailboxAnnotationListener;
 import org.apache.james.mailbox.store.event.MailboxListenerRegistry;
 import org.apache.james.mailbox.store.event.MixedEventDelivery;
+import org.apache.james.mailbox.store.event.PartitionedEventDelivery;
 import org.apache.james.mailbox.store.event.SynchronousEventDelivery;
 import org.apache.james.mailbox.store.quota.ListeningCurrentQuotaUpdater;
+import org.apache.james.metrics.api.GaugeRegistry;
 import org.apache.james.metrics.api.MetricFactory;
 import org.apache.james.server.core.configuration.ConfigurationProvider;
 import org.apache.james.utils.ConfigurationPerformer;
@@ -70,22 +73,41 @@ public class DefaultEventModule extends AbstractModule {
 
     @Provides
     @Singleton
-    EventDelivery provideEventDelivery(ConfigurationProvider configurationProvider, MetricFactory metricFactory) {
-        int poolSize = retrievePoolSize(configurationProvider);
+    EventDelivery provideEventDelivery(ConfigurationProvider configurationProvider, MetricFactory metricFactory, GaugeRegistry gaugeRegistry) {
+        Optional<HierarchicalConfiguration> configuration = retrieveConfiguration(configurationProvider);
+        int poolSize = configuration
+            .map(listeners -> listeners.getInteger("poolSize", null))
+            .orElse(DEFAULT_POOL_SIZE);
+        boolean partitioned = configuration
+            .map(listeners -> listeners.getBoolean("partitioned", false))
+            .orElse(false);
 
         SynchronousEventDelivery synchronousEventDelivery = new SynchronousEventDelivery(metricFactory);
+        if (partitioned) {
+            return new MixedEventDelivery(
+                new PartitionedEventDelivery(poolSize,
+                    configuration
+                        .map(listeners -> listeners.getInteger("queueCapacity", null))
+                        .orElse(PartitionedEventDelivery.DEFAULT_QUEUE_CAPACITY),
+                    configuration
+                        .map(listeners -> listeners.getString("overflowPolicy", null))
+                        .map(PartitionedEventDelivery.OverflowPolicy::parse)
+                        .orElse(PartitionedEventDelivery.OverflowPolicy.BLOCK),
+                    synchronousEventDelivery,
+                    metricFactory,
+                    gaugeRegistry),
+                synchronousEventDelivery);
+        }
         return new MixedEventDelivery(
             new AsynchronousEventDelivery(poolSize, synchronousEventDelivery),
             synchronousEventDelivery);
     }
 
-    private int retrievePoolSize(ConfigurationProvider configurationProvider) {
+    private Optional<HierarchicalConfiguration> retrieveConfiguration(ConfigurationProvider configurationProvider) {
         try {
-            return Optional.ofNullable(configurationProvider.getConfiguration("listeners")
-                .getInteger("poolSize", null))
-                .orElse(DEFAULT_POOL_SIZE);
+            return Optional.of(configurationProvider.getConfiguration("listeners"));
         } catch (ConfigurationException e) {
-            return DEFAULT_POOL_SIZE;
+            return Optional.empty();
         }
     }
 
@@ -19,20 +19,49 @@
 
 package org.apache.james.modules.server;
 
+import java.io.FileNotFoundException;
+
+import org.apache.commons.configuration.ConfigurationException;
 import org.apache.james.queue.api.MailQueueFactory;
+import org.apache.james.queue.api.MailQueueItemDecoratorFactory;
 import org.apache.james.queue.memory.MemoryMailQueueFactory;
+import org.apache.james.utils.PropertiesProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 
 public class MemoryMailQueueModule extends AbstractModule {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemoryMailQueueModule.class);
+
+    private static final String MEMORY_MAIL_QUEUE_CONFIGURATION_NAME = "memorymailqueue";
+    private static final String COPY_ON_WRITE = "memorymailqueue.copy.on.write";
 
     @Override
     protected void configure() {
 
     }
 
+    @Provides
+    @Singleton
+    public MemoryMailQueueFactory createMemoryMailQueueFactory(MailQueueItemDecoratorFactory mailQueueItemDecoratorFactory,
+                                                               PropertiesProvider propertiesProvider) throws ConfigurationException {
+        return new MemoryMailQueueFactory(mailQueueItemDecoratorFactory, MemoryMailQueueFactory.DEFAULT_SHARD_COUNT,
+            isCopyOnWrite(propertiesProvider));
+    }
+
+    private boolean isCopyOnWrite(PropertiesProvider propertiesProvider) throws ConfigurationException {
+        try {
+            return propertiesProvider.getConfiguration(MEMORY_MAIL_QUEUE_CONFIGURATION_NAME)
+                .getBoolean(COPY_ON_WRITE, false);
+        } catch (FileNotFoundException e) {
+            LOGGER.info("Could not find {} configuration file. Enqueued messages are copied.", MEMORY_MAIL_QUEUE_CONFIGURATION_NAME);
+            return false;
+        }
+    }
+
     @Provides
     @Singleton
     public MailQueueFactory<?> createActiveMailQueueFactory(MemoryMailQueueFactory memoryMailQueueFactory) {
@@ -27,6 +27,7 @@ import org.apache.james.mailbox.cassandra.mail.migration.AttachmentMessageIdCrea
 import org.apache.james.mailbox.cassandra.mail.migration.AttachmentV2Migration;
 import org.apache.james.mailbox.cassandra.mail.migration.MailboxPathV2Migration;
 import org.apache.james.webadmin.Routes;
+import org.apache.james.webadmin.routes.CassandraBlobRoutes;
 import org.apache.james.webadmin.routes.CassandraMailboxMergingRoutes;
 import org.apache.james.webadmin.routes.CassandraMigrationRoutes;
 
@@ -46,11 +47,13 @@ public class CassandraRoutesModule extends AbstractModule {
     protected void configure() {
         bind(CassandraRoutesModule.class).in(Scopes.SINGLETON);
         bind(CassandraMailboxMergingRoutes.class).in(Scopes.SINGLETON);
+        bind(CassandraBlobRoutes.class).in(Scopes.SINGLETON);
         bind(CassandraMigrationService.class).in(Scopes.SINGLETON);
 
         Multibinder<Routes> routesMultibinder = Multibinder.newSetBinder(binder(), Routes.class);
         routesMultibinder.addBinding().to(CassandraMigrationRoutes.class);
         routesMultibinder.addBinding().to(CassandraMailboxMergingRoutes.class);
+        routesMultibinder.addBinding().to(CassandraBlobRoutes.class);
 
         MapBinder<SchemaVersion, Migration> allMigrationClazzBinder = MapBinder.newMapBinder(binder(), SchemaVersion.class, Migration.class);
         allMigrationClazzBinder.addBinding(FROM_V2_TO_V3).toInstance(() -> Migration.Result.COMPLETED);
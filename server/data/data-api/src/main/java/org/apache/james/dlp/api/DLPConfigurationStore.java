@@ -28,6 +28,10 @@ import com.google.common.collect.ImmutableList;
 
 public interface DLPConfigurationStore extends DLPConfigurationLoader {
 
+    interface Listener {
+        void rulesChanged(Domain domain);
+    }
+
     void store(Domain domain, DLPRules rule);
 
     default void store(Domain domain, DLPConfigurationItem firstRule, DLPConfigurationItem... rules) {
@@ -42,4 +46,14 @@ public interface DLPConfigurationStore extends DLPConfigurationLoader {
 
     Optional<DLPConfigurationItem> fetch(Domain domain, DLPConfigurationItem.Id ruleId);
 
+    /**
+     * Registers a listener notified, on this node, of the domains whose rules were modified through this store
+     */
+    void register(Listener listener);
+
+    /**
+     * Stops notifying a listener previously registered, see {@link #register(Listener)}
+     */
+    void unregister(Listener listener);
+
 }
@@ -82,17 +82,21 @@ public interface UserRewritter extends Serializable {
         private static final int REGEX = 0;
         private static final int PARAMETERIZED_STRING = 1;
 
+        /**
+         * The regular expression is compiled once, when the mapping is loaded, rather than on every rewrite.
+         */
         @Override
         public UserRewritter generateUserRewriter(String mapping) {
-            return oldUser -> {
-                try {
-                    return regexMap(oldUser.asMailAddress(), mapping)
-                        .map(User::fromUsername);
-                } catch (PatternSyntaxException e) {
+            try {
+                CompiledRegex compiledRegex = CompiledRegex.compile(mapping);
+                return oldUser -> compiledRegex.map(oldUser.asMailAddress())
+                    .map(User::fromUsername);
+            } catch (PatternSyntaxException e) {
+                return oldUser -> {
                     LOGGER.error("Exception during regexMap processing: ", e);
                     return Optional.of(User.fromUsername(Mapping.Type.Regex.asPrefix() + mapping));
-                }
-            };
+                };
+            }
         }
 
         /**
@@ -102,29 +106,46 @@ public interface UserRewritter extends Serializable {
          * (.*)@(.*):${1}@tld
          */
         public Optional<String> regexMap(MailAddress address, String mapping) {
-            List<String> parts = ImmutableList.copyOf(Splitter.on(':').split(mapping));
-            if (parts.size() != 2) {
-                throw new PatternSyntaxException("Regex should be formatted as <regular-expression>:<parameterized-string>", mapping, 0);
+            return CompiledRegex.compile(mapping).map(address);
+        }
+
+        private static class CompiledRegex implements Serializable {
+
+            static CompiledRegex compile(String mapping) {
+                List<String> parts = ImmutableList.copyOf(Splitter.on(':').split(mapping));
+                if (parts.size() != 2) {
+                    throw new PatternSyntaxException("Regex should be formatted as <regular-expression>:<parameterized-string>", mapping, 0);
+                }
+                return new CompiledRegex(Pattern.compile(parts.get(REGEX)), parts.get(PARAMETERIZED_STRING));
+            }
+
+            private final Pattern pattern;
+            private final String parameterizedString;
+
+            private CompiledRegex(Pattern pattern, String parameterizedString) {
+                this.pattern = pattern;
+                this.parameterizedString = parameterizedString;
             }
 
-            Pattern pattern = Pattern.compile(parts.get(REGEX));
-            Matcher match = pattern.matcher(address.asString());
+            Optional<String> map(MailAddress address) {
+                Matcher match = pattern.matcher(address.asString());
 
-            if (match.matches()) {
-                ImmutableList<String> parameters = listMatchingGroups(match);
-                return Optional.of(replaceParameters(parts.get(PARAMETERIZED_STRING), parameters));
+                if (match.matches()) {
+                    ImmutableList<String> parameters = listMatchingGroups(match);
+                    return Optional.of(replaceParameters(parameterizedString, parameters));
+                }
+                return Optional.empty();
             }
-            return Optional.empty();
         }
 
-        private ImmutableList<String> listMatchingGroups(Matcher match) {
+        private static ImmutableList<String> listMatchingGroups(Matcher match) {
             return IntStream
                 .rangeClosed(1, match.groupCount())
                 .mapToObj(match::group)
                 .collect(Guavate.toImmutableList());
         }
 
-        private String replaceParameters(String input, List<String> parameters) {
+        private static String replaceParameters(String input, List<String> parameters) {
             int i = 1;
             for (String parameter: parameters) {
                 input = input.replace("${" + i++ + "}", parameter);
@@ -26,6 +26,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.james.core.Domain;
 import org.junit.jupiter.api.Test;
 
@@ -130,6 +133,39 @@ public interface DLPConfigurationStoreContract {
         assertThat(dlpConfigurationStore.list(Domain.LOCALHOST)).containsOnly(RULE);
     }
 
+    @Test
+    default void storeShouldNotifyListeners(DLPConfigurationStore dlpConfigurationStore) {
+        List<Domain> changedDomains = new ArrayList<>();
+        dlpConfigurationStore.register(changedDomains::add);
+
+        dlpConfigurationStore.store(Domain.LOCALHOST, RULE);
+
+        assertThat(changedDomains).containsOnly(Domain.LOCALHOST);
+    }
+
+    @Test
+    default void clearShouldNotifyListeners(DLPConfigurationStore dlpConfigurationStore) {
+        dlpConfigurationStore.store(Domain.LOCALHOST, RULE);
+        List<Domain> changedDomains = new ArrayList<>();
+        dlpConfigurationStore.register(changedDomains::add);
+
+        dlpConfigurationStore.clear(Domain.LOCALHOST);
+
+        assertThat(changedDomains).containsOnly(Domain.LOCALHOST);
+    }
+
+    @Test
+    default void unregisteredListenersShouldNotBeNotified(DLPConfigurationStore dlpConfigurationStore) {
+        List<Domain> changedDomains = new ArrayList<>();
+        DLPConfigurationStore.Listener listener = changedDomains::add;
+        dlpConfigurationStore.register(listener);
+        dlpConfigurationStore.unregister(listener);
+
+        dlpConfigurationStore.store(Domain.LOCALHOST, RULE);
+
+        assertThat(changedDomains).isEmpty();
+    }
+
     @Test
     default void storeShouldClearRulesWhenEmpty(DLPConfigurationStore dlpConfigurationStore) {
         dlpConfigurationStore.store(Domain.LOCALHOST, RULE);
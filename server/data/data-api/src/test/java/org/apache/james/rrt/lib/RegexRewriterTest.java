@@ -25,6 +25,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import java.util.regex.PatternSyntaxException;
 
 import org.apache.james.core.MailAddress;
+import org.apache.james.core.User;
 import org.junit.jupiter.api.Test;
 
 class RegexRewriterTest {
@@ -90,4 +91,24 @@ class RegexRewriterTest {
         assertThat(new UserRewritter.RegexRewriter().regexMap(mailAddress, "prefix_(.*)_(.*)@test:admin@${1}.${1}"))
             .contains("admin@abc.abc");
     }
+
+    @Test
+    void generatedRewriterShouldBeReusableForSeveralUsers() throws Exception {
+        UserRewritter rewriter = new UserRewritter.RegexRewriter().generateUserRewriter("prefix_(.*)@test:admin@${1}");
+
+        assertThat(rewriter.rewrite(User.fromUsername("prefix_abc@test")))
+            .contains(User.fromUsername("admin@abc"));
+        assertThat(rewriter.rewrite(User.fromUsername("prefix_def@test")))
+            .contains(User.fromUsername("admin@def"));
+        assertThat(rewriter.rewrite(User.fromUsername("other@test")))
+            .isEmpty();
+    }
+
+    @Test
+    void generatedRewriterShouldReturnRawMappingOnInvalidSyntax() throws Exception {
+        UserRewritter rewriter = new UserRewritter.RegexRewriter().generateUserRewriter("singlepart");
+
+        assertThat(rewriter.rewrite(User.fromUsername("abc@test")))
+            .contains(User.fromUsername(Mapping.Type.Regex.asPrefix() + "singlepart"));
+    }
 }
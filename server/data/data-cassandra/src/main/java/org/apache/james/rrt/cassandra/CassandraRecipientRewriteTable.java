@@ -101,6 +101,7 @@ public class CassandraRecipientRewriteTable extends AbstractRecipientRewriteTabl
             .setString(DOMAIN, source.getFixedDomain())
             .setString(MAPPING, mapping.asString()))
             .join();
+        mappingsChanged(source);
     }
 
     @Override
@@ -110,6 +111,7 @@ public class CassandraRecipientRewriteTable extends AbstractRecipientRewriteTabl
                 .setString(DOMAIN, source.getFixedDomain())
                 .setString(MAPPING, mapping.asString()))
             .join();
+        mappingsChanged(source);
     }
 
     @Override
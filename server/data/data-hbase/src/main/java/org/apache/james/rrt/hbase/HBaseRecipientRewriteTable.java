@@ -67,6 +67,7 @@ public class HBaseRecipientRewriteTable extends AbstractRecipientRewriteTable {
         } else {
             doAddMapping(source, mapping.asString());
         }
+        mappingsChanged(source);
     }
 
     @Override
@@ -169,6 +170,7 @@ public class HBaseRecipientRewriteTable extends AbstractRecipientRewriteTable {
         } else {
             doRemoveMapping(source);
         }
+        mappingsChanged(source);
     }
 
     /**
@@ -195,6 +195,7 @@ public class JDBCRecipientRewriteTable extends AbstractRecipientRewriteTable {
             doUpdateMapping(source, updatedMappings.serialize());
         }
         doAddMapping(source, mapping.asString());
+        mappingsChanged(source);
     }
 
     @Override
@@ -298,6 +299,7 @@ public class JDBCRecipientRewriteTable extends AbstractRecipientRewriteTable {
         } else {
             doRemoveMapping(source, mapping.asString());
         }
+        mappingsChanged(source);
     }
 
     /**
@@ -72,6 +72,7 @@ public class JPARecipientRewriteTable extends AbstractRecipientRewriteTable {
         } else {
             doAddMapping(source, mapping.asString());
         }
+        mappingsChanged(source);
     }
 
     @Override
@@ -171,6 +172,7 @@ public class JPARecipientRewriteTable extends AbstractRecipientRewriteTable {
         } else {
             doRemoveMapping(source, mapping.asString());
         }
+        mappingsChanged(source);
     }
 
     /**
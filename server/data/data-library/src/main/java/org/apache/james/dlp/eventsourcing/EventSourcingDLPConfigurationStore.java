@@ -20,6 +20,8 @@
 package org.apache.james.dlp.eventsourcing;
 
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 
@@ -34,8 +36,8 @@ import org.apache.james.dlp.eventsourcing.commands.ClearCommand;
 import org.apache.james.dlp.eventsourcing.commands.ClearCommandHandler;
 import org.apache.james.dlp.eventsourcing.commands.StoreCommand;
 import org.apache.james.dlp.eventsourcing.commands.StoreCommandHandler;
+import org.apache.james.eventsourcing.Event;
 import org.apache.james.eventsourcing.EventSourcingSystem;
-import org.apache.james.eventsourcing.Subscriber;
 import org.apache.james.eventsourcing.eventstore.EventStore;
 import org.apache.james.util.streams.Iterables;
 
@@ -43,18 +45,18 @@ import com.google.common.collect.ImmutableSet;
 
 public class EventSourcingDLPConfigurationStore implements DLPConfigurationStore {
 
-    private static final ImmutableSet<Subscriber> NO_SUBSCRIBER = ImmutableSet.of();
-
     private final EventSourcingSystem eventSourcingSystem;
     private final EventStore eventStore;
+    private final Set<Listener> listeners;
 
     @Inject
     public EventSourcingDLPConfigurationStore(EventStore eventStore) {
+        this.listeners = ConcurrentHashMap.newKeySet();
         this.eventSourcingSystem = new EventSourcingSystem(
             ImmutableSet.of(
                 new ClearCommandHandler(eventStore),
                 new StoreCommandHandler(eventStore)),
-            NO_SUBSCRIBER,
+            ImmutableSet.of(this::notifyListeners),
             eventStore);
         this.eventStore = eventStore;
     }
@@ -80,6 +82,23 @@ public class EventSourcingDLPConfigurationStore implements DLPConfigurationStore
         eventSourcingSystem.dispatch(new ClearCommand(domain));
     }
 
+    @Override
+    public void register(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void unregister(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners(Event event) {
+        if (event.getAggregateId() instanceof DLPAggregateId) {
+            Domain domain = ((DLPAggregateId) event.getAggregateId()).getDomain();
+            listeners.forEach(listener -> listener.rulesChanged(domain));
+        }
+    }
+
     @Override
     public Optional<DLPConfigurationItem> fetch(Domain domain, Id ruleId) {
         return Iterables.toStream(list(domain))
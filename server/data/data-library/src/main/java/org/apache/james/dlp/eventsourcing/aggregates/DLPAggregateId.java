@@ -45,6 +45,10 @@ public class DLPAggregateId implements AggregateId {
         this.domain = domain;
     }
 
+    public Domain getDomain() {
+        return domain;
+    }
+
     @Override
     public String asAggregateKey() {
         return PREFIX + SEPARATOR + domain.asString();
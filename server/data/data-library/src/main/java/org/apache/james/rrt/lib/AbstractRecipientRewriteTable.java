@@ -18,7 +18,10 @@
  ****************************************************************/
 package org.apache.james.rrt.lib;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -34,17 +37,28 @@ import org.apache.james.core.User;
 import org.apache.james.domainlist.api.DomainList;
 import org.apache.james.domainlist.api.DomainListException;
 import org.apache.james.lifecycle.api.Configurable;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.metrics.api.NoopMetricFactory;
+import org.apache.james.metrics.api.TimeMetric;
 import org.apache.james.rrt.api.MappingAlreadyExistsException;
 import org.apache.james.rrt.api.RecipientRewriteTable;
 import org.apache.james.rrt.api.RecipientRewriteTableException;
 import org.apache.james.rrt.lib.Mapping.Type;
+import org.apache.james.util.TimeConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.fge.lambdas.Throwing;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 public abstract class AbstractRecipientRewriteTable implements RecipientRewriteTable, Configurable {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractRecipientRewriteTable.class);
+    private static final String DEFAULT_CACHE_EXPIRY = "10s";
+    private static final String WILDCARD = "*";
+    private static final int DEFAULT_CACHE_SIZE = 10000;
+    private static final String GET_MAPPINGS_METRIC_NAME = "rrt-get-mappings";
+    private static final String MAP_ADDRESS_METRIC_NAME = "rrt-map-address";
 
     // The maximum mappings which will process before throwing exception
     private int mappingLimit = 10;
@@ -53,11 +67,26 @@ public abstract class AbstractRecipientRewriteTable implements RecipientRewriteT
 
     private DomainList domainList;
 
+    private MetricFactory metricFactory = new NoopMetricFactory();
+
+    // Incremented on every change so that a lookup racing with a change is never cached
+    private final AtomicLong version = new AtomicLong();
+
+    // Stored mappings per user, empty results included, so that every recursion hop does not hit the backend
+    private Duration cacheExpiry = Duration.ofMillis(TimeConverter.getMilliSeconds(DEFAULT_CACHE_EXPIRY));
+    private long cacheSize = DEFAULT_CACHE_SIZE;
+    private volatile Cache<User, Mappings> lookupCache = createLookupCache(cacheExpiry, cacheSize);
+
     @Inject
     public void setDomainList(DomainList domainList) {
         this.domainList = domainList;
     }
 
+    @Inject
+    public void setMetricFactory(MetricFactory metricFactory) {
+        this.metricFactory = metricFactory;
+    }
+
     @Override
     public void configure(HierarchicalConfiguration config) throws ConfigurationException {
         setRecursiveMapping(config.getBoolean("recursiveMapping", true));
@@ -66,6 +95,16 @@ public abstract class AbstractRecipientRewriteTable implements RecipientRewriteT
         } catch (IllegalArgumentException e) {
             throw new ConfigurationException(e.getMessage());
         }
+        try {
+            setCacheExpiry(Duration.ofMillis(TimeConverter.getMilliSeconds(config.getString("cacheExpiry", DEFAULT_CACHE_EXPIRY), TimeConverter.Unit.SECONDS)));
+        } catch (NumberFormatException e) {
+            throw new ConfigurationException("Invalid cacheExpiry: " + e.getMessage());
+        }
+        try {
+            setCacheSize(config.getLong("cacheSize", DEFAULT_CACHE_SIZE));
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException(e.getMessage());
+        }
         doConfigure(config);
     }
 
@@ -94,9 +133,77 @@ public abstract class AbstractRecipientRewriteTable implements RecipientRewriteT
         this.mappingLimit = mappingLimit;
     }
 
+    /**
+     * Set how long the stored mappings of a user are cached. A zero duration disables the cache.
+     *
+     * Changes performed through this instance invalidate the cache at once. The expiry bounds how long
+     * changes performed by other instances sharing the same storage take to be visible.
+     */
+    public synchronized void setCacheExpiry(Duration cacheExpiry) {
+        this.cacheExpiry = cacheExpiry;
+        this.lookupCache = createLookupCache(cacheExpiry, cacheSize);
+    }
+
+    /**
+     * Set how many users the stored mappings are cached for. A zero size disables the cache.
+     *
+     * @throws IllegalArgumentException
+     *             get thrown if a negative size is used
+     */
+    public synchronized void setCacheSize(long cacheSize) throws IllegalArgumentException {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("The minimum cacheSize is 0");
+        }
+        this.cacheSize = cacheSize;
+        this.lookupCache = createLookupCache(cacheExpiry, cacheSize);
+    }
+
+    private static Cache<User, Mappings> createLookupCache(Duration cacheExpiry, long cacheSize) {
+        return CacheBuilder.newBuilder()
+            .expireAfterWrite(cacheExpiry.toMillis(), TimeUnit.MILLISECONDS)
+            .maximumSize(cacheSize)
+            .build();
+    }
+
+    /**
+     * Implementations must call this method once the stored mappings of the given source have been changed.
+     *
+     * The cached lookups of a user depend on the mappings of that user, of its domain and of its local part in
+     * any domain: only the lookups the source can take part in are invalidated.
+     */
+    protected void mappingsChanged(MappingSource source) {
+        version.incrementAndGet();
+        Cache<User, Mappings> cache = lookupCache;
+        String fixedUser = source.getFixedUser();
+        String fixedDomain = source.getFixedDomain();
+        boolean anyUser = fixedUser.equals(WILDCARD);
+        boolean anyDomain = fixedDomain.equals(WILDCARD);
+        if (anyUser && anyDomain) {
+            cache.invalidateAll();
+        } else if (anyUser) {
+            cache.asMap().keySet().removeIf(user -> isInDomain(user, fixedDomain));
+        } else if (anyDomain) {
+            cache.asMap().keySet().removeIf(user -> user.getLocalPart().equals(fixedUser));
+        } else {
+            cache.invalidate(User.fromLocalPartWithDomain(fixedUser, fixedDomain));
+        }
+    }
+
+    private static boolean isInDomain(User user, String domain) {
+        return user.getDomainPart()
+            .map(Domain::asString)
+            .filter(domain::equalsIgnoreCase)
+            .isPresent();
+    }
+
     @Override
     public Mappings getMappings(String user, Domain domain) throws ErrorMappingException, RecipientRewriteTableException {
-        return getMappings(User.fromLocalPartWithDomain(user, domain), mappingLimit);
+        TimeMetric timeMetric = metricFactory.timer(GET_MAPPINGS_METRIC_NAME);
+        try {
+            return getMappings(User.fromLocalPartWithDomain(user, domain), mappingLimit);
+        } finally {
+            timeMetric.stopAndPublish();
+        }
     }
 
     private Mappings getMappings(User user, int mappingLimit) throws ErrorMappingException, RecipientRewriteTableException {
@@ -107,8 +214,7 @@ public abstract class AbstractRecipientRewriteTable implements RecipientRewriteT
             throw new TooManyMappingException("554 Too many mappings to process");
         }
 
-        Mappings targetMappings = mapAddress(user.getLocalPart(), user.getDomainPart().get());
-
+        Mappings targetMappings = cachedMapAddress(user);
 
         try {
             return MappingsImpl.fromMappings(
@@ -119,6 +225,33 @@ public abstract class AbstractRecipientRewriteTable implements RecipientRewriteT
         }
     }
 
+    private Mappings cachedMapAddress(User user) throws RecipientRewriteTableException {
+        Cache<User, Mappings> cache = lookupCache;
+        Mappings cachedMappings = cache.getIfPresent(user);
+        if (cachedMappings != null) {
+            return cachedMappings;
+        }
+
+        long versionBeforeLookup = version.get();
+        Mappings mappings = timedMapAddress(user);
+        if (mappings != null) {
+            cache.put(user, mappings);
+            if (version.get() != versionBeforeLookup) {
+                cache.invalidate(user);
+            }
+        }
+        return mappings;
+    }
+
+    private Mappings timedMapAddress(User user) throws RecipientRewriteTableException {
+        TimeMetric timeMetric = metricFactory.timer(MAP_ADDRESS_METRIC_NAME);
+        try {
+            return mapAddress(user.getLocalPart(), user.getDomainPart().get());
+        } finally {
+            timeMetric.stopAndPublish();
+        }
+    }
+
     private Stream<Mapping> convertAndRecurseMapping(User originalUser, Mapping associatedMapping, int remainingLoops) throws ErrorMappingException, RecipientRewriteTableException, SkipMappingProcessingException, AddressException {
 
         Function<User, Stream<Mapping>> convertAndRecurseMapping =
@@ -354,4 +354,75 @@ public abstract class AbstractRecipientRewriteTableTest {
         assertThat(virtualUserTable.getMappings(user, domain))
             .isEqualTo(MappingsImpl.empty());
     }
+
+    @Test
+    public void getMappingsShouldReturnMappingAddedAfterAnUnsuccessfulLookup() throws ErrorMappingException, RecipientRewriteTableException {
+        String user = "test";
+        Domain domain = Domain.LOCALHOST;
+        MappingSource source = MappingSource.fromUser(user, domain);
+
+        assertThat(virtualUserTable.getMappings(user, domain)).isEqualTo(MappingsImpl.empty());
+
+        virtualUserTable.addMapping(source, Mapping.address("target@james"));
+
+        assertThat(virtualUserTable.getMappings(user, domain))
+            .containsOnly(Mapping.address("target@james"));
+    }
+
+    @Test
+    public void getMappingsShouldNotReturnMappingRemovedAfterASuccessfulLookup() throws ErrorMappingException, RecipientRewriteTableException {
+        String user = "test";
+        Domain domain = Domain.LOCALHOST;
+        MappingSource source = MappingSource.fromUser(user, domain);
+        virtualUserTable.addMapping(source, Mapping.address("target@james"));
+
+        assertThat(virtualUserTable.getMappings(user, domain))
+            .containsOnly(Mapping.address("target@james"));
+
+        virtualUserTable.removeMapping(source, Mapping.address("target@james"));
+
+        assertThat(virtualUserTable.getMappings(user, domain)).isEqualTo(MappingsImpl.empty());
+    }
+
+    @Test
+    public void getMappingsShouldFollowChangesOfIntermediateMappings() throws ErrorMappingException, RecipientRewriteTableException {
+        Domain domain = Domain.LOCALHOST;
+        virtualUserTable.addMapping(MappingSource.fromUser("alias", domain), Mapping.address("intermediate@" + domain.asString()));
+
+        assertThat(virtualUserTable.getMappings("alias", domain))
+            .containsOnly(Mapping.address("intermediate@" + domain.asString()));
+
+        virtualUserTable.addMapping(MappingSource.fromUser("intermediate", domain), Mapping.address("final@james"));
+
+        assertThat(virtualUserTable.getMappings("alias", domain))
+            .containsOnly(Mapping.address("final@james"));
+    }
+
+    @Test
+    public void getMappingsShouldFollowDomainMappingAddedAfterALookup() throws ErrorMappingException, RecipientRewriteTableException {
+        Domain domain = Domain.LOCALHOST;
+
+        assertThat(virtualUserTable.getMappings("test", domain)).isEqualTo(MappingsImpl.empty());
+
+        virtualUserTable.addMapping(MappingSource.fromDomain(domain), Mapping.address("catchall@james"));
+
+        assertThat(virtualUserTable.getMappings("test", domain))
+            .containsOnly(Mapping.address("catchall@james"));
+    }
+
+    @Test
+    public void getMappingsShouldNotBeAffectedByChangesOfOtherUsers() throws ErrorMappingException, RecipientRewriteTableException {
+        Domain domain = Domain.LOCALHOST;
+        virtualUserTable.addMapping(MappingSource.fromUser("test", domain), Mapping.address("target@james"));
+
+        assertThat(virtualUserTable.getMappings("test", domain))
+            .containsOnly(Mapping.address("target@james"));
+
+        virtualUserTable.addMapping(MappingSource.fromUser("other", domain), Mapping.address("other@james"));
+
+        assertThat(virtualUserTable.getMappings("test", domain))
+            .containsOnly(Mapping.address("target@james"));
+        assertThat(virtualUserTable.getMappings("other", domain))
+            .containsOnly(Mapping.address("other@james"));
+    }
 }
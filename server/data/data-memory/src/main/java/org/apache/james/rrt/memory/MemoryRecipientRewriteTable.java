@@ -86,11 +86,13 @@ public class MemoryRecipientRewriteTable extends AbstractRecipientRewriteTable {
     @Override
     public void addMapping(MappingSource source, Mapping mapping) {
         mappingEntries.add(new InMemoryMappingEntry(source, mapping));
+        mappingsChanged(source);
     }
 
     @Override
     public void removeMapping(MappingSource source, Mapping mapping) {
         mappingEntries.remove(new InMemoryMappingEntry(source, mapping));
+        mappingsChanged(source);
     }
 
     @Override
@@ -91,6 +91,11 @@ public class JamesMailSpooler implements Runnable, Disposable, Configurable, Mai
 
     private int numDequeueThreads;
 
+    /**
+     * Maximum number of mails each dequeue thread retrieves from the queue at once.
+     */
+    private int dequeueBatchSize;
+
     @Inject
     public JamesMailSpooler(MetricFactory metricFactory) {
         this.metricFactory = metricFactory;
@@ -110,6 +115,11 @@ public class JamesMailSpooler implements Runnable, Disposable, Configurable, Mai
     public void configure(HierarchicalConfiguration config) throws ConfigurationException {
         numDequeueThreads = config.getInt("dequeueThreads", 2);
 
+        dequeueBatchSize = config.getInt("dequeueBatchSize", 1);
+        if (dequeueBatchSize < 1) {
+            throw new ConfigurationException("dequeueBatchSize needs to be strictly positive");
+        }
+
         numThreads = config.getInt("threads", 100);
     }
 
@@ -123,6 +133,7 @@ public class JamesMailSpooler implements Runnable, Disposable, Configurable, Mai
         queue = queueFactory.createQueue(MailQueueFactory.SPOOL);
 
         LOGGER.info("{} uses {} Thread(s)", getClass().getName(), numThreads);
+        LOGGER.info("{} dequeues up to {} mail(s) at once", getClass().getName(), dequeueBatchSize);
 
         active.set(true);
         workerService = JMXEnabledThreadPoolExecutor.newFixedThreadPool("org.apache.james:type=component,component=mailetcontainer,name=mailspooler,sub-type=threadpool", "spooler", numThreads);
@@ -145,45 +156,10 @@ public class JamesMailSpooler implements Runnable, Disposable, Configurable, Mai
 
         while (active.get()) {
 
-            final MailQueueItem queueItem;
             try {
-                queueItem = queue.deQueue();
-                workerService.execute(() -> {
-                    TimeMetric timeMetric = metricFactory.timer(SPOOL_PROCESSING);
-                    try {
-                        numActive.incrementAndGet();
-
-                        // increase count
-                        processingActive.incrementAndGet();
-
-                        Mail mail = queueItem.getMail();
-                        LOGGER.debug("==== Begin processing mail {} ====", mail.getName());
-
-                        try {
-                            mailProcessor.service(mail);
-                            queueItem.done(true);
-                        } catch (Exception e) {
-                            if (active.get()) {
-                                LOGGER.error("Exception processing mail while spooling", e);
-                            }
-                            queueItem.done(false);
-
-                        } finally {
-                            LifecycleUtil.dispose(mail);
-                            mail = null;
-                        }
-                    } catch (Throwable e) {
-                        if (active.get()) {
-                            LOGGER.error("Exception processing mail while spooling", e);
-
-                        }
-                    } finally {
-                        processingActive.decrementAndGet();
-                        numActive.decrementAndGet();
-                        timeMetric.stopAndPublish();
-                    }
-
-                });
+                for (MailQueueItem queueItem : queue.deQueue(dequeueBatchSize)) {
+                    workerService.execute(() -> process(queueItem));
+                }
             } catch (MailQueueException e1) {
                 if (active.get()) {
                     LOGGER.error("Exception dequeue mail", e1);
@@ -195,6 +171,42 @@ public class JamesMailSpooler implements Runnable, Disposable, Configurable, Mai
         LOGGER.info("Stop {} : {}", getClass().getName(), Thread.currentThread().getName());
     }
 
+    private void process(MailQueueItem queueItem) {
+        TimeMetric timeMetric = metricFactory.timer(SPOOL_PROCESSING);
+        try {
+            numActive.incrementAndGet();
+
+            // increase count
+            processingActive.incrementAndGet();
+
+            Mail mail = queueItem.getMail();
+            LOGGER.debug("==== Begin processing mail {} ====", mail.getName());
+
+            try {
+                mailProcessor.service(mail);
+                queueItem.done(true);
+            } catch (Exception e) {
+                if (active.get()) {
+                    LOGGER.error("Exception processing mail while spooling", e);
+                }
+                queueItem.done(false);
+
+            } finally {
+                LifecycleUtil.dispose(mail);
+                mail = null;
+            }
+        } catch (Throwable e) {
+            if (active.get()) {
+                LOGGER.error("Exception processing mail while spooling", e);
+
+            }
+        } finally {
+            processingActive.decrementAndGet();
+            numActive.decrementAndGet();
+            timeMetric.stopAndPublish();
+        }
+    }
+
     /**
      * The dispose operation is called at the end of a components lifecycle.
      * Instances of this class use this method to release and destroy any
@@ -35,7 +35,9 @@ import org.apache.camel.processor.aggregate.UseLatestAggregationStrategy;
 import org.apache.james.lifecycle.api.LifecycleUtil;
 import org.apache.james.mailetcontainer.impl.MatcherMailetPair;
 import org.apache.james.mailetcontainer.lib.AbstractStateMailetProcessor;
+import org.apache.james.metrics.api.Metric;
 import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.server.core.MessageBodyCopies;
 import org.apache.mailet.Mail;
 import org.apache.mailet.Mailet;
 import org.apache.mailet.Matcher;
@@ -50,6 +52,7 @@ import com.google.common.collect.ImmutableList;
  */
 public class CamelMailetProcessor extends AbstractStateMailetProcessor implements CamelContextAware {
     private static final Logger LOGGER = LoggerFactory.getLogger(CamelMailetProcessor.class);
+    public static final String BODY_COPIES_METRIC_NAME_PREFIX = "mailetProcessor.bodyCopies.";
 
     private CamelContext context;
 
@@ -138,6 +141,7 @@ public class CamelMailetProcessor extends AbstractStateMailetProcessor implement
         @Override
         public void configure() {
             String state = container.getState();
+            Metric bodyCopiesMetric = metricFactory.generate(BODY_COPIES_METRIC_NAME_PREFIX + state);
             CamelProcessor terminatingMailetProcessor = new CamelProcessor(metricFactory, container, new TerminatingMailet());
 
             RouteDefinition processorDef = from(container.getEndpoint())
@@ -152,18 +156,18 @@ public class CamelMailetProcessor extends AbstractStateMailetProcessor implement
                         // do splitting of the mail based on the stored matcher
                         .split().method(matcherSplitter)
                             .aggregationStrategy(new UseLatestAggregationStrategy())
-                        .process(exchange -> handleMailet(exchange, container, mailetProccessor));
+                        .process(exchange -> handleMailet(exchange, container, mailetProccessor, bodyCopiesMetric));
             }
 
             processorDef
-                .process(exchange -> terminateSmoothly(exchange, container, terminatingMailetProcessor));
+                .process(exchange -> terminateSmoothly(exchange, container, terminatingMailetProcessor, bodyCopiesMetric));
 
         }
 
-        private void terminateSmoothly(Exchange exchange, CamelMailetProcessor container, CamelProcessor terminatingMailetProcessor) throws Exception {
+        private void terminateSmoothly(Exchange exchange, CamelMailetProcessor container, CamelProcessor terminatingMailetProcessor, Metric bodyCopiesMetric) throws Exception {
             Mail mail = exchange.getIn().getBody(Mail.class);
             if (mail.getState().equals(container.getState())) {
-                terminatingMailetProcessor.process(mail);
+                processCountingBodyCopies(terminatingMailetProcessor, mail, bodyCopiesMetric);
             }
             if (mail.getState().equals(Mail.GHOST)) {
                 dispose(exchange, mail);
@@ -171,11 +175,11 @@ public class CamelMailetProcessor extends AbstractStateMailetProcessor implement
             complete(exchange, container);
         }
 
-        private void handleMailet(Exchange exchange, CamelMailetProcessor container, CamelProcessor mailetProccessor) throws Exception {
+        private void handleMailet(Exchange exchange, CamelMailetProcessor container, CamelProcessor mailetProccessor, Metric bodyCopiesMetric) throws Exception {
             Mail mail = exchange.getIn().getBody(Mail.class);
             boolean isMatched = mail.removeAttribute(MatcherSplitter.MATCHER_MATCHED_ATTRIBUTE) != null;
             if (isMatched) {
-                mailetProccessor.process(mail);
+                processCountingBodyCopies(mailetProccessor, mail, bodyCopiesMetric);
             }
             if (mail.getState().equals(Mail.GHOST)) {
                 dispose(exchange, mail);
@@ -187,6 +191,18 @@ public class CamelMailetProcessor extends AbstractStateMailetProcessor implement
             }
         }
 
+        private void processCountingBodyCopies(CamelProcessor mailetProcessor, Mail mail, Metric bodyCopiesMetric) throws Exception {
+            long copiesBefore = MessageBodyCopies.countForCurrentThread();
+            try {
+                mailetProcessor.process(mail);
+            } finally {
+                long copies = MessageBodyCopies.countForCurrentThread() - copiesBefore;
+                if (copies > 0) {
+                    bodyCopiesMetric.add((int) copies);
+                }
+            }
+        }
+
         private void complete(Exchange exchange, CamelMailetProcessor container) {
             LOGGER.debug("End of mailetprocessor for state {} reached", container.getState());
             exchange.setProperty(Exchange.ROUTE_STOP, true);
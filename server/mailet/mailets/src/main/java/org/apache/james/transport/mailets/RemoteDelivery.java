@@ -42,6 +42,7 @@ import org.apache.james.transport.mailets.remote.delivery.Bouncer;
 import org.apache.james.transport.mailets.remote.delivery.DeliveryRunnable;
 import org.apache.james.transport.mailets.remote.delivery.RemoteDeliveryConfiguration;
 import org.apache.james.transport.mailets.remote.delivery.RemoteDeliverySocketFactory;
+import org.apache.james.transport.mailets.remote.delivery.SmtpConnectionPool;
 import org.apache.mailet.Mail;
 import org.apache.mailet.base.GenericMailet;
 import org.slf4j.Logger;
@@ -84,6 +85,14 @@ import com.google.common.collect.HashMultimap;
  * Default is 0.
  * <li><b>timeout</b> (optional) - an Integer for the Socket I/O timeout in milliseconds. Default is 180000</li>
  * <li><b>connectionTimeout</b> (optional) - an Integer for the Socket connection timeout in milliseconds. Default is 60000</li>
+ * <li><b>maxMessagesPerConnection</b> (optional) - an Integer for the number of mails sent over a single SMTP connection before
+ * closing it. Connections that can send more mails are kept opened and shared by all delivery threads. Default is 1, which
+ * closes connections after each mail.</li>
+ * <li><b>connectionIdleTimeout</b> (optional) - an Integer for the number of milliseconds an unused SMTP connection is kept
+ * opened. Default is 30000</li>
+ * <li><b>maxConnectionsPerServer</b> (optional) - an Integer for the maximum number of simultaneous deliveries to a given
+ * SMTP server. Deliveries waiting longer than <code>connectionTimeout</code> are retried later. Default is 0, which means
+ * unlimited.</li>
  * <li><b>bounceProcessor</b> (optional) - a String containing the name of the mailet processor to pass messages that cannot
  * be delivered to for DSN bounce processing. Default is to send a traditional message containing the bounce details.</li>
  * <li><b>startTLS</b> (optional) - a Boolean (true/false) indicating whether the STARTTLS command (if supported by the server)
@@ -139,6 +148,7 @@ public class RemoteDelivery extends GenericMailet {
     private MailQueue queue;
     private RemoteDeliveryConfiguration configuration;
     private ExecutorService executor;
+    private SmtpConnectionPool connectionPool;
 
     @Inject
     public RemoteDelivery(DNSService dnsServer, DomainList domainList, MailQueueFactory<?> queueFactory, MetricFactory metricFactory) {
@@ -171,6 +181,7 @@ public class RemoteDelivery extends GenericMailet {
     }
 
     private void initDeliveryThreads() {
+        connectionPool = SmtpConnectionPool.from(configuration, metricFactory);
         executor = Executors.newFixedThreadPool(configuration.getWorkersThreadCount());
         for (int a = 0; a < configuration.getWorkersThreadCount(); a++) {
             executor.execute(
@@ -180,6 +191,7 @@ public class RemoteDelivery extends GenericMailet {
                     metricFactory,
                     getMailetContext(),
                     new Bouncer(configuration, getMailetContext()),
+                    connectionPool,
                     isDestroyed));
         }
     }
@@ -260,6 +272,7 @@ public class RemoteDelivery extends GenericMailet {
         if (startThreads == ThreadState.START_THREADS) {
             isDestroyed.set(true);
             executor.shutdownNow();
+            connectionPool.close();
             notifyAll();
         }
     }
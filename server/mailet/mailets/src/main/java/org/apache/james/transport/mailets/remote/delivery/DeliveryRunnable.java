@@ -56,9 +56,9 @@ public class DeliveryRunnable implements Runnable {
     private final Supplier<Date> dateSupplier;
 
     public DeliveryRunnable(MailQueue queue, RemoteDeliveryConfiguration configuration, DNSService dnsServer, MetricFactory metricFactory,
-                            MailetContext mailetContext, Bouncer bouncer, AtomicBoolean isDestroyed) {
+                            MailetContext mailetContext, Bouncer bouncer, SmtpConnectionPool connectionPool, AtomicBoolean isDestroyed) {
         this(queue, configuration, metricFactory, bouncer,
-            new MailDelivrer(configuration, new MailDelivrerToHost(configuration, mailetContext), dnsServer, bouncer),
+            new MailDelivrer(configuration, new MailDelivrerToHost(configuration, mailetContext, connectionPool), dnsServer, bouncer),
             isDestroyed, CURRENT_DATE_SUPPLIER);
     }
 
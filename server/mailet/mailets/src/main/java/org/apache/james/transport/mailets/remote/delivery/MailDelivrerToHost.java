@@ -42,18 +42,18 @@ public class MailDelivrerToHost {
 
     private final RemoteDeliveryConfiguration configuration;
     private final Converter7Bit converter7Bit;
-    private final Session session;
+    private final SmtpConnectionPool connectionPool;
 
-    public MailDelivrerToHost(RemoteDeliveryConfiguration remoteDeliveryConfiguration, MailetContext mailetContext) {
+    public MailDelivrerToHost(RemoteDeliveryConfiguration remoteDeliveryConfiguration, MailetContext mailetContext, SmtpConnectionPool connectionPool) {
         this.configuration = remoteDeliveryConfiguration;
         this.converter7Bit = new Converter7Bit(mailetContext);
-        this.session = Session.getInstance(configuration.createFinalJavaxProperties());
+        this.connectionPool = connectionPool;
     }
 
     public ExecutionResult tryDeliveryToHost(Mail mail, InternetAddress[] addr, HostAddress outgoingMailServer) throws MessagingException {
-        Properties props = getPropertiesForMail(mail);
+        String envelopeSender = getEnvelopeSender(mail);
         LOGGER.debug("Attempting delivery of {} to host {} at {} from {}",
-            mail.getName(), outgoingMailServer.getHostName(), outgoingMailServer.getHost(), props.get("mail.smtp.from"));
+            mail.getName(), outgoingMailServer.getHostName(), outgoingMailServer.getHost(), envelopeSender);
 
         // Many of these properties are only in later JavaMail versions
         // "mail.smtp.ehlo"           //default true
@@ -61,29 +61,35 @@ public class MailDelivrerToHost {
         // "mail.smtp.dsn.ret"        //default to nothing... appended as RET= after MAIL FROM line.
         // "mail.smtp.dsn.notify"     //default to nothing... appended as NOTIFY= after RCPT TO line.
 
-        SMTPTransport transport = null;
+        SmtpConnectionPool.Connection connection = connectionPool.acquire(outgoingMailServer, configuration::createFinalJavaxProperties, this::openTransport);
+        boolean sent = false;
         try {
-            transport = (SMTPTransport) session.getTransport(outgoingMailServer);
-            transport.setLocalHost(props.getProperty("mail.smtp.localhost", configuration.getHeloNameProvider().getHeloName()));
-            connect(outgoingMailServer, transport);
+            SMTPTransport transport = connection.getTransport();
+            connection.getSessionProperties().put("mail.smtp.from", envelopeSender);
             transport.sendMessage(adaptToTransport(mail.getMessage(), transport), addr);
+            sent = true;
             LOGGER.debug("Mail ({})  sent successfully to {} at {} from {} for {}", mail.getName(), outgoingMailServer.getHostName(),
-                outgoingMailServer.getHost(), props.get("mail.smtp.from"), mail.getRecipients());
+                outgoingMailServer.getHost(), envelopeSender, mail.getRecipients());
         } finally {
-            closeTransport(mail, outgoingMailServer, transport);
+            if (!connectionPool.release(connection, sent)) {
+                closeTransport(mail, outgoingMailServer, connection.getTransport());
+            }
         }
         return ExecutionResult.success();
     }
 
-    private Properties getPropertiesForMail(Mail mail) {
-        Properties props = session.getProperties();
+    private SMTPTransport openTransport(HostAddress outgoingMailServer, Properties props) throws MessagingException {
+        SMTPTransport transport = (SMTPTransport) Session.getInstance(props).getTransport(outgoingMailServer);
+        transport.setLocalHost(props.getProperty("mail.smtp.localhost", configuration.getHeloNameProvider().getHeloName()));
+        connect(outgoingMailServer, transport);
+        return transport;
+    }
+
+    private String getEnvelopeSender(Mail mail) {
         if (mail.getSender() == null) {
-            props.put("mail.smtp.from", "<>");
-        } else {
-            String sender = mail.getSender().toString();
-            props.put("mail.smtp.from", sender);
+            return "<>";
         }
-        return props;
+        return mail.getSender().toString();
     }
 
     private void connect(HostAddress outgoingMailServer, SMTPTransport transport) throws MessagingException {
@@ -128,7 +134,6 @@ public class MailDelivrerToHost {
                         "probably the server has already closed the connection. Message is considered to be delivered. Exception: {}",
                     mail.getName(), outgoingMailServer.getHostName(), outgoingMailServer.getHost(), mail.getRecipients(), e.getMessage());
             }
-            transport = null;
         }
     }
 
@@ -19,6 +19,7 @@
 
 package org.apache.james.transport.mailets.remote.delivery;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -32,6 +33,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.steveash.guavate.Guavate;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
@@ -57,6 +59,9 @@ public class RemoteDeliveryConfiguration {
     public static final String SENDPARTIAL = "sendpartial";
     public static final String TIMEOUT = "timeout";
     public static final String CONNECTIONTIMEOUT = "connectiontimeout";
+    public static final String MAX_MESSAGES_PER_CONNECTION = "maxMessagesPerConnection";
+    public static final String CONNECTION_IDLE_TIMEOUT = "connectionIdleTimeout";
+    public static final String MAX_CONNECTIONS_PER_SERVER = "maxConnectionsPerServer";
     public static final String OUTGOING = "outgoing";
     public static final String MAX_RETRIES = "maxRetries";
     public static final String DELAY_TIME = "delayTime";
@@ -66,6 +71,9 @@ public class RemoteDeliveryConfiguration {
     public static final int DEFAULT_CONNECTION_TIMEOUT = 60000;
     public static final int DEFAULT_DNS_RETRY_PROBLEM = 0;
     public static final int DEFAULT_MAX_RETRY = 5;
+    public static final int DEFAULT_MAX_MESSAGES_PER_CONNECTION = 1;
+    public static final Duration DEFAULT_CONNECTION_IDLE_TIMEOUT = Duration.ofSeconds(30);
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_SERVER = SmtpConnectionPool.UNLIMITED;
     public static final String ADDRESS_PORT_SEPARATOR = ":";
 
     private final boolean isDebug;
@@ -79,6 +87,9 @@ public class RemoteDeliveryConfiguration {
     private final int dnsProblemRetry;
     private final int connectionTimeout;
     private final int workersThreadCount;
+    private final int maxMessagesPerConnection;
+    private final Duration connectionIdleTimeout;
+    private final int maxConnectionsPerServer;
     private final List<Long> delayTimes;
     private final HeloNameProvider heloNameProvider;
     private final String outGoingQueueName;
@@ -107,6 +118,9 @@ public class RemoteDeliveryConfiguration {
         dnsProblemRetry = computeDnsProblemRetry(mailetConfig);
         heloNameProvider = new HeloNameProvider(mailetConfig.getInitParameter(HELO_NAME), domainList);
         workersThreadCount = Integer.valueOf(mailetConfig.getInitParameter(DELIVERY_THREADS));
+        maxMessagesPerConnection = computeMaxMessagesPerConnection(mailetConfig);
+        connectionIdleTimeout = computeConnectionIdleTimeout(mailetConfig);
+        maxConnectionsPerServer = computeMaxConnectionsPerServer(mailetConfig);
 
         String gatewayPort = mailetConfig.getInitParameter(GATEWAY_PORT);
         String gateway = mailetConfig.getInitParameter(GATEWAY);
@@ -154,6 +168,46 @@ public class RemoteDeliveryConfiguration {
         }
     }
 
+    private int computeMaxMessagesPerConnection(MailetConfig mailetConfig) {
+        try {
+            int maxMessages = Optional.ofNullable(mailetConfig.getInitParameter(MAX_MESSAGES_PER_CONNECTION))
+                .map(Integer::valueOf)
+                .orElse(DEFAULT_MAX_MESSAGES_PER_CONNECTION);
+            Preconditions.checkArgument(maxMessages > 0);
+            return maxMessages;
+        } catch (Exception e) {
+            LOGGER.warn("Invalid maxMessagesPerConnection setting: {}", mailetConfig.getInitParameter(MAX_MESSAGES_PER_CONNECTION));
+            return DEFAULT_MAX_MESSAGES_PER_CONNECTION;
+        }
+    }
+
+    private Duration computeConnectionIdleTimeout(MailetConfig mailetConfig) {
+        try {
+            Duration idleTimeout = Optional.ofNullable(mailetConfig.getInitParameter(CONNECTION_IDLE_TIMEOUT))
+                .map(Long::valueOf)
+                .map(Duration::ofMillis)
+                .orElse(DEFAULT_CONNECTION_IDLE_TIMEOUT);
+            Preconditions.checkArgument(!idleTimeout.isNegative() && !idleTimeout.isZero());
+            return idleTimeout;
+        } catch (Exception e) {
+            LOGGER.warn("Invalid connectionIdleTimeout setting: {}", mailetConfig.getInitParameter(CONNECTION_IDLE_TIMEOUT));
+            return DEFAULT_CONNECTION_IDLE_TIMEOUT;
+        }
+    }
+
+    private int computeMaxConnectionsPerServer(MailetConfig mailetConfig) {
+        try {
+            int maxConnections = Optional.ofNullable(mailetConfig.getInitParameter(MAX_CONNECTIONS_PER_SERVER))
+                .map(Integer::valueOf)
+                .orElse(DEFAULT_MAX_CONNECTIONS_PER_SERVER);
+            Preconditions.checkArgument(maxConnections >= 0);
+            return maxConnections;
+        } catch (Exception e) {
+            LOGGER.warn("Invalid maxConnectionsPerServer setting: {}", mailetConfig.getInitParameter(MAX_CONNECTIONS_PER_SERVER));
+            return DEFAULT_MAX_CONNECTIONS_PER_SERVER;
+        }
+    }
+
     private long computeSmtpTimeout(MailetConfig mailetConfig) {
         try {
             if (mailetConfig.getInitParameter(TIMEOUT) != null) {
@@ -266,6 +320,18 @@ public class RemoteDeliveryConfiguration {
         return workersThreadCount;
     }
 
+    public int getMaxMessagesPerConnection() {
+        return maxMessagesPerConnection;
+    }
+
+    public Duration getConnectionIdleTimeout() {
+        return connectionIdleTimeout;
+    }
+
+    public int getMaxConnectionsPerServer() {
+        return maxConnectionsPerServer;
+    }
+
     public Collection<String> getGatewayServer() {
         return gatewayServer;
     }
@@ -0,0 +1,301 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.transport.mailets.remote.delivery;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.mail.MessagingException;
+
+import org.apache.james.metrics.api.Metric;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.mailet.HostAddress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.mail.smtp.SMTPTransport;
+
+/**
+ * Keeps SMTP connections opened after a successful delivery, so that the next mail sent to the same server, by any
+ * delivery thread, skips the TCP connection, TLS and EHLO exchanges.
+ *
+ * A connection is closed once it sent {@link RemoteDeliveryConfiguration#getMaxMessagesPerConnection()} mails, or
+ * after being idle for {@link RemoteDeliveryConfiguration#getConnectionIdleTimeout()}. Independently of connection
+ * reuse, the number of simultaneous deliveries to a server can be capped with
+ * {@link RemoteDeliveryConfiguration#getMaxConnectionsPerServer()}.
+ */
+public class SmtpConnectionPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SmtpConnectionPool.class);
+
+    public static final String CONNECTION_OPENED = "RemoteDeliveryConnectionOpened";
+    public static final String CONNECTION_REUSED = "RemoteDeliveryConnectionReused";
+    public static final String CONNECTION_EVICTED = "RemoteDeliveryConnectionEvicted";
+    public static final int UNLIMITED = 0;
+
+    @FunctionalInterface
+    public interface Connector {
+        SMTPTransport connect(HostAddress server, Properties sessionProperties) throws MessagingException;
+    }
+
+    /**
+     * A transport along with the properties of its session. The envelope sender is read from these properties when
+     * sending, so each delivery sets it there. A connection is used by a single delivery at a time.
+     */
+    public static class Connection {
+        private final String serverKey;
+        private final SMTPTransport transport;
+        private final Properties sessionProperties;
+        private int sentMessages;
+        private long lastReleasedNanos;
+
+        private Connection(String serverKey, SMTPTransport transport, Properties sessionProperties) {
+            this.serverKey = serverKey;
+            this.transport = transport;
+            this.sessionProperties = sessionProperties;
+            this.sentMessages = 0;
+        }
+
+        public SMTPTransport getTransport() {
+            return transport;
+        }
+
+        public Properties getSessionProperties() {
+            return sessionProperties;
+        }
+    }
+
+    public static SmtpConnectionPool from(RemoteDeliveryConfiguration configuration, MetricFactory metricFactory) {
+        return new SmtpConnectionPool(configuration.getMaxMessagesPerConnection(),
+            configuration.getConnectionIdleTimeout(),
+            configuration.getMaxConnectionsPerServer(),
+            Duration.ofMillis(configuration.getConnectionTimeout()),
+            metricFactory);
+    }
+
+    private final int maxMessagesPerConnection;
+    private final Duration idleTimeout;
+    private final int maxConnectionsPerServer;
+    private final Duration acquireTimeout;
+    private final Metric openedMetric;
+    private final Metric reusedMetric;
+    private final Metric evictedMetric;
+    private final Map<String, Deque<Connection>> idleConnections;
+    private final ConcurrentHashMap<String, Semaphore> serverPermits;
+    private final Optional<ScheduledExecutorService> evictionExecutor;
+    private boolean closed;
+
+    @VisibleForTesting
+    SmtpConnectionPool(int maxMessagesPerConnection, Duration idleTimeout, int maxConnectionsPerServer, Duration acquireTimeout,
+                       MetricFactory metricFactory) {
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.idleTimeout = idleTimeout;
+        this.maxConnectionsPerServer = maxConnectionsPerServer;
+        this.acquireTimeout = acquireTimeout;
+        this.openedMetric = metricFactory.generate(CONNECTION_OPENED);
+        this.reusedMetric = metricFactory.generate(CONNECTION_REUSED);
+        this.evictedMetric = metricFactory.generate(CONNECTION_EVICTED);
+        this.idleConnections = new HashMap<>();
+        this.serverPermits = new ConcurrentHashMap<>();
+        this.evictionExecutor = startEviction();
+        this.closed = false;
+    }
+
+    private Optional<ScheduledExecutorService> startEviction() {
+        if (!isReuseEnabled()) {
+            return Optional.empty();
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("remote-delivery-connection-eviction-%d")
+            .setDaemon(true)
+            .build());
+        long periodInMs = Math.max(1, idleTimeout.toMillis() / 2);
+        executor.scheduleWithFixedDelay(this::evictIdleConnections, periodInMs, periodInMs, TimeUnit.MILLISECONDS);
+        return Optional.of(executor);
+    }
+
+    private boolean isReuseEnabled() {
+        return maxMessagesPerConnection > 1;
+    }
+
+    /**
+     * Returns a connected transport to the given server, either reused or newly opened with the {@link Connector},
+     * over a session created with the supplied properties.
+     *
+     * The connection is not available to other callers until {@link #release(Connection, boolean)} is called.
+     */
+    public Connection acquire(HostAddress server, Supplier<Properties> sessionProperties, Connector connector) throws MessagingException {
+        String serverKey = server.toString();
+        acquirePermit(serverKey);
+        try {
+            Optional<Connection> idleConnection = pollIdleConnection(serverKey);
+            if (idleConnection.isPresent()) {
+                reusedMetric.increment();
+                return idleConnection.get();
+            }
+            Properties properties = sessionProperties.get();
+            Connection connection = new Connection(serverKey, connector.connect(server, properties), properties);
+            openedMetric.increment();
+            return connection;
+        } catch (MessagingException | RuntimeException e) {
+            releasePermit(serverKey);
+            throw e;
+        }
+    }
+
+    /**
+     * @param reusable whether the mail transaction completed successfully, leaving the connection in a usable state
+     * @return true if the pool kept the connection opened. Otherwise the caller is in charge of closing it.
+     */
+    public boolean release(Connection connection, boolean reusable) {
+        try {
+            connection.sentMessages++;
+            if (!reusable || connection.sentMessages >= maxMessagesPerConnection) {
+                return false;
+            }
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                connection.lastReleasedNanos = System.nanoTime();
+                idleConnections.computeIfAbsent(connection.serverKey, key -> new ArrayDeque<>())
+                    .push(connection);
+                return true;
+            }
+        } finally {
+            releasePermit(connection.serverKey);
+        }
+    }
+
+    public void close() {
+        evictionExecutor.ifPresent(ScheduledExecutorService::shutdownNow);
+        List<Connection> connections = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            idleConnections.values().forEach(connections::addAll);
+            idleConnections.clear();
+        }
+        connections.forEach(this::closeQuietly);
+    }
+
+    @VisibleForTesting
+    synchronized int idleConnectionCount() {
+        return idleConnections.values()
+            .stream()
+            .mapToInt(Deque::size)
+            .sum();
+    }
+
+    private Optional<Connection> pollIdleConnection(String serverKey) {
+        while (true) {
+            Optional<Connection> connection = pollMostRecentlyUsed(serverKey);
+            if (!connection.isPresent() || isAlive(connection.get())) {
+                return connection;
+            }
+            evictedMetric.increment();
+            closeQuietly(connection.get());
+        }
+    }
+
+    private synchronized Optional<Connection> pollMostRecentlyUsed(String serverKey) {
+        return Optional.ofNullable(idleConnections.get(serverKey))
+            .map(Deque::poll);
+    }
+
+    private boolean isAlive(Connection connection) {
+        // SMTPTransport checks that the server still answers to a NOOP command
+        return !isIdleTimeoutExceeded(connection, System.nanoTime())
+            && connection.transport.isConnected();
+    }
+
+    private boolean isIdleTimeoutExceeded(Connection connection, long nowNanos) {
+        return nowNanos - connection.lastReleasedNanos > idleTimeout.toNanos();
+    }
+
+    private void evictIdleConnections() {
+        List<Connection> evicted = new ArrayList<>();
+        long now = System.nanoTime();
+        synchronized (this) {
+            for (Deque<Connection> connections : idleConnections.values()) {
+                Iterator<Connection> iterator = connections.iterator();
+                while (iterator.hasNext()) {
+                    Connection connection = iterator.next();
+                    if (isIdleTimeoutExceeded(connection, now)) {
+                        iterator.remove();
+                        evicted.add(connection);
+                    }
+                }
+            }
+            idleConnections.values().removeIf(Deque::isEmpty);
+        }
+        evicted.forEach(connection -> {
+            evictedMetric.increment();
+            closeQuietly(connection);
+        });
+    }
+
+    private void closeQuietly(Connection connection) {
+        try {
+            connection.transport.close();
+        } catch (MessagingException e) {
+            LOGGER.debug("Could not close idle SMTP connection to {}", connection.serverKey, e);
+        }
+    }
+
+    private void acquirePermit(String serverKey) throws MessagingException {
+        if (maxConnectionsPerServer == UNLIMITED) {
+            return;
+        }
+        Semaphore permits = serverPermits.computeIfAbsent(serverKey, key -> new Semaphore(maxConnectionsPerServer, true));
+        try {
+            if (acquireTimeout.isNegative() || acquireTimeout.isZero()) {
+                // Like for the connection timeout, no value means waiting forever
+                permits.acquire();
+            } else if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Too many concurrent deliveries to " + serverKey);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for a connection to " + serverKey, e);
+        }
+    }
+
+    private void releasePermit(String serverKey) {
+        if (maxConnectionsPerServer == UNLIMITED) {
+            return;
+        }
+        serverPermits.get(serverKey).release();
+    }
+}
@@ -27,6 +27,7 @@ import javax.inject.Inject;
 import org.apache.james.core.MailAddress;
 import org.apache.james.dlp.api.DLPConfigurationItem;
 import org.apache.james.dlp.api.DLPConfigurationStore;
+import org.apache.james.metrics.api.MetricFactory;
 import org.apache.mailet.Mail;
 import org.apache.mailet.base.GenericMatcher;
 
@@ -38,15 +39,41 @@ public class Dlp extends GenericMatcher {
     public static final String DLP_MATCHED_RULE = "DlpMatchedRule";
 
     private final DlpRulesLoader rulesLoader;
+    private final Runnable unregisterRulesLoader;
 
     @VisibleForTesting
     Dlp(DlpRulesLoader rulesLoader) {
+        this(rulesLoader, () -> { });
+    }
+
+    private Dlp(DlpRulesLoader rulesLoader, Runnable unregisterRulesLoader) {
         this.rulesLoader = rulesLoader;
+        this.unregisterRulesLoader = unregisterRulesLoader;
     }
 
     @Inject
-    public Dlp(DLPConfigurationStore configurationStore) {
-        this(new DlpRulesLoader.Impl(configurationStore));
+    public Dlp(DLPConfigurationStore configurationStore, MetricFactory metricFactory) {
+        this(cachingRulesLoader(configurationStore, metricFactory), configurationStore);
+    }
+
+    private Dlp(DlpRulesLoader.Caching rulesLoader, DLPConfigurationStore configurationStore) {
+        this(rulesLoader, () -> configurationStore.unregister(rulesLoader));
+    }
+
+    private static DlpRulesLoader.Caching cachingRulesLoader(DLPConfigurationStore configurationStore, MetricFactory metricFactory) {
+        DlpRulesLoader.Caching rulesLoader = new DlpRulesLoader.Caching(
+            new DlpRulesLoader.Impl(configurationStore, metricFactory),
+            DlpRulesLoader.Caching.DEFAULT_EXPIRY);
+        configurationStore.register(rulesLoader);
+        return rulesLoader;
+    }
+
+    /**
+     * The configuration store outlives this matcher: it needs to stop notifying the rules loader
+     */
+    @Override
+    public void destroy() {
+        unregisterRulesLoader.run();
     }
 
     @Override
@@ -22,6 +22,7 @@ package org.apache.james.transport.matchers.dlp;
 import static org.apache.james.javax.AddressHelper.asStringStream;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.regex.Pattern;
@@ -38,20 +39,44 @@ import org.apache.james.dlp.api.DLPConfigurationItem;
 import org.apache.james.dlp.api.DLPConfigurationItem.Targets;
 import org.apache.james.javax.AddressHelper;
 import org.apache.james.javax.MultipartUtil;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.metrics.api.NoopMetricFactory;
+import org.apache.james.metrics.api.TimeMetric;
 import org.apache.james.util.OptionalUtils;
 import org.apache.james.util.StreamUtils;
 import org.apache.mailet.Mail;
 
 import com.github.fge.lambdas.Throwing;
 import com.github.fge.lambdas.predicates.ThrowingPredicate;
+import com.github.steveash.guavate.Guavate;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CharMatcher;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
+import com.google.common.hash.Hashing;
 
 public class DlpDomainRules {
 
+    public static final String RULE_METRIC_NAME_PREFIX = "dlp-rule-";
+    private static final int MAX_METRIC_RULE_ID_LENGTH = 64;
+    private static final CharMatcher METRIC_NAME_CHARACTERS = CharMatcher.inRange('a', 'z')
+        .or(CharMatcher.inRange('A', 'Z'))
+        .or(CharMatcher.inRange('0', '9'))
+        .or(CharMatcher.anyOf("-_"));
+
+    /**
+     * Rule ids are user input: they are restricted to characters accepted by metric backends and truncated. A short
+     * hash of the raw id is appended, so that distinct ids sanitized or truncated alike still get distinct metrics.
+     */
+    @VisibleForTesting static String metricName(DLPConfigurationItem.Id id) {
+        String sanitizedId = METRIC_NAME_CHARACTERS.negate().replaceFrom(id.asString(), '_');
+        String idHash = Hashing.murmur3_32().hashString(id.asString(), StandardCharsets.UTF_8).toString();
+        return RULE_METRIC_NAME_PREFIX + sanitizedId.substring(0, Math.min(sanitizedId.length(), MAX_METRIC_RULE_ID_LENGTH))
+            + "-" + idHash;
+    }
+
     @VisibleForTesting static DlpDomainRules matchNothing() {
         return DlpDomainRules.of(new Rule(DLPConfigurationItem.Id.of("always false"), (mail) -> false));
     }
@@ -61,16 +86,76 @@ public class DlpDomainRules {
     }
 
     private static DlpDomainRules of(Rule rule) {
-        return new DlpDomainRules(ImmutableList.of(rule));
+        return new DlpDomainRules(ImmutableList.of(rule), new NoopMetricFactory());
     }
 
     public static DlpDomainRulesBuilder builder() {
         return new DlpDomainRulesBuilder();
     }
 
+    /**
+     * The mail being matched. Its subject and text bodies are decoded at most once, and shared by all
+     * the content rules of the domain.
+     */
+    static class EvaluatedMail {
+
+        private final Mail mail;
+        private ImmutableList<String> contents;
+
+        EvaluatedMail(Mail mail) {
+            this.mail = mail;
+        }
+
+        Mail getMail() {
+            return mail;
+        }
+
+        ImmutableList<String> getContents() throws MessagingException, IOException {
+            if (contents == null) {
+                contents = Stream
+                    .concat(getMessageSubjects(), getMessageBodies(mail.getMessage()))
+                    .collect(Guavate.toImmutableList());
+            }
+            return contents;
+        }
+
+        private Stream<String> getMessageSubjects() throws MessagingException {
+            MimeMessage message = mail.getMessage();
+            if (message != null) {
+                return OptionalUtils.toStream(
+                    Optional.ofNullable(message.getSubject()));
+            }
+            return Stream.of();
+        }
+
+        private Stream<String> getMessageBodies(Message message) throws MessagingException, IOException {
+            if (message != null) {
+                return getMessageBodiesFromContent(message.getContent());
+            }
+            return Stream.of();
+        }
+
+        private Stream<String> getMessageBodiesFromContent(Object content) throws IOException, MessagingException {
+            if (content instanceof String) {
+                return Stream.of((String) content);
+            }
+            if (content instanceof Message) {
+                Message message = (Message) content;
+                return getMessageBodiesFromContent(message.getContent());
+            }
+            if (content instanceof Multipart) {
+                return MultipartUtil.retrieveBodyParts((Multipart) content)
+                    .stream()
+                    .map(Throwing.function(BodyPart::getContent).sneakyThrow())
+                    .flatMap(Throwing.function(this::getMessageBodiesFromContent).sneakyThrow());
+            }
+            return Stream.of();
+        }
+    }
+
     static class Rule {
 
-        interface MatcherFunction extends ThrowingPredicate<Mail> { }
+        interface MatcherFunction extends ThrowingPredicate<EvaluatedMail> { }
 
         private static class ContentMatcher implements Rule.MatcherFunction {
 
@@ -81,44 +166,11 @@ public class DlpDomainRules {
             }
 
             @Override
-            public boolean doTest(Mail mail) throws MessagingException, IOException {
-                return Stream
-                    .concat(getMessageSubjects(mail), getMessageBodies(mail.getMessage()))
+            public boolean doTest(EvaluatedMail evaluatedMail) throws MessagingException, IOException {
+                return evaluatedMail.getContents()
+                    .stream()
                     .anyMatch(pattern.asPredicate());
             }
-
-            private Stream<String> getMessageSubjects(Mail mail) throws MessagingException {
-                MimeMessage message = mail.getMessage();
-                if (message != null) {
-                    return OptionalUtils.toStream(
-                        Optional.ofNullable(message.getSubject()));
-                }
-                return Stream.of();
-            }
-
-            private Stream<String> getMessageBodies(Message message) throws MessagingException, IOException {
-                if (message != null) {
-                    return getMessageBodiesFromContent(message.getContent());
-                }
-                return Stream.of();
-            }
-
-            private Stream<String> getMessageBodiesFromContent(Object content) throws IOException, MessagingException {
-                if (content instanceof String) {
-                    return Stream.of((String) content);
-                }
-                if (content instanceof Message) {
-                    Message message = (Message) content;
-                    return getMessageBodiesFromContent(message.getContent());
-                }
-                if (content instanceof Multipart) {
-                    return MultipartUtil.retrieveBodyParts((Multipart) content)
-                        .stream()
-                        .map(Throwing.function(BodyPart::getContent).sneakyThrow())
-                        .flatMap(Throwing.function(this::getMessageBodiesFromContent).sneakyThrow());
-                }
-                return Stream.of();
-            }
         }
 
         private static class RecipientsMatcher implements Rule.MatcherFunction {
@@ -130,8 +182,8 @@ public class DlpDomainRules {
             }
 
             @Override
-            public boolean doTest(Mail mail) throws MessagingException, IOException {
-                return listRecipientsAsString(mail).anyMatch(pattern.asPredicate());
+            public boolean doTest(EvaluatedMail evaluatedMail) throws MessagingException, IOException {
+                return listRecipientsAsString(evaluatedMail.getMail()).anyMatch(pattern.asPredicate());
             }
 
             private Stream<String> listRecipientsAsString(Mail mail) throws MessagingException {
@@ -160,8 +212,8 @@ public class DlpDomainRules {
             }
 
             @Override
-            public boolean doTest(Mail mail) throws MessagingException {
-                return listSenders(mail).anyMatch(pattern.asPredicate());
+            public boolean doTest(EvaluatedMail evaluatedMail) throws MessagingException {
+                return listSenders(evaluatedMail.getMail()).anyMatch(pattern.asPredicate());
             }
 
             private Stream<String> listSenders(Mail mail) throws MessagingException {
@@ -186,18 +238,24 @@ public class DlpDomainRules {
 
         private final DLPConfigurationItem.Id id;
         private final MatcherFunction matcher;
+        private final String metricName;
 
         public Rule(DLPConfigurationItem.Id id, MatcherFunction matcher) {
             this.id = id;
             this.matcher = matcher;
+            this.metricName = metricName(id);
         }
 
         public DLPConfigurationItem.Id id() {
             return id;
         }
 
-        public boolean match(Mail mail) {
-            return matcher.test(mail);
+        public String metricName() {
+            return metricName;
+        }
+
+        public boolean match(EvaluatedMail evaluatedMail) {
+            return matcher.test(evaluatedMail);
         }
 
         @Override
@@ -220,9 +278,16 @@ public class DlpDomainRules {
     public static class DlpDomainRulesBuilder {
 
         private final ImmutableMultimap.Builder<Targets.Type, Rule> rules;
+        private MetricFactory metricFactory;
 
         private DlpDomainRulesBuilder() {
             rules = ImmutableMultimap.builder();
+            metricFactory = new NoopMetricFactory();
+        }
+
+        public DlpDomainRulesBuilder metricFactory(MetricFactory metricFactory) {
+            this.metricFactory = metricFactory;
+            return this;
         }
 
         public DlpDomainRulesBuilder recipientRule(DLPConfigurationItem.Id id, Pattern pattern) {
@@ -258,7 +323,7 @@ public class DlpDomainRules {
         public DlpDomainRules build() {
             ImmutableMultimap<Targets.Type, Rule> rules = this.rules.build();
             Preconditions.checkState(!containsDuplicateIds(rules), "Rules should not contain duplicated `id`");
-            return new DlpDomainRules(rules.values());
+            return new DlpDomainRules(rules.values(), metricFactory);
         }
 
         private boolean containsDuplicateIds(ImmutableMultimap<Targets.Type, Rule> rules) {
@@ -279,16 +344,28 @@ public class DlpDomainRules {
     }
 
     private final ImmutableCollection<Rule> rules;
+    private final MetricFactory metricFactory;
 
-    private DlpDomainRules(ImmutableCollection<Rule> rules) {
+    private DlpDomainRules(ImmutableCollection<Rule> rules, MetricFactory metricFactory) {
         this.rules = rules;
+        this.metricFactory = metricFactory;
     }
 
     public Optional<DLPConfigurationItem.Id> match(Mail mail) {
+        EvaluatedMail evaluatedMail = new EvaluatedMail(mail);
         return rules.stream()
-            .filter(rule -> rule.match(mail))
+            .filter(rule -> timedMatch(rule, evaluatedMail))
             .map(Rule::id)
             .findFirst();
     }
 
+    private boolean timedMatch(Rule rule, EvaluatedMail evaluatedMail) {
+        TimeMetric timeMetric = metricFactory.timer(rule.metricName());
+        try {
+            return rule.match(evaluatedMail);
+        } finally {
+            timeMetric.stopAndPublish();
+        }
+    }
+
 }
@@ -19,11 +19,21 @@
 
 package org.apache.james.transport.matchers.dlp;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 import javax.inject.Inject;
 
 import org.apache.james.core.Domain;
 import org.apache.james.dlp.api.DLPConfigurationStore;
 import org.apache.james.dlp.api.DLPRules;
+import org.apache.james.metrics.api.MetricFactory;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 public interface DlpRulesLoader {
 
@@ -32,10 +42,12 @@ public interface DlpRulesLoader {
     class Impl implements DlpRulesLoader {
 
         private final DLPConfigurationStore configurationStore;
+        private final MetricFactory metricFactory;
 
         @Inject
-        public Impl(DLPConfigurationStore configurationStore) {
+        public Impl(DLPConfigurationStore configurationStore, MetricFactory metricFactory) {
             this.configurationStore = configurationStore;
+            this.metricFactory = metricFactory;
         }
 
         @Override
@@ -44,7 +56,8 @@ public interface DlpRulesLoader {
         }
 
         private DlpDomainRules toRules(DLPRules items) {
-            DlpDomainRules.DlpDomainRulesBuilder builder = DlpDomainRules.builder();
+            DlpDomainRules.DlpDomainRulesBuilder builder = DlpDomainRules.builder()
+                .metricFactory(metricFactory);
             items.forEach(item ->
                 item.getTargets().list().forEach(type ->
                     builder.rule(type, item.getId(), item.getRegexp())
@@ -52,4 +65,40 @@ public interface DlpRulesLoader {
             return builder.build();
         }
     }
+
+    /**
+     * Keeps the compiled rules of each domain for a bounded duration, so that the configuration store is
+     * not read for every mail. Rules modified on this node are invalidated right away, see
+     * {@link DLPConfigurationStore#register(DLPConfigurationStore.Listener)}: the expiry only bounds how long
+     * changes made on other nodes take to apply.
+     */
+    class Caching implements DlpRulesLoader, DLPConfigurationStore.Listener {
+
+        public static final Duration DEFAULT_EXPIRY = Duration.ofSeconds(10);
+        private static final int MAX_CACHED_DOMAINS = 10000;
+
+        private final LoadingCache<Domain, DlpDomainRules> cache;
+
+        public Caching(DlpRulesLoader loader, Duration expiry) {
+            this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(expiry.toMillis(), TimeUnit.MILLISECONDS)
+                .maximumSize(MAX_CACHED_DOMAINS)
+                .build(CacheLoader.from(loader::load));
+        }
+
+        @Override
+        public DlpDomainRules load(Domain domain) {
+            try {
+                return cache.getUnchecked(domain);
+            } catch (UncheckedExecutionException e) {
+                Throwables.throwIfUnchecked(e.getCause());
+                throw e;
+            }
+        }
+
+        @Override
+        public void rulesChanged(Domain domain) {
+            cache.invalidate(domain);
+        }
+    }
 }
@@ -0,0 +1,107 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.transport.mailets.remote.delivery;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.internet.InternetAddress;
+
+import org.apache.james.core.MailAddress;
+import org.apache.james.core.builder.MimeMessageBuilder;
+import org.apache.james.domainlist.api.DomainList;
+import org.apache.james.metrics.api.NoopMetricFactory;
+import org.apache.mailet.HostAddress;
+import org.apache.mailet.Mail;
+import org.apache.mailet.MailetContext;
+import org.apache.mailet.base.MailAddressFixture;
+import org.apache.mailet.base.test.FakeMail;
+import org.apache.mailet.base.test.FakeMailetConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.mail.smtp.SMTPTransport;
+
+public class MailDelivrerToHostTest {
+    private static final HostAddress SERVER = new HostAddress("mx1.domain.com", "smtp://127.0.0.1:25");
+    private static final InternetAddress[] RECIPIENTS = { MailAddressFixture.ANY_AT_LOCAL.toInternetAddress() };
+
+    private SmtpConnectionPool connectionPool;
+    private RemoteDeliveryConfiguration configuration;
+    private MailetContext mailetContext;
+
+    @Before
+    public void setUp() {
+        connectionPool = new SmtpConnectionPool(10, Duration.ofMinutes(1), SmtpConnectionPool.UNLIMITED, Duration.ofMillis(100),
+            new NoopMetricFactory());
+        configuration = new RemoteDeliveryConfiguration(FakeMailetConfig.builder()
+            .setProperty(RemoteDeliveryConfiguration.DELIVERY_THREADS, "2")
+            .build(),
+            mock(DomainList.class));
+        mailetContext = mock(MailetContext.class);
+    }
+
+    @After
+    public void tearDown() {
+        connectionPool.close();
+    }
+
+    @Test
+    public void deliveryThreadsShouldShareConnectionsOfThePool() throws Exception {
+        SMTPTransport transport = mock(SMTPTransport.class);
+        when(transport.isConnected()).thenReturn(true);
+        SmtpConnectionPool.Connection connection = connectionPool.acquire(SERVER, configuration::createFinalJavaxProperties,
+            (server, properties) -> transport);
+        connectionPool.release(connection, true);
+        List<String> envelopeSenders = new ArrayList<>();
+        doAnswer(invocation -> envelopeSenders.add(connection.getSessionProperties().getProperty("mail.smtp.from")))
+            .when(transport).sendMessage(any(Message.class), any(Address[].class));
+
+        MailDelivrerToHost deliveryThread1 = new MailDelivrerToHost(configuration, mailetContext, connectionPool);
+        MailDelivrerToHost deliveryThread2 = new MailDelivrerToHost(configuration, mailetContext, connectionPool);
+
+        assertThat(deliveryThread1.tryDeliveryToHost(mailFrom(MailAddressFixture.ANY_AT_JAMES), RECIPIENTS, SERVER))
+            .isEqualTo(ExecutionResult.success());
+        assertThat(deliveryThread2.tryDeliveryToHost(mailFrom(MailAddressFixture.OTHER_AT_JAMES), RECIPIENTS, SERVER))
+            .isEqualTo(ExecutionResult.success());
+        assertThat(envelopeSenders)
+            .containsExactly(MailAddressFixture.ANY_AT_JAMES.asString(), MailAddressFixture.OTHER_AT_JAMES.asString());
+    }
+
+    private Mail mailFrom(MailAddress sender) throws Exception {
+        return FakeMail.builder()
+            .sender(sender)
+            .recipient(MailAddressFixture.ANY_AT_LOCAL)
+            .mimeMessage(MimeMessageBuilder.mimeMessageBuilder()
+                .setText("content"))
+            .build();
+    }
+}
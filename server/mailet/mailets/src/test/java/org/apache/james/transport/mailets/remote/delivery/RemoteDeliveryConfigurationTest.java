@@ -23,6 +23,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.util.Properties;
 
 import org.apache.james.core.Domain;
@@ -209,6 +210,102 @@ public class RemoteDeliveryConfigurationTest {
             .isEqualTo(-1);
     }
 
+    @Test
+    public void getMaxMessagesPerConnectionShouldReturnDefault() {
+        FakeMailetConfig mailetConfig = FakeMailetConfig.builder()
+            .setProperty(RemoteDeliveryConfiguration.DELIVERY_THREADS, "1")
+            .build();
+
+        assertThat(new RemoteDeliveryConfiguration(mailetConfig, mock(DomainList.class)).getMaxMessagesPerConnection())
+            .isEqualTo(RemoteDeliveryConfiguration.DEFAULT_MAX_MESSAGES_PER_CONNECTION);
+    }
+
+    @Test
+    public void getMaxMessagesPerConnectionShouldReturnProvidedValue() {
+        FakeMailetConfig mailetConfig = FakeMailetConfig.builder()
+            .setProperty(RemoteDeliveryConfiguration.DELIVERY_THREADS, "1")
+            .setProperty(RemoteDeliveryConfiguration.MAX_MESSAGES_PER_CONNECTION, "100")
+            .build();
+
+        assertThat(new RemoteDeliveryConfiguration(mailetConfig, mock(DomainList.class)).getMaxMessagesPerConnection())
+            .isEqualTo(100);
+    }
+
+    @Test
+    public void getMaxMessagesPerConnectionShouldReturnDefaultWhenZero() {
+        FakeMailetConfig mailetConfig = FakeMailetConfig.builder()
+            .setProperty(RemoteDeliveryConfiguration.DELIVERY_THREADS, "1")
+            .setProperty(RemoteDeliveryConfiguration.MAX_MESSAGES_PER_CONNECTION, "0")
+            .build();
+
+        assertThat(new RemoteDeliveryConfiguration(mailetConfig, mock(DomainList.class)).getMaxMessagesPerConnection())
+            .isEqualTo(RemoteDeliveryConfiguration.DEFAULT_MAX_MESSAGES_PER_CONNECTION);
+    }
+
+    @Test
+    public void getConnectionIdleTimeoutShouldReturnDefault() {
+        FakeMailetConfig mailetConfig = FakeMailetConfig.builder()
+            .setProperty(RemoteDeliveryConfiguration.DELIVERY_THREADS, "1")
+            .build();
+
+        assertThat(new RemoteDeliveryConfiguration(mailetConfig, mock(DomainList.class)).getConnectionIdleTimeout())
+            .isEqualTo(RemoteDeliveryConfiguration.DEFAULT_CONNECTION_IDLE_TIMEOUT);
+    }
+
+    @Test
+    public void getConnectionIdleTimeoutShouldReturnProvidedValue() {
+        FakeMailetConfig mailetConfig = FakeMailetConfig.builder()
+            .setProperty(RemoteDeliveryConfiguration.DELIVERY_THREADS, "1")
+            .setProperty(RemoteDeliveryConfiguration.CONNECTION_IDLE_TIMEOUT, "5000")
+            .build();
+
+        assertThat(new RemoteDeliveryConfiguration(mailetConfig, mock(DomainList.class)).getConnectionIdleTimeout())
+            .isEqualTo(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void getConnectionIdleTimeoutShouldReturnDefaultIfParsingException() {
+        FakeMailetConfig mailetConfig = FakeMailetConfig.builder()
+            .setProperty(RemoteDeliveryConfiguration.DELIVERY_THREADS, "1")
+            .setProperty(RemoteDeliveryConfiguration.CONNECTION_IDLE_TIMEOUT, "invalid")
+            .build();
+
+        assertThat(new RemoteDeliveryConfiguration(mailetConfig, mock(DomainList.class)).getConnectionIdleTimeout())
+            .isEqualTo(RemoteDeliveryConfiguration.DEFAULT_CONNECTION_IDLE_TIMEOUT);
+    }
+
+    @Test
+    public void getMaxConnectionsPerServerShouldReturnDefault() {
+        FakeMailetConfig mailetConfig = FakeMailetConfig.builder()
+            .setProperty(RemoteDeliveryConfiguration.DELIVERY_THREADS, "1")
+            .build();
+
+        assertThat(new RemoteDeliveryConfiguration(mailetConfig, mock(DomainList.class)).getMaxConnectionsPerServer())
+            .isEqualTo(SmtpConnectionPool.UNLIMITED);
+    }
+
+    @Test
+    public void getMaxConnectionsPerServerShouldReturnProvidedValue() {
+        FakeMailetConfig mailetConfig = FakeMailetConfig.builder()
+            .setProperty(RemoteDeliveryConfiguration.DELIVERY_THREADS, "1")
+            .setProperty(RemoteDeliveryConfiguration.MAX_CONNECTIONS_PER_SERVER, "4")
+            .build();
+
+        assertThat(new RemoteDeliveryConfiguration(mailetConfig, mock(DomainList.class)).getMaxConnectionsPerServer())
+            .isEqualTo(4);
+    }
+
+    @Test
+    public void getMaxConnectionsPerServerShouldReturnDefaultWhenNegative() {
+        FakeMailetConfig mailetConfig = FakeMailetConfig.builder()
+            .setProperty(RemoteDeliveryConfiguration.DELIVERY_THREADS, "1")
+            .setProperty(RemoteDeliveryConfiguration.MAX_CONNECTIONS_PER_SERVER, "-1")
+            .build();
+
+        assertThat(new RemoteDeliveryConfiguration(mailetConfig, mock(DomainList.class)).getMaxConnectionsPerServer())
+            .isEqualTo(SmtpConnectionPool.UNLIMITED);
+    }
+
     @Test
     public void isSendPartialShouldBeFalseByDefault() {
         FakeMailetConfig mailetConfig = FakeMailetConfig.builder()
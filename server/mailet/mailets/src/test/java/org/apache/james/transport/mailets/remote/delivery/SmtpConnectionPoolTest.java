@@ -0,0 +1,182 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.transport.mailets.remote.delivery;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Properties;
+
+import javax.mail.MessagingException;
+
+import org.apache.james.metrics.api.NoopMetricFactory;
+import org.apache.mailet.HostAddress;
+import org.junit.After;
+import org.junit.Test;
+
+import com.sun.mail.smtp.SMTPTransport;
+
+public class SmtpConnectionPoolTest {
+    private static final HostAddress SERVER_1 = new HostAddress("mx1.domain.com", "smtp://127.0.0.1:25");
+    private static final HostAddress SERVER_2 = new HostAddress("mx2.domain.com", "smtp://127.0.0.2:25");
+    private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(1);
+    private static final Duration ACQUIRE_TIMEOUT = Duration.ofMillis(100);
+
+    private SmtpConnectionPool testee;
+
+    @After
+    public void tearDown() {
+        if (testee != null) {
+            testee.close();
+        }
+    }
+
+    @Test
+    public void acquireShouldReuseReleasedConnection() throws Exception {
+        testee = new SmtpConnectionPool(10, IDLE_TIMEOUT, SmtpConnectionPool.UNLIMITED, ACQUIRE_TIMEOUT, new NoopMetricFactory());
+        SMTPTransport transport = connectedTransport();
+
+        SmtpConnectionPool.Connection connection = testee.acquire(SERVER_1, Properties::new, (server, properties) -> transport);
+        assertThat(testee.release(connection, true)).isTrue();
+
+        assertThat(testee.acquire(SERVER_1, Properties::new, (server, properties) -> mock(SMTPTransport.class)).getTransport())
+            .isSameAs(transport);
+    }
+
+    @Test
+    public void acquireShouldNotReuseConnectionOfAnotherServer() throws Exception {
+        testee = new SmtpConnectionPool(10, IDLE_TIMEOUT, SmtpConnectionPool.UNLIMITED, ACQUIRE_TIMEOUT, new NoopMetricFactory());
+        SMTPTransport transport1 = connectedTransport();
+        SMTPTransport transport2 = connectedTransport();
+
+        testee.release(testee.acquire(SERVER_1, Properties::new, (server, properties) -> transport1), true);
+
+        assertThat(testee.acquire(SERVER_2, Properties::new, (server, properties) -> transport2).getTransport())
+            .isSameAs(transport2);
+    }
+
+    @Test
+    public void releaseShouldNotKeepConnectionWhenNotReusable() throws Exception {
+        testee = new SmtpConnectionPool(10, IDLE_TIMEOUT, SmtpConnectionPool.UNLIMITED, ACQUIRE_TIMEOUT, new NoopMetricFactory());
+
+        SmtpConnectionPool.Connection connection = testee.acquire(SERVER_1, Properties::new, (server, properties) -> connectedTransport());
+
+        assertThat(testee.release(connection, false)).isFalse();
+        assertThat(testee.idleConnectionCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void releaseShouldNotKeepConnectionWhenMaxMessagesReached() throws Exception {
+        testee = new SmtpConnectionPool(2, IDLE_TIMEOUT, SmtpConnectionPool.UNLIMITED, ACQUIRE_TIMEOUT, new NoopMetricFactory());
+        SMTPTransport transport = connectedTransport();
+
+        testee.release(testee.acquire(SERVER_1, Properties::new, (server, properties) -> transport), true);
+        SmtpConnectionPool.Connection connection = testee.acquire(SERVER_1, Properties::new, (server, properties) -> connectedTransport());
+
+        assertThat(testee.release(connection, true)).isFalse();
+    }
+
+    @Test
+    public void releaseShouldNeverKeepConnectionWhenOneMessagePerConnection() throws Exception {
+        testee = new SmtpConnectionPool(1, IDLE_TIMEOUT, SmtpConnectionPool.UNLIMITED, ACQUIRE_TIMEOUT, new NoopMetricFactory());
+
+        SmtpConnectionPool.Connection connection = testee.acquire(SERVER_1, Properties::new, (server, properties) -> connectedTransport());
+
+        assertThat(testee.release(connection, true)).isFalse();
+    }
+
+    @Test
+    public void acquireShouldOpenNewConnectionWhenIdleOneIsDisconnected() throws Exception {
+        testee = new SmtpConnectionPool(10, IDLE_TIMEOUT, SmtpConnectionPool.UNLIMITED, ACQUIRE_TIMEOUT, new NoopMetricFactory());
+        SMTPTransport disconnected = mock(SMTPTransport.class);
+        when(disconnected.isConnected()).thenReturn(false);
+        SMTPTransport transport = connectedTransport();
+
+        testee.release(testee.acquire(SERVER_1, Properties::new, (server, properties) -> disconnected), true);
+
+        assertThat(testee.acquire(SERVER_1, Properties::new, (server, properties) -> transport).getTransport())
+            .isSameAs(transport);
+        verify(disconnected).close();
+    }
+
+    @Test
+    public void idleConnectionsShouldBeClosedAfterIdleTimeout() throws Exception {
+        testee = new SmtpConnectionPool(10, Duration.ofMillis(50), SmtpConnectionPool.UNLIMITED, ACQUIRE_TIMEOUT, new NoopMetricFactory());
+        SMTPTransport transport = connectedTransport();
+
+        testee.release(testee.acquire(SERVER_1, Properties::new, (server, properties) -> transport), true);
+        Thread.sleep(200);
+
+        assertThat(testee.idleConnectionCount()).isEqualTo(0);
+        verify(transport).close();
+    }
+
+    @Test
+    public void acquireShouldFailWhenMaxConnectionsPerServerReached() throws Exception {
+        testee = new SmtpConnectionPool(10, IDLE_TIMEOUT, 1, ACQUIRE_TIMEOUT, new NoopMetricFactory());
+
+        testee.acquire(SERVER_1, Properties::new, (server, properties) -> connectedTransport());
+
+        assertThatThrownBy(() -> testee.acquire(SERVER_1, Properties::new, (server, properties) -> connectedTransport()))
+            .isInstanceOf(MessagingException.class);
+    }
+
+    @Test
+    public void maxConnectionsPerServerShouldNotLimitOtherServers() throws Exception {
+        testee = new SmtpConnectionPool(10, IDLE_TIMEOUT, 1, ACQUIRE_TIMEOUT, new NoopMetricFactory());
+        SMTPTransport transport = connectedTransport();
+
+        testee.acquire(SERVER_1, Properties::new, (server, properties) -> connectedTransport());
+
+        assertThat(testee.acquire(SERVER_2, Properties::new, (server, properties) -> transport).getTransport())
+            .isSameAs(transport);
+    }
+
+    @Test
+    public void releaseShouldAllowNextAcquireWhenMaxConnectionsPerServerReached() throws Exception {
+        testee = new SmtpConnectionPool(10, IDLE_TIMEOUT, 1, ACQUIRE_TIMEOUT, new NoopMetricFactory());
+
+        testee.release(testee.acquire(SERVER_1, Properties::new, (server, properties) -> connectedTransport()), false);
+
+        assertThat(testee.acquire(SERVER_1, Properties::new, (server, properties) -> connectedTransport()))
+            .isNotNull();
+    }
+
+    @Test
+    public void closeShouldCloseIdleConnections() throws Exception {
+        testee = new SmtpConnectionPool(10, IDLE_TIMEOUT, SmtpConnectionPool.UNLIMITED, ACQUIRE_TIMEOUT, new NoopMetricFactory());
+        SMTPTransport transport = connectedTransport();
+        testee.release(testee.acquire(SERVER_1, Properties::new, (server, properties) -> transport), true);
+
+        testee.close();
+
+        verify(transport).close();
+    }
+
+    private SMTPTransport connectedTransport() {
+        SMTPTransport transport = mock(SMTPTransport.class);
+        when(transport.isConnected()).thenReturn(true);
+        return transport;
+    }
+}
@@ -19,14 +19,27 @@
 
 package org.apache.james.transport.matchers.dlp;
 
+import static org.apache.mailet.base.MailAddressFixture.ANY_AT_JAMES;
+import static org.apache.mailet.base.MailAddressFixture.RECIPIENT1;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.util.regex.Pattern;
 
+import org.apache.james.core.builder.MimeMessageBuilder;
 import org.apache.james.dlp.api.DLPConfigurationItem.Id;
+import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.metrics.api.TimeMetric;
+import org.apache.mailet.base.test.FakeMail;
 import org.junit.jupiter.api.Test;
 
+import com.google.common.base.Strings;
+
 class DlpDomainRulesTest {
 
     private static final Pattern PATTERN_1 = Pattern.compile("1");
@@ -57,4 +70,70 @@ class DlpDomainRulesTest {
             .doesNotThrowAnyException();
     }
 
+    @Test
+    void matchShouldReturnTheFirstMatchingContentRule() throws Exception {
+        DlpDomainRules rules = DlpDomainRules.builder()
+            .contentRule(Id.of("subject"), Pattern.compile("not in subject"))
+            .contentRule(Id.of("body"), Pattern.compile("secret"))
+            .contentRule(Id.of("any"), Pattern.compile(".*"))
+            .build();
+
+        FakeMail mail = FakeMail.builder()
+            .sender(ANY_AT_JAMES)
+            .recipient(RECIPIENT1)
+            .mimeMessage(MimeMessageBuilder.mimeMessageBuilder()
+                .setSubject("subject")
+                .setText("some secret content"))
+            .build();
+
+        assertThat(rules.match(mail)).contains(Id.of("body"));
+    }
+
+    @Test
+    void matchShouldPublishATimerForEachEvaluatedRule() throws Exception {
+        MetricFactory metricFactory = mock(MetricFactory.class);
+        when(metricFactory.timer(anyString())).thenReturn(mock(TimeMetric.class));
+        DlpDomainRules rules = DlpDomainRules.builder()
+            .metricFactory(metricFactory)
+            .senderRule(Id.of("1"), PATTERN_1)
+            .senderRule(Id.of("2"), Pattern.compile(".*"))
+            .build();
+
+        rules.match(FakeMail.builder().sender(ANY_AT_JAMES).recipient(RECIPIENT1).build());
+
+        verify(metricFactory).timer(DlpDomainRules.RULE_METRIC_NAME_PREFIX + "1");
+        verify(metricFactory).timer(DlpDomainRules.RULE_METRIC_NAME_PREFIX + "2");
+    }
+
+    @Test
+    void metricNameShouldReplaceUnsupportedCharacters() {
+        assertThat(DlpDomainRules.metricName(Id.of("credit card.rule/1")))
+            .startsWith(DlpDomainRules.RULE_METRIC_NAME_PREFIX + "credit_card_rule_1-")
+            .matches("[a-zA-Z0-9_-]+");
+    }
+
+    @Test
+    void metricNameShouldTruncateLongIds() {
+        assertThat(DlpDomainRules.metricName(Id.of(Strings.repeat("a", 100))))
+            .startsWith(DlpDomainRules.RULE_METRIC_NAME_PREFIX + Strings.repeat("a", 64) + "-")
+            .doesNotContain(Strings.repeat("a", 65));
+    }
+
+    @Test
+    void metricNameShouldDifferForIdsSanitizedAlike() {
+        assertThat(DlpDomainRules.metricName(Id.of("rule.1")))
+            .isNotEqualTo(DlpDomainRules.metricName(Id.of("rule/1")));
+    }
+
+    @Test
+    void metricNameShouldDifferForIdsTruncatedAlike() {
+        assertThat(DlpDomainRules.metricName(Id.of(Strings.repeat("a", 100) + "1")))
+            .isNotEqualTo(DlpDomainRules.metricName(Id.of(Strings.repeat("a", 100) + "2")));
+    }
+
+    @Test
+    void metricNameShouldBeStable() {
+        assertThat(DlpDomainRules.metricName(Id.of("rule")))
+            .isEqualTo(DlpDomainRules.metricName(Id.of("rule")));
+    }
 }
\ No newline at end of file
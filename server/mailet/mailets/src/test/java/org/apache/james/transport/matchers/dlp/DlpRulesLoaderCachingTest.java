@@ -0,0 +1,119 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.transport.matchers.dlp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+
+import org.apache.james.core.Domain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DlpRulesLoaderCachingTest {
+
+    private static final Domain DOMAIN = Domain.of("james.org");
+    private static final Domain OTHER_DOMAIN = Domain.of("other.org");
+
+    private DlpRulesLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        loader = mock(DlpRulesLoader.class);
+        when(loader.load(DOMAIN)).thenReturn(DlpDomainRules.matchAll());
+        when(loader.load(OTHER_DOMAIN)).thenReturn(DlpDomainRules.matchNothing());
+    }
+
+    @Test
+    void loadShouldReturnTheRulesOfTheDomain() {
+        DlpRulesLoader testee = new DlpRulesLoader.Caching(loader, Duration.ofMinutes(1));
+
+        DlpDomainRules rules = testee.load(DOMAIN);
+
+        assertThat(rules).isSameAs(loader.load(DOMAIN));
+    }
+
+    @Test
+    void loadShouldNotReloadCachedRules() {
+        DlpRulesLoader testee = new DlpRulesLoader.Caching(loader, Duration.ofMinutes(1));
+
+        testee.load(DOMAIN);
+        testee.load(DOMAIN);
+
+        verify(loader, times(1)).load(DOMAIN);
+    }
+
+    @Test
+    void loadShouldCacheEachDomainSeparately() {
+        DlpRulesLoader testee = new DlpRulesLoader.Caching(loader, Duration.ofMinutes(1));
+
+        testee.load(DOMAIN);
+        DlpDomainRules otherRules = testee.load(OTHER_DOMAIN);
+
+        assertThat(otherRules).isSameAs(loader.load(OTHER_DOMAIN));
+    }
+
+    @Test
+    void rulesChangedShouldReloadTheRulesOfTheDomain() {
+        DlpRulesLoader.Caching testee = new DlpRulesLoader.Caching(loader, Duration.ofMinutes(1));
+
+        testee.load(DOMAIN);
+        testee.rulesChanged(DOMAIN);
+        testee.load(DOMAIN);
+
+        verify(loader, times(2)).load(DOMAIN);
+    }
+
+    @Test
+    void rulesChangedShouldNotReloadOtherDomains() {
+        DlpRulesLoader.Caching testee = new DlpRulesLoader.Caching(loader, Duration.ofMinutes(1));
+
+        testee.load(OTHER_DOMAIN);
+        testee.rulesChanged(DOMAIN);
+        testee.load(OTHER_DOMAIN);
+
+        verify(loader, times(1)).load(OTHER_DOMAIN);
+    }
+
+    @Test
+    void loadShouldReloadWhenCacheIsDisabled() {
+        DlpRulesLoader testee = new DlpRulesLoader.Caching(loader, Duration.ZERO);
+
+        testee.load(DOMAIN);
+        testee.load(DOMAIN);
+
+        verify(loader, times(2)).load(DOMAIN);
+    }
+
+    @Test
+    void loadShouldPropagateLoaderFailures() {
+        DlpRulesLoader failingLoader = mock(DlpRulesLoader.class);
+        when(failingLoader.load(DOMAIN)).thenThrow(new IllegalStateException("store failure"));
+        DlpRulesLoader testee = new DlpRulesLoader.Caching(failingLoader, Duration.ofMinutes(1));
+
+        assertThatThrownBy(() -> testee.load(DOMAIN))
+            .isInstanceOf(IllegalStateException.class);
+    }
+}
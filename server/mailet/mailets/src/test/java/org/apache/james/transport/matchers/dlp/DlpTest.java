@@ -28,6 +28,8 @@ import static org.apache.mailet.base.MailAddressFixture.RECIPIENT2;
 import static org.apache.mailet.base.MailAddressFixture.RECIPIENT3;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Optional;
@@ -37,8 +39,11 @@ import org.apache.james.core.Domain;
 import org.apache.james.core.MailAddress;
 import org.apache.james.core.builder.MimeMessageBuilder;
 import org.apache.james.dlp.api.DLPConfigurationItem.Id;
+import org.apache.james.dlp.api.DLPConfigurationStore;
+import org.apache.james.metrics.api.NoopMetricFactory;
 import org.apache.mailet.base.test.FakeMail;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 class DlpTest {
 
@@ -524,4 +529,16 @@ class DlpTest {
         assertThat(mail.getAttribute("DlpMatchedRule")).isEqualTo("should match sender");
     }
 
-}
\ No newline at end of file
+    @Test
+    void destroyShouldUnregisterTheRulesLoader() {
+        DLPConfigurationStore configurationStore = mock(DLPConfigurationStore.class);
+        Dlp dlp = new Dlp(configurationStore, new NoopMetricFactory());
+
+        ArgumentCaptor<DLPConfigurationStore.Listener> registeredListener = ArgumentCaptor.forClass(DLPConfigurationStore.Listener.class);
+        verify(configurationStore).register(registeredListener.capture());
+
+        dlp.destroy();
+
+        verify(configurationStore).unregister(registeredListener.getValue());
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.james.mailrepository.cassandra;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
@@ -126,17 +127,28 @@ public class CassandraMailRepository implements MailRepository {
 
     private CompletableFuture<Void> removeAsync(MailKey key) {
         return keysDAO.remove(url, key)
-            .thenCompose(this::decreaseSizeIfDeleted)
+            .thenCompose(isDeleted -> releaseIfDeleted(key, isDeleted))
             .thenCompose(any -> mailDAO.remove(url, key));
     }
 
-    private CompletionStage<Void> decreaseSizeIfDeleted(Boolean isDeleted) {
+    private CompletionStage<Void> releaseIfDeleted(MailKey key, Boolean isDeleted) {
         if (isDeleted) {
-            return countDAO.decrement(url);
+            return countDAO.decrement(url)
+                .thenCompose(any -> mailDAO.read(url, key))
+                .thenCompose(this::dereferenceMimeMessage);
         }
         return CompletableFuture.completedFuture(null);
     }
 
+    private CompletionStage<Void> dereferenceMimeMessage(Optional<CassandraMailRepositoryMailDAO.MailDTO> mailDTO) {
+        return mailDTO
+            .map(dto -> mimeMessageStore.delete(MimeMessagePartsId.builder()
+                .headerBlobId(dto.getHeaderBlobId())
+                .bodyBlobId(dto.getBodyBlobId())
+                .build()))
+            .orElse(CompletableFuture.completedFuture(null));
+    }
+
     @Override
     public long size() {
         return countDAO.getCount(url).join();
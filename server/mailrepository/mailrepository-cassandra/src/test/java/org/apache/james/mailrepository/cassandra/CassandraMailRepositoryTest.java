@@ -25,6 +25,7 @@ import org.apache.james.backends.cassandra.components.CassandraModule;
 import org.apache.james.backends.cassandra.utils.CassandraUtils;
 import org.apache.james.blob.api.HashBlobId;
 import org.apache.james.blob.cassandra.CassandraBlobModule;
+import org.apache.james.blob.cassandra.CassandraBlobReferenceRegistry;
 import org.apache.james.blob.cassandra.CassandraBlobsDAO;
 import org.apache.james.blob.mail.MimeMessageStore;
 import org.apache.james.mailrepository.MailRepositoryContract;
@@ -56,7 +57,7 @@ class CassandraMailRepositoryTest implements MailRepositoryContract {
         CassandraBlobsDAO blobsDAO = new CassandraBlobsDAO(cassandra.getConf());
 
         cassandraMailRepository = new CassandraMailRepository(URL,
-            keysDAO, countDAO, mailDAO, MimeMessageStore.factory(blobsDAO).mimeMessageStore());
+            keysDAO, countDAO, mailDAO, MimeMessageStore.factory(blobsDAO, BLOB_ID_FACTORY, new CassandraBlobReferenceRegistry(cassandra.getConf())).mimeMessageStore());
     }
 
     @Override
@@ -39,6 +39,7 @@ import org.apache.james.blob.api.HashBlobId;
 import org.apache.james.blob.api.Store;
 import org.apache.james.blob.cassandra.BlobTable;
 import org.apache.james.blob.cassandra.CassandraBlobModule;
+import org.apache.james.blob.cassandra.CassandraBlobReferenceRegistry;
 import org.apache.james.blob.cassandra.CassandraBlobsDAO;
 import org.apache.james.blob.mail.MimeMessagePartsId;
 import org.apache.james.blob.mail.MimeMessageStore;
@@ -105,6 +106,13 @@ class CassandraMailRepositoryWithFakeImplementationsTest {
                     throw new RuntimeException("Expected failure while reading");
                 });
             }
+
+            @Override
+            public CompletableFuture<Void> delete(MimeMessagePartsId blobIds) {
+                return CompletableFuture.runAsync(() -> {
+                    throw new RuntimeException("Expected failure while deleting");
+                });
+            }
         }
 
         @Test
@@ -140,7 +148,7 @@ class CassandraMailRepositoryWithFakeImplementationsTest {
             CassandraBlobsDAO blobsDAO = new CassandraBlobsDAO(cassandra.getConf());
 
             cassandraMailRepository = new CassandraMailRepository(URL,
-                    keysDAO, countDAO, mailDAO, MimeMessageStore.factory(blobsDAO).mimeMessageStore());
+                    keysDAO, countDAO, mailDAO, MimeMessageStore.factory(blobsDAO, BLOB_ID_FACTORY, new CassandraBlobReferenceRegistry(cassandra.getConf())).mimeMessageStore());
         }
 
         class FailingMailDAO extends CassandraMailRepositoryMailDAO {
@@ -202,6 +210,7 @@ class CassandraMailRepositoryWithFakeImplementationsTest {
     class FailingKeysDaoTest {
         CassandraMailRepository cassandraMailRepository;
         CassandraMailRepositoryCountDAO countDAO;
+        CassandraBlobReferenceRegistry referenceRegistry;
 
         @BeforeEach
         void setup(CassandraCluster cassandra) {
@@ -209,9 +218,10 @@ class CassandraMailRepositoryWithFakeImplementationsTest {
             FailingKeysDAO keysDAO = new FailingKeysDAO(cassandra.getConf(), CassandraUtils.WITH_DEFAULT_CONFIGURATION);
             countDAO = new CassandraMailRepositoryCountDAO(cassandra.getConf());
             CassandraBlobsDAO blobsDAO = new CassandraBlobsDAO(cassandra.getConf());
+            referenceRegistry = new CassandraBlobReferenceRegistry(cassandra.getConf());
 
             cassandraMailRepository = new CassandraMailRepository(URL,
-                    keysDAO, countDAO, mailDAO, MimeMessageStore.factory(blobsDAO).mimeMessageStore());
+                    keysDAO, countDAO, mailDAO, MimeMessageStore.factory(blobsDAO, BLOB_ID_FACTORY, referenceRegistry).mimeMessageStore());
         }
 
         class FailingKeysDAO extends CassandraMailRepositoryKeysDAO {
@@ -288,5 +298,24 @@ class CassandraMailRepositoryWithFakeImplementationsTest {
                     .from(MailRepositoryTable.CONTENT_TABLE_NAME));
             assertThat(resultSet.all()).hasSize(1);
         }
+
+        @Test
+        void removeShouldNotDereferenceMimeMessageWhenKeyWasNotStored() throws Exception {
+            MailKey mailKey = new MailKey("mymail");
+            List<MailAddress> recipients = ImmutableList
+                    .of(new MailAddress("rec1@domain.com"),
+                            new MailAddress("rec2@domain.com"));
+            MimeMessage mailContent = MimeMessageBuilder.mimeMessageBuilder()
+                    .setSubject("test")
+                    .setText("this is the content")
+                    .build();
+            MailImpl mail = new MailImpl(mailKey.asString(), new MailAddress("sender@domain.com"), recipients, mailContent);
+            assertThatThrownBy(() -> cassandraMailRepository.store(mail))
+                    .isInstanceOf(RuntimeException.class);
+
+            cassandraMailRepository.remove(mailKey);
+
+            assertThat(referenceRegistry.listOrphans().join()).isEmpty();
+        }
     }
-}
\ No newline at end of file
+}
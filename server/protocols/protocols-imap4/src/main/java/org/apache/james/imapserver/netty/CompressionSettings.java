@@ -0,0 +1,94 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.imapserver.netty;
+
+import java.util.Objects;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * Deflate parameters used by the COMPRESS extension.
+ *
+ * The memory held by each compressed connection is roughly
+ * <code>(1 &lt;&lt; (windowBits + 2)) + (1 &lt;&lt; (memLevel + 9))</code> bytes, which
+ * is about 256KB with the zlib defaults. Lowering both values trades some
+ * compression ratio for a much smaller footprint.
+ */
+public class CompressionSettings {
+    public static final int DEFAULT_LEVEL = 5;
+    public static final int DEFAULT_WINDOW_BITS = 15;
+    public static final int DEFAULT_MEM_LEVEL = 8;
+    public static final int LOW_MEMORY_WINDOW_BITS = 10;
+    public static final int LOW_MEMORY_MEM_LEVEL = 2;
+
+    public static final CompressionSettings DEFAULT = new CompressionSettings(DEFAULT_LEVEL, DEFAULT_WINDOW_BITS, DEFAULT_MEM_LEVEL);
+    public static final CompressionSettings LOW_MEMORY = new CompressionSettings(DEFAULT_LEVEL, LOW_MEMORY_WINDOW_BITS, LOW_MEMORY_MEM_LEVEL);
+
+    private final int level;
+    private final int windowBits;
+    private final int memLevel;
+
+    public CompressionSettings(int level, int windowBits, int memLevel) {
+        Preconditions.checkArgument(level >= 0 && level <= 9, "compression level %s must be between 0 and 9", level);
+        Preconditions.checkArgument(windowBits >= 9 && windowBits <= 15, "window bits %s must be between 9 and 15", windowBits);
+        Preconditions.checkArgument(memLevel >= 1 && memLevel <= 9, "memory level %s must be between 1 and 9", memLevel);
+        this.level = level;
+        this.windowBits = windowBits;
+        this.memLevel = memLevel;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getWindowBits() {
+        return windowBits;
+    }
+
+    public int getMemLevel() {
+        return memLevel;
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        if (o instanceof CompressionSettings) {
+            CompressionSettings that = (CompressionSettings) o;
+            return Objects.equals(this.level, that.level)
+                && Objects.equals(this.windowBits, that.windowBits)
+                && Objects.equals(this.memLevel, that.memLevel);
+        }
+        return false;
+    }
+
+    @Override
+    public final int hashCode() {
+        return Objects.hash(level, windowBits, memLevel);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("level", level)
+            .add("windowBits", windowBits)
+            .add("memLevel", memLevel)
+            .toString();
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.james.imapserver.netty;
 
 import static org.jboss.netty.channel.Channels.pipeline;
 
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLEngine;
@@ -31,6 +32,8 @@ import org.apache.james.imap.api.ImapConstants;
 import org.apache.james.imap.api.process.ImapProcessor;
 import org.apache.james.imap.decode.ImapDecoder;
 import org.apache.james.imap.encode.ImapEncoder;
+import org.apache.james.imapserver.netty4.ImapChannelInboundHandler;
+import org.apache.james.imapserver.netty4.ImapChannelInitializer;
 import org.apache.james.protocols.api.Encryption;
 import org.apache.james.protocols.lib.netty.AbstractConfigurableAsyncServer;
 import org.apache.james.protocols.netty.ChannelGroupHandler;
@@ -54,6 +57,11 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableSet;
 
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.util.concurrent.EventExecutorGroup;
+
 /**
  * NIO IMAP Server which use Netty.
  */
@@ -71,6 +79,7 @@ public class IMAPServer extends AbstractConfigurableAsyncServer implements ImapC
 
     private String hello;
     private boolean compress;
+    private CompressionSettings compressionSettings;
     private int maxLineLength;
     private int inMemorySizeLimit;
     private boolean plainAuthDisallowed;
@@ -96,6 +105,7 @@ public class IMAPServer extends AbstractConfigurableAsyncServer implements ImapC
         
         hello = softwaretype + " Server " + getHelloName() + " is ready.";
         compress = configuration.getBoolean("compress", false);
+        compressionSettings = getCompressionSettings(configuration);
         maxLineLength = configuration.getInt("maxLineLength", DEFAULT_MAX_LINE_LENGTH);
         inMemorySizeLimit = configuration.getInt("inMemorySizeLimit", DEFAULT_IN_MEMORY_SIZE_LIMIT);
         literalSizeLimit = configuration.getInt("literalSizeLimit", DEFAULT_LITERAL_SIZE_LIMIT);
@@ -121,9 +131,21 @@ public class IMAPServer extends AbstractConfigurableAsyncServer implements ImapC
                 .idleTimeInterval(configuration.getLong("idleTimeInterval", ImapConfiguration.DEFAULT_HEARTBEAT_INTERVAL_IN_SECONDS))
                 .idleTimeIntervalUnit(getTimeIntervalUnit(configuration.getString("idleTimeIntervalUnit", DEFAULT_TIME_UNIT)))
                 .disabledCaps(disabledCaps)
+                .fetchPrefetchWindow(configuration.getInt("fetchPrefetchWindow", ImapConfiguration.DEFAULT_FETCH_PREFETCH_WINDOW))
                 .build();
     }
 
+    @VisibleForTesting static CompressionSettings getCompressionSettings(HierarchicalConfiguration configuration) {
+        CompressionSettings defaults = configuration.getBoolean("compressionLowMemory", false)
+            ? CompressionSettings.LOW_MEMORY
+            : CompressionSettings.DEFAULT;
+
+        return new CompressionSettings(
+            configuration.getInt("compressionLevel", defaults.getLevel()),
+            configuration.getInt("compressionWindowBits", defaults.getWindowBits()),
+            configuration.getInt("compressionMemLevel", defaults.getMemLevel()));
+    }
+
     private static TimeUnit getTimeIntervalUnit(String timeIntervalUnit) {
         try {
             return TimeUnit.valueOf(timeIntervalUnit);
@@ -195,6 +217,13 @@ public class IMAPServer extends AbstractConfigurableAsyncServer implements ImapC
         };
     }
 
+    @Override
+    protected ChannelInitializer<SocketChannel> createNetty4ChannelInitializer(io.netty.channel.group.ChannelGroup channels, Optional<EventExecutorGroup> executorGroup) {
+        return new ImapChannelInitializer(channels, executorGroup, Optional.ofNullable(getEncryption()), timeout,
+            connectionLimit, connPerIP, getNetty4ConnectionCountHandler(), createNetty4FrameHandlerFactory(),
+            decoder, inMemorySizeLimit, literalSizeLimit, this::createNetty4CoreHandler);
+    }
+
     @Override
     protected String getDefaultJMXName() {
         return "imapserver";
@@ -205,13 +234,22 @@ public class IMAPServer extends AbstractConfigurableAsyncServer implements ImapC
         ImapChannelUpstreamHandler coreHandler;
         Encryption secure = getEncryption();
         if (secure != null && secure.isStartTLS()) {
-           coreHandler = new ImapChannelUpstreamHandler(hello, processor, encoder, compress, plainAuthDisallowed, secure.getContext(), getEnabledCipherSuites(), imapMetrics);
+           coreHandler = new ImapChannelUpstreamHandler(hello, processor, encoder, compress, compressionSettings, plainAuthDisallowed, secure.getContext(), getEnabledCipherSuites(), imapMetrics);
         } else {
-           coreHandler = new ImapChannelUpstreamHandler(hello, processor, encoder, compress, plainAuthDisallowed, imapMetrics);
+           coreHandler = new ImapChannelUpstreamHandler(hello, processor, encoder, compress, compressionSettings, plainAuthDisallowed, imapMetrics);
         }
         return coreHandler;
     }
 
+    @Override
+    protected ChannelHandler createNetty4CoreHandler() {
+        Encryption secure = getEncryption();
+        if (secure != null && secure.isStartTLS()) {
+            return new ImapChannelInboundHandler(hello, processor, encoder, compress, compressionSettings, plainAuthDisallowed, secure.getContext(), getEnabledCipherSuites(), imapMetrics);
+        }
+        return new ImapChannelInboundHandler(hello, processor, encoder, compress, compressionSettings, plainAuthDisallowed, imapMetrics);
+    }
+
     /**
      * Return null as we don't need this
      */
@@ -224,4 +262,9 @@ public class IMAPServer extends AbstractConfigurableAsyncServer implements ImapC
         return new SwitchableLineBasedFrameDecoderFactory(maxLineLength);
     }
 
+    @Override
+    protected org.apache.james.protocols.netty4.ChannelHandlerFactory createNetty4FrameHandlerFactory() {
+        return new org.apache.james.imapserver.netty4.SwitchableLineBasedFrameDecoderFactory(maxLineLength);
+    }
+
 }
@@ -21,6 +21,7 @@ package org.apache.james.imapserver.netty;
 import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 
@@ -37,6 +38,7 @@ import org.apache.james.metrics.api.Metric;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandler;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelStateEvent;
@@ -61,6 +63,8 @@ public class ImapChannelUpstreamHandler extends SimpleChannelUpstreamHandler imp
 
     private final boolean compress;
 
+    private final CompressionSettings compressionSettings;
+
     private final ImapProcessor processor;
 
     private final ImapEncoder encoder;
@@ -69,24 +73,27 @@ public class ImapChannelUpstreamHandler extends SimpleChannelUpstreamHandler imp
 
     private final boolean plainAuthDisallowed;
 
+    private final ImapMetrics imapMetrics;
     private final Metric imapConnectionsMetric;
     private final Metric imapCommandsMetric;
     
     public ImapChannelUpstreamHandler(String hello, ImapProcessor processor, ImapEncoder encoder, boolean compress,
-                                      boolean plainAuthDisallowed, ImapMetrics imapMetrics) {
-        this(hello, processor, encoder, compress, plainAuthDisallowed, null, null, imapMetrics);
+                                      CompressionSettings compressionSettings, boolean plainAuthDisallowed, ImapMetrics imapMetrics) {
+        this(hello, processor, encoder, compress, compressionSettings, plainAuthDisallowed, null, null, imapMetrics);
     }
 
     public ImapChannelUpstreamHandler(String hello, ImapProcessor processor, ImapEncoder encoder, boolean compress,
-                                      boolean plainAuthDisallowed, SSLContext context, String[] enabledCipherSuites,
-                                      ImapMetrics imapMetrics) {
+                                      CompressionSettings compressionSettings, boolean plainAuthDisallowed, SSLContext context,
+                                      String[] enabledCipherSuites, ImapMetrics imapMetrics) {
         this.hello = hello;
         this.processor = processor;
         this.encoder = encoder;
         this.context = context;
         this.enabledCipherSuites = enabledCipherSuites;
         this.compress = compress;
+        this.compressionSettings = compressionSettings;
         this.plainAuthDisallowed = plainAuthDisallowed;
+        this.imapMetrics = imapMetrics;
         this.imapConnectionsMetric = imapMetrics.getConnectionsMetric();
         this.imapCommandsMetric = imapMetrics.getCommandsMetric();
     }
@@ -94,7 +101,8 @@ public class ImapChannelUpstreamHandler extends SimpleChannelUpstreamHandler imp
     @Override
     public void channelBound(final ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
         try (Closeable closeable = IMAPMDCContext.from(ctx, attributes)) {
-            ImapSession imapsession = new NettyImapSession(ctx.getChannel(), context, enabledCipherSuites, compress, plainAuthDisallowed);
+            ImapSession imapsession = new NettyImapSession(ctx.getChannel(), context, enabledCipherSuites, compress, plainAuthDisallowed,
+                compressionSettings, imapMetrics);
             attributes.set(ctx.getChannel(), imapsession);
             super.channelBound(ctx, e);
         }
@@ -113,11 +121,23 @@ public class ImapChannelUpstreamHandler extends SimpleChannelUpstreamHandler imp
                 imapSession.logout();
             }
             imapConnectionsMetric.decrement();
+            recordCompression(ctx.getPipeline());
 
             super.channelClosed(ctx, e);
         }
     }
 
+    private void recordCompression(ChannelPipeline pipeline) {
+        ChannelHandler zlibEncoder = pipeline.get(ZLIB_ENCODER);
+        if (zlibEncoder instanceof MeteredZlibEncoder) {
+            MeteredZlibEncoder encoder = (MeteredZlibEncoder) zlibEncoder;
+            imapMetrics.getCompressedConnectionsMetric().decrement();
+            LOGGER.debug("Compressed {} bytes into {} (ratio {}) in {} ms",
+                encoder.getUncompressedBytes(), encoder.getCompressedBytes(), encoder.getCompressionRatio(),
+                TimeUnit.NANOSECONDS.toMillis(encoder.getCompressionNanos()));
+        }
+    }
+
     @Override
     public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
         try (Closeable closeable = IMAPMDCContext.from(ctx, attributes)) {
@@ -21,17 +21,30 @@ package org.apache.james.imapserver.netty;
 
 import org.apache.james.metrics.api.Metric;
 import org.apache.james.metrics.api.MetricFactory;
+import org.apache.james.metrics.api.TimeMetric;
 
 public class ImapMetrics {
     private static final String IMAP_COMMANDS = "imapCommands";
     private static final String IMAP_CONNECTIONS = "imapConnections";
+    private static final String IMAP_COMPRESSED_CONNECTIONS = "imapCompressedConnections";
+    private static final String IMAP_COMPRESSION_INPUT_BYTES = "imapCompressionInputBytes";
+    private static final String IMAP_COMPRESSION_OUTPUT_BYTES = "imapCompressionOutputBytes";
+    private static final String IMAP_COMPRESSION_TIME = "imapCompressionTime";
 
+    private final MetricFactory metricFactory;
     private final Metric commandsMetric;
     private final Metric connectionsMetric;
+    private final Metric compressedConnectionsMetric;
+    private final Metric compressionInputBytesMetric;
+    private final Metric compressionOutputBytesMetric;
 
     public ImapMetrics(MetricFactory metricFactory) {
+        this.metricFactory = metricFactory;
         commandsMetric = metricFactory.generate(IMAP_COMMANDS);
         connectionsMetric = metricFactory.generate(IMAP_CONNECTIONS);
+        compressedConnectionsMetric = metricFactory.generate(IMAP_COMPRESSED_CONNECTIONS);
+        compressionInputBytesMetric = metricFactory.generate(IMAP_COMPRESSION_INPUT_BYTES);
+        compressionOutputBytesMetric = metricFactory.generate(IMAP_COMPRESSION_OUTPUT_BYTES);
     }
 
     public Metric getCommandsMetric() {
@@ -41,4 +54,20 @@ public class ImapMetrics {
     public Metric getConnectionsMetric() {
         return connectionsMetric;
     }
+
+    public Metric getCompressedConnectionsMetric() {
+        return compressedConnectionsMetric;
+    }
+
+    public Metric getCompressionInputBytesMetric() {
+        return compressionInputBytesMetric;
+    }
+
+    public Metric getCompressionOutputBytesMetric() {
+        return compressionOutputBytesMetric;
+    }
+
+    public TimeMetric compressionTimer() {
+        return metricFactory.timer(IMAP_COMPRESSION_TIME);
+    }
 }
@@ -20,14 +20,13 @@
 package org.apache.james.imapserver.netty;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.james.imap.api.ImapMessage;
 import org.apache.james.imap.api.ImapSessionState;
 import org.apache.james.imap.api.process.ImapSession;
@@ -40,12 +39,16 @@ import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.handler.codec.frame.FrameDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * {@link FrameDecoder} which will decode via and {@link ImapDecoder} instance
  */
 public class ImapRequestFrameDecoder extends FrameDecoder implements NettyConstants {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImapRequestFrameDecoder.class);
 
     private final ImapDecoder decoder;
     private final int inMemorySizeLimit;
@@ -54,6 +57,7 @@ public class ImapRequestFrameDecoder extends FrameDecoder implements NettyConsta
     private static final String STORED_DATA = "STORED_DATA";
     private static final String WRITTEN_DATA = "WRITTEN_DATA";
     private static final String OUTPUT_STREAM = "OUTPUT_STREAM";
+    private Optional<SharedTemporaryFileInputStream> spilledLiteral = Optional.empty();
 
     public ImapRequestFrameDecoder(ImapDecoder decoder, int inMemorySizeLimit, int literalSizeLimit) {
         this.decoder = decoder;
@@ -67,6 +71,30 @@ public class ImapRequestFrameDecoder extends FrameDecoder implements NettyConsta
         super.channelOpen(ctx, e);
     }
 
+    /**
+     * Decoded requests are processed by the next handlers before this returns. A spilled literal is then no longer
+     * needed: it is discarded, in case some of the streams over it were not closed.
+     */
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+        try {
+            super.messageReceived(ctx, e);
+        } finally {
+            discardSpilledLiteral();
+        }
+    }
+
+    private void discardSpilledLiteral() {
+        spilledLiteral.ifPresent(literal -> {
+            try {
+                literal.discard();
+            } catch (IOException e) {
+                LOGGER.warn("Unable to delete spilled literal", e);
+            }
+        });
+        spilledLiteral = Optional.empty();
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer) throws Exception {
@@ -93,19 +121,19 @@ public class ImapRequestFrameDecoder extends FrameDecoder implements NettyConsta
                     final File f;
                     int written;
 
-                    OutputStream out;
+                    FileChannel out;
                     // check if we have created a temporary file already or if
                     // we need to create a new one
                     if (attachment.containsKey(STORED_DATA)) {
                         f = (File) attachment.get(STORED_DATA);
                         written = (Integer) attachment.get(WRITTEN_DATA);
-                        out = (OutputStream) attachment.get(OUTPUT_STREAM);
+                        out = (FileChannel) attachment.get(OUTPUT_STREAM);
                     } else {
                         f = File.createTempFile("imap-literal", ".tmp");
                         attachment.put(STORED_DATA, f);
                         written = 0;
                         attachment.put(WRITTEN_DATA, written);
-                        out = new FileOutputStream(f, true);
+                        out = FileChannel.open(f.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
                         attachment.put(OUTPUT_STREAM, out);
 
                     }
@@ -113,7 +141,10 @@ public class ImapRequestFrameDecoder extends FrameDecoder implements NettyConsta
 
                     try {
                         int amount = Math.min(buffer.readableBytes(), size - written);
-                        buffer.readBytes(out, amount);
+                        int remaining = amount;
+                        while (remaining > 0) {
+                            remaining -= buffer.readBytes(out, remaining);
+                        }
                         written += amount;
                     } catch (Exception e) {
                         try {
@@ -131,17 +162,11 @@ public class ImapRequestFrameDecoder extends FrameDecoder implements NettyConsta
                             //ignore exception during close
                         }
 
-                        reader = new NettyStreamImapRequestLineReader(channel, new FileInputStream(f) {
-                            /**
-                             * Delete the File on close too
-                             */
-                            @Override
-                            public void close() throws IOException {
-                                super.close();
-                                FileUtils.forceDelete(f);
-                            }
-
-                        }, retry);
+                        // Literals read from the file share it, so that it can be handed to the
+                        // mailbox without being copied again. It is deleted once all of them are closed
+                        SharedTemporaryFileInputStream literal = new SharedTemporaryFileInputStream(f);
+                        spilledLiteral = Optional.of(literal);
+                        reader = new NettyStreamImapRequestLineReader(channel, literal, retry);
                     } else {
                         attachment.put(WRITTEN_DATA, written);
                         return null;
@@ -167,7 +192,14 @@ public class ImapRequestFrameDecoder extends FrameDecoder implements NettyConsta
         if (session != null && session.getState() != ImapSessionState.LOGOUT) {
             try {
 
-                ImapMessage message = decoder.decode(reader, session);
+                ImapMessage message;
+                try {
+                    message = decoder.decode(reader, session);
+                } finally {
+                    if (reader instanceof NettyStreamImapRequestLineReader) {
+                        ((NettyStreamImapRequestLineReader) reader).dispose();
+                    }
+                }
 
                 // if size is != -1 the case was a literal. if thats the case we
                 // should not consume the line
@@ -0,0 +1,92 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.imapserver.netty;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.james.metrics.api.TimeMetric;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.handler.codec.compression.ZlibEncoder;
+import org.jboss.netty.handler.codec.compression.ZlibWrapper;
+
+/**
+ * {@link ZlibEncoder} which records how many bytes went in and out, and how
+ * long was spent compressing them, both for the connection and in the
+ * {@link ImapMetrics}.
+ */
+public class MeteredZlibEncoder extends ZlibEncoder {
+    private final ImapMetrics imapMetrics;
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong compressionNanos = new AtomicLong();
+
+    public MeteredZlibEncoder(CompressionSettings settings, ImapMetrics imapMetrics) {
+        super(ZlibWrapper.NONE, settings.getLevel(), settings.getWindowBits(), settings.getMemLevel());
+        this.imapMetrics = imapMetrics;
+    }
+
+    @Override
+    protected Object encode(ChannelHandlerContext ctx, Channel channel, Object msg) throws Exception {
+        if (!(msg instanceof ChannelBuffer)) {
+            return super.encode(ctx, channel, msg);
+        }
+        int inputSize = ((ChannelBuffer) msg).readableBytes();
+        long start = System.nanoTime();
+        TimeMetric timeMetric = imapMetrics.compressionTimer();
+        Object result;
+        try {
+            result = super.encode(ctx, channel, msg);
+        } finally {
+            timeMetric.stopAndPublish();
+            compressionNanos.addAndGet(System.nanoTime() - start);
+        }
+        int outputSize = result instanceof ChannelBuffer ? ((ChannelBuffer) result).readableBytes() : 0;
+        uncompressedBytes.addAndGet(inputSize);
+        compressedBytes.addAndGet(outputSize);
+        imapMetrics.getCompressionInputBytesMetric().add(inputSize);
+        imapMetrics.getCompressionOutputBytesMetric().add(outputSize);
+        return result;
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    public long getCompressionNanos() {
+        return compressionNanos.get();
+    }
+
+    /**
+     * @return compressed size over uncompressed size, or 1 if nothing was written yet
+     */
+    public double getCompressionRatio() {
+        long uncompressed = uncompressedBytes.get();
+        if (uncompressed == 0) {
+            return 1;
+        }
+        return (double) compressedBytes.get() / uncompressed;
+    }
+}
@@ -29,7 +29,6 @@ import org.apache.james.imap.api.process.ImapSession;
 import org.apache.james.imap.api.process.SelectedMailbox;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.handler.codec.compression.ZlibDecoder;
-import org.jboss.netty.handler.codec.compression.ZlibEncoder;
 import org.jboss.netty.handler.codec.compression.ZlibWrapper;
 import org.jboss.netty.handler.ssl.SslHandler;
 
@@ -40,15 +39,20 @@ public class NettyImapSession implements ImapSession, NettyConstants {
     private final SSLContext sslContext;
     private final String[] enabledCipherSuites;
     private final boolean compress;
+    private final CompressionSettings compressionSettings;
+    private final ImapMetrics imapMetrics;
     private final Channel channel;
     private int handlerCount;
     private final boolean plainAuthDisallowed;
 
-    public NettyImapSession(Channel channel, SSLContext sslContext, String[] enabledCipherSuites, boolean compress, boolean plainAuthDisallowed) {
+    public NettyImapSession(Channel channel, SSLContext sslContext, String[] enabledCipherSuites, boolean compress, boolean plainAuthDisallowed,
+                            CompressionSettings compressionSettings, ImapMetrics imapMetrics) {
         this.channel = channel;
         this.sslContext = sslContext;
         this.enabledCipherSuites = enabledCipherSuites;
         this.compress = compress;
+        this.compressionSettings = compressionSettings;
+        this.imapMetrics = imapMetrics;
         this.plainAuthDisallowed = plainAuthDisallowed;
     }
 
@@ -154,7 +158,7 @@ public class NettyImapSession implements ImapSession, NettyConstants {
 
         channel.setReadable(false);
         ZlibDecoder decoder = new ZlibDecoder(ZlibWrapper.NONE);
-        ZlibEncoder encoder = new ZlibEncoder(ZlibWrapper.NONE, 5);
+        MeteredZlibEncoder encoder = new MeteredZlibEncoder(compressionSettings, imapMetrics);
 
         // Check if we have the SslHandler in the pipeline already
         // if so we need to move the compress encoder and decoder
@@ -168,6 +172,7 @@ public class NettyImapSession implements ImapSession, NettyConstants {
             channel.getPipeline().addAfter(SSL_HANDLER, ZLIB_ENCODER, encoder);
         }
 
+        imapMetrics.getCompressedConnectionsMetric().increment();
         channel.setReadable(true);
 
         return true;
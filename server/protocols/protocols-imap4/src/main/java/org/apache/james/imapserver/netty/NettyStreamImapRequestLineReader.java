@@ -21,6 +21,8 @@ package org.apache.james.imapserver.netty;
 import java.io.IOException;
 import java.io.InputStream;
 
+import javax.mail.internet.SharedInputStream;
+
 import org.apache.james.imap.api.display.HumanReadableText;
 import org.apache.james.protocols.imap.DecodingException;
 import org.apache.james.protocols.imap.utils.EolInputStream;
@@ -86,6 +88,9 @@ public class NettyStreamImapRequestLineReader extends AbstractNettyImapRequestLi
         // Unset the next char.
         nextSeen = false;
         nextChar = 0;
+        if (in instanceof SharedInputStream) {
+            return readShared((SharedInputStream) in, size, extraCRLF);
+        }
         FixedLengthInputStream fin = new FixedLengthInputStream(this.in, size);
         if (extraCRLF) {
             return new EolInputStream(this, fin);
@@ -95,6 +100,43 @@ public class NettyStreamImapRequestLineReader extends AbstractNettyImapRequestLi
         
     }
 
+    /**
+     * The whole request is already stored, so the literal can be shared as is instead of being streamed. The
+     * end of line is checked right away rather than once the literal has been read.
+     */
+    private InputStream readShared(SharedInputStream shared, int size, boolean extraCRLF) throws DecodingException {
+        long start = shared.getPosition();
+        InputStream literal = shared.newStream(start, start + size);
+        try {
+            long remaining = size;
+            while (remaining > 0) {
+                long skipped = in.skip(remaining);
+                if (skipped <= 0) {
+                    throw new DecodingException(HumanReadableText.ILLEGAL_ARGUMENTS, "Unexpected end of stream.");
+                }
+                remaining -= skipped;
+            }
+            if (extraCRLF) {
+                eol();
+            }
+            return literal;
+        } catch (IOException e) {
+            closeQuietly(literal);
+            if (e instanceof DecodingException) {
+                throw (DecodingException) e;
+            }
+            throw new DecodingException(HumanReadableText.SOCKET_IO_FAILURE, "Error reading from stream.", e);
+        }
+    }
+
+    private void closeQuietly(InputStream literal) {
+        try {
+            literal.close();
+        } catch (IOException ignored) {
+            //ignore exception during close
+        }
+    }
+
     public void dispose() throws IOException {
         in.close();
     }
@@ -56,4 +56,11 @@ public class OioIMAPServer extends IMAPServer {
         return null;
     }
 
+    /**
+     * Old IO sockets are only available with Netty 3
+     */
+    @Override
+    protected boolean isNetty4Supported() {
+        return false;
+    }
 }
@@ -0,0 +1,246 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.imapserver.netty;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.mail.internet.SharedInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link SharedInputStream} over a temporary file. All the streams created by
+ * {@link #newStream(long, long)} read the same {@link FileChannel}, and the file
+ * is deleted once the last of them is closed.
+ *
+ * This lets a spilled literal be handed to the mailbox as is, without copying
+ * it to yet another file. {@link #discard()} deletes the file even if some
+ * streams were left open, so that a missed close can not leak it.
+ */
+public class SharedTemporaryFileInputStream extends InputStream implements SharedInputStream {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedTemporaryFileInputStream.class);
+    private static final int BUFFER_SIZE = 8192;
+
+    private static class SharedFile {
+        private final File file;
+        private final FileChannel channel;
+        private final AtomicInteger references = new AtomicInteger(1);
+        private final AtomicBoolean deleted = new AtomicBoolean(false);
+
+        private SharedFile(File file) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+
+        private void retain() {
+            references.incrementAndGet();
+        }
+
+        private void release() throws IOException {
+            if (references.decrementAndGet() == 0) {
+                delete();
+            }
+        }
+
+        private void discard() throws IOException {
+            int openStreams = references.get();
+            if (openStreams > 0 && !deleted.get()) {
+                LOGGER.warn("{} streams over {} were not closed, deleting it anyway", openStreams, file);
+            }
+            delete();
+        }
+
+        private void delete() throws IOException {
+            if (deleted.compareAndSet(false, true)) {
+                try {
+                    channel.close();
+                } finally {
+                    FileUtils.forceDelete(file);
+                }
+            }
+        }
+    }
+
+    private final SharedFile sharedFile;
+    private final long start;
+    private final long end;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPosition;
+    private int bufferLength;
+    private long fileOffset;
+    private long markedPosition;
+    private boolean closed;
+
+    public SharedTemporaryFileInputStream(File file) throws IOException {
+        this(new SharedFile(file), 0, file.length());
+    }
+
+    private SharedTemporaryFileInputStream(SharedFile sharedFile, long start, long end) {
+        this.sharedFile = sharedFile;
+        this.start = start;
+        this.end = end;
+        this.fileOffset = start;
+        this.markedPosition = start;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureBuffered()) {
+            return -1;
+        }
+        return buffer[bufferPosition++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureBuffered()) {
+            return -1;
+        }
+        int amount = Math.min(len, bufferLength - bufferPosition);
+        System.arraycopy(buffer, bufferPosition, b, off, amount);
+        bufferPosition += amount;
+        return amount;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        ensureOpen();
+        if (n <= 0) {
+            return 0;
+        }
+        long current = absolutePosition();
+        long target = Math.min(end, current + n);
+        seek(target);
+        return target - current;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        return (int) Math.min(Integer.MAX_VALUE, end - absolutePosition());
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        markedPosition = absolutePosition();
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        ensureOpen();
+        seek(markedPosition);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            sharedFile.release();
+        }
+    }
+
+    /**
+     * Closes and deletes the file, even if streams created by {@link #newStream(long, long)} are still open: they
+     * fail upon their next read.
+     */
+    public void discard() throws IOException {
+        closed = true;
+        sharedFile.discard();
+    }
+
+    @Override
+    public long getPosition() {
+        return absolutePosition() - start;
+    }
+
+    @Override
+    public InputStream newStream(long start, long end) {
+        Preconditions.checkState(!closed, "Stream is closed");
+        long newStart = this.start + start;
+        long newEnd = end == -1 ? this.end : this.start + end;
+        Preconditions.checkArgument(start >= 0 && newStart <= newEnd && newEnd <= this.end,
+            "Invalid range [%s, %s] for a stream of %s bytes", start, end, this.end - this.start);
+        sharedFile.retain();
+        return new SharedTemporaryFileInputStream(sharedFile, newStart, newEnd);
+    }
+
+    private long absolutePosition() {
+        return fileOffset - bufferLength + bufferPosition;
+    }
+
+    private void seek(long position) {
+        long bufferStart = fileOffset - bufferLength;
+        if (position >= bufferStart && position <= fileOffset) {
+            bufferPosition = (int) (position - bufferStart);
+        } else {
+            fileOffset = position;
+            bufferPosition = 0;
+            bufferLength = 0;
+        }
+    }
+
+    private boolean ensureBuffered() throws IOException {
+        ensureOpen();
+        if (bufferPosition < bufferLength) {
+            return true;
+        }
+        int toRead = (int) Math.min(buffer.length, end - fileOffset);
+        if (toRead <= 0) {
+            return false;
+        }
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, toRead);
+        int read = 0;
+        while (read == 0) {
+            read = sharedFile.channel.read(byteBuffer, fileOffset);
+        }
+        if (read < 0) {
+            return false;
+        }
+        fileOffset += read;
+        bufferPosition = 0;
+        bufferLength = read;
+        return true;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed");
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.imapserver.netty4;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.james.imap.api.ImapConstants;
+import org.apache.james.imap.api.ImapMessage;
+import org.apache.james.imap.api.ImapSessionState;
+import org.apache.james.imap.api.process.ImapProcessor;
+import org.apache.james.imap.api.process.ImapSession;
+import org.apache.james.imap.encode.ImapEncoder;
+import org.apache.james.imap.encode.ImapResponseComposer;
+import org.apache.james.imap.encode.base.ImapResponseComposerImpl;
+import org.apache.james.imap.main.ResponseEncoder;
+import org.apache.james.imapserver.netty.CompressionSettings;
+import org.apache.james.imapserver.netty.ImapMetrics;
+import org.apache.james.metrics.api.Metric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.TooLongFrameException;
+
+/**
+ * {@link SimpleChannelInboundHandler} which handles IMAP, the Netty 4 counterpart of
+ * {@link org.apache.james.imapserver.netty.ImapChannelUpstreamHandler}
+ */
+public class ImapChannelInboundHandler extends SimpleChannelInboundHandler<ImapMessage> implements NettyConstants {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImapChannelInboundHandler.class);
+
+    private final String hello;
+
+    private final String[] enabledCipherSuites;
+
+    private final SSLContext context;
+
+    private final boolean compress;
+
+    private final CompressionSettings compressionSettings;
+
+    private final ImapProcessor processor;
+
+    private final ImapEncoder encoder;
+
+    private final ImapHeartbeatHandler heartbeatHandler = new ImapHeartbeatHandler();
+
+    private final boolean plainAuthDisallowed;
+
+    private final ImapMetrics imapMetrics;
+    private final Metric imapConnectionsMetric;
+    private final Metric imapCommandsMetric;
+
+    public ImapChannelInboundHandler(String hello, ImapProcessor processor, ImapEncoder encoder, boolean compress,
+                                     CompressionSettings compressionSettings, boolean plainAuthDisallowed, ImapMetrics imapMetrics) {
+        this(hello, processor, encoder, compress, compressionSettings, plainAuthDisallowed, null, null, imapMetrics);
+    }
+
+    public ImapChannelInboundHandler(String hello, ImapProcessor processor, ImapEncoder encoder, boolean compress,
+                                     CompressionSettings compressionSettings, boolean plainAuthDisallowed, SSLContext context,
+                                     String[] enabledCipherSuites, ImapMetrics imapMetrics) {
+        this.hello = hello;
+        this.processor = processor;
+        this.encoder = encoder;
+        this.context = context;
+        this.enabledCipherSuites = enabledCipherSuites;
+        this.compress = compress;
+        this.compressionSettings = compressionSettings;
+        this.plainAuthDisallowed = plainAuthDisallowed;
+        this.imapMetrics = imapMetrics;
+        this.imapConnectionsMetric = imapMetrics.getConnectionsMetric();
+        this.imapCommandsMetric = imapMetrics.getCommandsMetric();
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        ImapSession imapsession = new NettyImapSession(ctx.channel(), context, enabledCipherSuites, compress, plainAuthDisallowed,
+            compressionSettings, imapMetrics);
+        ctx.channel().attr(SESSION).set(imapsession);
+
+        try (Closeable closeable = IMAPMDCContext.from(ctx)) {
+            InetSocketAddress address = (InetSocketAddress) ctx.channel().remoteAddress();
+            LOGGER.info("Connection established from {}", address.getAddress().getHostAddress());
+            imapConnectionsMetric.increment();
+
+            ImapResponseComposer response = new ImapResponseComposerImpl(new ChannelImapResponseWriter(ctx.channel()));
+            ctx.channel().attr(RESPONSE_COMPOSER).set(response);
+
+            // write hello to client
+            response.untagged().message("OK").message(hello).end();
+            super.channelActive(ctx);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        try (Closeable closeable = IMAPMDCContext.from(ctx)) {
+            InetSocketAddress address = (InetSocketAddress) ctx.channel().remoteAddress();
+            LOGGER.info("Connection closed for {}", address.getAddress().getHostAddress());
+
+            // remove the stored attribute for the channel to free up resources
+            // See JAMES-1195
+            ImapSession imapSession = ctx.channel().attr(SESSION).getAndSet(null);
+            if (imapSession != null) {
+                imapSession.logout();
+            }
+            imapConnectionsMetric.decrement();
+            recordCompression(ctx.pipeline());
+
+            super.channelInactive(ctx);
+        }
+    }
+
+    private void recordCompression(ChannelPipeline pipeline) {
+        ChannelHandler zlibEncoder = pipeline.get(ZLIB_ENCODER);
+        if (zlibEncoder instanceof MeteredZlibEncoder) {
+            MeteredZlibEncoder encoder = (MeteredZlibEncoder) zlibEncoder;
+            imapMetrics.getCompressedConnectionsMetric().decrement();
+            LOGGER.debug("Compressed {} bytes into {} (ratio {}) in {} ms",
+                encoder.getUncompressedBytes(), encoder.getCompressedBytes(), encoder.getCompressionRatio(),
+                TimeUnit.NANOSECONDS.toMillis(encoder.getCompressionNanos()));
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        try (Closeable closeable = IMAPMDCContext.from(ctx)) {
+            LOGGER.warn("Error while processing imap request", cause);
+
+            if (cause instanceof TooLongFrameException) {
+
+                // Max line length exceeded
+                // See RFC 2683 section 3.2.1
+                //
+                // "For its part, a server should allow for a command line of at
+                // least 8000 octets. This provides plenty of leeway for accepting
+                // reasonable length commands from clients. The server should send a
+                // BAD response to a command that does not end within the server's
+                // maximum accepted command length."
+                //
+                // See also JAMES-1190
+                ImapResponseComposer composer = ctx.channel().attr(RESPONSE_COMPOSER).get();
+                composer.untaggedResponse(ImapConstants.BAD + " failed. Maximum command line length exceeded");
+
+            } else {
+
+                // logout on error not sure if that is the best way to handle it
+                ImapSession imapSession = ctx.channel().attr(SESSION).get();
+                if (imapSession != null) {
+                    imapSession.logout();
+                }
+
+                // Make sure we close the channel after all the buffers were flushed out
+                Channel channel = ctx.channel();
+                if (channel.isActive()) {
+                    channel.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+                }
+
+            }
+        }
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ImapMessage message) throws Exception {
+        try (Closeable closeable = IMAPMDCContext.from(ctx)) {
+            imapCommandsMetric.increment();
+            ImapSession session = ctx.channel().attr(SESSION).get();
+            ImapResponseComposer response = ctx.channel().attr(RESPONSE_COMPOSER).get();
+            ChannelPipeline cp = ctx.pipeline();
+
+            try {
+                cp.addBefore(REQUEST_DECODER, HEARTBEAT_HANDLER, heartbeatHandler);
+                final ResponseEncoder responseEncoder = new ResponseEncoder(encoder, response, session);
+                processor.process(message, responseEncoder, session);
+
+                if (session.getState() == ImapSessionState.LOGOUT) {
+                    // Make sure we close the channel after all the buffers were flushed out
+                    Channel channel = ctx.channel();
+                    if (channel.isActive()) {
+                        channel.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+                    }
+                }
+                final IOException failure = responseEncoder.getFailure();
+
+                if (failure != null) {
+                    LOGGER.info(failure.getMessage());
+                    LOGGER.debug("Failed to write {}", message, failure);
+                    throw failure;
+                }
+            } finally {
+                cp.remove(HEARTBEAT_HANDLER);
+            }
+        }
+    }
+
+}
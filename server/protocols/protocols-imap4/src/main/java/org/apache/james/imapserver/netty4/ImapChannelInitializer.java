@@ -0,0 +1,121 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.imapserver.netty4;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.net.ssl.SSLEngine;
+
+import org.apache.james.imap.decode.ImapDecoder;
+import org.apache.james.protocols.api.Encryption;
+import org.apache.james.protocols.netty4.ChannelHandlerFactory;
+import org.apache.james.protocols.netty4.ConnectionLimitHandler;
+import org.apache.james.protocols.netty4.ConnectionPerIpLimitHandler;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+/**
+ * Build the IMAP {@link ChannelPipeline} of each accepted connection, the Netty 4 counterpart of the pipeline
+ * built by {@link org.apache.james.imapserver.netty.IMAPServer}.
+ *
+ * The request decoder and the core handler share the executor of the connection, so that requests are processed
+ * as soon as decoded, while the literals they refer to are still available.
+ */
+public class ImapChannelInitializer extends ChannelInitializer<SocketChannel> implements NettyConstants {
+
+    private final ChannelGroup channels;
+    private final Optional<EventExecutorGroup> executorGroup;
+    private final Optional<Encryption> secure;
+    private final int timeout;
+    private final ConnectionLimitHandler connectionLimitHandler;
+    private final ConnectionPerIpLimitHandler connectionPerIpLimitHandler;
+    private final ChannelHandler connectionCountHandler;
+    private final ChannelHandlerFactory frameHandlerFactory;
+    private final ImapDecoder decoder;
+    private final int inMemorySizeLimit;
+    private final int literalSizeLimit;
+    private final Supplier<ChannelHandler> coreHandlerFactory;
+    private final ImapIdleStateHandler idleStateHandler = new ImapIdleStateHandler();
+
+    public ImapChannelInitializer(ChannelGroup channels, Optional<EventExecutorGroup> executorGroup, Optional<Encryption> secure,
+                                  int timeout, int maxConnections, int maxConnectionsPerIp, ChannelHandler connectionCountHandler,
+                                  ChannelHandlerFactory frameHandlerFactory, ImapDecoder decoder, int inMemorySizeLimit,
+                                  int literalSizeLimit, Supplier<ChannelHandler> coreHandlerFactory) {
+        this.channels = channels;
+        this.executorGroup = executorGroup;
+        this.secure = secure;
+        this.timeout = timeout;
+        this.connectionLimitHandler = new ConnectionLimitHandler(maxConnections);
+        this.connectionPerIpLimitHandler = new ConnectionPerIpLimitHandler(maxConnectionsPerIp);
+        this.connectionCountHandler = connectionCountHandler;
+        this.frameHandlerFactory = frameHandlerFactory;
+        this.decoder = decoder;
+        this.inMemorySizeLimit = inMemorySizeLimit;
+        this.literalSizeLimit = literalSizeLimit;
+        this.coreHandlerFactory = coreHandlerFactory;
+    }
+
+    @Override
+    protected void initChannel(SocketChannel channel) {
+        // Closed channels leave the group on their own
+        channels.add(channel);
+
+        ChannelPipeline pipeline = channel.pipeline();
+        if (isSSLSocket()) {
+            pipeline.addLast(SSL_HANDLER, new SslHandler(createSSLEngine(secure.get())));
+        }
+        pipeline.addLast(IDLE_HANDLER, new IdleStateHandler(0, 0, timeout, TimeUnit.SECONDS));
+        pipeline.addLast(TIMEOUT_HANDLER, idleStateHandler);
+        pipeline.addLast(CONNECTION_LIMIT_HANDLER, connectionLimitHandler);
+        pipeline.addLast(CONNECTION_LIMIT_PER_IP_HANDLER, connectionPerIpLimitHandler);
+
+        // Add the text line decoder which limit the max line length,
+        // don't strip the delimiter and use CRLF as delimiter
+        // Use a SwitchableLineBasedFrameDecoder, see JAMES-1436
+        pipeline.addLast(FRAMER, frameHandlerFactory.create(pipeline));
+        pipeline.addLast(CONNECTION_COUNT_HANDLER, connectionCountHandler);
+        pipeline.addLast(CHUNK_WRITE_HANDLER, new ChunkedWriteHandler());
+
+        EventExecutorGroup group = executorGroup.orElse(null);
+        pipeline.addLast(group, REQUEST_DECODER, new ImapRequestFrameDecoder(decoder, inMemorySizeLimit, literalSizeLimit));
+        pipeline.addLast(group, CORE_HANDLER, coreHandlerFactory.get());
+    }
+
+    private boolean isSSLSocket() {
+        return secure.map(encryption -> !encryption.isStartTLS()).orElse(false);
+    }
+
+    private SSLEngine createSSLEngine(Encryption encryption) {
+        // We need to set clientMode to false.
+        // See https://issues.apache.org/jira/browse/JAMES-1025
+        SSLEngine engine = encryption.getContext().createSSLEngine();
+        engine.setUseClientMode(false);
+        return engine;
+    }
+}
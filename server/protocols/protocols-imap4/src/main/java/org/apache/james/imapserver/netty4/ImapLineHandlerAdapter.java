@@ -16,30 +16,35 @@
  * specific language governing permissions and limitations      *
  * under the License.                                           *
  ****************************************************************/
-package org.apache.james.mailbox.store.search.comparator;
-
-import java.util.Comparator;
-
-import org.apache.james.mailbox.store.mail.model.MailboxMessage;
-import org.apache.james.mailbox.store.search.SearchUtil;
-
-public class HeaderMailboxComparator extends AbstractHeaderComparator {
-    public static final Comparator<MailboxMessage> FROM_COMPARATOR = new HeaderMailboxComparator(FROM);
-    public static final Comparator<MailboxMessage> TO_COMPARATOR = new HeaderMailboxComparator(TO);
-    public static final Comparator<MailboxMessage> CC_COMPARATOR = new HeaderMailboxComparator(CC);
-
-    private final String headerName;
-
-    public HeaderMailboxComparator(String headerName) {
-        this.headerName = headerName;
+package org.apache.james.imapserver.netty4;
+
+import org.apache.james.imap.api.process.ImapLineHandler;
+import org.apache.james.imap.api.process.ImapSession;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+/**
+ * {@link SimpleChannelInboundHandler} implementation which will delegate the
+ * data received on
+ * {@link #channelRead0(ChannelHandlerContext, ByteBuf)} to a
+ * {@link ImapLineHandler#onLine(ImapSession, byte[])}
+ */
+public class ImapLineHandlerAdapter extends SimpleChannelInboundHandler<ByteBuf> {
+
+    private final ImapLineHandler lineHandler;
+    private final ImapSession session;
+
+    public ImapLineHandlerAdapter(ImapSession session, ImapLineHandler lineHandler) {
+        this.lineHandler = lineHandler;
+        this.session = session;
     }
 
     @Override
-    public int compare(MailboxMessage o1, MailboxMessage o2) {
-        String mailbox1 = SearchUtil.getMailboxAddress(getHeaderValue(headerName, o1));
-        String mailbox2 = SearchUtil.getMailboxAddress(getHeaderValue(headerName, o2));
-
-        return mailbox1.compareToIgnoreCase(mailbox2);
+    protected void channelRead0(ChannelHandlerContext ctx, ByteBuf buf) throws Exception {
+        lineHandler.onLine(session, ByteBufUtil.getBytes(buf));
     }
-}
 
+}
@@ -0,0 +1,237 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.imapserver.netty4;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.james.imap.api.ImapMessage;
+import org.apache.james.imap.api.ImapSessionState;
+import org.apache.james.imap.api.process.ImapSession;
+import org.apache.james.imap.decode.ImapDecoder;
+import org.apache.james.imap.decode.ImapRequestLineReader;
+import org.apache.james.imapserver.netty.SharedTemporaryFileInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+
+/**
+ * {@link ByteToMessageDecoder} which will decode via and {@link ImapDecoder} instance
+ *
+ * It runs on the same executor than the core handler, so that decoded requests are processed before
+ * {@link #channelRead(ChannelHandlerContext, Object)} returns, while the literals they hold can still be read.
+ */
+public class ImapRequestFrameDecoder extends ByteToMessageDecoder implements NettyConstants {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImapRequestFrameDecoder.class);
+
+    private final ImapDecoder decoder;
+    private final int inMemorySizeLimit;
+    private final int literalSizeLimit;
+    private boolean retry;
+    private int neededData;
+    private File storedData;
+    private int writtenData;
+    private FileChannel outputChannel;
+    private Optional<SharedTemporaryFileInputStream> spilledLiteral = Optional.empty();
+
+    public ImapRequestFrameDecoder(ImapDecoder decoder, int inMemorySizeLimit, int literalSizeLimit) {
+        this.decoder = decoder;
+        this.inMemorySizeLimit = inMemorySizeLimit;
+        this.literalSizeLimit = literalSizeLimit;
+    }
+
+    /**
+     * Decoded requests are processed by the next handlers before this returns. A spilled literal is then no longer
+     * needed: it is discarded, in case some of the streams over it were not closed.
+     */
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        try {
+            super.channelRead(ctx, msg);
+        } finally {
+            discardSpilledLiteral();
+        }
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        // The connection was closed while a literal was being stored
+        if (outputChannel != null) {
+            closeQuietly(outputChannel);
+            if (!storedData.delete()) {
+                LOGGER.warn("Unable to delete partially stored literal {}", storedData);
+            }
+        }
+        reset();
+        super.handlerRemoved0(ctx);
+    }
+
+    private void discardSpilledLiteral() {
+        spilledLiteral.ifPresent(literal -> {
+            try {
+                literal.discard();
+            } catch (IOException e) {
+                LOGGER.warn("Unable to delete spilled literal", e);
+            }
+        });
+        spilledLiteral = Optional.empty();
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf buffer, List<Object> out) throws Exception {
+        Channel channel = ctx.channel();
+        buffer.markReaderIndex();
+
+        ImapRequestLineReader reader;
+        // check if we failed before and if we already know how much data we
+        // need to sucess next run
+        int size = -1;
+        if (retry) {
+            size = neededData;
+            // now see if the buffer hold enough data to process.
+            if (size != NettyImapRequestLineReader.NotEnoughDataException.UNKNOWN_SIZE && size > buffer.readableBytes()) {
+
+                // check if we have a inMemorySize limit and if so if the
+                // expected size will fit into it
+                if (inMemorySizeLimit > 0 && inMemorySizeLimit < size) {
+
+                    // ok seems like it will not fit in the memory limit so we
+                    // need to store it in a temporary file
+                    // check if we have created a temporary file already or if
+                    // we need to create a new one
+                    if (storedData == null) {
+                        storedData = File.createTempFile("imap-literal", ".tmp");
+                        writtenData = 0;
+                        outputChannel = FileChannel.open(storedData.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                    }
+
+                    try {
+                        int amount = Math.min(buffer.readableBytes(), size - writtenData);
+                        int remaining = amount;
+                        while (remaining > 0) {
+                            remaining -= buffer.readBytes(outputChannel, remaining);
+                        }
+                        writtenData += amount;
+                    } catch (Exception e) {
+                        closeQuietly(outputChannel);
+                        throw e;
+                    }
+                    // Check if all needed data was streamed to the file.
+                    if (writtenData == size) {
+                        closeQuietly(outputChannel);
+                        outputChannel = null;
+
+                        // Literals read from the file share it, so that it can be handed to the
+                        // mailbox without being copied again. It is deleted once all of them are closed
+                        SharedTemporaryFileInputStream literal = new SharedTemporaryFileInputStream(storedData);
+                        spilledLiteral = Optional.of(literal);
+                        reader = new NettyStreamImapRequestLineReader(channel, literal, retry);
+                    } else {
+                        return;
+                    }
+
+                } else {
+                    buffer.resetReaderIndex();
+                    return;
+                }
+
+            } else {
+
+                reader = new NettyImapRequestLineReader(channel, buffer, retry, literalSizeLimit);
+            }
+        } else {
+            reader = new NettyImapRequestLineReader(channel, buffer, retry, literalSizeLimit);
+        }
+
+        ImapSession session = channel.attr(SESSION).get();
+
+        // check if the session was removed before to prevent a harmless NPE. See JAMES-1312
+        // Also check if the session was logged out if so there is not need to try to decode it. See JAMES-1341
+        if (session != null && session.getState() != ImapSessionState.LOGOUT) {
+            try {
+
+                ImapMessage message;
+                try {
+                    message = decoder.decode(reader, session);
+                } finally {
+                    if (reader instanceof NettyStreamImapRequestLineReader) {
+                        ((NettyStreamImapRequestLineReader) reader).dispose();
+                    }
+                }
+
+                // if size is != -1 the case was a literal. if thats the case we
+                // should not consume the line
+                // See JAMES-1199
+                if (size == -1) {
+                    reader.consumeLine();
+                }
+
+                ((SwitchableLineBasedFrameDecoder) ctx.pipeline().get(FRAMER)).enableFraming();
+
+                reset();
+                out.add(message);
+            } catch (NettyImapRequestLineReader.NotEnoughDataException e) {
+                // this exception was thrown because we don't have enough data
+                // yet
+                // store the needed data size for later usage
+                retry = true;
+                neededData = e.getNeededSize();
+
+                // Let the framer pass the literal as it comes, see JAMES-1436
+                ((SwitchableLineBasedFrameDecoder) ctx.pipeline().get(FRAMER)).disableFraming();
+
+                buffer.resetReaderIndex();
+            }
+        } else {
+            // The session was null so may be the case because the channel was already closed but there were still bytes in the buffer.
+            // We now try to disconnect the client if still connected
+            if (channel.isActive()) {
+                channel.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+            }
+            buffer.skipBytes(buffer.readableBytes());
+        }
+    }
+
+    private void reset() {
+        retry = false;
+        neededData = 0;
+        storedData = null;
+        writtenData = 0;
+        outputChannel = null;
+    }
+
+    private void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            //ignore exception during close
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.imapserver.netty4;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.james.imapserver.netty.CompressionSettings;
+import org.apache.james.imapserver.netty.ImapMetrics;
+import org.apache.james.metrics.api.TimeMetric;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.compression.JZlibEncoder;
+import io.netty.handler.codec.compression.ZlibWrapper;
+
+/**
+ * {@link JZlibEncoder} which records how many bytes went in and out, and how
+ * long was spent compressing them, both for the connection and in the
+ * {@link ImapMetrics}.
+ *
+ * JZlib is used, as the JDK based encoder does not allow to tune the window size and the memory level.
+ */
+public class MeteredZlibEncoder extends JZlibEncoder {
+    private final ImapMetrics imapMetrics;
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong compressionNanos = new AtomicLong();
+
+    public MeteredZlibEncoder(CompressionSettings settings, ImapMetrics imapMetrics) {
+        super(ZlibWrapper.NONE, settings.getLevel(), settings.getWindowBits(), settings.getMemLevel());
+        this.imapMetrics = imapMetrics;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf in, ByteBuf out) throws Exception {
+        int inputSize = in.readableBytes();
+        int outputStart = out.writerIndex();
+        long start = System.nanoTime();
+        TimeMetric timeMetric = imapMetrics.compressionTimer();
+        try {
+            super.encode(ctx, in, out);
+        } finally {
+            timeMetric.stopAndPublish();
+            compressionNanos.addAndGet(System.nanoTime() - start);
+        }
+        int outputSize = out.writerIndex() - outputStart;
+        uncompressedBytes.addAndGet(inputSize);
+        compressedBytes.addAndGet(outputSize);
+        imapMetrics.getCompressionInputBytesMetric().add(inputSize);
+        imapMetrics.getCompressionOutputBytesMetric().add(outputSize);
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    public long getCompressionNanos() {
+        return compressionNanos.get();
+    }
+
+    /**
+     * @return compressed size over uncompressed size, or 1 if nothing was written yet
+     */
+    public double getCompressionRatio() {
+        long uncompressed = uncompressedBytes.get();
+        if (uncompressed == 0) {
+            return 1;
+        }
+        return (double) compressedBytes.get() / uncompressed;
+    }
+}
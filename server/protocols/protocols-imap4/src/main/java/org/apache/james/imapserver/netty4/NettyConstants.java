@@ -0,0 +1,46 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.imapserver.netty4;
+
+import org.apache.james.imap.api.process.ImapSession;
+import org.apache.james.imap.encode.ImapResponseComposer;
+
+import io.netty.util.AttributeKey;
+
+/**
+ * Just some constants which are used with the Netty 4 implementation
+ */
+public interface NettyConstants {
+    String ZLIB_DECODER = "zlibDecoder";
+    String ZLIB_ENCODER = "zlibEncoder";
+    String SSL_HANDLER = "sslHandler";
+    String REQUEST_DECODER = "requestDecoder";
+    String FRAMER = "framer";
+    String IDLE_HANDLER = "idleHandler";
+    String TIMEOUT_HANDLER = "timeoutHandler";
+    String CORE_HANDLER = "coreHandler";
+    String CONNECTION_LIMIT_HANDLER = "connectionLimitHandler";
+    String CONNECTION_LIMIT_PER_IP_HANDLER = "connectionPerIpLimitHandler";
+    String CONNECTION_COUNT_HANDLER = "connectionCountHandler";
+    String CHUNK_WRITE_HANDLER = "chunkWriteHandler";
+    String HEARTBEAT_HANDLER = "heartbeatHandler";
+
+    AttributeKey<ImapSession> SESSION = AttributeKey.valueOf("imapSession");
+    AttributeKey<ImapResponseComposer> RESPONSE_COMPOSER = AttributeKey.valueOf("imapResponseComposer");
+}
@@ -0,0 +1,235 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.imapserver.netty4;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import org.apache.james.imap.api.ImapSessionState;
+import org.apache.james.imap.api.process.ImapLineHandler;
+import org.apache.james.imap.api.process.ImapSession;
+import org.apache.james.imap.api.process.SelectedMailbox;
+import org.apache.james.imapserver.netty.CompressionSettings;
+import org.apache.james.imapserver.netty.ImapMetrics;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.ssl.SslHandler;
+
+/**
+ * {@link ImapSession} bound to a Netty 4 {@link Channel}.
+ *
+ * Responses are written by the event loop of the channel. TLS and compression handlers are thus added by the
+ * event loop as well, once the response announcing them has been written out in clear.
+ */
+public class NettyImapSession implements ImapSession, NettyConstants {
+    private static final String LINE_HANDLER_PREFIX = "lineHandler";
+
+    private ImapSessionState state = ImapSessionState.NON_AUTHENTICATED;
+    private SelectedMailbox selectedMailbox;
+    private final Map<String, Object> attributesByKey = new HashMap<>();
+    private final SSLContext sslContext;
+    private final String[] enabledCipherSuites;
+    private final boolean compress;
+    private final CompressionSettings compressionSettings;
+    private final ImapMetrics imapMetrics;
+    private final Channel channel;
+    private int handlerCount;
+    private final boolean plainAuthDisallowed;
+
+    public NettyImapSession(Channel channel, SSLContext sslContext, String[] enabledCipherSuites, boolean compress, boolean plainAuthDisallowed,
+                            CompressionSettings compressionSettings, ImapMetrics imapMetrics) {
+        this.channel = channel;
+        this.sslContext = sslContext;
+        this.enabledCipherSuites = enabledCipherSuites;
+        this.compress = compress;
+        this.compressionSettings = compressionSettings;
+        this.imapMetrics = imapMetrics;
+        this.plainAuthDisallowed = plainAuthDisallowed;
+    }
+
+    /**
+     * Return the wrapped {@link Channel} which this {@link ImapSession} is
+     * bound to
+     * 
+     * @return channel
+     */
+    public Channel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public void logout() {
+        closeMailbox();
+        state = ImapSessionState.LOGOUT;
+    }
+
+    @Override
+    public void authenticated() {
+        this.state = ImapSessionState.AUTHENTICATED;
+    }
+
+    @Override
+    public void deselect() {
+        this.state = ImapSessionState.AUTHENTICATED;
+        closeMailbox();
+    }
+
+    @Override
+    public void selected(SelectedMailbox mailbox) {
+        this.state = ImapSessionState.SELECTED;
+        closeMailbox();
+        this.selectedMailbox = mailbox;
+    }
+
+    @Override
+    public SelectedMailbox getSelected() {
+        return this.selectedMailbox;
+    }
+
+    @Override
+    public ImapSessionState getState() {
+        return this.state;
+    }
+
+    private void closeMailbox() {
+        if (selectedMailbox != null) {
+            selectedMailbox.deselect();
+            selectedMailbox = null;
+        }
+    }
+
+    @Override
+    public Object getAttribute(String key) {
+        return attributesByKey.get(key);
+    }
+
+    @Override
+    public void setAttribute(String key, Object value) {
+        if (value == null) {
+            attributesByKey.remove(key);
+        } else {
+            attributesByKey.put(key, value);
+        }
+    }
+
+    @Override
+    public boolean startTLS() {
+        if (!supportStartTLS()) {
+            return false;
+        }
+
+        SSLEngine engine = sslContext.createSSLEngine();
+        engine.setUseClientMode(false);
+        if (enabledCipherSuites != null && enabledCipherSuites.length > 0) {
+            engine.setEnabledCipherSuites(enabledCipherSuites);
+        }
+        modifyPipeline(pipeline -> pipeline.addFirst(SSL_HANDLER, new SslHandler(engine)));
+
+        return true;
+    }
+
+    @Override
+    public boolean supportStartTLS() {
+        return sslContext != null;
+    }
+
+    @Override
+    public boolean isCompressionSupported() {
+        return compress;
+    }
+
+    @Override
+    public boolean startCompression() {
+        if (!isCompressionSupported()) {
+            return false;
+        }
+
+        modifyPipeline(pipeline -> {
+            MeteredZlibEncoder encoder = new MeteredZlibEncoder(compressionSettings, imapMetrics);
+
+            // Check if we have the SslHandler in the pipeline already
+            // if so we need to move the compress encoder and decoder
+            // behind it in the chain
+            // See JAMES-1186
+            if (pipeline.get(SSL_HANDLER) == null) {
+                pipeline.addFirst(ZLIB_DECODER, ZlibCodecFactory.newZlibDecoder(ZlibWrapper.NONE));
+                pipeline.addFirst(ZLIB_ENCODER, encoder);
+            } else {
+                pipeline.addAfter(SSL_HANDLER, ZLIB_DECODER, ZlibCodecFactory.newZlibDecoder(ZlibWrapper.NONE));
+                pipeline.addAfter(SSL_HANDLER, ZLIB_ENCODER, encoder);
+            }
+        });
+        imapMetrics.getCompressedConnectionsMetric().increment();
+
+        return true;
+    }
+
+    @Override
+    public void pushLineHandler(ImapLineHandler lineHandler) {
+        // Run next to the request decoder, as line handlers may block too
+        ChannelHandlerContext decoderContext = channel.pipeline().context(REQUEST_DECODER);
+        channel.pipeline().addBefore(decoderContext.executor(), REQUEST_DECODER, LINE_HANDLER_PREFIX + handlerCount++,
+            new ImapLineHandlerAdapter(this, lineHandler));
+    }
+
+    @Override
+    public void popLineHandler() {
+        channel.pipeline().remove(LINE_HANDLER_PREFIX + --handlerCount);
+    }
+
+    @Override
+    public boolean isPlainAuthDisallowed() {
+        return plainAuthDisallowed;
+    }
+
+    @Override
+    public boolean isTLSActive() {
+        return channel.pipeline().get(SSL_HANDLER) != null;
+    }
+
+    @Override
+    public boolean supportMultipleNamespaces() {
+        return false;
+    }
+
+    @Override
+    public boolean isCompressionActive() {
+        return channel.pipeline().get(ZLIB_DECODER) != null;
+    }
+
+    /**
+     * Run the modification on the event loop, after the writes already requested, and wait for it
+     */
+    private void modifyPipeline(Consumer<ChannelPipeline> modification) {
+        if (channel.eventLoop().inEventLoop()) {
+            modification.accept(channel.pipeline());
+        } else {
+            channel.eventLoop().submit(() -> modification.accept(channel.pipeline())).syncUninterruptibly();
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.imapserver.netty4;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.mail.internet.SharedInputStream;
+
+import org.apache.james.imap.api.display.HumanReadableText;
+import org.apache.james.protocols.imap.DecodingException;
+import org.apache.james.protocols.imap.utils.EolInputStream;
+import org.apache.james.protocols.imap.utils.FixedLengthInputStream;
+
+import io.netty.channel.Channel;
+
+public class NettyStreamImapRequestLineReader extends AbstractNettyImapRequestLineReader {
+
+    private final InputStream in;
+
+    public NettyStreamImapRequestLineReader(Channel channel, InputStream in, boolean retry) {
+        super(channel, retry);
+        this.in = in;
+    }
+
+    /**
+     * Reads the next character in the current line. This method will continue
+     * to return the same character until the {@link #consume()} method is
+     * called.
+     * 
+     * @return The next character TODO: character encoding is variable and
+     *         cannot be determine at the token level; this char is not accurate
+     *         reported; should be an octet
+     * @throws DecodingException
+     *             If the end-of-stream is reached.
+     */
+    @Override
+    public char nextChar() throws DecodingException {
+        
+        if (!nextSeen) {
+            int next;
+            try {
+                next = in.read();
+            } catch (IOException e) {
+                throw new DecodingException(HumanReadableText.SOCKET_IO_FAILURE, "Error reading from stream.", e);
+            }
+            if (next == -1) {
+                throw new DecodingException(HumanReadableText.ILLEGAL_ARGUMENTS, "Unexpected end of stream.");
+            }
+            nextSeen = true;
+            nextChar = (char) next;
+        }
+        
+        return nextChar;
+    
+    }
+
+    /**
+     * Reads and consumes a number of characters from the underlying reader,
+     * filling the char array provided. TODO: remove unnecessary copying of
+     * bits; line reader should maintain an internal ByteBuffer;
+     * 
+     * @param size
+     *            number of characters to read and consume
+     * @param extraCRLF
+     *            Add extra CRLF
+     * @throws DecodingException
+     *             If a char can't be read into each array element.
+     */
+    @Override
+    public InputStream read(int size, boolean extraCRLF) throws DecodingException {
+
+        // Unset the next char.
+        nextSeen = false;
+        nextChar = 0;
+        if (in instanceof SharedInputStream) {
+            return readShared((SharedInputStream) in, size, extraCRLF);
+        }
+        FixedLengthInputStream fin = new FixedLengthInputStream(this.in, size);
+        if (extraCRLF) {
+            return new EolInputStream(this, fin);
+        } else {
+            return fin;
+        }
+        
+    }
+
+    /**
+     * The whole request is already stored, so the literal can be shared as is instead of being streamed. The
+     * end of line is checked right away rather than once the literal has been read.
+     */
+    private InputStream readShared(SharedInputStream shared, int size, boolean extraCRLF) throws DecodingException {
+        long start = shared.getPosition();
+        InputStream literal = shared.newStream(start, start + size);
+        try {
+            long remaining = size;
+            while (remaining > 0) {
+                long skipped = in.skip(remaining);
+                if (skipped <= 0) {
+                    throw new DecodingException(HumanReadableText.ILLEGAL_ARGUMENTS, "Unexpected end of stream.");
+                }
+                remaining -= skipped;
+            }
+            if (extraCRLF) {
+                eol();
+            }
+            return literal;
+        } catch (IOException e) {
+            closeQuietly(literal);
+            if (e instanceof DecodingException) {
+                throw (DecodingException) e;
+            }
+            throw new DecodingException(HumanReadableText.SOCKET_IO_FAILURE, "Error reading from stream.", e);
+        }
+    }
+
+    private void closeQuietly(InputStream literal) {
+        try {
+            literal.close();
+        } catch (IOException ignored) {
+            //ignore exception during close
+        }
+    }
+
+    public void dispose() throws IOException {
+        in.close();
+    }
+
+}
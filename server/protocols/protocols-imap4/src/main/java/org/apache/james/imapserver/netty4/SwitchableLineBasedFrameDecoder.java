@@ -0,0 +1,71 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.imapserver.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.LineBasedFrameDecoder;
+
+/**
+ * {@link LineBasedFrameDecoder} which can be told to pass the received bytes as they come, while a literal is read.
+ *
+ * Bytes it already holds when framing gets disabled are passed on by a task of the event loop rather than right away,
+ * as the request decoder disabling it may run while this decoder is still decoding.
+ */
+public class SwitchableLineBasedFrameDecoder extends LineBasedFrameDecoder {
+
+    private static final Boolean FAIL_FAST = true;
+    private volatile boolean framingEnabled = true;
+    private volatile ChannelHandlerContext context;
+
+    public SwitchableLineBasedFrameDecoder(int maxFrameLength, boolean stripDelimiter) {
+        super(maxFrameLength, stripDelimiter, !FAIL_FAST);
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.context = ctx;
+        super.handlerAdded(ctx);
+    }
+
+    @Override
+    protected Object decode(ChannelHandlerContext ctx, ByteBuf buffer) throws Exception {
+        if (framingEnabled) {
+            return super.decode(ctx, buffer);
+        }
+        return buffer.readRetainedSlice(buffer.readableBytes());
+    }
+
+    public void enableFraming() {
+        this.framingEnabled = true;
+    }
+
+    public void disableFraming() {
+        this.framingEnabled = false;
+        context.executor().execute(this::passSpareBytes);
+    }
+
+    private void passSpareBytes() {
+        ByteBuf cumulation = internalBuffer();
+        if (!framingEnabled && !context.isRemoved() && cumulation.isReadable()) {
+            context.fireChannelRead(cumulation.readRetainedSlice(cumulation.readableBytes()));
+        }
+    }
+
+}
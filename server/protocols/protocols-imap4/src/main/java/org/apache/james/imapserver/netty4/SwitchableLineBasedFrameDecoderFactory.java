@@ -16,20 +16,23 @@
  * specific language governing permissions and limitations      *
  * under the License.                                           *
  ****************************************************************/
+package org.apache.james.imapserver.netty4;
 
-package org.apache.james.mailbox.store.search.comparator;
+import org.apache.james.protocols.netty4.ChannelHandlerFactory;
 
-import java.util.Comparator;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelPipeline;
 
-import org.apache.james.mailbox.store.mail.model.MailboxMessage;
+public class SwitchableLineBasedFrameDecoderFactory implements ChannelHandlerFactory {
 
-public class MessageIdComparator implements Comparator<MailboxMessage> {
-    public static final MessageIdComparator MESSAGE_ID_COMPARATOR = new MessageIdComparator();
+    private final int maxLineLength;
+
+    public SwitchableLineBasedFrameDecoderFactory(int maxLineLength) {
+        this.maxLineLength = maxLineLength;
+    }
 
     @Override
-    public int compare(MailboxMessage mailboxMessage1, MailboxMessage mailboxMessage2) {
-        return mailboxMessage1.getMessageId()
-            .serialize()
-            .compareToIgnoreCase(mailboxMessage2.getMessageId().serialize());
+    public ChannelHandler create(ChannelPipeline pipeline) {
+        return new SwitchableLineBasedFrameDecoder(maxLineLength, false);
     }
 }
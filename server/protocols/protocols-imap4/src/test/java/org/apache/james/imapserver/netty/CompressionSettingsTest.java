@@ -0,0 +1,50 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.imapserver.netty;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class CompressionSettingsTest {
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void constructorShouldThrowOnInvalidLevel() {
+        expectedException.expect(IllegalArgumentException.class);
+
+        new CompressionSettings(10, CompressionSettings.DEFAULT_WINDOW_BITS, CompressionSettings.DEFAULT_MEM_LEVEL);
+    }
+
+    @Test
+    public void constructorShouldThrowOnInvalidWindowBits() {
+        expectedException.expect(IllegalArgumentException.class);
+
+        new CompressionSettings(CompressionSettings.DEFAULT_LEVEL, 8, CompressionSettings.DEFAULT_MEM_LEVEL);
+    }
+
+    @Test
+    public void constructorShouldThrowOnInvalidMemLevel() {
+        expectedException.expect(IllegalArgumentException.class);
+
+        new CompressionSettings(CompressionSettings.DEFAULT_LEVEL, CompressionSettings.DEFAULT_WINDOW_BITS, 0);
+    }
+}
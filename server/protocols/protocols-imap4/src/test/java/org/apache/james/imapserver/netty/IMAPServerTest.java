@@ -56,6 +56,7 @@ public class IMAPServerTest {
         configurationBuilder.addProperty("idleTimeInterval", "1");
         configurationBuilder.addProperty("idleTimeIntervalUnit", "MINUTES");
         configurationBuilder.addProperty("disabledCaps", "ACL | MOVE");
+        configurationBuilder.addProperty("fetchPrefetchWindow", "32");
         ImapConfiguration imapConfiguration = IMAPServer.getImapConfiguration(configurationBuilder);
 
         ImapConfiguration expectImapConfiguration = ImapConfiguration.builder()
@@ -63,8 +64,35 @@ public class IMAPServerTest {
                 .idleTimeInterval(1)
                 .idleTimeIntervalUnit(TimeUnit.MINUTES)
                 .disabledCaps(ImmutableSet.of("ACL", "MOVE"))
+                .fetchPrefetchWindow(32)
                 .build();
 
         assertThat(imapConfiguration).isEqualTo(expectImapConfiguration);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getCompressionSettingsShouldReturnDefaultValuesWhenEmpty() {
+        assertThat(IMAPServer.getCompressionSettings(new DefaultConfigurationBuilder()))
+            .isEqualTo(CompressionSettings.DEFAULT);
+    }
+
+    @Test
+    public void getCompressionSettingsShouldUseLowMemoryDefaultsWhenEnabled() {
+        DefaultConfigurationBuilder configurationBuilder = new DefaultConfigurationBuilder();
+        configurationBuilder.addProperty("compressionLowMemory", "true");
+
+        assertThat(IMAPServer.getCompressionSettings(configurationBuilder))
+            .isEqualTo(CompressionSettings.LOW_MEMORY);
+    }
+
+    @Test
+    public void getCompressionSettingsShouldReturnSetValues() {
+        DefaultConfigurationBuilder configurationBuilder = new DefaultConfigurationBuilder();
+        configurationBuilder.addProperty("compressionLowMemory", "true");
+        configurationBuilder.addProperty("compressionLevel", "1");
+        configurationBuilder.addProperty("compressionWindowBits", "12");
+
+        assertThat(IMAPServer.getCompressionSettings(configurationBuilder))
+            .isEqualTo(new CompressionSettings(1, 12, CompressionSettings.LOW_MEMORY_MEM_LEVEL));
+    }
+}
@@ -0,0 +1,78 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.imapserver.netty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Inflater;
+
+import org.apache.james.metrics.api.NoopMetricFactory;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.EncoderEmbedder;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+
+public class MeteredZlibEncoderTest {
+    private static final byte[] PAYLOAD = Strings.repeat("* 1 FETCH (FLAGS (\\Seen))\r\n", 100).getBytes(StandardCharsets.US_ASCII);
+
+    private MeteredZlibEncoder encoder;
+    private EncoderEmbedder<ChannelBuffer> embedder;
+
+    @Before
+    public void setUp() {
+        encoder = new MeteredZlibEncoder(CompressionSettings.LOW_MEMORY, new ImapMetrics(new NoopMetricFactory()));
+        embedder = new EncoderEmbedder<>(encoder);
+    }
+
+    @Test
+    public void encoderShouldProduceRawDeflateData() throws Exception {
+        embedder.offer(ChannelBuffers.wrappedBuffer(PAYLOAD));
+        ChannelBuffer compressed = embedder.poll();
+
+        byte[] input = new byte[compressed.readableBytes()];
+        compressed.readBytes(input);
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(input);
+        byte[] output = new byte[PAYLOAD.length];
+        int inflated = inflater.inflate(output);
+
+        assertThat(inflated).isEqualTo(PAYLOAD.length);
+        assertThat(output).isEqualTo(PAYLOAD);
+    }
+
+    @Test
+    public void encoderShouldCountUncompressedAndCompressedBytes() {
+        embedder.offer(ChannelBuffers.wrappedBuffer(PAYLOAD));
+        ChannelBuffer compressed = embedder.poll();
+
+        assertThat(encoder.getUncompressedBytes()).isEqualTo(PAYLOAD.length);
+        assertThat(encoder.getCompressedBytes()).isEqualTo(compressed.readableBytes());
+        assertThat(encoder.getCompressionRatio()).isLessThan(1);
+    }
+
+    @Test
+    public void compressionRatioShouldBeOneWhenNothingWasWritten() {
+        assertThat(encoder.getCompressionRatio()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,157 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.imapserver.netty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.mail.internet.SharedInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SharedTemporaryFileInputStreamTest {
+    private static final String CONTENT = "A1 APPEND INBOX {11}\r\nHello world\r\n";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = temporaryFolder.newFile();
+        FileUtils.writeStringToFile(file, CONTENT, StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void readShouldReturnTheFileContent() throws Exception {
+        try (InputStream in = new SharedTemporaryFileInputStream(file)) {
+            assertThat(IOUtils.toString(in, StandardCharsets.US_ASCII)).isEqualTo(CONTENT);
+        }
+    }
+
+    @Test
+    public void newStreamShouldReadTheRequestedRange() throws Exception {
+        try (SharedTemporaryFileInputStream in = new SharedTemporaryFileInputStream(file);
+             InputStream literal = in.newStream(22, 33)) {
+            assertThat(IOUtils.toString(literal, StandardCharsets.US_ASCII)).isEqualTo("Hello world");
+        }
+    }
+
+    @Test
+    public void newStreamShouldBeRelativeToTheSharedStream() throws Exception {
+        try (SharedTemporaryFileInputStream in = new SharedTemporaryFileInputStream(file);
+             InputStream literal = in.newStream(22, 33);
+             InputStream word = ((SharedInputStream) literal).newStream(6, -1)) {
+            assertThat(IOUtils.toString(word, StandardCharsets.US_ASCII)).isEqualTo("world");
+        }
+    }
+
+    @Test
+    public void getPositionShouldTrackReadAndSkippedBytes() throws Exception {
+        try (SharedTemporaryFileInputStream in = new SharedTemporaryFileInputStream(file)) {
+            in.read();
+            in.skip(21);
+
+            assertThat(in.getPosition()).isEqualTo(22);
+            assertThat((char) in.read()).isEqualTo('H');
+        }
+    }
+
+    @Test
+    public void fileShouldBeKeptWhileAStreamIsOpen() throws Exception {
+        SharedTemporaryFileInputStream in = new SharedTemporaryFileInputStream(file);
+        InputStream literal = in.newStream(22, 33);
+
+        in.close();
+
+        assertThat(file).exists();
+        assertThat(IOUtils.toString(literal, StandardCharsets.US_ASCII)).isEqualTo("Hello world");
+        literal.close();
+    }
+
+    @Test
+    public void fileShouldBeDeletedWhenAllStreamsAreClosed() throws Exception {
+        SharedTemporaryFileInputStream in = new SharedTemporaryFileInputStream(file);
+        InputStream literal = in.newStream(22, 33);
+
+        literal.close();
+        in.close();
+
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    public void closeShouldBeIdempotent() throws Exception {
+        SharedTemporaryFileInputStream in = new SharedTemporaryFileInputStream(file);
+        InputStream literal = in.newStream(22, 33);
+
+        literal.close();
+        literal.close();
+
+        assertThat(file).exists();
+        in.close();
+    }
+
+    @Test
+    public void discardShouldDeleteTheFileWhenStreamsAreStillOpen() throws Exception {
+        SharedTemporaryFileInputStream in = new SharedTemporaryFileInputStream(file);
+        InputStream literal = in.newStream(22, 33);
+
+        in.discard();
+
+        assertThat(file).doesNotExist();
+        assertThatThrownBy(literal::read).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void closeShouldNotFailOnceDiscarded() throws Exception {
+        SharedTemporaryFileInputStream in = new SharedTemporaryFileInputStream(file);
+        InputStream literal = in.newStream(22, 33);
+        in.discard();
+
+        literal.close();
+        in.close();
+
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    public void discardShouldNotFailWhenAllStreamsAreClosed() throws Exception {
+        SharedTemporaryFileInputStream in = new SharedTemporaryFileInputStream(file);
+        InputStream literal = in.newStream(22, 33);
+        literal.close();
+        in.close();
+
+        in.discard();
+
+        assertThat(file).doesNotExist();
+    }
+}
@@ -0,0 +1,91 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.imapserver.netty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import javax.mail.Flags;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.james.mailbox.MailboxSession;
+import org.apache.james.mailbox.MessageManager;
+import org.apache.james.mailbox.acl.SimpleGroupMembershipResolver;
+import org.apache.james.mailbox.inmemory.InMemoryMailboxManager;
+import org.apache.james.mailbox.inmemory.manager.InMemoryIntegrationResources;
+import org.apache.james.mailbox.model.MailboxPath;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SpilledLiteralAppendTest {
+    private static final String USER = "user";
+    private static final String MESSAGE = "Subject: test\r\n" +
+        "Content-Type: multipart/mixed; boundary=\"boundary\"\r\n" +
+        "\r\n" +
+        "--boundary\r\n" +
+        "Content-Type: text/plain\r\n" +
+        "\r\n" +
+        "Hello world\r\n" +
+        "--boundary\r\n" +
+        "Content-Type: application/octet-stream\r\n" +
+        "Content-Disposition: attachment; filename=\"file.bin\"\r\n" +
+        "\r\n" +
+        "0123456789\r\n" +
+        "--boundary--\r\n";
+    private static final String PREFIX = "A1 APPEND INBOX {" + MESSAGE.length() + "}\r\n";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+    private MailboxSession session;
+    private MessageManager messageManager;
+
+    @Before
+    public void setUp() throws Exception {
+        file = temporaryFolder.newFile();
+        FileUtils.writeStringToFile(file, PREFIX + MESSAGE + "\r\n", StandardCharsets.US_ASCII);
+
+        InMemoryMailboxManager mailboxManager = new InMemoryIntegrationResources()
+            .createMailboxManager(new SimpleGroupMembershipResolver());
+        session = mailboxManager.createSystemSession(USER);
+        MailboxPath inbox = MailboxPath.inbox(session);
+        mailboxManager.createMailbox(inbox, session);
+        messageManager = mailboxManager.getMailbox(inbox, session);
+    }
+
+    @Test
+    public void spillFileShouldBeDeletedOnceTheAppendedLiteralIsClosed() throws Exception {
+        InputStream literal;
+        try (SharedTemporaryFileInputStream request = new SharedTemporaryFileInputStream(file)) {
+            literal = request.newStream(PREFIX.length(), PREFIX.length() + MESSAGE.length());
+        }
+
+        messageManager.appendMessage(literal, new Date(), session, true, new Flags());
+        literal.close();
+
+        assertThat(file).doesNotExist();
+    }
+}
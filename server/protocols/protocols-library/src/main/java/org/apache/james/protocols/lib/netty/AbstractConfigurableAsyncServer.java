@@ -26,6 +26,8 @@ import java.net.UnknownHostException;
 import java.security.KeyStore;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 import java.util.concurrent.Executor;
 
 import javax.annotation.PostConstruct;
@@ -43,8 +45,12 @@ import org.apache.james.filesystem.api.FileSystem;
 import org.apache.james.lifecycle.api.Configurable;
 import org.apache.james.protocols.api.Encryption;
 import org.apache.james.protocols.lib.jmx.ServerMBean;
+import org.apache.james.protocols.lib.netty4.ConnectionCountInboundHandler;
 import org.apache.james.protocols.netty.AbstractAsyncServer;
 import org.apache.james.protocols.netty.ChannelHandlerFactory;
+import org.apache.james.protocols.netty4.AbstractNetty4Server;
+import org.apache.james.protocols.netty4.HandlerConstants;
+import org.apache.james.protocols.netty4.ProtocolChannelInitializer;
 import org.apache.james.util.concurrent.JMXEnabledThreadPoolExecutor;
 import org.jboss.netty.bootstrap.ServerBootstrap;
 import org.jboss.netty.channel.ChannelPipelineFactory;
@@ -55,8 +61,18 @@ import org.jboss.netty.util.HashedWheelTimer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.util.concurrent.EventExecutorGroup;
+
 /**
  * Abstract base class for Servers for all James Servers
+ *
+ * Servers run on Netty 3 unless the <code>transport</code> configuration entry selects Netty 4. The same
+ * {@link org.apache.james.protocols.api.handler.ProtocolHandler} chain is used with both transports.
  */
 public abstract class AbstractConfigurableAsyncServer extends AbstractAsyncServer implements Configurable, ServerMBean {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractConfigurableAsyncServer.class);
@@ -77,6 +93,28 @@ public abstract class AbstractConfigurableAsyncServer extends AbstractAsyncServe
     public static final String HELLO_NAME = "helloName";
 
     public static final int DEFAULT_MAX_EXECUTOR_COUNT = 16;
+
+    /** The name of the parameter selecting the Netty version the server runs on. */
+    private static final String TRANSPORT_NAME = "transport";
+
+    /** The name of the parameter allowing to disable the native epoll transport of Netty 4. */
+    private static final String PREFER_NATIVE_TRANSPORT_NAME = "preferNativeTransport";
+
+    /**
+     * The Netty version a server runs on
+     */
+    public enum Transport {
+        NETTY3,
+        NETTY4;
+
+        public static Transport parse(String value) throws ConfigurationException {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.US));
+            } catch (IllegalArgumentException e) {
+                throw new ConfigurationException("Unknown transport " + value + ", expecting netty3 or netty4", e);
+            }
+        }
+    }
     
     // By default, use the Sun X509 algorithm that comes with the Sun JCE
     // provider for SSL
@@ -111,6 +149,12 @@ public abstract class AbstractConfigurableAsyncServer extends AbstractAsyncServe
     private String[] enabledCipherSuites;
 
     private final ConnectionCountHandler countHandler = new ConnectionCountHandler();
+    private final ConnectionCountInboundHandler netty4CountHandler = new ConnectionCountInboundHandler();
+
+    private Transport transport = Transport.NETTY3;
+    private boolean preferNativeTransport;
+    private InetSocketAddress[] bindAddresses;
+    private AbstractNetty4Server netty4Server;
 
     private ExecutionHandler executionHandler = null;
     private ChannelHandlerFactory frameHandlerFactory;
@@ -185,7 +229,15 @@ public abstract class AbstractConfigurableAsyncServer extends AbstractAsyncServe
 
             bindAddresses.add(address);
         }
-        setListenAddresses(bindAddresses.toArray(new InetSocketAddress[bindAddresses.size()]));
+        this.bindAddresses = bindAddresses.toArray(new InetSocketAddress[bindAddresses.size()]);
+        setListenAddresses(this.bindAddresses);
+
+        transport = Transport.parse(config.getString(TRANSPORT_NAME, Transport.NETTY3.name()));
+        if (transport == Transport.NETTY4 && !isNetty4Supported()) {
+            throw new ConfigurationException(getServiceType() + " can only run on Netty 3");
+        }
+        preferNativeTransport = config.getBoolean(PREFER_NATIVE_TRANSPORT_NAME, true);
+        LOGGER.info("{} runs on {}", getServiceType(), transport);
 
         jmxName = config.getString("jmxName", getDefaultJMXName());
         int ioWorker = config.getInt("ioWorkerCount", DEFAULT_IO_WORKER_COUNT);
@@ -262,8 +314,12 @@ public abstract class AbstractConfigurableAsyncServer extends AbstractAsyncServe
 
             buildSSLContext();
             preInit();
-            executionHandler = createExecutionHander();
-            frameHandlerFactory = createFrameHandlerFactory();
+            if (transport == Transport.NETTY4) {
+                netty4Server = createNetty4Server();
+            } else {
+                executionHandler = createExecutionHander();
+                frameHandlerFactory = createFrameHandlerFactory();
+            }
             bind();
             port = retrieveFirstBindedPort();
 
@@ -290,6 +346,10 @@ public abstract class AbstractConfigurableAsyncServer extends AbstractAsyncServe
         return useSSL;
     }
 
+    public Transport getTransport() {
+        return transport;
+    }
+
     @PreDestroy
     public final void destroy() {
         
@@ -487,6 +547,40 @@ public abstract class AbstractConfigurableAsyncServer extends AbstractAsyncServe
         return isBound();
     }
 
+    @Override
+    public synchronized void bind() throws Exception {
+        if (netty4Server != null) {
+            netty4Server.bind();
+        } else {
+            super.bind();
+        }
+    }
+
+    @Override
+    public synchronized void unbind() {
+        if (netty4Server != null) {
+            netty4Server.unbind();
+        } else {
+            super.unbind();
+        }
+    }
+
+    @Override
+    public synchronized List<InetSocketAddress> getListenAddresses() {
+        if (netty4Server != null) {
+            return netty4Server.getListenAddresses();
+        }
+        return super.getListenAddresses();
+    }
+
+    @Override
+    public boolean isBound() {
+        if (netty4Server != null) {
+            return netty4Server.isBound();
+        }
+        return super.isBound();
+    }
+
     @Override
     public boolean start() {
         try {
@@ -506,11 +600,17 @@ public abstract class AbstractConfigurableAsyncServer extends AbstractAsyncServe
 
     @Override
     public long getHandledConnections() {
+        if (transport == Transport.NETTY4) {
+            return netty4CountHandler.getConnectionsTillStartup();
+        }
         return countHandler.getConnectionsTillStartup();
     }
 
     @Override
     public int getCurrentConnections() {
+        if (transport == Transport.NETTY4) {
+            return netty4CountHandler.getCurrentConnectionCount();
+        }
         return countHandler.getCurrentConnectionCount();
     }
 
@@ -518,6 +618,10 @@ public abstract class AbstractConfigurableAsyncServer extends AbstractAsyncServe
         return countHandler;
     }
 
+    protected ConnectionCountInboundHandler getNetty4ConnectionCountHandler() {
+        return netty4CountHandler;
+    }
+
     @Override
     public String[] getBoundAddresses() {
 
@@ -597,5 +701,68 @@ public abstract class AbstractConfigurableAsyncServer extends AbstractAsyncServe
 
         };
     }
-    
+
+    /**
+     * Return false if the server can only run on Netty 3, for instance because it relies on its old blocking IO sockets
+     */
+    protected boolean isNetty4Supported() {
+        return true;
+    }
+
+    /**
+     * Build the Netty 4 server with the configured settings. Like {@link ExecutionHandler}, the core handler
+     * runs on a dedicated executor as {@link org.apache.james.protocols.api.handler.ProtocolHandler}s may block.
+     */
+    private AbstractNetty4Server createNetty4Server() {
+        AbstractNetty4Server server = new AbstractNetty4Server() {
+            @Override
+            protected String getThreadNamePrefix() {
+                return jmxName;
+            }
+
+            @Override
+            protected ChannelInitializer<SocketChannel> createChannelInitializer(io.netty.channel.group.ChannelGroup channels, Optional<EventExecutorGroup> executorGroup) {
+                return AbstractConfigurableAsyncServer.this.createNetty4ChannelInitializer(channels, executorGroup);
+            }
+
+            @Override
+            protected void configureBootstrap(io.netty.bootstrap.ServerBootstrap bootstrap) {
+                super.configureBootstrap(bootstrap);
+
+                // enable tcp keep-alives
+                bootstrap.childOption(ChannelOption.SO_KEEPALIVE, true);
+            }
+        };
+        server.setListenAddresses(bindAddresses);
+        server.setIoWorkerCount(getIoWorkerCount());
+        server.setTimeout(getTimeout());
+        server.setBacklog(getBacklog());
+        server.setPreferNativeTransport(preferNativeTransport);
+        server.setUseExecutionHandler(true, maxExecutorThreads);
+        return server;
+    }
+
+    /**
+     * Create the {@link ChannelInitializer} building the Netty 4 pipeline of each connection. Servers not relying
+     * on the line based pipeline override it, as they override {@link #createPipelineFactory(ChannelGroup)}.
+     */
+    protected ChannelInitializer<SocketChannel> createNetty4ChannelInitializer(io.netty.channel.group.ChannelGroup channels, Optional<EventExecutorGroup> executorGroup) {
+        return new ProtocolChannelInitializer(channels, connectionLimit, connPerIP, createNetty4FrameHandlerFactory(),
+            getTimeout(), Optional.ofNullable(encryption), executorGroup, createNetty4CoreHandler()) {
+            @Override
+            protected void addBeforeCoreHandler(ChannelPipeline pipeline) {
+                pipeline.addLast(HandlerConstants.CONNECTION_COUNT_HANDLER, getNetty4ConnectionCountHandler());
+            }
+        };
+    }
+
+    /**
+     * Create the Netty 4 core handler, the counterpart of {@link #createCoreHandler()}
+     */
+    protected abstract ChannelHandler createNetty4CoreHandler();
+
+    /**
+     * Create the Netty 4 frame handler factory, the counterpart of {@link #createFrameHandlerFactory()}
+     */
+    protected abstract org.apache.james.protocols.netty4.ChannelHandlerFactory createNetty4FrameHandlerFactory();
 }
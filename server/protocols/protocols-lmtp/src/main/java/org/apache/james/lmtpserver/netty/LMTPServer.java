@@ -28,12 +28,16 @@ import org.apache.james.protocols.lmtp.LMTPConfiguration;
 import org.apache.james.protocols.netty.AbstractChannelPipelineFactory;
 import org.apache.james.protocols.netty.ChannelHandlerFactory;
 import org.apache.james.protocols.netty.LineDelimiterBasedChannelHandlerFactory;
+import org.apache.james.protocols.netty4.Netty4Server;
 import org.apache.james.protocols.smtp.SMTPProtocol;
 import org.apache.james.smtpserver.netty.SMTPChannelUpstreamHandler;
+import org.apache.james.smtpserver.netty4.SMTPChannelInboundHandler;
 import org.jboss.netty.channel.ChannelUpstreamHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.netty.channel.ChannelHandler;
+
 public class LMTPServer extends AbstractProtocolAsyncServer implements LMTPServerMBean {
     private static final Logger LOGGER = LoggerFactory.getLogger(LMTPServer.class);
 
@@ -127,6 +131,12 @@ public class LMTPServer extends AbstractProtocolAsyncServer implements LMTPServe
         return new SMTPChannelUpstreamHandler(protocol, lmtpMetrics);
     }
 
+    @Override
+    protected ChannelHandler createNetty4CoreHandler() {
+        SMTPProtocol protocol = new SMTPProtocol(getProtocolHandlerChain(), lmtpConfig);
+        return new SMTPChannelInboundHandler(protocol, lmtpMetrics);
+    }
+
     @Override
     protected Class<? extends HandlersPackage> getCoreHandlersPackage() {
         return CoreCmdHandlerLoader.class;
@@ -142,4 +152,9 @@ public class LMTPServer extends AbstractProtocolAsyncServer implements LMTPServe
         return new LineDelimiterBasedChannelHandlerFactory(AbstractChannelPipelineFactory.MAX_LINE_LENGTH);
     }
 
+    @Override
+    protected org.apache.james.protocols.netty4.ChannelHandlerFactory createNetty4FrameHandlerFactory() {
+        return new org.apache.james.protocols.netty4.LineDelimiterBasedChannelHandlerFactory(Netty4Server.MAX_LINE_LENGTH);
+    }
+
 }
@@ -58,4 +58,11 @@ public class OioLMTPServer extends LMTPServer {
         return null;
     }
 
+    /**
+     * Old IO sockets are only available with Netty 3
+     */
+    @Override
+    protected boolean isNetty4Supported() {
+        return false;
+    }
 }
@@ -21,9 +21,13 @@ package org.apache.james.managesieveserver.netty;
 
 import static org.jboss.netty.channel.Channels.pipeline;
 
+import java.util.Optional;
+
 import javax.net.ssl.SSLEngine;
 
 import org.apache.james.managesieve.transcode.ManageSieveProcessor;
+import org.apache.james.managesieveserver.netty4.ManageSieveChannelInboundHandler;
+import org.apache.james.managesieveserver.netty4.ManageSieveChannelInitializer;
 import org.apache.james.protocols.api.Encryption;
 import org.apache.james.protocols.lib.netty.AbstractConfigurableAsyncServer;
 import org.apache.james.protocols.netty.ChannelGroupHandler;
@@ -44,6 +48,11 @@ import org.jboss.netty.util.CharsetUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.util.concurrent.EventExecutorGroup;
+
 public class ManageSieveServer extends AbstractConfigurableAsyncServer implements ManageSieveServerMBean {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ManageSieveServer.class);
@@ -85,6 +94,15 @@ public class ManageSieveServer extends AbstractConfigurableAsyncServer implement
             LOGGER);
     }
 
+    @Override
+    protected ChannelHandler createNetty4CoreHandler() {
+        return new ManageSieveChannelInboundHandler(manageSieveProcessor,
+            getEncryption() == null ? null : getEncryption().getContext(),
+            getEnabledCipherSuites(),
+            isSSL(),
+            LOGGER);
+    }
+
     private boolean isSSL() {
         return getEncryption() != null
             && !getEncryption().isStartTLS();
@@ -133,6 +151,12 @@ public class ManageSieveServer extends AbstractConfigurableAsyncServer implement
         };
     }
 
+    @Override
+    protected ChannelInitializer<SocketChannel> createNetty4ChannelInitializer(io.netty.channel.group.ChannelGroup channels, Optional<EventExecutorGroup> executorGroup) {
+        return new ManageSieveChannelInitializer(channels, executorGroup, Optional.ofNullable(getEncryption()),
+            connectionLimit, connPerIP, getNetty4ConnectionCountHandler(), createNetty4FrameHandlerFactory(), createNetty4CoreHandler());
+    }
+
     @Override
     public String getServiceType() {
         return "Manage Sieve Service";
@@ -142,4 +166,9 @@ public class ManageSieveServer extends AbstractConfigurableAsyncServer implement
     protected ChannelHandlerFactory createFrameHandlerFactory() {
         return new LineDelimiterBasedChannelHandlerFactory(maxLineLength);
     }
+
+    @Override
+    protected org.apache.james.protocols.netty4.ChannelHandlerFactory createNetty4FrameHandlerFactory() {
+        return new org.apache.james.protocols.netty4.LineDelimiterBasedChannelHandlerFactory(maxLineLength);
+    }
 }
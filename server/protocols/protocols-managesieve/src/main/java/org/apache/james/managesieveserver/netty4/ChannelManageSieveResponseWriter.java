@@ -0,0 +1,42 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.managesieveserver.netty4;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import io.netty.channel.Channel;
+import io.netty.handler.stream.ChunkedStream;
+
+public class ChannelManageSieveResponseWriter {
+    private final Channel channel;
+
+    public ChannelManageSieveResponseWriter(Channel channel) {
+        this.channel = channel;
+    }
+
+    public void write(String response) throws IOException {
+        if (channel.isActive()) {
+            InputStream in = new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8));
+            channel.writeAndFlush(new ChunkedStream(in));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.managesieveserver.netty4;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import javax.net.ssl.SSLEngine;
+
+import org.apache.james.protocols.api.Encryption;
+import org.apache.james.protocols.netty4.ChannelHandlerFactory;
+import org.apache.james.protocols.netty4.ConnectionLimitHandler;
+import org.apache.james.protocols.netty4.ConnectionPerIpLimitHandler;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.string.StringDecoder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+/**
+ * Build the ManageSieve {@link ChannelPipeline} of each accepted connection, the Netty 4 counterpart of the pipeline
+ * built by {@link org.apache.james.managesieveserver.netty.ManageSieveServer}.
+ */
+public class ManageSieveChannelInitializer extends ChannelInitializer<SocketChannel> {
+
+    static final String SSL_HANDLER = "sslHandler";
+    static final String FRAMER = "framer";
+    static final String STRING_DECODER = "stringDecoder";
+    static final String CORE_HANDLER = "coreHandler";
+    static final String CONNECTION_LIMIT_HANDLER = "connectionLimitHandler";
+    static final String CONNECTION_LIMIT_PER_IP_HANDLER = "connectionPerIpLimitHandler";
+    static final String CONNECTION_COUNT_HANDLER = "connectionCountHandler";
+    static final String CHUNK_WRITE_HANDLER = "chunkWriteHandler";
+
+    private final ChannelGroup channels;
+    private final Optional<EventExecutorGroup> executorGroup;
+    private final Optional<Encryption> secure;
+    private final ConnectionLimitHandler connectionLimitHandler;
+    private final ConnectionPerIpLimitHandler connectionPerIpLimitHandler;
+    private final ChannelHandler connectionCountHandler;
+    private final ChannelHandlerFactory frameHandlerFactory;
+    private final ChannelHandler coreHandler;
+
+    public ManageSieveChannelInitializer(ChannelGroup channels, Optional<EventExecutorGroup> executorGroup, Optional<Encryption> secure,
+                                         int maxConnections, int maxConnectionsPerIp, ChannelHandler connectionCountHandler,
+                                         ChannelHandlerFactory frameHandlerFactory, ChannelHandler coreHandler) {
+        this.channels = channels;
+        this.executorGroup = executorGroup;
+        this.secure = secure;
+        this.connectionLimitHandler = new ConnectionLimitHandler(maxConnections);
+        this.connectionPerIpLimitHandler = new ConnectionPerIpLimitHandler(maxConnectionsPerIp);
+        this.connectionCountHandler = connectionCountHandler;
+        this.frameHandlerFactory = frameHandlerFactory;
+        this.coreHandler = coreHandler;
+    }
+
+    @Override
+    protected void initChannel(SocketChannel channel) {
+        // Closed channels leave the group on their own
+        channels.add(channel);
+
+        ChannelPipeline pipeline = channel.pipeline();
+        if (isSSLSocket()) {
+            pipeline.addLast(SSL_HANDLER, new SslHandler(createSSLEngine(secure.get())));
+        }
+        pipeline.addLast(CONNECTION_LIMIT_HANDLER, connectionLimitHandler);
+        pipeline.addLast(CONNECTION_LIMIT_PER_IP_HANDLER, connectionPerIpLimitHandler);
+        // Add the text line decoder which limit the max line length,
+        // don't strip the delimiter and use CRLF as delimiter
+        pipeline.addLast(FRAMER, frameHandlerFactory.create(pipeline));
+        pipeline.addLast(CONNECTION_COUNT_HANDLER, connectionCountHandler);
+        pipeline.addLast(CHUNK_WRITE_HANDLER, new ChunkedWriteHandler());
+        pipeline.addLast(STRING_DECODER, new StringDecoder(StandardCharsets.UTF_8));
+        pipeline.addLast(executorGroup.orElse(null), CORE_HANDLER, coreHandler);
+    }
+
+    private boolean isSSLSocket() {
+        return secure.map(encryption -> !encryption.isStartTLS()).orElse(false);
+    }
+
+    private SSLEngine createSSLEngine(Encryption encryption) {
+        // We need to set clientMode to false.
+        // See https://issues.apache.org/jira/browse/JAMES-1025
+        SSLEngine engine = encryption.getContext().createSSLEngine();
+        engine.setUseClientMode(false);
+        return engine;
+    }
+}
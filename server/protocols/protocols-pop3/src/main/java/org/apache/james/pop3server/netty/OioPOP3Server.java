@@ -51,4 +51,11 @@ public class OioPOP3Server extends POP3Server {
         return null;
     }
 
+    /**
+     * Old IO sockets are only available with Netty 3
+     */
+    @Override
+    protected boolean isNetty4Supported() {
+        return false;
+    }
 }
@@ -27,9 +27,13 @@ import org.apache.james.protocols.netty.AbstractChannelPipelineFactory;
 import org.apache.james.protocols.netty.BasicChannelUpstreamHandler;
 import org.apache.james.protocols.netty.ChannelHandlerFactory;
 import org.apache.james.protocols.netty.LineDelimiterBasedChannelHandlerFactory;
+import org.apache.james.protocols.netty4.BasicChannelInboundHandler;
+import org.apache.james.protocols.netty4.Netty4Server;
 import org.apache.james.protocols.pop3.POP3Protocol;
 import org.jboss.netty.channel.ChannelUpstreamHandler;
 
+import io.netty.channel.ChannelHandler;
+
 /**
  * NIO POP3 Server which use Netty
  */
@@ -39,6 +43,7 @@ public class POP3Server extends AbstractProtocolAsyncServer implements POP3Serve
      * The configuration data to be passed to the handler
      */
     private final ProtocolConfiguration theConfigData = new POP3Configuration();
+    private POP3Protocol protocol;
     private BasicChannelUpstreamHandler coreHandler;
     
     @Override
@@ -77,7 +82,7 @@ public class POP3Server extends AbstractProtocolAsyncServer implements POP3Serve
     @Override
     protected void preInit() throws Exception {
         super.preInit();
-        POP3Protocol protocol = new POP3Protocol(getProtocolHandlerChain(), theConfigData);
+        protocol = new POP3Protocol(getProtocolHandlerChain(), theConfigData);
         coreHandler = new BasicChannelUpstreamHandler(protocol, getEncryption());
     }
 
@@ -91,6 +96,11 @@ public class POP3Server extends AbstractProtocolAsyncServer implements POP3Serve
         return coreHandler; 
     }
 
+    @Override
+    protected ChannelHandler createNetty4CoreHandler() {
+        return new BasicChannelInboundHandler(protocol, getEncryption());
+    }
+
     @Override
     protected Class<? extends HandlersPackage> getCoreHandlersPackage() {
         return CoreCmdHandlerLoader.class;
@@ -106,4 +116,9 @@ public class POP3Server extends AbstractProtocolAsyncServer implements POP3Serve
         return new LineDelimiterBasedChannelHandlerFactory(AbstractChannelPipelineFactory.MAX_LINE_LENGTH);
     }
 
+    @Override
+    protected org.apache.james.protocols.netty4.ChannelHandlerFactory createNetty4FrameHandlerFactory() {
+        return new org.apache.james.protocols.netty4.LineDelimiterBasedChannelHandlerFactory(Netty4Server.MAX_LINE_LENGTH);
+    }
+
 }
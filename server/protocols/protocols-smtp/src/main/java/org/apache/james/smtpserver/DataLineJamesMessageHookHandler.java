@@ -80,19 +80,18 @@ public class DataLineJamesMessageHookHandler implements DataLineFilter, Extensib
     }
 
     @Override
-    public Response onLine(SMTPSession session, ByteBuffer lineByteBuffer, LineHandler<SMTPSession> next) {
-
-        byte[] line = new byte[lineByteBuffer.remaining()];
-        lineByteBuffer.get(line, 0, line.length);
+    public Response onLine(SMTPSession session, ByteBuffer line, LineHandler<SMTPSession> next) {
 
         MimeMessageInputStreamSource mmiss = (MimeMessageInputStreamSource) session.getAttachment(SMTPConstants.DATA_MIMEMESSAGE_STREAMSOURCE, State.Transaction);
 
         try {
             OutputStream out = mmiss.getWritableOutputStream();
 
+            int length = line.remaining();
+            int start = line.position();
             // 46 is "."
             // Stream terminated
-            if (line.length == 3 && line[0] == 46) {
+            if (length == 3 && line.get(start) == 46) {
                 out.flush();
                 out.close();
 
@@ -126,14 +125,14 @@ public class DataLineJamesMessageHookHandler implements DataLineFilter, Extensib
                 }
 
                 // DotStuffing.
-            } else if (line[0] == 46 && line[1] == 46) {
-                out.write(line, 1, line.length - 1);
+            } else if (length >= 2 && line.get(start) == 46 && line.get(start + 1) == 46) {
+                write(out, line, 1);
                 // Standard write
             } else {
                 // TODO: maybe we should handle the Header/Body recognition here
                 // and if needed let a filter to cache the headers to apply some
                 // transformation before writing them to output.
-                out.write(line);
+                write(out, line, 0);
             }
         } catch (IOException e) {
             LifecycleUtil.dispose(mmiss);
@@ -144,6 +143,23 @@ public class DataLineJamesMessageHookHandler implements DataLineFilter, Extensib
         return null;
     }
 
+    /**
+     * Write the line, minus its first skipped bytes, straight from the backing array of
+     * the buffer when it has one to avoid copying every line of the payload.
+     */
+    private void write(OutputStream out, ByteBuffer line, int skipped) throws IOException {
+        int length = line.remaining() - skipped;
+        if (line.hasArray()) {
+            out.write(line.array(), line.arrayOffset() + line.position() + skipped, length);
+        } else {
+            byte[] bytes = new byte[length];
+            ByteBuffer duplicate = line.duplicate();
+            duplicate.position(duplicate.position() + skipped);
+            duplicate.get(bytes);
+            out.write(bytes);
+        }
+    }
+
     protected Response processExtensions(SMTPSession session, Mail mail) {
         if (mail != null && messageHandlers != null) {
             try {
@@ -21,6 +21,7 @@ package org.apache.james.smtpserver;
 import org.apache.james.protocols.api.ProtocolTransport;
 import org.apache.james.protocols.smtp.SMTPConfiguration;
 import org.apache.james.protocols.smtp.SMTPSession;
+import org.apache.james.server.core.MimeMessageInputStreamSource;
 import org.apache.james.smtpserver.netty.SMTPServer.SMTPHandlerConfigurationDataImpl;
 
 /**
@@ -38,4 +39,15 @@ public class ExtendedSMTPSession extends org.apache.james.protocols.smtp.SMTPSes
     public boolean verifyIdentity() {
         return !(smtpConfiguration instanceof SMTPHandlerConfigurationDataImpl) || ((SMTPHandlerConfigurationDataImpl) smtpConfiguration).verifyIdentity();
     }
+
+    /**
+     * Create the source the DATA payload is written to, honoring the spill settings of the server
+     */
+    public MimeMessageInputStreamSource createMessageSource(String key) {
+        if (smtpConfiguration instanceof SMTPHandlerConfigurationDataImpl) {
+            SMTPHandlerConfigurationDataImpl configuration = (SMTPHandlerConfigurationDataImpl) smtpConfiguration;
+            return new MimeMessageInputStreamSource(key, configuration.getDataSpillThreshold(), configuration.getDataSpillDirectory());
+        }
+        return new MimeMessageInputStreamSource(key);
+    }
 }
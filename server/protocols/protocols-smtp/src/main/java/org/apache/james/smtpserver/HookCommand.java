@@ -0,0 +1,61 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.smtpserver;
+
+import java.util.Locale;
+import java.util.Optional;
+
+import org.apache.james.protocols.smtp.hook.AuthHook;
+import org.apache.james.protocols.smtp.hook.Hook;
+import org.apache.james.protocols.smtp.hook.MessageHook;
+import org.apache.james.util.MDCBuilder;
+import org.slf4j.MDC;
+
+/**
+ * Resolves the SMTP command during which a {@link Hook} was run.
+ *
+ * Command hooks run while the command is set as {@link MDCBuilder#ACTION}, message hooks
+ * run once the message was received and are accounted to DATA.
+ */
+public class HookCommand {
+
+    public static final String DATA = "DATA";
+    public static final String AUTH = "AUTH";
+    public static final String UNKNOWN = "UNKNOWN";
+
+    public static String of(Hook hook) {
+        if (hook instanceof MessageHook || hook instanceof JamesMessageHook) {
+            return DATA;
+        }
+        return Optional.ofNullable(MDC.get(MDCBuilder.ACTION))
+            .map(action -> action.toUpperCase(Locale.US))
+            .orElseGet(() -> fallback(hook));
+    }
+
+    private static String fallback(Hook hook) {
+        if (hook instanceof AuthHook) {
+            return AUTH;
+        }
+        return UNKNOWN;
+    }
+
+    private HookCommand() {
+    }
+}
@@ -52,7 +52,7 @@ public class JamesDataCmdHandler extends DataCmdHandler {
     @Override
     protected SMTPResponse doDATA(SMTPSession session, String argument) {
         try {
-            MimeMessageInputStreamSource mmiss = new MimeMessageInputStreamSource(MailImpl.getId());
+            MimeMessageInputStreamSource mmiss = createMessageSource(session);
             session.setAttachment(SMTPConstants.DATA_MIMEMESSAGE_STREAMSOURCE, mmiss, State.Transaction);
         } catch (Exception e) {
             LOGGER.warn("Error creating mimemessagesource for incoming data", e);
@@ -65,4 +65,11 @@ public class JamesDataCmdHandler extends DataCmdHandler {
         return new SMTPResponse(SMTPRetCode.DATA_READY, "Ok Send data ending with <CRLF>.<CRLF>");
     }
 
+    private MimeMessageInputStreamSource createMessageSource(SMTPSession session) {
+        if (session instanceof ExtendedSMTPSession) {
+            return ((ExtendedSMTPSession) session).createMessageSource(MailImpl.getId());
+        }
+        return new MimeMessageInputStreamSource(MailImpl.getId());
+    }
+
 }
@@ -0,0 +1,159 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.smtpserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.HierarchicalConfiguration;
+import org.apache.james.lifecycle.api.Configurable;
+import org.apache.james.protocols.api.ProtocolSession.State;
+import org.apache.james.protocols.api.handler.DisconnectHandler;
+import org.apache.james.protocols.smtp.SMTPSession;
+import org.apache.james.protocols.smtp.hook.Hook;
+import org.apache.james.protocols.smtp.hook.HookResult;
+import org.apache.james.protocols.smtp.hook.HookResultHook;
+import org.apache.james.protocols.smtp.hook.HookReturnCode;
+import org.apache.james.util.TimeConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Records the execution time of every hook run during a SMTP session and logs the whole
+ * timeline when the session is closed, if the time spent in hooks reached the configured
+ * <code>threshold</code> (defaults to 10 seconds).
+ */
+public class SlowTransactionLogHandler implements HookResultHook, DisconnectHandler<SMTPSession>, Configurable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlowTransactionLogHandler.class);
+
+    public static final String DEFAULT_THRESHOLD = "10s";
+    public static final int MAX_ENTRIES = 1000;
+
+    private static final String TIMELINE = SlowTransactionLogHandler.class.getName() + ".timeline";
+
+    private long thresholdInMs = TimeConverter.getMilliSeconds(DEFAULT_THRESHOLD);
+
+    @Override
+    public void configure(HierarchicalConfiguration config) throws ConfigurationException {
+        try {
+            setThreshold(config.getString("threshold", DEFAULT_THRESHOLD));
+        } catch (NumberFormatException e) {
+            throw new ConfigurationException("Please configure a valid threshold", e);
+        }
+    }
+
+    /**
+     * Set the time spent in hooks above which the session timeline gets logged
+     *
+     * @param rawThreshold
+     *            The time
+     */
+    public void setThreshold(String rawThreshold) {
+        this.thresholdInMs = TimeConverter.getMilliSeconds(rawThreshold);
+    }
+
+    @Override
+    public HookResult onHookResult(SMTPSession session, HookResult result, long executionTime, Hook hook) {
+        timeline(session).record(new Entry(HookCommand.of(hook), hook.getClass().getName(), result.getResult().getAction(), executionTime));
+        return result;
+    }
+
+    @Override
+    public void onDisconnect(SMTPSession session) {
+        report(session).ifPresent(LOGGER::warn);
+    }
+
+    @VisibleForTesting
+    Optional<String> report(SMTPSession session) {
+        return Optional.ofNullable((Timeline) session.getAttachment(TIMELINE, State.Connection))
+            .filter(timeline -> timeline.totalInMs >= thresholdInMs)
+            .map(timeline -> timeline.describe(session.getSessionID()));
+    }
+
+    private Timeline timeline(SMTPSession session) {
+        Timeline timeline = (Timeline) session.getAttachment(TIMELINE, State.Connection);
+        if (timeline == null) {
+            timeline = new Timeline();
+            session.setAttachment(TIMELINE, timeline, State.Connection);
+        }
+        return timeline;
+    }
+
+    @Override
+    public void init(Configuration config) throws ConfigurationException {
+
+    }
+
+    @Override
+    public void destroy() {
+
+    }
+
+    private static class Entry {
+        private final String command;
+        private final String hookName;
+        private final HookReturnCode.Action action;
+        private final long executionTimeInMs;
+
+        private Entry(String command, String hookName, HookReturnCode.Action action, long executionTimeInMs) {
+            this.command = command;
+            this.hookName = hookName;
+            this.action = action;
+            this.executionTimeInMs = executionTimeInMs;
+        }
+    }
+
+    private static class Timeline {
+        private final List<Entry> entries = new ArrayList<>();
+        private long totalInMs;
+        private int dropped;
+
+        private void record(Entry entry) {
+            totalInMs += entry.executionTimeInMs;
+            if (entries.size() < MAX_ENTRIES) {
+                entries.add(entry);
+            } else {
+                dropped++;
+            }
+        }
+
+        private String describe(String sessionId) {
+            StringBuilder builder = new StringBuilder()
+                .append("Slow SMTP session ").append(sessionId)
+                .append(": ").append(totalInMs).append(" ms spent in hooks");
+            for (Entry entry : entries) {
+                builder.append("\n    ").append(entry.command)
+                    .append(' ').append(entry.hookName)
+                    .append(' ').append(entry.action)
+                    .append(' ').append(entry.executionTimeInMs).append(" ms");
+            }
+            if (dropped > 0) {
+                builder.append("\n    ... ").append(dropped).append(" more hooks");
+            }
+            return builder.toString();
+        }
+    }
+}
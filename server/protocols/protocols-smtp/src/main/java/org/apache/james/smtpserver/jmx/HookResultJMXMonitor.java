@@ -18,13 +18,18 @@
  ****************************************************************/
 package org.apache.james.smtpserver.jmx;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
+import javax.inject.Inject;
+
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
+import org.apache.james.metrics.api.MetricFactory;
 import org.apache.james.protocols.api.handler.ExtensibleHandler;
 import org.apache.james.protocols.api.handler.ProtocolHandler;
 import org.apache.james.protocols.api.handler.WiringException;
@@ -32,16 +37,26 @@ import org.apache.james.protocols.smtp.SMTPSession;
 import org.apache.james.protocols.smtp.hook.Hook;
 import org.apache.james.protocols.smtp.hook.HookResult;
 import org.apache.james.protocols.smtp.hook.HookResultHook;
+import org.apache.james.smtpserver.HookCommand;
 
 /**
  * {@link HookResultHook} implementation which will register a
- * {@link HookStatsMBean} under JMX for every Hook it processed
+ * {@link HookStatsMBean} under JMX for every Hook it processed.
+ *
+ * The execution time of every hook is also published as a timer named
+ * <code>SMTP-&lt;command&gt;-&lt;hook class&gt;</code> through the {@link MetricFactory}.
  */
 public class HookResultJMXMonitor implements HookResultHook, ExtensibleHandler, ProtocolHandler {
 
     private final Map<String, HookStats> hookStats = new HashMap<>();
+    private final MetricFactory metricFactory;
     private String jmxPath;
 
+    @Inject
+    public HookResultJMXMonitor(MetricFactory metricFactory) {
+        this.metricFactory = metricFactory;
+    }
+
     @Override
     public HookResult onHookResult(SMTPSession session, HookResult result, long executionTime, Hook hook) {
         String hookName = hook.getClass().getName();
@@ -49,9 +64,14 @@ public class HookResultJMXMonitor implements HookResultHook, ExtensibleHandler,
         if (stats != null) {
             stats.increment(result.getResult());
         }
+        metricFactory.publishTimerMetric(timerName(hook), Duration.ofMillis(executionTime));
         return result;
     }
 
+    private String timerName(Hook hook) {
+        return "SMTP-" + HookCommand.of(hook).toLowerCase(Locale.US) + "-" + hook.getClass().getName();
+    }
+
     @Override
     public List<Class<?>> getMarkerInterfaces() {
         List<Class<?>> marker = new ArrayList<>();
@@ -54,4 +54,12 @@ public class OioSMTPServer extends SMTPServer {
     protected ExecutionHandler createExecutionHander() {
         return null;
     }
+
+    /**
+     * Old IO sockets are only available with Netty 3
+     */
+    @Override
+    protected boolean isNetty4Supported() {
+        return false;
+    }
 }
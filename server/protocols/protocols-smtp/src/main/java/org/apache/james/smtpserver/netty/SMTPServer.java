@@ -18,6 +18,8 @@
  ****************************************************************/
 package org.apache.james.smtpserver.netty;
 
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.util.Locale;
 
 import javax.inject.Inject;
@@ -32,16 +34,22 @@ import org.apache.james.protocols.lib.handler.HandlersPackage;
 import org.apache.james.protocols.lib.netty.AbstractProtocolAsyncServer;
 import org.apache.james.protocols.netty.AbstractChannelPipelineFactory;
 import org.apache.james.protocols.netty.ChannelHandlerFactory;
+import org.apache.james.protocols.netty4.Netty4Server;
 import org.apache.james.protocols.smtp.AllButStartTlsLineChannelHandlerFactory;
 import org.apache.james.protocols.smtp.SMTPConfiguration;
 import org.apache.james.protocols.smtp.SMTPProtocol;
+import org.apache.james.server.core.MimeMessageInputStreamSource;
 import org.apache.james.smtpserver.CoreCmdHandlerLoader;
 import org.apache.james.smtpserver.ExtendedSMTPSession;
 import org.apache.james.smtpserver.jmx.JMXHandlersLoader;
+import org.apache.james.smtpserver.netty4.SMTPChannelInboundHandler;
+import org.apache.james.util.Size;
 import org.jboss.netty.channel.ChannelUpstreamHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.netty.channel.ChannelHandler;
+
 /**
  * NIO SMTPServer which use Netty
  */
@@ -78,6 +86,17 @@ public class SMTPServer extends AbstractProtocolAsyncServer implements SMTPServe
      */
     private long maxMessageSize = 0;
 
+    /**
+     * The number of bytes of a DATA payload kept in memory before spilling
+     * to a temporary file.
+     */
+    private int dataSpillThreshold = MimeMessageInputStreamSource.DEFAULT_THRESHOLD;
+
+    /**
+     * The directory DATA payloads spill to.
+     */
+    private File dataSpillDirectory = MimeMessageInputStreamSource.DEFAULT_TMPDIR;
+
     /**
      * The configuration data to be passed to the handler
      */
@@ -91,6 +110,7 @@ public class SMTPServer extends AbstractProtocolAsyncServer implements SMTPServe
     private DNSService dns;
     private String authorizedAddresses;
     
+    private SMTPProtocol protocol;
     private SMTPChannelUpstreamHandler coreHandler;
 
     public SMTPServer(SmtpMetrics smtpMetrics) {
@@ -114,7 +134,7 @@ public class SMTPServer extends AbstractProtocolAsyncServer implements SMTPServe
             }
             authorizedNetworks = new NetMatcher(networks, dns);
         }
-        SMTPProtocol transport = new SMTPProtocol(getProtocolHandlerChain(), theConfigData) {
+        protocol = new SMTPProtocol(getProtocolHandlerChain(), theConfigData) {
 
             @Override
             public ProtocolSession newSession(ProtocolTransport transport) {
@@ -122,7 +142,7 @@ public class SMTPServer extends AbstractProtocolAsyncServer implements SMTPServe
             }
             
         };
-        coreHandler = new SMTPChannelUpstreamHandler(transport, getEncryption(), smtpMetrics);
+        coreHandler = new SMTPChannelUpstreamHandler(protocol, getEncryption(), smtpMetrics);
     }
 
     @Override
@@ -188,6 +208,40 @@ public class SMTPServer extends AbstractProtocolAsyncServer implements SMTPServe
 
             verifyIdentity = configuration.getBoolean("verifyIdentity", true);
 
+            dataSpillThreshold = parseDataSpillThreshold(configuration.getString("dataSpillThreshold", null));
+            dataSpillDirectory = resolveDataSpillDirectory(configuration.getString("dataSpillDirectory", null));
+            LOGGER.info("DATA payloads above {} bytes spill to {}", dataSpillThreshold, dataSpillDirectory);
+        }
+    }
+
+    private int parseDataSpillThreshold(String threshold) throws ConfigurationException {
+        if (threshold == null) {
+            return MimeMessageInputStreamSource.DEFAULT_THRESHOLD;
+        }
+        long bytes;
+        try {
+            bytes = Size.parse(threshold).asBytes();
+        } catch (Exception e) {
+            throw new ConfigurationException("Invalid dataSpillThreshold: " + threshold, e);
+        }
+        if (bytes < 0 || bytes > Integer.MAX_VALUE) {
+            throw new ConfigurationException("dataSpillThreshold needs to be between 0 and " + Integer.MAX_VALUE + " bytes: " + threshold);
+        }
+        return (int) bytes;
+    }
+
+    private File resolveDataSpillDirectory(String directory) throws ConfigurationException {
+        if (directory == null) {
+            return MimeMessageInputStreamSource.DEFAULT_TMPDIR;
+        }
+        try {
+            File file = getFileSystem().getFile(directory);
+            if (!file.isDirectory() && !file.mkdirs()) {
+                throw new ConfigurationException("Unable to create dataSpillDirectory " + file);
+            }
+            return file;
+        } catch (FileNotFoundException e) {
+            throw new ConfigurationException("Unable to resolve dataSpillDirectory " + directory, e);
         }
     }
 
@@ -267,6 +321,14 @@ public class SMTPServer extends AbstractProtocolAsyncServer implements SMTPServe
             return SMTPServer.this.verifyIdentity;
         }
 
+        public int getDataSpillThreshold() {
+            return SMTPServer.this.dataSpillThreshold;
+        }
+
+        public File getDataSpillDirectory() {
+            return SMTPServer.this.dataSpillDirectory;
+        }
+
         @Override
         public String getGreeting() {
             return SMTPServer.this.smtpGreeting;
@@ -324,6 +386,11 @@ public class SMTPServer extends AbstractProtocolAsyncServer implements SMTPServe
         return coreHandler;
     }
 
+    @Override
+    protected ChannelHandler createNetty4CoreHandler() {
+        return new SMTPChannelInboundHandler(protocol, getEncryption(), smtpMetrics);
+    }
+
     @Override
     protected Class<? extends HandlersPackage> getCoreHandlersPackage() {
         return CoreCmdHandlerLoader.class;
@@ -339,6 +406,11 @@ public class SMTPServer extends AbstractProtocolAsyncServer implements SMTPServe
         return new AllButStartTlsLineChannelHandlerFactory(AbstractChannelPipelineFactory.MAX_LINE_LENGTH);
     }
 
+    @Override
+    protected org.apache.james.protocols.netty4.ChannelHandlerFactory createNetty4FrameHandlerFactory() {
+        return new org.apache.james.protocols.smtp.netty4.AllButStartTlsLineChannelHandlerFactory(Netty4Server.MAX_LINE_LENGTH);
+    }
+
     public int getAuthRequired() {
         return authRequired;
     }
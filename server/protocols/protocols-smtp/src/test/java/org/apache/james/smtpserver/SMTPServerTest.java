@@ -24,6 +24,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -74,7 +75,9 @@ import org.jboss.netty.util.HashedWheelTimer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -181,6 +184,9 @@ public class SMTPServerTest {
 
     private SMTPServer smtpServer;
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
     public void setUp() throws Exception {
         createMailRepositoryStore();
@@ -412,6 +418,37 @@ public class SMTPServerTest {
             .isNotNull();
     }
 
+    @Test
+    public void messagesAboveTheDataSpillThresholdShouldBeReceived() throws Exception {
+        File spillDirectory = temporaryFolder.newFolder();
+        smtpConfiguration.setDataSpill("1K", "file://" + spillDirectory.getAbsolutePath());
+        init(smtpConfiguration);
+
+        SMTPClient smtpProtocol = new SMTPClient();
+        InetSocketAddress bindedAddress = new ProtocolServerUtils(smtpServer).retrieveBindedAddress();
+        smtpProtocol.connect(bindedAddress.getAddress().getHostAddress(), bindedAddress.getPort());
+        smtpProtocol.sendCommand("EHLO " + InetAddress.getLocalHost());
+        smtpProtocol.setSender("mail@localhost");
+        smtpProtocol.addRecipient("mail@localhost");
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append("Subject: test\r\n\r\n");
+        String repeatedString = "This is the repeated body...\r\n";
+        for (int i = 0; i < 200; i++) {
+            stringBuilder.append(repeatedString);
+        }
+        stringBuilder.append("..dot stuffed line\r\n");
+        stringBuilder.append("\r\n.\r\n");
+        smtpProtocol.sendShortMessageData(stringBuilder.toString());
+        smtpProtocol.quit();
+        smtpProtocol.disconnect();
+
+        Mail mail = queue.getLastMail();
+        assertThat(mail)
+            .as("mail received by mail server")
+            .isNotNull();
+        assertThat(mail.getMessageSize()).isGreaterThan(200 * repeatedString.length());
+    }
+
     @Test
     public void messageExceedingMessageSizeShouldBeDiscarded() throws Exception {
         // Given
@@ -45,6 +45,8 @@ public class SMTPTestConfiguration extends DefaultConfigurationBuilder {
     private boolean useRBL = false;
     private boolean addressBracketsEnforcement = true;
     private boolean startTLS = false;
+    private String dataSpillThreshold = null;
+    private String dataSpillDirectory = null;
 
     public void setCheckAuthNetworks(boolean checkAuth) {
         checkAuthNetworks = checkAuth;
@@ -129,6 +131,11 @@ public class SMTPTestConfiguration extends DefaultConfigurationBuilder {
         startTLS = true;
     }
 
+    public void setDataSpill(String threshold, String directory) {
+        dataSpillThreshold = threshold;
+        dataSpillDirectory = directory;
+    }
+
     public void init() {
 
         addProperty("[@enabled]", true);
@@ -155,6 +162,12 @@ public class SMTPTestConfiguration extends DefaultConfigurationBuilder {
         if (verifyIdentity) {
             addProperty("verifyIdentity", verifyIdentity);
         }
+        if (dataSpillThreshold != null) {
+            addProperty("dataSpillThreshold", dataSpillThreshold);
+        }
+        if (dataSpillDirectory != null) {
+            addProperty("dataSpillDirectory", dataSpillDirectory);
+        }
 
         // add the rbl handler
         if (useRBL) {
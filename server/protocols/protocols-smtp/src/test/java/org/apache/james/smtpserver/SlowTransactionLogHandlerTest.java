@@ -0,0 +1,122 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.smtpserver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.DefaultConfigurationBuilder;
+import org.apache.james.protocols.smtp.SMTPSession;
+import org.apache.james.protocols.smtp.hook.HookResult;
+import org.apache.james.protocols.smtp.utils.BaseFakeSMTPSession;
+import org.apache.james.util.MDCBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SlowTransactionLogHandlerTest {
+
+    private SlowTransactionLogHandler testee;
+    private SMTPSession session;
+
+    @Before
+    public void setUp() {
+        testee = new SlowTransactionLogHandler();
+        testee.setThreshold("100ms");
+        session = new BaseFakeSMTPSession() {
+            private final Map<String, Object> attachments = new HashMap<>();
+
+            @Override
+            public Object setAttachment(String key, Object value, State state) {
+                return attachments.put(key, value);
+            }
+
+            @Override
+            public Object getAttachment(String key, State state) {
+                return attachments.get(key);
+            }
+
+            @Override
+            public String getSessionID() {
+                return "session-1";
+            }
+        };
+    }
+
+    @Test
+    public void reportShouldBeEmptyWhenNoHookWasRun() {
+        assertThat(testee.report(session)).isEmpty();
+    }
+
+    @Test
+    public void reportShouldBeEmptyWhenBelowThreshold() {
+        testee.onHookResult(session, HookResult.DECLINED, 99, new AddDefaultAttributesMessageHook());
+
+        assertThat(testee.report(session)).isEmpty();
+    }
+
+    @Test
+    public void reportShouldSumHookExecutionTimes() {
+        testee.onHookResult(session, HookResult.DECLINED, 60, new AddDefaultAttributesMessageHook());
+        testee.onHookResult(session, HookResult.OK, 40, new AddDefaultAttributesMessageHook());
+
+        assertThat(testee.report(session).get()).startsWith("Slow SMTP session session-1: 100 ms spent in hooks");
+    }
+
+    @Test
+    public void reportShouldContainTheHookTimeline() throws Exception {
+        try (Closeable closeable = MDCBuilder.create()
+                .addContext(MDCBuilder.ACTION, "rcpt")
+                .build()) {
+            testee.onHookResult(session, HookResult.DENY, 30, new AuthRequiredToRelayRcptHook());
+        }
+        testee.onHookResult(session, HookResult.OK, 120, new AddDefaultAttributesMessageHook());
+
+        assertThat(testee.report(session).get()).contains(
+            "RCPT " + AuthRequiredToRelayRcptHook.class.getName() + " DENY 30 ms",
+            "DATA " + AddDefaultAttributesMessageHook.class.getName() + " OK 120 ms");
+    }
+
+    @Test
+    public void reportShouldBoundTheTimeline() {
+        for (int i = 0; i < SlowTransactionLogHandler.MAX_ENTRIES + 5; i++) {
+            testee.onHookResult(session, HookResult.DECLINED, 1, new AddDefaultAttributesMessageHook());
+        }
+
+        assertThat(testee.report(session).get()).endsWith("... 5 more hooks");
+    }
+
+    @Test
+    public void onHookResultShouldReturnTheHookResult() {
+        assertThat(testee.onHookResult(session, HookResult.DENY, 1, new AddDefaultAttributesMessageHook()))
+            .isEqualTo(HookResult.DENY);
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void configureShouldThrowOnInvalidThreshold() throws Exception {
+        DefaultConfigurationBuilder configuration = new DefaultConfigurationBuilder();
+        configuration.addProperty("threshold", "1 unit");
+
+        testee.configure(configuration);
+    }
+}
@@ -0,0 +1,118 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.webadmin.routes;
+
+import javax.inject.Inject;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+import org.apache.james.blob.api.BlobGarbageCollectionTask;
+import org.apache.james.blob.api.BlobReferenceBackfillTask;
+import org.apache.james.blob.api.BlobReferenceRegistry;
+import org.apache.james.blob.api.BlobStore;
+import org.apache.james.task.TaskId;
+import org.apache.james.task.TaskManager;
+import org.apache.james.webadmin.Routes;
+import org.apache.james.webadmin.dto.TaskIdDto;
+import org.apache.james.webadmin.utils.ErrorResponder;
+import org.apache.james.webadmin.utils.ErrorResponder.ErrorType;
+import org.apache.james.webadmin.utils.JsonTransformer;
+import org.eclipse.jetty.http.HttpStatus;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import io.swagger.annotations.ResponseHeader;
+import spark.Request;
+import spark.Response;
+import spark.Service;
+
+@Api(tags = "Garbage collection of the blobs no longer referenced")
+@Path(":cassandra/blobs")
+@Produces("application/json")
+public class CassandraBlobRoutes implements Routes {
+
+    public static final String BASE = "/cassandra/blobs";
+    public static final String ORPHANS = BASE + "/orphans";
+    public static final String UNTRACKED = BASE + "/untracked";
+
+    private final BlobStore blobStore;
+    private final BlobReferenceRegistry referenceRegistry;
+    private final TaskManager taskManager;
+    private final JsonTransformer jsonTransformer;
+
+    @Inject
+    public CassandraBlobRoutes(BlobStore blobStore, BlobReferenceRegistry referenceRegistry, TaskManager taskManager, JsonTransformer jsonTransformer) {
+        this.blobStore = blobStore;
+        this.referenceRegistry = referenceRegistry;
+        this.taskManager = taskManager;
+        this.jsonTransformer = jsonTransformer;
+    }
+
+    @Override
+    public String getBasePath() {
+        return BASE;
+    }
+
+    @Override
+    public void define(Service service) {
+        service.post(ORPHANS, this::collectOrphans, jsonTransformer);
+        service.post(UNTRACKED, this::backfillUntrackedBlobs, jsonTransformer);
+    }
+
+    @POST
+    @Path("/orphans")
+    @ApiOperation("Triggers the deletion of the blobs no longer referenced.")
+    @ApiResponses(
+        {
+            @ApiResponse(code = HttpStatus.CREATED_201, message = "The taskId of the given scheduled task",
+                response = TaskIdDto.class, responseHeaders = {
+                @ResponseHeader(name = "Location", description = "URL of the resource associated with the scheduled task")
+            }),
+            @ApiResponse(code = HttpStatus.CONFLICT_409, message = "Untracked blobs were not registered yet")
+        })
+    public Object collectOrphans(Request request, Response response) {
+        if (!referenceRegistry.isBackfillCompleted().join()) {
+            throw ErrorResponder.builder()
+                .statusCode(HttpStatus.CONFLICT_409)
+                .type(ErrorType.WRONG_STATE)
+                .message("Untracked blobs need to be registered first, through POST " + UNTRACKED)
+                .haltError();
+        }
+        TaskId taskId = taskManager.submit(new BlobGarbageCollectionTask(blobStore, referenceRegistry));
+        return TaskIdDto.respond(response, taskId);
+    }
+
+    @POST
+    @Path("/untracked")
+    @ApiOperation("Registers the blobs stored before references were counted, so that they are never deleted.")
+    @ApiResponses(
+        {
+            @ApiResponse(code = HttpStatus.CREATED_201, message = "The taskId of the given scheduled task",
+                response = TaskIdDto.class, responseHeaders = {
+                @ResponseHeader(name = "Location", description = "URL of the resource associated with the scheduled task")
+            })
+        })
+    public Object backfillUntrackedBlobs(Request request, Response response) {
+        TaskId taskId = taskManager.submit(new BlobReferenceBackfillTask(blobStore, referenceRegistry));
+        return TaskIdDto.respond(response, taskId);
+    }
+}
@@ -0,0 +1,178 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+package org.apache.james.webadmin.routes;
+
+import static io.restassured.RestAssured.given;
+import static io.restassured.RestAssured.with;
+import static org.apache.james.webadmin.WebAdminServer.NO_CONFIGURATION;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import org.apache.james.blob.api.BlobGarbageCollectionTask;
+import org.apache.james.blob.api.BlobId;
+import org.apache.james.blob.api.BlobReferenceBackfillTask;
+import org.apache.james.blob.api.BlobReferenceRegistry;
+import org.apache.james.blob.api.BlobReferenceRegistry.Orphan;
+import org.apache.james.blob.api.BlobStore;
+import org.apache.james.blob.api.HashBlobId;
+import org.apache.james.metrics.logger.DefaultMetricFactory;
+import org.apache.james.task.MemoryTaskManager;
+import org.apache.james.webadmin.WebAdminServer;
+import org.apache.james.webadmin.WebAdminUtils;
+import org.apache.james.webadmin.utils.JsonTransformer;
+import org.eclipse.jetty.http.HttpStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.restassured.RestAssured;
+
+public class CassandraBlobRoutesTest {
+    private static final BlobId BLOB_ID = new HashBlobId.Factory().from("blob");
+
+    private WebAdminServer webAdminServer;
+    private BlobStore blobStore;
+    private BlobReferenceRegistry referenceRegistry;
+    private MemoryTaskManager taskManager;
+
+    @Before
+    public void setUp() throws Exception {
+        blobStore = mock(BlobStore.class);
+        referenceRegistry = mock(BlobReferenceRegistry.class);
+        when(referenceRegistry.isBackfillCompleted()).thenReturn(CompletableFuture.completedFuture(true));
+        taskManager = new MemoryTaskManager();
+        JsonTransformer jsonTransformer = new JsonTransformer();
+        webAdminServer = WebAdminUtils.createWebAdminServer(
+            new DefaultMetricFactory(),
+            new CassandraBlobRoutes(blobStore, referenceRegistry, taskManager, jsonTransformer),
+            new TasksRoutes(taskManager, jsonTransformer));
+
+        webAdminServer.configure(NO_CONFIGURATION);
+        webAdminServer.await();
+
+        RestAssured.requestSpecification = WebAdminUtils.buildRequestSpecification(webAdminServer)
+            .setBasePath(CassandraBlobRoutes.BASE)
+            .build();
+    }
+
+    @After
+    public void tearDown() {
+        webAdminServer.destroy();
+        taskManager.stop();
+    }
+
+    @Test
+    public void postShouldScheduleGarbageCollection() {
+        when(referenceRegistry.listOrphans()).thenReturn(CompletableFuture.completedFuture(Stream.empty()));
+
+        String taskId = with()
+            .post("/orphans")
+            .jsonPath()
+            .get("taskId");
+
+        given()
+            .basePath(TasksRoutes.BASE)
+        .when()
+            .get(taskId + "/await")
+        .then()
+            .body("status", is("completed"))
+            .body("type", is(BlobGarbageCollectionTask.BLOB_GARBAGE_COLLECTION))
+            .body("additionalInformation.orphanCount", is(0));
+    }
+
+    @Test
+    public void postShouldReturnTaskId() {
+        when(referenceRegistry.listOrphans()).thenReturn(CompletableFuture.completedFuture(Stream.empty()));
+
+        given()
+            .post("/orphans")
+        .then()
+            .statusCode(HttpStatus.CREATED_201)
+            .body("taskId", notNullValue());
+    }
+
+    @Test
+    public void garbageCollectionShouldDeleteOldOrphans() {
+        Orphan orphan = new Orphan(BLOB_ID, Instant.EPOCH);
+        when(referenceRegistry.listOrphans()).thenReturn(CompletableFuture.completedFuture(Stream.of(orphan)));
+        when(referenceRegistry.claimOrphan(orphan)).thenReturn(CompletableFuture.completedFuture(true));
+        when(referenceRegistry.countReferences(BLOB_ID)).thenReturn(CompletableFuture.completedFuture(0L));
+        when(referenceRegistry.isUntracked(BLOB_ID)).thenReturn(CompletableFuture.completedFuture(false));
+        when(referenceRegistry.startDeletion(BLOB_ID)).thenReturn(CompletableFuture.completedFuture(true));
+        when(referenceRegistry.endDeletion(BLOB_ID)).thenReturn(CompletableFuture.completedFuture(null));
+        when(blobStore.delete(BLOB_ID)).thenReturn(CompletableFuture.completedFuture(null));
+
+        String taskId = with()
+            .post("/orphans")
+            .jsonPath()
+            .get("taskId");
+
+        given()
+            .basePath(TasksRoutes.BASE)
+        .when()
+            .get(taskId + "/await")
+        .then()
+            .body("status", is("completed"))
+            .body("additionalInformation.deletedBlobCount", is(1));
+
+        verify(blobStore).delete(BLOB_ID);
+    }
+
+    @Test
+    public void postShouldReturnConflictWhenUntrackedBlobsWereNotRegistered() {
+        when(referenceRegistry.isBackfillCompleted()).thenReturn(CompletableFuture.completedFuture(false));
+
+        given()
+            .post("/orphans")
+        .then()
+            .statusCode(HttpStatus.CONFLICT_409)
+            .body("type", is("WrongState"));
+    }
+
+    @Test
+    public void postUntrackedShouldRegisterStoredBlobs() {
+        when(blobStore.listBlobs()).thenReturn(CompletableFuture.completedFuture(Stream.of(BLOB_ID)));
+        when(referenceRegistry.registerUntracked(BLOB_ID)).thenReturn(CompletableFuture.completedFuture(null));
+        when(referenceRegistry.completeBackfill()).thenReturn(CompletableFuture.completedFuture(null));
+
+        String taskId = with()
+            .post("/untracked")
+            .jsonPath()
+            .get("taskId");
+
+        given()
+            .basePath(TasksRoutes.BASE)
+        .when()
+            .get(taskId + "/await")
+        .then()
+            .body("status", is("completed"))
+            .body("type", is(BlobReferenceBackfillTask.BLOB_REFERENCE_BACKFILL))
+            .body("additionalInformation.untrackedBlobCount", is(1));
+
+        verify(referenceRegistry).registerUntracked(BLOB_ID);
+        verify(referenceRegistry).completeBackfill();
+    }
+}
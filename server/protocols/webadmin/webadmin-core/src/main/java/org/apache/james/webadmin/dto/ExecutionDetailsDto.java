@@ -25,6 +25,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 import org.apache.james.task.TaskExecutionDetails;
+import org.apache.james.task.TaskProgress;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -63,6 +64,11 @@ public class ExecutionDetailsDto {
         return executionDetails.getAdditionalInformation();
     }
 
+    @JsonInclude(JsonInclude.Include.NON_ABSENT)
+    public Optional<TaskProgress> getProgress() {
+        return executionDetails.getProgress();
+    }
+
     @JsonInclude(JsonInclude.Include.NON_ABSENT)
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSZ")
     public Optional<ZonedDateTime> getSubmitDate() {
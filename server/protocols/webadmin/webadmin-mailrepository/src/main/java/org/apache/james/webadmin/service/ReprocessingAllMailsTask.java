@@ -29,6 +29,7 @@ import org.apache.james.mailrepository.api.MailRepositoryPath;
 import org.apache.james.mailrepository.api.MailRepositoryStore;
 import org.apache.james.task.Task;
 import org.apache.james.task.TaskExecutionDetails;
+import org.apache.james.task.TaskProgress;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -82,6 +83,7 @@ public class ReprocessingAllMailsTask implements Task {
     private final String targetQueue;
     private final Optional<String> targetProcessor;
     private final AdditionalInformation additionalInformation;
+    private final TaskProgress progress;
 
     public ReprocessingAllMailsTask(ReprocessingService reprocessingService, long repositorySize,
                                     MailRepositoryPath repositoryPath, String targetQueue, Optional<String> targetProcessor) {
@@ -91,12 +93,13 @@ public class ReprocessingAllMailsTask implements Task {
         this.targetProcessor = targetProcessor;
         this.additionalInformation = new AdditionalInformation(
             repositoryPath, targetQueue, targetProcessor, repositorySize);
+        this.progress = new TaskProgress();
     }
 
     @Override
     public Result run() {
         try {
-            reprocessingService.reprocessAll(repositoryPath, targetProcessor, targetQueue, additionalInformation::notifyProgress);
+            reprocessingService.reprocessAll(repositoryPath, targetProcessor, targetQueue, this::notifyProgress);
             return Result.COMPLETED;
         } catch (MessagingException | MailRepositoryStore.MailRepositoryStoreException e) {
             LOGGER.error("Encountered error while reprocessing repository", e);
@@ -104,6 +107,11 @@ public class ReprocessingAllMailsTask implements Task {
         }
     }
 
+    private void notifyProgress(MailKey key) {
+        additionalInformation.notifyProgress(key);
+        progress.recordProcessedItem();
+    }
+
     @Override
     public String type() {
         return TYPE;
@@ -114,4 +122,9 @@ public class ReprocessingAllMailsTask implements Task {
         return Optional.of(additionalInformation);
     }
 
+    @Override
+    public Optional<TaskProgress> progress() {
+        return Optional.of(progress);
+    }
+
 }
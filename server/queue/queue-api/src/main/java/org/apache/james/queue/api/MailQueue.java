@@ -19,12 +19,16 @@
 
 package org.apache.james.queue.api;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import javax.mail.MessagingException;
 
 import org.apache.mailet.Mail;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
 /**
  * <p>
  * A Queue/Spool for Mails. How the Queue handles the ordering of the dequeuing
@@ -97,6 +101,19 @@ public interface MailQueue {
      */
     MailQueueItem deQueue() throws MailQueueException, InterruptedException;
 
+    /**
+     * Dequeue several ready-to-process Mails at once. This method will block
+     * until at least one Mail is ready, and returns at most maxItems Mails.
+     * Each returned {@link MailQueueItem} needs to be acknowledged on its own.
+     *
+     * Implementations able to hand over several Mails in one operation should
+     * override the default implementation, which only dequeues a single Mail.
+     */
+    default List<MailQueueItem> deQueue(int maxItems) throws MailQueueException, InterruptedException {
+        Preconditions.checkArgument(maxItems > 0, "maxItems needs to be strictly positive");
+        return ImmutableList.of(deQueue());
+    }
+
     /**
      * Exception which will get thrown if any problems occur while working the
      * {@link MailQueue}
@@ -31,6 +31,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import java.io.Serializable;
 import java.time.Duration;
 import java.util.Date;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ExecutorService;
@@ -312,6 +313,38 @@ public interface MailQueueContract {
         assertThat(mailQueueItem2.getMail().getName()).isEqualTo("name1");
     }
 
+    @Test
+    default void batchDequeueShouldReturnAtLeastOneMail() throws Exception {
+        enQueue(defaultMail()
+            .name("name1")
+            .build());
+        enQueue(defaultMail()
+            .name("name2")
+            .build());
+
+        List<MailQueue.MailQueueItem> items = getMailQueue().deQueue(2);
+        for (MailQueue.MailQueueItem item : items) {
+            item.done(true);
+        }
+
+        assertThat(items.size()).isBetween(1, 2);
+        assertThat(items.get(0).getMail().getName()).isEqualTo("name1");
+    }
+
+    @Test
+    default void batchDequeueShouldThrowOnNonPositiveBatchSize() {
+        assertThatThrownBy(() -> getMailQueue().deQueue(0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    default void batchDequeueShouldBlockWhenNoMail(ExecutorService executorService) {
+        Future<?> future = executorService.submit(Throwing.runnable(() -> getMailQueue().deQueue(10)));
+
+        assertThatThrownBy(() -> future.get(2, TimeUnit.SECONDS))
+            .isInstanceOf(TimeoutException.class);
+    }
+
     @Test
     default void dequeueShouldNotReturnInProcessingEmails(ExecutorService executorService) throws Exception {
         enQueue(defaultMail()
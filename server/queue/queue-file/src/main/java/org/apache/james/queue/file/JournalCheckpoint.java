@@ -0,0 +1,149 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.queue.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Snapshot of the live entries of a {@link MailJournal}, so that recovery only needs to replay the records
+ * appended after it.
+ */
+public class JournalCheckpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalCheckpoint.class);
+
+    private static final int MAGIC = 0x4A4D5143;
+    private static final byte VERSION = 1;
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String TEMPORARY_CHECKPOINT_FILE = "checkpoint.tmp";
+
+    public static Optional<JournalCheckpoint> read(File directory) {
+        File file = new File(directory, CHECKPOINT_FILE);
+        if (!file.exists()) {
+            return Optional.empty();
+        }
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), crc))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                LOGGER.warn("Ignoring checkpoint {} with unknown format", file);
+                return Optional.empty();
+            }
+            long segmentId = in.readLong();
+            long offset = in.readLong();
+            long nextSequence = in.readLong();
+            int count = in.readInt();
+            ImmutableList.Builder<JournalEntry> entries = ImmutableList.builder();
+            for (int i = 0; i < count; i++) {
+                entries.add(new JournalEntry(in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readInt(), in.readInt()));
+            }
+            long expectedCrc = crc.getValue();
+            if (in.readLong() != expectedCrc) {
+                LOGGER.warn("Ignoring corrupted checkpoint {}", file);
+                return Optional.empty();
+            }
+            return Optional.of(new JournalCheckpoint(segmentId, offset, nextSequence, entries.build()));
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring unreadable checkpoint {}", file, e);
+            return Optional.empty();
+        }
+    }
+
+    private final long segmentId;
+    private final long offset;
+    private final long nextSequence;
+    private final Collection<JournalEntry> entries;
+
+    public JournalCheckpoint(long segmentId, long offset, long nextSequence, Collection<JournalEntry> entries) {
+        this.segmentId = segmentId;
+        this.offset = offset;
+        this.nextSequence = nextSequence;
+        this.entries = entries;
+    }
+
+    /**
+     * Atomically replaces the checkpoint stored in the given directory.
+     */
+    public void write(File directory) throws IOException {
+        File temporaryFile = new File(directory, TEMPORARY_CHECKPOINT_FILE);
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fileOutputStream = new FileOutputStream(temporaryFile)) {
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fileOutputStream), crc));
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(segmentId);
+            out.writeLong(offset);
+            out.writeLong(nextSequence);
+            out.writeInt(entries.size());
+            for (JournalEntry entry : entries) {
+                out.writeLong(entry.getSequence());
+                out.writeLong(entry.getDeliveryMillis());
+                out.writeLong(entry.getSegmentId());
+                out.writeLong(entry.getOffset());
+                out.writeInt(entry.getEnvelopeLength());
+                out.writeInt(entry.getMessageLength());
+            }
+            out.flush();
+            new DataOutputStream(fileOutputStream).writeLong(crc.getValue());
+            fileOutputStream.getFD().sync();
+        }
+        Files.move(temporaryFile.toPath(), new File(directory, CHECKPOINT_FILE).toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the id of the segment holding the first record not covered by this checkpoint
+     */
+    public long getSegmentId() {
+        return segmentId;
+    }
+
+    /**
+     * @return the offset of the first record not covered by this checkpoint
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getNextSequence() {
+        return nextSequence;
+    }
+
+    public Collection<JournalEntry> getEntries() {
+        return entries;
+    }
+}
@@ -0,0 +1,115 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.queue.file;
+
+import java.util.Objects;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Location of an enqueued mail within the {@link MailJournal}, together with its scheduling information.
+ */
+public class JournalEntry {
+    private final long sequence;
+    private final long deliveryMillis;
+    private final long segmentId;
+    private final long offset;
+    private final int envelopeLength;
+    private final int messageLength;
+
+    public JournalEntry(long sequence, long deliveryMillis, long segmentId, long offset, int envelopeLength, int messageLength) {
+        this.sequence = sequence;
+        this.deliveryMillis = deliveryMillis;
+        this.segmentId = segmentId;
+        this.offset = offset;
+        this.envelopeLength = envelopeLength;
+        this.messageLength = messageLength;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getDeliveryMillis() {
+        return deliveryMillis;
+    }
+
+    public long getSegmentId() {
+        return segmentId;
+    }
+
+    /**
+     * Offset of the record holding this entry within its segment.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getEnvelopeLength() {
+        return envelopeLength;
+    }
+
+    public int getMessageLength() {
+        return messageLength;
+    }
+
+    /**
+     * Size of the record holding this entry within its segment.
+     */
+    public long getRecordLength() {
+        return MailJournal.enqueueRecordLength(envelopeLength, messageLength);
+    }
+
+    public JournalEntry relocatedTo(long segmentId, long offset) {
+        return new JournalEntry(sequence, deliveryMillis, segmentId, offset, envelopeLength, messageLength);
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        if (o instanceof JournalEntry) {
+            JournalEntry that = (JournalEntry) o;
+
+            return Objects.equals(this.sequence, that.sequence)
+                && Objects.equals(this.deliveryMillis, that.deliveryMillis)
+                && Objects.equals(this.segmentId, that.segmentId)
+                && Objects.equals(this.offset, that.offset)
+                && Objects.equals(this.envelopeLength, that.envelopeLength)
+                && Objects.equals(this.messageLength, that.messageLength);
+        }
+        return false;
+    }
+
+    @Override
+    public final int hashCode() {
+        return Objects.hash(sequence, deliveryMillis, segmentId, offset, envelopeLength, messageLength);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("sequence", sequence)
+            .add("deliveryMillis", deliveryMillis)
+            .add("segmentId", segmentId)
+            .add("offset", offset)
+            .add("envelopeLength", envelopeLength)
+            .add("messageLength", messageLength)
+            .toString();
+    }
+}
@@ -0,0 +1,579 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.queue.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+import javax.mail.MessagingException;
+import javax.mail.util.SharedFileInputStream;
+
+import org.apache.james.core.MailAddress;
+import org.apache.james.lifecycle.api.Disposable;
+import org.apache.james.lifecycle.api.LifecycleUtil;
+import org.apache.james.queue.api.MailQueueItemDecoratorFactory;
+import org.apache.james.queue.api.ManageableMailQueue;
+import org.apache.james.server.core.MailImpl;
+import org.apache.james.server.core.MimeMessageCopyOnWriteProxy;
+import org.apache.james.server.core.MimeMessageSource;
+import org.apache.james.util.concurrent.NamedThreadFactory;
+import org.apache.mailet.Mail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * {@link ManageableMailQueue} implementation storing {@link Mail}s in an append-only {@link MailJournal}.
+ * <p/>
+ * Enqueuing a mail appends a single record holding its compact binary envelope (see {@link MailEnvelopeCodec})
+ * and its message, streamed to the journal. When <code>sync</code> is enabled, concurrent enqueues share a single <code>fsync</code>.
+ * Acknowledging a mail appends a small record and is not synced: after a crash, a processed mail might be
+ * delivered again, but no enqueued mail is lost.
+ * <p/>
+ * Only the location of the mails is kept in memory. A checkpoint of this index is written upon compaction and
+ * disposal, so that recovery only replays the journal records appended afterwards. The oldest segment gets
+ * compacted once the share of its bytes still referenced by queued mails drops below a threshold: live records
+ * are copied to the end of the journal and the segment is deleted.
+ */
+public class JournaledMailQueue implements ManageableMailQueue, Disposable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournaledMailQueue.class);
+
+    public static final long DEFAULT_SEGMENT_SIZE = 128L * 1024 * 1024;
+    public static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+
+    private static class ScheduledMail implements Delayed {
+        private final long sequence;
+        private final long deliveryMillis;
+
+        private ScheduledMail(long sequence, long deliveryMillis) {
+            this.sequence = sequence;
+            this.deliveryMillis = deliveryMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deliveryMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            ScheduledMail that = (ScheduledMail) o;
+            int deliveryComparison = Long.compare(deliveryMillis, that.deliveryMillis);
+            if (deliveryComparison != 0) {
+                return deliveryComparison;
+            }
+            return Long.compare(sequence, that.sequence);
+        }
+    }
+
+    private static class SegmentUsage {
+        private final Set<Long> sequences = ConcurrentHashMap.newKeySet();
+        private final AtomicLong liveBytes = new AtomicLong();
+    }
+
+    private final MailQueueItemDecoratorFactory mailQueueItemDecoratorFactory;
+    private final String queueName;
+    private final File queueDir;
+    private final boolean sync;
+    private final double compactionThreshold;
+    private final MailJournal journal;
+    private final Map<Long, JournalEntry> entries;
+    private final Map<Long, SegmentUsage> segmentUsages;
+    private final DelayQueue<ScheduledMail> scheduledMails;
+    private final Set<Long> inFlight;
+    private final AtomicLong sequence;
+    private final ReadWriteLock compactionLock;
+    private final ExecutorService compactionExecutor;
+    private final AtomicBoolean compactionScheduled;
+
+    public JournaledMailQueue(MailQueueItemDecoratorFactory mailQueueItemDecoratorFactory, File parentDir, String queueName, boolean sync) throws IOException {
+        this(mailQueueItemDecoratorFactory, parentDir, queueName, sync, DEFAULT_SEGMENT_SIZE, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public JournaledMailQueue(MailQueueItemDecoratorFactory mailQueueItemDecoratorFactory, File parentDir, String queueName, boolean sync,
+                              long segmentSize, double compactionThreshold) throws IOException {
+        Preconditions.checkArgument(compactionThreshold >= 0 && compactionThreshold <= 1, "compactionThreshold needs to be between 0 and 1");
+        this.mailQueueItemDecoratorFactory = mailQueueItemDecoratorFactory;
+        this.queueName = queueName;
+        this.queueDir = new File(parentDir, queueName);
+        this.sync = sync;
+        this.compactionThreshold = compactionThreshold;
+        this.journal = new MailJournal(queueDir, segmentSize);
+        this.entries = new ConcurrentHashMap<>();
+        this.segmentUsages = new ConcurrentHashMap<>();
+        this.scheduledMails = new DelayQueue<>();
+        this.inFlight = ConcurrentHashMap.newKeySet();
+        this.sequence = new AtomicLong();
+        this.compactionLock = new ReentrantReadWriteLock();
+        this.compactionExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("JournaledMailQueue-compaction-" + queueName));
+        this.compactionScheduled = new AtomicBoolean(false);
+        recover();
+    }
+
+    private void recover() throws IOException {
+        Optional<JournalCheckpoint> checkpoint = JournalCheckpoint.read(queueDir);
+        checkpoint.ifPresent(value -> {
+            value.getEntries().forEach(entry -> entries.put(entry.getSequence(), entry));
+            sequence.set(value.getNextSequence() - 1);
+        });
+        long fromSegmentId = checkpoint.map(JournalCheckpoint::getSegmentId).orElse(journal.firstSegmentId());
+        long fromOffset = checkpoint.map(JournalCheckpoint::getOffset).orElse(0L);
+        if (fromSegmentId < journal.firstSegmentId()) {
+            fromSegmentId = journal.firstSegmentId();
+            fromOffset = 0L;
+        }
+
+        journal.replay(fromSegmentId, fromOffset, new MailJournal.Visitor() {
+            @Override
+            public void onEnqueue(JournalEntry entry) {
+                entries.put(entry.getSequence(), entry);
+                sequence.accumulateAndGet(entry.getSequence(), Math::max);
+            }
+
+            @Override
+            public void onAck(long acknowledgedSequence) {
+                entries.remove(acknowledgedSequence);
+                sequence.accumulateAndGet(acknowledgedSequence, Math::max);
+            }
+        });
+
+        entries.values().forEach(entry -> {
+            trackUsage(entry);
+            scheduledMails.put(new ScheduledMail(entry.getSequence(), entry.getDeliveryMillis()));
+        });
+        LOGGER.info("Recovered {} mails in queue {}", entries.size(), queueName);
+    }
+
+    @Override
+    public String getName() {
+        return queueName;
+    }
+
+    @Override
+    public void enQueue(Mail mail, long delay, TimeUnit unit) throws MailQueueException {
+        try {
+            byte[] envelope = MailEnvelopeCodec.encode(mail);
+            long deliveryMillis = computeDeliveryMillis(delay, unit);
+            long mailSequence = sequence.incrementAndGet();
+
+            MailJournal.Appended appended;
+            compactionLock.readLock().lock();
+            try {
+                appended = journal.appendEnqueue(mailSequence, deliveryMillis, envelope, out -> writeMessage(mail, out));
+                entries.put(mailSequence, appended.getEntry());
+                trackUsage(appended.getEntry());
+            } finally {
+                compactionLock.readLock().unlock();
+            }
+            if (sync) {
+                journal.commit(appended.getPosition());
+            }
+            scheduledMails.put(new ScheduledMail(mailSequence, deliveryMillis));
+        } catch (IOException e) {
+            throw new MailQueueException("Unable to enqueue mail", e);
+        }
+    }
+
+    @Override
+    public void enQueue(Mail mail) throws MailQueueException {
+        enQueue(mail, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private long computeDeliveryMillis(long delay, TimeUnit unit) {
+        long now = System.currentTimeMillis();
+        if (delay <= 0) {
+            return now;
+        }
+        long delayMillis = unit.toMillis(delay);
+        if (delayMillis > Long.MAX_VALUE - now) {
+            return Long.MAX_VALUE;
+        }
+        return now + delayMillis;
+    }
+
+    private void writeMessage(Mail mail, OutputStream out) throws IOException {
+        try {
+            mail.getMessage().writeTo(out);
+        } catch (MessagingException e) {
+            throw new IOException("Unable to write message of mail " + mail.getName(), e);
+        }
+    }
+
+    @Override
+    public MailQueueItem deQueue() throws MailQueueException, InterruptedException {
+        while (true) {
+            ScheduledMail scheduledMail = scheduledMails.take();
+            compactionLock.readLock().lock();
+            try {
+                JournalEntry entry = entries.get(scheduledMail.sequence);
+                if (entry == null) {
+                    // removed while waiting for delivery
+                    continue;
+                }
+                inFlight.add(entry.getSequence());
+                Mail mail = readMail(entry);
+                return mailQueueItemDecoratorFactory.decorate(new JournaledMailQueueItem(entry.getSequence(), mail));
+            } catch (IOException | MessagingException e) {
+                inFlight.remove(scheduledMail.sequence);
+                throw new MailQueueException("Unable to dequeue", e);
+            } finally {
+                compactionLock.readLock().unlock();
+            }
+        }
+    }
+
+    private Mail readMail(JournalEntry entry) throws IOException, MessagingException {
+        MailImpl mail = MailEnvelopeCodec.decode(journal.readEnvelope(entry));
+        long start = journal.messageOffset(entry);
+        JournalMimeMessageSource source = new JournalMimeMessageSource(journal.segmentFile(entry.getSegmentId()), start, entry.getMessageLength());
+        try {
+            mail.setMessage(new MimeMessageCopyOnWriteProxy(source));
+        } catch (MessagingException e) {
+            LifecycleUtil.dispose(source);
+            throw e;
+        }
+        return mail;
+    }
+
+    private class JournaledMailQueueItem implements MailQueueItem {
+        private final long mailSequence;
+        private final Mail mail;
+
+        private JournaledMailQueueItem(long mailSequence, Mail mail) {
+            this.mailSequence = mailSequence;
+            this.mail = mail;
+        }
+
+        @Override
+        public Mail getMail() {
+            return mail;
+        }
+
+        @Override
+        public void done(boolean success) throws MailQueueException {
+            try {
+                if (success) {
+                    acknowledge(mailSequence);
+                } else {
+                    inFlight.remove(mailSequence);
+                    scheduledMails.put(new ScheduledMail(mailSequence, System.currentTimeMillis()));
+                }
+            } finally {
+                inFlight.remove(mailSequence);
+                LifecycleUtil.dispose(mail);
+            }
+        }
+    }
+
+    private boolean acknowledge(long mailSequence) throws MailQueueException {
+        boolean removed;
+        compactionLock.readLock().lock();
+        try {
+            JournalEntry entry = entries.remove(mailSequence);
+            removed = entry != null;
+            if (removed) {
+                journal.appendAck(mailSequence);
+                untrackUsage(entry);
+            }
+        } catch (IOException e) {
+            throw new MailQueueException("Unable to acknowledge mail", e);
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+        scheduleCompactionIfNeeded();
+        return removed;
+    }
+
+    private void trackUsage(JournalEntry entry) {
+        SegmentUsage usage = segmentUsages.computeIfAbsent(entry.getSegmentId(), any -> new SegmentUsage());
+        usage.sequences.add(entry.getSequence());
+        usage.liveBytes.addAndGet(entry.getRecordLength());
+    }
+
+    private void untrackUsage(JournalEntry entry) {
+        Optional.ofNullable(segmentUsages.get(entry.getSegmentId()))
+            .ifPresent(usage -> {
+                usage.sequences.remove(entry.getSequence());
+                usage.liveBytes.addAndGet(-entry.getRecordLength());
+            });
+    }
+
+    private void scheduleCompactionIfNeeded() {
+        if (oldestSegmentNeedsCompaction() && compactionScheduled.compareAndSet(false, true)) {
+            compactionExecutor.execute(this::compact);
+        }
+    }
+
+    private boolean oldestSegmentNeedsCompaction() {
+        return journal.oldestSealedSegment()
+            .map(this::needsCompaction)
+            .orElse(false);
+    }
+
+    private boolean needsCompaction(long segmentId) {
+        long liveBytes = Optional.ofNullable(segmentUsages.get(segmentId))
+            .map(usage -> usage.liveBytes.get())
+            .orElse(0L);
+        return liveBytes <= journal.segmentLength(segmentId) * compactionThreshold;
+    }
+
+    @VisibleForTesting
+    void compact() {
+        compactionLock.writeLock().lock();
+        try {
+            boolean compacted = false;
+            while (oldestSegmentNeedsCompaction()) {
+                compactSegment(journal.oldestSealedSegment().get());
+                compacted = true;
+            }
+            if (compacted) {
+                writeCheckpoint();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Unable to compact queue {}", queueName, e);
+        } finally {
+            compactionLock.writeLock().unlock();
+            compactionScheduled.set(false);
+        }
+    }
+
+    private void compactSegment(long segmentId) throws IOException {
+        SegmentUsage usage = Optional.ofNullable(segmentUsages.remove(segmentId))
+            .orElseGet(SegmentUsage::new);
+        for (long liveSequence : ImmutableList.copyOf(usage.sequences)) {
+            JournalEntry entry = entries.get(liveSequence);
+            if (entry != null) {
+                JournalEntry relocated = journal.relocate(entry).getEntry();
+                entries.put(liveSequence, relocated);
+                trackUsage(relocated);
+            }
+        }
+        // Relocated records need to be durable before the only other copy is deleted
+        journal.forceAll();
+        journal.deleteSegment(segmentId);
+        LOGGER.debug("Compacted segment {} of queue {}, relocating {} mails", segmentId, queueName, usage.sequences.size());
+    }
+
+    private void writeCheckpoint() throws IOException {
+        new JournalCheckpoint(journal.currentSegmentId(), journal.currentSegmentLength(), sequence.get() + 1, ImmutableList.copyOf(entries.values()))
+            .write(queueDir);
+    }
+
+    @Override
+    public long getSize() throws MailQueueException {
+        return entries.size();
+    }
+
+    @Override
+    public long flush() throws MailQueueException {
+        long count = 0;
+        for (ScheduledMail scheduledMail : scheduledMails) {
+            if (scheduledMail.getDelay(TimeUnit.MILLISECONDS) > 0 && scheduledMails.remove(scheduledMail)) {
+                scheduledMails.put(new ScheduledMail(scheduledMail.sequence, System.currentTimeMillis()));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Removes every queued mail. Mails being processed are left for their {@link MailQueueItem} to be done with.
+     */
+    @Override
+    public long clear() throws MailQueueException {
+        scheduledMails.clear();
+        return removeMatching(entry -> true);
+    }
+
+    @Override
+    public long remove(Type type, String value) throws MailQueueException {
+        return removeMatching(entry -> shouldRemove(entry, type, value));
+    }
+
+    private long removeMatching(Predicate<JournalEntry> predicate) throws MailQueueException {
+        long count = 0;
+        for (JournalEntry entry : ImmutableList.copyOf(entries.values())) {
+            if (!inFlight.contains(entry.getSequence()) && predicate.test(entry) && acknowledge(entry.getSequence())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean shouldRemove(JournalEntry entry, Type type, String value) {
+        try {
+            Mail mail = MailEnvelopeCodec.decode(journal.readEnvelope(entry));
+            switch (type) {
+                case Name:
+                    return mail.getName().equals(value);
+                case Recipient:
+                    return mail.getRecipients().stream()
+                        .map(MailAddress::asString)
+                        .anyMatch(value::equals);
+                case Sender:
+                    return Optional.ofNullable(mail.getSender())
+                        .map(MailAddress::asString)
+                        .map(value::equals)
+                        .orElse(false);
+                default:
+                    throw new IllegalArgumentException("Unknown type " + type);
+            }
+        } catch (IOException | MessagingException e) {
+            // The entry got removed, or relocated then compacted, while being read
+            LOGGER.debug("Unable to read envelope of mail {}", entry.getSequence(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public MailQueueIterator browse() throws MailQueueException {
+        Iterator<JournalEntry> underlying = entries.values()
+            .stream()
+            .sorted(Comparator.comparingLong(JournalEntry::getSequence))
+            .collect(ImmutableList.toImmutableList())
+            .iterator();
+
+        return new MailQueueIterator() {
+            private Optional<MailQueueItemView> next = Optional.empty();
+
+            @Override
+            public boolean hasNext() {
+                while (!next.isPresent() && underlying.hasNext()) {
+                    next = view(underlying.next());
+                }
+                return next.isPresent();
+            }
+
+            @Override
+            public MailQueueItemView next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                MailQueueItemView result = next.get();
+                next = Optional.empty();
+                return result;
+            }
+
+            @Override
+            public void close() {
+                // nothing to release
+            }
+        };
+    }
+
+    private Optional<MailQueueItemView> view(JournalEntry entry) {
+        compactionLock.readLock().lock();
+        try {
+            JournalEntry current = entries.get(entry.getSequence());
+            if (current == null) {
+                return Optional.empty();
+            }
+            Mail mail = readMail(current);
+            return Optional.of(new MailQueueItemView(mail,
+                Instant.ofEpochMilli(current.getDeliveryMillis()).atZone(ZoneId.systemDefault())));
+        } catch (IOException | MessagingException e) {
+            LOGGER.info("Unable to load mail", e);
+            return Optional.empty();
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+    }
+
+    @VisibleForTesting
+    MailJournal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public void dispose() {
+        compactionExecutor.shutdownNow();
+        compactionLock.writeLock().lock();
+        try {
+            writeCheckpoint();
+            journal.close();
+        } catch (IOException e) {
+            LOGGER.error("Unable to close queue {}", queueName, e);
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    private static final class JournalMimeMessageSource extends MimeMessageSource implements Disposable {
+        private final File segmentFile;
+        private final long start;
+        private final long length;
+        private final SharedFileInputStream in;
+
+        private JournalMimeMessageSource(File segmentFile, long start, long length) throws IOException {
+            this.segmentFile = segmentFile;
+            this.start = start;
+            this.length = length;
+            this.in = new SharedFileInputStream(segmentFile);
+        }
+
+        @Override
+        public String getSourceId() {
+            return segmentFile.getAbsolutePath() + "#" + start;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return in.newStream(start, start + length);
+        }
+
+        @Override
+        public long getMessageSize() throws IOException {
+            return length;
+        }
+
+        @Override
+        public void dispose() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                //ignore exception during close
+            }
+        }
+    }
+}
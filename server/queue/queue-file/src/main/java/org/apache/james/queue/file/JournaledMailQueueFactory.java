@@ -0,0 +1,125 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.queue.file;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.apache.james.filesystem.api.FileSystem;
+import org.apache.james.lifecycle.api.Disposable;
+import org.apache.james.queue.api.MailQueueFactory;
+import org.apache.james.queue.api.MailQueueItemDecoratorFactory;
+import org.apache.james.queue.api.ManageableMailQueue;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * {@link MailQueueFactory} implementation which returns {@link JournaledMailQueue} instances
+ */
+public class JournaledMailQueueFactory implements MailQueueFactory<ManageableMailQueue>, Disposable {
+
+    private final Map<String, JournaledMailQueue> queues = new HashMap<>();
+    private final MailQueueItemDecoratorFactory mailQueueItemDecoratorFactory;
+    private final FileSystem fs;
+    private boolean sync = true;
+    private long segmentSize = JournaledMailQueue.DEFAULT_SEGMENT_SIZE;
+    private double compactionThreshold = JournaledMailQueue.DEFAULT_COMPACTION_THRESHOLD;
+
+    @Inject
+    public JournaledMailQueueFactory(FileSystem fs, MailQueueItemDecoratorFactory mailQueueItemDecoratorFactory) {
+        this.fs = fs;
+        this.mailQueueItemDecoratorFactory = mailQueueItemDecoratorFactory;
+    }
+
+    @Override
+    public Set<ManageableMailQueue> listCreatedMailQueues() {
+        synchronized (queues) {
+            return ImmutableSet.copyOf(queues.values());
+        }
+    }
+
+    /**
+     * If <code>true</code> the later created {@link JournaledMailQueue} will wait for the journal to be synced
+     * to disk before returning from {@link JournaledMailQueue#enQueue(org.apache.mailet.Mail)}. Concurrent
+     * enqueues share a single <code>fsync</code>.
+     * <p/>
+     * The default is <code>true</code>
+     */
+    public void setSync(boolean sync) {
+        this.sync = sync;
+    }
+
+    /**
+     * Size in bytes after which the journal of later created {@link JournaledMailQueue} rolls to a new segment.
+     */
+    public void setSegmentSize(long segmentSize) {
+        Preconditions.checkArgument(segmentSize > 0, "segmentSize needs to be strictly positive");
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Share of live bytes under which the oldest journal segment gets compacted.
+     */
+    public void setCompactionThreshold(double compactionThreshold) {
+        Preconditions.checkArgument(compactionThreshold >= 0 && compactionThreshold <= 1, "compactionThreshold needs to be between 0 and 1");
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    @Override
+    public Optional<ManageableMailQueue> getQueue(String name) {
+        synchronized (queues) {
+            return Optional.ofNullable(queues.get(name));
+        }
+    }
+
+    @Override
+    public ManageableMailQueue createQueue(String name) {
+        synchronized (queues) {
+            return getQueue(name).orElseGet(() -> createAndRegisterQueue(name));
+        }
+    }
+
+    private ManageableMailQueue createAndRegisterQueue(String name) {
+        try {
+            JournaledMailQueue queue = new JournaledMailQueue(mailQueueItemDecoratorFactory, fs.getFile("file://var/store/journaled-queue"),
+                name, sync, segmentSize, compactionThreshold);
+            queues.put(name, queue);
+            return queue;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to access queue " + name, e);
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void dispose() {
+        synchronized (queues) {
+            queues.values().forEach(JournaledMailQueue::dispose);
+            queues.clear();
+        }
+    }
+}
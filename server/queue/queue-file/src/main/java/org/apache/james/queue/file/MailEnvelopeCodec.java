@@ -0,0 +1,291 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.queue.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.AddressException;
+
+import org.apache.james.core.MailAddress;
+import org.apache.james.server.core.MailImpl;
+import org.apache.mailet.Mail;
+import org.apache.mailet.PerRecipientHeaders;
+import org.apache.mailet.PerRecipientHeaders.Header;
+
+/**
+ * Compact binary encoding of the {@link Mail} envelope (everything but the {@link javax.mail.internet.MimeMessage}).
+ * <p/>
+ * Common attribute value types are written as tagged primitives, other {@link Serializable} values
+ * fall back to java serialization.
+ */
+public class MailEnvelopeCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final byte NULL_VALUE = 0;
+    private static final byte STRING_VALUE = 1;
+    private static final byte LONG_VALUE = 2;
+    private static final byte INTEGER_VALUE = 3;
+    private static final byte BOOLEAN_VALUE = 4;
+    private static final byte SERIALIZED_VALUE = 5;
+
+    private static final int NULL_LENGTH = -1;
+
+    public static byte[] encode(Mail mail) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            writeString(out, mail.getName());
+            writeString(out, mail.getState());
+            writeString(out, mail.getErrorMessage());
+            writeString(out, mail.getRemoteHost());
+            writeString(out, mail.getRemoteAddr());
+            writeLastUpdated(out, mail.getLastUpdated());
+            writeString(out, asString(mail.getSender()));
+            writeRecipients(out, mail.getRecipients());
+            writeAttributes(out, mail);
+            writePerRecipientHeaders(out, mail.getPerRecipientSpecificHeaders());
+        }
+        return bytes.toByteArray();
+    }
+
+    public static MailImpl decode(byte[] envelope) throws IOException, MessagingException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(envelope))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported mail envelope version " + version);
+            }
+            String name = readString(in);
+            String state = readString(in);
+            String errorMessage = readString(in);
+            String remoteHost = readString(in);
+            String remoteAddr = readString(in);
+            Date lastUpdated = readLastUpdated(in);
+            MailAddress sender = MailAddress.getMailSender(readString(in));
+            List<MailAddress> recipients = readRecipients(in);
+
+            MailImpl mail = new MailImpl(name, sender, recipients);
+            mail.setState(state);
+            mail.setErrorMessage(errorMessage);
+            mail.setRemoteHost(remoteHost);
+            mail.setRemoteAddr(remoteAddr);
+            if (lastUpdated != null) {
+                mail.setLastUpdated(lastUpdated);
+            }
+            readAttributes(in, mail);
+            mail.addAllSpecificHeaderForRecipient(readPerRecipientHeaders(in));
+            return mail;
+        }
+    }
+
+    private static String asString(MailAddress mailAddress) {
+        if (mailAddress == null) {
+            return null;
+        }
+        return mailAddress.asString();
+    }
+
+    private static void writeLastUpdated(DataOutputStream out, Date lastUpdated) throws IOException {
+        out.writeBoolean(lastUpdated != null);
+        if (lastUpdated != null) {
+            out.writeLong(lastUpdated.getTime());
+        }
+    }
+
+    private static Date readLastUpdated(DataInputStream in) throws IOException {
+        if (in.readBoolean()) {
+            return new Date(in.readLong());
+        }
+        return null;
+    }
+
+    private static void writeRecipients(DataOutputStream out, Collection<MailAddress> recipients) throws IOException {
+        if (recipients == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(recipients.size());
+        for (MailAddress recipient : recipients) {
+            writeString(out, recipient.asString());
+        }
+    }
+
+    private static List<MailAddress> readRecipients(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<MailAddress> recipients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            recipients.add(readMailAddress(in));
+        }
+        return recipients;
+    }
+
+    private static MailAddress readMailAddress(DataInputStream in) throws IOException {
+        String address = readString(in);
+        try {
+            return new MailAddress(address);
+        } catch (AddressException e) {
+            throw new IOException("Invalid mail address " + address, e);
+        }
+    }
+
+    private static void writeAttributes(DataOutputStream out, Mail mail) throws IOException {
+        List<String> names = new ArrayList<>();
+        mail.getAttributeNames().forEachRemaining(names::add);
+        out.writeInt(names.size());
+        for (String name : names) {
+            writeString(out, name);
+            writeValue(out, mail.getAttribute(name));
+        }
+    }
+
+    private static void readAttributes(DataInputStream in, Mail mail) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String name = readString(in);
+            mail.setAttribute(name, readValue(in));
+        }
+    }
+
+    private static void writePerRecipientHeaders(DataOutputStream out, PerRecipientHeaders headers) throws IOException {
+        Collection<Map.Entry<MailAddress, Header>> entries = headers.getHeadersByRecipient().entries();
+        out.writeInt(entries.size());
+        for (Map.Entry<MailAddress, Header> entry : entries) {
+            writeString(out, entry.getKey().asString());
+            writeString(out, entry.getValue().getName());
+            writeString(out, entry.getValue().getValue());
+        }
+    }
+
+    private static PerRecipientHeaders readPerRecipientHeaders(DataInputStream in) throws IOException {
+        PerRecipientHeaders headers = new PerRecipientHeaders();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            MailAddress recipient = readMailAddress(in);
+            Header header = Header.builder()
+                .name(readString(in))
+                .value(readString(in))
+                .build();
+            headers.addHeaderForRecipient(header, recipient);
+        }
+        return headers;
+    }
+
+    private static void writeValue(DataOutputStream out, Serializable value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL_VALUE);
+        } else if (value instanceof String) {
+            out.writeByte(STRING_VALUE);
+            writeString(out, (String) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG_VALUE);
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER_VALUE);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN_VALUE);
+            out.writeBoolean((Boolean) value);
+        } else {
+            out.writeByte(SERIALIZED_VALUE);
+            writeBytes(out, serialize(value));
+        }
+    }
+
+    private static Serializable readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL_VALUE:
+                return null;
+            case STRING_VALUE:
+                return readString(in);
+            case LONG_VALUE:
+                return in.readLong();
+            case INTEGER_VALUE:
+                return in.readInt();
+            case BOOLEAN_VALUE:
+                return in.readBoolean();
+            case SERIALIZED_VALUE:
+                return deserialize(readBytes(in));
+            default:
+                throw new IOException("Unknown attribute value type " + type);
+        }
+    }
+
+    private static byte[] serialize(Serializable value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Serializable deserialize(byte[] bytes) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Serializable) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to deserialize attribute value", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+        if (bytes == null) {
+            return null;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
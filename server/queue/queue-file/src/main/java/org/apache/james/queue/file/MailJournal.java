@@ -0,0 +1,628 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.queue.file;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Append-only journal of mail queue operations, split into fixed size segment files.
+ * <p/>
+ * Each record is prefixed by its payload length and a CRC32 of the payload. An enqueue record holds the
+ * encoded mail envelope and the raw message, an acknowledgement record only holds the sequence of the mail
+ * it removes.
+ * <p/>
+ * Enqueue records are serialized by the appending thread, then only the reservation of their position is
+ * serialized: concurrent enqueuers write their records at the same time. A record which could not be written
+ * is replaced by a padding record, so that it does not hide the records following it.
+ * <p/>
+ * When durability is requested, {@link #commit(long)} performs a group commit: it waits for the records
+ * preceding the given position to be written, then a single <code>fsync</code> covers every record written
+ * before it started, so that concurrent enqueuers share the cost of syncing the journal.
+ */
+public class MailJournal implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MailJournal.class);
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+    private static final byte ENQUEUE = 1;
+    private static final byte ACK = 2;
+    private static final byte PADDING = 3;
+    private static final int HEADER_LENGTH = Integer.BYTES + Integer.BYTES;
+    private static final int ENQUEUE_METADATA_LENGTH = Byte.BYTES + Long.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int ACK_PAYLOAD_LENGTH = Byte.BYTES + Long.BYTES;
+
+    public interface Visitor {
+        void onEnqueue(JournalEntry entry);
+
+        void onAck(long sequence);
+    }
+
+    public interface MessageWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Position right after an appended record, used to wait for its durability.
+     */
+    public static class Appended {
+        private final JournalEntry entry;
+        private final long position;
+
+        private Appended(JournalEntry entry, long position) {
+            this.entry = entry;
+            this.position = position;
+        }
+
+        public JournalEntry getEntry() {
+            return entry;
+        }
+
+        public long getPosition() {
+            return position;
+        }
+    }
+
+    private static class Reservation {
+        private final Segment segment;
+        private final long offset;
+        private final long startPosition;
+        private final long endPosition;
+
+        private Reservation(Segment segment, long offset, long startPosition, long endPosition) {
+            this.segment = segment;
+            this.offset = offset;
+            this.startPosition = startPosition;
+            this.endPosition = endPosition;
+        }
+    }
+
+    private static class Segment {
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private volatile long size;
+
+        private Segment(long id, Path path) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = channel.size();
+            this.channel.position(size);
+        }
+    }
+
+    static long enqueueRecordLength(int envelopeLength, int messageLength) {
+        return HEADER_LENGTH + ENQUEUE_METADATA_LENGTH + envelopeLength + messageLength;
+    }
+
+    private final Path directory;
+    private final long segmentSize;
+    private final ConcurrentSkipListMap<Long, Segment> segments;
+    private final Object syncMonitor;
+    private final AtomicLong durablePosition;
+    private final ConcurrentSkipListSet<Long> pendingWrites;
+    private Segment current;
+    private long writtenPosition;
+    private long syncedSegmentId;
+
+    public MailJournal(File directory, long segmentSize) throws IOException {
+        Preconditions.checkArgument(segmentSize > 0, "segmentSize needs to be strictly positive");
+        this.directory = directory.toPath();
+        this.segmentSize = segmentSize;
+        this.segments = new ConcurrentSkipListMap<>();
+        this.syncMonitor = new Object();
+        this.durablePosition = new AtomicLong();
+        this.pendingWrites = new ConcurrentSkipListSet<>();
+        Files.createDirectories(this.directory);
+        openSegments();
+        this.syncedSegmentId = current.id;
+    }
+
+    private void openSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.collect(ImmutableList.toImmutableList())) {
+                Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    long id = Long.parseLong(matcher.group(1));
+                    segments.put(id, new Segment(id, path));
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.put(0L, new Segment(0L, segmentPath(0L)));
+        }
+        current = segments.lastEntry().getValue();
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("segment-%020d.log", id));
+    }
+
+    /**
+     * Appends an enqueue record holding the message written by the given {@link MessageWriter}.
+     * <p/>
+     * The record is serialized before taking its position in the journal, then written concurrently with other
+     * enqueue records.
+     */
+    public Appended appendEnqueue(long sequence, long deliveryMillis, byte[] envelope, MessageWriter message) throws IOException {
+        try (RecordBuffer record = new RecordBuffer()) {
+            record.write(ByteBuffer.allocate(ENQUEUE_METADATA_LENGTH)
+                .put(ENQUEUE)
+                .putLong(sequence)
+                .putLong(deliveryMillis)
+                .putInt(envelope.length)
+                .array());
+            record.write(envelope);
+            message.writeTo(record);
+            int messageLength = Math.toIntExact(record.payloadLength - ENQUEUE_METADATA_LENGTH - envelope.length);
+
+            Reservation reservation = reserve(HEADER_LENGTH + record.payloadLength);
+            try {
+                record.writeTo(reservation.segment.channel, reservation.offset);
+            } catch (IOException | RuntimeException e) {
+                writePadding(reservation);
+                throw e;
+            } finally {
+                release(reservation);
+            }
+            return new Appended(new JournalEntry(sequence, deliveryMillis, reservation.segment.id, reservation.offset, envelope.length, messageLength),
+                reservation.endPosition);
+        }
+    }
+
+    private synchronized Reservation reserve(long recordLength) throws IOException {
+        if (current.size > 0 && current.size + recordLength > segmentSize) {
+            roll();
+        }
+        Reservation reservation = new Reservation(current, current.size, writtenPosition, writtenPosition + recordLength);
+        pendingWrites.add(reservation.startPosition);
+        current.size += recordLength;
+        writtenPosition += recordLength;
+        return reservation;
+    }
+
+    private void release(Reservation reservation) {
+        synchronized (pendingWrites) {
+            pendingWrites.remove(reservation.startPosition);
+            pendingWrites.notifyAll();
+        }
+    }
+
+    /**
+     * Overwrites a reserved record which could not be written by a valid record skipped upon replay
+     */
+    private void writePadding(Reservation reservation) {
+        long payloadLength = reservation.endPosition - reservation.startPosition - HEADER_LENGTH;
+        try (RecordBuffer padding = new RecordBuffer()) {
+            padding.write(PADDING);
+            byte[] zeros = new byte[RecordBuffer.BUFFER_SIZE];
+            while (padding.payloadLength < payloadLength) {
+                padding.write(zeros, 0, (int) Math.min(zeros.length, payloadLength - padding.payloadLength));
+            }
+            padding.writeTo(reservation.segment.channel, reservation.offset);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Unable to pad the journal record at {} in {}", reservation.offset, reservation.segment.path, e);
+        }
+    }
+
+    public synchronized long appendAck(long sequence) throws IOException {
+        ByteBuffer payload = ByteBuffer.allocate(ACK_PAYLOAD_LENGTH)
+            .put(ACK)
+            .putLong(sequence);
+        payload.flip();
+        return append(payload);
+    }
+
+    /**
+     * Copies the record of the given entry at the end of the journal.
+     */
+    public synchronized Appended relocate(JournalEntry entry) throws IOException {
+        ByteBuffer record = read(entry.getSegmentId(), entry.getOffset(), Math.toIntExact(entry.getRecordLength()));
+        record.position(HEADER_LENGTH);
+        long position = append(record);
+        long offset = current.size - entry.getRecordLength();
+        return new Appended(entry.relocatedTo(current.id, offset), position);
+    }
+
+    private long append(ByteBuffer... payload) throws IOException {
+        int payloadLength = 0;
+        CRC32 crc = new CRC32();
+        for (ByteBuffer buffer : payload) {
+            payloadLength += buffer.remaining();
+            crc.update(buffer.duplicate());
+        }
+        if (current.size > 0 && current.size + HEADER_LENGTH + payloadLength > segmentSize) {
+            roll();
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH)
+            .putInt(payloadLength)
+            .putInt((int) crc.getValue());
+        header.flip();
+
+        long position = writeFully(current.channel, header, current.size);
+        for (ByteBuffer buffer : payload) {
+            position = writeFully(current.channel, buffer, position);
+        }
+        long recordLength = HEADER_LENGTH + payloadLength;
+        current.size += recordLength;
+        writtenPosition += recordLength;
+        return writtenPosition;
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer source, long position) throws IOException {
+        long nextPosition = position;
+        while (source.hasRemaining()) {
+            nextPosition += channel.write(source, nextPosition);
+        }
+        return nextPosition;
+    }
+
+    /**
+     * Sealed segments can still be written by pending enqueues: they are synced by the next commit
+     */
+    private void roll() throws IOException {
+        long id = current.id + 1;
+        Segment segment = new Segment(id, segmentPath(id));
+        segments.put(id, segment);
+        current = segment;
+    }
+
+    /**
+     * Waits for every record appended up to the given position to be durable.
+     */
+    public void commit(long position) throws IOException {
+        if (durablePosition.get() >= position) {
+            return;
+        }
+        awaitWritten(position);
+        synchronized (syncMonitor) {
+            if (durablePosition.get() >= position) {
+                return;
+            }
+            List<FileChannel> channels;
+            long target;
+            long currentSegmentId;
+            synchronized (this) {
+                channels = segments.tailMap(syncedSegmentId).values()
+                    .stream()
+                    .map(segment -> segment.channel)
+                    .collect(ImmutableList.toImmutableList());
+                target = writtenUpTo();
+                currentSegmentId = current.id;
+            }
+            for (FileChannel channel : channels) {
+                try {
+                    channel.force(false);
+                } catch (ClosedChannelException e) {
+                    // The segment got compacted
+                }
+            }
+            syncedSegmentId = currentSegmentId;
+            durablePosition.accumulateAndGet(target, Math::max);
+        }
+    }
+
+    private void awaitWritten(long position) throws IOException {
+        synchronized (pendingWrites) {
+            while (!pendingWrites.isEmpty() && pendingWrites.first() < position) {
+                try {
+                    pendingWrites.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for journal writes");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the position up to which every record is written, pending writes excluded
+     */
+    private synchronized long writtenUpTo() {
+        return pendingWrites.stream()
+            .findFirst()
+            .orElse(writtenPosition);
+    }
+
+    public synchronized void forceAll() throws IOException {
+        for (Segment segment : segments.values()) {
+            segment.channel.force(false);
+        }
+        durablePosition.accumulateAndGet(writtenUpTo(), Math::max);
+    }
+
+    public byte[] readEnvelope(JournalEntry entry) throws IOException {
+        return read(entry.getSegmentId(), entry.getOffset() + HEADER_LENGTH + ENQUEUE_METADATA_LENGTH, entry.getEnvelopeLength())
+            .array();
+    }
+
+    public File segmentFile(long segmentId) {
+        return segmentPath(segmentId).toFile();
+    }
+
+    public long messageOffset(JournalEntry entry) {
+        return entry.getOffset() + HEADER_LENGTH + ENQUEUE_METADATA_LENGTH + entry.getEnvelopeLength();
+    }
+
+    private ByteBuffer read(long segmentId, long offset, int length) throws IOException {
+        Segment segment = Optional.ofNullable(segments.get(segmentId))
+            .orElseThrow(() -> new IOException("Missing journal segment " + segmentId));
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(segment.channel, buffer, offset);
+        buffer.flip();
+        return buffer;
+    }
+
+    private void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of journal segment");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Replays the records starting at the given position.
+     * <p/>
+     * Records are read and checked against their CRC. The last segment is truncated after the last valid record, as
+     * a crash can only have left a partially written record there. An invalid record in a sealed segment means it got
+     * corrupted: the replay of that segment stops there, and the following records are lost.
+     */
+    public synchronized void replay(long fromSegmentId, long fromOffset, Visitor visitor) throws IOException {
+        for (Segment segment : segments.tailMap(fromSegmentId).values()) {
+            long offset = segment.id == fromSegmentId ? fromOffset : 0;
+            if (segment == current) {
+                replayLastSegment(segment, offset, visitor);
+            } else {
+                replaySealedSegment(segment, offset, visitor);
+            }
+        }
+    }
+
+    private void replaySealedSegment(Segment segment, long fromOffset, Visitor visitor) throws IOException {
+        long offset = replayValidRecords(segment, fromOffset, visitor);
+        if (offset < segment.size) {
+            LOGGER.error("Invalid record in sealed journal segment {} at {}, skipping its {} last bytes",
+                segment.path, offset, segment.size - offset);
+        }
+    }
+
+    private void replayLastSegment(Segment segment, long fromOffset, Visitor visitor) throws IOException {
+        long offset = replayValidRecords(segment, fromOffset, visitor);
+        if (offset < segment.size) {
+            LOGGER.warn("Truncating journal segment {} from {} to {} bytes", segment.path, segment.size, offset);
+            segment.channel.truncate(offset);
+            segment.channel.position(offset);
+            segment.size = offset;
+        }
+    }
+
+    /**
+     * @return the offset following the last valid record
+     */
+    private long replayValidRecords(Segment segment, long fromOffset, Visitor visitor) throws IOException {
+        long offset = fromOffset;
+        while (offset + HEADER_LENGTH <= segment.size) {
+            ByteBuffer header = read(segment.id, offset, HEADER_LENGTH);
+            int payloadLength = header.getInt();
+            int expectedCrc = header.getInt();
+            if (payloadLength < ACK_PAYLOAD_LENGTH || offset + HEADER_LENGTH + payloadLength > segment.size) {
+                return offset;
+            }
+            ByteBuffer payload = read(segment.id, offset + HEADER_LENGTH, payloadLength);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != expectedCrc) {
+                return offset;
+            }
+            visit(segment, offset, payloadLength, payload, visitor);
+            offset += HEADER_LENGTH + payloadLength;
+        }
+        return offset;
+    }
+
+    private void visit(Segment segment, long offset, int payloadLength, ByteBuffer payload, Visitor visitor) throws IOException {
+        byte type = payload.get();
+        long sequence = payload.getLong();
+        switch (type) {
+            case ENQUEUE:
+                long deliveryMillis = payload.getLong();
+                int envelopeLength = payload.getInt();
+                int messageLength = payloadLength - ENQUEUE_METADATA_LENGTH - envelopeLength;
+                visitor.onEnqueue(new JournalEntry(sequence, deliveryMillis, segment.id, offset, envelopeLength, messageLength));
+                break;
+            case ACK:
+                visitor.onAck(sequence);
+                break;
+            case PADDING:
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + type + " in " + segment.path + " at " + offset);
+        }
+    }
+
+    /**
+     * @return the id of the oldest segment no longer appended to, if any
+     */
+    public synchronized Optional<Long> oldestSealedSegment() {
+        long oldest = segments.firstKey();
+        if (oldest == current.id) {
+            return Optional.empty();
+        }
+        return Optional.of(oldest);
+    }
+
+    public long segmentLength(long segmentId) {
+        return Optional.ofNullable(segments.get(segmentId))
+            .map(segment -> segment.size)
+            .orElse(0L);
+    }
+
+    public synchronized long currentSegmentId() {
+        return current.id;
+    }
+
+    public synchronized long currentSegmentLength() {
+        return current.size;
+    }
+
+    public long firstSegmentId() {
+        return segments.firstKey();
+    }
+
+    @VisibleForTesting
+    int segmentCount() {
+        return segments.size();
+    }
+
+    public synchronized void deleteSegment(long segmentId) throws IOException {
+        Preconditions.checkArgument(segmentId != current.id, "The current segment can not be deleted");
+        Segment segment = segments.remove(segmentId);
+        if (segment != null) {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        }
+    }
+
+    /**
+     * Serializes the payload of a record while computing its CRC, so that the record can be written once its length
+     * is known. Payloads exceeding the memory threshold are spilled to a temporary file.
+     */
+    private static class RecordBuffer extends OutputStream {
+        private static final int BUFFER_SIZE = 8192;
+        private static final int MEMORY_THRESHOLD = 1024 * 1024;
+
+        private final CRC32 crc;
+        private final ByteArrayOutputStream memory;
+        private Optional<Path> spillFile;
+        private Optional<OutputStream> spill;
+        private long payloadLength;
+
+        private RecordBuffer() {
+            this.crc = new CRC32();
+            this.memory = new ByteArrayOutputStream(BUFFER_SIZE);
+            this.spillFile = Optional.empty();
+            this.spill = Optional.empty();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (payloadLength + len > Integer.MAX_VALUE) {
+                throw new IOException("Journal records can not exceed " + Integer.MAX_VALUE + " bytes");
+            }
+            crc.update(b, off, len);
+            payloadLength += len;
+            if (!spill.isPresent() && memory.size() + len > MEMORY_THRESHOLD) {
+                spill();
+            }
+            if (spill.isPresent()) {
+                spill.get().write(b, off, len);
+            } else {
+                memory.write(b, off, len);
+            }
+        }
+
+        private void spill() throws IOException {
+            Path file = Files.createTempFile("journal-record-", ".tmp");
+            spillFile = Optional.of(file);
+            OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+            spill = Optional.of(out);
+            memory.writeTo(out);
+            memory.reset();
+        }
+
+        /**
+         * Writes the record, its header first so that the segment file covers the payload position
+         */
+        private void writeTo(FileChannel channel, long recordOffset) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH)
+                .putInt((int) payloadLength)
+                .putInt((int) crc.getValue());
+            header.flip();
+            long position = writeFully(channel, header, recordOffset);
+            if (!spill.isPresent()) {
+                writeFully(channel, ByteBuffer.wrap(memory.toByteArray()), position);
+                return;
+            }
+            spill.get().close();
+            try (FileChannel source = FileChannel.open(spillFile.get(), StandardOpenOption.READ)) {
+                long transferred = 0;
+                while (transferred < payloadLength) {
+                    transferred += channel.transferFrom(source, position + transferred, payloadLength - transferred);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (spill.isPresent()) {
+                spill.get().close();
+            }
+            if (spillFile.isPresent()) {
+                Files.deleteIfExists(spillFile.get());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Map.Entry<Long, Segment> entry : segments.entrySet()) {
+            entry.getValue().channel.close();
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.queue.file;
+
+import static org.apache.james.queue.api.Mails.defaultMail;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.james.core.builder.MimeMessageBuilder;
+import org.apache.james.queue.api.DelayedManageableMailQueueContract;
+import org.apache.james.queue.api.MailQueue;
+import org.apache.james.queue.api.ManageableMailQueue;
+import org.apache.james.queue.api.RawMailQueueItemDecoratorFactory;
+import org.apache.james.util.MimeMessageUtil;
+import org.apache.james.util.concurrency.ConcurrentTestRunner;
+import org.apache.mailet.Mail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Strings;
+
+public class JournaledMailQueueTest implements DelayedManageableMailQueueContract {
+    private static final boolean SYNC = true;
+    private static final String QUEUE_NAME = "test";
+    private static final long SMALL_SEGMENT_SIZE = 4096;
+
+    private TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private File queueParentDir;
+    private JournaledMailQueue mailQueue;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        temporaryFolder.create();
+        queueParentDir = temporaryFolder.newFolder();
+        mailQueue = new JournaledMailQueue(new RawMailQueueItemDecoratorFactory(), queueParentDir, QUEUE_NAME, SYNC);
+    }
+
+    @AfterEach
+    void teardown() {
+        mailQueue.dispose();
+        temporaryFolder.delete();
+    }
+
+    @Override
+    public MailQueue getMailQueue() {
+        return mailQueue;
+    }
+
+    @Override
+    public ManageableMailQueue getManageableMailQueue() {
+        return mailQueue;
+    }
+
+    private JournaledMailQueue reopen(long segmentSize) throws Exception {
+        return new JournaledMailQueue(new RawMailQueueItemDecoratorFactory(), queueParentDir, QUEUE_NAME, SYNC,
+            segmentSize, JournaledMailQueue.DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    @Test
+    public void mailsShouldBeRecoveredAfterDispose() throws Exception {
+        mailQueue.enQueue(defaultMail()
+            .name("name1")
+            .build());
+        mailQueue.enQueue(defaultMail()
+            .name("name2")
+            .build());
+        mailQueue.dispose();
+
+        mailQueue = reopen(JournaledMailQueue.DEFAULT_SEGMENT_SIZE);
+
+        assertThat(mailQueue.getSize()).isEqualTo(2);
+        assertThat(mailQueue.deQueue().getMail().getName()).isEqualTo("name1");
+        assertThat(mailQueue.deQueue().getMail().getName()).isEqualTo("name2");
+    }
+
+    @Test
+    public void mailsShouldBeRecoveredWithoutCheckpoint() throws Exception {
+        mailQueue.enQueue(defaultMail()
+            .name("name1")
+            .build());
+        JournaledMailQueue crashedQueue = mailQueue;
+
+        mailQueue = reopen(JournaledMailQueue.DEFAULT_SEGMENT_SIZE);
+        crashedQueue.getJournal().close();
+
+        MailQueue.MailQueueItem item = mailQueue.deQueue();
+        assertThat(item.getMail().getName()).isEqualTo("name1");
+        assertThat(MimeMessageUtil.asString(item.getMail().getMessage()))
+            .contains("testheader: testvalue");
+    }
+
+    @Test
+    public void acknowledgedMailsShouldNotBeRecovered() throws Exception {
+        mailQueue.enQueue(defaultMail()
+            .name("name1")
+            .build());
+        mailQueue.enQueue(defaultMail()
+            .name("name2")
+            .build());
+        mailQueue.deQueue().done(true);
+        JournaledMailQueue crashedQueue = mailQueue;
+
+        mailQueue = reopen(JournaledMailQueue.DEFAULT_SEGMENT_SIZE);
+        crashedQueue.getJournal().close();
+
+        assertThat(mailQueue.getSize()).isEqualTo(1);
+        assertThat(mailQueue.deQueue().getMail().getName()).isEqualTo("name2");
+    }
+
+    @Test
+    public void delaysShouldBeRecovered() throws Exception {
+        mailQueue.enQueue(defaultMail()
+            .name("name1")
+            .build(), 1, TimeUnit.HOURS);
+        mailQueue.dispose();
+
+        mailQueue = reopen(JournaledMailQueue.DEFAULT_SEGMENT_SIZE);
+
+        assertThat(mailQueue.browse().next().getNextDelivery().get().toInstant())
+            .isAfter(Instant.now().plusSeconds(3500));
+    }
+
+    @Test
+    public void partiallyWrittenRecordShouldBeDiscardedUponRecovery() throws Exception {
+        mailQueue.enQueue(defaultMail()
+            .name("name1")
+            .build());
+        mailQueue.enQueue(defaultMail()
+            .name("name2")
+            .build());
+        JournaledMailQueue crashedQueue = mailQueue;
+        MailJournal journal = crashedQueue.getJournal();
+        File segment = journal.segmentFile(journal.currentSegmentId());
+        journal.close();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 10);
+        }
+
+        mailQueue = reopen(JournaledMailQueue.DEFAULT_SEGMENT_SIZE);
+        mailQueue.enQueue(defaultMail()
+            .name("name3")
+            .build());
+
+        assertThat(mailQueue.deQueue().getMail().getName()).isEqualTo("name1");
+        assertThat(mailQueue.deQueue().getMail().getName()).isEqualTo("name3");
+        assertThat(mailQueue.getSize()).isEqualTo(2);
+    }
+
+    @Test
+    public void corruptedSealedSegmentShouldBeSkippedUponRecovery() throws Exception {
+        mailQueue.dispose();
+        mailQueue = reopen(SMALL_SEGMENT_SIZE);
+        for (int i = 0; i < 10; i++) {
+            mailQueue.enQueue(defaultMail()
+                .name("name" + i)
+                .build());
+        }
+        JournaledMailQueue crashedQueue = mailQueue;
+        MailJournal journal = crashedQueue.getJournal();
+        File firstSegment = journal.segmentFile(journal.firstSegmentId());
+        journal.close();
+        try (RandomAccessFile file = new RandomAccessFile(firstSegment, "rw")) {
+            file.writeInt(0);
+        }
+
+        mailQueue = reopen(SMALL_SEGMENT_SIZE);
+
+        assertThat(mailQueue.browse())
+            .extracting(ManageableMailQueue.MailQueueItemView::getMail)
+            .extracting(Mail::getName)
+            .doesNotContain("name0")
+            .contains("name9");
+    }
+
+    @Test
+    public void journalShouldRollSegments() throws Exception {
+        mailQueue.dispose();
+        mailQueue = reopen(SMALL_SEGMENT_SIZE);
+
+        for (int i = 0; i < 10; i++) {
+            mailQueue.enQueue(defaultMail()
+                .name("name" + i)
+                .build());
+        }
+
+        assertThat(mailQueue.getJournal().segmentCount()).isGreaterThan(1);
+    }
+
+    @Test
+    public void compactionShouldDeleteSegmentsOfAcknowledgedMails() throws Exception {
+        mailQueue.dispose();
+        mailQueue = reopen(SMALL_SEGMENT_SIZE);
+        for (int i = 0; i < 10; i++) {
+            mailQueue.enQueue(defaultMail()
+                .name("name" + i)
+                .build());
+        }
+        int segmentCount = mailQueue.getJournal().segmentCount();
+
+        for (int i = 0; i < 9; i++) {
+            mailQueue.deQueue().done(true);
+        }
+        mailQueue.compact();
+
+        assertThat(mailQueue.getJournal().segmentCount()).isLessThan(segmentCount);
+        assertThat(mailQueue.deQueue().getMail().getName()).isEqualTo("name9");
+    }
+
+    @Test
+    public void compactionShouldPreserveLiveMails() throws Exception {
+        mailQueue.dispose();
+        mailQueue = reopen(SMALL_SEGMENT_SIZE);
+        for (int i = 0; i < 10; i++) {
+            mailQueue.enQueue(defaultMail()
+                .name("name" + i)
+                .build());
+        }
+        List<MailQueue.MailQueueItem> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            items.add(mailQueue.deQueue());
+        }
+        for (int i = 0; i < 10; i++) {
+            items.get(i).done(i % 2 == 0);
+        }
+        mailQueue.compact();
+        mailQueue.dispose();
+
+        mailQueue = reopen(SMALL_SEGMENT_SIZE);
+
+        assertThat(mailQueue.browse())
+            .extracting(ManageableMailQueue.MailQueueItemView::getMail)
+            .extracting(Mail::getName)
+            .containsExactly("name1", "name3", "name5", "name7", "name9");
+    }
+
+    @Test
+    public void concurrentlyEnqueuedMailsShouldBeRecovered() throws Exception {
+        mailQueue.dispose();
+        mailQueue = reopen(SMALL_SEGMENT_SIZE);
+        JournaledMailQueue testee = mailQueue;
+
+        ConcurrentTestRunner.builder()
+            .operation((threadNumber, step) -> testee.enQueue(defaultMail()
+                .name("name" + threadNumber + "-" + step)
+                .build()))
+            .threadCount(10)
+            .operationCount(10)
+            .runSuccessfullyWithin(Duration.ofMinutes(1));
+        mailQueue.dispose();
+
+        mailQueue = reopen(SMALL_SEGMENT_SIZE);
+
+        assertThat(mailQueue.getSize()).isEqualTo(100);
+    }
+
+    @Test
+    public void mailsExceedingTheRecordMemoryBufferShouldBeRecovered() throws Exception {
+        String body = Strings.repeat("0123456789", 200 * 1024);
+        mailQueue.enQueue(defaultMail()
+            .name("name1")
+            .mimeMessage(MimeMessageBuilder.mimeMessageBuilder()
+                .setText(body))
+            .build());
+        mailQueue.dispose();
+
+        mailQueue = reopen(JournaledMailQueue.DEFAULT_SEGMENT_SIZE);
+
+        assertThat(MimeMessageUtil.asString(mailQueue.deQueue().getMail().getMessage()))
+            .contains(body);
+    }
+
+    @Test
+    public void clearShouldNotRemoveMailsBeingProcessed() throws Exception {
+        mailQueue.enQueue(defaultMail()
+            .name("name1")
+            .build());
+        mailQueue.enQueue(defaultMail()
+            .name("name2")
+            .build());
+        MailQueue.MailQueueItem item = mailQueue.deQueue();
+
+        mailQueue.clear();
+        item.done(false);
+
+        assertThat(mailQueue.deQueue().getMail().getName()).isEqualTo("name1");
+        assertThat(mailQueue.getSize()).isEqualTo(1);
+    }
+}
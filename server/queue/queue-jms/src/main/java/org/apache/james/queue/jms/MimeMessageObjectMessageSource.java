@@ -67,6 +67,11 @@ public class MimeMessageObjectMessageSource extends MimeMessageSource implements
         return id;
     }
 
+    @Override
+    public boolean isImmutable() {
+        return true;
+    }
+
     @Override
     public void dispose() {
         try {
@@ -22,14 +22,21 @@ package org.apache.james.queue.memory;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.DelayQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Delayed;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 import javax.mail.MessagingException;
@@ -42,25 +49,46 @@ import org.apache.james.queue.api.MailQueueFactory;
 import org.apache.james.queue.api.MailQueueItemDecoratorFactory;
 import org.apache.james.queue.api.ManageableMailQueue;
 import org.apache.james.server.core.MailImpl;
+import org.apache.james.server.core.MimeMessageCopyOnWriteProxy;
 import org.apache.mailet.Mail;
 import org.threeten.extra.Temporals;
 
 import com.github.fge.lambdas.Throwing;
 import com.github.steveash.guavate.Guavate;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
 
 public class MemoryMailQueueFactory implements MailQueueFactory<ManageableMailQueue> {
 
+    public static final int DEFAULT_SHARD_COUNT = Runtime.getRuntime().availableProcessors();
+
     private final ConcurrentHashMap<String, MemoryMailQueueFactory.MemoryMailQueue> mailQueues;
     private final MailQueueItemDecoratorFactory mailQueueItemDecoratorFactory;
+    private final int shardCount;
+    private final boolean copyOnWrite;
 
     @Inject
     public MemoryMailQueueFactory(MailQueueItemDecoratorFactory mailQueueItemDecoratorFactory) {
+        this(mailQueueItemDecoratorFactory, DEFAULT_SHARD_COUNT);
+    }
+
+    public MemoryMailQueueFactory(MailQueueItemDecoratorFactory mailQueueItemDecoratorFactory, int shardCount) {
+        this(mailQueueItemDecoratorFactory, shardCount, false);
+    }
+
+    /**
+     * @param copyOnWrite <code>true</code> to only copy the message of an enqueued mail once it gets modified,
+     *                    either by the caller or by the dequeuer. By default it is copied upon enqueue
+     */
+    public MemoryMailQueueFactory(MailQueueItemDecoratorFactory mailQueueItemDecoratorFactory, int shardCount, boolean copyOnWrite) {
+        Preconditions.checkArgument(shardCount > 0, "shardCount needs to be strictly positive");
         this.mailQueues = new ConcurrentHashMap<>();
         this.mailQueueItemDecoratorFactory = mailQueueItemDecoratorFactory;
+        this.shardCount = shardCount;
+        this.copyOnWrite = copyOnWrite;
     }
 
     @Override
@@ -75,22 +103,58 @@ public class MemoryMailQueueFactory implements MailQueueFactory<ManageableMailQu
 
     @Override
     public MemoryMailQueueFactory.MemoryMailQueue createQueue(String name) {
-        MemoryMailQueueFactory.MemoryMailQueue newMailQueue = new MemoryMailQueue(name, mailQueueItemDecoratorFactory);
+        MemoryMailQueueFactory.MemoryMailQueue newMailQueue = new MemoryMailQueue(name, mailQueueItemDecoratorFactory, shardCount, copyOnWrite);
         return Optional.ofNullable(mailQueues.putIfAbsent(name, newMailQueue))
             .orElse(newMailQueue);
     }
 
+    /**
+     * In memory {@link ManageableMailQueue}.
+     *
+     * Mails ready for delivery are kept in a lock-free FIFO list. Delayed mails are spread
+     * over several independently locked delay heaps (shards), and are moved to the ready
+     * list by dequeuers once due. This avoids the single lock of a {@link java.util.concurrent.DelayQueue}
+     * being shared by every enqueuing and dequeuing thread.
+     *
+     * Like a {@link java.util.concurrent.DelayQueue}, idle dequeuers wait until the earliest delivery time,
+     * and are woken up when a mail due earlier than that gets enqueued.
+     *
+     * Enqueued mails are isolated from later changes made by the caller. Their message is either cloned upon enqueue,
+     * or, in copy-on-write mode, shared until either side modifies it. Copy-on-write saves a copy of messages which
+     * are never modified. It needs the caller's mail to hold its message through a {@link MimeMessageCopyOnWriteProxy},
+     * as {@link MailImpl} does: other messages are still cloned upon enqueue.
+     */
     public static class MemoryMailQueue implements ManageableMailQueue {
-        private final DelayQueue<MemoryMailQueueItem> mailItems;
-        private final LinkedBlockingDeque<MemoryMailQueueItem> inProcessingMailItems;
+        private final ConcurrentLinkedQueue<MemoryMailQueueItem> readyMailItems;
+        private final Semaphore readyPermits;
+        private final DelayShard[] delayShards;
+        private final Set<MemoryMailQueueItem> inProcessingMailItems;
+        private final AtomicLong sequence;
         private final MailQueueItemDecoratorFactory mailQueueItemDecoratorFactory;
         private final String name;
+        private final boolean copyOnWrite;
 
         public MemoryMailQueue(String name, MailQueueItemDecoratorFactory mailQueueItemDecoratorFactory) {
-            this.mailItems = new DelayQueue<>();
-            this.inProcessingMailItems = new LinkedBlockingDeque<>();
+            this(name, mailQueueItemDecoratorFactory, DEFAULT_SHARD_COUNT);
+        }
+
+        public MemoryMailQueue(String name, MailQueueItemDecoratorFactory mailQueueItemDecoratorFactory, int shardCount) {
+            this(name, mailQueueItemDecoratorFactory, shardCount, false);
+        }
+
+        public MemoryMailQueue(String name, MailQueueItemDecoratorFactory mailQueueItemDecoratorFactory, int shardCount, boolean copyOnWrite) {
+            Preconditions.checkArgument(shardCount > 0, "shardCount needs to be strictly positive");
+            this.readyMailItems = new ConcurrentLinkedQueue<>();
+            this.readyPermits = new Semaphore(0);
+            this.delayShards = new DelayShard[shardCount];
+            for (int i = 0; i < shardCount; i++) {
+                delayShards[i] = new DelayShard();
+            }
+            this.inProcessingMailItems = ConcurrentHashMap.newKeySet();
+            this.sequence = new AtomicLong();
             this.name = name;
             this.mailQueueItemDecoratorFactory = mailQueueItemDecoratorFactory;
+            this.copyOnWrite = copyOnWrite;
         }
 
         @Override
@@ -102,12 +166,40 @@ public class MemoryMailQueueFactory implements MailQueueFactory<ManageableMailQu
         public void enQueue(Mail mail, long delay, TimeUnit unit) throws MailQueueException {
             ZonedDateTime nextDelivery = calculateNextDelivery(delay, unit);
             try {
-                mailItems.put(new MemoryMailQueueItem(cloneMail(mail), this, nextDelivery));
+                enQueueItem(new MemoryMailQueueItem(copyMail(mail), this, nextDelivery, sequence.incrementAndGet()));
             } catch (MessagingException e) {
                 throw new MailQueueException("Error while copying mail " + mail.getName(), e);
             }
         }
 
+        private void enQueueItem(MemoryMailQueueItem item) {
+            if (item.deliveryMillis <= System.currentTimeMillis()) {
+                markAsReady(item);
+            } else {
+                boolean dueFirst = item.deliveryMillis < nextDueMillis();
+                shardFor(item).add(item);
+                if (dueFirst) {
+                    wakeUpDequeuer();
+                }
+            }
+        }
+
+        /**
+         * Idle dequeuers wait on ready permits, an extra permit makes one of them re-compute its waiting time.
+         */
+        private void wakeUpDequeuer() {
+            readyPermits.release();
+        }
+
+        private DelayShard shardFor(MemoryMailQueueItem item) {
+            return delayShards[(int) (item.sequenceNumber % delayShards.length)];
+        }
+
+        private void markAsReady(MemoryMailQueueItem item) {
+            readyMailItems.add(item);
+            readyPermits.release();
+        }
+
         private ZonedDateTime calculateNextDelivery(long delay, TimeUnit unit) {
             if (delay > 0) {
                 try {
@@ -125,62 +217,151 @@ public class MemoryMailQueueFactory implements MailQueueFactory<ManageableMailQu
             enQueue(mail, 0, TimeUnit.SECONDS);
         }
 
-        private Mail cloneMail(Mail mail) throws MessagingException {
+        private Mail copyMail(Mail mail) throws MessagingException {
             MailImpl mailImpl = MailImpl.duplicate(mail);
             mailImpl.setName(mail.getName());
             mailImpl.setState(mail.getState());
             mailImpl.addAllSpecificHeaderForRecipient(mail.getPerRecipientSpecificHeaders());
             Optional.ofNullable(mail.getMessage())
-                    .ifPresent(Throwing.consumer(message -> mailImpl.setMessage(new MimeMessage(message))));
+                    .ifPresent(Throwing.consumer(message -> mailImpl.setMessage(copyMessage(message))));
             return mailImpl;
         }
 
+        private MimeMessage copyMessage(MimeMessage message) throws MessagingException {
+            if (copyOnWrite && message instanceof MimeMessageCopyOnWriteProxy) {
+                return new MimeMessageCopyOnWriteProxy(message);
+            }
+            return new MimeMessage(message);
+        }
+
         @Override
         public MailQueueItem deQueue() throws MailQueueException, InterruptedException {
-            MemoryMailQueueItem item = mailItems.take();
+            MemoryMailQueueItem item = takeReadyItem();
             inProcessingMailItems.add(item);
             return mailQueueItemDecoratorFactory.decorate(item);
         }
 
-        public Mail getLastMail() throws MailQueueException, InterruptedException {
-            MemoryMailQueueItem maybeItem = Iterables.getLast(mailItems, null);
-            if (maybeItem == null) {
-                return null;
+        /**
+         * Blocks until at least one mail is ready, then returns it together with the other
+         * ready mails, up to maxItems.
+         */
+        @Override
+        public List<MailQueueItem> deQueue(int maxItems) throws MailQueueException, InterruptedException {
+            Preconditions.checkArgument(maxItems > 0, "maxItems needs to be strictly positive");
+            List<MemoryMailQueueItem> items = new ArrayList<>(maxItems);
+            items.add(takeReadyItem());
+            while (items.size() < maxItems) {
+                Optional<MemoryMailQueueItem> item = pollReadyItem();
+                if (!item.isPresent()) {
+                    break;
+                }
+                items.add(item.get());
+            }
+            inProcessingMailItems.addAll(items);
+            return items.stream()
+                .map(mailQueueItemDecoratorFactory::decorate)
+                .collect(Guavate.toImmutableList());
+        }
+
+        private MemoryMailQueueItem takeReadyItem() throws InterruptedException {
+            while (true) {
+                promoteDueItems();
+                if (readyPermits.tryAcquire(millisBeforeNextDueItem(), TimeUnit.MILLISECONDS)) {
+                    MemoryMailQueueItem item = readyMailItems.poll();
+                    // Permits can outnumber ready items when those got removed by management operations,
+                    // or when they were released to wake a dequeuer up
+                    if (item != null) {
+                        return item;
+                    }
+                }
             }
-            return maybeItem.getMail();
+        }
+
+        private Optional<MemoryMailQueueItem> pollReadyItem() {
+            while (readyPermits.tryAcquire()) {
+                MemoryMailQueueItem item = readyMailItems.poll();
+                if (item != null) {
+                    return Optional.of(item);
+                }
+            }
+            return Optional.empty();
+        }
+
+        private void promoteDueItems() {
+            long now = System.currentTimeMillis();
+            for (DelayShard shard : delayShards) {
+                shard.pollDue(now).forEach(this::markAsReady);
+            }
+        }
+
+        private long millisBeforeNextDueItem() {
+            long nextDue = nextDueMillis();
+            if (nextDue == Long.MAX_VALUE) {
+                return Long.MAX_VALUE;
+            }
+            return Math.max(0, nextDue - System.currentTimeMillis());
+        }
+
+        private long nextDueMillis() {
+            return Stream.of(delayShards)
+                .mapToLong(DelayShard::nextDueMillis)
+                .min()
+                .orElse(Long.MAX_VALUE);
+        }
+
+        private Stream<MemoryMailQueueItem> queuedItems() {
+            return Stream.concat(
+                readyMailItems.stream(),
+                Stream.of(delayShards).flatMap(DelayShard::snapshot));
+        }
+
+        public Mail getLastMail() throws MailQueueException, InterruptedException {
+            return queuedItems()
+                .max(Comparator.comparingLong(item -> item.sequenceNumber))
+                .map(MemoryMailQueueItem::getMail)
+                .orElse(null);
         }
 
         @Override
         public long getSize() throws MailQueueException {
-            return mailItems.size() + inProcessingMailItems.size();
+            long delayedCount = Stream.of(delayShards)
+                .mapToLong(DelayShard::size)
+                .sum();
+            return readyMailItems.size() + delayedCount + inProcessingMailItems.size();
         }
 
         @Override
         public long flush() throws MailQueueException {
-            int count = 0;
-            for (MailQueueItem item: mailItems) {
-                if (mailItems.remove(item)) {
-                    enQueue(item.getMail());
-                    count += 1;
-                }
+            long count = 0;
+            for (DelayShard shard : delayShards) {
+                List<MemoryMailQueueItem> items = shard.pollDue(Long.MAX_VALUE);
+                items.forEach(this::markAsReady);
+                count += items.size();
             }
             return count;
         }
 
         @Override
         public long clear() throws MailQueueException {
-            int size = mailItems.size();
-            mailItems.clear();
-            return size;
+            return removeMatching(item -> true);
         }
 
         @Override
         public long remove(Type type, String value) throws MailQueueException {
-            ImmutableList<MemoryMailQueueItem> toBeRemoved = mailItems.stream()
-                .filter(item -> shouldRemove(item, type, value))
+            return removeMatching(item -> shouldRemove(item, type, value));
+        }
+
+        private long removeMatching(Predicate<MemoryMailQueueItem> predicate) {
+            ImmutableList<MemoryMailQueueItem> toBeRemoved = readyMailItems.stream()
+                .filter(predicate)
                 .collect(Guavate.toImmutableList());
-            toBeRemoved.forEach(mailItems::remove);
-            return toBeRemoved.size();
+            long removedReadyCount = toBeRemoved.stream()
+                .filter(readyMailItems::remove)
+                .count();
+            long removedDelayedCount = Stream.of(delayShards)
+                .mapToLong(shard -> shard.removeIf(predicate))
+                .sum();
+            return removedReadyCount + removedDelayedCount;
         }
 
         public boolean shouldRemove(MailQueueItem item, Type type, String value) {
@@ -204,11 +385,17 @@ public class MemoryMailQueueFactory implements MailQueueFactory<ManageableMailQu
             inProcessingMailItems.remove(item);
         }
 
+        @VisibleForTesting
+        int getShardCount() {
+            return delayShards.length;
+        }
+
         @Override
         public MailQueueIterator browse() throws MailQueueException {
-            Iterator<MailQueueItemView> underlying = ImmutableList.copyOf(mailItems)
-                .stream()
+            Iterator<MailQueueItemView> underlying = queuedItems()
+                .sorted(Comparator.comparingLong(item -> item.sequenceNumber))
                 .map(item -> new MailQueueItemView(item.getMail(), item.delivery))
+                .collect(Guavate.toImmutableList())
                 .iterator();
 
             return new MailQueueIterator() {
@@ -244,15 +431,90 @@ public class MemoryMailQueueFactory implements MailQueueFactory<ManageableMailQu
         }
     }
 
+    /**
+     * Delay heap holding a subset of the delayed mails of a queue.
+     *
+     * The delivery time of the heap head is published so that dequeuers only take the lock
+     * when an item is actually due.
+     */
+    private static class DelayShard {
+        private final PriorityQueue<MemoryMailQueueItem> items = new PriorityQueue<>(MemoryMailQueueItem.DELIVERY_ORDER);
+        private volatile long nextDueMillis = Long.MAX_VALUE;
+
+        synchronized void add(MemoryMailQueueItem item) {
+            items.add(item);
+            updateNextDue();
+        }
+
+        List<MemoryMailQueueItem> pollDue(long nowMillis) {
+            if (nextDueMillis > nowMillis) {
+                return ImmutableList.of();
+            }
+            synchronized (this) {
+                ImmutableList.Builder<MemoryMailQueueItem> dueItems = ImmutableList.builder();
+                while (!items.isEmpty() && items.peek().deliveryMillis <= nowMillis) {
+                    dueItems.add(items.poll());
+                }
+                updateNextDue();
+                return dueItems.build();
+            }
+        }
+
+        synchronized long removeIf(Predicate<MemoryMailQueueItem> predicate) {
+            int sizeBefore = items.size();
+            items.removeIf(predicate);
+            updateNextDue();
+            return sizeBefore - items.size();
+        }
+
+        synchronized Stream<MemoryMailQueueItem> snapshot() {
+            return ImmutableList.copyOf(items).stream();
+        }
+
+        synchronized long size() {
+            return items.size();
+        }
+
+        long nextDueMillis() {
+            return nextDueMillis;
+        }
+
+        private void updateNextDue() {
+            nextDueMillis = Optional.ofNullable(items.peek())
+                .map(item -> item.deliveryMillis)
+                .orElse(Long.MAX_VALUE);
+        }
+    }
+
     public static class MemoryMailQueueItem implements MailQueue.MailQueueItem, Delayed {
+        private static final Comparator<MemoryMailQueueItem> DELIVERY_ORDER = Comparator
+            .<MemoryMailQueueItem>comparingLong(item -> item.deliveryMillis)
+            .thenComparingLong(item -> item.sequenceNumber);
+
         private final Mail mail;
         private final MemoryMailQueue queue;
         private final ZonedDateTime delivery;
+        private final long deliveryMillis;
+        private final long sequenceNumber;
 
         public MemoryMailQueueItem(Mail mail, MemoryMailQueue queue, ZonedDateTime delivery) {
+            this(mail, queue, delivery, 0);
+        }
+
+        MemoryMailQueueItem(Mail mail, MemoryMailQueue queue, ZonedDateTime delivery, long sequenceNumber) {
             this.mail = mail;
             this.queue = queue;
             this.delivery = delivery;
+            this.deliveryMillis = toEpochMillis(delivery);
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        private static long toEpochMillis(ZonedDateTime delivery) {
+            try {
+                return delivery.toInstant().toEpochMilli();
+            } catch (ArithmeticException e) {
+                return Long.MAX_VALUE;
+            }
         }
 
         @Override
@@ -279,7 +541,7 @@ public class MemoryMailQueueFactory implements MailQueueFactory<ManageableMailQu
 
         @Override
         public int compareTo(Delayed o) {
-            return Math.toIntExact(getDelay(TimeUnit.MILLISECONDS) - o.getDelay(TimeUnit.MILLISECONDS));
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), o.getDelay(TimeUnit.MILLISECONDS));
         }
     }
 }
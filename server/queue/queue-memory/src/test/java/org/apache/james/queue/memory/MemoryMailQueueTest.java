@@ -19,16 +19,31 @@
 
 package org.apache.james.queue.memory;
 
+import static org.apache.james.queue.api.Mails.createMimeMessage;
 import static org.apache.james.queue.api.Mails.defaultMail;
+import static org.apache.mailet.base.MailAddressFixture.RECIPIENT1;
+import static org.apache.mailet.base.MailAddressFixture.RECIPIENT2;
+import static org.apache.mailet.base.MailAddressFixture.SENDER;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.james.queue.api.DelayedManageableMailQueueContract;
 import org.apache.james.queue.api.MailQueue;
 import org.apache.james.queue.api.ManageableMailQueue;
 import org.apache.james.queue.api.RawMailQueueItemDecoratorFactory;
+import org.apache.james.server.core.MailImpl;
+import org.apache.mailet.Mail;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.github.steveash.guavate.Guavate;
+
 public class MemoryMailQueueTest implements DelayedManageableMailQueueContract {
 
     private MemoryMailQueueFactory.MemoryMailQueue mailQueue;
@@ -86,6 +101,154 @@ public class MemoryMailQueueTest implements DelayedManageableMailQueueContract {
             .isEqualTo("name2");
     }
 
+    @Test
+    public void batchDequeueShouldReturnReadyMailsInOrder() throws Exception {
+        mailQueue.enQueue(defaultMail()
+            .name("name1")
+            .build());
+        mailQueue.enQueue(defaultMail()
+            .name("name2")
+            .build());
+        mailQueue.enQueue(defaultMail()
+            .name("name3")
+            .build());
+
+        List<MailQueue.MailQueueItem> items = mailQueue.deQueue(2);
+
+        assertThat(items.stream().map(item -> item.getMail().getName()).collect(Guavate.toImmutableList()))
+            .containsExactly("name1", "name2");
+    }
+
+    @Test
+    public void batchDequeueShouldNotWaitForBatchToBeFull() throws Exception {
+        mailQueue.enQueue(defaultMail()
+            .name("name1")
+            .build());
+
+        assertThat(mailQueue.deQueue(10)).hasSize(1);
+    }
+
+    @Test
+    public void batchDequeueShouldNotReturnDelayedMails() throws Exception {
+        mailQueue.enQueue(defaultMail()
+            .name("name1")
+            .build());
+        mailQueue.enQueue(defaultMail()
+            .name("delayed")
+            .build(), 1, TimeUnit.HOURS);
+
+        assertThat(mailQueue.deQueue(10)).hasSize(1);
+    }
+
+    @Test
+    public void batchDequeuedMailsShouldBeCountedAsInProcessing() throws Exception {
+        mailQueue.enQueue(defaultMail()
+            .name("name1")
+            .build());
+        mailQueue.enQueue(defaultMail()
+            .name("name2")
+            .build());
+
+        List<MailQueue.MailQueueItem> items = mailQueue.deQueue(2);
+        assertThat(mailQueue.getSize()).isEqualTo(2);
+
+        for (MailQueue.MailQueueItem item : items) {
+            item.done(true);
+        }
+        assertThat(mailQueue.getSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void delayedMailsShouldBeSpreadOverShards() throws Exception {
+        MemoryMailQueueFactory.MemoryMailQueue shardedQueue = new MemoryMailQueueFactory.MemoryMailQueue("test",
+            new RawMailQueueItemDecoratorFactory(), 4);
+        for (int i = 0; i < 8; i++) {
+            shardedQueue.enQueue(defaultMail()
+                .name("name" + i)
+                .build(), 1, TimeUnit.HOURS);
+        }
+
+        assertThat(shardedQueue.getShardCount()).isEqualTo(4);
+        assertThat(shardedQueue.getSize()).isEqualTo(8);
+        assertThat(shardedQueue.flush()).isEqualTo(8);
+        assertThat(shardedQueue.deQueue(8)).hasSize(8);
+    }
+
+    @Test
+    public void constructorShouldThrowOnNonPositiveShardCount() {
+        assertThatThrownBy(() -> new MemoryMailQueueFactory.MemoryMailQueue("test",
+                new RawMailQueueItemDecoratorFactory(), 0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void deQueueShouldReturnDelayedMailEnqueuedWhileWaiting() throws Exception {
+        mailQueue.enQueue(defaultMail()
+            .name("late")
+            .build(), 1, TimeUnit.HOURS);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<MailQueue.MailQueueItem> dequeued = executor.submit(() -> mailQueue.deQueue());
+            Thread.sleep(100);
+
+            mailQueue.enQueue(defaultMail()
+                .name("early")
+                .build(), 100, TimeUnit.MILLISECONDS);
+
+            assertThat(dequeued.get(500, TimeUnit.MILLISECONDS).getMail().getName())
+                .isEqualTo("early");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void enQueueShouldIsolateMailFromLaterChanges() throws Exception {
+        assertEnqueuedMailIsIsolated(mailQueue, defaultMail().build());
+    }
+
+    @Test
+    public void enQueueShouldIsolateMailImplFromLaterChanges() throws Exception {
+        assertEnqueuedMailIsIsolated(mailQueue, defaultMailImpl());
+    }
+
+    @Test
+    public void enQueueShouldIsolateMailFromLaterChangesWhenCopyOnWrite() throws Exception {
+        MemoryMailQueueFactory.MemoryMailQueue copyOnWriteQueue = new MemoryMailQueueFactory.MemoryMailQueue("test",
+            new RawMailQueueItemDecoratorFactory(), MemoryMailQueueFactory.DEFAULT_SHARD_COUNT, true);
+
+        assertEnqueuedMailIsIsolated(copyOnWriteQueue, defaultMail().build());
+    }
+
+    @Test
+    public void enQueueShouldIsolateMailImplFromLaterChangesWhenCopyOnWrite() throws Exception {
+        MemoryMailQueueFactory.MemoryMailQueue copyOnWriteQueue = new MemoryMailQueueFactory.MemoryMailQueue("test",
+            new RawMailQueueItemDecoratorFactory(), MemoryMailQueueFactory.DEFAULT_SHARD_COUNT, true);
+
+        assertEnqueuedMailIsIsolated(copyOnWriteQueue, defaultMailImpl());
+    }
+
+    private MailImpl defaultMailImpl() throws Exception {
+        return MailImpl.builder()
+            .name("name")
+            .sender(SENDER)
+            .recipients(RECIPIENT1, RECIPIENT2)
+            .mimeMessage(createMimeMessage())
+            .build();
+    }
+
+    private void assertEnqueuedMailIsIsolated(MailQueue queue, Mail mail) throws Exception {
+        queue.enQueue(mail);
+
+        mail.getMessage().setHeader("testheader", "modified");
+        mail.getMessage().saveChanges();
+        mail.setAttribute("attribute", "value");
+
+        Mail dequeuedMail = queue.deQueue().getMail();
+        assertThat(dequeuedMail.getMessage().getHeader("testheader")).containsOnly("testvalue");
+        assertThat(dequeuedMail.getAttribute("attribute")).isNull();
+    }
+
     @Override
     public ManageableMailQueue getManageableMailQueue() {
         return mailQueue;
@@ -19,12 +19,16 @@
 
 package org.apache.james.task;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 import javax.annotation.PreDestroy;
@@ -38,18 +42,91 @@ import com.github.steveash.guavate.Guavate;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 
+/**
+ * In memory {@link TaskManager} running tasks on {@link TaskManagerConfiguration#getWorkerCount()} workers.
+ *
+ * Tasks are started in submission order, except that a task whose type reached its concurrency limit lets
+ * the following tasks start first.
+ */
 public class MemoryTaskManager implements TaskManager {
-    private static final boolean INTERRUPT_IF_RUNNING = true;
     private static final Logger LOGGER = LoggerFactory.getLogger(MemoryTaskManager.class);
 
+    private class Execution implements Runnable {
+        private final TaskId taskId;
+        private final Task task;
+        private final Consumer<TaskId> callback;
+        private final CompletableFuture<Void> completion;
+        private Optional<Thread> worker;
+        private boolean cancelled;
+
+        Execution(TaskId taskId, Task task, Consumer<TaskId> callback) {
+            this.taskId = taskId;
+            this.task = task;
+            this.callback = callback;
+            this.completion = new CompletableFuture<>();
+            this.worker = Optional.empty();
+            this.cancelled = false;
+        }
+
+        @Override
+        public void run() {
+            try {
+                markStarted().ifPresent(started -> {
+                    try {
+                        runWithMdc(started, task, callback);
+                    } finally {
+                        markFinished();
+                    }
+                });
+            } finally {
+                release(this);
+                completion.complete(null);
+            }
+        }
+
+        private synchronized Optional<TaskExecutionDetails> markStarted() {
+            if (cancelled) {
+                return Optional.empty();
+            }
+            worker = Optional.of(Thread.currentThread());
+            TaskExecutionDetails started = idToExecutionDetails.get(taskId).start();
+            idToExecutionDetails.put(taskId, started);
+            return Optional.of(started);
+        }
+
+        private synchronized void markFinished() {
+            worker = Optional.empty();
+            // Discard an interruption targeting this task that the task did not consume
+            Thread.interrupted();
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            idToExecutionDetails.put(taskId, idToExecutionDetails.get(taskId).cancel());
+            worker.ifPresent(Thread::interrupt);
+        }
+    }
+
     private final ConcurrentHashMap<TaskId, TaskExecutionDetails> idToExecutionDetails;
-    private final ConcurrentHashMap<TaskId, Future<?>> idToFuture;
+    private final ConcurrentHashMap<TaskId, Execution> idToExecution;
+    private final TaskManagerConfiguration configuration;
     private final ExecutorService executor;
+    private final LinkedList<Execution> waitingExecutions;
+    private final Map<String, Integer> runningCountByType;
+    private int runningCount;
 
     public MemoryTaskManager() {
+        this(TaskManagerConfiguration.DEFAULT);
+    }
+
+    public MemoryTaskManager(TaskManagerConfiguration configuration) {
+        this.configuration = configuration;
         idToExecutionDetails = new ConcurrentHashMap<>();
-        idToFuture = new ConcurrentHashMap<>();
-        executor = Executors.newSingleThreadExecutor();
+        idToExecution = new ConcurrentHashMap<>();
+        executor = Executors.newFixedThreadPool(configuration.getWorkerCount());
+        waitingExecutions = new LinkedList<>();
+        runningCountByType = new HashMap<>();
+        runningCount = 0;
     }
 
     @Override
@@ -61,25 +138,59 @@ public class MemoryTaskManager implements TaskManager {
     TaskId submit(Task task, Consumer<TaskId> callback) {
         TaskId taskId = TaskId.generateTaskId();
         TaskExecutionDetails executionDetails = TaskExecutionDetails.from(task, taskId);
+        Execution execution = new Execution(taskId, task, callback);
 
         idToExecutionDetails.put(taskId, executionDetails);
-        idToFuture.put(taskId,
-            executor.submit(() -> runWithMdc(executionDetails, task, callback)));
+        idToExecution.put(taskId, execution);
+        synchronized (waitingExecutions) {
+            waitingExecutions.add(execution);
+        }
+        dispatch();
         return taskId;
     }
 
-    private void runWithMdc(TaskExecutionDetails executionDetails, Task task, Consumer<TaskId> callback) {
+    private void dispatch() {
+        synchronized (waitingExecutions) {
+            Iterator<Execution> waiting = waitingExecutions.iterator();
+            while (runningCount < configuration.getWorkerCount() && waiting.hasNext()) {
+                Execution execution = waiting.next();
+                String type = execution.task.type();
+                if (hasCapacity(type)) {
+                    waiting.remove();
+                    runningCount++;
+                    runningCountByType.merge(type, 1, Integer::sum);
+                    executor.execute(execution);
+                }
+            }
+        }
+    }
+
+    private boolean hasCapacity(String type) {
+        int runningTasksOfType = runningCountByType.getOrDefault(type, 0);
+        return configuration.getConcurrencyLimit(type)
+            .map(limit -> runningTasksOfType < limit)
+            .orElse(true);
+    }
+
+    private void release(Execution execution) {
+        synchronized (waitingExecutions) {
+            runningCount--;
+            runningCountByType.computeIfPresent(execution.task.type(), (type, count) -> count > 1 ? count - 1 : null);
+        }
+        dispatch();
+    }
+
+    private void runWithMdc(TaskExecutionDetails started, Task task, Consumer<TaskId> callback) {
         MDCBuilder.withMdc(
             MDCBuilder.create()
-                .addContext(Task.TASK_ID, executionDetails.getTaskId())
-                .addContext(Task.TASK_TYPE, executionDetails.getType())
-                .addContext(Task.TASK_DETAILS, executionDetails.getAdditionalInformation()),
-            () -> run(executionDetails, task, callback));
+                .addContext(Task.TASK_ID, started.getTaskId())
+                .addContext(Task.TASK_TYPE, started.getType())
+                .addContext(Task.TASK_DETAILS, started.getAdditionalInformation()),
+            () -> run(started, task, callback));
     }
 
-    private void run(TaskExecutionDetails executionDetails, Task task, Consumer<TaskId> callback) {
-        TaskExecutionDetails started = executionDetails.start();
-        idToExecutionDetails.put(started.getTaskId(), started);
+    private void run(TaskExecutionDetails started, Task task, Consumer<TaskId> callback) {
+        applyRateLimit(task);
         try {
             task.run()
                 .onComplete(() -> success(started))
@@ -87,13 +198,19 @@ public class MemoryTaskManager implements TaskManager {
                     logger -> logger.info("Task was partially performed. Check logs for more details")));
         } catch (Exception e) {
             failed(started,
-                logger -> logger.error("Error while running task", executionDetails, e));
+                logger -> logger.error("Error while running task", started, e));
         } finally {
-            idToFuture.remove(executionDetails.getTaskId());
-            callback.accept(executionDetails.getTaskId());
+            idToExecution.remove(started.getTaskId());
+            callback.accept(started.getTaskId());
         }
     }
 
+    private void applyRateLimit(Task task) {
+        configuration.getRateLimit(task.type())
+            .ifPresent(itemsPerSecond -> task.progress()
+                .ifPresent(progress -> progress.limitRate(itemsPerSecond)));
+    }
+
     private void success(TaskExecutionDetails started) {
         if (!wasCancelled(started.getTaskId())) {
             idToExecutionDetails.put(started.getTaskId(), started.completed());
@@ -133,19 +250,27 @@ public class MemoryTaskManager implements TaskManager {
 
     @Override
     public void cancel(TaskId id) {
-        Optional.ofNullable(idToFuture.get(id))
-            .ifPresent(future -> {
-                TaskExecutionDetails executionDetails = idToExecutionDetails.get(id);
-                idToExecutionDetails.put(id, executionDetails.cancel());
-                future.cancel(INTERRUPT_IF_RUNNING);
-                idToFuture.remove(id);
+        Optional.ofNullable(idToExecution.remove(id))
+            .ifPresent(execution -> {
+                execution.cancel();
+                removeIfWaiting(execution);
             });
     }
 
+    private void removeIfWaiting(Execution execution) {
+        boolean removed;
+        synchronized (waitingExecutions) {
+            removed = waitingExecutions.remove(execution);
+        }
+        if (removed) {
+            execution.completion.complete(null);
+        }
+    }
+
     @Override
     public TaskExecutionDetails await(TaskId id) {
-        Optional.ofNullable(idToFuture.get(id))
-            .ifPresent(Throwing.consumer(Future::get));
+        Optional.ofNullable(idToExecution.get(id))
+            .ifPresent(Throwing.consumer(execution -> execution.completion.get()));
         return getExecutionDetails(id);
     }
 
@@ -85,6 +85,14 @@ public interface Task {
         return Optional.empty();
     }
 
+    /**
+     * Tasks processing many items can report them through a {@link TaskProgress}, which also allows the
+     * {@link TaskManager} to throttle them.
+     */
+    default Optional<TaskProgress> progress() {
+        return Optional.empty();
+    }
+
     String TASK_ID = "taskId";
     String TASK_TYPE = "taskType";
     String TASK_DETAILS = "taskDetails";
@@ -81,6 +81,10 @@ public class TaskExecutionDetails {
         return task.details();
     }
 
+    public Optional<TaskProgress> getProgress() {
+        return task.progress();
+    }
+
     public Optional<ZonedDateTime> getSubmitDate() {
         return submitDate;
     }
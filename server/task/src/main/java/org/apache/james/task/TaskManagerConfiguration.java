@@ -0,0 +1,143 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.task;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+public class TaskManagerConfiguration {
+    public static final int DEFAULT_WORKER_COUNT = 1;
+    public static final TaskManagerConfiguration DEFAULT = builder().build();
+
+    public static class Builder {
+        private Optional<Integer> workerCount;
+        private final ImmutableMap.Builder<String, Integer> concurrencyLimits;
+        private final ImmutableMap.Builder<String, Double> rateLimits;
+
+        private Builder() {
+            workerCount = Optional.empty();
+            concurrencyLimits = ImmutableMap.builder();
+            rateLimits = ImmutableMap.builder();
+        }
+
+        public Builder workerCount(int workerCount) {
+            return workerCount(Optional.of(workerCount));
+        }
+
+        public Builder workerCount(Optional<Integer> workerCount) {
+            workerCount.ifPresent(value -> Preconditions.checkArgument(value > 0, "workerCount should be strictly positive"));
+            this.workerCount = workerCount;
+            return this;
+        }
+
+        public Builder concurrencyLimit(String taskType, int maxConcurrentTasks) {
+            Preconditions.checkArgument(maxConcurrentTasks > 0, "maxConcurrentTasks should be strictly positive");
+            concurrencyLimits.put(taskType, maxConcurrentTasks);
+            return this;
+        }
+
+        public Builder rateLimit(String taskType, double itemsPerSecond) {
+            Preconditions.checkArgument(itemsPerSecond > 0, "itemsPerSecond should be strictly positive");
+            rateLimits.put(taskType, itemsPerSecond);
+            return this;
+        }
+
+        public TaskManagerConfiguration build() {
+            return new TaskManagerConfiguration(
+                workerCount.orElse(DEFAULT_WORKER_COUNT),
+                concurrencyLimits.build(),
+                rateLimits.build());
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final int workerCount;
+    private final ImmutableMap<String, Integer> concurrencyLimits;
+    private final ImmutableMap<String, Double> rateLimits;
+
+    private TaskManagerConfiguration(int workerCount, ImmutableMap<String, Integer> concurrencyLimits, ImmutableMap<String, Double> rateLimits) {
+        this.workerCount = workerCount;
+        this.concurrencyLimits = concurrencyLimits;
+        this.rateLimits = rateLimits;
+    }
+
+    /**
+     * Number of tasks that can run simultaneously.
+     */
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * Number of tasks of the given type that can run simultaneously, when lower than the worker count.
+     */
+    public Optional<Integer> getConcurrencyLimit(String taskType) {
+        return Optional.ofNullable(concurrencyLimits.get(taskType));
+    }
+
+    /**
+     * Number of items per second that tasks of the given type reporting their {@link TaskProgress} can process.
+     */
+    public Optional<Double> getRateLimit(String taskType) {
+        return Optional.ofNullable(rateLimits.get(taskType));
+    }
+
+    public Map<String, Integer> getConcurrencyLimits() {
+        return concurrencyLimits;
+    }
+
+    public Map<String, Double> getRateLimits() {
+        return rateLimits;
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        if (o instanceof TaskManagerConfiguration) {
+            TaskManagerConfiguration that = (TaskManagerConfiguration) o;
+
+            return Objects.equals(this.workerCount, that.workerCount)
+                && Objects.equals(this.concurrencyLimits, that.concurrencyLimits)
+                && Objects.equals(this.rateLimits, that.rateLimits);
+        }
+        return false;
+    }
+
+    @Override
+    public final int hashCode() {
+        return Objects.hash(workerCount, concurrencyLimits, rateLimits);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("workerCount", workerCount)
+            .add("concurrencyLimits", concurrencyLimits)
+            .add("rateLimits", rateLimits)
+            .toString();
+    }
+}
@@ -0,0 +1,92 @@
+/****************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one   *
+ * or more contributor license agreements.  See the NOTICE file *
+ * distributed with this work for additional information        *
+ * regarding copyright ownership.  The ASF licenses this file   *
+ * to you under the Apache License, Version 2.0 (the            *
+ * "License"); you may not use this file except in compliance   *
+ * with the License.  You may obtain a copy of the License at   *
+ *                                                              *
+ *   http://www.apache.org/licenses/LICENSE-2.0                 *
+ *                                                              *
+ * Unless required by applicable law or agreed to in writing,   *
+ * software distributed under the License is distributed on an  *
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY       *
+ * KIND, either express or implied.  See the License for the    *
+ * specific language governing permissions and limitations      *
+ * under the License.                                           *
+ ****************************************************************/
+
+package org.apache.james.task;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Counts the items processed by a {@link Task}.
+ *
+ * Recording an item is also the point where a rate limited task is slowed down: once the {@link TaskManager} sets an
+ * items per second limit, recording calls block as needed to honor it.
+ */
+public class TaskProgress {
+    private static final long NO_RATE_LIMIT = 0;
+
+    private final AtomicLong processedItemCount;
+    private final AtomicLong failedItemCount;
+    private volatile long nanosPerItem;
+    private long nextItemNanos;
+
+    public TaskProgress() {
+        this.processedItemCount = new AtomicLong(0);
+        this.failedItemCount = new AtomicLong(0);
+        this.nanosPerItem = NO_RATE_LIMIT;
+    }
+
+    public void recordProcessedItem() {
+        throttle();
+        processedItemCount.incrementAndGet();
+    }
+
+    public void recordFailedItem() {
+        throttle();
+        failedItemCount.incrementAndGet();
+    }
+
+    public long getProcessedItemCount() {
+        return processedItemCount.get();
+    }
+
+    public long getFailedItemCount() {
+        return failedItemCount.get();
+    }
+
+    void limitRate(double itemsPerSecond) {
+        Preconditions.checkArgument(itemsPerSecond > 0, "itemsPerSecond should be strictly positive");
+        synchronized (this) {
+            nanosPerItem = (long) (TimeUnit.SECONDS.toNanos(1) / itemsPerSecond);
+            nextItemNanos = System.nanoTime();
+        }
+    }
+
+    private void throttle() {
+        if (nanosPerItem == NO_RATE_LIMIT) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long scheduledNanos = Math.max(now, nextItemNanos);
+            nextItemNanos = scheduledNanos + nanosPerItem;
+            waitNanos = scheduledNanos - now;
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
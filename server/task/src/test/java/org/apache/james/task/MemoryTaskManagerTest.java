@@ -24,8 +24,10 @@ import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.assertj.core.api.JUnitSoftAssertions;
@@ -415,6 +417,149 @@ public class MemoryTaskManagerTest {
             .isEqualTo(TaskManager.Status.FAILED);
     }
 
+    @Test
+    public void tasksShouldRunConcurrentlyWhenSeveralWorkers() {
+        MemoryTaskManager taskManager = new MemoryTaskManager(TaskManagerConfiguration.builder()
+            .workerCount(2)
+            .build());
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        try {
+            TaskId id1 = taskManager.submit(() -> {
+                bothStarted.countDown();
+                await(bothStarted);
+                return Task.Result.COMPLETED;
+            });
+            TaskId id2 = taskManager.submit(() -> {
+                bothStarted.countDown();
+                await(bothStarted);
+                return Task.Result.COMPLETED;
+            });
+
+            softly.assertThat(taskManager.await(id1).getStatus()).isEqualTo(TaskManager.Status.COMPLETED);
+            softly.assertThat(taskManager.await(id2).getStatus()).isEqualTo(TaskManager.Status.COMPLETED);
+        } finally {
+            taskManager.stop();
+        }
+    }
+
+    @Test
+    public void concurrencyLimitShouldDelayTasksOfTheSameType() {
+        MemoryTaskManager taskManager = new MemoryTaskManager(TaskManagerConfiguration.builder()
+            .workerCount(2)
+            .concurrencyLimit("limited", 1)
+            .build());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            TaskId id1 = taskManager.submit(typedTask("limited", () -> {
+                started.countDown();
+                await(latch);
+                return Task.Result.COMPLETED;
+            }));
+            await(started);
+            TaskId id2 = taskManager.submit(typedTask("limited", () -> Task.Result.COMPLETED));
+            TaskId id3 = taskManager.submit(typedTask("other", () -> Task.Result.COMPLETED));
+
+            taskManager.await(id3);
+            softly.assertThat(taskManager.getExecutionDetails(id1).getStatus()).isEqualTo(TaskManager.Status.IN_PROGRESS);
+            softly.assertThat(taskManager.getExecutionDetails(id2).getStatus()).isEqualTo(TaskManager.Status.WAITING);
+            softly.assertThat(taskManager.getExecutionDetails(id3).getStatus()).isEqualTo(TaskManager.Status.COMPLETED);
+
+            latch.countDown();
+            softly.assertThat(taskManager.await(id2).getStatus()).isEqualTo(TaskManager.Status.COMPLETED);
+        } finally {
+            latch.countDown();
+            taskManager.stop();
+        }
+    }
+
+    @Test
+    public void rateLimitShouldThrottleRecordedItems() {
+        MemoryTaskManager taskManager = new MemoryTaskManager(TaskManagerConfiguration.builder()
+            .rateLimit("throttled", 20)
+            .build());
+        TaskProgress progress = new TaskProgress();
+        try {
+            long start = System.nanoTime();
+            TaskId id = taskManager.submit(progressingTask("throttled", progress, 11));
+            taskManager.await(id);
+
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .isGreaterThanOrEqualTo(450);
+        } finally {
+            taskManager.stop();
+        }
+    }
+
+    @Test
+    public void getExecutionDetailsShouldReturnProgress() {
+        TaskProgress progress = new TaskProgress();
+
+        TaskId id = memoryTaskManager.submit(progressingTask("progressing", progress, 3));
+        memoryTaskManager.await(id);
+
+        assertThat(memoryTaskManager.getExecutionDetails(id).getProgress())
+            .hasValueSatisfying(value -> assertThat(value.getProcessedItemCount()).isEqualTo(3));
+    }
+
+    @Test
+    public void cancelShouldCancelWaitingTask() {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger count = new AtomicInteger(0);
+
+        TaskId id1 = memoryTaskManager.submit(() -> {
+            await(latch);
+            return Task.Result.COMPLETED;
+        });
+        TaskId id2 = memoryTaskManager.submit(() -> {
+            count.incrementAndGet();
+            return Task.Result.COMPLETED;
+        });
+
+        memoryTaskManager.cancel(id2);
+        latch.countDown();
+        memoryTaskManager.await(id1);
+
+        softly.assertThat(memoryTaskManager.getExecutionDetails(id2).getStatus()).isEqualTo(TaskManager.Status.CANCELLED);
+        softly.assertThat(count.get()).isEqualTo(0);
+    }
+
+    private Task typedTask(String type, Task task) {
+        return new Task() {
+            @Override
+            public Result run() {
+                return task.run();
+            }
+
+            @Override
+            public String type() {
+                return type;
+            }
+        };
+    }
+
+    private Task progressingTask(String type, TaskProgress progress, int itemCount) {
+        return new Task() {
+            @Override
+            public Result run() {
+                for (int i = 0; i < itemCount; i++) {
+                    progress.recordProcessedItem();
+                }
+                return Result.COMPLETED;
+            }
+
+            @Override
+            public String type() {
+                return type;
+            }
+
+            @Override
+            public Optional<TaskProgress> progress() {
+                return Optional.of(progress);
+            }
+        };
+    }
+
     public void sleep(int durationInMs) {
         try {
             Thread.sleep(durationInMs);